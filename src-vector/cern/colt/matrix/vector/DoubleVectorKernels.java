@@ -0,0 +1,348 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.vector;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import cern.colt.function.tdouble.DoubleDoubleFunction;
+import cern.colt.function.tdouble.DoubleFunction;
+import cern.colt.matrix.tdouble.impl.DoubleSimdKernels;
+import cern.jet.math.tdouble.DoubleFunctions;
+import cern.jet.math.tdouble.DoubleMult;
+import cern.jet.math.tdouble.DoublePlus;
+import cern.jet.math.tdouble.DoublePlusMultFirst;
+import cern.jet.math.tdouble.DoublePlusMultSecond;
+
+/**
+ * SIMD kernels for the dense <tt>double</tt> matrices written with the Java
+ * Vector API (<tt>jdk.incubator.vector</tt>), using the preferred vector size
+ * of the platform. Each supported function has its own loop over whole
+ * vectors followed by a scalar loop over the remaining elements, so that the
+ * vector operators are constants the JIT can compile to SIMD instructions.
+ * Element-wise results are identical to those of the scalar kernels;
+ * reductions combine the elements in a different order.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public final class DoubleVectorKernels implements DoubleSimdKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private static final int L = SPECIES.length();
+
+    public DoubleVectorKernels() {
+    }
+
+    public boolean assign(double[] a, int idx, int n, DoubleFunction f) {
+        int i = 0;
+        if (f instanceof DoubleMult) {
+            double multiplicator = ((DoubleMult) f).multiplicator;
+            if (multiplicator == 0) {
+                // the matrices assign 0 instead
+                return false;
+            }
+            if (multiplicator == 1) {
+                return true;
+            }
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                DoubleVector.fromArray(SPECIES, a, idx + i).mul(multiplicator).intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] *= multiplicator;
+            }
+        } else if (f instanceof DoublePlus) {
+            double addend = ((DoublePlus) f).addend;
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                DoubleVector.fromArray(SPECIES, a, idx + i).add(addend).intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] += addend;
+            }
+        } else if (f == DoubleFunctions.identity) {
+            return true;
+        } else if (f == DoubleFunctions.neg) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                DoubleVector.fromArray(SPECIES, a, idx + i).neg().intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] = -a[idx + i];
+            }
+        } else if (f == DoubleFunctions.abs) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                DoubleVector.fromArray(SPECIES, a, idx + i).abs().intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] = Math.abs(a[idx + i]);
+            }
+        } else if (f == DoubleFunctions.square) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                DoubleVector v = DoubleVector.fromArray(SPECIES, a, idx + i);
+                v.mul(v).intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] *= a[idx + i];
+            }
+        } else if (f == DoubleFunctions.sqrt) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                DoubleVector.fromArray(SPECIES, a, idx + i).sqrt().intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] = Math.sqrt(a[idx + i]);
+            }
+        } else if (f == DoubleFunctions.inv) {
+            DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                one.div(DoubleVector.fromArray(SPECIES, a, idx + i)).intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] = 1.0 / a[idx + i];
+            }
+        } else if (f == DoubleFunctions.sign) {
+            DoubleVector zero = DoubleVector.zero(SPECIES);
+            DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+            DoubleVector minusOne = DoubleVector.broadcast(SPECIES, -1.0);
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                DoubleVector v = DoubleVector.fromArray(SPECIES, a, idx + i);
+                zero.blend(one, v.compare(VectorOperators.GT, 0.0)).blend(minusOne, v.compare(VectorOperators.LT, 0.0))
+                        .intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                double v = a[idx + i];
+                a[idx + i] = v < 0 ? -1 : v > 0 ? 1 : 0;
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    public boolean assign(double[] a, int idx, double[] b, int bIdx, int n, DoubleDoubleFunction f) {
+        int i = 0;
+        if (f instanceof DoublePlusMultSecond) {
+            double multiplicator = ((DoublePlusMultSecond) f).multiplicator;
+            if (multiplicator == 0) {
+                return true;
+            } else if (multiplicator == 1) {
+                // x[i] = x[i] + y[i]
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    DoubleVector.fromArray(SPECIES, a, idx + i).add(DoubleVector.fromArray(SPECIES, b, bIdx + i))
+                            .intoArray(a, idx + i);
+                }
+                for (; i < n; i++) {
+                    a[idx + i] += b[bIdx + i];
+                }
+            } else if (multiplicator == -1) {
+                // x[i] = x[i] - y[i]
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    DoubleVector.fromArray(SPECIES, a, idx + i).sub(DoubleVector.fromArray(SPECIES, b, bIdx + i))
+                            .intoArray(a, idx + i);
+                }
+                for (; i < n; i++) {
+                    a[idx + i] -= b[bIdx + i];
+                }
+            } else {
+                daxpy(n, multiplicator, b, bIdx, a, idx);
+            }
+        } else if (f instanceof DoublePlusMultFirst) {
+            double multiplicator = ((DoublePlusMultFirst) f).multiplicator;
+            if (multiplicator == 0) {
+                // x[i] = y[i]
+                System.arraycopy(b, bIdx, a, idx, n);
+            } else if (multiplicator == 1) {
+                // x[i] = x[i] + y[i]
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    DoubleVector.fromArray(SPECIES, a, idx + i).add(DoubleVector.fromArray(SPECIES, b, bIdx + i))
+                            .intoArray(a, idx + i);
+                }
+                for (; i < n; i++) {
+                    a[idx + i] += b[bIdx + i];
+                }
+            } else if (multiplicator == -1) {
+                // x[i] = -x[i] + y[i]
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    DoubleVector.fromArray(SPECIES, b, bIdx + i).sub(DoubleVector.fromArray(SPECIES, a, idx + i))
+                            .intoArray(a, idx + i);
+                }
+                for (; i < n; i++) {
+                    a[idx + i] = b[bIdx + i] - a[idx + i];
+                }
+            } else {
+                // x[i] = mult*x[i] + y[i]
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    DoubleVector.fromArray(SPECIES, a, idx + i).mul(multiplicator).add(
+                            DoubleVector.fromArray(SPECIES, b, bIdx + i)).intoArray(a, idx + i);
+                }
+                for (; i < n; i++) {
+                    a[idx + i] = multiplicator * a[idx + i] + b[bIdx + i];
+                }
+            }
+        } else if (f == DoubleFunctions.mult) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                DoubleVector.fromArray(SPECIES, a, idx + i).mul(DoubleVector.fromArray(SPECIES, b, bIdx + i))
+                        .intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] *= b[bIdx + i];
+            }
+        } else if (f == DoubleFunctions.div) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                DoubleVector.fromArray(SPECIES, a, idx + i).div(DoubleVector.fromArray(SPECIES, b, bIdx + i))
+                        .intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] /= b[bIdx + i];
+            }
+        } else if (f == DoubleFunctions.max) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                DoubleVector.fromArray(SPECIES, a, idx + i).max(DoubleVector.fromArray(SPECIES, b, bIdx + i))
+                        .intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] = Math.max(a[idx + i], b[bIdx + i]);
+            }
+        } else if (f == DoubleFunctions.min) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                DoubleVector.fromArray(SPECIES, a, idx + i).min(DoubleVector.fromArray(SPECIES, b, bIdx + i))
+                        .intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] = Math.min(a[idx + i], b[bIdx + i]);
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    public boolean isAggregateSupported(DoubleDoubleFunction aggr, DoubleFunction f) {
+        if (aggr == DoubleFunctions.plus) {
+            return f == DoubleFunctions.identity || f == DoubleFunctions.abs || f == DoubleFunctions.square;
+        }
+        if (aggr == DoubleFunctions.max || aggr == DoubleFunctions.min) {
+            return f == DoubleFunctions.identity || f == DoubleFunctions.abs;
+        }
+        return false;
+    }
+
+    public double aggregate(double[] a, int idx, int n, DoubleDoubleFunction aggr, DoubleFunction f) {
+        int i = 0;
+        if (aggr == DoubleFunctions.plus) {
+            if (f == DoubleFunctions.identity) {
+                return zSum(a, idx, n);
+            }
+            DoubleVector acc = DoubleVector.zero(SPECIES);
+            double sum = 0;
+            if (f == DoubleFunctions.abs) {
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    acc = acc.add(DoubleVector.fromArray(SPECIES, a, idx + i).abs());
+                }
+                for (; i < n; i++) {
+                    sum += Math.abs(a[idx + i]);
+                }
+            } else {
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    DoubleVector v = DoubleVector.fromArray(SPECIES, a, idx + i);
+                    acc = v.fma(v, acc);
+                }
+                for (; i < n; i++) {
+                    sum += a[idx + i] * a[idx + i];
+                }
+            }
+            return acc.reduceLanes(VectorOperators.ADD) + sum;
+        }
+        boolean max = aggr == DoubleFunctions.max;
+        boolean abs = f == DoubleFunctions.abs;
+        double r = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        DoubleVector acc = DoubleVector.broadcast(SPECIES, r);
+        for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, a, idx + i);
+            if (abs) {
+                v = v.abs();
+            }
+            acc = max ? acc.max(v) : acc.min(v);
+        }
+        for (; i < n; i++) {
+            double v = abs ? Math.abs(a[idx + i]) : a[idx + i];
+            r = max ? Math.max(r, v) : Math.min(r, v);
+        }
+        return max ? Math.max(acc.reduceLanes(VectorOperators.MAX), r) : Math.min(acc
+                .reduceLanes(VectorOperators.MIN), r);
+    }
+
+    public double zSum(double[] a, int idx, int n) {
+        // independent accumulators hide the latency of the additions
+        DoubleVector acc0 = DoubleVector.zero(SPECIES);
+        DoubleVector acc1 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = n - 2 * L; i <= bound; i += 2 * L) {
+            acc0 = acc0.add(DoubleVector.fromArray(SPECIES, a, idx + i));
+            acc1 = acc1.add(DoubleVector.fromArray(SPECIES, a, idx + i + L));
+        }
+        for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+            acc0 = acc0.add(DoubleVector.fromArray(SPECIES, a, idx + i));
+        }
+        double sum = 0;
+        for (; i < n; i++) {
+            sum += a[idx + i];
+        }
+        return acc0.add(acc1).reduceLanes(VectorOperators.ADD) + sum;
+    }
+
+    public double zDotProduct(double[] a, int idx, double[] b, int bIdx, int n) {
+        DoubleVector acc0 = DoubleVector.zero(SPECIES);
+        DoubleVector acc1 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = n - 2 * L; i <= bound; i += 2 * L) {
+            acc0 = DoubleVector.fromArray(SPECIES, a, idx + i).fma(DoubleVector.fromArray(SPECIES, b, bIdx + i), acc0);
+            acc1 = DoubleVector.fromArray(SPECIES, a, idx + i + L).fma(
+                    DoubleVector.fromArray(SPECIES, b, bIdx + i + L), acc1);
+        }
+        for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+            acc0 = DoubleVector.fromArray(SPECIES, a, idx + i).fma(DoubleVector.fromArray(SPECIES, b, bIdx + i), acc0);
+        }
+        double sum = 0;
+        for (; i < n; i++) {
+            sum += a[idx + i] * b[bIdx + i];
+        }
+        return acc0.add(acc1).reduceLanes(VectorOperators.ADD) + sum;
+    }
+
+    public void daxpy(int n, double alpha, double[] x, int xIdx, double[] y, int yIdx) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+            DoubleVector.fromArray(SPECIES, x, xIdx + i).mul(alpha).add(DoubleVector.fromArray(SPECIES, y, yIdx + i))
+                    .intoArray(y, yIdx + i);
+        }
+        for (; i < n; i++) {
+            y[yIdx + i] += alpha * x[xIdx + i];
+        }
+    }
+
+    public void zMultSlice(double[] values, int[] columnIndexes, int idx, int height, int width, double[] y,
+            double[] sum) {
+        // L rows at a time; the elements of y are gathered by column index
+        int r = 0;
+        for (int bound = SPECIES.loopBound(height); r < bound; r += L) {
+            DoubleVector acc = DoubleVector.fromArray(SPECIES, sum, r);
+            for (int k = 0, i = idx + r; k < width; k++, i += height) {
+                acc = DoubleVector.fromArray(SPECIES, values, i).fma(
+                        DoubleVector.fromArray(SPECIES, y, 0, columnIndexes, i), acc);
+            }
+            acc.intoArray(sum, r);
+        }
+        for (; r < height; r++) {
+            double s = 0;
+            for (int k = 0, i = idx + r; k < width; k++, i += height) {
+                s += values[i] * y[columnIndexes[i]];
+            }
+            sum[r] += s;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.vector;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import cern.colt.function.tfloat.FloatFloatFunction;
+import cern.colt.function.tfloat.FloatFunction;
+import cern.colt.matrix.tfloat.impl.FloatSimdKernels;
+import cern.jet.math.tfloat.FloatFunctions;
+import cern.jet.math.tfloat.FloatMult;
+import cern.jet.math.tfloat.FloatPlusMultFirst;
+import cern.jet.math.tfloat.FloatPlusMultSecond;
+
+/**
+ * SIMD kernels for the dense <tt>float</tt> matrices written with the Java
+ * Vector API (<tt>jdk.incubator.vector</tt>), using the preferred vector size
+ * of the platform. Each supported function has its own loop over whole
+ * vectors followed by a scalar loop over the remaining elements, so that the
+ * vector operators are constants the JIT can compile to SIMD instructions.
+ * Element-wise results are identical to those of the scalar kernels;
+ * reductions combine the elements in a different order.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public final class FloatVectorKernels implements FloatSimdKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private static final int L = SPECIES.length();
+
+    public FloatVectorKernels() {
+    }
+
+    public boolean assign(float[] a, int idx, int n, FloatFunction f) {
+        int i = 0;
+        if (f instanceof FloatMult) {
+            float multiplicator = ((FloatMult) f).multiplicator;
+            if (multiplicator == 0) {
+                // the matrices assign 0 instead
+                return false;
+            }
+            if (multiplicator == 1) {
+                return true;
+            }
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                FloatVector.fromArray(SPECIES, a, idx + i).mul(multiplicator).intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] *= multiplicator;
+            }
+        } else if (f == FloatFunctions.identity) {
+            return true;
+        } else if (f == FloatFunctions.neg) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                FloatVector.fromArray(SPECIES, a, idx + i).neg().intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] = -a[idx + i];
+            }
+        } else if (f == FloatFunctions.abs) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                FloatVector.fromArray(SPECIES, a, idx + i).abs().intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] = Math.abs(a[idx + i]);
+            }
+        } else if (f == FloatFunctions.square) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                FloatVector v = FloatVector.fromArray(SPECIES, a, idx + i);
+                v.mul(v).intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] *= a[idx + i];
+            }
+        } else if (f == FloatFunctions.sqrt) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                FloatVector.fromArray(SPECIES, a, idx + i).sqrt().intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] = (float) Math.sqrt(a[idx + i]);
+            }
+        } else if (f == FloatFunctions.inv) {
+            FloatVector one = FloatVector.broadcast(SPECIES, 1.0f);
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                one.div(FloatVector.fromArray(SPECIES, a, idx + i)).intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] = (float) (1.0 / a[idx + i]);
+            }
+        } else if (f == FloatFunctions.sign) {
+            FloatVector zero = FloatVector.zero(SPECIES);
+            FloatVector one = FloatVector.broadcast(SPECIES, 1.0f);
+            FloatVector minusOne = FloatVector.broadcast(SPECIES, -1.0f);
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                FloatVector v = FloatVector.fromArray(SPECIES, a, idx + i);
+                zero.blend(one, v.compare(VectorOperators.GT, 0.0f)).blend(minusOne, v.compare(VectorOperators.LT, 0.0f))
+                        .intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                float v = a[idx + i];
+                a[idx + i] = v < 0 ? -1 : v > 0 ? 1 : 0;
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    public boolean assign(float[] a, int idx, float[] b, int bIdx, int n, FloatFloatFunction f) {
+        int i = 0;
+        if (f instanceof FloatPlusMultSecond) {
+            float multiplicator = ((FloatPlusMultSecond) f).multiplicator;
+            if (multiplicator == 0) {
+                return true;
+            } else if (multiplicator == 1) {
+                // x[i] = x[i] + y[i]
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    FloatVector.fromArray(SPECIES, a, idx + i).add(FloatVector.fromArray(SPECIES, b, bIdx + i))
+                            .intoArray(a, idx + i);
+                }
+                for (; i < n; i++) {
+                    a[idx + i] += b[bIdx + i];
+                }
+            } else if (multiplicator == -1) {
+                // x[i] = x[i] - y[i]
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    FloatVector.fromArray(SPECIES, a, idx + i).sub(FloatVector.fromArray(SPECIES, b, bIdx + i))
+                            .intoArray(a, idx + i);
+                }
+                for (; i < n; i++) {
+                    a[idx + i] -= b[bIdx + i];
+                }
+            } else {
+                daxpy(n, multiplicator, b, bIdx, a, idx);
+            }
+        } else if (f instanceof FloatPlusMultFirst) {
+            float multiplicator = ((FloatPlusMultFirst) f).multiplicator;
+            if (multiplicator == 0) {
+                // x[i] = y[i]
+                System.arraycopy(b, bIdx, a, idx, n);
+            } else if (multiplicator == 1) {
+                // x[i] = x[i] + y[i]
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    FloatVector.fromArray(SPECIES, a, idx + i).add(FloatVector.fromArray(SPECIES, b, bIdx + i))
+                            .intoArray(a, idx + i);
+                }
+                for (; i < n; i++) {
+                    a[idx + i] += b[bIdx + i];
+                }
+            } else if (multiplicator == -1) {
+                // x[i] = -x[i] + y[i]
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    FloatVector.fromArray(SPECIES, b, bIdx + i).sub(FloatVector.fromArray(SPECIES, a, idx + i))
+                            .intoArray(a, idx + i);
+                }
+                for (; i < n; i++) {
+                    a[idx + i] = b[bIdx + i] - a[idx + i];
+                }
+            } else {
+                // x[i] = mult*x[i] + y[i]
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    FloatVector.fromArray(SPECIES, a, idx + i).mul(multiplicator).add(
+                            FloatVector.fromArray(SPECIES, b, bIdx + i)).intoArray(a, idx + i);
+                }
+                for (; i < n; i++) {
+                    a[idx + i] = multiplicator * a[idx + i] + b[bIdx + i];
+                }
+            }
+        } else if (f == FloatFunctions.mult) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                FloatVector.fromArray(SPECIES, a, idx + i).mul(FloatVector.fromArray(SPECIES, b, bIdx + i))
+                        .intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] *= b[bIdx + i];
+            }
+        } else if (f == FloatFunctions.div) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                FloatVector.fromArray(SPECIES, a, idx + i).div(FloatVector.fromArray(SPECIES, b, bIdx + i))
+                        .intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] /= b[bIdx + i];
+            }
+        } else if (f == FloatFunctions.max) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                FloatVector.fromArray(SPECIES, a, idx + i).max(FloatVector.fromArray(SPECIES, b, bIdx + i))
+                        .intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] = Math.max(a[idx + i], b[bIdx + i]);
+            }
+        } else if (f == FloatFunctions.min) {
+            for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                FloatVector.fromArray(SPECIES, a, idx + i).min(FloatVector.fromArray(SPECIES, b, bIdx + i))
+                        .intoArray(a, idx + i);
+            }
+            for (; i < n; i++) {
+                a[idx + i] = Math.min(a[idx + i], b[bIdx + i]);
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    public boolean isAggregateSupported(FloatFloatFunction aggr, FloatFunction f) {
+        if (aggr == FloatFunctions.plus) {
+            return f == FloatFunctions.identity || f == FloatFunctions.abs || f == FloatFunctions.square;
+        }
+        if (aggr == FloatFunctions.max || aggr == FloatFunctions.min) {
+            return f == FloatFunctions.identity || f == FloatFunctions.abs;
+        }
+        return false;
+    }
+
+    public float aggregate(float[] a, int idx, int n, FloatFloatFunction aggr, FloatFunction f) {
+        int i = 0;
+        if (aggr == FloatFunctions.plus) {
+            if (f == FloatFunctions.identity) {
+                return zSum(a, idx, n);
+            }
+            FloatVector acc = FloatVector.zero(SPECIES);
+            float sum = 0;
+            if (f == FloatFunctions.abs) {
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    acc = acc.add(FloatVector.fromArray(SPECIES, a, idx + i).abs());
+                }
+                for (; i < n; i++) {
+                    sum += Math.abs(a[idx + i]);
+                }
+            } else {
+                for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+                    FloatVector v = FloatVector.fromArray(SPECIES, a, idx + i);
+                    acc = v.fma(v, acc);
+                }
+                for (; i < n; i++) {
+                    sum += a[idx + i] * a[idx + i];
+                }
+            }
+            return acc.reduceLanes(VectorOperators.ADD) + sum;
+        }
+        boolean max = aggr == FloatFunctions.max;
+        boolean abs = f == FloatFunctions.abs;
+        float r = max ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+        FloatVector acc = FloatVector.broadcast(SPECIES, r);
+        for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+            FloatVector v = FloatVector.fromArray(SPECIES, a, idx + i);
+            if (abs) {
+                v = v.abs();
+            }
+            acc = max ? acc.max(v) : acc.min(v);
+        }
+        for (; i < n; i++) {
+            float v = abs ? Math.abs(a[idx + i]) : a[idx + i];
+            r = max ? Math.max(r, v) : Math.min(r, v);
+        }
+        return max ? Math.max(acc.reduceLanes(VectorOperators.MAX), r) : Math.min(acc
+                .reduceLanes(VectorOperators.MIN), r);
+    }
+
+    public float zSum(float[] a, int idx, int n) {
+        // independent accumulators hide the latency of the additions
+        FloatVector acc0 = FloatVector.zero(SPECIES);
+        FloatVector acc1 = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = n - 2 * L; i <= bound; i += 2 * L) {
+            acc0 = acc0.add(FloatVector.fromArray(SPECIES, a, idx + i));
+            acc1 = acc1.add(FloatVector.fromArray(SPECIES, a, idx + i + L));
+        }
+        for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+            acc0 = acc0.add(FloatVector.fromArray(SPECIES, a, idx + i));
+        }
+        float sum = 0;
+        for (; i < n; i++) {
+            sum += a[idx + i];
+        }
+        return acc0.add(acc1).reduceLanes(VectorOperators.ADD) + sum;
+    }
+
+    public float zDotProduct(float[] a, int idx, float[] b, int bIdx, int n) {
+        FloatVector acc0 = FloatVector.zero(SPECIES);
+        FloatVector acc1 = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = n - 2 * L; i <= bound; i += 2 * L) {
+            acc0 = FloatVector.fromArray(SPECIES, a, idx + i).fma(FloatVector.fromArray(SPECIES, b, bIdx + i), acc0);
+            acc1 = FloatVector.fromArray(SPECIES, a, idx + i + L).fma(
+                    FloatVector.fromArray(SPECIES, b, bIdx + i + L), acc1);
+        }
+        for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+            acc0 = FloatVector.fromArray(SPECIES, a, idx + i).fma(FloatVector.fromArray(SPECIES, b, bIdx + i), acc0);
+        }
+        float sum = 0;
+        for (; i < n; i++) {
+            sum += a[idx + i] * b[bIdx + i];
+        }
+        return acc0.add(acc1).reduceLanes(VectorOperators.ADD) + sum;
+    }
+
+    public void daxpy(int n, float alpha, float[] x, int xIdx, float[] y, int yIdx) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += L) {
+            FloatVector.fromArray(SPECIES, x, xIdx + i).mul(alpha).add(FloatVector.fromArray(SPECIES, y, yIdx + i))
+                    .intoArray(y, yIdx + i);
+        }
+        for (; i < n; i++) {
+            y[yIdx + i] += alpha * x[xIdx + i];
+        }
+    }
+}
@@ -127,9 +127,9 @@ public class ParallelQuickSort {
             try {
                 other.get();
             } catch (InterruptedException e) {
-                throw new RuntimeException("thread interrupted");
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             } catch (ExecutionException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             }
         } else {
             if ((s = b - a) > 1)
@@ -232,9 +232,9 @@ public class ParallelQuickSort {
             try {
                 other.get();
             } catch (InterruptedException e) {
-                throw new RuntimeException("thread interrupted");
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             } catch (ExecutionException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             }
         } else {
             if ((s = b - a) > 1)
@@ -338,9 +338,9 @@ public class ParallelQuickSort {
             try {
                 other.get();
             } catch (InterruptedException e) {
-                throw new RuntimeException("thread interrupted");
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             } catch (ExecutionException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             }
         } else {
             if ((s = b - a) > 1)
@@ -443,9 +443,9 @@ public class ParallelQuickSort {
             try {
                 other.get();
             } catch (InterruptedException e) {
-                throw new RuntimeException("thread interrupted");
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             } catch (ExecutionException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             }
         } else {
             if ((s = b - a) > 1)
@@ -548,9 +548,9 @@ public class ParallelQuickSort {
             try {
                 other.get();
             } catch (InterruptedException e) {
-                throw new RuntimeException("thread interrupted");
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             } catch (ExecutionException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             }
         } else {
             if ((s = b - a) > 1)
@@ -653,9 +653,9 @@ public class ParallelQuickSort {
             try {
                 other.get();
             } catch (InterruptedException e) {
-                throw new RuntimeException("thread interrupted");
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             } catch (ExecutionException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             }
         } else {
             if ((s = b - a) > 1)
@@ -756,9 +756,9 @@ public class ParallelQuickSort {
             try {
                 other.get();
             } catch (InterruptedException e) {
-                throw new RuntimeException("thread interrupted");
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             } catch (ExecutionException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             }
         } else {
             if ((s = b - a) > 1)
@@ -861,9 +861,9 @@ public class ParallelQuickSort {
             try {
                 other.get();
             } catch (InterruptedException e) {
-                throw new RuntimeException("thread interrupted");
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             } catch (ExecutionException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             }
         } else {
             if ((s = b - a) > 1)
@@ -966,9 +966,9 @@ public class ParallelQuickSort {
             try {
                 other.get();
             } catch (InterruptedException e) {
-                throw new RuntimeException("thread interrupted");
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             } catch (ExecutionException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(new Future<?>[] { other }, e);
             }
         } else {
             if ((s = b - a) > 1)
@@ -0,0 +1,39 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix;
+
+/**
+ * Sizes of the result of a convolution or correlation of a matrix with
+ * <tt>n</tt> elements along a dimension and a kernel with <tt>k</tt> elements
+ * along the same dimension.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ *
+ */
+public enum ConvolutionMode {
+
+    /**
+     * The full result, <tt>n + k - 1</tt> elements.
+     */
+    Full,
+
+    /**
+     * The central part of the full result with the size of the matrix,
+     * <tt>n</tt> elements starting at index <tt>(k - 1) / 2</tt> of the full
+     * result.
+     */
+    Same,
+
+    /**
+     * The part of the full result that does not depend on zero padding,
+     * <tt>max(n - k + 1, 0)</tt> elements.
+     */
+    Valid
+
+}
@@ -0,0 +1,432 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tfloat.FloatMatrix1D;
+import cern.colt.matrix.tfloat.FloatMatrix2D;
+import cern.colt.matrix.tfloat.impl.DenseFloatMatrix1D;
+import cern.colt.matrix.tfloat.impl.DenseFloatMatrix2D;
+import cern.jet.math.tdouble.DoubleFunctions;
+import cern.jet.math.tfloat.FloatFunctions;
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+/**
+ * Measures the break-even data sizes above which the parallel versions of the
+ * main dense kernels (<tt>assign</tt>, <tt>aggregate</tt>, <tt>zMult</tt>,
+ * <tt>zDotProduct</tt> and FFT) are faster than the sequential ones on the
+ * current machine, and installs them in {@link ConcurrencyUtils}.
+ * <p>
+ * Each kernel is timed sequentially and with
+ * {@link ConcurrencyUtils#getNumberOfThreads()} threads for data sizes from
+ * <tt>2^10</tt> to <tt>2^22</tt> elements. The threshold of a kernel is the
+ * smallest size from which on the parallel version is at least 10% faster.
+ * The thresholds are stored per kernel and per type (e.g.
+ * <tt>"DenseFloatMatrix2D.assign"</tt>), see
+ * {@link ConcurrencyUtils#setThreadsBeginN(String, int)}.
+ * <p>
+ * The calibration takes a few seconds per kernel. Its result can be saved to a
+ * profile file and loaded on later runs, either explicitly with
+ * {@link #loadOrCalibrate(String)} or by setting the system property
+ * {@link ConcurrencyUtils#THRESHOLDS_PROPERTY}. Running
+ * 
+ * <pre>
+ * java cern.colt.matrix.ThresholdCalibrator [profile]
+ * </pre>
+ * 
+ * writes a profile for the default number of threads.
+ * 
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public class ThresholdCalibrator {
+
+    /**
+     * The default name of the profile file.
+     */
+    public static final String DEFAULT_PROFILE = "parallelcolt-thresholds.properties";
+
+    private static final int MIN_LOG2_SIZE = 10;
+
+    private static final int MAX_LOG2_SIZE = 22;
+
+    private static final int REPETITIONS = 5;
+
+    private static final double SPEEDUP = 1.1;
+
+    private static final Random RAND = new Random(0);
+
+    /**
+     * A kernel timed by the calibrator.
+     */
+    private static abstract class Kernel {
+        final String name;
+
+        Kernel(String name) {
+            this.name = name;
+        }
+
+        abstract void setUp(int size);
+
+        abstract void run();
+    }
+
+    private ThresholdCalibrator() {
+    }
+
+    /**
+     * Calibrates all kernels and installs the measured thresholds in
+     * {@link ConcurrencyUtils}. If only one thread is used, nothing is done.
+     */
+    public static void calibrate() {
+        if (ConcurrencyUtils.getNumberOfThreads() < 2) {
+            return;
+        }
+        List<Kernel> kernels = new ArrayList<Kernel>();
+        addDoubleKernels(kernels);
+        addFloatKernels(kernels);
+        for (Kernel kernel : kernels) {
+            ConcurrencyUtils.setThreadsBeginN(kernel.name, calibrate(kernel));
+        }
+        calibrateFFT();
+    }
+
+    /**
+     * Calibrates all kernels and saves the thresholds to a profile file.
+     * 
+     * @param profile
+     *            the name of the profile file
+     * @throws IOException
+     */
+    public static void calibrate(String profile) throws IOException {
+        calibrate();
+        ConcurrencyUtils.saveThresholds(profile);
+    }
+
+    /**
+     * Loads the thresholds from a profile file. If the file does not exist,
+     * the kernels are calibrated and the profile is written.
+     * 
+     * @param profile
+     *            the name of the profile file
+     * @throws IOException
+     */
+    public static void loadOrCalibrate(String profile) throws IOException {
+        if (new File(profile).isFile()) {
+            ConcurrencyUtils.loadThresholds(profile);
+        } else {
+            calibrate(profile);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String profile = args.length > 0 ? args[0] : DEFAULT_PROFILE;
+        System.out.println("Calibrating Parallel Colt thresholds using " + ConcurrencyUtils.getNumberOfThreads()
+                + " threads.");
+        calibrate(profile);
+        System.out.println("Thresholds written to " + profile);
+    }
+
+    private static int calibrate(Kernel kernel) {
+        boolean[] faster = new boolean[MAX_LOG2_SIZE + 1];
+        ConcurrencyContext context = ConcurrencyUtils.openContext();
+        try {
+            for (int log2 = MIN_LOG2_SIZE; log2 <= MAX_LOG2_SIZE; log2++) {
+                kernel.setUp(1 << log2);
+                context.setThreadsBeginN(kernel.name, Integer.MAX_VALUE);
+                double seq = time(kernel, 1 << log2);
+                context.setThreadsBeginN(kernel.name, 1);
+                double par = time(kernel, 1 << log2);
+                faster[log2] = par * SPEEDUP < seq;
+            }
+        } finally {
+            context.close();
+        }
+        kernel.setUp(0);
+        return threshold(faster);
+    }
+
+    private static void calibrateFFT() {
+        final int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        ConcurrencyContext context = ConcurrencyUtils.openContext();
+        try {
+            // two threads versus one thread
+            boolean[] faster = new boolean[MAX_LOG2_SIZE + 1];
+            for (int log2 = MIN_LOG2_SIZE; log2 <= MAX_LOG2_SIZE; log2++) {
+                Kernel fft = newFFTKernel(1 << log2);
+                context.setNumberOfThreads(1);
+                double seq = time(fft, 1 << log2);
+                context.setNumberOfThreads(2);
+                context.setThreadsBeginN_1D_FFT_2Threads(1);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                double par = time(fft, 1 << log2);
+                faster[log2] = par * SPEEDUP < seq;
+            }
+            int threshold2 = threshold(faster);
+            int threshold4 = Integer.MAX_VALUE;
+            if (nthreads >= 4) {
+                // four threads versus two threads
+                for (int log2 = MIN_LOG2_SIZE; log2 <= MAX_LOG2_SIZE; log2++) {
+                    Kernel fft = newFFTKernel(1 << log2);
+                    context.setNumberOfThreads(2);
+                    context.setThreadsBeginN_1D_FFT_2Threads(1);
+                    context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                    double two = time(fft, 1 << log2);
+                    context.setNumberOfThreads(4);
+                    context.setThreadsBeginN_1D_FFT_4Threads(1);
+                    double four = time(fft, 1 << log2);
+                    faster[log2] = four * SPEEDUP < two;
+                }
+                threshold4 = Math.max(threshold2, threshold(faster));
+            }
+            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(threshold2);
+            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(threshold4);
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Returns the smallest size from which on the parallel version is faster
+     * for all larger sizes.
+     */
+    private static int threshold(boolean[] faster) {
+        int log2 = MAX_LOG2_SIZE;
+        while ((log2 >= MIN_LOG2_SIZE) && faster[log2]) {
+            log2--;
+        }
+        return (log2 == MAX_LOG2_SIZE) ? Integer.MAX_VALUE : 1 << (log2 + 1);
+    }
+
+    /**
+     * Returns the best time (in nanoseconds) of a kernel. Small kernels are
+     * repeated to get above the timer resolution.
+     */
+    private static double time(Kernel kernel, int size) {
+        int iterations = Math.max(1, (1 << 20) / size);
+        kernel.run();
+        kernel.run();
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < REPETITIONS; r++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                kernel.run();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / iterations;
+    }
+
+    private static Kernel newFFTKernel(final int size) {
+        final double[] data = new double[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = RAND.nextDouble();
+        }
+        final double[] work = new double[size];
+        final DoubleFFT_1D fft = new DoubleFFT_1D(size);
+        return new Kernel("DoubleFFT_1D.realForward") {
+            void setUp(int size) {
+            }
+
+            void run() {
+                System.arraycopy(data, 0, work, 0, data.length);
+                fft.realForward(work);
+            }
+        };
+    }
+
+    private static int rows(int size) {
+        return 1 << ((31 - Integer.numberOfLeadingZeros(Math.max(size, 1))) / 2);
+    }
+
+    private static void addDoubleKernels(List<Kernel> kernels) {
+        kernels.add(new Kernel("DenseDoubleMatrix1D.assign") {
+            DoubleMatrix1D A;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseDoubleMatrix1D(size).assign(RAND.nextDouble()) : null;
+            }
+
+            void run() {
+                A.assign(DoubleFunctions.abs);
+            }
+        });
+        kernels.add(new Kernel("DenseDoubleMatrix1D.aggregate") {
+            DoubleMatrix1D A;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseDoubleMatrix1D(size).assign(RAND.nextDouble()) : null;
+            }
+
+            void run() {
+                A.aggregate(DoubleFunctions.plus, DoubleFunctions.square);
+            }
+        });
+        kernels.add(new Kernel("DenseDoubleMatrix1D.zDotProduct") {
+            DoubleMatrix1D A, B;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseDoubleMatrix1D(size).assign(RAND.nextDouble()) : null;
+                B = size > 0 ? new DenseDoubleMatrix1D(size).assign(RAND.nextDouble()) : null;
+            }
+
+            void run() {
+                A.zDotProduct(B);
+            }
+        });
+        kernels.add(new Kernel("DenseDoubleMatrix2D.assign") {
+            DoubleMatrix2D A;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseDoubleMatrix2D(rows(size), size / rows(size)).assign(RAND.nextDouble())
+                        : null;
+            }
+
+            void run() {
+                A.assign(DoubleFunctions.abs);
+            }
+        });
+        kernels.add(new Kernel("DenseDoubleMatrix2D.copy") {
+            DoubleMatrix2D A, B;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseDoubleMatrix2D(rows(size), size / rows(size)) : null;
+                B = size > 0 ? new DenseDoubleMatrix2D(rows(size), size / rows(size)).assign(RAND.nextDouble())
+                        .viewColumnFlip() : null;
+            }
+
+            void run() {
+                A.assign(B);
+            }
+        });
+        kernels.add(new Kernel("DenseDoubleMatrix2D.transposeInPlace") {
+            DenseDoubleMatrix2D A;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseDoubleMatrix2D(rows(size), rows(size)) : null;
+            }
+
+            void run() {
+                A.transposeInPlace();
+            }
+        });
+        kernels.add(new Kernel("DenseDoubleMatrix2D.aggregate") {
+            DoubleMatrix2D A;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseDoubleMatrix2D(rows(size), size / rows(size)).assign(RAND.nextDouble())
+                        : null;
+            }
+
+            void run() {
+                A.aggregate(DoubleFunctions.plus, DoubleFunctions.square);
+            }
+        });
+        kernels.add(new Kernel("DenseDoubleMatrix2D.zMult") {
+            DoubleMatrix2D A;
+
+            DoubleMatrix1D x, y;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseDoubleMatrix2D(rows(size), size / rows(size)).assign(RAND.nextDouble())
+                        : null;
+                x = size > 0 ? new DenseDoubleMatrix1D(A.columns()).assign(RAND.nextDouble()) : null;
+                y = size > 0 ? new DenseDoubleMatrix1D(A.rows()) : null;
+            }
+
+            void run() {
+                A.zMult(x, y);
+            }
+        });
+    }
+
+    private static void addFloatKernels(List<Kernel> kernels) {
+        kernels.add(new Kernel("DenseFloatMatrix1D.assign") {
+            FloatMatrix1D A;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseFloatMatrix1D(size).assign(RAND.nextFloat()) : null;
+            }
+
+            void run() {
+                A.assign(FloatFunctions.abs);
+            }
+        });
+        kernels.add(new Kernel("DenseFloatMatrix1D.aggregate") {
+            FloatMatrix1D A;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseFloatMatrix1D(size).assign(RAND.nextFloat()) : null;
+            }
+
+            void run() {
+                A.aggregate(FloatFunctions.plus, FloatFunctions.square);
+            }
+        });
+        kernels.add(new Kernel("DenseFloatMatrix1D.zDotProduct") {
+            FloatMatrix1D A, B;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseFloatMatrix1D(size).assign(RAND.nextFloat()) : null;
+                B = size > 0 ? new DenseFloatMatrix1D(size).assign(RAND.nextFloat()) : null;
+            }
+
+            void run() {
+                A.zDotProduct(B);
+            }
+        });
+        kernels.add(new Kernel("DenseFloatMatrix2D.assign") {
+            FloatMatrix2D A;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseFloatMatrix2D(rows(size), size / rows(size)).assign(RAND.nextFloat()) : null;
+            }
+
+            void run() {
+                A.assign(FloatFunctions.abs);
+            }
+        });
+        kernels.add(new Kernel("DenseFloatMatrix2D.aggregate") {
+            FloatMatrix2D A;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseFloatMatrix2D(rows(size), size / rows(size)).assign(RAND.nextFloat()) : null;
+            }
+
+            void run() {
+                A.aggregate(FloatFunctions.plus, FloatFunctions.square);
+            }
+        });
+        kernels.add(new Kernel("DenseFloatMatrix2D.zMult") {
+            FloatMatrix2D A;
+
+            FloatMatrix1D x, y;
+
+            void setUp(int size) {
+                A = size > 0 ? new DenseFloatMatrix2D(rows(size), size / rows(size)).assign(RAND.nextFloat()) : null;
+                x = size > 0 ? new DenseFloatMatrix1D(A.columns()).assign(RAND.nextFloat()) : null;
+                y = size > 0 ? new DenseFloatMatrix1D(A.rows()) : null;
+            }
+
+            void run() {
+                A.zMult(x, y);
+            }
+        });
+    }
+}
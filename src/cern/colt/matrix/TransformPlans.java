@@ -0,0 +1,258 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of the JTransforms plans (<tt>DoubleFFT_2D</tt>,
+ * <tt>FloatDCT_1D</tt>, ...) used by the FFT, DCT, DST and DHT methods of the
+ * dense matrices.
+ * <p>
+ * Creating a plan computes twiddle factors and allocates work arrays, which
+ * often costs as much as the transform itself. A method acquires the plan of
+ * the given class and dimensions, uses it and releases it again, so that the
+ * next transform of the same kind and size, on any matrix, can reuse it. The
+ * multidimensional plans keep mutable work arrays, so a plan is handed out to
+ * one caller at a time; concurrent callers with the same key get distinct
+ * plans. At most {@link #getCapacity()} released plans are kept, the least
+ * recently used ones are dropped first. A plan that is never released (for
+ * example because the transform threw an exception) is simply garbage
+ * collected.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ *
+ */
+public class TransformPlans {
+
+    /**
+     * The default maximum number of idle plans.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static final LinkedHashMap<Key, ArrayDeque<Object>> idle = new LinkedHashMap<Key, ArrayDeque<Object>>(
+            16, 0.75f, true);
+
+    private static int capacity = DEFAULT_CAPACITY;
+
+    private static int size;
+
+    private static final AtomicLong hits = new AtomicLong();
+
+    private static final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Makes this class non instantiable, but still let's others inherit from
+     * it.
+     */
+    protected TransformPlans() {
+        throw new Error("Non instantiable");
+    }
+
+    /**
+     * Returns an idle plan of the given class and dimensions, or a new one if
+     * there is none. The plan should be given back with
+     * {@link #release(Object, int...)} when the transform is done.
+     *
+     * @param type
+     *            the class of the plan, e.g. <tt>DoubleFFT_2D.class</tt>
+     * @param dimensions
+     *            the arguments of the constructor of the plan
+     * @return a plan that is not used by any other caller
+     * @throws IllegalArgumentException
+     *             if <tt>type</tt> has no constructor taking
+     *             <tt>dimensions.length</tt> ints or it rejects the dimensions
+     */
+    public static <T> T acquire(Class<T> type, int... dimensions) {
+        Key key = new Key(type, dimensions);
+        synchronized (idle) {
+            ArrayDeque<Object> plans = idle.get(key);
+            if (plans != null) {
+                Object plan = plans.poll();
+                if (plans.isEmpty()) {
+                    idle.remove(key);
+                }
+                size--;
+                hits.incrementAndGet();
+                return type.cast(plan);
+            }
+        }
+        misses.incrementAndGet();
+        return newPlan(type, dimensions);
+    }
+
+    /**
+     * Gives back a plan obtained from {@link #acquire(Class, int...)}. The
+     * caller must not use the plan afterwards.
+     *
+     * @param plan
+     *            the plan
+     * @param dimensions
+     *            the dimensions the plan was acquired with
+     */
+    public static void release(Object plan, int... dimensions) {
+        Key key = new Key(plan.getClass(), dimensions);
+        synchronized (idle) {
+            if (capacity == 0) {
+                return;
+            }
+            ArrayDeque<Object> plans = idle.get(key);
+            if (plans == null) {
+                plans = new ArrayDeque<Object>(2);
+                idle.put(key, plans);
+            }
+            plans.push(plan);
+            size++;
+            trim();
+        }
+    }
+
+    /**
+     * Returns the number of times a plan was served from this cache.
+     *
+     * @return the number of hits
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of times a new plan had to be created.
+     *
+     * @return the number of misses
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Sets the number of hits and misses to zero.
+     */
+    public static void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * Returns the number of idle plans currently kept.
+     *
+     * @return the number of idle plans
+     */
+    public static int getSize() {
+        synchronized (idle) {
+            return size;
+        }
+    }
+
+    /**
+     * Returns the maximum number of idle plans kept.
+     *
+     * @return the capacity
+     */
+    public static int getCapacity() {
+        synchronized (idle) {
+            return capacity;
+        }
+    }
+
+    /**
+     * Sets the maximum number of idle plans kept and drops the least recently
+     * used plans above it. A capacity of zero disables caching.
+     *
+     * @param capacity
+     *            the capacity
+     * @throws IllegalArgumentException
+     *             if <tt>capacity &lt; 0</tt>
+     */
+    public static void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity < 0: " + capacity);
+        }
+        synchronized (idle) {
+            TransformPlans.capacity = capacity;
+            trim();
+        }
+    }
+
+    /**
+     * Drops all idle plans.
+     */
+    public static void clear() {
+        synchronized (idle) {
+            idle.clear();
+            size = 0;
+        }
+    }
+
+    private static void trim() {
+        Iterator<Map.Entry<Key, ArrayDeque<Object>>> it = idle.entrySet().iterator();
+        while (size > capacity) {
+            ArrayDeque<Object> plans = it.next().getValue();
+            size -= plans.size();
+            it.remove();
+        }
+    }
+
+    private static <T> T newPlan(Class<T> type, int[] dimensions) {
+        Class<?>[] parameters = new Class<?>[dimensions.length];
+        Object[] arguments = new Object[dimensions.length];
+        for (int i = 0; i < dimensions.length; i++) {
+            parameters[i] = int.class;
+            arguments[i] = dimensions[i];
+        }
+        try {
+            Constructor<T> constructor = type.getConstructor(parameters);
+            return constructor.newInstance(arguments);
+        } catch (InvocationTargetException exc) {
+            Throwable cause = exc.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalArgumentException(cause);
+        } catch (ReflectiveOperationException exc) {
+            throw new IllegalArgumentException("not a plan: " + type.getName(), exc);
+        }
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+
+        private final int[] dimensions;
+
+        private final int hash;
+
+        Key(Class<?> type, int[] dimensions) {
+            this.type = type;
+            this.dimensions = dimensions;
+            this.hash = 31 * type.hashCode() + Arrays.hashCode(dimensions);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return type == other.type && Arrays.equals(dimensions, other.dimensions);
+        }
+    }
+}
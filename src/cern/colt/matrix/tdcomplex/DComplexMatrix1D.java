@@ -610,9 +610,9 @@ public abstract class DComplexMatrix1D extends AbstractMatrix1D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             double[] tmp = new double[2];
@@ -1244,9 +1244,9 @@ public abstract class DComplexMatrix1D extends AbstractMatrix1D {
                     sum = DComplex.plus(sum, results[j]);
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             double[] tmp;
@@ -1346,9 +1346,9 @@ public abstract class DComplexMatrix1D extends AbstractMatrix1D {
                     sum[1] += results[j][1];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             for (int k = 0; k < size; k++) {
@@ -843,9 +843,9 @@ public abstract class DComplexMatrix2D extends AbstractMatrix2D {
                     cardinality += results[j].intValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             double[] tmp = new double[2];
@@ -810,9 +810,9 @@ public abstract class DComplexMatrix3D extends AbstractMatrix3D {
                     cardinality += results[j].intValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             double[] tmp = new double[2];
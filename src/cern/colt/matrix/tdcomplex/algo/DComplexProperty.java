@@ -155,9 +155,9 @@ public class DComplexProperty {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -241,9 +241,9 @@ public class DComplexProperty {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -326,9 +326,9 @@ public class DComplexProperty {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -416,9 +416,9 @@ public class DComplexProperty {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -507,9 +507,9 @@ public class DComplexProperty {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -607,9 +607,9 @@ public class DComplexProperty {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -14,13 +14,16 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tdcomplex.DComplexMatrix1D;
 import cern.colt.matrix.tdcomplex.DComplexMatrix2D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.DenseColumnDoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_2D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
 
 /**
  * Dense 2-d matrix holding <tt>complex</tt> elements. <b>Implementation:</b>
@@ -60,8 +63,6 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
 public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
     static final long serialVersionUID = 1020177651L;
 
-    private DoubleFFT_2D fft2;
-
     /**
      * The elements of this matrix. elements are stored in row major. Complex
      * data is represented by 2 double values in sequence, i.e. elements[idx]
@@ -1156,9 +1157,9 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
                     cardinality += results[j].intValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -1179,14 +1180,15 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
      */
     public void fft2() {
         DComplexMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            fft2.complexForward((double[]) transpose.elements());
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        fft2.complexForward((double[]) transpose.elements());
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1194,30 +1196,34 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
      * matrix.
      */
     public void fftColumns() {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseDComplexMatrix1D) viewColumn(c)).fft();
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseDComplexMatrix1D) viewColumn(c)).fft();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseDComplexMatrix1D) viewColumn(c)).fft();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseDComplexMatrix1D) viewColumn(c)).fft();
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1225,30 +1231,34 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
      * Computes the discrete Fourier transform (DFT) of each row of this matrix.
      */
     public void fftRows() {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseDComplexMatrix1D) viewRow(r)).fft();
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseDComplexMatrix1D) viewRow(r)).fft();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDComplexMatrix1D) viewRow(r)).fft();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDComplexMatrix1D) viewRow(r)).fft();
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1482,14 +1492,15 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
      */
     public void ifft2(boolean scale) {
         DComplexMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            fft2.complexInverse((double[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        fft2.complexInverse((double[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1500,30 +1511,34 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
      *            if true then scaling is performed
      */
     public void ifftColumns(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseDComplexMatrix1D) viewColumn(c)).ifft(scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseDComplexMatrix1D) viewColumn(c)).ifft(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseDComplexMatrix1D) viewColumn(c)).ifft(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseDComplexMatrix1D) viewColumn(c)).ifft(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1535,30 +1550,34 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
      *            if true then scaling is performed
      */
     public void ifftRows(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseDComplexMatrix1D) viewRow(r)).ifft(scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseDComplexMatrix1D) viewRow(r)).ifft(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDComplexMatrix1D) viewRow(r)).ifft(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDComplexMatrix1D) viewRow(r)).ifft(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1816,33 +1835,28 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
         if (noOfTasks < 2) {
             return this.zMultSeq(B, C, alpha, beta, transposeA, transposeB);
         }
-        // set up concurrent tasks
-        int span = width / noOfTasks;
-        final Future<?>[] subTasks = new Future[noOfTasks];
-        for (int i = 0; i < noOfTasks; i++) {
-            final int offset = i * span;
-            if (i == noOfTasks - 1)
-                span = width - span * i; // last span may be a bit larger
-            final DComplexMatrix2D AA, BB, CC;
-            if (splitB) {
-                // split B along columns into blocks
-                AA = this;
-                BB = B.viewPart(0, offset, columnsA, span);
-                CC = C.viewPart(0, offset, rowsA, span);
-            } else {
-                // split A along rows into blocks
-                AA = this.viewPart(offset, 0, span, columnsA);
-                BB = B;
-                CC = C.viewPart(offset, 0, span, columnsB);
-            }
-
-            subTasks[i] = ConcurrencyUtils.submit(new Runnable() {
-                public void run() {
-                    ((DenseColumnDComplexMatrix2D) AA).zMultSeq(BB, CC, alpha, beta, transposeA, transposeB);
+        // set up concurrent tasks, each of them should process at least 30000 flops
+        final boolean splitB_loc = splitB;
+        final DComplexMatrix2D C_loc = C;
+        int minGrain = (int) Math.max(1, 30000L * width / Math.max(flops, 1));
+        ConcurrencyUtils.parallelFor(0, width, ConcurrencyUtils.getGrainSize(width, minGrain), new RangeProcedure() {
+            public void apply(int offset, int last) {
+                int span = last - offset;
+                final DComplexMatrix2D AA, BB, CC;
+                if (splitB_loc) {
+                    // split B along columns into blocks
+                    AA = DenseColumnDComplexMatrix2D.this;
+                    BB = B.viewPart(0, offset, columnsA, span);
+                    CC = C_loc.viewPart(0, offset, rowsA, span);
+                } else {
+                    // split A along rows into blocks
+                    AA = DenseColumnDComplexMatrix2D.this.viewPart(offset, 0, span, columnsA);
+                    BB = B;
+                    CC = C_loc.viewPart(offset, 0, span, columnsB);
                 }
-            });
-        }
-        ConcurrencyUtils.waitForCompletion(subTasks);
+                ((DenseColumnDComplexMatrix2D) AA).zMultSeq(BB, CC, alpha, beta, transposeA, transposeB);
+            }
+        });
 
         return C;
     }
@@ -2019,9 +2033,9 @@ public class DenseColumnDComplexMatrix2D extends DComplexMatrix2D {
                     sum[1] = sum[1] + tmp[1];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
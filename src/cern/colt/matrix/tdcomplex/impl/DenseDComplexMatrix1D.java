@@ -14,6 +14,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tdcomplex.DComplexMatrix1D;
 import cern.colt.matrix.tdcomplex.DComplexMatrix2D;
 import cern.colt.matrix.tdcomplex.DComplexMatrix3D;
@@ -22,6 +23,7 @@ import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
 import cern.jet.math.tdcomplex.DComplex;
 import cern.jet.math.tdcomplex.DComplexFunctions;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -39,8 +41,6 @@ public class DenseDComplexMatrix1D extends DComplexMatrix1D {
 
     private static final long serialVersionUID = 1L;
 
-    private DoubleFFT_1D fft;
-
     /**
      * The elements of this matrix. Complex data is represented by 2 double
      * values in sequence, i.e. elements[zero + 2 * k * stride] constitute real
@@ -839,19 +839,20 @@ public class DenseDComplexMatrix1D extends DComplexMatrix1D {
      * number.
      */
     public void fft() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft == null) {
-            fft = new DoubleFFT_1D(size);
-        }
-        if (isNoView) {
-            fft.complexForward(elements);
-        } else {
-            DComplexMatrix1D copy = this.copy();
-            fft.complexForward((double[]) copy.elements());
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_1D fft = TransformPlans.acquire(DoubleFFT_1D.class, size);
+            if (isNoView) {
+                fft.complexForward(elements);
+            } else {
+                DComplexMatrix1D copy = this.copy();
+                fft.complexForward((double[]) copy.elements());
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(fft, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public double[] elements() {
@@ -919,6 +920,45 @@ public class DenseDComplexMatrix1D extends DComplexMatrix1D {
         return new double[] { elements[idx], elements[idx + 1] };
     }
 
+    /**
+     * Returns new real matrix which is the inverse of the discrete Fourier
+     * transform (IDFT) of a real matrix whose non-redundant half is this
+     * matrix, as returned by
+     * {@link DenseDoubleMatrix1D#getRealFft()}. The imaginary parts of the
+     * elements <tt>0</tt> and, for even <tt>size</tt>, <tt>size / 2</tt> are
+     * ignored.
+     * 
+     * @param size
+     *            the size of the real matrix
+     * @param scale
+     *            if true then scaling is performed
+     * @return the inverse of the discrete Fourier transform (IDFT)
+     * @throws IllegalArgumentException
+     *             if <tt>size / 2 + 1 != size()</tt>
+     */
+    public DenseDoubleMatrix1D getRealIfft(int size, boolean scale) {
+        if (size / 2 + 1 != this.size) {
+            throw new IllegalArgumentException("size / 2 + 1 != size(): " + size + ", " + this.size);
+        }
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            double[] a = new double[2 * this.size];
+            for (int i = 0, idx = zero; i < 2 * this.size; i += 2, idx += stride) {
+                a[i] = elements[idx];
+                a[i + 1] = elements[idx + 1];
+            }
+            packHalf(a, 0, size);
+            final DoubleFFT_1D fft = TransformPlans.acquire(DoubleFFT_1D.class, size);
+            fft.realInverse(a, scale);
+            TransformPlans.release(fft, size);
+            DenseDoubleMatrix1D R = new DenseDoubleMatrix1D(size);
+            System.arraycopy(a, 0, R.elements(), 0, size);
+            return R;
+        } finally {
+            context.close();
+        }
+    }
+
     public DoubleMatrix1D getRealPart() {
         final DenseDoubleMatrix1D R = new DenseDoubleMatrix1D(size);
         final double[] elemsOther = R.elements();
@@ -966,19 +1006,20 @@ public class DenseDComplexMatrix1D extends DComplexMatrix1D {
      *            if true, then scaling is performed.
      */
     public void ifft(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft == null) {
-            fft = new DoubleFFT_1D(size);
-        }
-        if (isNoView) {
-            fft.complexInverse(elements, scale);
-        } else {
-            DComplexMatrix1D copy = this.copy();
-            fft.complexInverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_1D fft = TransformPlans.acquire(DoubleFFT_1D.class, size);
+            if (isNoView) {
+                fft.complexInverse(elements, scale);
+            } else {
+                DComplexMatrix1D copy = this.copy();
+                fft.complexInverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(fft, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public DComplexMatrix1D like(int size) {
@@ -1230,9 +1271,9 @@ public class DenseDComplexMatrix1D extends DComplexMatrix1D {
                     sum = DComplex.plus(sum, results[j]);
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -1283,9 +1324,9 @@ public class DenseDComplexMatrix1D extends DComplexMatrix1D {
                     sum[1] = sum[1] + results[j][1];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -1329,4 +1370,14 @@ public class DenseDComplexMatrix1D extends DComplexMatrix1D {
     protected DComplexMatrix1D viewSelectionLike(int[] offsets) {
         return new SelectedDenseDComplexMatrix1D(this.elements, offsets);
     }
+
+    /*
+     * Turns the n / 2 + 1 interleaved complex values F[0], ..., F[n / 2] into
+     * the input of DoubleFFT_1D.realInverse(a, offa) for n elements.
+     */
+    static void packHalf(double[] a, int offa, int n) {
+        if (n > 1) {
+            a[offa + 1] = a[offa + n];
+        }
+    }
 }
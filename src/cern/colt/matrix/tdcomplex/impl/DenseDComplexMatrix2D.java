@@ -14,12 +14,16 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tdcomplex.DComplexMatrix1D;
 import cern.colt.matrix.tdcomplex.DComplexMatrix2D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_2D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
 
 /**
  * Dense 2-d matrix holding <tt>complex</tt> elements. <b>Implementation:</b>
@@ -59,8 +63,6 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
 public class DenseDComplexMatrix2D extends DComplexMatrix2D {
     static final long serialVersionUID = 1020177651L;
 
-    private DoubleFFT_2D fft2;
-
     /**
      * The elements of this matrix. elements are stored in row major. Complex
      * data is represented by 2 double values in sequence, i.e. elements[idx]
@@ -1157,9 +1159,9 @@ public class DenseDComplexMatrix2D extends DComplexMatrix2D {
                     cardinality += results[j].intValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -1179,19 +1181,20 @@ public class DenseDComplexMatrix2D extends DComplexMatrix2D {
      * Computes the 2D discrete Fourier transform (DFT) of this matrix.
      */
     public void fft2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            fft2.complexForward(elements);
-        } else {
-            DComplexMatrix2D copy = this.copy();
-            fft2.complexForward((double[]) copy.elements());
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            if (isNoView == true) {
+                fft2.complexForward(elements);
+            } else {
+                DComplexMatrix2D copy = this.copy();
+                fft2.complexForward((double[]) copy.elements());
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1199,30 +1202,34 @@ public class DenseDComplexMatrix2D extends DComplexMatrix2D {
      * matrix.
      */
     public void fftColumns() {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseDComplexMatrix1D) viewColumn(c)).fft();
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseDComplexMatrix1D) viewColumn(c)).fft();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseDComplexMatrix1D) viewColumn(c)).fft();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseDComplexMatrix1D) viewColumn(c)).fft();
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1230,30 +1237,34 @@ public class DenseDComplexMatrix2D extends DComplexMatrix2D {
      * Computes the discrete Fourier transform (DFT) of each row of this matrix.
      */
     public void fftRows() {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseDComplexMatrix1D) viewRow(r)).fft();
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseDComplexMatrix1D) viewRow(r)).fft();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDComplexMatrix1D) viewRow(r)).fft();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDComplexMatrix1D) viewRow(r)).fft();
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1430,6 +1441,54 @@ public class DenseDComplexMatrix2D extends DComplexMatrix2D {
         return new double[] { elements[idx], elements[idx + 1] };
     }
 
+    /**
+     * Returns new real matrix which is the inverse of the 2D discrete Fourier
+     * transform (IDFT) of a real matrix whose non-redundant half is this
+     * matrix, as returned by {@link DenseDoubleMatrix2D#getRealFft2()}. This
+     * matrix is not modified.
+     * 
+     * @param columns
+     *            the number of columns of the real matrix
+     * @param scale
+     *            if true then scaling is performed
+     * @return the inverse of the 2D discrete Fourier transform (IDFT)
+     * @throws IllegalArgumentException
+     *             if <tt>columns / 2 + 1 != columns()</tt>
+     */
+    public DenseDoubleMatrix2D getRealIfft2(final int columns, final boolean scale) {
+        if (columns / 2 + 1 != this.columns) {
+            throw new IllegalArgumentException("columns / 2 + 1 != columns(): " + columns + ", " + this.columns);
+        }
+        final DenseDComplexMatrix2D C = (DenseDComplexMatrix2D) this.copy();
+        C.ifftColumns(scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            DenseDoubleMatrix2D R = new DenseDoubleMatrix2D(rows, columns);
+            final double[] elementsR = R.elements();
+            // real inverse transforms of the rows of C
+            RangeProcedure procedure = new RangeProcedure() {
+                public void apply(int firstRow, int lastRow) {
+                    DoubleFFT_1D fft = TransformPlans.acquire(DoubleFFT_1D.class, columns);
+                    for (int r = firstRow; r < lastRow; r++) {
+                        int idxC = r * C.rowStride;
+                        DenseDComplexMatrix1D.packHalf(C.elements, idxC, columns);
+                        fft.realInverse(C.elements, idxC, scale);
+                        System.arraycopy(C.elements, idxC, elementsR, r * columns, columns);
+                    }
+                    TransformPlans.release(fft, columns);
+                }
+            };
+            if ((ConcurrencyUtils.getNumberOfThreads() > 1) && (R.size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                ConcurrencyUtils.parallelFor(0, rows, ConcurrencyUtils.getGrainSize(rows, 1), procedure);
+            } else {
+                procedure.apply(0, rows);
+            }
+            return R;
+        } finally {
+            context.close();
+        }
+    }
+
     public DoubleMatrix2D getRealPart() {
         final DenseDoubleMatrix2D R = new DenseDoubleMatrix2D(rows, columns);
         final double[] elemsOther = R.elements();
@@ -1487,19 +1546,20 @@ public class DenseDComplexMatrix2D extends DComplexMatrix2D {
      * 
      */
     public void ifft2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            fft2.complexInverse(elements, scale);
-        } else {
-            DComplexMatrix2D copy = this.copy();
-            fft2.complexInverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            if (isNoView == true) {
+                fft2.complexInverse(elements, scale);
+            } else {
+                DComplexMatrix2D copy = this.copy();
+                fft2.complexInverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1510,30 +1570,34 @@ public class DenseDComplexMatrix2D extends DComplexMatrix2D {
      *            if true then scaling is performed
      */
     public void ifftColumns(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseDComplexMatrix1D) viewColumn(c)).ifft(scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseDComplexMatrix1D) viewColumn(c)).ifft(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseDComplexMatrix1D) viewColumn(c)).ifft(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseDComplexMatrix1D) viewColumn(c)).ifft(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1545,30 +1609,34 @@ public class DenseDComplexMatrix2D extends DComplexMatrix2D {
      *            if true then scaling is performed
      */
     public void ifftRows(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseDComplexMatrix1D) viewRow(r)).ifft(scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseDComplexMatrix1D) viewRow(r)).ifft(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDComplexMatrix1D) viewRow(r)).ifft(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDComplexMatrix1D) viewRow(r)).ifft(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1822,33 +1890,28 @@ public class DenseDComplexMatrix2D extends DComplexMatrix2D {
         if (noOfTasks < 2) {
             return this.zMultSeq(B, C, alpha, beta, transposeA, transposeB);
         }
-        // set up concurrent tasks
-        int span = width / noOfTasks;
-        final Future<?>[] subTasks = new Future[noOfTasks];
-        for (int i = 0; i < noOfTasks; i++) {
-            final int offset = i * span;
-            if (i == noOfTasks - 1)
-                span = width - span * i; // last span may be a bit larger
-            final DComplexMatrix2D AA, BB, CC;
-            if (splitB) {
-                // split B along columns into blocks
-                AA = this;
-                BB = B.viewPart(0, offset, columnsA, span);
-                CC = C.viewPart(0, offset, rowsA, span);
-            } else {
-                // split A along rows into blocks
-                AA = this.viewPart(offset, 0, span, columnsA);
-                BB = B;
-                CC = C.viewPart(offset, 0, span, columnsB);
-            }
-
-            subTasks[i] = ConcurrencyUtils.submit(new Runnable() {
-                public void run() {
-                    ((DenseDComplexMatrix2D) AA).zMultSeq(BB, CC, alpha, beta, transposeA, transposeB);
+        // set up concurrent tasks, each of them should process at least 30000 flops
+        final boolean splitB_loc = splitB;
+        final DComplexMatrix2D C_loc = C;
+        int minGrain = (int) Math.max(1, 30000L * width / Math.max(flops, 1));
+        ConcurrencyUtils.parallelFor(0, width, ConcurrencyUtils.getGrainSize(width, minGrain), new RangeProcedure() {
+            public void apply(int offset, int last) {
+                int span = last - offset;
+                final DComplexMatrix2D AA, BB, CC;
+                if (splitB_loc) {
+                    // split B along columns into blocks
+                    AA = DenseDComplexMatrix2D.this;
+                    BB = B.viewPart(0, offset, columnsA, span);
+                    CC = C_loc.viewPart(0, offset, rowsA, span);
+                } else {
+                    // split A along rows into blocks
+                    AA = DenseDComplexMatrix2D.this.viewPart(offset, 0, span, columnsA);
+                    BB = B;
+                    CC = C_loc.viewPart(offset, 0, span, columnsB);
                 }
-            });
-        }
-        ConcurrencyUtils.waitForCompletion(subTasks);
+                ((DenseDComplexMatrix2D) AA).zMultSeq(BB, CC, alpha, beta, transposeA, transposeB);
+            }
+        });
 
         return C;
     }
@@ -2025,9 +2088,9 @@ public class DenseDComplexMatrix2D extends DComplexMatrix2D {
                     sum[1] = sum[1] + tmp[1];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -14,12 +14,14 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tdcomplex.DComplexMatrix1D;
 import cern.colt.matrix.tdcomplex.DComplexMatrix2D;
 import cern.colt.matrix.tdcomplex.DComplexMatrix3D;
 import cern.colt.matrix.tdouble.DoubleMatrix3D;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix3D;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_3D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -65,8 +67,6 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
 public class DenseDComplexMatrix3D extends DComplexMatrix3D {
     private static final long serialVersionUID = 1L;
 
-    private DoubleFFT_3D fft3;
-
     /**
      * The elements of this matrix. elements are stored in slice major, then row
      * major, then column major, in order of significance. Complex data is
@@ -1203,9 +1203,9 @@ public class DenseDComplexMatrix3D extends DComplexMatrix3D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx;
@@ -1229,32 +1229,35 @@ public class DenseDComplexMatrix3D extends DComplexMatrix3D {
      * matrix.
      */
     public void fft2Slices() {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseDComplexMatrix2D) viewSlice(s)).fft2();
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseDComplexMatrix2D) viewSlice(s)).fft2();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseDComplexMatrix2D) viewSlice(s)).fft2();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseDComplexMatrix2D) viewSlice(s)).fft2();
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1262,19 +1265,20 @@ public class DenseDComplexMatrix3D extends DComplexMatrix3D {
      * Computes the 3D discrete Fourier transform (DFT) of this matrix.
      */
     public void fft3() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft3 == null) {
-            fft3 = new DoubleFFT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            fft3.complexForward(elements);
-        } else {
-            DComplexMatrix3D copy = this.copy();
-            fft3.complexForward((double[]) copy.elements());
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_3D fft3 = TransformPlans.acquire(DoubleFFT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                fft3.complexForward(elements);
+            } else {
+                DComplexMatrix3D copy = this.copy();
+                fft3.complexForward((double[]) copy.elements());
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(fft3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public double[] elements() {
@@ -1429,32 +1433,35 @@ public class DenseDComplexMatrix3D extends DComplexMatrix3D {
      *            if true then scaling is performed
      */
     public void ifft2Slices(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseDComplexMatrix2D) viewSlice(s)).ifft2(scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseDComplexMatrix2D) viewSlice(s)).ifft2(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseDComplexMatrix2D) viewSlice(s)).ifft2(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseDComplexMatrix2D) viewSlice(s)).ifft2(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1466,19 +1473,20 @@ public class DenseDComplexMatrix3D extends DComplexMatrix3D {
      *            if true then scaling is performed
      */
     public void ifft3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft3 == null) {
-            fft3 = new DoubleFFT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            fft3.complexInverse(elements, scale);
-        } else {
-            DComplexMatrix3D copy = this.copy();
-            fft3.complexInverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_3D fft3 = TransformPlans.acquire(DoubleFFT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                fft3.complexInverse(elements, scale);
+            } else {
+                DComplexMatrix3D copy = this.copy();
+                fft3.complexInverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(fft3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public DComplexMatrix3D like(int slices, int rows, int columns) {
@@ -1597,9 +1605,9 @@ public class DenseDComplexMatrix3D extends DComplexMatrix3D {
                     sum[1] += tmp[1];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx;
@@ -445,9 +445,9 @@ public class DiagonalDComplexMatrix2D extends WrapperDComplexMatrix2D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             for (int i = 0; i < dlength; i++) {
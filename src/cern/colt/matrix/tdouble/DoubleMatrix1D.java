@@ -16,6 +16,7 @@ import cern.colt.list.tdouble.DoubleArrayList;
 import cern.colt.list.tint.IntArrayList;
 import cern.colt.matrix.AbstractMatrix1D;
 import cern.jet.math.tdouble.DoubleFunctions;
+import cern.jet.math.tdouble.DoubleSummation;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -80,8 +81,17 @@ public abstract class DoubleMatrix1D extends AbstractMatrix1D {
             final cern.colt.function.tdouble.DoubleFunction f) {
         if (size == 0)
             return Double.NaN;
-        double a = f.apply(getQuick(0));
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        DoubleSummation.Mode mode = DoubleSummation.getMode();
+        if (aggr == DoubleFunctions.plus && mode != DoubleSummation.Mode.Naive) {
+            boolean parallel = (nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D());
+            return DoubleSummation.sum(new DoubleSummation.Terms() {
+                public double get(int i) {
+                    return f.apply(getQuick(i));
+                }
+            }, size, mode, parallel);
+        }
+        double a = f.apply(getQuick(0));
         if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
             nthreads = Math.min(nthreads, size);
             Future<?>[] futures = new Future[nthreads];
@@ -208,8 +218,17 @@ public abstract class DoubleMatrix1D extends AbstractMatrix1D {
         checkSize(other);
         if (size == 0)
             return Double.NaN;
-        double a = f.apply(getQuick(0), other.getQuick(0));
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        DoubleSummation.Mode mode = DoubleSummation.getMode();
+        if (aggr == DoubleFunctions.plus && mode != DoubleSummation.Mode.Naive) {
+            boolean parallel = (nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D());
+            return DoubleSummation.sum(new DoubleSummation.Terms() {
+                public double get(int i) {
+                    return f.apply(getQuick(i), other.getQuick(i));
+                }
+            }, size, mode, parallel);
+        }
+        double a = f.apply(getQuick(0), other.getQuick(0));
         if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
             nthreads = Math.min(nthreads, size);
             Future<?>[] futures = new Future[nthreads];
@@ -681,9 +700,9 @@ public abstract class DoubleMatrix1D extends AbstractMatrix1D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             for (int i = 0; i < size; i++) {
@@ -813,9 +832,9 @@ public abstract class DoubleMatrix1D extends AbstractMatrix1D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = getQuick(location);
@@ -877,9 +896,9 @@ public abstract class DoubleMatrix1D extends AbstractMatrix1D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = getQuick(location);
@@ -1563,6 +1582,15 @@ public abstract class DoubleMatrix1D extends AbstractMatrix1D {
 
         double sum = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        DoubleSummation.Mode mode = DoubleSummation.getMode();
+        if (mode != DoubleSummation.Mode.Naive) {
+            boolean parallel = (nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D());
+            return DoubleSummation.sum(new DoubleSummation.Terms() {
+                public double get(int i) {
+                    return getQuick(from + i) * y.getQuick(from + i);
+                }
+            }, length, mode, parallel);
+        }
         if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
             nthreads = Math.min(nthreads, length);
             Future<?>[] futures = new Future[nthreads];
@@ -1592,9 +1620,9 @@ public abstract class DoubleMatrix1D extends AbstractMatrix1D {
                     sum += results[j].doubleValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int i = tail - 1;
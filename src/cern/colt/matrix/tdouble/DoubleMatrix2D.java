@@ -923,9 +923,9 @@ public abstract class DoubleMatrix2D extends AbstractMatrix2D {
                     cardinality += results[j].intValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             for (int r = 0; r < rows; r++) {
@@ -1122,9 +1122,9 @@ public abstract class DoubleMatrix2D extends AbstractMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = getQuick(0, 0);
@@ -1200,9 +1200,9 @@ public abstract class DoubleMatrix2D extends AbstractMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = getQuick(0, 0);
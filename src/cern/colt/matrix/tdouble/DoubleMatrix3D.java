@@ -944,9 +944,9 @@ public abstract class DoubleMatrix3D extends AbstractMatrix3D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             for (int s = 0; s < slices; s++) {
@@ -1101,9 +1101,9 @@ public abstract class DoubleMatrix3D extends AbstractMatrix3D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = getQuick(0, 0, 0);
@@ -1189,9 +1189,9 @@ public abstract class DoubleMatrix3D extends AbstractMatrix3D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = getQuick(0, 0, 0);
@@ -0,0 +1,640 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble;
+
+import cern.colt.matrix.tdouble.algo.DoubleProperty;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
+
+/**
+ * A batch of small dense matrices of equal shape, stored in a single
+ * <tt>double[]</tt>. Element <tt>[row,column]</tt> of matrix <tt>b</tt> is
+ * stored at
+ * <tt>elements[offset + b*stride + row*rowStride + column*columnStride]</tt>.
+ * <p>
+ * The batched operations (<tt>zMult</tt>, <tt>solve</tt>,
+ * <tt>solveCholesky</tt>, <tt>inverse</tt>) work directly on the array,
+ * without creating <tt>DoubleMatrix2D</tt> objects per matrix, and are
+ * parallelized over the matrices of the batch. A batch is processed by several
+ * threads when its total number of elements is at least
+ * <tt>ConcurrencyUtils.getThreadsBeginN_2D("DoubleMatrixBatch.&lt;operation&gt;")</tt>
+ * . The LU decomposition follows {@link cern.colt.matrix.tdouble.algo.decomposition.DenseDoubleLUDecompositionQuick}
+ * (left-looking Crout/Doolittle with partial pivoting), the Cholesky
+ * decomposition follows
+ * {@link cern.colt.matrix.tdouble.algo.decomposition.DenseDoubleCholeskyDecomposition}
+ * ; both are computed on per-thread work arrays, so the operands are not
+ * modified.
+ * <p>
+ * <b>Note</b> that this implementation is not synchronized.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public class DoubleMatrixBatch implements java.io.Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of matrices.
+     */
+    protected int size;
+
+    /**
+     * The number of rows of each matrix.
+     */
+    protected int rows;
+
+    /**
+     * The number of columns of each matrix.
+     */
+    protected int columns;
+
+    /**
+     * The elements of all matrices.
+     */
+    protected double[] elements;
+
+    /**
+     * The index of element <tt>[0,0]</tt> of the first matrix.
+     */
+    protected int offset;
+
+    /**
+     * The distance between element <tt>[0,0]</tt> of consecutive matrices.
+     */
+    protected int stride;
+
+    /**
+     * The row stride of each matrix.
+     */
+    protected int rowStride;
+
+    /**
+     * The column stride of each matrix.
+     */
+    protected int columnStride;
+
+    /**
+     * Constructs a batch of <tt>size</tt> matrices with the given shape. The
+     * matrices are stored one after another in row major order. All entries
+     * are initially <tt>0</tt>.
+     *
+     * @param size
+     *            the number of matrices
+     * @param rows
+     *            the number of rows of each matrix
+     * @param columns
+     *            the number of columns of each matrix
+     * @throws IllegalArgumentException
+     *             if any argument is negative or the batch has more than
+     *             <tt>Integer.MAX_VALUE</tt> elements
+     */
+    public DoubleMatrixBatch(int size, int rows, int columns) {
+        if (size < 0 || rows < 0 || columns < 0)
+            throw new IllegalArgumentException("negative size: " + size + ", " + rows + ", " + columns);
+        if ((long) size * rows * columns > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("batch too large");
+        this.size = size;
+        this.rows = rows;
+        this.columns = columns;
+        this.elements = new double[size * rows * columns];
+        this.offset = 0;
+        this.stride = rows * columns;
+        this.rowStride = columns;
+        this.columnStride = 1;
+    }
+
+    /**
+     * Constructs a batch over an existing array (no copy is made).
+     *
+     * @param size
+     *            the number of matrices
+     * @param rows
+     *            the number of rows of each matrix
+     * @param columns
+     *            the number of columns of each matrix
+     * @param elements
+     *            the array holding the elements
+     * @param offset
+     *            the index of element <tt>[0,0]</tt> of the first matrix
+     * @param stride
+     *            the distance between consecutive matrices
+     * @param rowStride
+     *            the row stride of each matrix
+     * @param columnStride
+     *            the column stride of each matrix
+     * @throws IllegalArgumentException
+     *             if any dimension is negative
+     */
+    public DoubleMatrixBatch(int size, int rows, int columns, double[] elements, int offset, int stride,
+            int rowStride, int columnStride) {
+        if (size < 0 || rows < 0 || columns < 0)
+            throw new IllegalArgumentException("negative size: " + size + ", " + rows + ", " + columns);
+        this.size = size;
+        this.rows = rows;
+        this.columns = columns;
+        this.elements = elements;
+        this.offset = offset;
+        this.stride = stride;
+        this.rowStride = rowStride;
+        this.columnStride = columnStride;
+    }
+
+    /**
+     * Returns the number of matrices.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of rows of each matrix.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of each matrix.
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * Returns the elements of this batch.
+     *
+     * @return the elements
+     */
+    public double[] elements() {
+        return elements;
+    }
+
+    /**
+     * Returns the position of the given coordinate within the internal array.
+     *
+     * @param matrix
+     *            the index of the matrix
+     * @param row
+     *            the index of the row-coordinate
+     * @param column
+     *            the index of the column-coordinate
+     */
+    public int index(int matrix, int row, int column) {
+        return offset + matrix * stride + row * rowStride + column * columnStride;
+    }
+
+    /**
+     * Returns the matrix cell value at coordinate <tt>[row,column]</tt> of
+     * matrix <tt>matrix</tt>. Provided with invalid parameters this method may
+     * return invalid objects without throwing any exception.
+     */
+    public double getQuick(int matrix, int row, int column) {
+        return elements[offset + matrix * stride + row * rowStride + column * columnStride];
+    }
+
+    /**
+     * Sets the matrix cell at coordinate <tt>[row,column]</tt> of matrix
+     * <tt>matrix</tt> to the specified value. Provided with invalid parameters
+     * this method may access illegal indexes without throwing any exception.
+     */
+    public void setQuick(int matrix, int row, int column, double value) {
+        elements[offset + matrix * stride + row * rowStride + column * columnStride] = value;
+    }
+
+    /**
+     * Returns a view of matrix <tt>matrix</tt>; changes to the view are
+     * reflected in this batch and vice versa.
+     *
+     * @param matrix
+     *            the index of the matrix
+     * @return a new view
+     * @throws IndexOutOfBoundsException
+     *             if <tt>matrix &lt; 0 || matrix &gt;= size()</tt>
+     */
+    public DoubleMatrix2D viewMatrix(int matrix) {
+        checkMatrix(matrix);
+        return new DenseDoubleMatrix2D(rows, columns, elements, offset + matrix * stride, 0, rowStride,
+                columnStride, true);
+    }
+
+    /**
+     * Replaces matrix <tt>matrix</tt> by the values of <tt>other</tt>.
+     *
+     * @param matrix
+     *            the index of the matrix
+     * @param other
+     *            the source matrix
+     * @return <tt>this</tt> (for convenience only)
+     * @throws IllegalArgumentException
+     *             if the shape of <tt>other</tt> differs
+     */
+    public DoubleMatrixBatch assign(int matrix, DoubleMatrix2D other) {
+        if (other.rows() != rows || other.columns() != columns)
+            throw new IllegalArgumentException("Incompatible dimensions: " + rows + " x " + columns + " and "
+                    + other.toStringShort());
+        viewMatrix(matrix).assign(other);
+        return this;
+    }
+
+    /**
+     * Linear algebraic matrix-matrix multiplication of each pair of matrices;
+     * <tt>C[b] = alpha * A[b] x B[b] + beta * C[b]</tt>, where <tt>A</tt> is
+     * this batch. If <tt>beta == 0</tt>, <tt>C</tt> need not be initialized.
+     *
+     * @param B
+     *            the second source batch
+     * @param C
+     *            the batch holding the results or <tt>null</tt> to create a
+     *            new batch
+     * @param transposeA
+     *            whether the matrices of <tt>A</tt> are transposed
+     * @param transposeB
+     *            whether the matrices of <tt>B</tt> are transposed
+     * @return <tt>C</tt> (for convenience only)
+     * @throws IllegalArgumentException
+     *             if the sizes or shapes of the batches do not agree
+     */
+    public DoubleMatrixBatch zMult(final DoubleMatrixBatch B, DoubleMatrixBatch C, final double alpha,
+            final double beta, boolean transposeA, boolean transposeB) {
+        final int m = transposeA ? columns : rows;
+        final int k = transposeA ? rows : columns;
+        final int n = transposeB ? B.rows : B.columns;
+        if (B.size != size)
+            throw new IllegalArgumentException("Batch sizes must agree: " + size + ", " + B.size);
+        if ((transposeB ? B.columns : B.rows) != k)
+            throw new IllegalArgumentException("Matrix inner dimensions must agree: " + rows + " x " + columns
+                    + ", " + B.rows + " x " + B.columns);
+        if (C == null) {
+            C = new DoubleMatrixBatch(size, m, n);
+        }
+        if (C.size != size || C.rows != m || C.columns != n)
+            throw new IllegalArgumentException("Incompatible result batch: " + C.size + " matrices " + C.rows
+                    + " x " + C.columns);
+        if (C.elements == elements || C.elements == B.elements)
+            throw new IllegalArgumentException("Batches must not be identical");
+        final int ars = transposeA ? columnStride : rowStride;
+        final int acs = transposeA ? rowStride : columnStride;
+        final int brs = transposeB ? B.columnStride : B.rowStride;
+        final int bcs = transposeB ? B.rowStride : B.columnStride;
+        final DoubleMatrixBatch CC = C;
+        forEach("DoubleMatrixBatch.zMult", new RangeProcedure() {
+            public void apply(int first, int last) {
+                double[] a = elements;
+                double[] b = B.elements;
+                double[] c = CC.elements;
+                for (int t = first; t < last; t++) {
+                    int aZero = offset + t * stride;
+                    int bZero = B.offset + t * B.stride;
+                    int cZero = CC.offset + t * CC.stride;
+                    for (int i = 0; i < m; i++) {
+                        int cIdx = cZero + i * CC.rowStride;
+                        for (int j = 0; j < n; j++) {
+                            int aIdx = aZero + i * ars;
+                            int bIdx = bZero + j * bcs;
+                            double s = 0;
+                            for (int p = 0; p < k; p++) {
+                                s += a[aIdx] * b[bIdx];
+                                aIdx += acs;
+                                bIdx += brs;
+                            }
+                            c[cIdx] = (beta == 0) ? alpha * s : alpha * s + beta * c[cIdx];
+                            cIdx += CC.columnStride;
+                        }
+                    }
+                }
+            }
+        });
+        return C;
+    }
+
+    /**
+     * Linear algebraic matrix-matrix multiplication of each pair of matrices;
+     * <tt>C[b] = A[b] x B[b]</tt>, where <tt>A</tt> is this batch.
+     * Equivalent to <tt>zMult(B,C,1,0,false,false)</tt>.
+     */
+    public DoubleMatrixBatch zMult(DoubleMatrixBatch B, DoubleMatrixBatch C) {
+        return zMult(B, C, 1, 0, false, false);
+    }
+
+    /**
+     * Solves <tt>A[b] x X[b] = B[b]</tt> for each matrix of this (square)
+     * batch <tt>A</tt>, using LU decomposition with partial pivoting.
+     *
+     * @param B
+     *            the right-hand sides; a batch of the same size whose matrices
+     *            have as many rows as the matrices of <tt>A</tt>
+     * @return a new batch holding the solutions
+     * @throws IllegalArgumentException
+     *             if the matrices are not square, if the batches do not agree
+     *             or if a matrix is singular
+     */
+    public DoubleMatrixBatch solve(final DoubleMatrixBatch B) {
+        checkSquare();
+        checkRightHandSides(B);
+        final DoubleMatrixBatch X = new DoubleMatrixBatch(size, B.rows, B.columns);
+        final int n = rows;
+        final int nrhs = B.columns;
+        final double tolerance = DoubleProperty.DEFAULT.tolerance();
+        forEach("DoubleMatrixBatch.solve", new RangeProcedure() {
+            public void apply(int first, int last) {
+                double[] lu = new double[n * n];
+                double[] colj = new double[n];
+                int[] piv = new int[n];
+                double[] x = X.elements;
+                for (int t = first; t < last; t++) {
+                    copy(t, lu);
+                    if (!decomposeLU(n, lu, colj, piv, tolerance))
+                        throw new IllegalArgumentException("Matrix " + t + " of the batch is singular.");
+                    int xZero = X.offset + t * X.stride;
+                    for (int i = 0; i < n; i++) {
+                        for (int j = 0; j < nrhs; j++) {
+                            x[xZero + i * nrhs + j] = B.getQuick(t, piv[i], j);
+                        }
+                    }
+                    solveLU(n, lu, x, xZero, nrhs);
+                }
+            }
+        });
+        return X;
+    }
+
+    /**
+     * Returns the inverses of the matrices of this (square) batch, computed by
+     * LU decomposition with partial pivoting.
+     *
+     * @return a new batch holding the inverses
+     * @throws IllegalArgumentException
+     *             if the matrices are not square or if a matrix is singular
+     */
+    public DoubleMatrixBatch inverse() {
+        checkSquare();
+        final DoubleMatrixBatch X = new DoubleMatrixBatch(size, rows, columns);
+        final int n = rows;
+        final double tolerance = DoubleProperty.DEFAULT.tolerance();
+        forEach("DoubleMatrixBatch.inverse", new RangeProcedure() {
+            public void apply(int first, int last) {
+                double[] lu = new double[n * n];
+                double[] colj = new double[n];
+                int[] piv = new int[n];
+                double[] x = X.elements;
+                for (int t = first; t < last; t++) {
+                    copy(t, lu);
+                    if (!decomposeLU(n, lu, colj, piv, tolerance))
+                        throw new IllegalArgumentException("Matrix " + t + " of the batch is singular.");
+                    int xZero = X.offset + t * X.stride;
+                    // identity with permuted rows
+                    for (int i = 0; i < n; i++) {
+                        for (int j = 0; j < n; j++) {
+                            x[xZero + i * n + j] = (piv[i] == j) ? 1 : 0;
+                        }
+                    }
+                    solveLU(n, lu, x, xZero, n);
+                }
+            }
+        });
+        return X;
+    }
+
+    /**
+     * Solves <tt>A[b] x X[b] = B[b]</tt> for each matrix of this batch
+     * <tt>A</tt>, using Cholesky decomposition. Only the lower triangles of
+     * the matrices of <tt>A</tt> are read; the matrices must be symmetric and
+     * positive definite.
+     *
+     * @param B
+     *            the right-hand sides; a batch of the same size whose matrices
+     *            have as many rows as the matrices of <tt>A</tt>
+     * @return a new batch holding the solutions
+     * @throws IllegalArgumentException
+     *             if the matrices are not square, if the batches do not agree
+     *             or if a matrix is not symmetric positive definite
+     */
+    public DoubleMatrixBatch solveCholesky(final DoubleMatrixBatch B) {
+        checkSquare();
+        checkRightHandSides(B);
+        final DoubleMatrixBatch X = new DoubleMatrixBatch(size, B.rows, B.columns);
+        final int n = rows;
+        final int nrhs = B.columns;
+        forEach("DoubleMatrixBatch.solveCholesky", new RangeProcedure() {
+            public void apply(int first, int last) {
+                double[] l = new double[n * n];
+                double[] x = X.elements;
+                for (int t = first; t < last; t++) {
+                    copy(t, l);
+                    if (!decomposeCholesky(n, l))
+                        throw new IllegalArgumentException("Matrix " + t
+                                + " of the batch is not symmetric positive definite.");
+                    int xZero = X.offset + t * X.stride;
+                    for (int i = 0; i < n; i++) {
+                        for (int j = 0; j < nrhs; j++) {
+                            x[xZero + i * nrhs + j] = B.getQuick(t, i, j);
+                        }
+                    }
+                    solveCholesky(n, l, x, xZero, nrhs);
+                }
+            }
+        });
+        return X;
+    }
+
+    private void forEach(String kernel, RangeProcedure procedure) {
+        if (size == 0)
+            return;
+        long n = (long) size * rows * columns;
+        if (ConcurrencyUtils.getNumberOfThreads() > 1 && n >= ConcurrencyUtils.getThreadsBeginN_2D(kernel)) {
+            // each subrange should hold at least 4096 elements
+            int minGrain = Math.max(1, 4096 / Math.max(1, rows * columns));
+            ConcurrencyUtils.parallelFor(0, size, ConcurrencyUtils.getGrainSize(size, minGrain), procedure);
+        } else {
+            procedure.apply(0, size);
+        }
+    }
+
+    /*
+     * Copies matrix t into the row major array a.
+     */
+    private void copy(int t, double[] a) {
+        int idx = 0;
+        for (int i = 0; i < rows; i++) {
+            int src = offset + t * stride + i * rowStride;
+            for (int j = 0; j < columns; j++) {
+                a[idx++] = elements[src];
+                src += columnStride;
+            }
+        }
+    }
+
+    /*
+     * Decomposes the row major n x n array lu in place, as the decompose
+     * method of DenseDoubleLUDecompositionQuick does. Returns false if U is
+     * singular.
+     */
+    private static boolean decomposeLU(int n, double[] lu, double[] colj, int[] piv, double tolerance) {
+        for (int i = 0; i < n; i++)
+            piv[i] = i;
+        for (int j = 0; j < n; j++) {
+            for (int i = 0; i < n; i++)
+                colj[i] = lu[i * n + j];
+            // apply previous transformations
+            for (int i = 0; i < n; i++) {
+                int kmax = Math.min(i, j);
+                int row = i * n;
+                double s = 0;
+                for (int k = 0; k < kmax; k++)
+                    s += lu[row + k] * colj[k];
+                colj[i] -= s;
+                lu[row + j] = colj[i];
+            }
+            // find pivot and exchange if necessary
+            int p = j;
+            double max = Math.abs(colj[j]);
+            for (int i = j + 1; i < n; i++) {
+                double v = Math.abs(colj[i]);
+                if (v > max) {
+                    p = i;
+                    max = v;
+                }
+            }
+            if (p != j) {
+                int rp = p * n;
+                int rj = j * n;
+                for (int k = 0; k < n; k++) {
+                    double tmp = lu[rp + k];
+                    lu[rp + k] = lu[rj + k];
+                    lu[rj + k] = tmp;
+                }
+                int tmp = piv[p];
+                piv[p] = piv[j];
+                piv[j] = tmp;
+            }
+            // compute multipliers
+            double jj = lu[j * n + j];
+            if (jj != 0) {
+                double mult = 1 / jj;
+                for (int i = j + 1; i < n; i++)
+                    lu[i * n + j] *= mult;
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            if (Math.abs(lu[j * n + j]) <= tolerance)
+                return false;
+        }
+        return true;
+    }
+
+    /*
+     * Solves L*U*X = Y in place, where Y (already permuted) is a row major
+     * n x nrhs array starting at x[xZero].
+     */
+    private static void solveLU(int n, double[] lu, double[] x, int xZero, int nrhs) {
+        // solve L*Y = B(piv,:)
+        for (int k = 0; k < n; k++) {
+            int rk = xZero + k * nrhs;
+            for (int i = k + 1; i < n; i++) {
+                double v = lu[i * n + k];
+                if (v != 0) {
+                    int ri = xZero + i * nrhs;
+                    for (int j = 0; j < nrhs; j++)
+                        x[ri + j] -= x[rk + j] * v;
+                }
+            }
+        }
+        // solve U*X = Y
+        for (int k = n - 1; k >= 0; k--) {
+            int rk = xZero + k * nrhs;
+            double d = lu[k * n + k];
+            for (int j = 0; j < nrhs; j++)
+                x[rk + j] /= d;
+            for (int i = 0; i < k; i++) {
+                double v = lu[i * n + k];
+                if (v != 0) {
+                    int ri = xZero + i * nrhs;
+                    for (int j = 0; j < nrhs; j++)
+                        x[ri + j] -= x[rk + j] * v;
+                }
+            }
+        }
+    }
+
+    /*
+     * Replaces the lower triangle of the row major n x n array l by the
+     * Cholesky factor L, so that A = L*L'. Returns false if A is not positive
+     * definite.
+     */
+    private static boolean decomposeCholesky(int n, double[] l) {
+        for (int j = 0; j < n; j++) {
+            int rj = j * n;
+            double d = l[rj + j];
+            for (int k = 0; k < j; k++)
+                d -= l[rj + k] * l[rj + k];
+            if (!(d > 0))
+                return false;
+            double ljj = Math.sqrt(d);
+            l[rj + j] = ljj;
+            for (int i = j + 1; i < n; i++) {
+                int ri = i * n;
+                double s = l[ri + j];
+                for (int k = 0; k < j; k++)
+                    s -= l[ri + k] * l[rj + k];
+                l[ri + j] = s / ljj;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Solves L*L'*X = B in place, where B is a row major n x nrhs array
+     * starting at x[xZero].
+     */
+    private static void solveCholesky(int n, double[] l, double[] x, int xZero, int nrhs) {
+        // solve L*Y = B
+        for (int k = 0; k < n; k++) {
+            int rk = xZero + k * nrhs;
+            double d = l[k * n + k];
+            for (int j = 0; j < nrhs; j++)
+                x[rk + j] /= d;
+            for (int i = k + 1; i < n; i++) {
+                double v = l[i * n + k];
+                int ri = xZero + i * nrhs;
+                for (int j = 0; j < nrhs; j++)
+                    x[ri + j] -= x[rk + j] * v;
+            }
+        }
+        // solve L'*X = Y
+        for (int k = n - 1; k >= 0; k--) {
+            int rk = xZero + k * nrhs;
+            double d = l[k * n + k];
+            for (int j = 0; j < nrhs; j++)
+                x[rk + j] /= d;
+            for (int i = 0; i < k; i++) {
+                double v = l[k * n + i];
+                int ri = xZero + i * nrhs;
+                for (int j = 0; j < nrhs; j++)
+                    x[ri + j] -= x[rk + j] * v;
+            }
+        }
+    }
+
+    private void checkMatrix(int matrix) {
+        if (matrix < 0 || matrix >= size)
+            throw new IndexOutOfBoundsException("Attempted to access matrix " + matrix + " of a batch of " + size);
+    }
+
+    private void checkSquare() {
+        if (rows != columns)
+            throw new IllegalArgumentException("Matrices must be square: " + rows + " x " + columns);
+    }
+
+    private void checkRightHandSides(DoubleMatrixBatch B) {
+        if (B.size != size)
+            throw new IllegalArgumentException("Batch sizes must agree: " + size + ", " + B.size);
+        if (B.rows != rows)
+            throw new IllegalArgumentException("Matrix row dimensions must agree.");
+    }
+}
@@ -0,0 +1,385 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cern.colt.function.tdouble.DoubleDoubleFunction;
+import cern.colt.function.tdouble.DoubleFunction;
+import cern.colt.matrix.tdouble.impl.DenseColumnDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.jet.math.tdouble.DoubleFunctions;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.DoubleRangeFunction;
+import edu.emory.mathcs.utils.RangeProcedure;
+
+/**
+ * Lazily evaluated chain of element-wise operations on a 1-d or 2-d matrix.
+ * The <tt>assign</tt> methods only record an operation; the chain is
+ * evaluated by one of the terminal methods in a single (parallel) pass over
+ * the cells, instead of one pass per operation. For example
+ *
+ * <pre>
+ * double s = new DoubleMatrixExpression(A).assign(B, F.plus).assign(F.square).zSum();
+ * </pre>
+ *
+ * computes the same sum as <tt>A.copy().assign(B, F.plus).assign(F.square).zSum()</tt>
+ * while reading <tt>A</tt> and <tt>B</tt> once and without creating a
+ * temporary matrix, and
+ *
+ * <pre>
+ * new DoubleMatrixExpression(A).assign(B, F.plus).assign(F.square).evaluate();
+ * </pre>
+ *
+ * has the same effect as <tt>A.assign(B, F.plus).assign(F.square)</tt>.
+ * <p>
+ * Any <tt>DoubleFunction</tt> and <tt>DoubleDoubleFunction</tt>, in
+ * particular those of {@link DoubleFunctions}, can be used. Dense matrices
+ * (including views) are accessed through their internal arrays, other
+ * matrices through <tt>getQuick</tt>/<tt>setQuick</tt>. Since inserting into
+ * sparse storage is not thread-safe, <tt>evaluate</tt> writes to a non-dense
+ * source in a single thread. An operand of a
+ * binary operation may be the source matrix itself, in which case the current
+ * value of the chain is used, but must not otherwise share cells with the
+ * source matrix.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public class DoubleMatrixExpression {
+
+    private final Operand source;
+
+    private final DoubleMatrix1D sourceVector;
+
+    private final DoubleMatrix2D sourceMatrix;
+
+    private final int rows;
+
+    private final int columns;
+
+    private final List<Op> ops = new ArrayList<Op>();
+
+    /**
+     * Constructs an empty expression over the given vector.
+     *
+     * @param x
+     *            the source vector
+     */
+    public DoubleMatrixExpression(DoubleMatrix1D x) {
+        this.sourceVector = x;
+        this.sourceMatrix = null;
+        this.rows = (int) x.size();
+        this.columns = 1;
+        this.source = new Operand(x);
+    }
+
+    /**
+     * Constructs an empty expression over the given matrix.
+     *
+     * @param A
+     *            the source matrix
+     */
+    public DoubleMatrixExpression(DoubleMatrix2D A) {
+        this.sourceVector = null;
+        this.sourceMatrix = A;
+        this.rows = A.rows();
+        this.columns = A.columns();
+        this.source = new Operand(A);
+    }
+
+    /**
+     * Records <tt>x[i] = function(x[i])</tt>.
+     *
+     * @param function
+     *            a function taking as argument the current cell's value.
+     * @return <tt>this</tt> (for convenience only).
+     */
+    public DoubleMatrixExpression assign(DoubleFunction function) {
+        ops.add(new Op(function, null, null));
+        return this;
+    }
+
+    /**
+     * Records <tt>x[i] = function(x[i], y[i])</tt>.
+     *
+     * @param y
+     *            the secondary vector to operate on.
+     * @param function
+     *            a function taking as first argument the current cell's value
+     *            of <tt>this</tt>, and as second argument the current cell's
+     *            value of <tt>y</tt>.
+     * @return <tt>this</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if the source is not a vector, if
+     *             <tt>size() != y.size()</tt>, or if <tt>y</tt> shares cells
+     *             with the source and is not the source itself.
+     */
+    public DoubleMatrixExpression assign(DoubleMatrix1D y, DoubleDoubleFunction function) {
+        if (sourceVector == null)
+            throw new IllegalArgumentException("The source of the expression is a matrix");
+        sourceVector.checkSize(y);
+        if (y == sourceVector) {
+            ops.add(new Op(null, function, null));
+        } else {
+            if (sourceVector.haveSharedCells(y))
+                throw new IllegalArgumentException("The operand shares cells with the source");
+            ops.add(new Op(null, function, new Operand(y)));
+        }
+        return this;
+    }
+
+    /**
+     * Records <tt>x[row,col] = function(x[row,col], y[row,col])</tt>.
+     *
+     * @param y
+     *            the secondary matrix to operate on.
+     * @param function
+     *            a function taking as first argument the current cell's value
+     *            of <tt>this</tt>, and as second argument the current cell's
+     *            value of <tt>y</tt>.
+     * @return <tt>this</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if the source is not a matrix, if the shapes differ, or if
+     *             <tt>y</tt> shares cells with the source and is not the
+     *             source itself.
+     */
+    public DoubleMatrixExpression assign(DoubleMatrix2D y, DoubleDoubleFunction function) {
+        if (sourceMatrix == null)
+            throw new IllegalArgumentException("The source of the expression is a vector");
+        sourceMatrix.checkShape(y);
+        if (y == sourceMatrix) {
+            ops.add(new Op(null, function, null));
+        } else {
+            if (sourceMatrix.haveSharedCells(y))
+                throw new IllegalArgumentException("The operand shares cells with the source");
+            ops.add(new Op(null, function, new Operand(y)));
+        }
+        return this;
+    }
+
+    /**
+     * Applies the recorded operations to the source in a single pass.
+     */
+    public void evaluate() {
+        if (rows * columns > 0) {
+            run(true);
+        }
+    }
+
+    /**
+     * Applies the recorded operations to the source and aggregates the new
+     * cell values, in a single pass. The result is the same as that of
+     * <tt>aggregate(aggr, f)</tt> called on the source after
+     * {@link #evaluate()}.
+     *
+     * @param aggr
+     *            an aggregation function taking as first argument the current
+     *            aggregation and as second argument the transformed current
+     *            cell value.
+     * @param f
+     *            a function transforming the current cell value.
+     * @return the aggregated measure.
+     */
+    public double evaluate(DoubleDoubleFunction aggr, DoubleFunction f) {
+        if (rows * columns == 0)
+            return Double.NaN;
+        return run(true, aggr, f);
+    }
+
+    /**
+     * Aggregates the values of the expression without modifying the source.
+     * The result is the same as that of <tt>aggregate(aggr, f)</tt> called on
+     * a copy of the source to which the recorded operations were applied.
+     *
+     * @param aggr
+     *            an aggregation function taking as first argument the current
+     *            aggregation and as second argument the transformed current
+     *            cell value.
+     * @param f
+     *            a function transforming the current cell value.
+     * @return the aggregated measure.
+     */
+    public double aggregate(DoubleDoubleFunction aggr, DoubleFunction f) {
+        if (rows * columns == 0)
+            return Double.NaN;
+        return run(false, aggr, f);
+    }
+
+    /**
+     * Returns the sum of the values of the expression without modifying the
+     * source.
+     *
+     * @return the sum.
+     */
+    public double zSum() {
+        if (rows * columns == 0)
+            return 0;
+        return run(false, DoubleFunctions.plus, DoubleFunctions.identity);
+    }
+
+    private boolean isParallel(boolean write) {
+        if (ConcurrencyUtils.getNumberOfThreads() < 2)
+            return false;
+        if (write && (source.elements == null))
+            return false;
+        long size = (long) rows * columns;
+        if (sourceVector != null)
+            return size >= ConcurrencyUtils.getThreadsBeginN_1D("DoubleMatrixExpression");
+        return size >= ConcurrencyUtils.getThreadsBeginN_2D("DoubleMatrixExpression");
+    }
+
+    /*
+     * The rows of a matrix, or the cells of a vector, are split into ranges
+     * processed by the workers.
+     */
+    private int grain() {
+        int minGrain = Math.max(1, 4096 / columns);
+        return ConcurrencyUtils.getGrainSize(rows, minGrain);
+    }
+
+    private void run(final boolean write) {
+        final Op[] chain = ops.toArray(new Op[ops.size()]);
+        if (isParallel(write)) {
+            ConcurrencyUtils.parallelFor(0, rows, grain(), new RangeProcedure() {
+                public void apply(int first, int last) {
+                    pass(chain, first, last, write, null, null);
+                }
+            });
+        } else {
+            pass(chain, 0, rows, write, null, null);
+        }
+    }
+
+    private double run(final boolean write, final DoubleDoubleFunction aggr, final DoubleFunction f) {
+        final Op[] chain = ops.toArray(new Op[ops.size()]);
+        if (isParallel(write)) {
+            return ConcurrencyUtils.parallelReduce(0, rows, grain(), new DoubleRangeFunction() {
+                public double apply(int first, int last) {
+                    return pass(chain, first, last, write, aggr, f);
+                }
+            }, aggr);
+        }
+        return pass(chain, 0, rows, write, aggr, f);
+    }
+
+    /*
+     * Evaluates the rows [first, last) and returns their aggregate, or NaN if
+     * aggr is null.
+     */
+    private double pass(Op[] chain, int first, int last, boolean write, DoubleDoubleFunction aggr, DoubleFunction f) {
+        double a = Double.NaN;
+        boolean empty = true;
+        for (int r = first; r < last; r++) {
+            ConcurrencyUtils.checkCancelled();
+            for (int c = 0; c < columns; c++) {
+                double v = source.get(r, c);
+                for (int k = 0; k < chain.length; k++) {
+                    Op op = chain[k];
+                    if (op.unary != null) {
+                        v = op.unary.apply(v);
+                    } else {
+                        v = op.binary.apply(v, (op.operand == null) ? v : op.operand.get(r, c));
+                    }
+                }
+                if (write) {
+                    source.set(r, c, v);
+                }
+                if (aggr != null) {
+                    a = empty ? f.apply(v) : aggr.apply(a, f.apply(v));
+                    empty = false;
+                }
+            }
+        }
+        return a;
+    }
+
+    private static final class Op {
+        final DoubleFunction unary;
+
+        final DoubleDoubleFunction binary;
+
+        /*
+         * null if the operand of a binary function is the source itself
+         */
+        final Operand operand;
+
+        Op(DoubleFunction unary, DoubleDoubleFunction binary, Operand operand) {
+            this.unary = unary;
+            this.binary = binary;
+            this.operand = operand;
+        }
+    }
+
+    /*
+     * Cell access to a vector (viewed as a single column) or a matrix; dense
+     * storage is addressed directly.
+     */
+    private static final class Operand {
+        final DoubleMatrix1D vector;
+
+        final DoubleMatrix2D matrix;
+
+        final double[] elements;
+
+        final int zero;
+
+        final int rowStride;
+
+        final int columnStride;
+
+        Operand(DoubleMatrix1D x) {
+            vector = x;
+            matrix = null;
+            if (x instanceof DenseDoubleMatrix1D) {
+                elements = (double[]) x.elements();
+                zero = (int) x.index(0);
+                rowStride = x.stride();
+            } else {
+                elements = null;
+                zero = 0;
+                rowStride = 0;
+            }
+            columnStride = 0;
+        }
+
+        Operand(DoubleMatrix2D A) {
+            vector = null;
+            matrix = A;
+            if (A instanceof DenseDoubleMatrix2D || A instanceof DenseColumnDoubleMatrix2D) {
+                elements = (double[]) A.elements();
+                zero = (int) A.index(0, 0);
+                rowStride = A.rowStride();
+                columnStride = A.columnStride();
+            } else {
+                elements = null;
+                zero = 0;
+                rowStride = 0;
+                columnStride = 0;
+            }
+        }
+
+        double get(int r, int c) {
+            if (elements != null)
+                return elements[zero + r * rowStride + c * columnStride];
+            return (vector != null) ? vector.getQuick(r) : matrix.getQuick(r, c);
+        }
+
+        void set(int r, int c, double v) {
+            if (elements != null) {
+                elements[zero + r * rowStride + c * columnStride] = v;
+            } else if (vector != null) {
+                vector.setQuick(r, v);
+            } else {
+                matrix.setQuick(r, c, v);
+            }
+        }
+    }
+}
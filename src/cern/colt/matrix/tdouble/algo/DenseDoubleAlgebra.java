@@ -12,6 +12,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
+import cern.colt.function.tdouble.DoubleDoubleFunction;
 import cern.colt.list.tdouble.DoubleArrayList;
 import cern.colt.list.tint.IntArrayList;
 import cern.colt.matrix.Norm;
@@ -24,6 +25,7 @@ import cern.colt.matrix.tdouble.algo.decomposition.DenseDoubleEigenvalueDecompos
 import cern.colt.matrix.tdouble.algo.decomposition.DenseDoubleLUDecomposition;
 import cern.colt.matrix.tdouble.algo.decomposition.DenseDoubleQRDecomposition;
 import cern.colt.matrix.tdouble.algo.decomposition.DenseDoubleSingularValueDecomposition;
+import cern.colt.matrix.tdouble.impl.DenseColumnDoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix3D;
@@ -35,7 +37,9 @@ import cern.colt.matrix.tint.impl.DenseIntMatrix1D;
 import cern.colt.matrix.tint.impl.DenseIntMatrix2D;
 import cern.jet.math.tdouble.DoubleFunctions;
 import cern.jet.math.tint.IntFunctions;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
 
 /**
  * Linear algebraic matrix operations operating on dense matrices.
@@ -75,6 +79,17 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
      */
     protected DoubleProperty property;
 
+    /**
+     * The minimal dimension for which {@link #mult(DoubleMatrix2D, DoubleMatrix2D)}
+     * uses the Strassen-Winograd algorithm; 0 if the algorithm is not used.
+     */
+    protected int strassenCutoff = 0;
+
+    /**
+     * Whether the results of the Strassen-Winograd algorithm are checked.
+     */
+    protected boolean strassenCheck = true;
+
     static {
         // don't use new Algebra(Property.DEFAULT.tolerance()), because then
         // property object would be mutable.
@@ -118,7 +133,10 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
      */
 
     public Object clone() {
-        return new DenseDoubleAlgebra(property.tolerance());
+        DenseDoubleAlgebra copy = new DenseDoubleAlgebra(property.tolerance());
+        copy.strassenCutoff = strassenCutoff;
+        copy.strassenCheck = strassenCheck;
+        return copy;
     }
 
     /**
@@ -215,23 +233,27 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
         final DoubleMatrix1D C = new DenseDoubleMatrix1D(size_x * size_y);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (size_x >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, size_x);
-            Future<?>[] futures = new Future[nthreads];
-            int k = size_x / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? size_x : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int i = firstIdx; i < lastIdx; i++) {
-                            C.viewPart(i * size_y, size_y).assign(y, DoubleFunctions.multSecond(x.getQuick(i)));
+            ConcurrencyContext context = ConcurrencyUtils.openContext();
+            try {
+                context.setThreadsBeginN_1D(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, size_x);
+                Future<?>[] futures = new Future[nthreads];
+                int k = size_x / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstIdx = j * k;
+                    final int lastIdx = (j == nthreads - 1) ? size_x : firstIdx + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int i = firstIdx; i < lastIdx; i++) {
+                                C.viewPart(i * size_y, size_y).assign(y, DoubleFunctions.multSecond(x.getQuick(i)));
+                            }
                         }
-                    }
-                });
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } finally {
+                context.close();
             }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
         } else {
             for (int i = 0; i < size_x; i++) {
                 C.viewPart(i * size_y, size_y).assign(y, DoubleFunctions.multSecond(x.getQuick(i)));
@@ -256,26 +278,30 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
             final DoubleMatrix2D C = new DenseDoubleMatrix2D(rows_x * rows_y, columns_x * columns_y);
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
             if ((nthreads > 1) && (X.size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-                ConcurrencyUtils.setThreadsBeginN_1D(Integer.MAX_VALUE);
-                nthreads = Math.min(nthreads, rows_x);
-                Future<?>[] futures = new Future[nthreads];
-                int k = rows_x / nthreads;
-                for (int j = 0; j < nthreads; j++) {
-                    final int firstRow = j * k;
-                    final int lastRow = (j == nthreads - 1) ? rows_x : firstRow + k;
-                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                        public void run() {
-                            for (int r = firstRow; r < lastRow; r++) {
-                                for (int c = 0; c < columns_x; c++) {
-                                    C.viewPart(r * rows_y, c * columns_y, rows_y, columns_y).assign(Y,
-                                            DoubleFunctions.multSecond(X.getQuick(r, c)));
+                ConcurrencyContext context = ConcurrencyUtils.openContext();
+                try {
+                    context.setThreadsBeginN_1D(Integer.MAX_VALUE);
+                    nthreads = Math.min(nthreads, rows_x);
+                    Future<?>[] futures = new Future[nthreads];
+                    int k = rows_x / nthreads;
+                    for (int j = 0; j < nthreads; j++) {
+                        final int firstRow = j * k;
+                        final int lastRow = (j == nthreads - 1) ? rows_x : firstRow + k;
+                        futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                            public void run() {
+                                for (int r = firstRow; r < lastRow; r++) {
+                                    for (int c = 0; c < columns_x; c++) {
+                                        C.viewPart(r * rows_y, c * columns_y, rows_y, columns_y).assign(Y,
+                                                DoubleFunctions.multSecond(X.getQuick(r, c)));
+                                    }
                                 }
                             }
-                        }
-                    });
+                        });
+                    }
+                    ConcurrencyUtils.waitForCompletion(futures);
+                } finally {
+                    context.close();
                 }
-                ConcurrencyUtils.waitForCompletion(futures);
-                ConcurrencyUtils.resetThreadsBeginN();
             } else {
                 for (int r = 0; r < rows_x; r++) {
                     for (int c = 0; c < columns_x; c++) {
@@ -380,11 +406,234 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
      * 
      * @throws IllegalArgumentException
      *             if <tt>B.rows() != A.columns()</tt>.
+     * @see #setStrassenCutoff(int)
      */
     public DoubleMatrix2D mult(DoubleMatrix2D A, DoubleMatrix2D B) {
+        if (strassenCutoff > 0 && isStrassenApplicable(A, B)) {
+            return multStrassen(A, B);
+        }
         return A.zMult(B, null);
     }
 
+    /**
+     * Returns the minimal dimension for which
+     * {@link #mult(DoubleMatrix2D, DoubleMatrix2D)} uses the Strassen-Winograd
+     * algorithm.
+     * 
+     * @return the cutoff, or 0 if the algorithm is not used
+     * @see #setStrassenCutoff(int)
+     */
+    public int getStrassenCutoff() {
+        return strassenCutoff;
+    }
+
+    /**
+     * Enables the Strassen-Winograd algorithm in
+     * {@link #mult(DoubleMatrix2D, DoubleMatrix2D)}. The algorithm replaces 8
+     * block products by 7, so it performs <tt>O(n^2.81)</tt> operations
+     * instead of <tt>O(n^3)</tt>, at the price of additional memory and a
+     * weaker (normwise instead of componentwise) error bound. It is used for
+     * products of <tt>DenseDoubleMatrix2D</tt> and
+     * <tt>DenseColumnDoubleMatrix2D</tt> matrices whose dimensions are all at
+     * least <tt>cutoff</tt>. The recursion stops when a dimension drops below
+     * <tt>cutoff</tt>; the remaining products are computed by
+     * <tt>zMult</tt>. The seven products of each level are computed in
+     * parallel. A cutoff of about 1024 is a reasonable starting point.
+     * 
+     * @param cutoff
+     *            the minimal dimension, or 0 to disable the algorithm
+     * @throws IllegalArgumentException
+     *             if <tt>cutoff &lt; 0</tt>, or if <tt>cutoff &gt; 0</tt> and
+     *             <tt>cutoff &lt; 16</tt>, or if this is <tt>DEFAULT</tt> or
+     *             <tt>ZERO</tt>
+     * @see #setStrassenCheck(boolean)
+     */
+    public void setStrassenCutoff(int cutoff) {
+        if (this == DEFAULT || this == ZERO)
+            throw new IllegalArgumentException("Attempted to modify immutable object.");
+        if (cutoff < 0 || (cutoff > 0 && cutoff < 16))
+            throw new IllegalArgumentException("cutoff must be 0 or greater or equal 16");
+        this.strassenCutoff = cutoff;
+    }
+
+    /**
+     * Returns whether the results of the Strassen-Winograd algorithm are
+     * checked.
+     * 
+     * @return true if the results are checked
+     * @see #setStrassenCheck(boolean)
+     */
+    public boolean isStrassenCheck() {
+        return strassenCheck;
+    }
+
+    /**
+     * Sets whether the results of the Strassen-Winograd algorithm are checked
+     * (enabled by default). The check multiplies <tt>C = A x B</tt> and
+     * <tt>A x (B x x)</tt> by a random vector <tt>x</tt>, which costs
+     * <tt>O(n^2)</tt> operations. If the relative difference, scaled by the
+     * infinity norms of <tt>A</tt>, <tt>B</tt> and <tt>x</tt>, exceeds
+     * <tt>property().tolerance()</tt>, <tt>C</tt> is recomputed by
+     * <tt>zMult</tt>.
+     * 
+     * @param check
+     *            whether the results are checked
+     * @throws IllegalArgumentException
+     *             if this is <tt>DEFAULT</tt> or <tt>ZERO</tt>
+     */
+    public void setStrassenCheck(boolean check) {
+        if (this == DEFAULT || this == ZERO)
+            throw new IllegalArgumentException("Attempted to modify immutable object.");
+        this.strassenCheck = check;
+    }
+
+    private boolean isStrassenApplicable(DoubleMatrix2D A, DoubleMatrix2D B) {
+        if (!(A instanceof DenseDoubleMatrix2D || A instanceof DenseColumnDoubleMatrix2D)
+                || !(B instanceof DenseDoubleMatrix2D || B instanceof DenseColumnDoubleMatrix2D))
+            return false;
+        if (A.columns() != B.rows())
+            return false;
+        return A.rows() >= strassenCutoff && A.columns() >= strassenCutoff && B.columns() >= strassenCutoff;
+    }
+
+    private DoubleMatrix2D multStrassen(DoubleMatrix2D A, DoubleMatrix2D B) {
+        DoubleMatrix2D C = A.like(A.rows(), B.columns());
+        DenseDoubleMatrix2D AA = asRowMajorView(A);
+        DenseDoubleMatrix2D BB = asRowMajorView(B);
+        strassen(AA, BB, asRowMajorView(C), strassenCutoff);
+        if (strassenCheck && !isProductAccurate(A, B, C)) {
+            A.zMult(B, C);
+        }
+        return C;
+    }
+
+    /*
+     * Returns a DenseDoubleMatrix2D sharing the cells of a dense matrix. The
+     * elements of a DenseColumnDoubleMatrix2D are addressed by the same
+     * zero/stride scheme, so only the view object differs.
+     */
+    private static DenseDoubleMatrix2D asRowMajorView(DoubleMatrix2D A) {
+        if (A instanceof DenseDoubleMatrix2D)
+            return (DenseDoubleMatrix2D) A;
+        return new DenseDoubleMatrix2D(A.rows(), A.columns(), (double[]) A.elements(), (int) A.index(0, 0), 0, A
+                .rowStride(), A.columnStride(), true);
+    }
+
+    /*
+     * Freivalds-style check of C = A x B: compares C x x with A x (B x x) for a
+     * random vector x.
+     */
+    private boolean isProductAccurate(DoubleMatrix2D A, DoubleMatrix2D B, DoubleMatrix2D C) {
+        DoubleMatrix1D x = new DenseDoubleMatrix1D(B.columns());
+        x.assign(DoubleFunctions.random());
+        DoubleMatrix1D y = C.zMult(x, null);
+        y.assign(A.zMult(B.zMult(x, null), null), DoubleFunctions.minus);
+        double scale = normInfinity(A) * normInfinity(B) * normInfinity(x);
+        return normInfinity(y) <= property.tolerance() * scale;
+    }
+
+    /*
+     * Computes C = A x B by the Strassen-Winograd algorithm. Odd dimensions are
+     * handled by dynamic peeling: the even-sized leading part is multiplied
+     * recursively and the last row, column and inner index are added by
+     * zMult.
+     */
+    private void strassen(DenseDoubleMatrix2D A, DenseDoubleMatrix2D B, DenseDoubleMatrix2D C, final int cutoff) {
+        final int m = A.rows();
+        final int k = A.columns();
+        final int n = B.columns();
+        if (m < cutoff || k < cutoff || n < cutoff) {
+            A.zMult(B, C);
+            return;
+        }
+        ConcurrencyUtils.checkCancelled();
+        final int m2 = m / 2;
+        final int k2 = k / 2;
+        final int n2 = n / 2;
+
+        final DenseDoubleMatrix2D A11 = (DenseDoubleMatrix2D) A.viewPart(0, 0, m2, k2);
+        final DenseDoubleMatrix2D A12 = (DenseDoubleMatrix2D) A.viewPart(0, k2, m2, k2);
+        final DenseDoubleMatrix2D A21 = (DenseDoubleMatrix2D) A.viewPart(m2, 0, m2, k2);
+        final DenseDoubleMatrix2D A22 = (DenseDoubleMatrix2D) A.viewPart(m2, k2, m2, k2);
+        final DenseDoubleMatrix2D B11 = (DenseDoubleMatrix2D) B.viewPart(0, 0, k2, n2);
+        final DenseDoubleMatrix2D B12 = (DenseDoubleMatrix2D) B.viewPart(0, n2, k2, n2);
+        final DenseDoubleMatrix2D B21 = (DenseDoubleMatrix2D) B.viewPart(k2, 0, k2, n2);
+        final DenseDoubleMatrix2D B22 = (DenseDoubleMatrix2D) B.viewPart(k2, n2, k2, n2);
+
+        final DenseDoubleMatrix2D S1 = combine(A21, A22, DoubleFunctions.plus);
+        final DenseDoubleMatrix2D S2 = combine(S1, A11, DoubleFunctions.minus);
+        final DenseDoubleMatrix2D S3 = combine(A11, A21, DoubleFunctions.minus);
+        final DenseDoubleMatrix2D S4 = combine(A12, S2, DoubleFunctions.minus);
+        final DenseDoubleMatrix2D T1 = combine(B12, B11, DoubleFunctions.minus);
+        final DenseDoubleMatrix2D T2 = combine(B22, T1, DoubleFunctions.minus);
+        final DenseDoubleMatrix2D T3 = combine(B22, B12, DoubleFunctions.minus);
+        final DenseDoubleMatrix2D T4 = combine(T2, B21, DoubleFunctions.minus);
+
+        final DenseDoubleMatrix2D[] P = new DenseDoubleMatrix2D[7];
+        for (int i = 0; i < 7; i++) {
+            P[i] = new DenseDoubleMatrix2D(m2, n2);
+        }
+        ConcurrencyUtils.parallelFor(0, 7, 1, new RangeProcedure() {
+            public void apply(int first, int last) {
+                for (int i = first; i < last; i++) {
+                    switch (i) {
+                    case 0:
+                        strassen(A11, B11, P[0], cutoff);
+                        break;
+                    case 1:
+                        strassen(A12, B21, P[1], cutoff);
+                        break;
+                    case 2:
+                        strassen(S4, B22, P[2], cutoff);
+                        break;
+                    case 3:
+                        strassen(A22, T4, P[3], cutoff);
+                        break;
+                    case 4:
+                        strassen(S1, T1, P[4], cutoff);
+                        break;
+                    case 5:
+                        strassen(S2, T2, P[5], cutoff);
+                        break;
+                    default:
+                        strassen(S3, T3, P[6], cutoff);
+                        break;
+                    }
+                }
+            }
+        });
+
+        // C11 = P1 + P2, C12 = U4 + P3, C21 = U3 - P4, C22 = U3 + P5,
+        // where U2 = P1 + P6, U3 = U2 + P7, U4 = U2 + P5
+        C.viewPart(0, 0, m2, n2).assign(P[0]).assign(P[1], DoubleFunctions.plus);
+        DenseDoubleMatrix2D U2 = P[5];
+        U2.assign(P[0], DoubleFunctions.plus);
+        DenseDoubleMatrix2D U3 = P[6];
+        U3.assign(U2, DoubleFunctions.plus);
+        DenseDoubleMatrix2D U4 = U2;
+        U4.assign(P[4], DoubleFunctions.plus);
+        C.viewPart(0, n2, m2, n2).assign(U4).assign(P[2], DoubleFunctions.plus);
+        C.viewPart(m2, 0, m2, n2).assign(U3).assign(P[3], DoubleFunctions.minus);
+        C.viewPart(m2, n2, m2, n2).assign(U3).assign(P[4], DoubleFunctions.plus);
+
+        if (k > 2 * k2) {
+            A.viewPart(0, 2 * k2, 2 * m2, 1).zMult(B.viewPart(2 * k2, 0, 1, 2 * n2), C.viewPart(0, 0, 2 * m2, 2 * n2),
+                    1, 1, false, false);
+        }
+        if (n > 2 * n2) {
+            A.zMult(B.viewPart(0, 2 * n2, k, 1), C.viewPart(0, 2 * n2, m, 1));
+        }
+        if (m > 2 * m2) {
+            A.viewPart(2 * m2, 0, 1, k).zMult(B.viewPart(0, 0, k, 2 * n2), C.viewPart(2 * m2, 0, 1, 2 * n2));
+        }
+    }
+
+    private static DenseDoubleMatrix2D combine(DoubleMatrix2D x, DoubleMatrix2D y, DoubleDoubleFunction f) {
+        DenseDoubleMatrix2D z = new DenseDoubleMatrix2D(x.rows(), x.columns());
+        z.assign(x).assign(y, f);
+        return z;
+    }
+
     /**
      * Outer product of two vectors; Sets <tt>A[i,j] = x[i] * y[j]</tt>.
      * 
@@ -414,24 +663,27 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
 
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (rows >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            AA.viewRow(r).assign(y);
+            ConcurrencyContext context = ConcurrencyUtils.openContext();
+            try {
+                context.setThreadsBeginN_1D(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                AA.viewRow(r).assign(y);
+                            }
                         }
-                    }
-                });
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } finally {
+                context.close();
             }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
         } else {
             for (int r = rows; --r >= 0;) {
                 AA.viewRow(r).assign(y);
@@ -439,24 +691,27 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
         }
 
         if ((nthreads > 1) && (columns >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            AA.viewColumn(c).assign(x, DoubleFunctions.mult);
+            ConcurrencyContext context = ConcurrencyUtils.openContext();
+            try {
+                context.setThreadsBeginN_1D(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                AA.viewColumn(c).assign(x, DoubleFunctions.mult);
+                            }
                         }
-                    }
-                });
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } finally {
+                context.close();
             }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
         } else {
             for (int c = columns; --c >= 0;) {
                 AA.viewColumn(c).assign(x, DoubleFunctions.mult);
@@ -505,8 +760,9 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
             final int columns = X.columns();
             double sum = 0;
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
-            if ((nthreads > 1) && (rows * columns >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-                nthreads = Math.min(nthreads, rows);
+            if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                    && (rows * columns >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = ConcurrencyUtils.getNumberOfParts(rows);
                 Future<?>[] futures = new Future[nthreads];
                 Double result;
                 int k = rows / nthreads;
@@ -533,9 +789,9 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
                         sum += result;
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 double elem;
@@ -551,8 +807,9 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
             final double[] elems = ((DenseDoubleMatrix2D) X).elements();
             double sum = 0;
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
-            if ((nthreads > 1) && (elems.length >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-                nthreads = Math.min(nthreads, elems.length);
+            if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                    && (elems.length >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = ConcurrencyUtils.getNumberOfParts(elems.length);
                 Future<?>[] futures = new Future[nthreads];
                 Double result;
                 int k = elems.length / nthreads;
@@ -575,9 +832,9 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
                         sum += result;
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 for (int l = 0; l < elems.length; l++) {
@@ -600,8 +857,9 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
             final int columns = X.columns();
             double sum = 0;
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
-            if ((nthreads > 1) && (rows * columns >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-                nthreads = Math.min(nthreads, slices);
+            if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                    && (rows * columns >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = ConcurrencyUtils.getNumberOfParts(slices);
                 Future<?>[] futures = new Future[nthreads];
                 Double result;
                 int k = slices / nthreads;
@@ -630,9 +888,9 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
                         sum += result;
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 double elem;
@@ -650,8 +908,9 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
             final double[] elems = ((DenseDoubleMatrix3D) X).elements();
             double sum = 0;
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
-            if ((nthreads > 1) && (elems.length >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-                nthreads = Math.min(nthreads, elems.length);
+            if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                    && (elems.length >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = ConcurrencyUtils.getNumberOfParts(elems.length);
                 Future<?>[] futures = new Future[nthreads];
                 Double result;
                 int k = elems.length / nthreads;
@@ -674,9 +933,9 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
                         sum += result;
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 for (int l = 0; l < elems.length; l++) {
@@ -1597,7 +1856,8 @@ public class DenseDoubleAlgebra extends cern.colt.PersistentObject {
      * constant time. The returned view is backed by this matrix, so changes in
      * the returned view are reflected in this matrix, and vice-versa. Use
      * idioms like <tt>result = transpose(A).copy()</tt> to generate an
-     * independent matrix.
+     * independent matrix. A square <tt>DenseDoubleMatrix2D</tt> can also be
+     * transposed in place with <tt>transposeInPlace()</tt>.
      * <p>
      * <b>Example:</b>
      * <table border="0">
@@ -309,9 +309,9 @@ public class DoubleProperty extends cern.colt.PersistentObject {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -387,9 +387,9 @@ public class DoubleProperty extends cern.colt.PersistentObject {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -463,9 +463,9 @@ public class DoubleProperty extends cern.colt.PersistentObject {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -546,9 +546,9 @@ public class DoubleProperty extends cern.colt.PersistentObject {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -627,9 +627,9 @@ public class DoubleProperty extends cern.colt.PersistentObject {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -715,9 +715,9 @@ public class DoubleProperty extends cern.colt.PersistentObject {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
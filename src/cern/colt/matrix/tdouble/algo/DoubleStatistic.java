@@ -302,6 +302,10 @@ public class DoubleStatistic extends Object {
      * <A HREF="http://www.cquest.utoronto.ca/geog/ggr270y/notes/not05efg.html">
      * math definition</A>. Compares two column vectors at a time. Use dice
      * views to compare two row vectors at a time.
+     * The columns are centered before the products are summed, so the result
+     * does not suffer from cancellation when the means are large compared to
+     * the deviations. The sums are computed with the mode of
+     * {@link cern.jet.math.tdouble.DoubleSummation#getMode()}.
      * 
      * @param matrix
      *            any matrix; a column holds the values of a given variable.
@@ -312,17 +316,16 @@ public class DoubleStatistic extends Object {
         int columns = matrix.columns();
         DoubleMatrix2D covariance = new cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D(columns, columns);
 
-        double[] sums = new double[columns];
         DoubleMatrix1D[] cols = new DoubleMatrix1D[columns];
         for (int i = columns; --i >= 0;) {
-            cols[i] = matrix.viewColumn(i);
-            sums[i] = cols[i].zSum();
+            cols[i] = new cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D(rows).assign(matrix.viewColumn(i));
+            double mean = cols[i].zSum() / rows;
+            cols[i].assign(DoubleFunctions.minus(mean));
         }
 
         for (int i = columns; --i >= 0;) {
             for (int j = i + 1; --j >= 0;) {
-                double sumOfProducts = cols[i].zDotProduct(cols[j]);
-                double cov = (sumOfProducts - sums[i] * sums[j] / rows) / rows;
+                double cov = cols[i].zDotProduct(cols[j]) / rows;
                 covariance.setQuick(i, j, cov);
                 covariance.setQuick(j, i, cov); // symmetric
             }
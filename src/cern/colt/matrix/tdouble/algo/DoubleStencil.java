@@ -8,10 +8,18 @@ It is provided "as is" without expressed or implied warranty.
  */
 package cern.colt.matrix.tdouble.algo;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import cern.colt.function.tdouble.Double27Function;
+import cern.colt.function.tdouble.Double9Function;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.DoubleMatrix2DProcedure;
 import cern.colt.matrix.tdouble.DoubleMatrix3D;
 import cern.colt.matrix.tdouble.DoubleMatrix3DProcedure;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix3D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
 
 /**
  * Stencil operations. For efficient finite difference operations. Applies a
@@ -21,6 +29,14 @@ import cern.colt.matrix.tdouble.DoubleMatrix3DProcedure;
  * shall be terminated, and how many iterations shall pass between convergence
  * checks. Always does two iterations at a time for efficiency. These class is
  * for convencience and efficiency.
+ * <p>
+ * Linear stencils can be given as arrays of coefficients instead of
+ * functions. On dense matrices they are computed by a parallel engine: the
+ * matrix is split into slabs of slices (rows in 2-d) that are processed by
+ * different threads, and each slab is swept once for up to four iterations,
+ * tile by tile, keeping the intermediate iterations of a tile in a few small
+ * buffers that stay in the cache. This divides the memory traffic of an
+ * iteration accordingly.
  * 
  * @author wolfgang.hoschek@cern.ch
  * @version 1.0, 01/02/2000
@@ -120,4 +136,470 @@ public class DoubleStencil extends Object {
         }
         return i;
     }
+
+    /**
+     * 27 point stencil operation with a linear function. Equivalent to
+     * {@link #stencil27(DoubleMatrix3D, Double27Function, int, DoubleMatrix3DProcedure, int)}
+     * with a function returning the sum of the products of the coefficients
+     * and the cells of the window, but much faster on a
+     * <tt>DenseDoubleMatrix3D</tt>.
+     * 
+     * @param A
+     *            the matrix to operate on.
+     * @param coefficients
+     *            the 27 coefficients, in the order of the arguments of
+     *            {@link Double27Function#apply}, i.e.
+     *            <tt>coefficients[9 * slice + 3 * row + column]</tt> is the
+     *            coefficient of the cell at the given offsets in the window.
+     * @param maxIterations
+     *            the maximum number of times the stencil shall be applied to
+     *            the matrix. Should be a multiple of 2 because two iterations
+     *            are always done in one atomic step.
+     * @param hasConverged
+     *            Convergence condition; will return before maxIterations are
+     *            done when <tt>hasConverged.apply(A)==true</tt>. Set this
+     *            parameter to <tt>null</tt> to indicate that no convergence
+     *            checks shall be made.
+     * @param convergenceIterations
+     *            the number of iterations to pass between each convergence
+     *            check.
+     * @return the number of iterations actually executed.
+     * @throws IllegalArgumentException
+     *             if <tt>coefficients.length != 27</tt>.
+     */
+    public static int stencil27(DoubleMatrix3D A, final double[] coefficients, int maxIterations,
+            DoubleMatrix3DProcedure hasConverged, int convergenceIterations) {
+        if (coefficients.length != 27)
+            throw new IllegalArgumentException("coefficients.length != 27");
+        if (!(A instanceof DenseDoubleMatrix3D)) {
+            return stencil27(A, new Double27Function() {
+                public double apply(double a000, double a001, double a002, double a010, double a011, double a012,
+                        double a020, double a021, double a022, double a100, double a101, double a102, double a110,
+                        double a111, double a112, double a120, double a121, double a122, double a200, double a201,
+                        double a202, double a210, double a211, double a212, double a220, double a221, double a222) {
+                    double[] c = coefficients;
+                    return c[0] * a000 + c[1] * a001 + c[2] * a002 + c[3] * a010 + c[4] * a011 + c[5] * a012 + c[6]
+                            * a020 + c[7] * a021 + c[8] * a022 + c[9] * a100 + c[10] * a101 + c[11] * a102 + c[12]
+                            * a110 + c[13] * a111 + c[14] * a112 + c[15] * a120 + c[16] * a121 + c[17] * a122
+                            + c[18] * a200 + c[19] * a201 + c[20] * a202 + c[21] * a210 + c[22] * a211 + c[23]
+                            * a212 + c[24] * a220 + c[25] * a221 + c[26] * a222;
+                }
+            }, maxIterations, hasConverged, convergenceIterations);
+        }
+        DenseDoubleMatrix3D X = (DenseDoubleMatrix3D) A;
+        DenseDoubleMatrix3D Y = (DenseDoubleMatrix3D) A.copy();
+        Sweep sweep = new Sweep27(coefficients.clone(), X.slices(), X.rows(), X.columns());
+        if (convergenceIterations <= 1)
+            convergenceIterations = 2;
+        if (convergenceIterations % 2 != 0)
+            convergenceIterations++; // odd -> make it even
+
+        int i = 0;
+        while (i < maxIterations) {
+            int n = (hasConverged == null) ? maxIterations - i : Math.min(convergenceIterations, maxIterations - i);
+            n += n % 2;
+            sweep.iterate(X.elements(), (int) X.index(0, 0, 0), X.sliceStride(), X.rowStride(), X.columnStride(), Y
+                    .elements(), (int) Y.index(0, 0, 0), Y.sliceStride(), Y.rowStride(), Y.columnStride(), n);
+            i += n;
+            if (i % convergenceIterations == 0 && hasConverged != null) {
+                if (hasConverged.apply(A))
+                    return i;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 9 point stencil operation with a linear function. Equivalent to
+     * {@link #stencil9(DoubleMatrix2D, Double9Function, int, DoubleMatrix2DProcedure, int)}
+     * with a function returning the sum of the products of the coefficients
+     * and the cells of the window, but much faster on a
+     * <tt>DenseDoubleMatrix2D</tt>.
+     * 
+     * @param A
+     *            the matrix to operate on.
+     * @param coefficients
+     *            the 9 coefficients, in the order of the arguments of
+     *            {@link Double9Function#apply}, i.e.
+     *            <tt>coefficients[3 * row + column]</tt> is the coefficient of
+     *            the cell at the given offsets in the window.
+     * @param maxIterations
+     *            the maximum number of times the stencil shall be applied to
+     *            the matrix. Should be a multiple of 2 because two iterations
+     *            are always done in one atomic step.
+     * @param hasConverged
+     *            Convergence condition; will return before maxIterations are
+     *            done when <tt>hasConverged.apply(A)==true</tt>. Set this
+     *            parameter to <tt>null</tt> to indicate that no convergence
+     *            checks shall be made.
+     * @param convergenceIterations
+     *            the number of iterations to pass between each convergence
+     *            check.
+     * @return the number of iterations actually executed.
+     * @throws IllegalArgumentException
+     *             if <tt>coefficients.length != 9</tt>.
+     */
+    public static int stencil9(DoubleMatrix2D A, final double[] coefficients, int maxIterations,
+            DoubleMatrix2DProcedure hasConverged, int convergenceIterations) {
+        if (coefficients.length != 9)
+            throw new IllegalArgumentException("coefficients.length != 9");
+        if (!(A instanceof DenseDoubleMatrix2D)) {
+            return stencil9(A, new Double9Function() {
+                public double apply(double a00, double a01, double a02, double a10, double a11, double a12,
+                        double a20, double a21, double a22) {
+                    double[] c = coefficients;
+                    return c[0] * a00 + c[1] * a01 + c[2] * a02 + c[3] * a10 + c[4] * a11 + c[5] * a12 + c[6] * a20
+                            + c[7] * a21 + c[8] * a22;
+                }
+            }, maxIterations, hasConverged, convergenceIterations);
+        }
+        DenseDoubleMatrix2D X = (DenseDoubleMatrix2D) A;
+        DenseDoubleMatrix2D Y = (DenseDoubleMatrix2D) A.copy();
+        Sweep sweep = new Sweep9(coefficients.clone(), X.rows(), X.columns());
+        if (convergenceIterations <= 1)
+            convergenceIterations = 2;
+        if (convergenceIterations % 2 != 0)
+            convergenceIterations++; // odd -> make it even
+
+        int i = 0;
+        while (i < maxIterations) {
+            int n = (hasConverged == null) ? maxIterations - i : Math.min(convergenceIterations, maxIterations - i);
+            n += n % 2;
+            sweep.iterate(X.elements(), (int) X.index(0, 0), X.rowStride(), 0, X.columnStride(), Y.elements(),
+                    (int) Y.index(0, 0), Y.rowStride(), 0, Y.columnStride(), n);
+            i += n;
+            if (i % convergenceIterations == 0 && hasConverged != null) {
+                if (hasConverged.apply(A))
+                    return i;
+            }
+        }
+        return i;
+    }
+
+    /*
+     * Maximal number of iterations fused into one pass over the matrix.
+     */
+    private static final int ITERATIONS_PER_PASS = 4;
+
+    /*
+     * Maximal number of rows and of cells of the tiles in which a plane is
+     * swept.
+     */
+    private static final int TILE_ROWS = 32;
+
+    private static final int TILE_SIZE = 4096;
+
+    /**
+     * Applies a linear stencil to a matrix that is swept plane by plane (a
+     * plane is a slice of a 3-d matrix or a row of a 2-d matrix). The cells of
+     * the first and the last plane, and the border cells of the other planes,
+     * are not changed.
+     */
+    private static abstract class Sweep {
+        final double[] c;
+
+        final int planes;
+
+        final int rows;
+
+        final int columns;
+
+        final int tileRows;
+
+        final int tileColumns;
+
+        /*
+         * Rows and columns of the halo of the intermediate iterations around a
+         * tile; there is no halo if a tile spans the whole plane.
+         */
+        final int haloRows;
+
+        final int haloColumns;
+
+        final int bufferRows;
+
+        final int bufferColumns;
+
+        /*
+         * Rings of intermediate planes, reused by the slabs of all passes.
+         */
+        private final ConcurrentLinkedQueue<double[][]> rings = new ConcurrentLinkedQueue<double[][]>();
+
+        Sweep(double[] c, int planes, int rows, int columns) {
+            this.c = c;
+            this.planes = planes;
+            this.rows = rows;
+            this.columns = columns;
+            this.tileRows = Math.min(rows, TILE_ROWS);
+            this.tileColumns = Math.min(columns, Math.max(TILE_SIZE / tileRows, 4 * ITERATIONS_PER_PASS));
+            this.haloRows = (tileRows < rows) ? ITERATIONS_PER_PASS - 1 : 0;
+            this.haloColumns = (tileColumns < columns) ? ITERATIONS_PER_PASS - 1 : 0;
+            this.bufferRows = tileRows + 2 * haloRows;
+            this.bufferColumns = tileColumns + 2 * haloColumns;
+        }
+
+        /**
+         * Stores the stencil of the cells <tt>[r0, r1) x [c0, c1)</tt> of the
+         * plane at <tt>i1</tt> in <tt>b</tt>; <tt>i0</tt> and <tt>i2</tt> are
+         * the indexes of the neighboring planes. All indexes are those of the
+         * cell <tt>(0, 0)</tt> of a plane. If <tt>border</tt> is false, the
+         * border cells of <tt>b</tt> are not written.
+         */
+        abstract void plane(double[] a, int i0, int i1, int i2, int ars, int acs, double[] b, int ib, int brs,
+                int bcs, int r0, int r1, int c0, int c1, boolean border);
+
+        /**
+         * Returns whether the stencil has interior cells.
+         */
+        abstract boolean hasInterior();
+
+        /**
+         * Returns the minimal number of cells for which threads are used.
+         */
+        abstract int getThreadsBeginN();
+
+        /**
+         * Applies the stencil <tt>n</tt> times, an even number, alternating
+         * between <tt>x</tt> and <tt>y</tt>. The result is in <tt>x</tt>, the
+         * border cells of <tt>y</tt> must be equal to those of <tt>x</tt>.
+         */
+        void iterate(double[] x, int xz, int xps, int xrs, int xcs, double[] y, int yz, int yps, int yrs, int ycs,
+                int n) {
+            if (!hasInterior())
+                return;
+            // an even number of passes, so that the result ends up in x
+            int passes = 2 * ((n + 2 * ITERATIONS_PER_PASS - 1) / (2 * ITERATIONS_PER_PASS));
+            for (int p = 0; p < passes; p++) {
+                int t = (n * (p + 1)) / passes - (n * p) / passes;
+                if (p % 2 == 0) {
+                    pass(x, xz, xps, xrs, xcs, y, yz, yps, yrs, ycs, t);
+                } else {
+                    pass(y, yz, yps, yrs, ycs, x, xz, xps, xrs, xcs, t);
+                }
+            }
+        }
+
+        private void pass(final double[] x, final int xz, final int xps, final int xrs, final int xcs,
+                final double[] y, final int yz, final int yps, final int yrs, final int ycs, final int t) {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && ((long) planes * rows * columns >= getThreadsBeginN())) {
+                // the halo of a slab costs t * (t - 1) extra planes
+                int grain = ConcurrencyUtils.getGrainSize(planes - 2, 4 * t);
+                ConcurrencyUtils.parallelFor(1, planes - 1, grain, new RangeProcedure() {
+                    public void apply(int first, int last) {
+                        slab(x, xz, xps, xrs, xcs, y, yz, yps, yrs, ycs, t, first, last);
+                    }
+                });
+            } else {
+                slab(x, xz, xps, xrs, xcs, y, yz, yps, yrs, ycs, t, 1, planes - 1);
+            }
+        }
+
+        /*
+         * Computes the planes first, ..., last - 1 of iteration t, one tile of
+         * the planes at a time.
+         */
+        private void slab(double[] x, int xz, int xps, int xrs, int xcs, double[] y, int yz, int yps, int yrs,
+                int ycs, int t, int first, int last) {
+            double[][] ring = rings.poll();
+            if (ring == null) {
+                ring = new double[ITERATIONS_PER_PASS - 1][3 * bufferRows * bufferColumns];
+            }
+            for (int r0 = 0; r0 < rows; r0 += tileRows) {
+                for (int c0 = 0; c0 < columns; c0 += tileColumns) {
+                    tile(x, xz, xps, xrs, xcs, y, yz, yps, yrs, ycs, t, first, last, ring, r0, Math.min(rows, r0
+                            + tileRows), c0, Math.min(columns, c0 + tileColumns));
+                }
+            }
+            rings.offer(ring);
+        }
+
+        /*
+         * Computes the cells [r0, r1) x [c0, c1) of the planes first, ...,
+         * last - 1 of iteration t. Iteration s < t is needed for the planes
+         * first - (t - s), ..., last - 1 + (t - s) and, within them, for a
+         * halo of t - s cells around the tile; its planes are computed right
+         * after the planes they depend on and kept in a ring of three planes.
+         */
+        private void tile(double[] x, int xz, int xps, int xrs, int xcs, double[] y, int yz, int yps, int yrs,
+                int ycs, int t, int first, int last, double[][] ring, int r0, int r1, int c0, int c1) {
+            int size = bufferRows * bufferColumns;
+            // the index of the cell (0, 0) of the first plane of a ring
+            int origin = (haloRows - r0) * bufferColumns + (haloColumns - c0);
+            for (int m = Math.max(0, first - t + 1); m < last + t - 1; m++) {
+                for (int s = 1; s <= t; s++) {
+                    int k = m - (s - 1);
+                    if (k < Math.max(0, first - (t - s)) || k >= Math.min(planes, last + (t - s))) {
+                        continue;
+                    }
+                    int ra = Math.max(0, r0 - (t - s));
+                    int rb = Math.min(rows, r1 + (t - s));
+                    int ca = Math.max(0, c0 - (t - s));
+                    int cb = Math.min(columns, c1 + (t - s));
+                    int ib = origin + (k % 3) * size;
+                    if (s == t) {
+                        // the last iteration is stored in y
+                        if (s == 1) {
+                            plane(x, xz + (k - 1) * xps, xz + k * xps, xz + (k + 1) * xps, xrs, xcs, y, yz + k * yps,
+                                    yrs, ycs, r0, r1, c0, c1, false);
+                        } else {
+                            plane(ring[s - 2], origin + ((k + 2) % 3) * size, ib, origin + ((k + 1) % 3) * size,
+                                    bufferColumns, 1, y, yz + k * yps, yrs, ycs, r0, r1, c0, c1, false);
+                        }
+                    } else if (k == 0 || k == planes - 1) {
+                        // the first and the last plane never change
+                        double[] b = ring[s - 1];
+                        for (int r = ra; r < rb; r++) {
+                            int i = xz + k * xps + r * xrs + ca * xcs;
+                            int j = ib + r * bufferColumns + ca;
+                            for (int col = ca; col < cb; col++) {
+                                b[j++] = x[i];
+                                i += xcs;
+                            }
+                        }
+                    } else if (s == 1) {
+                        plane(x, xz + (k - 1) * xps, xz + k * xps, xz + (k + 1) * xps, xrs, xcs, ring[0], ib,
+                                bufferColumns, 1, ra, rb, ca, cb, true);
+                    } else {
+                        plane(ring[s - 2], origin + ((k + 2) % 3) * size, ib, origin + ((k + 1) % 3) * size,
+                                bufferColumns, 1, ring[s - 1], ib, bufferColumns, 1, ra, rb, ca, cb, true);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Sweep27 extends Sweep {
+
+        Sweep27(double[] c, int slices, int rows, int columns) {
+            super(c, slices, rows, columns);
+        }
+
+        boolean hasInterior() {
+            return planes >= 3 && rows >= 3 && columns >= 3;
+        }
+
+        int getThreadsBeginN() {
+            return ConcurrencyUtils.getThreadsBeginN_3D();
+        }
+
+        void plane(double[] a, int i0, int i1, int i2, int ars, int acs, double[] b, int ib, int brs, int bcs,
+                int r0, int r1, int col0, int col1, boolean border) {
+            double c0 = c[0], c1 = c[1], c2 = c[2], c3 = c[3], c4 = c[4], c5 = c[5], c6 = c[6], c7 = c[7], c8 = c[8];
+            double c9 = c[9], c10 = c[10], c11 = c[11], c12 = c[12], c13 = c[13], c14 = c[14], c15 = c[15];
+            double c16 = c[16], c17 = c[17], c18 = c[18], c19 = c[19], c20 = c[20], c21 = c[21], c22 = c[22];
+            double c23 = c[23], c24 = c[24], c25 = c[25], c26 = c[26];
+            int first = Math.max(col0, 1);
+            int last = Math.min(col1, columns - 1);
+            for (int r = Math.max(r0, 1); r < Math.min(r1, rows - 1); r++) {
+                int p0 = i0 + (r - 1) * ars + (first - 1) * acs;
+                int p1 = p0 + ars;
+                int p2 = p1 + ars;
+                int q0 = i1 + (r - 1) * ars + (first - 1) * acs;
+                int q1 = q0 + ars;
+                int q2 = q1 + ars;
+                int u0 = i2 + (r - 1) * ars + (first - 1) * acs;
+                int u1 = u0 + ars;
+                int u2 = u1 + ars;
+                // the first two columns of the window; in each step only the
+                // third column is read
+                double a000 = a[p0], a010 = a[p1], a020 = a[p2];
+                double a100 = a[q0], a110 = a[q1], a120 = a[q2];
+                double a200 = a[u0], a210 = a[u1], a220 = a[u2];
+                double a001 = a[p0 += acs], a011 = a[p1 += acs], a021 = a[p2 += acs];
+                double a101 = a[q0 += acs], a111 = a[q1 += acs], a121 = a[q2 += acs];
+                double a201 = a[u0 += acs], a211 = a[u1 += acs], a221 = a[u2 += acs];
+                int o = ib + r * brs + first * bcs;
+                for (int col = first; col < last; col++) {
+                    double a002 = a[p0 += acs], a012 = a[p1 += acs], a022 = a[p2 += acs];
+                    double a102 = a[q0 += acs], a112 = a[q1 += acs], a122 = a[q2 += acs];
+                    double a202 = a[u0 += acs], a212 = a[u1 += acs], a222 = a[u2 += acs];
+                    b[o] = c0 * a000 + c1 * a001 + c2 * a002 + c3 * a010 + c4 * a011 + c5 * a012 + c6 * a020 + c7
+                            * a021 + c8 * a022 + c9 * a100 + c10 * a101 + c11 * a102 + c12 * a110 + c13 * a111 + c14
+                            * a112 + c15 * a120 + c16 * a121 + c17 * a122 + c18 * a200 + c19 * a201 + c20 * a202
+                            + c21 * a210 + c22 * a211 + c23 * a212 + c24 * a220 + c25 * a221 + c26 * a222;
+                    o += bcs;
+                    a000 = a001;
+                    a001 = a002;
+                    a010 = a011;
+                    a011 = a012;
+                    a020 = a021;
+                    a021 = a022;
+                    a100 = a101;
+                    a101 = a102;
+                    a110 = a111;
+                    a111 = a112;
+                    a120 = a121;
+                    a121 = a122;
+                    a200 = a201;
+                    a201 = a202;
+                    a210 = a211;
+                    a211 = a212;
+                    a220 = a221;
+                    a221 = a222;
+                }
+            }
+            if (border) {
+                int end = columns - 1;
+                for (int r = r0; r < r1; r++) {
+                    if (r == 0 || r == rows - 1) {
+                        for (int col = col0; col < col1; col++) {
+                            b[ib + r * brs + col * bcs] = a[i1 + r * ars + col * acs];
+                        }
+                    } else {
+                        if (col0 == 0) {
+                            b[ib + r * brs] = a[i1 + r * ars];
+                        }
+                        if (col1 == columns) {
+                            b[ib + r * brs + end * bcs] = a[i1 + r * ars + end * acs];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Sweep9 extends Sweep {
+
+        Sweep9(double[] c, int rows, int columns) {
+            super(c, rows, 1, columns);
+        }
+
+        boolean hasInterior() {
+            return planes >= 3 && columns >= 3;
+        }
+
+        int getThreadsBeginN() {
+            return ConcurrencyUtils.getThreadsBeginN_2D();
+        }
+
+        void plane(double[] a, int i0, int i1, int i2, int ars, int acs, double[] b, int ib, int brs, int bcs,
+                int r0, int r1, int col0, int col1, boolean border) {
+            double c0 = c[0], c1 = c[1], c2 = c[2], c3 = c[3], c4 = c[4], c5 = c[5], c6 = c[6], c7 = c[7], c8 = c[8];
+            int acs2 = 2 * acs;
+            int first = Math.max(col0, 1);
+            int last = Math.min(col1, columns - 1);
+            int p0 = i0 + (first - 1) * acs;
+            int p1 = i1 + (first - 1) * acs;
+            int p2 = i2 + (first - 1) * acs;
+            int o = ib + first * bcs;
+            for (int col = first; col < last; col++) {
+                b[o] = c0 * a[p0] + c1 * a[p0 + acs] + c2 * a[p0 + acs2] + c3 * a[p1] + c4 * a[p1 + acs] + c5
+                        * a[p1 + acs2] + c6 * a[p2] + c7 * a[p2 + acs] + c8 * a[p2 + acs2];
+                p0 += acs;
+                p1 += acs;
+                p2 += acs;
+                o += bcs;
+            }
+            if (border) {
+                int end = columns - 1;
+                if (col0 == 0) {
+                    b[ib] = a[i1];
+                }
+                if (col1 == columns) {
+                    b[ib + end * bcs] = a[i1 + end * acs];
+                }
+            }
+        }
+    }
 }
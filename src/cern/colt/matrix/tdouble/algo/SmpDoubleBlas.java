@@ -8,12 +8,11 @@ It is provided "as is" without expressed or implied warranty.
  */
 package cern.colt.matrix.tdouble.algo;
 
-import java.util.concurrent.Future;
-
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.jet.math.tdouble.DoubleFunctions;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
 
 /**
  * Parallel implementation of the Basic Linear Algebra System for symmetric
@@ -176,29 +175,22 @@ public class SmpDoubleBlas implements DoubleBlas {
         final DoubleMatrix1D tmp = x.like();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, size);
-            Future<?>[] futures = new Future[nthreads];
-            int k = size / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int i = firstIdx; i < lastIdx; i++) {
-                            double sum = 0;
-                            for (int j = 0; j <= i; j++) {
-                                sum += A_loc.getQuick(i, j) * x.getQuick(j);
-                            }
-                            for (int j = i + 1; j < lastIdx; j++) {
-                                sum += A_loc.getQuick(j, i) * x.getQuick(j);
-                            }
-                            tmp.setQuick(i, alpha * sum + beta * y.getQuick(i));
+            // rows have different lengths, fork/join balances the load
+            final int size_loc = size;
+            ConcurrencyUtils.parallelFor(0, size, ConcurrencyUtils.getGrainSize(size, 16), new RangeProcedure() {
+                public void apply(int firstIdx, int lastIdx) {
+                    for (int i = firstIdx; i < lastIdx; i++) {
+                        double sum = 0;
+                        for (int j = 0; j <= i; j++) {
+                            sum += A_loc.getQuick(i, j) * x.getQuick(j);
+                        }
+                        for (int j = i + 1; j < size_loc; j++) {
+                            sum += A_loc.getQuick(j, i) * x.getQuick(j);
                         }
+                        tmp.setQuick(i, alpha * sum + beta * y.getQuick(i));
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
+                }
+            });
         } else {
             for (int i = 0; i < size; i++) {
                 double sum = 0;
@@ -243,34 +235,27 @@ public class SmpDoubleBlas implements DoubleBlas {
         }
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, size);
-            Future<?>[] futures = new Future[nthreads];
-            int k = size / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int i = firstIdx; i < lastIdx; i++) {
-                            double sum = 0;
-                            if (!isUpperTriangular_loc) {
-                                for (int j = 0; j < i; j++) {
-                                    sum += A_loc.getQuick(i, j) * x.getQuick(j);
-                                }
-                                sum += y.getQuick(i) * x.getQuick(i);
-                            } else {
-                                sum += y.getQuick(i) * x.getQuick(i);
-                                for (int j = i + 1; j < lastIdx; j++) {
-                                    sum += A_loc.getQuick(i, j) * x.getQuick(j);
-                                }
+            // rows have different lengths, fork/join balances the load
+            final int size_loc = size;
+            ConcurrencyUtils.parallelFor(0, size, ConcurrencyUtils.getGrainSize(size, 16), new RangeProcedure() {
+                public void apply(int firstIdx, int lastIdx) {
+                    for (int i = firstIdx; i < lastIdx; i++) {
+                        double sum = 0;
+                        if (!isUpperTriangular_loc) {
+                            for (int j = 0; j < i; j++) {
+                                sum += A_loc.getQuick(i, j) * x.getQuick(j);
+                            }
+                            sum += y.getQuick(i) * x.getQuick(i);
+                        } else {
+                            sum += y.getQuick(i) * x.getQuick(i);
+                            for (int j = i + 1; j < size_loc; j++) {
+                                sum += A_loc.getQuick(i, j) * x.getQuick(j);
                             }
-                            b.setQuick(i, sum);
                         }
+                        b.setQuick(i, sum);
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
+                }
+            });
         } else {
             for (int i = 0; i < size; i++) {
                 double sum = 0;
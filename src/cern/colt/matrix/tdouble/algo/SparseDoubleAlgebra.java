@@ -144,6 +144,56 @@ public class SparseDoubleAlgebra {
         return new SparseDoubleLUDecomposition(matrix, order, true);
     }
 
+    /**
+     * Linear algebraic matrix-matrix multiplication; <tt>C = A x B</tt>. Both
+     * matrices must be sparse; the result has the format of <tt>A</tt>, and
+     * <tt>B</tt> is converted to it if necessary. The product is computed with
+     * a row-parallel sparse-sparse algorithm and is never densified.
+     * 
+     * @param A
+     *            the first source matrix.
+     * @param B
+     *            the second source matrix.
+     * @return <tt>A x B</tt>; a new sparse matrix.
+     * @throws IllegalArgumentException
+     *             if <tt>B.rows() != A.columns()</tt> or if one of the
+     *             matrices is not sparse.
+     */
+    public DoubleMatrix2D mult(DoubleMatrix2D A, DoubleMatrix2D B) {
+        DoubleProperty.DEFAULT.checkSparse(A);
+        DoubleProperty.DEFAULT.checkSparse(B);
+        return A.zMult(B, null);
+    }
+
+    /**
+     * Returns the triple product <tt>R x A x P</tt> of sparse matrices, e.g.
+     * the Galerkin product of a multigrid method. The result has the format of
+     * <tt>R</tt>. Unlike <tt>mult(mult(R, A), P)</tt>, no intermediate product
+     * is stored: each row of the result is computed from the same row of
+     * <tt>R x A</tt>, which is discarded afterwards.
+     * 
+     * @param R
+     *            the first source matrix.
+     * @param A
+     *            the second source matrix.
+     * @param P
+     *            the third source matrix.
+     * @return <tt>R x A x P</tt>; a new sparse matrix.
+     * @throws IllegalArgumentException
+     *             if the inner dimensions do not agree or if one of the
+     *             matrices is not sparse.
+     */
+    public DoubleMatrix2D mult(DoubleMatrix2D R, DoubleMatrix2D A, DoubleMatrix2D P) {
+        DoubleProperty.DEFAULT.checkSparse(R);
+        DoubleProperty.DEFAULT.checkSparse(A);
+        DoubleProperty.DEFAULT.checkSparse(P);
+        if (R instanceof SparseRCDoubleMatrix2D) {
+            return ((SparseRCDoubleMatrix2D) R).tripleProduct(A, P);
+        } else {
+            return ((SparseCCDoubleMatrix2D) R).tripleProduct(A, P);
+        }
+    }
+
     /**
      * Returns the 1-norm of matrix <tt>A</tt>, which is the maximum absolute
      * column sum.
@@ -23,6 +23,7 @@ package cern.colt.matrix.tdouble.algo.solver;
 import cern.colt.matrix.Norm;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.algo.DenseDoubleAlgebra;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
  * Partial implementation of an iteration reporter
@@ -67,6 +68,7 @@ public abstract class AbstractDoubleIterationMonitor implements DoubleIterationM
     }
 
     public void next() {
+        ConcurrencyUtils.checkCancelled();
         iter++;
     }
 
@@ -0,0 +1,168 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.algo.solver.preconditioner;
+
+import java.util.Arrays;
+
+import cern.colt.matrix.tdouble.impl.SparseBSRDoubleMatrix2D;
+
+/**
+ * Operations on the dense <tt>b x b</tt> blocks of a
+ * {@link SparseBSRDoubleMatrix2D}, used by the block versions of the
+ * preconditioners. A block is stored in row-major order at an offset of an
+ * array, a block vector is the <tt>b</tt> elements of a vector starting at an
+ * offset.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+final class DoubleBlocks {
+
+    private DoubleBlocks() {
+    }
+
+    /*
+     * Returns the positions of the diagonal blocks of A.
+     */
+    static int[] findDiagonalBlocks(SparseBSRDoubleMatrix2D A) {
+        int blockRows = A.rows() / A.getBlockSize();
+        int[] blockRowPointers = A.getBlockRowPointers();
+        int[] blockColumnIndexes = A.getBlockColumnIndexes();
+        int[] diagind = new int[blockRows];
+        for (int k = 0; k < blockRows; ++k) {
+            diagind[k] = Arrays.binarySearch(blockColumnIndexes, blockRowPointers[k], blockRowPointers[k + 1], k);
+            if (diagind[k] < 0)
+                throw new RuntimeException("Missing diagonal block on block row " + (k + 1));
+        }
+        return diagind;
+    }
+
+    /*
+     * inv[offi..] = inverse of the block a[offa..], by Gauss-Jordan elimination
+     * with partial pivoting.
+     */
+    static void invert(double[] a, int offa, double[] inv, int offi, int b, int blockRow) {
+        double[] t = Arrays.copyOfRange(a, offa, offa + b * b);
+        for (int i = 0; i < b; i++) {
+            for (int j = 0; j < b; j++) {
+                inv[offi + i * b + j] = (i == j) ? 1 : 0;
+            }
+        }
+        for (int c = 0; c < b; c++) {
+            int p = c;
+            for (int r = c + 1; r < b; r++) {
+                if (Math.abs(t[r * b + c]) > Math.abs(t[p * b + c]))
+                    p = r;
+            }
+            if (t[p * b + c] == 0)
+                throw new RuntimeException("Singular diagonal block on block row " + (blockRow + 1));
+            if (p != c) {
+                for (int j = 0; j < b; j++) {
+                    double s = t[p * b + j];
+                    t[p * b + j] = t[c * b + j];
+                    t[c * b + j] = s;
+                    s = inv[offi + p * b + j];
+                    inv[offi + p * b + j] = inv[offi + c * b + j];
+                    inv[offi + c * b + j] = s;
+                }
+            }
+            double d = 1 / t[c * b + c];
+            for (int j = 0; j < b; j++) {
+                t[c * b + j] *= d;
+                inv[offi + c * b + j] *= d;
+            }
+            for (int r = 0; r < b; r++) {
+                double f = t[r * b + c];
+                if (r == c || f == 0)
+                    continue;
+                for (int j = 0; j < b; j++) {
+                    t[r * b + j] -= f * t[c * b + j];
+                    inv[offi + r * b + j] -= f * inv[offi + c * b + j];
+                }
+            }
+        }
+    }
+
+    /*
+     * y[offy..] = a[offa..] * x[offx..]
+     */
+    static void mult(double[] a, int offa, double[] x, int offx, double[] y, int offy, int b) {
+        for (int r = 0; r < b; r++) {
+            double s = 0;
+            for (int c = 0; c < b; c++)
+                s += a[offa++] * x[offx + c];
+            y[offy + r] = s;
+        }
+    }
+
+    /*
+     * y[offy..] = a[offa..]' * x[offx..]
+     */
+    static void transMult(double[] a, int offa, double[] x, int offx, double[] y, int offy, int b) {
+        for (int c = 0; c < b; c++) {
+            double s = 0;
+            for (int r = 0; r < b; r++)
+                s += a[offa + r * b + c] * x[offx + r];
+            y[offy + c] = s;
+        }
+    }
+
+    /*
+     * y[offy..] -= a[offa..] * x[offx..]
+     */
+    static void multSub(double[] a, int offa, double[] x, int offx, double[] y, int offy, int b) {
+        for (int r = 0; r < b; r++) {
+            double s = 0;
+            for (int c = 0; c < b; c++)
+                s += a[offa++] * x[offx + c];
+            y[offy + r] -= s;
+        }
+    }
+
+    /*
+     * y[offy..] -= a[offa..]' * x[offx..]
+     */
+    static void transMultSub(double[] a, int offa, double[] x, int offx, double[] y, int offy, int b) {
+        for (int r = 0; r < b; r++) {
+            double xr = x[offx + r];
+            for (int c = 0; c < b; c++)
+                y[offy + c] -= a[offa++] * xr;
+        }
+    }
+
+    /*
+     * c[offc..] -= a[offa..] * m[offm..] for blocks
+     */
+    static void blockMultSub(double[] a, int offa, double[] m, int offm, double[] c, int offc, int b) {
+        for (int r = 0; r < b; r++) {
+            for (int k = 0; k < b; k++) {
+                double ark = a[offa + r * b + k];
+                if (ark == 0)
+                    continue;
+                for (int j = 0; j < b; j++)
+                    c[offc + r * b + j] -= ark * m[offm + k * b + j];
+            }
+        }
+    }
+
+    /*
+     * a[offa..] = a[offa..] * m[offm..] for blocks, t is a work array of b
+     * elements.
+     */
+    static void blockMultRight(double[] a, int offa, double[] m, int offm, double[] t, int b) {
+        for (int r = 0; r < b; r++) {
+            for (int j = 0; j < b; j++) {
+                double s = 0;
+                for (int k = 0; k < b; k++)
+                    s += a[offa + r * b + k] * m[offm + k * b + j];
+                t[j] = s;
+            }
+            System.arraycopy(t, 0, a, offa + r * b, b);
+        }
+    }
+}
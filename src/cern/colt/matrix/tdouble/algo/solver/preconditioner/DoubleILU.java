@@ -23,10 +23,13 @@ package cern.colt.matrix.tdouble.algo.solver.preconditioner;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.SparseBSRDoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
 
 /**
- * ILU(0) preconditioner using a compressed row matrix as internal storage
+ * ILU(0) preconditioner using a compressed row matrix as internal storage. If
+ * the matrix is a {@link SparseBSRDoubleMatrix2D}, the factorisation is done on
+ * its blocks (block ILU(0)), keeping the inverses of the diagonal blocks.
  */
 public class DoubleILU implements DoublePreconditioner {
 
@@ -35,6 +38,16 @@ public class DoubleILU implements DoublePreconditioner {
      */
     private SparseRCDoubleMatrix2D LU;
 
+    /**
+     * Block factorisation matrix, used instead of LU for block matrices
+     */
+    private SparseBSRDoubleMatrix2D BLU;
+
+    /**
+     * Inverses of the diagonal blocks of BLU
+     */
+    private double[] invdiag;
+
     /**
      * Temporary vector for solving the factorised system
      */
@@ -60,6 +73,11 @@ public class DoubleILU implements DoublePreconditioner {
             x = b.like();
         }
 
+        if (BLU != null) {
+            blockLowerUnitSolve(b, y);
+            return blockUpperSolve(y, x);
+        }
+
         // Ly = b, y = L\b
         lowerUnitSolve(b, y);
 
@@ -72,6 +90,11 @@ public class DoubleILU implements DoublePreconditioner {
             x = b.like();
         }
 
+        if (BLU != null) {
+            blockUpperTransSolve(b, y);
+            return blockLowerUnitTransSolve(y, x);
+        }
+
         // U'y = b, y = U'\b
         upperTransSolve(b, y);
 
@@ -83,6 +106,13 @@ public class DoubleILU implements DoublePreconditioner {
         if (A.rows() != n) {
             throw new IllegalArgumentException("A.rows() != n");
         }
+        if (A instanceof SparseBSRDoubleMatrix2D) {
+            LU = null;
+            BLU = (SparseBSRDoubleMatrix2D) A.copy();
+            blockFactor();
+            return;
+        }
+        BLU = null;
         LU = new SparseRCDoubleMatrix2D(n, n);
         LU.assign(A);
         if (!LU.hasColumnIndexesSorted()) {
@@ -128,6 +158,41 @@ public class DoubleILU implements DoublePreconditioner {
 
     }
 
+    private void blockFactor() {
+        int bs = BLU.getBlockSize();
+        int bb = bs * bs;
+        int nb = n / bs;
+        int[] colind = BLU.getBlockColumnIndexes();
+        int[] rowptr = BLU.getBlockRowPointers();
+        double[] data = BLU.getValues();
+        double[] t = new double[bs];
+
+        diagind = DoubleBlocks.findDiagonalBlocks(BLU);
+        invdiag = new double[nb * bb];
+        DoubleBlocks.invert(data, diagind[0] * bb, invdiag, 0, bs, 0);
+
+        // Same as factor(), with the inverse of the diagonal block in place
+        // of the division by the pivot
+        for (int k = 1; k < nb; ++k) {
+            for (int i = rowptr[k]; i < diagind[k]; ++i) {
+                int index = colind[i];
+
+                // Elimination factor, LUki = LUki * inv(LUii)
+                DoubleBlocks.blockMultRight(data, i * bb, invdiag, index * bb, t, bs);
+
+                for (int j = diagind[index] + 1, l = i + 1; j < rowptr[index + 1]; ++j) {
+
+                    while (l < rowptr[k + 1] && colind[l] < colind[j])
+                        l++;
+
+                    if (l < rowptr[k + 1] && colind[l] == colind[j])
+                        DoubleBlocks.blockMultSub(data, i * bb, data, j * bb, data, l * bb, bs);
+                }
+            }
+            DoubleBlocks.invert(data, diagind[k] * bb, invdiag, k * bb, bs, k);
+        }
+    }
+
     private int[] findDiagonalIndexes(int m, int[] colind, int[] rowptr) {
         int[] diagind = new int[m];
 
@@ -221,4 +286,86 @@ public class DoubleILU implements DoublePreconditioner {
         return x;
     }
 
+    private DoubleMatrix1D blockLowerUnitSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
+        double[] bd = ((DenseDoubleMatrix1D) b).elements();
+        double[] xd = ((DenseDoubleMatrix1D) x).elements();
+        int[] colind = BLU.getBlockColumnIndexes();
+        int[] rowptr = BLU.getBlockRowPointers();
+        double[] data = BLU.getValues();
+        int bs = BLU.getBlockSize();
+        int bb = bs * bs;
+        for (int i = 0; i < n / bs; ++i) {
+
+            // xi = bi - sum[j<i] Lij * xj
+            System.arraycopy(bd, i * bs, xd, i * bs, bs);
+            for (int j = rowptr[i]; j < diagind[i]; ++j)
+                DoubleBlocks.multSub(data, j * bb, xd, colind[j] * bs, xd, i * bs, bs);
+        }
+
+        return x;
+    }
+
+    private DoubleMatrix1D blockLowerUnitTransSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
+        x.assign(b);
+        double[] xd = ((DenseDoubleMatrix1D) x).elements();
+        int[] colind = BLU.getBlockColumnIndexes();
+        int[] rowptr = BLU.getBlockRowPointers();
+        double[] data = BLU.getValues();
+        int bs = BLU.getBlockSize();
+        int bb = bs * bs;
+
+        for (int i = n / bs - 1; i >= 0; --i)
+            for (int j = rowptr[i]; j < diagind[i]; ++j)
+                DoubleBlocks.transMultSub(data, j * bb, xd, i * bs, xd, colind[j] * bs, bs);
+
+        return x;
+    }
+
+    private DoubleMatrix1D blockUpperSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
+        double[] bd = ((DenseDoubleMatrix1D) b).elements();
+        double[] xd = ((DenseDoubleMatrix1D) x).elements();
+        int[] colind = BLU.getBlockColumnIndexes();
+        int[] rowptr = BLU.getBlockRowPointers();
+        double[] data = BLU.getValues();
+        int bs = BLU.getBlockSize();
+        int bb = bs * bs;
+        double[] t = new double[bs];
+        for (int i = n / bs - 1; i >= 0; --i) {
+
+            // xi = inv(Uii) * (bi - sum[j>i] Uij * xj)
+            System.arraycopy(bd, i * bs, t, 0, bs);
+            for (int j = diagind[i] + 1; j < rowptr[i + 1]; ++j)
+                DoubleBlocks.multSub(data, j * bb, xd, colind[j] * bs, t, 0, bs);
+
+            DoubleBlocks.mult(invdiag, i * bb, t, 0, xd, i * bs, bs);
+        }
+
+        return x;
+    }
+
+    private DoubleMatrix1D blockUpperTransSolve(DoubleMatrix1D b, DoubleMatrix1D x) {
+        x.assign(b);
+        double[] xd = ((DenseDoubleMatrix1D) x).elements();
+        int[] colind = BLU.getBlockColumnIndexes();
+        int[] rowptr = BLU.getBlockRowPointers();
+        double[] data = BLU.getValues();
+        int bs = BLU.getBlockSize();
+        int bb = bs * bs;
+        double[] t = new double[bs];
+
+        for (int i = 0; i < n / bs; ++i) {
+
+            // Solve for the current block
+            System.arraycopy(xd, i * bs, t, 0, bs);
+            DoubleBlocks.transMult(invdiag, i * bb, t, 0, xd, i * bs, bs);
+
+            // Move this known solution over to the right hand side for the
+            // remaining equations
+            for (int j = diagind[i] + 1; j < rowptr[i + 1]; ++j)
+                DoubleBlocks.transMultSub(data, j * bb, xd, i * bs, xd, colind[j] * bs, bs);
+        }
+
+        return x;
+    }
+
 }
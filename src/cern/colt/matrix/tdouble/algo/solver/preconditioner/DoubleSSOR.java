@@ -23,12 +23,15 @@ package cern.colt.matrix.tdouble.algo.solver.preconditioner;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.SparseBSRDoubleMatrix2D;
 import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
 
 /**
  * SSOR preconditioner. Uses symmetrical sucessive overrelaxation as a
  * preconditioner. Meant for symmetrical, positive definite matrices. For best
- * performance, omega must be carefully chosen (between 0 and 2).
+ * performance, omega must be carefully chosen (between 0 and 2). If the matrix
+ * is a {@link SparseBSRDoubleMatrix2D}, the sweeps relax whole blocks at a time
+ * (block SSOR), using the inverses of the diagonal blocks.
  */
 public class DoubleSSOR implements DoublePreconditioner {
 
@@ -47,6 +50,21 @@ public class DoubleSSOR implements DoublePreconditioner {
      */
     private SparseRCDoubleMatrix2D F;
 
+    /**
+     * Holds a copy of the matrix A if it is a block matrix, used instead of F
+     */
+    private SparseBSRDoubleMatrix2D BF;
+
+    /**
+     * Inverses of the diagonal blocks of BF
+     */
+    private double[] invdiag;
+
+    /**
+     * indexes to the diagonal blocks of BF
+     */
+    private int[] blockdiagind;
+
     /**
      * indexes to the diagonal entries of the matrix
      */
@@ -122,6 +140,19 @@ public class DoubleSSOR implements DoublePreconditioner {
         if (A.rows() != n) {
             throw new IllegalArgumentException("A.rows() != n");
         }
+        if (A instanceof SparseBSRDoubleMatrix2D) {
+            F = null;
+            BF = (SparseBSRDoubleMatrix2D) A.copy();
+            int bs = BF.getBlockSize();
+            int bb = bs * bs;
+            double[] data = BF.getValues();
+            blockdiagind = DoubleBlocks.findDiagonalBlocks(BF);
+            invdiag = new double[n * bs];
+            for (int k = 0; k < n / bs; ++k)
+                DoubleBlocks.invert(data, blockdiagind[k] * bb, invdiag, k * bb, bs, k);
+            return;
+        }
+        BF = null;
         F = new SparseRCDoubleMatrix2D(n, n);
         F.assign(A);
         if (!F.hasColumnIndexesSorted()) {
@@ -147,6 +178,9 @@ public class DoubleSSOR implements DoublePreconditioner {
         if (!(b instanceof DenseDoubleMatrix1D) || !(x instanceof DenseDoubleMatrix1D))
             throw new IllegalArgumentException("b and x must be a DenseDoubleMatrix1D");
 
+        if (BF != null)
+            return blockApply(b, x);
+
         int[] rowptr = F.getRowPointers();
         int[] colind = F.getColumnIndexes();
         double[] data = F.getValues();
@@ -207,4 +241,59 @@ public class DoubleSSOR implements DoublePreconditioner {
         return apply(b, x);
     }
 
+    private DoubleMatrix1D blockApply(DoubleMatrix1D b, DoubleMatrix1D x) {
+        int[] rowptr = BF.getBlockRowPointers();
+        int[] colind = BF.getBlockColumnIndexes();
+        double[] data = BF.getValues();
+        int bs = BF.getBlockSize();
+        int bb = bs * bs;
+
+        double[] bd = ((DenseDoubleMatrix1D) b).elements();
+        double[] xd = new double[n];
+        double[] t = new double[bs];
+        double[] sigma = new double[bs];
+
+        System.arraycopy(xd, 0, xx, 0, n);
+
+        // Forward sweep (xd oldest, xx halfiterate)
+        for (int i = 0; i < n / bs; ++i) {
+
+            System.arraycopy(bd, i * bs, t, 0, bs);
+            for (int j = rowptr[i]; j < blockdiagind[i]; ++j)
+                DoubleBlocks.multSub(data, j * bb, xx, colind[j] * bs, t, 0, bs);
+
+            for (int j = blockdiagind[i] + 1; j < rowptr[i + 1]; ++j)
+                DoubleBlocks.multSub(data, j * bb, xd, colind[j] * bs, t, 0, bs);
+
+            DoubleBlocks.mult(invdiag, i * bb, t, 0, sigma, 0, bs);
+
+            for (int r = 0, k = i * bs; r < bs; ++r, ++k)
+                xx[k] = xd[k] + omegaF * (sigma[r] - xd[k]);
+        }
+
+        // Stop here if the reverse sweep was not requested
+        if (!reverse) {
+            x.assign(xx);
+            return x;
+        }
+
+        // Backward sweep (xx oldest, xd halfiterate)
+        for (int i = n / bs - 1; i >= 0; --i) {
+
+            System.arraycopy(bd, i * bs, t, 0, bs);
+            for (int j = rowptr[i]; j < blockdiagind[i]; ++j)
+                DoubleBlocks.multSub(data, j * bb, xx, colind[j] * bs, t, 0, bs);
+
+            for (int j = blockdiagind[i] + 1; j < rowptr[i + 1]; ++j)
+                DoubleBlocks.multSub(data, j * bb, xd, colind[j] * bs, t, 0, bs);
+
+            DoubleBlocks.mult(invdiag, i * bb, t, 0, sigma, 0, bs);
+
+            for (int r = 0, k = i * bs; r < bs; ++r, ++k)
+                xd[k] = xx[k] + omegaR * (sigma[r] - xx[k]);
+        }
+        x.assign(xd);
+        return x;
+    }
+
 }
@@ -0,0 +1,382 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import cern.colt.list.tdouble.DoubleArrayList;
+import cern.colt.list.tlong.LongArrayList;
+import cern.colt.map.tdouble.OpenLongDoubleHashMap;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
+
+/**
+ * A sparse 2-d matrix of <tt>double</tt> elements that many threads can
+ * assemble at the same time, for example the element contributions of a
+ * finite element discretization, and that is then converted to a
+ * compressed matrix.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * The rows are distributed over a number of stripes (row <tt>r</tt> goes to
+ * stripe <tt>r % stripes</tt>), each holding its cells in a
+ * {@link cern.colt.map.tdouble.OpenLongDoubleHashMap} guarded by its own lock.
+ * Threads working on different rows thus rarely wait for each other, while
+ * {@link SparseDoubleMatrix2D} serializes all <tt>getQuick</tt> and
+ * <tt>setQuick</tt> calls on one map. <tt>addQuick</tt> sums the contributions
+ * to a cell in the map, so the compressed matrices returned by
+ * {@link #getRowCompressed(boolean)} and {@link #getColumnCompressed(boolean)}
+ * have no duplicates to remove. Cells whose value becomes zero are removed.
+ * <p>
+ * The methods of this class are thread safe. The conversions are meant to be
+ * called once the assembly is complete; they see all updates that completed
+ * before they were called.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public class ConcurrentSparseDoubleBuilder2D {
+
+    /**
+     * The number of rows.
+     */
+    protected final int rows;
+
+    /**
+     * The number of columns.
+     */
+    protected final int columns;
+
+    /**
+     * The cells of the rows <tt>r</tt> with <tt>r % stripes.length == s</tt>,
+     * keyed by <tt>r * columns + column</tt>.
+     */
+    protected final OpenLongDoubleHashMap[] stripes;
+
+    /**
+     * Constructs a builder of a <tt>rows x columns</tt> matrix with
+     * <tt>16 * ConcurrencyUtils.getNumberOfThreads()</tt> stripes (at most
+     * <tt>rows</tt>).
+     *
+     * @param rows
+     *            the number of rows
+     * @param columns
+     *            the number of columns
+     * @throws IllegalArgumentException
+     *             if <tt>rows &lt; 0 || columns &lt; 0</tt>
+     */
+    public ConcurrentSparseDoubleBuilder2D(int rows, int columns) {
+        this(rows, columns, 0, 16 * ConcurrencyUtils.getNumberOfThreads());
+    }
+
+    /**
+     * Constructs a builder of a <tt>rows x columns</tt> matrix.
+     *
+     * @param rows
+     *            the number of rows
+     * @param columns
+     *            the number of columns
+     * @param initialCapacity
+     *            the expected number of non-zero cells, or <tt>0</tt> if not
+     *            known
+     * @param stripes
+     *            the number of independently locked stripes, at most
+     *            <tt>rows</tt> are used
+     * @throws IllegalArgumentException
+     *             if
+     *             <tt>rows &lt; 0 || columns &lt; 0 || initialCapacity &lt; 0 || stripes &lt; 1</tt>
+     */
+    public ConcurrentSparseDoubleBuilder2D(int rows, int columns, int initialCapacity, int stripes) {
+        if (rows < 0 || columns < 0) {
+            throw new IllegalArgumentException("negative size: " + rows + " x " + columns);
+        }
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initialCapacity < 0: " + initialCapacity);
+        }
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stripes < 1: " + stripes);
+        }
+        this.rows = rows;
+        this.columns = columns;
+        int n = Math.max(1, Math.min(stripes, rows));
+        this.stripes = new OpenLongDoubleHashMap[n];
+        for (int s = 0; s < n; s++) {
+            this.stripes[s] = new OpenLongDoubleHashMap(initialCapacity / n);
+        }
+    }
+
+    /**
+     * Adds <tt>delta</tt> to the cell <tt>[row,column]</tt>.
+     *
+     * @param row
+     *            the index of the row
+     * @param column
+     *            the index of the column
+     * @param delta
+     *            the value to add
+     * @throws IndexOutOfBoundsException
+     *             if
+     *             <tt>row &lt; 0 || row &gt;= rows() || column &lt; 0 || column &gt;= columns()</tt>
+     */
+    public void add(int row, int column, double delta) {
+        checkIndex(row, column);
+        addQuick(row, column, delta);
+    }
+
+    /**
+     * Adds <tt>delta</tt> to the cell <tt>[row,column]</tt>, without checking
+     * the indexes.
+     *
+     * @param row
+     *            the index of the row
+     * @param column
+     *            the index of the column
+     * @param delta
+     *            the value to add
+     */
+    public void addQuick(int row, int column, double delta) {
+        if (delta == 0) {
+            return;
+        }
+        long key = (long) row * columns + column;
+        OpenLongDoubleHashMap stripe = stripes[row % stripes.length];
+        synchronized (stripe) {
+            double value = stripe.get(key) + delta;
+            if (value == 0) {
+                stripe.removeKey(key);
+            } else {
+                stripe.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of non-zero cells.
+     *
+     * @return the number of non-zero cells
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (OpenLongDoubleHashMap stripe : stripes) {
+            synchronized (stripe) {
+                cardinality += stripe.size();
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return the number of columns
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * Returns the value of the cell <tt>[row,column]</tt>.
+     *
+     * @param row
+     *            the index of the row
+     * @param column
+     *            the index of the column
+     * @return the value of the cell
+     * @throws IndexOutOfBoundsException
+     *             if
+     *             <tt>row &lt; 0 || row &gt;= rows() || column &lt; 0 || column &gt;= columns()</tt>
+     */
+    public double get(int row, int column) {
+        checkIndex(row, column);
+        return getQuick(row, column);
+    }
+
+    /**
+     * Returns the assembled matrix in a column-compressed form.
+     *
+     * @param sortRowIndexes
+     *            if true, then row indexes in column compressed matrix are
+     *            sorted
+     * @return the assembled matrix in a column-compressed form
+     */
+    public SparseCCDoubleMatrix2D getColumnCompressed(boolean sortRowIndexes) {
+        int nnz = cardinality();
+        int[] rowIndexes = new int[nnz];
+        int[] columnIndexes = new int[nnz];
+        double[] values = new double[nnz];
+        int n = toCoordinates(rowIndexes, columnIndexes, values);
+        if (n == 0) {
+            return new SparseCCDoubleMatrix2D(rows, columns);
+        }
+        if (n < nnz) {
+            // cells were removed concurrently
+            rowIndexes = trim(rowIndexes, n);
+            columnIndexes = trim(columnIndexes, n);
+            values = trim(values, n);
+        }
+        return new SparseCCDoubleMatrix2D(rows, columns, rowIndexes, columnIndexes, values, false, false,
+                sortRowIndexes);
+    }
+
+    /**
+     * Returns the value of the cell <tt>[row,column]</tt>, without checking the
+     * indexes.
+     *
+     * @param row
+     *            the index of the row
+     * @param column
+     *            the index of the column
+     * @return the value of the cell
+     */
+    public double getQuick(int row, int column) {
+        OpenLongDoubleHashMap stripe = stripes[row % stripes.length];
+        synchronized (stripe) {
+            return stripe.get((long) row * columns + column);
+        }
+    }
+
+    /**
+     * Returns the assembled matrix in a row-compressed form.
+     *
+     * @param sortColumnIndexes
+     *            if true, then column indexes in row compressed matrix are
+     *            sorted
+     * @return the assembled matrix in a row-compressed form
+     */
+    public SparseRCDoubleMatrix2D getRowCompressed(boolean sortColumnIndexes) {
+        int nnz = cardinality();
+        int[] rowIndexes = new int[nnz];
+        int[] columnIndexes = new int[nnz];
+        double[] values = new double[nnz];
+        int n = toCoordinates(rowIndexes, columnIndexes, values);
+        if (n == 0) {
+            return new SparseRCDoubleMatrix2D(rows, columns);
+        }
+        if (n < nnz) {
+            // cells were removed concurrently
+            rowIndexes = trim(rowIndexes, n);
+            columnIndexes = trim(columnIndexes, n);
+            values = trim(values, n);
+        }
+        return new SparseRCDoubleMatrix2D(rows, columns, rowIndexes, columnIndexes, values, false, false,
+                sortColumnIndexes);
+    }
+
+    /**
+     * Returns the assembled matrix as a {@link SparseDoubleMatrix2D}.
+     *
+     * @return the assembled matrix
+     */
+    public SparseDoubleMatrix2D getSparse() {
+        SparseDoubleMatrix2D A = new SparseDoubleMatrix2D(rows, columns, cardinality(), 0.2, 0.5);
+        LongArrayList keys = new LongArrayList();
+        DoubleArrayList values = new DoubleArrayList();
+        for (OpenLongDoubleHashMap stripe : stripes) {
+            synchronized (stripe) {
+                stripe.keys(keys);
+                stripe.values(values);
+            }
+            long[] k = keys.elements();
+            double[] v = values.elements();
+            for (int i = 0; i < keys.size(); i++) {
+                A.setQuick((int) (k[i] / columns), (int) (k[i] % columns), v[i]);
+            }
+        }
+        return A;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the number of rows
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Sets the cell <tt>[row,column]</tt> to <tt>value</tt>, without checking
+     * the indexes.
+     *
+     * @param row
+     *            the index of the row
+     * @param column
+     *            the index of the column
+     * @param value
+     *            the value
+     */
+    public void setQuick(int row, int column, double value) {
+        long key = (long) row * columns + column;
+        OpenLongDoubleHashMap stripe = stripes[row % stripes.length];
+        synchronized (stripe) {
+            if (value == 0) {
+                stripe.removeKey(key);
+            } else {
+                stripe.put(key, value);
+            }
+        }
+    }
+
+    private void checkIndex(int row, int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("row:" + row + ", column:" + column + ", " + rows + " x " + columns);
+        }
+    }
+
+    /*
+     * Writes the cells into the coordinate arrays, the stripes in parallel, and
+     * returns the number of cells written. The arrays hold at least the number
+     * of cells counted before; stripes that grew since are cut.
+     */
+    private int toCoordinates(final int[] rowIndexes, final int[] columnIndexes, final double[] values) {
+        final int n = stripes.length;
+        final LongArrayList[] keys = new LongArrayList[n];
+        final DoubleArrayList[] vals = new DoubleArrayList[n];
+        for (int s = 0; s < n; s++) {
+            keys[s] = new LongArrayList();
+            vals[s] = new DoubleArrayList();
+            synchronized (stripes[s]) {
+                stripes[s].keys(keys[s]);
+                stripes[s].values(vals[s]);
+            }
+        }
+        final int[] offsets = new int[n + 1];
+        for (int s = 0; s < n; s++) {
+            offsets[s + 1] = Math.min(rowIndexes.length, offsets[s] + keys[s].size());
+        }
+        RangeProcedure procedure = new RangeProcedure() {
+            public void apply(int first, int last) {
+                for (int s = first; s < last; s++) {
+                    long[] k = keys[s].elements();
+                    double[] v = vals[s].elements();
+                    for (int i = 0, idx = offsets[s]; idx < offsets[s + 1]; i++, idx++) {
+                        rowIndexes[idx] = (int) (k[i] / columns);
+                        columnIndexes[idx] = (int) (k[i] % columns);
+                        values[idx] = v[i];
+                    }
+                }
+            }
+        };
+        if ((ConcurrencyUtils.getNumberOfThreads() > 1) && (offsets[n] >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+            ConcurrencyUtils.parallelFor(0, n, 1, procedure);
+        } else {
+            procedure.apply(0, n);
+        }
+        return offsets[n];
+    }
+
+    private static int[] trim(int[] a, int n) {
+        int[] b = new int[n];
+        System.arraycopy(a, 0, b, 0, n);
+        return b;
+    }
+
+    private static double[] trim(double[] a, int n) {
+        double[] b = new double[n];
+        System.arraycopy(a, 0, b, 0, n);
+        return b;
+    }
+}
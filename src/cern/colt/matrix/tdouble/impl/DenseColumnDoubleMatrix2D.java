@@ -20,6 +20,7 @@ import cern.colt.function.tdouble.DoubleFunction;
 import cern.colt.function.tdouble.DoubleProcedure;
 import cern.colt.list.tdouble.DoubleArrayList;
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.Transpose;
 import cern.colt.matrix.io.MatrixInfo;
 import cern.colt.matrix.io.MatrixSize;
@@ -32,7 +33,9 @@ import edu.emory.mathcs.jtransforms.dct.DoubleDCT_2D;
 import edu.emory.mathcs.jtransforms.dht.DoubleDHT_2D;
 import edu.emory.mathcs.jtransforms.dst.DoubleDST_2D;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_2D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
 
 /**
  * Dense 2-d matrix holding <tt>double</tt> elements. First see the <a
@@ -79,14 +82,6 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
 public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
     static final long serialVersionUID = 1020177651L;
 
-    private DoubleFFT_2D fft2;
-
-    private DoubleDCT_2D dct2;
-
-    private DoubleDST_2D dst2;
-
-    private DoubleDHT_2D dht2;
-
     protected double[] elements;
 
     /**
@@ -213,8 +208,8 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
         final int zero = (int) index(0, 0);
         double a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(columns);
             Future<?>[] futures = new Future[nthreads];
             int k = columns / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -257,8 +252,8 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
         final int zero = (int) index(0, 0);
         double a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(columns);
             Future<?>[] futures = new Future[nthreads];
             int k = columns / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -318,8 +313,8 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
         final int[] columnElements = columnList.elements();
         double a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(columns);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -363,8 +358,8 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
         final double[] otherElements = (double[]) other.elements();
         double a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(columns);
             Future<?>[] futures = new Future[nthreads];
             int k = columns / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -1161,9 +1156,9 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
@@ -1188,14 +1183,15 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      */
     public void dct2(boolean scale) {
         DoubleMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct2 == null) {
-            dct2 = new DoubleDCT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_2D dct2 = TransformPlans.acquire(DoubleDCT_2D.class, rows, columns);
+            dct2.forward((double[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(dct2, rows, columns);
+        } finally {
+            context.close();
         }
-        dct2.forward((double[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1207,31 +1203,35 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dctColumns(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            ((DenseDoubleMatrix1D) viewColumn(c)).dct(scale);
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                ((DenseDoubleMatrix1D) viewColumn(c)).dct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                ((DenseDoubleMatrix1D) viewColumn(c)).dct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    ((DenseDoubleMatrix1D) viewColumn(c)).dct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1244,35 +1244,36 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dctRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            ((DenseDoubleMatrix1D) viewRow(r)).dct(scale);
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                ((DenseDoubleMatrix1D) viewRow(r)).dct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDoubleMatrix1D) viewRow(r)).dct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDoubleMatrix1D) viewRow(r)).dct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1281,14 +1282,15 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      */
     public void dht2() {
         DoubleMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht2 == null) {
-            dht2 = new DoubleDHT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_2D dht2 = TransformPlans.acquire(DoubleDHT_2D.class, rows, columns);
+            dht2.forward((double[]) transpose.elements());
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(dht2, rows, columns);
+        } finally {
+            context.close();
         }
-        dht2.forward((double[]) transpose.elements());
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1297,35 +1299,36 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dhtColumns() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            ((DenseDoubleMatrix1D) viewColumn(c)).dht();
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                ((DenseDoubleMatrix1D) viewColumn(c)).dht();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                ((DenseDoubleMatrix1D) viewColumn(c)).dht();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    ((DenseDoubleMatrix1D) viewColumn(c)).dht();
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1333,35 +1336,36 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dhtRows() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            ((DenseDoubleMatrix1D) viewRow(r)).dht();
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                ((DenseDoubleMatrix1D) viewRow(r)).dht();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDoubleMatrix1D) viewRow(r)).dht();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDoubleMatrix1D) viewRow(r)).dht();
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1373,14 +1377,15 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      */
     public void dst2(boolean scale) {
         DoubleMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst2 == null) {
-            dst2 = new DoubleDST_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_2D dst2 = TransformPlans.acquire(DoubleDST_2D.class, rows, columns);
+            dst2.forward((double[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(dst2, rows, columns);
+        } finally {
+            context.close();
         }
-        dst2.forward((double[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1392,31 +1397,35 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dstColumns(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            ((DenseDoubleMatrix1D) viewColumn(c)).dst(scale);
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                ((DenseDoubleMatrix1D) viewColumn(c)).dst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                ((DenseDoubleMatrix1D) viewColumn(c)).dst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    ((DenseDoubleMatrix1D) viewColumn(c)).dst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1428,35 +1437,36 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dstRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            ((DenseDoubleMatrix1D) viewRow(r)).dst(scale);
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                ((DenseDoubleMatrix1D) viewRow(r)).dst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDoubleMatrix1D) viewRow(r)).dst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDoubleMatrix1D) viewRow(r)).dst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public double[] elements() {
@@ -1497,14 +1507,15 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      */
     public void fft2() {
         DoubleMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            fft2.realForward((double[]) transpose.elements());
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        fft2.realForward((double[]) transpose.elements());
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public DoubleMatrix2D forEachNonZero(final cern.colt.function.tdouble.IntIntDoubleFunction function) {
@@ -1560,49 +1571,19 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      */
     public DenseDoubleMatrix2D getRowMajor() {
         DenseDoubleMatrix2D R = new DenseDoubleMatrix2D(rows, columns);
-        final int zeroR = (int) R.index(0, 0);
-        final int rowStrideR = R.rowStride();
-        final int columnStrideR = R.columnStride();
         final double[] elementsR = R.elements();
         final int zero = (int) index(0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
-                        int idxR = zeroR + (rows - 1) * rowStrideR + (firstColumn - 1) * columnStrideR;
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            for (int i = idx, j = idxR, r = rows; --r >= 0;) {
-                                elementsR[j] = elements[i];
-                                i -= rowStride;
-                                j -= rowStrideR;
-                            }
-                            idx -= columnStride;
-                            idxR -= columnStrideR;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
-            int idxR = zeroR + (rows - 1) * rowStrideR + (columns - 1) * columnStrideR;
-            for (int c = columns; --c >= 0;) {
-                for (int i = idx, j = idxR, r = rows; --r >= 0;) {
-                    elementsR[j] = elements[i];
-                    i -= rowStride;
-                    j -= rowStrideR;
+            int minGrain = Math.max(1, 4096 / Math.max(1, columns));
+            ConcurrencyUtils.parallelFor(0, rows, ConcurrencyUtils.getGrainSize(rows, minGrain), new RangeProcedure() {
+                public void apply(int firstRow, int lastRow) {
+                    DenseDoubleKernels.copy(elements, zero + firstRow * rowStride, rowStride, columnStride, elementsR,
+                            firstRow * columns, columns, 1, lastRow - firstRow, columns);
                 }
-                idx -= columnStride;
-                idxR -= columnStrideR;
-            }
+            });
+        } else {
+            DenseDoubleKernels.copy(elements, zero, rowStride, columnStride, elementsR, 0, columns, 1, rows, columns);
         }
         return R;
     }
@@ -1615,59 +1596,60 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public DenseDComplexMatrix2D getFft2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
-        }
-        DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
-        final double[] elementsC = (C).elements();
-        final int zero = (int) index(0, 0);
-        final int zeroC = (int) C.index(0, 0);
-        final int rowStrideC = C.rowStride() / 2;
-        final int columnStrideC = 1;
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
+            final double[] elementsC = (C).elements();
+            final int zero = (int) index(0, 0);
+            final int zeroC = (int) C.index(0, 0);
+            final int rowStrideC = C.rowStride() / 2;
+            final int columnStrideC = 1;
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
-                        int idxOther = zeroC + (rows - 1) * rowStrideC + (firstColumn - 1) * columnStrideC;
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
-                                elementsC[j] = elements[i];
-                                i -= rowStride;
-                                j -= rowStrideC;
-                            }
-                            idx -= columnStride;
-                            idxOther -= columnStrideC;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
-            int idxOther = zeroC + (rows - 1) * rowStrideC + (columns - 1) * columnStrideC;
-            for (int c = columns; --c >= 0;) {
-                for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
-                    elementsC[j] = elements[i];
-                    i -= rowStride;
-                    j -= rowStrideC;
+                        public void run() {
+                            int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
+                            int idxOther = zeroC + (rows - 1) * rowStrideC + (firstColumn - 1) * columnStrideC;
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
+                                    elementsC[j] = elements[i];
+                                    i -= rowStride;
+                                    j -= rowStrideC;
+                                }
+                                idx -= columnStride;
+                                idxOther -= columnStrideC;
+                            }
+                        }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
+                int idxOther = zeroC + (rows - 1) * rowStrideC + (columns - 1) * columnStrideC;
+                for (int c = columns; --c >= 0;) {
+                    for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
+                        elementsC[j] = elements[i];
+                        i -= rowStride;
+                        j -= rowStrideC;
+                    }
+                    idx -= columnStride;
+                    idxOther -= columnStrideC;
                 }
-                idx -= columnStride;
-                idxOther -= columnStrideC;
             }
+            fft2.realForwardFull(elementsC);
+            TransformPlans.release(fft2, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        fft2.realForwardFull(elementsC);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1678,37 +1660,38 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      *         matrix.
      */
     public DenseDComplexMatrix2D getFftColumns() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getFft());
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getFft());
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getFft());
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getFft());
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1718,37 +1701,38 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * @return the discrete Fourier transform (DFT) of each row of this matrix.
      */
     public DenseDComplexMatrix2D getFftRows() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getFft());
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getFft());
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = rows; --r >= 0;) {
-                C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getFft());
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = rows; --r >= 0;) {
+                    C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getFft());
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1759,59 +1743,60 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      *         matrix.
      */
     public DComplexMatrix2D getIfft2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
-        }
-        DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
-        final double[] elementsC = (C).elements();
-        final int zero = (int) index(0, 0);
-        final int zeroC = (int) C.index(0, 0);
-        final int rowStrideC = C.rowStride() / 2;
-        final int columnStrideC = 1;
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
+            final double[] elementsC = (C).elements();
+            final int zero = (int) index(0, 0);
+            final int zeroC = (int) C.index(0, 0);
+            final int rowStrideC = C.rowStride() / 2;
+            final int columnStrideC = 1;
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
-                        int idxOther = zeroC + (rows - 1) * rowStrideC + (firstColumn - 1) * columnStrideC;
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
-                                elementsC[j] = elements[i];
-                                i -= rowStride;
-                                j -= rowStrideC;
+                        public void run() {
+                            int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
+                            int idxOther = zeroC + (rows - 1) * rowStrideC + (firstColumn - 1) * columnStrideC;
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
+                                    elementsC[j] = elements[i];
+                                    i -= rowStride;
+                                    j -= rowStrideC;
+                                }
+                                idx -= columnStride;
+                                idxOther -= columnStrideC;
                             }
-                            idx -= columnStride;
-                            idxOther -= columnStrideC;
                         }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
+                int idxOther = zeroC + (rows - 1) * rowStrideC + (columns - 1) * columnStrideC;
+                for (int c = columns; --c >= 0;) {
+                    for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
+                        elementsC[j] = elements[i];
+                        i -= rowStride;
+                        j -= rowStrideC;
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
-            int idxOther = zeroC + (rows - 1) * rowStrideC + (columns - 1) * columnStrideC;
-            for (int c = columns; --c >= 0;) {
-                for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
-                    elementsC[j] = elements[i];
-                    i -= rowStride;
-                    j -= rowStrideC;
+                    idx -= columnStride;
+                    idxOther -= columnStrideC;
                 }
-                idx -= columnStride;
-                idxOther -= columnStrideC;
             }
+            fft2.realInverseFull(elementsC, scale);
+            TransformPlans.release(fft2, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        fft2.realInverseFull(elementsC, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1822,37 +1807,38 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      *         column of this matrix.
      */
     public DComplexMatrix2D getIfftColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getIfft(scale));
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getIfft(scale));
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getIfft(scale));
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getIfft(scale));
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1863,36 +1849,37 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      *         of this matrix.
      */
     public DComplexMatrix2D getIfftRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getIfft(scale));
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getIfft(scale));
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = rows; --r >= 0;) {
-                C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getIfft(scale));
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = rows; --r >= 0;) {
+                    C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getIfft(scale));
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     public void getNegativeValues(final IntArrayList rowList, final IntArrayList columnList,
@@ -1968,14 +1955,15 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      */
     public void idct2(boolean scale) {
         DoubleMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct2 == null) {
-            dct2 = new DoubleDCT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_2D dct2 = TransformPlans.acquire(DoubleDCT_2D.class, rows, columns);
+            dct2.inverse((double[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(dct2, rows, columns);
+        } finally {
+            context.close();
         }
-        dct2.inverse((double[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1987,31 +1975,35 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idctColumns(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            ((DenseDoubleMatrix1D) viewColumn(c)).idct(scale);
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                ((DenseDoubleMatrix1D) viewColumn(c)).idct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                ((DenseDoubleMatrix1D) viewColumn(c)).idct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    ((DenseDoubleMatrix1D) viewColumn(c)).idct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -2024,35 +2016,36 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idctRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            ((DenseDoubleMatrix1D) viewRow(r)).idct(scale);
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                ((DenseDoubleMatrix1D) viewRow(r)).idct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDoubleMatrix1D) viewRow(r)).idct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDoubleMatrix1D) viewRow(r)).idct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2065,14 +2058,15 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      */
     public void idht2(boolean scale) {
         DoubleMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht2 == null) {
-            dht2 = new DoubleDHT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_2D dht2 = TransformPlans.acquire(DoubleDHT_2D.class, rows, columns);
+            dht2.inverse((double[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(dht2, rows, columns);
+        } finally {
+            context.close();
         }
-        dht2.inverse((double[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2084,35 +2078,36 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idhtColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            ((DenseDoubleMatrix1D) viewColumn(c)).idht(scale);
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                ((DenseDoubleMatrix1D) viewColumn(c)).idht(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                ((DenseDoubleMatrix1D) viewColumn(c)).idht(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    ((DenseDoubleMatrix1D) viewColumn(c)).idht(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2124,35 +2119,36 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idhtRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            ((DenseDoubleMatrix1D) viewRow(r)).idht(scale);
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                ((DenseDoubleMatrix1D) viewRow(r)).idht(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDoubleMatrix1D) viewRow(r)).idht(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDoubleMatrix1D) viewRow(r)).idht(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2165,14 +2161,15 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      */
     public void idst2(boolean scale) {
         DoubleMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst2 == null) {
-            dst2 = new DoubleDST_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_2D dst2 = TransformPlans.acquire(DoubleDST_2D.class, rows, columns);
+            dst2.inverse((double[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(dst2, rows, columns);
+        } finally {
+            context.close();
         }
-        dst2.inverse((double[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2184,31 +2181,35 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idstColumns(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            ((DenseDoubleMatrix1D) viewColumn(c)).idst(scale);
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                ((DenseDoubleMatrix1D) viewColumn(c)).idst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                ((DenseDoubleMatrix1D) viewColumn(c)).idst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    ((DenseDoubleMatrix1D) viewColumn(c)).idst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -2221,35 +2222,36 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idstRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            ((DenseDoubleMatrix1D) viewRow(r)).idst(scale);
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                ((DenseDoubleMatrix1D) viewRow(r)).idst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDoubleMatrix1D) viewRow(r)).idst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDoubleMatrix1D) viewRow(r)).idst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2288,14 +2290,15 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
      */
     public void ifft2(boolean scale) {
         DoubleMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            fft2.realInverse((double[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        fft2.realInverse((double[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public long index(int row, int column) {
@@ -2362,9 +2365,9 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = elements[zero + (rows - 1) * rowStride + (columns - 1) * columnStride];
@@ -2440,9 +2443,9 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = elements[zero + (rows - 1) * rowStride + (columns - 1) * columnStride];
@@ -2634,8 +2637,8 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
             throw new InternalError();
         final int zero = (int) index(0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(columns);
             Future<?>[] futures = new Future[nthreads];
             int k = columns / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -2662,9 +2665,9 @@ public class DenseColumnDoubleMatrix2D extends DoubleMatrix2D {
                     sum += (Double) futures[j].get();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
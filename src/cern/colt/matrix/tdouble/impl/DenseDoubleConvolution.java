@@ -0,0 +1,608 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Arrays;
+
+import cern.colt.matrix.ConvolutionMode;
+import cern.colt.matrix.TransformPlans;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.DoubleMatrix3D;
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_2D;
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_3D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
+
+/**
+ * Convolution and correlation of the dense matrices.
+ * <p>
+ * Both operations are reduced to the correlation of a zero padded window of
+ * the matrix, which covers exactly the cells needed by the requested part of
+ * the result, with a contiguous copy of the kernel (flipped for a
+ * convolution). The correlation is computed by the cheapest of three
+ * algorithms, according to an estimate of their costs:
+ * <ul>
+ * <li>direct: for kernels of at most <tt>DIRECT_MAX</tt> cells, each cell of
+ * the result is the sum of the products of a window cell and a kernel cell;</li>
+ * <li>blocked direct: each kernel cell is multiplied with a shifted run of the
+ * window and added to a run of at most <tt>TILE</tt> cells of the result, a
+ * unit stride loop that stays in the L1 cache and that the JIT compiles to
+ * SIMD instructions;</li>
+ * <li>FFT: the window and the kernel are transformed with JTransforms, padded
+ * to powers of two (or to sizes whose only prime factors are 2, 3 and 5 if
+ * that is cheaper), multiplied and transformed back. Long 1-d signals are
+ * split into blocks that are transformed one at a time and whose results are
+ * added (overlap-add), so that the transforms stay small.</li>
+ * </ul>
+ * The direct algorithms split the result among the threads if the number of
+ * multiply-adds is at least the threshold of the kernel
+ * <tt>"DenseDoubleMatrix1D.convolve"</tt> (<tt>2D</tt>, <tt>3D</tt>).
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+final class DenseDoubleConvolution {
+
+    /*
+     * Kernels of at most this many cells are applied by the direct algorithm.
+     */
+    static final int DIRECT_MAX = 16;
+
+    /*
+     * Length of the runs of the result of the blocked direct algorithm.
+     */
+    static final int TILE = DenseDoubleKernels.BLOCK;
+
+    /*
+     * Cost of a real FFT of a power of two size n, per n * log2(n), relative to
+     * one multiply-add of the direct algorithms.
+     */
+    static final double FFT_COST = 3.0;
+
+    /*
+     * Factor by which the mixed radix FFTs of the other sizes are slower.
+     */
+    static final double MIXED_RADIX_COST = 1.5;
+
+    /*
+     * Minimal size of the FFTs of an overlap-add.
+     */
+    private static final int OVERLAP_ADD_MIN = 1024;
+
+    private DenseDoubleConvolution() {
+    }
+
+    /**
+     * Returns the convolution (<tt>flip == true</tt>) or correlation of
+     * <tt>A</tt> with the kernel.
+     */
+    static DenseDoubleMatrix1D apply(DenseDoubleMatrix1D A, DoubleMatrix1D kernel, ConvolutionMode mode,
+            boolean flip) {
+        int n = (int) A.size();
+        int k = (int) kernel.size();
+        checkKernel(k);
+        int m = size(n, k, mode);
+        double[] g = new double[k];
+        for (int j = 0; j < k; j++) {
+            g[j] = kernel.getQuick(flip ? k - 1 - j : j);
+        }
+        int off = start(k, mode) - (k - 1);
+        int length = m + k - 1;
+        double[] p = new double[length];
+        int first = Math.max(0, -off);
+        int last = Math.min(length, n - off);
+        int stride = A.stride();
+        for (int t = first, i = (int) A.index(off + first); t < last; t++, i += stride) {
+            p[t] = A.elements[i];
+        }
+        return new DenseDoubleMatrix1D(m, correlate(p, g, m), 0, 1, false);
+    }
+
+    /**
+     * Returns the convolution (<tt>flip == true</tt>) or correlation of
+     * <tt>A</tt> with the kernel.
+     */
+    static DenseDoubleMatrix2D apply(DenseDoubleMatrix2D A, DoubleMatrix2D kernel, ConvolutionMode mode,
+            boolean flip) {
+        int rows = A.rows();
+        int columns = A.columns();
+        int kr = kernel.rows();
+        int kc = kernel.columns();
+        checkKernel(kr * kc);
+        int mr = size(rows, kr, mode);
+        int mc = size(columns, kc, mode);
+        double[] g = new double[kr * kc];
+        for (int a = 0; a < kr; a++) {
+            for (int b = 0; b < kc; b++) {
+                g[a * kc + b] = kernel.getQuick(flip ? kr - 1 - a : a, flip ? kc - 1 - b : b);
+            }
+        }
+        int offR = start(kr, mode) - (kr - 1);
+        int offC = start(kc, mode) - (kc - 1);
+        int lr = mr + kr - 1;
+        int lc = mc + kc - 1;
+        double[] p = new double[lr * lc];
+        int firstR = Math.max(0, -offR);
+        int lastR = Math.min(lr, rows - offR);
+        int firstC = Math.max(0, -offC);
+        int lastC = Math.min(lc, columns - offC);
+        int columnStride = A.columnStride();
+        for (int t = firstR; t < lastR; t++) {
+            for (int u = firstC, i = (int) A.index(offR + t, offC + firstC); u < lastC; u++, i += columnStride) {
+                p[t * lc + u] = A.elements[i];
+            }
+        }
+        double[] out = (mr == 0 || mc == 0) ? new double[0] : correlate(p, g, kr, kc, mr, mc);
+        return new DenseDoubleMatrix2D(mr, mc, out, 0, 0, mc, 1, false);
+    }
+
+    /**
+     * Returns the convolution (<tt>flip == true</tt>) or correlation of
+     * <tt>A</tt> with the kernel.
+     */
+    static DenseDoubleMatrix3D apply(DenseDoubleMatrix3D A, DoubleMatrix3D kernel, ConvolutionMode mode,
+            boolean flip) {
+        int slices = A.slices();
+        int rows = A.rows();
+        int columns = A.columns();
+        int ks = kernel.slices();
+        int kr = kernel.rows();
+        int kc = kernel.columns();
+        checkKernel(ks * kr * kc);
+        int ms = size(slices, ks, mode);
+        int mr = size(rows, kr, mode);
+        int mc = size(columns, kc, mode);
+        double[] g = new double[ks * kr * kc];
+        for (int a = 0; a < ks; a++) {
+            for (int b = 0; b < kr; b++) {
+                for (int c = 0; c < kc; c++) {
+                    g[(a * kr + b) * kc + c] = kernel.getQuick(flip ? ks - 1 - a : a, flip ? kr - 1 - b : b,
+                            flip ? kc - 1 - c : c);
+                }
+            }
+        }
+        int offS = start(ks, mode) - (ks - 1);
+        int offR = start(kr, mode) - (kr - 1);
+        int offC = start(kc, mode) - (kc - 1);
+        int ls = ms + ks - 1;
+        int lr = mr + kr - 1;
+        int lc = mc + kc - 1;
+        double[] p = new double[ls * lr * lc];
+        int firstS = Math.max(0, -offS);
+        int lastS = Math.min(ls, slices - offS);
+        int firstR = Math.max(0, -offR);
+        int lastR = Math.min(lr, rows - offR);
+        int firstC = Math.max(0, -offC);
+        int lastC = Math.min(lc, columns - offC);
+        int columnStride = A.columnStride();
+        for (int s = firstS; s < lastS; s++) {
+            for (int t = firstR; t < lastR; t++) {
+                int idx = (s * lr + t) * lc;
+                int i = (int) A.index(offS + s, offR + t, offC + firstC);
+                for (int u = firstC; u < lastC; u++, i += columnStride) {
+                    p[idx + u] = A.elements[i];
+                }
+            }
+        }
+        double[] out = (ms == 0 || mr == 0 || mc == 0) ? new double[0] : correlate(p, g, ks, kr, kc, ms, mr, mc);
+        return new DenseDoubleMatrix3D(ms, mr, mc, out, 0, 0, 0, mr * mc, mc, 1, false);
+    }
+
+    /**
+     * Returns the smallest integer greater than or equal to <tt>n</tt> whose
+     * only prime factors are 2, 3 and 5.
+     */
+    static int nextSmooth(int n) {
+        int best = ConcurrencyUtils.nextPow2(n);
+        for (int p5 = 1; p5 < best; p5 *= 5) {
+            for (int p35 = p5; p35 < best; p35 *= 3) {
+                int p = p35;
+                while (p < n) {
+                    p *= 2;
+                }
+                best = Math.min(best, p);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the size of the FFT used for <tt>n</tt> cells: the next power of
+     * two, unless the next size whose only prime factors are 2, 3 and 5 is
+     * cheaper in spite of the slower mixed radix transform.
+     */
+    static int fftSize(int n) {
+        int pow2 = ConcurrencyUtils.nextPow2(n);
+        int smooth = nextSmooth(n);
+        return (pow2 <= MIXED_RADIX_COST * smooth) ? pow2 : smooth;
+    }
+
+    private static void checkKernel(long size) {
+        if (size == 0) {
+            throw new IllegalArgumentException("kernel is empty");
+        }
+    }
+
+    /*
+     * Size of the result along a dimension.
+     */
+    private static int size(int n, int k, ConvolutionMode mode) {
+        switch (mode) {
+        case Full:
+            return n + k - 1;
+        case Same:
+            return n;
+        default:
+            return Math.max(n - k + 1, 0);
+        }
+    }
+
+    /*
+     * Index of the first cell of the result in the full result.
+     */
+    private static int start(int k, ConvolutionMode mode) {
+        switch (mode) {
+        case Full:
+            return 0;
+        case Same:
+            return (k - 1) / 2;
+        default:
+            return k - 1;
+        }
+    }
+
+    /*
+     * Estimated cost of a real FFT with n cells.
+     */
+    private static double fftCost(long n, boolean powerOf2) {
+        return FFT_COST * (powerOf2 ? 1 : MIXED_RADIX_COST) * n * (Math.log(n) / Math.log(2));
+    }
+
+    private static boolean useThreads(long work, int threshold) {
+        return (ConcurrencyUtils.getNumberOfThreads() > 1) && (work >= threshold);
+    }
+
+    /*
+     * Returns out[i] = Sum(p[i + j] * g[j]), 0 <= i < m.
+     */
+    private static double[] correlate(final double[] p, final double[] g, final int m) {
+        final int k = g.length;
+        final double[] out = new double[m];
+        if (m == 0) {
+            return out;
+        }
+        long work = (long) m * k;
+        if (k > DIRECT_MAX) {
+            int length = p.length;
+            // the packed format of the transforms requires an even size
+            int n = 2 * fftSize((length + 1) / 2);
+            double fft = 3 * fftCost(n, ConcurrencyUtils.isPowerOf2(n));
+            int blockN = Math.max(OVERLAP_ADD_MIN, ConcurrencyUtils.nextPow2(4 * k));
+            int blocks = (length - 1) / (blockN - k + 1) + 1;
+            double overlapAdd = (2 * blocks + 1) * fftCost(blockN, true);
+            if ((blocks > 1) && (overlapAdd < fft) && (overlapAdd < work)) {
+                overlapAdd(p, g, out, blockN, blocks);
+                return out;
+            }
+            if (fft < work) {
+                ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+                try {
+                    double[] a = new double[n];
+                    System.arraycopy(p, 0, a, 0, length);
+                    double[] h = new double[n];
+                    for (int j = 0; j < k; j++) {
+                        h[j] = g[k - 1 - j];
+                    }
+                    DoubleFFT_1D fft1 = TransformPlans.acquire(DoubleFFT_1D.class, n);
+                    fft1.realForward(a);
+                    fft1.realForward(h);
+                    multiplyPacked(a, h, n);
+                    fft1.realInverse(a, true);
+                    TransformPlans.release(fft1, n);
+                    System.arraycopy(a, k - 1, out, 0, m);
+                } finally {
+                    context.close();
+                }
+                return out;
+            }
+        }
+        RangeProcedure procedure;
+        if (k <= DIRECT_MAX) {
+            procedure = new RangeProcedure() {
+                public void apply(int first, int last) {
+                    for (int i = first; i < last; i++) {
+                        double sum = 0;
+                        for (int j = 0; j < k; j++) {
+                            sum += p[i + j] * g[j];
+                        }
+                        out[i] = sum;
+                    }
+                }
+            };
+        } else {
+            procedure = new RangeProcedure() {
+                public void apply(int first, int last) {
+                    for (int i0 = first; i0 < last; i0 += TILE) {
+                        int i1 = Math.min(last, i0 + TILE);
+                        for (int j = 0; j < k; j++) {
+                            double gj = g[j];
+                            for (int i = i0, q = i0 + j; i < i1; i++, q++) {
+                                out[i] += gj * p[q];
+                            }
+                        }
+                    }
+                }
+            };
+        }
+        if (useThreads(work, ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.convolve"))) {
+            ConcurrencyUtils.parallelFor(0, m, ConcurrencyUtils.getGrainSize(m, TILE), procedure);
+        } else {
+            procedure.apply(0, m);
+        }
+        return out;
+    }
+
+    /*
+     * Overlap-add: the window is split into blocks of n - k + 1 cells, which
+     * are convolved one at a time with FFTs of size n. The results of two
+     * consecutive blocks overlap, so the even and the odd blocks are done in
+     * two parallel rounds.
+     */
+    private static void overlapAdd(final double[] p, final double[] g, final double[] out, final int n,
+            final int blocks) {
+        final int k = g.length;
+        final int block = n - k + 1;
+        final double[] h = new double[n];
+        for (int j = 0; j < k; j++) {
+            h[j] = g[k - 1 - j];
+        }
+        DoubleFFT_1D fftH = TransformPlans.acquire(DoubleFFT_1D.class, n);
+        fftH.realForward(h);
+        TransformPlans.release(fftH, n);
+        boolean parallel = useThreads((long) blocks * n,
+                ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.convolve"));
+        for (int round = 0; round < 2; round++) {
+            final int phase = round;
+            RangeProcedure procedure = new RangeProcedure() {
+                public void apply(int first, int last) {
+                    DoubleFFT_1D fft = TransformPlans.acquire(DoubleFFT_1D.class, n);
+                    double[] a = new double[n];
+                    for (int t = first; t < last; t++) {
+                        int q0 = (2 * t + phase) * block;
+                        int q1 = Math.min(p.length, q0 + block);
+                        Arrays.fill(a, 0);
+                        System.arraycopy(p, q0, a, 0, q1 - q0);
+                        fft.realForward(a);
+                        multiplyPacked(a, h, n);
+                        fft.realInverse(a, true);
+                        // cell u of the block result is cell q0 + u - (k - 1) of out
+                        int u0 = Math.max(0, k - 1 - q0);
+                        int u1 = Math.min(q1 - q0 + k - 1, out.length + k - 1 - q0);
+                        for (int u = u0, i = q0 + u0 - (k - 1); u < u1; u++, i++) {
+                            out[i] += a[u];
+                        }
+                    }
+                    TransformPlans.release(fft, n);
+                }
+            };
+            int count = (blocks - phase + 1) / 2;
+            if (parallel) {
+                ConcurrencyUtils.parallelFor(0, count, 1, procedure);
+            } else {
+                procedure.apply(0, count);
+            }
+        }
+    }
+
+    /*
+     * Returns out[i][j] = Sum(p[i + a][j + b] * g[a][b]), 0 <= i < mr, 0 <= j
+     * < mc, for row-major arrays.
+     */
+    private static double[] correlate(final double[] p, final double[] g, final int kr, final int kc, final int mr,
+            final int mc) {
+        final int lr = mr + kr - 1;
+        final int lc = mc + kc - 1;
+        final double[] out = new double[mr * mc];
+        long work = (long) mr * mc * kr * kc;
+        if (kr * kc > DIRECT_MAX) {
+            int n0 = fftSize(lr);
+            int n1 = fftSize(lc);
+            boolean powerOf2 = ConcurrencyUtils.isPowerOf2(n0) && ConcurrencyUtils.isPowerOf2(n1);
+            // a full complex transform costs about three real ones
+            if (9 * fftCost((long) n0 * n1, powerOf2) < work) {
+                ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+                try {
+                    double[] a = new double[2 * n0 * n1];
+                    for (int r = 0; r < lr; r++) {
+                        System.arraycopy(p, r * lc, a, r * n1, lc);
+                    }
+                    double[] h = new double[2 * n0 * n1];
+                    for (int r = 0; r < kr; r++) {
+                        for (int c = 0; c < kc; c++) {
+                            h[r * n1 + c] = g[(kr - 1 - r) * kc + kc - 1 - c];
+                        }
+                    }
+                    DoubleFFT_2D fft = TransformPlans.acquire(DoubleFFT_2D.class, n0, n1);
+                    fft.realForwardFull(a);
+                    fft.realForwardFull(h);
+                    multiply(a, h);
+                    fft.complexInverse(a, true);
+                    TransformPlans.release(fft, n0, n1);
+                    for (int i = 0; i < mr; i++) {
+                        for (int j = 0, idx = (i + kr - 1) * 2 * n1 + 2 * (kc - 1); j < mc; j++, idx += 2) {
+                            out[i * mc + j] = a[idx];
+                        }
+                    }
+                } finally {
+                    context.close();
+                }
+                return out;
+            }
+        }
+        final boolean direct = kr * kc <= DIRECT_MAX;
+        RangeProcedure procedure = new RangeProcedure() {
+            public void apply(int first, int last) {
+                for (int i = first; i < last; i++) {
+                    correlateRow(p, lc, g, kr, kc, i, out, i * mc, mc, direct);
+                }
+            }
+        };
+        if (useThreads(work, ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.convolve"))) {
+            ConcurrencyUtils.parallelFor(0, mr, ConcurrencyUtils.getGrainSize(mr, 1), procedure);
+        } else {
+            procedure.apply(0, mr);
+        }
+        return out;
+    }
+
+    /*
+     * Returns out[s][i][j] = Sum(p[s + a][i + b][j + c] * g[a][b][c]) for
+     * row-major arrays.
+     */
+    private static double[] correlate(final double[] p, final double[] g, final int ks, final int kr, final int kc,
+            final int ms, final int mr, final int mc) {
+        final int ls = ms + ks - 1;
+        final int lr = mr + kr - 1;
+        final int lc = mc + kc - 1;
+        final double[] out = new double[ms * mr * mc];
+        long work = (long) ms * mr * mc * ks * kr * kc;
+        if (ks * kr * kc > DIRECT_MAX) {
+            int n0 = fftSize(ls);
+            int n1 = fftSize(lr);
+            int n2 = fftSize(lc);
+            boolean powerOf2 = ConcurrencyUtils.isPowerOf2(n0) && ConcurrencyUtils.isPowerOf2(n1)
+                    && ConcurrencyUtils.isPowerOf2(n2);
+            if (9 * fftCost((long) n0 * n1 * n2, powerOf2) < work) {
+                ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+                try {
+                    double[] a = new double[2 * n0 * n1 * n2];
+                    for (int s = 0; s < ls; s++) {
+                        for (int r = 0; r < lr; r++) {
+                            System.arraycopy(p, (s * lr + r) * lc, a, (s * n1 + r) * n2, lc);
+                        }
+                    }
+                    double[] h = new double[2 * n0 * n1 * n2];
+                    for (int s = 0; s < ks; s++) {
+                        for (int r = 0; r < kr; r++) {
+                            for (int c = 0; c < kc; c++) {
+                                h[(s * n1 + r) * n2 + c] = g[((ks - 1 - s) * kr + kr - 1 - r) * kc + kc - 1 - c];
+                            }
+                        }
+                    }
+                    DoubleFFT_3D fft = TransformPlans.acquire(DoubleFFT_3D.class, n0, n1, n2);
+                    fft.realForwardFull(a);
+                    fft.realForwardFull(h);
+                    multiply(a, h);
+                    fft.complexInverse(a, true);
+                    TransformPlans.release(fft, n0, n1, n2);
+                    for (int s = 0; s < ms; s++) {
+                        for (int i = 0; i < mr; i++) {
+                            int idx = ((s + ks - 1) * n1 + i + kr - 1) * 2 * n2 + 2 * (kc - 1);
+                            for (int j = 0, o = (s * mr + i) * mc; j < mc; j++, idx += 2) {
+                                out[o + j] = a[idx];
+                            }
+                        }
+                    }
+                } finally {
+                    context.close();
+                }
+                return out;
+            }
+        }
+        final boolean direct = ks * kr * kc <= DIRECT_MAX;
+        RangeProcedure procedure = new RangeProcedure() {
+            public void apply(int first, int last) {
+                for (int l = first; l < last; l++) {
+                    int s = l / mr;
+                    int i = l % mr;
+                    for (int a = 0; a < ks; a++) {
+                        int row = (s + a) * lr + i;
+                        correlateRow(p, lc, g, a * kr * kc, kr, kc, row, out, l * mc, mc, direct, a > 0);
+                    }
+                }
+            }
+        };
+        if (useThreads(work, ConcurrencyUtils.getThreadsBeginN_3D("DenseDoubleMatrix3D.convolve"))) {
+            ConcurrencyUtils.parallelFor(0, ms * mr, ConcurrencyUtils.getGrainSize(ms * mr, 1), procedure);
+        } else {
+            procedure.apply(0, ms * mr);
+        }
+        return out;
+    }
+
+    /*
+     * Computes one row of a 2-d correlation.
+     */
+    private static void correlateRow(double[] p, int lc, double[] g, int kr, int kc, int row, double[] out, int o,
+            int mc, boolean direct) {
+        correlateRow(p, lc, g, 0, kr, kc, row, out, o, mc, direct, false);
+    }
+
+    /*
+     * Adds (accumulate == true) or stores out[o + j] = Sum(p[(row + a) * lc +
+     * j + b] * g[g0 + a * kc + b]), 0 <= j < mc.
+     */
+    private static void correlateRow(double[] p, int lc, double[] g, int g0, int kr, int kc, int row, double[] out,
+            int o, int mc, boolean direct, boolean accumulate) {
+        if (direct) {
+            for (int j = 0; j < mc; j++) {
+                double sum = accumulate ? out[o + j] : 0;
+                for (int a = 0; a < kr; a++) {
+                    int q = (row + a) * lc + j;
+                    int ga = g0 + a * kc;
+                    for (int b = 0; b < kc; b++) {
+                        sum += p[q + b] * g[ga + b];
+                    }
+                }
+                out[o + j] = sum;
+            }
+            return;
+        }
+        for (int j0 = 0; j0 < mc; j0 += TILE) {
+            int j1 = Math.min(mc, j0 + TILE);
+            for (int a = 0; a < kr; a++) {
+                for (int b = 0; b < kc; b++) {
+                    double gab = g[g0 + a * kc + b];
+                    for (int j = j0, q = (row + a) * lc + b + j0; j < j1; j++, q++) {
+                        out[o + j] += gab * p[q];
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * a *= b for two real transforms of even size n in the packed format of
+     * DoubleFFT_1D.realForward.
+     */
+    private static void multiplyPacked(double[] a, double[] b, int n) {
+        a[0] *= b[0];
+        a[1] *= b[1];
+        for (int i = 2; i < n; i += 2) {
+            double re = a[i] * b[i] - a[i + 1] * b[i + 1];
+            double im = a[i] * b[i + 1] + a[i + 1] * b[i];
+            a[i] = re;
+            a[i + 1] = im;
+        }
+    }
+
+    /*
+     * a *= b for two arrays of interleaved complex numbers.
+     */
+    private static void multiply(double[] a, double[] b) {
+        for (int i = 0; i < a.length; i += 2) {
+            double re = a[i] * b[i] - a[i + 1] * b[i + 1];
+            double im = a[i] * b[i + 1] + a[i + 1] * b[i];
+            a[i] = re;
+            a[i + 1] = im;
+        }
+    }
+}
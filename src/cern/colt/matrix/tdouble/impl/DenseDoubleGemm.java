@@ -0,0 +1,314 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
+
+/**
+ * Blocked matrix-matrix multiplication <tt>C = alpha * A * B + beta * C</tt>
+ * on strided <tt>double</tt> arrays.
+ * <p>
+ * The computation follows the layered scheme of optimized BLAS libraries: C
+ * is cut into tiles of at most <tt>MC x NC</tt> elements, the inner
+ * dimension into slices of <tt>KC</tt>. For each slice the panel of B (
+ * <tt>KC x NC</tt>, sized for the L3 cache) is packed once for the tiles of a
+ * task in the same columns, and the block of A (<tt>MC x KC</tt>, sized for
+ * the L2 cache) once for each of these tiles. The buffers are ordered so
+ * that a micro-kernel updating an <tt>MR x NR</tt> register tile of C reads
+ * both operands sequentially. Tiles of C are independent, so they are
+ * distributed over the threads of {@link ConcurrencyUtils}. Any strides are
+ * accepted; transposed operands are passed by swapping their row and column
+ * strides.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+final class DenseDoubleGemm {
+
+    /*
+     * Rows of the register tile of C.
+     */
+    static final int MR = 4;
+
+    /*
+     * Columns of the register tile of C.
+     */
+    static final int NR = 4;
+
+    /*
+     * Rows of a packed block of A.
+     */
+    static final int MC = 128;
+
+    /*
+     * Length of a slice of the inner dimension.
+     */
+    static final int KC = 256;
+
+    /*
+     * Columns of a packed panel of B.
+     */
+    static final int NC = 2048;
+
+    private DenseDoubleGemm() {
+    }
+
+    /**
+     * Computes <tt>C = alpha * A * B + beta * C</tt>, where A is
+     * <tt>m x k</tt>, B is <tt>k x n</tt> and C is <tt>m x n</tt>. Element
+     * <tt>(i, j)</tt> of a matrix <tt>X</tt> is stored at
+     * <tt>x[xZero + i * xRowStride + j * xColumnStride]</tt>. C must not
+     * share cells with A or B.
+     *
+     * @param parallel
+     *            whether the tiles of C may be processed by several threads
+     */
+    static void gemm(final int m, final int n, final int k, final double alpha, final double[] a, final int aZero,
+            final int aRowStride, final int aColumnStride, final double[] b, final int bZero, final int bRowStride,
+            final int bColumnStride, final double beta, final double[] c, final int cZero, final int cRowStride,
+            final int cColumnStride, boolean parallel) {
+        if (m == 0 || n == 0) {
+            return;
+        }
+        int tileRows = Math.min(MC, m);
+        int tileColumns = Math.min(NC, n);
+        if (parallel) {
+            // make enough tiles for the workers to balance the load
+            int minTiles = 4 * ConcurrencyUtils.getNumberOfThreads();
+            while (tiles(m, tileRows) * tiles(n, tileColumns) < minTiles) {
+                if (tileColumns >= 2 * Math.max(tileRows, 8 * NR)) {
+                    tileColumns = roundUp((tileColumns + 1) / 2, NR);
+                } else if (tileRows >= 4 * MR) {
+                    tileRows = roundUp((tileRows + 1) / 2, MR);
+                } else {
+                    break;
+                }
+            }
+        }
+        final int mc = tileRows;
+        final int nc = tileColumns;
+        final int mTiles = tiles(m, mc);
+        final int nTiles = tiles(n, nc);
+        final int kc = Math.min(KC, k);
+        RangeProcedure procedure = new RangeProcedure() {
+            public void apply(int first, int last) {
+                double[] packedA = new double[roundUp(mc, MR) * kc];
+                double[] packedB = new double[roundUp(nc, NR) * kc];
+                double[] work = new double[MR * NR];
+                for (int t = first; t < last;) {
+                    // consecutive tiles share the columns of C and so the
+                    // panels of B
+                    int j0 = (t / mTiles) * nc;
+                    int nb = Math.min(nc, n - j0);
+                    int tEnd = Math.min(last, (t / mTiles + 1) * mTiles);
+                    for (int s = t; s < tEnd; s++) {
+                        int i0 = (s % mTiles) * mc;
+                        scale(Math.min(mc, m - i0), nb, beta, c, cZero + i0 * cRowStride + j0 * cColumnStride,
+                                cRowStride, cColumnStride);
+                    }
+                    for (int p0 = 0; p0 < k && alpha != 0; p0 += kc) {
+                        ConcurrencyUtils.checkCancelled();
+                        int kb = Math.min(kc, k - p0);
+                        packB(kb, nb, b, bZero + p0 * bRowStride + j0 * bColumnStride, bRowStride, bColumnStride,
+                                packedB);
+                        for (int s = t; s < tEnd; s++) {
+                            int i0 = (s % mTiles) * mc;
+                            int mb = Math.min(mc, m - i0);
+                            int cTile = cZero + i0 * cRowStride + j0 * cColumnStride;
+                            packA(mb, kb, a, aZero + i0 * aRowStride + p0 * aColumnStride, aRowStride, aColumnStride,
+                                    packedA);
+                            for (int jr = 0; jr < nb; jr += NR) {
+                                int nr = Math.min(NR, nb - jr);
+                                for (int ir = 0; ir < mb; ir += MR) {
+                                    int mr = Math.min(MR, mb - ir);
+                                    kernel(kb, alpha, packedA, ir * kb, packedB, jr * kb, c, cTile + ir * cRowStride
+                                            + jr * cColumnStride, cRowStride, cColumnStride, mr, nr, work);
+                                }
+                            }
+                        }
+                    }
+                    t = tEnd;
+                }
+            }
+        };
+        int nTotal = mTiles * nTiles;
+        if (parallel && nTotal > 1) {
+            ConcurrencyUtils.parallelFor(0, nTotal, 1, procedure);
+        } else {
+            procedure.apply(0, nTotal);
+        }
+    }
+
+    private static int tiles(int n, int tile) {
+        return (n + tile - 1) / tile;
+    }
+
+    private static int roundUp(int n, int multiple) {
+        return ((n + multiple - 1) / multiple) * multiple;
+    }
+
+    private static void scale(int mb, int nb, double beta, double[] c, int cZero, int cRowStride, int cColumnStride) {
+        if (beta == 1) {
+            return;
+        }
+        for (int i = 0; i < mb; i++) {
+            int idx = cZero + i * cRowStride;
+            if (beta == 0) {
+                for (int j = 0; j < nb; j++) {
+                    c[idx] = 0;
+                    idx += cColumnStride;
+                }
+            } else {
+                for (int j = 0; j < nb; j++) {
+                    c[idx] *= beta;
+                    idx += cColumnStride;
+                }
+            }
+        }
+    }
+
+    /*
+     * Packs an mb x kb block of A as row panels of MR rows; within a panel the
+     * MR elements of each column are contiguous. Missing rows of the last
+     * panel are padded with zeros.
+     */
+    private static void packA(int mb, int kb, double[] a, int aZero, int aRowStride, int aColumnStride,
+            double[] packed) {
+        int idx = 0;
+        for (int ir = 0; ir < mb; ir += MR) {
+            int mr = Math.min(MR, mb - ir);
+            int rowZero = aZero + ir * aRowStride;
+            for (int p = 0; p < kb; p++) {
+                int aIdx = rowZero + p * aColumnStride;
+                int i = 0;
+                for (; i < mr; i++) {
+                    packed[idx++] = a[aIdx];
+                    aIdx += aRowStride;
+                }
+                for (; i < MR; i++) {
+                    packed[idx++] = 0;
+                }
+            }
+        }
+    }
+
+    /*
+     * Packs a kb x nb panel of B as column panels of NR columns; within a
+     * panel the NR elements of each row are contiguous. Missing columns of the
+     * last panel are padded with zeros.
+     */
+    private static void packB(int kb, int nb, double[] b, int bZero, int bRowStride, int bColumnStride,
+            double[] packed) {
+        int idx = 0;
+        for (int jr = 0; jr < nb; jr += NR) {
+            int nr = Math.min(NR, nb - jr);
+            int columnZero = bZero + jr * bColumnStride;
+            for (int p = 0; p < kb; p++) {
+                int bIdx = columnZero + p * bRowStride;
+                int j = 0;
+                for (; j < nr; j++) {
+                    packed[idx++] = b[bIdx];
+                    bIdx += bColumnStride;
+                }
+                for (; j < NR; j++) {
+                    packed[idx++] = 0;
+                }
+            }
+        }
+    }
+
+    /*
+     * Adds alpha times the product of a packed MR x kb panel of A and a packed
+     * kb x NR panel of B to the mr x nr tile of C starting at cIdx. The tile
+     * is accumulated in local variables, which the JIT keeps in registers.
+     */
+    private static void kernel(int kb, double alpha, double[] a, int aIdx, double[] b, int bIdx, double[] c,
+            int cIdx, int cRowStride, int cColumnStride, int mr, int nr, double[] work) {
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+        for (int p = 0; p < kb; p++) {
+            double a0 = a[aIdx];
+            double a1 = a[aIdx + 1];
+            double a2 = a[aIdx + 2];
+            double a3 = a[aIdx + 3];
+            double b0 = b[bIdx];
+            double b1 = b[bIdx + 1];
+            double b2 = b[bIdx + 2];
+            double b3 = b[bIdx + 3];
+            c00 += a0 * b0;
+            c01 += a0 * b1;
+            c02 += a0 * b2;
+            c03 += a0 * b3;
+            c10 += a1 * b0;
+            c11 += a1 * b1;
+            c12 += a1 * b2;
+            c13 += a1 * b3;
+            c20 += a2 * b0;
+            c21 += a2 * b1;
+            c22 += a2 * b2;
+            c23 += a2 * b3;
+            c30 += a3 * b0;
+            c31 += a3 * b1;
+            c32 += a3 * b2;
+            c33 += a3 * b3;
+            aIdx += MR;
+            bIdx += NR;
+        }
+        if (mr == MR && nr == NR) {
+            int i0 = cIdx;
+            int i1 = i0 + cRowStride;
+            int i2 = i1 + cRowStride;
+            int i3 = i2 + cRowStride;
+            int cs = cColumnStride;
+            c[i0] += alpha * c00;
+            c[i0 + cs] += alpha * c01;
+            c[i0 + 2 * cs] += alpha * c02;
+            c[i0 + 3 * cs] += alpha * c03;
+            c[i1] += alpha * c10;
+            c[i1 + cs] += alpha * c11;
+            c[i1 + 2 * cs] += alpha * c12;
+            c[i1 + 3 * cs] += alpha * c13;
+            c[i2] += alpha * c20;
+            c[i2 + cs] += alpha * c21;
+            c[i2 + 2 * cs] += alpha * c22;
+            c[i2 + 3 * cs] += alpha * c23;
+            c[i3] += alpha * c30;
+            c[i3 + cs] += alpha * c31;
+            c[i3 + 2 * cs] += alpha * c32;
+            c[i3 + 3 * cs] += alpha * c33;
+        } else {
+            // edge tile: only the first mr rows and nr columns exist in C
+            work[0] = c00;
+            work[1] = c01;
+            work[2] = c02;
+            work[3] = c03;
+            work[4] = c10;
+            work[5] = c11;
+            work[6] = c12;
+            work[7] = c13;
+            work[8] = c20;
+            work[9] = c21;
+            work[10] = c22;
+            work[11] = c23;
+            work[12] = c30;
+            work[13] = c31;
+            work[14] = c32;
+            work[15] = c33;
+            for (int i = 0; i < mr; i++) {
+                int idx = cIdx + i * cRowStride;
+                for (int j = 0; j < nr; j++) {
+                    c[idx] += alpha * work[i * NR + j];
+                    idx += cColumnStride;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,653 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+import cern.colt.function.tdouble.DoubleDoubleFunction;
+import cern.colt.function.tdouble.DoubleFunction;
+import cern.jet.math.tdouble.DoubleChain;
+import cern.jet.math.tdouble.DoubleDoubleChain;
+import cern.jet.math.tdouble.DoubleFunctions;
+import cern.jet.math.tdouble.DoubleMult;
+import cern.jet.math.tdouble.DoublePlus;
+import cern.jet.math.tdouble.DoublePlusMultFirst;
+import cern.jet.math.tdouble.DoublePlusMultSecond;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.DoubleRangeFunction;
+
+/**
+ * Element-wise kernels of the dense matrices, applied to strided runs of a
+ * <tt>double</tt> array.
+ * <p>
+ * Calling a function object per element is a megamorphic call that the JIT
+ * can neither inline nor vectorize. The standard functions of
+ * {@link DoubleFunctions} (and the classes <tt>DoubleMult</tt>,
+ * <tt>DoublePlus</tt>, <tt>DoublePlusMultFirst</tt> and
+ * <tt>DoublePlusMultSecond</tt>) are therefore recognized and applied with a
+ * loop of their own; unit stride runs use a counted loop over consecutive
+ * indices, which the JIT compiles to SIMD instructions. Chains built by
+ * <tt>DoubleFunctions.chain(g, h)</tt> are applied one component at a time
+ * over blocks small enough to stay in the L1 cache. Any other function is
+ * applied element by element.
+ * <p>
+ * If a {@link DoubleSimdKernels} backend is available, unit stride runs are
+ * first offered to it.
+ * <p>
+ * The <tt>fill</tt> and <tt>copy</tt> methods look at the strides of views
+ * once: unit stride runs use <tt>Arrays.fill</tt> and
+ * <tt>System.arraycopy</tt>, and copies between a row-major and a
+ * column-major (e.g. diced) layout are split recursively into blocks of at
+ * most <tt>TILE x TILE</tt> cells so that neither side is read or written
+ * with a large stride across the whole matrix.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+final class DenseDoubleKernels {
+
+    /*
+     * Length of the blocks over which the components of a chain are applied.
+     */
+    static final int BLOCK = 512;
+
+    /*
+     * Size of the square tiles of a transposition.
+     */
+    static final int TILE = 64;
+
+    /*
+     * Minimum length of the ranges of a parallel reduction.
+     */
+    private static final int MIN_GRAIN = 4096;
+
+    /**
+     * The SIMD backend, or <tt>null</tt> if none is available.
+     */
+    static final DoubleSimdKernels SIMD = loadSimd();
+
+    private DenseDoubleKernels() {
+    }
+
+    private static DoubleSimdKernels loadSimd() {
+        if ("false".equals(System.getProperty("parallelcolt.simd"))) {
+            return null;
+        }
+        try {
+            Iterator<DoubleSimdKernels> it = ServiceLoader.load(DoubleSimdKernels.class).iterator();
+            return it.hasNext() ? it.next() : null;
+        } catch (Throwable e) {
+            // the backend is present, but cannot be used (e.g. the
+            // jdk.incubator.vector module was not added)
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether the reductions of the SIMD backend can be used, i.e.
+     * whether there is a backend and the reproducible mode of
+     * {@link ConcurrencyUtils} is off.
+     */
+    static boolean isReductionSupported() {
+        return SIMD != null && !ConcurrencyUtils.isReproducible();
+    }
+
+    /**
+     * Returns whether <tt>aggregate(a, idx, n, aggr, f, parallel)</tt> can be
+     * used.
+     */
+    static boolean isAggregateSupported(DoubleDoubleFunction aggr, DoubleFunction f) {
+        return isReductionSupported() && SIMD.isAggregateSupported(aggr, f);
+    }
+
+    /**
+     * Aggregates the <tt>n > 0</tt> consecutive elements starting at
+     * <tt>idx</tt> with the SIMD backend; see {@link #isAggregateSupported}.
+     */
+    static double aggregate(final double[] a, final int idx, int n, final DoubleDoubleFunction aggr,
+            final DoubleFunction f, boolean parallel) {
+        if (!parallel) {
+            return SIMD.aggregate(a, idx, n, aggr, f);
+        }
+        return ConcurrencyUtils.parallelReduce(0, n, ConcurrencyUtils.getGrainSize(n, MIN_GRAIN),
+                new DoubleRangeFunction() {
+                    public double apply(int first, int last) {
+                        return SIMD.aggregate(a, idx + first, last - first, aggr, f);
+                    }
+                }, aggr);
+    }
+
+    /**
+     * Sums the <tt>n</tt> consecutive elements starting at <tt>idx</tt> with
+     * the SIMD backend, which must be available.
+     */
+    static double zSum(final double[] a, final int idx, int n, boolean parallel) {
+        if (!parallel || n == 0) {
+            return SIMD.zSum(a, idx, n);
+        }
+        return ConcurrencyUtils.parallelReduce(0, n, ConcurrencyUtils.getGrainSize(n, MIN_GRAIN),
+                new DoubleRangeFunction() {
+                    public double apply(int first, int last) {
+                        return SIMD.zSum(a, idx + first, last - first);
+                    }
+                }, DoubleFunctions.plus);
+    }
+
+    /**
+     * Returns the dot product of the <tt>n</tt> consecutive elements starting
+     * at <tt>idx</tt> and <tt>bIdx</tt> computed with the SIMD backend, which
+     * must be available.
+     */
+    static double zDotProduct(final double[] a, final int idx, final double[] b, final int bIdx, int n,
+            boolean parallel) {
+        if (!parallel || n == 0) {
+            return SIMD.zDotProduct(a, idx, b, bIdx, n);
+        }
+        return ConcurrencyUtils.parallelReduce(0, n, ConcurrencyUtils.getGrainSize(n, MIN_GRAIN),
+                new DoubleRangeFunction() {
+                    public double apply(int first, int last) {
+                        return SIMD.zDotProduct(a, idx + first, b, bIdx + first, last - first);
+                    }
+                }, DoubleFunctions.plus);
+    }
+
+    /**
+     * Returns whether <tt>assign(a, idx, stride, n, f)</tt> applies
+     * <tt>f</tt> with a specialized loop.
+     */
+    static boolean isSpecialized(DoubleFunction f) {
+        if (f instanceof DoubleChain) {
+            return isSpecialized(((DoubleChain) f).g) || isSpecialized(((DoubleChain) f).h);
+        }
+        return f instanceof DoubleMult || f instanceof DoublePlus || f == DoubleFunctions.identity
+                || f == DoubleFunctions.neg || f == DoubleFunctions.abs || f == DoubleFunctions.square
+                || f == DoubleFunctions.sqrt || f == DoubleFunctions.inv || f == DoubleFunctions.exp
+                || f == DoubleFunctions.log || f == DoubleFunctions.floor || f == DoubleFunctions.ceil
+                || f == DoubleFunctions.rint || f == DoubleFunctions.sign;
+    }
+
+    /**
+     * Returns whether <tt>assign(a, idx, stride, b, bIdx, bStride, n, f)</tt>
+     * applies <tt>f</tt> with a specialized loop.
+     */
+    static boolean isSpecialized(DoubleDoubleFunction f) {
+        if (f instanceof DoubleDoubleChain) {
+            return isSpecialized(((DoubleDoubleChain) f).g) || isSpecialized(((DoubleDoubleChain) f).h);
+        }
+        return f instanceof DoublePlusMultSecond || f instanceof DoublePlusMultFirst || f == DoubleFunctions.mult
+                || f == DoubleFunctions.div || f == DoubleFunctions.max || f == DoubleFunctions.min;
+    }
+
+    /**
+     * Computes <tt>a[i] = f(a[i])</tt> for the <tt>n</tt> elements
+     * <tt>i = idx, idx + stride, ...</tt>.
+     */
+    static void assign(double[] a, int idx, int stride, int n, DoubleFunction f) {
+        if (n <= 0) {
+            return;
+        }
+        if (stride == 1 && SIMD != null && SIMD.assign(a, idx, n, f)) {
+            return;
+        }
+        int end = idx + n;
+        if (f instanceof DoubleChain) {
+            DoubleChain chain = (DoubleChain) f;
+            if (isSpecialized(chain)) {
+                for (int k = 0; k < n; k += BLOCK) {
+                    int len = Math.min(BLOCK, n - k);
+                    assign(a, idx + k * stride, stride, len, chain.h);
+                    assign(a, idx + k * stride, stride, len, chain.g);
+                }
+                return;
+            }
+        }
+        if (f instanceof DoubleMult) {
+            // x[i] = mult*x[i]
+            double multiplicator = ((DoubleMult) f).multiplicator;
+            if (multiplicator == 1) {
+                return;
+            }
+            if (stride == 1) {
+                for (int i = idx; i < end; i++) {
+                    a[i] *= multiplicator;
+                }
+            } else {
+                for (int i = idx, k = 0; k < n; k++, i += stride) {
+                    a[i] *= multiplicator;
+                }
+            }
+        } else if (f instanceof DoublePlus) {
+            // x[i] = x[i] + constant
+            double addend = ((DoublePlus) f).addend;
+            if (stride == 1) {
+                for (int i = idx; i < end; i++) {
+                    a[i] += addend;
+                }
+            } else {
+                for (int i = idx, k = 0; k < n; k++, i += stride) {
+                    a[i] += addend;
+                }
+            }
+        } else if (f == DoubleFunctions.identity) {
+            return;
+        } else if (f == DoubleFunctions.neg) {
+            if (stride == 1) {
+                for (int i = idx; i < end; i++) {
+                    a[i] = -a[i];
+                }
+            } else {
+                for (int i = idx, k = 0; k < n; k++, i += stride) {
+                    a[i] = -a[i];
+                }
+            }
+        } else if (f == DoubleFunctions.abs) {
+            if (stride == 1) {
+                for (int i = idx; i < end; i++) {
+                    a[i] = Math.abs(a[i]);
+                }
+            } else {
+                for (int i = idx, k = 0; k < n; k++, i += stride) {
+                    a[i] = Math.abs(a[i]);
+                }
+            }
+        } else if (f == DoubleFunctions.square) {
+            if (stride == 1) {
+                for (int i = idx; i < end; i++) {
+                    a[i] *= a[i];
+                }
+            } else {
+                for (int i = idx, k = 0; k < n; k++, i += stride) {
+                    a[i] *= a[i];
+                }
+            }
+        } else if (f == DoubleFunctions.sqrt) {
+            if (stride == 1) {
+                for (int i = idx; i < end; i++) {
+                    a[i] = Math.sqrt(a[i]);
+                }
+            } else {
+                for (int i = idx, k = 0; k < n; k++, i += stride) {
+                    a[i] = Math.sqrt(a[i]);
+                }
+            }
+        } else if (f == DoubleFunctions.inv) {
+            if (stride == 1) {
+                for (int i = idx; i < end; i++) {
+                    a[i] = 1.0 / a[i];
+                }
+            } else {
+                for (int i = idx, k = 0; k < n; k++, i += stride) {
+                    a[i] = 1.0 / a[i];
+                }
+            }
+        } else if (f == DoubleFunctions.exp) {
+            for (int i = idx, k = 0; k < n; k++, i += stride) {
+                a[i] = Math.exp(a[i]);
+            }
+        } else if (f == DoubleFunctions.log) {
+            for (int i = idx, k = 0; k < n; k++, i += stride) {
+                a[i] = Math.log(a[i]);
+            }
+        } else if (f == DoubleFunctions.floor) {
+            for (int i = idx, k = 0; k < n; k++, i += stride) {
+                a[i] = Math.floor(a[i]);
+            }
+        } else if (f == DoubleFunctions.ceil) {
+            for (int i = idx, k = 0; k < n; k++, i += stride) {
+                a[i] = Math.ceil(a[i]);
+            }
+        } else if (f == DoubleFunctions.rint) {
+            for (int i = idx, k = 0; k < n; k++, i += stride) {
+                a[i] = Math.rint(a[i]);
+            }
+        } else if (f == DoubleFunctions.sign) {
+            for (int i = idx, k = 0; k < n; k++, i += stride) {
+                double v = a[i];
+                a[i] = v < 0 ? -1 : v > 0 ? 1 : 0;
+            }
+        } else {
+            // the general case x[i] = f(x[i])
+            for (int i = idx, k = 0; k < n; k++, i += stride) {
+                a[i] = f.apply(a[i]);
+            }
+        }
+    }
+
+    /**
+     * Computes <tt>a[i] = f(a[i], b[j])</tt> for the <tt>n</tt> pairs
+     * <tt>i = idx, idx + stride, ...</tt> and
+     * <tt>j = bIdx, bIdx + bStride, ...</tt>.
+     */
+    static void assign(double[] a, int idx, int stride, double[] b, int bIdx, int bStride, int n,
+            DoubleDoubleFunction f) {
+        if (n <= 0) {
+            return;
+        }
+        boolean unit = stride == 1 && bStride == 1;
+        if (unit && SIMD != null && SIMD.assign(a, idx, b, bIdx, n, f)) {
+            return;
+        }
+        if (f instanceof DoubleDoubleChain) {
+            DoubleDoubleChain chain = (DoubleDoubleChain) f;
+            if (isSpecialized(chain)) {
+                for (int k = 0; k < n; k += BLOCK) {
+                    int len = Math.min(BLOCK, n - k);
+                    assign(a, idx + k * stride, stride, b, bIdx + k * bStride, bStride, len, chain.h);
+                    assign(a, idx + k * stride, stride, len, chain.g);
+                }
+                return;
+            }
+        }
+        if (f instanceof DoublePlusMultSecond) {
+            double multiplicator = ((DoublePlusMultSecond) f).multiplicator;
+            if (multiplicator == 0) {
+                // x[i] = x[i] + 0*y[i]
+                return;
+            } else if (multiplicator == 1) {
+                // x[i] = x[i] + y[i]
+                if (unit) {
+                    for (int k = 0; k < n; k++) {
+                        a[idx + k] += b[bIdx + k];
+                    }
+                } else {
+                    for (int i = idx, j = bIdx, k = 0; k < n; k++, i += stride, j += bStride) {
+                        a[i] += b[j];
+                    }
+                }
+            } else if (multiplicator == -1) {
+                // x[i] = x[i] - y[i]
+                if (unit) {
+                    for (int k = 0; k < n; k++) {
+                        a[idx + k] -= b[bIdx + k];
+                    }
+                } else {
+                    for (int i = idx, j = bIdx, k = 0; k < n; k++, i += stride, j += bStride) {
+                        a[i] -= b[j];
+                    }
+                }
+            } else {
+                // x[i] = x[i] + mult*y[i]
+                if (unit) {
+                    for (int k = 0; k < n; k++) {
+                        a[idx + k] += multiplicator * b[bIdx + k];
+                    }
+                } else {
+                    for (int i = idx, j = bIdx, k = 0; k < n; k++, i += stride, j += bStride) {
+                        a[i] += multiplicator * b[j];
+                    }
+                }
+            }
+        } else if (f instanceof DoublePlusMultFirst) {
+            double multiplicator = ((DoublePlusMultFirst) f).multiplicator;
+            if (multiplicator == 0) {
+                // x[i] = 0*x[i] + y[i]
+                if (unit) {
+                    for (int k = 0; k < n; k++) {
+                        a[idx + k] = b[bIdx + k];
+                    }
+                } else {
+                    for (int i = idx, j = bIdx, k = 0; k < n; k++, i += stride, j += bStride) {
+                        a[i] = b[j];
+                    }
+                }
+            } else if (multiplicator == 1) {
+                // x[i] = x[i] + y[i]
+                if (unit) {
+                    for (int k = 0; k < n; k++) {
+                        a[idx + k] += b[bIdx + k];
+                    }
+                } else {
+                    for (int i = idx, j = bIdx, k = 0; k < n; k++, i += stride, j += bStride) {
+                        a[i] += b[j];
+                    }
+                }
+            } else if (multiplicator == -1) {
+                // x[i] = -x[i] + y[i]
+                if (unit) {
+                    for (int k = 0; k < n; k++) {
+                        a[idx + k] = b[bIdx + k] - a[idx + k];
+                    }
+                } else {
+                    for (int i = idx, j = bIdx, k = 0; k < n; k++, i += stride, j += bStride) {
+                        a[i] = b[j] - a[i];
+                    }
+                }
+            } else {
+                // x[i] = mult*x[i] + y[i]
+                if (unit) {
+                    for (int k = 0; k < n; k++) {
+                        a[idx + k] = multiplicator * a[idx + k] + b[bIdx + k];
+                    }
+                } else {
+                    for (int i = idx, j = bIdx, k = 0; k < n; k++, i += stride, j += bStride) {
+                        a[i] = multiplicator * a[i] + b[j];
+                    }
+                }
+            }
+        } else if (f == DoubleFunctions.mult) {
+            // x[i] = x[i] * y[i]
+            if (unit) {
+                for (int k = 0; k < n; k++) {
+                    a[idx + k] *= b[bIdx + k];
+                }
+            } else {
+                for (int i = idx, j = bIdx, k = 0; k < n; k++, i += stride, j += bStride) {
+                    a[i] *= b[j];
+                }
+            }
+        } else if (f == DoubleFunctions.div) {
+            // x[i] = x[i] / y[i]
+            if (unit) {
+                for (int k = 0; k < n; k++) {
+                    a[idx + k] /= b[bIdx + k];
+                }
+            } else {
+                for (int i = idx, j = bIdx, k = 0; k < n; k++, i += stride, j += bStride) {
+                    a[i] /= b[j];
+                }
+            }
+        } else if (f == DoubleFunctions.max) {
+            // x[i] = max(x[i], y[i])
+            if (unit) {
+                for (int k = 0; k < n; k++) {
+                    a[idx + k] = Math.max(a[idx + k], b[bIdx + k]);
+                }
+            } else {
+                for (int i = idx, j = bIdx, k = 0; k < n; k++, i += stride, j += bStride) {
+                    a[i] = Math.max(a[i], b[j]);
+                }
+            }
+        } else if (f == DoubleFunctions.min) {
+            // x[i] = min(x[i], y[i])
+            if (unit) {
+                for (int k = 0; k < n; k++) {
+                    a[idx + k] = Math.min(a[idx + k], b[bIdx + k]);
+                }
+            } else {
+                for (int i = idx, j = bIdx, k = 0; k < n; k++, i += stride, j += bStride) {
+                    a[i] = Math.min(a[i], b[j]);
+                }
+            }
+        } else {
+            // the general case x[i] = f(x[i], y[i])
+            for (int i = idx, j = bIdx, k = 0; k < n; k++, i += stride, j += bStride) {
+                a[i] = f.apply(a[i], b[j]);
+            }
+        }
+    }
+
+    /**
+     * Sets the <tt>n</tt> elements <tt>a[idx + k*stride]</tt> to
+     * <tt>value</tt>.
+     */
+    static void fill(double[] a, int idx, int stride, int n, double value) {
+        if (stride == 1) {
+            Arrays.fill(a, idx, idx + n, value);
+        } else {
+            for (int k = 0; k < n; k++) {
+                a[idx] = value;
+                idx += stride;
+            }
+        }
+    }
+
+    /**
+     * Copies the <tt>n</tt> elements <tt>src[srcIdx + k*srcStride]</tt> to
+     * <tt>dst[dstIdx + k*dstStride]</tt>.
+     */
+    static void copy(double[] src, int srcIdx, int srcStride, double[] dst, int dstIdx, int dstStride, int n) {
+        if (srcStride == 1 && dstStride == 1) {
+            System.arraycopy(src, srcIdx, dst, dstIdx, n);
+        } else {
+            for (int k = 0; k < n; k++) {
+                dst[dstIdx] = src[srcIdx];
+                srcIdx += srcStride;
+                dstIdx += dstStride;
+            }
+        }
+    }
+
+    /**
+     * Sets the cells of a <tt>rows x columns</tt> layout to <tt>value</tt>.
+     */
+    static void fill(double[] a, int idx, int rowStride, int columnStride, int rows, int columns, double value) {
+        if (columnStride == 1 && rowStride == columns) {
+            Arrays.fill(a, idx, idx + rows * columns, value);
+        } else if (columnStride != 1 && rowStride == 1) {
+            for (int c = 0; c < columns; c++) {
+                Arrays.fill(a, idx, idx + rows, value);
+                idx += columnStride;
+            }
+        } else {
+            for (int r = 0; r < rows; r++) {
+                fill(a, idx, columnStride, columns, value);
+                idx += rowStride;
+            }
+        }
+    }
+
+    /**
+     * Copies the cells of a <tt>rows x columns</tt> layout of <tt>src</tt> to
+     * a layout of the same shape in <tt>dst</tt>, which must not overlap it.
+     */
+    static void copy(double[] src, int srcIdx, int srcRowStride, int srcColumnStride, double[] dst, int dstIdx,
+            int dstRowStride, int dstColumnStride, int rows, int columns) {
+        if (srcColumnStride == 1 && dstColumnStride == 1) {
+            if (srcRowStride == columns && dstRowStride == columns) {
+                System.arraycopy(src, srcIdx, dst, dstIdx, rows * columns);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    System.arraycopy(src, srcIdx, dst, dstIdx, columns);
+                    srcIdx += srcRowStride;
+                    dstIdx += dstRowStride;
+                }
+            }
+        } else if (srcRowStride == 1 && dstRowStride == 1) {
+            // both column-major
+            if (srcColumnStride == rows && dstColumnStride == rows) {
+                System.arraycopy(src, srcIdx, dst, dstIdx, rows * columns);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    System.arraycopy(src, srcIdx, dst, dstIdx, rows);
+                    srcIdx += srcColumnStride;
+                    dstIdx += dstColumnStride;
+                }
+            }
+        } else if (srcRowStride == 1 || dstRowStride == 1) {
+            // one side is column-major, the other is not
+            copyTransposed(src, srcIdx, srcRowStride, srcColumnStride, dst, dstIdx, dstRowStride, dstColumnStride,
+                    rows, columns);
+        } else {
+            for (int r = 0; r < rows; r++) {
+                copy(src, srcIdx, srcColumnStride, dst, dstIdx, dstColumnStride, columns);
+                srcIdx += srcRowStride;
+                dstIdx += dstRowStride;
+            }
+        }
+    }
+
+    /*
+     * Cache-oblivious copy between layouts traversed in opposite orders: the
+     * longer side is halved until the blocks fit in a tile, so that the blocks
+     * of both layouts stay in cache whatever its size.
+     */
+    private static void copyTransposed(double[] src, int srcIdx, int srcRowStride, int srcColumnStride,
+            double[] dst, int dstIdx, int dstRowStride, int dstColumnStride, int rows, int columns) {
+        if (rows <= TILE && columns <= TILE) {
+            // the inner loop writes consecutive cells of dst
+            if (Math.abs(dstRowStride) < Math.abs(dstColumnStride)) {
+                for (int c = 0; c < columns; c++) {
+                    int i = srcIdx + c * srcColumnStride;
+                    int j = dstIdx + c * dstColumnStride;
+                    for (int r = 0; r < rows; r++) {
+                        dst[j] = src[i];
+                        i += srcRowStride;
+                        j += dstRowStride;
+                    }
+                }
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    int i = srcIdx + r * srcRowStride;
+                    int j = dstIdx + r * dstRowStride;
+                    for (int c = 0; c < columns; c++) {
+                        dst[j] = src[i];
+                        i += srcColumnStride;
+                        j += dstColumnStride;
+                    }
+                }
+            }
+        } else if (rows >= columns) {
+            int h = rows / 2;
+            copyTransposed(src, srcIdx, srcRowStride, srcColumnStride, dst, dstIdx, dstRowStride, dstColumnStride,
+                    h, columns);
+            copyTransposed(src, srcIdx + h * srcRowStride, srcRowStride, srcColumnStride, dst, dstIdx + h
+                    * dstRowStride, dstRowStride, dstColumnStride, rows - h, columns);
+        } else {
+            int h = columns / 2;
+            copyTransposed(src, srcIdx, srcRowStride, srcColumnStride, dst, dstIdx, dstRowStride, dstColumnStride,
+                    rows, h);
+            copyTransposed(src, srcIdx + h * srcColumnStride, srcRowStride, srcColumnStride, dst, dstIdx + h
+                    * dstColumnStride, dstRowStride, dstColumnStride, rows, columns - h);
+        }
+    }
+
+    /**
+     * Transposes in place the tiles <tt>[firstTile, lastTile)</tt> of the
+     * upper triangle of an <tt>n x n</tt> layout, i.e. exchanges the cells of
+     * the tiles <tt>(t, u)</tt>, <tt>u &gt;= t</tt>, with those of the tiles
+     * <tt>(u, t)</tt>. Different ranges of tiles do not share cells, so that
+     * they can be transposed concurrently.
+     */
+    static void transposeSquare(double[] a, int idx, int rowStride, int columnStride, int n, int firstTile,
+            int lastTile) {
+        int tiles = (n + TILE - 1) / TILE;
+        for (int t = firstTile; t < lastTile; t++) {
+            int r0 = t * TILE;
+            int r1 = Math.min(n, r0 + TILE);
+            for (int u = t; u < tiles; u++) {
+                int c0 = u * TILE;
+                int c1 = Math.min(n, c0 + TILE);
+                for (int r = r0; r < r1; r++) {
+                    // a diagonal tile exchanges the cells above its diagonal only
+                    int c = (u == t) ? r + 1 : c0;
+                    int i = idx + r * rowStride + c * columnStride;
+                    int j = idx + c * rowStride + r * columnStride;
+                    for (; c < c1; c++) {
+                        double tmp = a[i];
+                        a[i] = a[j];
+                        a[j] = tmp;
+                        i += columnStride;
+                        j += rowStride;
+                    }
+                }
+            }
+        }
+    }
+}
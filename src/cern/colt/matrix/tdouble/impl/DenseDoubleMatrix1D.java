@@ -14,15 +14,21 @@ import java.util.concurrent.Future;
 
 import cern.colt.list.tdouble.DoubleArrayList;
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.ConvolutionMode;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tdcomplex.impl.DenseDComplexMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.DoubleMatrix3D;
+import cern.jet.math.tdouble.DoubleFunctions;
+import cern.jet.math.tdouble.DoubleSummation;
 import edu.emory.mathcs.jtransforms.dct.DoubleDCT_1D;
 import edu.emory.mathcs.jtransforms.dht.DoubleDHT_1D;
 import edu.emory.mathcs.jtransforms.dst.DoubleDST_1D;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
 
 /**
  * Dense 1-d matrix (aka <i>vector</i>) holding <tt>double</tt> elements. First
@@ -49,14 +55,6 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
 public class DenseDoubleMatrix1D extends DoubleMatrix1D {
     private static final long serialVersionUID = 1L;
 
-    private DoubleFFT_1D fft;
-
-    private DoubleDCT_1D dct;
-
-    private DoubleDST_1D dst;
-
-    private DoubleDHT_1D dht;
-
     /**
      * The elements of this matrix.
      */
@@ -118,8 +116,24 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
             return Double.NaN;
         double a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, size);
+        DoubleSummation.Mode mode = DoubleSummation.getMode();
+        if (aggr == DoubleFunctions.plus && mode != DoubleSummation.Mode.Naive) {
+            boolean parallel = (nthreads > 1)
+                    && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.aggregate"));
+            return DoubleSummation.sum(new DoubleSummation.Terms() {
+                public double get(int i) {
+                    return f.apply(elements[zero + i * stride]);
+                }
+            }, size, mode, parallel);
+        }
+        if (stride == 1 && DenseDoubleKernels.isAggregateSupported(aggr, f)) {
+            boolean parallel = (nthreads > 1)
+                    && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.aggregate"));
+            return DenseDoubleKernels.aggregate(elements, zero, size, aggr, f, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.aggregate"))) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(size);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -155,8 +169,9 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
         final int[] indexElements = indexList.elements();
         double a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, size);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.aggregate"))) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(size);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -204,8 +219,19 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
         final double[] elementsOther = (double[]) other.elements();
         double a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, size);
+        DoubleSummation.Mode mode = DoubleSummation.getMode();
+        if (aggr == DoubleFunctions.plus && mode != DoubleSummation.Mode.Naive) {
+            boolean parallel = (nthreads > 1)
+                    && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.aggregate"));
+            return DoubleSummation.sum(new DoubleSummation.Terms() {
+                public double get(int i) {
+                    return f.apply(elements[zero + i * stride], elementsOther[zeroOther + i * strideOther]);
+                }
+            }, size, mode, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.aggregate"))) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(size);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -240,60 +266,21 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
     }
 
     public DoubleMatrix1D assign(final cern.colt.function.tdouble.DoubleFunction function) {
-        final double multiplicator;
         if (function instanceof cern.jet.math.tdouble.DoubleMult) {
             // x[i] = mult*x[i]
-            multiplicator = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
-            if (multiplicator == 1) {
+            if (((cern.jet.math.tdouble.DoubleMult) function).multiplicator == 1) {
                 return this;
             }
-        } else {
-            multiplicator = 0;
         }
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, size);
-            Future<?>[] futures = new Future[nthreads];
-            int k = size / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        int idx = zero + firstIdx * stride;
-                        // specialization for speed
-                        if (function instanceof cern.jet.math.tdouble.DoubleMult) {
-                            // x[i] = mult*x[i]
-                            for (int k = firstIdx; k < lastIdx; k++) {
-                                elements[idx] *= multiplicator;
-                                idx += stride;
-                            }
-                        } else {
-                            // the general case x[i] = f(x[i])
-                            for (int k = firstIdx; k < lastIdx; k++) {
-                                elements[idx] = function.apply(elements[idx]);
-                                idx += stride;
-                            }
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero - stride;
-            // specialization for speed
-            if (function instanceof cern.jet.math.tdouble.DoubleMult) {
-                // x[i] = mult*x[i]
-                for (int k = size; --k >= 0;) {
-                    elements[idx += stride] *= multiplicator;
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.assign"))) {
+            ConcurrencyUtils.parallelFor(0, size, ConcurrencyUtils.getGrainSize(size, 4096), new RangeProcedure() {
+                public void apply(int firstIdx, int lastIdx) {
+                    DenseDoubleKernels.assign(elements, zero + firstIdx * stride, stride, lastIdx - firstIdx, function);
                 }
-            } else {
-                // the general case x[i] = f(x[i])
-                for (int k = size; --k >= 0;) {
-                    elements[idx += stride] = function.apply(elements[idx]);
-                }
-            }
+            });
+        } else {
+            DenseDoubleKernels.assign(elements, zero, stride, size, function);
         }
         return this;
     }
@@ -370,32 +357,15 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
     }
 
     public DoubleMatrix1D assign(final double value) {
-        final double[] elems = this.elements;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, size);
-            Future<?>[] futures = new Future[nthreads];
-            int k = size / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstIdx * stride;
-                        for (int k = firstIdx; k < lastIdx; k++) {
-                            elems[idx] = value;
-                            idx += stride;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.assign"))) {
+            ConcurrencyUtils.parallelFor(0, size, ConcurrencyUtils.getGrainSize(size, 4096), new RangeProcedure() {
+                public void apply(int first, int last) {
+                    DenseDoubleKernels.fill(elements, zero + first * stride, stride, last - first, value);
+                }
+            });
         } else {
-            int idx = zero;
-            for (int i = 0; i < size; i++) {
-                elems[idx] = value;
-                idx += stride;
-            }
+            DenseDoubleKernels.fill(elements, zero, stride, size, value);
         }
         return this;
     }
@@ -408,31 +378,15 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
         if (isNoView) {
             System.arraycopy(values, 0, this.elements, 0, values.length);
         } else {
-            if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-                nthreads = Math.min(nthreads, size);
-                Future<?>[] futures = new Future[nthreads];
-                int k = size / nthreads;
-                for (int j = 0; j < nthreads; j++) {
-                    final int firstIdx = j * k;
-                    final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
-                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                        public void run() {
-                            int idx = zero + firstIdx * stride;
-                            for (int i = firstIdx; i < lastIdx; i++) {
-                                elements[idx] = values[i];
-                                idx += stride;
-                            }
-                        }
-                    });
-                }
-                ConcurrencyUtils.waitForCompletion(futures);
+            if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.assign"))) {
+                ConcurrencyUtils.parallelFor(0, size, ConcurrencyUtils.getGrainSize(size, 4096), new RangeProcedure() {
+                    public void apply(int first, int last) {
+                        DenseDoubleKernels.copy(values, first, 1, elements, zero + first * stride, stride, last
+                                - first);
+                    }
+                });
             } else {
-                int idx = zero;
-                for (int i = 0; i < size; i++) {
-                    elements[idx] = values[i];
-                    idx += stride;
-                }
+                DenseDoubleKernels.copy(values, 0, 1, elements, zero, stride, size);
             }
         }
         return this;
@@ -469,34 +423,15 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
         final int zeroOther = (int) other.index(0);
         final int strideOther = other.stride;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, size);
-            Future<?>[] futures = new Future[nthreads];
-            int k = size / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstIdx * stride;
-                        int idxOther = zeroOther + firstIdx * strideOther;
-                        for (int k = firstIdx; k < lastIdx; k++) {
-                            elements[idx] = elementsOther[idxOther];
-                            idx += stride;
-                            idxOther += strideOther;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.assign"))) {
+            ConcurrencyUtils.parallelFor(0, size, ConcurrencyUtils.getGrainSize(size, 4096), new RangeProcedure() {
+                public void apply(int first, int last) {
+                    DenseDoubleKernels.copy(elementsOther, zeroOther + first * strideOther, strideOther, elements,
+                            zero + first * stride, stride, last - first);
+                }
+            });
         } else {
-            int idx = zero;
-            int idxOther = zeroOther;
-            for (int k = 0; k < size; k++) {
-                elements[idx] = elementsOther[idxOther];
-                idx += stride;
-                idxOther += strideOther;
-            }
+            DenseDoubleKernels.copy(elementsOther, zeroOther, strideOther, elements, zero, stride, size);
         }
         return this;
     }
@@ -511,158 +446,22 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
         final int zeroOther = (int) y.index(0);
         final int strideOther = y.stride();
         final double[] elementsOther = (double[]) y.elements();
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, size);
-            Future<?>[] futures = new Future[nthreads];
-            int k = size / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstIdx * stride;
-                        int idxOther = zeroOther + firstIdx * strideOther;
-                        // specialized for speed
-                        if (function == cern.jet.math.tdouble.DoubleFunctions.mult) {
-                            // x[i] = x[i] * y[i]
-                            for (int k = firstIdx; k < lastIdx; k++) {
-                                elements[idx] *= elementsOther[idxOther];
-                                idx += stride;
-                                idxOther += strideOther;
-                            }
-                        } else if (function == cern.jet.math.tdouble.DoubleFunctions.div) {
-                            // x[i] = x[i] / y[i]
-                            for (int k = firstIdx; k < lastIdx; k++) {
-                                elements[idx] /= elementsOther[idxOther];
-                                idx += stride;
-                                idxOther += strideOther;
-
-                            }
-                        } else if (function instanceof cern.jet.math.tdouble.DoublePlusMultFirst) {
-                            double multiplicator = ((cern.jet.math.tdouble.DoublePlusMultFirst) function).multiplicator;
-                            if (multiplicator == 0) {
-                                // x[i] = 0*x[i] + y[i]
-                                for (int k = firstIdx; k < lastIdx; k++) {
-                                    elements[idx] = elementsOther[idxOther];
-                                    idx += stride;
-                                    idxOther += strideOther;
-                                }
-                            } else if (multiplicator == 1) {
-                                // x[i] = x[i] + y[i]
-                                for (int k = firstIdx; k < lastIdx; k++) {
-                                    elements[idx] += elementsOther[idxOther];
-                                    idx += stride;
-                                    idxOther += strideOther;
-                                }
-                            } else if (multiplicator == -1) {
-                                // x[i] = -x[i] + y[i]
-                                for (int k = firstIdx; k < lastIdx; k++) {
-                                    elements[idx] = elementsOther[idxOther] - elements[idx];
-                                    idx += stride;
-                                    idxOther += strideOther;
-                                }
-                            } else {
-                                // the general case x[i] = mult*x[i] + y[i]
-                                for (int k = firstIdx; k < lastIdx; k++) {
-                                    elements[idx] = multiplicator * elements[idx] + elementsOther[idxOther];
-                                    idx += stride;
-                                    idxOther += strideOther;
-                                }
-                            }
-                        } else if (function instanceof cern.jet.math.tdouble.DoublePlusMultSecond) {
-                            double multiplicator = ((cern.jet.math.tdouble.DoublePlusMultSecond) function).multiplicator;
-                            if (multiplicator == 0) {
-                                // x[i] = x[i] + 0*y[i]
-                                return;
-                            } else if (multiplicator == 1) {
-                                // x[i] = x[i] + y[i]
-                                for (int k = firstIdx; k < lastIdx; k++) {
-                                    elements[idx] += elementsOther[idxOther];
-                                    idx += stride;
-                                    idxOther += strideOther;
-                                }
-                            } else if (multiplicator == -1) {
-                                // x[i] = x[i] - y[i]
-                                for (int k = firstIdx; k < lastIdx; k++) {
-                                    elements[idx] -= elementsOther[idxOther];
-                                    idx += stride;
-                                    idxOther += strideOther;
-                                }
-                            } else {
-                                // the general case x[i] = x[i] + mult*y[i]
-                                for (int k = firstIdx; k < lastIdx; k++) {
-                                    elements[idx] += multiplicator * elementsOther[idxOther];
-                                    idx += stride;
-                                    idxOther += strideOther;
-                                }
-
-                            }
-                        } else {
-                            // the general case x[i] = f(x[i],y[i])
-                            for (int k = firstIdx; k < lastIdx; k++) {
-                                elements[idx] = function.apply(elements[idx], elementsOther[idxOther]);
-                                idx += stride;
-                                idxOther += strideOther;
-                            }
-                        }
-                    }
-                });
+        if (function instanceof cern.jet.math.tdouble.DoublePlusMultSecond) {
+            if (((cern.jet.math.tdouble.DoublePlusMultSecond) function).multiplicator == 0) {
+                // x[i] = x[i] + 0*y[i]
+                return this;
             }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            // specialized for speed
-            int idx = zero;
-            int idxOther = zeroOther;
-            if (function == cern.jet.math.tdouble.DoubleFunctions.mult) {
-                // x[i] = x[i] * y[i]
-                for (int k = 0; k < size; k++) {
-                    elements[idx] *= elementsOther[idxOther];
-                    idx += stride;
-                    idxOther += strideOther;
-                }
-            } else if (function == cern.jet.math.tdouble.DoubleFunctions.div) {
-                // x[i] = x[i] / y[i]
-                for (int k = 0; k < size; k++) {
-                    elements[idx] /= elementsOther[idxOther];
-                    idx += stride;
-                    idxOther += strideOther;
-                }
-            } else if (function instanceof cern.jet.math.tdouble.DoublePlusMultSecond) {
-                double multiplicator = ((cern.jet.math.tdouble.DoublePlusMultSecond) function).multiplicator;
-                if (multiplicator == 0) {
-                    // x[i] = x[i] + 0*y[i]
-                    return this;
-                } else if (multiplicator == 1) {
-                    // x[i] = x[i] + y[i]
-                    for (int k = 0; k < size; k++) {
-                        elements[idx] += elementsOther[idxOther];
-                        idx += stride;
-                        idxOther += strideOther;
-                    }
-                } else if (multiplicator == -1) {
-                    // x[i] = x[i] - y[i]
-                    for (int k = 0; k < size; k++) {
-                        elements[idx] -= elementsOther[idxOther];
-                        idx += stride;
-                        idxOther += strideOther;
-                    }
-                } else {
-                    // the general case x[i] = x[i] + mult*y[i]
-                    for (int k = 0; k < size; k++) {
-                        elements[idx] += multiplicator * elementsOther[idxOther];
-                        idx += stride;
-                        idxOther += strideOther;
-                    }
-                }
-            } else {
-                // the general case x[i] = f(x[i],y[i])
-                for (int k = 0; k < size; k++) {
-                    elements[idx] = function.apply(elements[idx], elementsOther[idxOther]);
-                    idx += stride;
-                    idxOther += strideOther;
+        }
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.assign"))) {
+            ConcurrencyUtils.parallelFor(0, size, ConcurrencyUtils.getGrainSize(size, 4096), new RangeProcedure() {
+                public void apply(int firstIdx, int lastIdx) {
+                    DenseDoubleKernels.assign(elements, zero + firstIdx * stride, stride, elementsOther, zeroOther
+                            + firstIdx * strideOther, strideOther, lastIdx - firstIdx, function);
                 }
-            }
+            });
+        } else {
+            DenseDoubleKernels.assign(elements, zero, stride, elementsOther, zeroOther, strideOther, size, function);
         }
         return this;
     }
@@ -700,9 +499,9 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -715,6 +514,45 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
         return cardinality;
     }
 
+    /**
+     * Returns the convolution of this matrix with the given kernel. The full
+     * convolution has <tt>size() + kernel.size() - 1</tt> elements,
+     * <tt>result[i] = Sum(this[i - j] * kernel[j])</tt>, where elements
+     * outside of this matrix are zero; the mode selects a part of it. The
+     * result is computed directly for small kernels and with FFTs for large
+     * ones, long signals by overlap-add.
+     * 
+     * @param kernel
+     *            the kernel
+     * @param mode
+     *            the part of the full convolution that is returned
+     * @return the convolution of this matrix with the kernel
+     * @throws IllegalArgumentException
+     *             if <tt>kernel.size() == 0</tt>.
+     */
+    public DenseDoubleMatrix1D convolve(DoubleMatrix1D kernel, ConvolutionMode mode) {
+        return DenseDoubleConvolution.apply(this, kernel, mode, true);
+    }
+
+    /**
+     * Returns the correlation of this matrix with the given kernel. The full
+     * correlation has <tt>size() + kernel.size() - 1</tt> elements,
+     * <tt>result[i] = Sum(this[i + j - kernel.size() + 1] * kernel[j])</tt>,
+     * where elements outside of this matrix are zero; the mode selects a part
+     * of it. This is the convolution with the reversed kernel.
+     * 
+     * @param kernel
+     *            the kernel
+     * @param mode
+     *            the part of the full correlation that is returned
+     * @return the correlation of this matrix with the kernel
+     * @throws IllegalArgumentException
+     *             if <tt>kernel.size() == 0</tt>.
+     */
+    public DenseDoubleMatrix1D correlate(DoubleMatrix1D kernel, ConvolutionMode mode) {
+        return DenseDoubleConvolution.apply(this, kernel, mode, false);
+    }
+
     /**
      * Computes the discrete cosine transform (DCT-II) of this matrix.
      * 
@@ -722,19 +560,20 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
      *            if true then scaling is performed
      */
     public void dct(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct == null) {
-            dct = new DoubleDCT_1D(size);
-        }
-        if (isNoView) {
-            dct.forward(elements, scale);
-        } else {
-            DoubleMatrix1D copy = this.copy();
-            dct.forward((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_1D dct = TransformPlans.acquire(DoubleDCT_1D.class, size);
+            if (isNoView) {
+                dct.forward(elements, scale);
+            } else {
+                DoubleMatrix1D copy = this.copy();
+                dct.forward((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dct, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -742,19 +581,20 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
      * 
      */
     public void dht() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht == null) {
-            dht = new DoubleDHT_1D(size);
-        }
-        if (isNoView) {
-            dht.forward(elements);
-        } else {
-            DoubleMatrix1D copy = this.copy();
-            dht.forward((double[]) copy.elements());
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_1D dht = TransformPlans.acquire(DoubleDHT_1D.class, size);
+            if (isNoView) {
+                dht.forward(elements);
+            } else {
+                DoubleMatrix1D copy = this.copy();
+                dht.forward((double[]) copy.elements());
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dht, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -764,19 +604,20 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
      *            if true then scaling is performed
      */
     public void dst(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst == null) {
-            dst = new DoubleDST_1D(size);
-        }
-        if (isNoView) {
-            dst.forward(elements, scale);
-        } else {
-            DoubleMatrix1D copy = this.copy();
-            dst.forward((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_1D dst = TransformPlans.acquire(DoubleDST_1D.class, size);
+            if (isNoView) {
+                dst.forward(elements, scale);
+            } else {
+                DoubleMatrix1D copy = this.copy();
+                dst.forward((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dst, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public double[] elements() {
@@ -800,19 +641,20 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
      * 
      */
     public void fft() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft == null) {
-            fft = new DoubleFFT_1D(size);
-        }
-        if (isNoView) {
-            fft.realForward(elements);
-        } else {
-            DoubleMatrix1D copy = this.copy();
-            fft.realForward((double[]) copy.elements());
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_1D fft = TransformPlans.acquire(DoubleFFT_1D.class, size);
+            if (isNoView) {
+                fft.realForward(elements);
+            } else {
+                DoubleMatrix1D copy = this.copy();
+                fft.realForward((double[]) copy.elements());
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(fft, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -822,23 +664,24 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
      * @return the discrete Fourier transform (DFT) of this matrix.
      */
     public DenseDComplexMatrix1D getFft() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final double[] elems;
-        if (isNoView == true) {
-            elems = elements;
-        } else {
-            elems = (double[]) this.copy().elements();
-        }
-        DenseDComplexMatrix1D c = new DenseDComplexMatrix1D(size);
-        final double[] elementsC = (c).elements();
-        System.arraycopy(elems, 0, elementsC, 0, size);
-        if (fft == null) {
-            fft = new DoubleFFT_1D(size);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final double[] elems;
+            if (isNoView == true) {
+                elems = elements;
+            } else {
+                elems = (double[]) this.copy().elements();
+            }
+            DenseDComplexMatrix1D c = new DenseDComplexMatrix1D(size);
+            final double[] elementsC = (c).elements();
+            System.arraycopy(elems, 0, elementsC, 0, size);
+            final DoubleFFT_1D fft = TransformPlans.acquire(DoubleFFT_1D.class, size);
+            fft.realForwardFull(elementsC);
+            TransformPlans.release(fft, size);
+            return c;
+        } finally {
+            context.close();
         }
-        fft.realForwardFull(elementsC);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return c;
     }
 
     /**
@@ -849,23 +692,55 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
      *         matrix.
      */
     public DenseDComplexMatrix1D getIfft(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final double[] elems;
-        if (isNoView == true) {
-            elems = elements;
-        } else {
-            elems = (double[]) this.copy().elements();
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final double[] elems;
+            if (isNoView == true) {
+                elems = elements;
+            } else {
+                elems = (double[]) this.copy().elements();
+            }
+            DenseDComplexMatrix1D c = new DenseDComplexMatrix1D(size);
+            final double[] elementsC = (c).elements();
+            System.arraycopy(elems, 0, elementsC, 0, size);
+            final DoubleFFT_1D fft = TransformPlans.acquire(DoubleFFT_1D.class, size);
+            fft.realInverseFull(elementsC, scale);
+            TransformPlans.release(fft, size);
+            return c;
+        } finally {
+            context.close();
         }
-        DenseDComplexMatrix1D c = new DenseDComplexMatrix1D(size);
-        final double[] elementsC = (c).elements();
-        System.arraycopy(elems, 0, elementsC, 0, size);
-        if (fft == null) {
-            fft = new DoubleFFT_1D(size);
+    }
+
+    /**
+     * Returns new complex matrix which is the non-redundant half of the
+     * discrete Fourier transform (DFT) of this matrix. The DFT of real data
+     * satisfies <tt>F[k] = conj(F[size - k])</tt>, so the elements
+     * <tt>0</tt> to <tt>size / 2</tt> of <code>getFft</code> determine the
+     * others. The result has <tt>size / 2 + 1</tt> elements, about half the
+     * memory of <code>getFft</code>. It can be modified in place, for
+     * example multiplied by a filter with <code>assign</code>, and transformed
+     * back with {@link DenseDComplexMatrix1D#getRealIfft(int, boolean)}.
+     * 
+     * @return the elements <tt>0</tt> to <tt>size / 2</tt> of the discrete
+     *         Fourier transform (DFT) of this matrix.
+     */
+    public DenseDComplexMatrix1D getRealFft() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            DenseDComplexMatrix1D c = new DenseDComplexMatrix1D(size / 2 + 1);
+            final double[] elementsC = c.elements();
+            for (int i = 0, idx = zero; i < size; i++, idx += stride) {
+                elementsC[i] = elements[idx];
+            }
+            final DoubleFFT_1D fft = TransformPlans.acquire(DoubleFFT_1D.class, size);
+            fft.realForward(elementsC);
+            unpackHalf(elementsC, 0, size);
+            TransformPlans.release(fft, size);
+            return c;
+        } finally {
+            context.close();
         }
-        fft.realInverseFull(elementsC, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return c;
     }
 
     public void getNonZeros(final IntArrayList indexList, final DoubleArrayList valueList) {
@@ -1047,9 +922,9 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = elements[zero];
@@ -1107,9 +982,9 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = elements[zero];
@@ -1138,19 +1013,20 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
      *            if true then scaling is performed
      */
     public void idct(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct == null) {
-            dct = new DoubleDCT_1D(size);
-        }
-        if (isNoView) {
-            dct.inverse(elements, scale);
-        } else {
-            DoubleMatrix1D copy = this.copy();
-            dct.inverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_1D dct = TransformPlans.acquire(DoubleDCT_1D.class, size);
+            if (isNoView) {
+                dct.inverse(elements, scale);
+            } else {
+                DoubleMatrix1D copy = this.copy();
+                dct.inverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dct, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1161,19 +1037,20 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
      *            if true then scaling is performed
      */
     public void idht(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht == null) {
-            dht = new DoubleDHT_1D(size);
-        }
-        if (isNoView) {
-            dht.inverse(elements, scale);
-        } else {
-            DoubleMatrix1D copy = this.copy();
-            dht.inverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_1D dht = TransformPlans.acquire(DoubleDHT_1D.class, size);
+            if (isNoView) {
+                dht.inverse(elements, scale);
+            } else {
+                DoubleMatrix1D copy = this.copy();
+                dht.inverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dht, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1183,19 +1060,20 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
      *            if true then scaling is performed
      */
     public void idst(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst == null) {
-            dst = new DoubleDST_1D(size);
-        }
-        if (isNoView) {
-            dst.inverse(elements, scale);
-        } else {
-            DoubleMatrix1D copy = this.copy();
-            dst.inverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_1D dst = TransformPlans.acquire(DoubleDST_1D.class, size);
+            if (isNoView) {
+                dst.inverse(elements, scale);
+            } else {
+                DoubleMatrix1D copy = this.copy();
+                dst.inverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dst, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1214,19 +1092,20 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
      * 
      */
     public void ifft(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft == null) {
-            fft = new DoubleFFT_1D(size);
-        }
-        if (isNoView) {
-            fft.realInverse(elements, scale);
-        } else {
-            DoubleMatrix1D copy = this.copy();
-            fft.realInverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_1D fft = TransformPlans.acquire(DoubleFFT_1D.class, size);
+            if (isNoView) {
+                fft.realInverse(elements, scale);
+            } else {
+                DoubleMatrix1D copy = this.copy();
+                fft.realInverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(fft, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public DoubleMatrix1D like(int size) {
@@ -1397,10 +1276,7 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
     public void toArray(double[] values) {
         if (values.length < size)
             throw new IllegalArgumentException("values too small");
-        if (this.isNoView)
-            System.arraycopy(this.elements, 0, values, 0, this.elements.length);
-        else
-            super.toArray(values);
+        DenseDoubleKernels.copy(elements, zero, stride, values, 0, 1, size);
     }
 
     public double zDotProduct(DoubleMatrix1D y, int from, int length) {
@@ -1424,11 +1300,25 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
             throw new InternalError();
         double sum = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (length >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+        DoubleSummation.Mode mode = DoubleSummation.getMode();
+        if (mode != DoubleSummation.Mode.Naive) {
+            boolean parallel = (nthreads > 1)
+                    && (length >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.zDotProduct"));
+            return DoubleSummation.dot(elements, zeroThis, stride, elementsOther, zeroOther, strideOther, Math.max(0,
+                    tail - from), mode, parallel);
+        }
+        if (stride == 1 && strideOther == 1 && DenseDoubleKernels.isReductionSupported()) {
+            boolean parallel = (nthreads > 1)
+                    && (length >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.zDotProduct"));
+            return DenseDoubleKernels.zDotProduct(elements, zeroThis, elementsOther, zeroOther, Math.max(0, tail
+                    - from), parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (length >= ConcurrencyUtils.getThreadsBeginN_1D("DenseDoubleMatrix1D.zDotProduct"))) {
             final int zeroThisF = zeroThis;
             final int zeroOtherF = zeroOther;
             final int strideOtherF = strideOther;
-            nthreads = Math.min(nthreads, length);
+            nthreads = ConcurrencyUtils.getNumberOfParts(length);
             Future<?>[] futures = new Future[nthreads];
             Double[] results = new Double[nthreads];
             int k = length / nthreads;
@@ -1465,9 +1355,9 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
                     sum += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             zeroThis -= stride;
@@ -1492,8 +1382,17 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
         if (elems == null)
             throw new InternalError();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, size);
+        DoubleSummation.Mode mode = DoubleSummation.getMode();
+        if (mode != DoubleSummation.Mode.Naive) {
+            boolean parallel = (nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D());
+            return DoubleSummation.sum(elems, zero, stride, size, mode, parallel);
+        }
+        if (stride == 1 && DenseDoubleKernels.isReductionSupported()) {
+            boolean parallel = (nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D());
+            return DenseDoubleKernels.zSum(elems, zero, size, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(size);
             Future<?>[] futures = new Future[nthreads];
             Double[] results = new Double[nthreads];
             int k = size / nthreads;
@@ -1521,9 +1420,9 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
                     sum += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -1566,4 +1465,18 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
     protected DoubleMatrix1D viewSelectionLike(int[] offsets) {
         return new SelectedDenseDoubleMatrix1D(this.elements, offsets);
     }
+
+    /*
+     * Turns the output of DoubleFFT_1D.realForward(a, offa) for n elements into
+     * the n / 2 + 1 interleaved complex values F[0], ..., F[n / 2]. The array
+     * must have room for 2 * (n / 2 + 1) elements from offa on.
+     */
+    static void unpackHalf(double[] a, int offa, int n) {
+        // a[offa + 1] holds Re[n / 2] (n even) or Im[(n - 1) / 2] (n odd)
+        a[offa + n] = a[offa + 1];
+        if (n % 2 == 0) {
+            a[offa + n + 1] = 0;
+        }
+        a[offa + 1] = 0;
+    }
 }
@@ -9,23 +9,31 @@ It is provided "as is" without expressed or implied warranty.
 package cern.colt.matrix.tdouble.impl;
 
 import java.io.IOException;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
+import cern.colt.function.tint.IntIntFunction;
 import cern.colt.list.tdouble.DoubleArrayList;
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.ConvolutionMode;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.io.MatrixInfo;
 import cern.colt.matrix.io.MatrixSize;
 import cern.colt.matrix.io.MatrixVectorReader;
 import cern.colt.matrix.tdcomplex.impl.DenseDComplexMatrix2D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.jet.math.tdouble.DoubleFunctions;
+import cern.jet.math.tint.IntFunctions;
 import edu.emory.mathcs.jtransforms.dct.DoubleDCT_2D;
 import edu.emory.mathcs.jtransforms.dht.DoubleDHT_2D;
 import edu.emory.mathcs.jtransforms.dst.DoubleDST_2D;
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_2D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.DoubleRangeFunction;
+import edu.emory.mathcs.utils.IntRangeFunction;
+import edu.emory.mathcs.utils.RangeProcedure;
 
 /**
  * Dense 2-d matrix holding <tt>double</tt> elements. First see the <a
@@ -73,14 +81,6 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
 public class DenseDoubleMatrix2D extends DoubleMatrix2D {
     static final long serialVersionUID = 1020177651L;
 
-    private DoubleFFT_2D fft2;
-
-    private DoubleDCT_2D dct2;
-
-    private DoubleDST_2D dst2;
-
-    private DoubleDHT_2D dht2;
-
     protected double[] elements;
 
     /**
@@ -205,43 +205,38 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
             final cern.colt.function.tdouble.DoubleFunction f) {
         if (size() == 0)
             return Double.NaN;
-        final int zero = (int) index(0, 0);
-        double a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Callable<Double>() {
-
-                    public Double call() throws Exception {
-                        double a = f.apply(elements[zero + (firstRow - 1) * rowStride + (columns - 1) * columnStride]);
-                        int d = 1;
-                        for (int r = firstRow; --r >= lastRow;) {
-                            int ridx = zero + r * rowStride;
-                            for (int c = columns - d; --c >= 0;) {
-                                a = aggr.apply(a, f.apply(elements[ridx + c * columnStride]));
-                            }
-                            d = 0;
-                        }
-                        return a;
-                    }
-                });
-            }
-            a = ConcurrencyUtils.waitForCompletion(futures, aggr);
-        } else {
-            a = f.apply(elements[zero + (rows - 1) * rowStride + (columns - 1) * columnStride]);
-            int d = 1;
-            for (int r = rows; --r >= 0;) {
-                int ridx = zero + r * rowStride;
-                for (int c = columns - d; --c >= 0;) {
-                    a = aggr.apply(a, f.apply(elements[ridx + c * columnStride]));
-                }
-                d = 0;
+        if (columnStride == 1 && rowStride == columns && DenseDoubleKernels.isAggregateSupported(aggr, f)) {
+            boolean parallel = (nthreads > 1)
+                    && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.aggregate"));
+            return DenseDoubleKernels.aggregate(elements, (int) index(0, 0), rows * columns, aggr, f, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.aggregate"))) {
+            return ConcurrencyUtils.parallelReduce(0, rows, rowGrain(), new DoubleRangeFunction() {
+                public double apply(int firstRow, int lastRow) {
+                    return aggregateRows(aggr, f, firstRow, lastRow);
+                }
+            }, aggr);
+        }
+        return aggregateRows(aggr, f, 0, rows);
+    }
+
+    /*
+     * Aggregates the rows [firstRow, lastRow).
+     */
+    private double aggregateRows(cern.colt.function.tdouble.DoubleDoubleFunction aggr,
+            cern.colt.function.tdouble.DoubleFunction f, int firstRow, int lastRow) {
+        int idx = (int) index(firstRow, 0);
+        double a = f.apply(elements[idx]);
+        int d = 1; // first cell already done
+        for (int r = firstRow; r < lastRow; r++) {
+            for (int i = idx + d * columnStride, c = d; c < columns; c++) {
+                a = aggr.apply(a, f.apply(elements[i]));
+                i += columnStride;
             }
+            d = 0;
+            idx += rowStride;
         }
         return a;
     }
@@ -250,54 +245,41 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
             final cern.colt.function.tdouble.DoubleFunction f, final cern.colt.function.tdouble.DoubleProcedure cond) {
         if (size() == 0)
             return Double.NaN;
-        final int zero = (int) index(0, 0);
-        double a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Callable<Double>() {
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.aggregate"))) {
+            return ConcurrencyUtils.parallelReduce(0, rows, rowGrain(), new DoubleRangeFunction() {
+                public double apply(int firstRow, int lastRow) {
+                    return aggregateRows(aggr, f, cond, firstRow, lastRow);
+                }
+            }, aggr);
+        }
+        return aggregateRows(aggr, f, cond, 0, rows);
+    }
 
-                    public Double call() throws Exception {
-                        double elem = elements[zero + firstRow * rowStride];
-                        double a = 0;
-                        if (cond.apply(elem) == true) {
-                            a = f.apply(elem);
-                        }
-                        int d = 1;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int c = d; c < columns; c++) {
-                                elem = elements[zero + r * rowStride + c * columnStride];
-                                if (cond.apply(elem) == true) {
-                                    a = aggr.apply(a, f.apply(elem));
-                                }
-                            }
-                            d = 0;
-                        }
-                        return a;
-                    }
-                });
-            }
-            a = ConcurrencyUtils.waitForCompletion(futures, aggr);
-        } else {
-            double elem = elements[zero];
-            if (cond.apply(elem) == true) {
-                a = f.apply(elements[zero]);
-            }
-            int d = 1; // first cell already done
-            for (int r = 0; r < rows; r++) {
-                for (int c = d; c < columns; c++) {
-                    elem = elements[zero + r * rowStride + c * columnStride];
-                    if (cond.apply(elem) == true) {
-                        a = aggr.apply(a, f.apply(elem));
-                    }
+    /*
+     * Aggregates the cells of the rows [firstRow, lastRow) that satisfy cond.
+     */
+    private double aggregateRows(cern.colt.function.tdouble.DoubleDoubleFunction aggr,
+            cern.colt.function.tdouble.DoubleFunction f, cern.colt.function.tdouble.DoubleProcedure cond,
+            int firstRow, int lastRow) {
+        int idx = (int) index(firstRow, 0);
+        double elem = elements[idx];
+        double a = 0;
+        if (cond.apply(elem) == true) {
+            a = f.apply(elem);
+        }
+        int d = 1; // first cell already done
+        for (int r = firstRow; r < lastRow; r++) {
+            for (int i = idx + d * columnStride, c = d; c < columns; c++) {
+                elem = elements[i];
+                if (cond.apply(elem) == true) {
+                    a = aggr.apply(a, f.apply(elem));
                 }
-                d = 0;
+                i += columnStride;
             }
+            d = 0;
+            idx += rowStride;
         }
         return a;
     }
@@ -310,39 +292,23 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
         final int size = rowList.size();
         final int[] rowElements = rowList.elements();
         final int[] columnElements = columnList.elements();
-        double a = 0;
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, size);
-            Future<?>[] futures = new Future[nthreads];
-            int k = size / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Callable<Double>() {
-
-                    public Double call() throws Exception {
-                        double a = f.apply(elements[zero + rowElements[firstIdx] * rowStride + columnElements[firstIdx]
-                                * columnStride]);
-                        double elem;
-                        for (int i = firstIdx + 1; i < lastIdx; i++) {
-                            elem = elements[zero + rowElements[i] * rowStride + columnElements[i] * columnStride];
-                            a = aggr.apply(a, f.apply(elem));
-                        }
-                        return a;
-                    }
-                });
-            }
-            a = ConcurrencyUtils.waitForCompletion(futures, aggr);
-        } else {
-            double elem;
-            a = f.apply(elements[zero + rowElements[0] * rowStride + columnElements[0] * columnStride]);
-            for (int i = 1; i < size; i++) {
-                elem = elements[zero + rowElements[i] * rowStride + columnElements[i] * columnStride];
-                a = aggr.apply(a, f.apply(elem));
+        DoubleRangeFunction function = new DoubleRangeFunction() {
+            public double apply(int first, int last) {
+                double a = f.apply(elements[zero + rowElements[first] * rowStride + columnElements[first]
+                        * columnStride]);
+                for (int i = first + 1; i < last; i++) {
+                    a = aggr.apply(a, f.apply(elements[zero + rowElements[i] * rowStride + columnElements[i]
+                            * columnStride]));
+                }
+                return a;
             }
+        };
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.aggregate"))) {
+            return ConcurrencyUtils.parallelReduce(0, size, ConcurrencyUtils.getGrainSize(size, 4096), function, aggr);
         }
-        return a;
+        return function.apply(0, size);
     }
 
     public double aggregate(final DoubleMatrix2D other, final cern.colt.function.tdouble.DoubleDoubleFunction aggr,
@@ -353,132 +319,80 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
         checkShape(other);
         if (size() == 0)
             return Double.NaN;
-        final int zero = (int) index(0, 0);
-        final int zeroOther = (int) other.index(0, 0);
-        final int rowStrideOther = other.rowStride();
-        final int colStrideOther = other.columnStride();
-        final double[] elementsOther = (double[]) other.elements();
-        double a = 0;
+        final DenseDoubleMatrix2D y = (DenseDoubleMatrix2D) other;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Callable<Double>() {
-
-                    public Double call() throws Exception {
-                        double a = f.apply(elements[zero + firstRow * rowStride], elementsOther[zeroOther + firstRow
-                                * rowStrideOther]);
-                        int d = 1;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int c = d; c < columns; c++) {
-                                a = aggr.apply(a, f.apply(elements[zero + r * rowStride + c * columnStride],
-                                        elementsOther[zeroOther + r * rowStrideOther + c * colStrideOther]));
-                            }
-                            d = 0;
-                        }
-                        return a;
-                    }
-                });
-            }
-            a = ConcurrencyUtils.waitForCompletion(futures, aggr);
-        } else {
-            int d = 1; // first cell already done
-            a = f.apply(elements[zero], elementsOther[zeroOther]);
-            for (int r = 0; r < rows; r++) {
-                for (int c = d; c < columns; c++) {
-                    a = aggr.apply(a, f.apply(elements[zero + r * rowStride + c * columnStride],
-                            elementsOther[zeroOther + r * rowStrideOther + c * colStrideOther]));
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.aggregate"))) {
+            return ConcurrencyUtils.parallelReduce(0, rows, rowGrain(), new DoubleRangeFunction() {
+                public double apply(int firstRow, int lastRow) {
+                    return aggregateRows(y, aggr, f, firstRow, lastRow);
                 }
-                d = 0;
+            }, aggr);
+        }
+        return aggregateRows(y, aggr, f, 0, rows);
+    }
+
+    /*
+     * Aggregates f(x[i],y[i]) over the rows [firstRow, lastRow).
+     */
+    private double aggregateRows(DenseDoubleMatrix2D other, cern.colt.function.tdouble.DoubleDoubleFunction aggr,
+            cern.colt.function.tdouble.DoubleDoubleFunction f, int firstRow, int lastRow) {
+        final double[] elementsOther = other.elements;
+        int idx = (int) index(firstRow, 0);
+        int idxOther = (int) other.index(firstRow, 0);
+        double a = f.apply(elements[idx], elementsOther[idxOther]);
+        int d = 1; // first cell already done
+        for (int r = firstRow; r < lastRow; r++) {
+            for (int i = idx + d * columnStride, j = idxOther + d * other.columnStride, c = d; c < columns; c++) {
+                a = aggr.apply(a, f.apply(elements[i], elementsOther[j]));
+                i += columnStride;
+                j += other.columnStride;
             }
+            d = 0;
+            idx += rowStride;
+            idxOther += other.rowStride;
         }
         return a;
     }
 
     public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction function) {
-        final double[] elems = this.elements;
-        if (elems == null)
+        if (elements == null)
             throw new InternalError();
-        final int zero = (int) index(0, 0);
+        if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] =
+            // mult*x[i]
+            double multiplicator = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
+            if (multiplicator == 1)
+                return this;
+            if (multiplicator == 0)
+                return assign(0);
+        }
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] =
-                // mult*x[i]
-                double multiplicator = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
-                if (multiplicator == 1)
-                    return this;
-                if (multiplicator == 0)
-                    return assign(0);
-            }
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.assign"))) {
+            ConcurrencyUtils.parallelFor(0, rows, rowGrain(), new RangeProcedure() {
+                public void apply(int firstRow, int lastRow) {
+                    assignRows(function, firstRow, lastRow);
+                }
+            });
+        } else {
+            assignRows(function, 0, rows);
+        }
+        return this;
+    }
 
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        // specialization for speed
-                        if (function instanceof cern.jet.math.tdouble.DoubleMult) {
-                            // x[i] = mult*x[i]
-                            double multiplicator = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
-                            if (multiplicator == 1)
-                                return;
-                            for (int r = firstRow; r < lastRow; r++) {
-                                for (int i = idx, c = 0; c < columns; c++) {
-                                    elems[i] *= multiplicator;
-                                    i += columnStride;
-                                }
-                                idx += rowStride;
-                            }
-                        } else {
-                            // the general case x[i] = f(x[i])
-                            for (int r = firstRow; r < lastRow; r++) {
-                                for (int i = idx, c = 0; c < columns; c++) {
-                                    elems[i] = function.apply(elems[i]);
-                                    i += columnStride;
-                                }
-                                idx += rowStride;
-                            }
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
+    /*
+     * x[i] = f(x[i]) for the rows [firstRow, lastRow). The rows of a
+     * contiguous matrix are processed as a single run.
+     */
+    private void assignRows(cern.colt.function.tdouble.DoubleFunction function, int firstRow, int lastRow) {
+        int idx = (int) index(firstRow, 0);
+        if (columnStride == 1 && rowStride == columns) {
+            DenseDoubleKernels.assign(elements, idx, 1, (lastRow - firstRow) * columns, function);
         } else {
-            int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
-            // specialization for speed
-            if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] =
-                // mult*x[i]
-                double multiplicator = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
-                if (multiplicator == 1)
-                    return this;
-                if (multiplicator == 0)
-                    return assign(0);
-                for (int r = rows; --r >= 0;) { // the general case
-                    for (int i = idx, c = columns; --c >= 0;) {
-                        elems[i] *= multiplicator;
-                        i -= columnStride;
-                    }
-                    idx -= rowStride;
-                }
-            } else { // the general case x[i] = f(x[i])
-                for (int r = rows; --r >= 0;) {
-                    for (int i = idx, c = columns; --c >= 0;) {
-                        elems[i] = function.apply(elems[i]);
-                        i -= columnStride;
-                    }
-                    idx -= rowStride;
-                }
+            for (int r = firstRow; r < lastRow; r++) {
+                DenseDoubleKernels.assign(elements, idx, columnStride, columns, function);
+                idx += rowStride;
             }
         }
-        return this;
     }
 
     public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleProcedure cond,
@@ -575,39 +489,16 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
     }
 
     public DoubleMatrix2D assign(final double value) {
-        final double[] elems = this.elements;
-        final int zero = (int) index(0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, c = 0; c < columns; c++) {
-                                elems[i] = value;
-                                i += columnStride;
-                            }
-                            idx += rowStride;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            for (int r = 0; r < rows; r++) {
-                for (int i = idx, c = 0; c < columns; c++) {
-                    elems[i] = value;
-                    i += columnStride;
+        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.assign"))) {
+            ConcurrencyUtils.parallelFor(0, rows, rowGrain(), new RangeProcedure() {
+                public void apply(int firstRow, int lastRow) {
+                    DenseDoubleKernels.fill(elements, (int) index(firstRow, 0), rowStride, columnStride, lastRow
+                            - firstRow, columns, value);
                 }
-                idx += rowStride;
-            }
+            });
+        } else {
+            DenseDoubleKernels.fill(elements, (int) index(0, 0), rowStride, columnStride, rows, columns, value);
         }
         return this;
     }
@@ -620,41 +511,16 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
         if (this.isNoView) {
             System.arraycopy(values, 0, this.elements, 0, values.length);
         } else {
-            final int zero = (int) index(0, 0);
-            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-                nthreads = Math.min(nthreads, rows);
-                Future<?>[] futures = new Future[nthreads];
-                int k = rows / nthreads;
-                for (int j = 0; j < nthreads; j++) {
-                    final int firstRow = j * k;
-                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                        public void run() {
-                            int idxOther = firstRow * columns;
-                            int idx = zero + firstRow * rowStride;
-                            for (int r = firstRow; r < lastRow; r++) {
-                                for (int i = idx, c = 0; c < columns; c++) {
-                                    elements[i] = values[idxOther++];
-                                    i += columnStride;
-                                }
-                                idx += rowStride;
-                            }
-                        }
-                    });
-                }
-                ConcurrencyUtils.waitForCompletion(futures);
-            } else {
-
-                int idxOther = 0;
-                int idx = zero;
-                for (int r = 0; r < rows; r++) {
-                    for (int i = idx, c = 0; c < columns; c++) {
-                        elements[i] = values[idxOther++];
-                        i += columnStride;
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.assign"))) {
+                ConcurrencyUtils.parallelFor(0, rows, rowGrain(), new RangeProcedure() {
+                    public void apply(int firstRow, int lastRow) {
+                        DenseDoubleKernels.copy(values, firstRow * columns, columns, 1, elements, (int) index(
+                                firstRow, 0), rowStride, columnStride, lastRow - firstRow, columns);
                     }
-                    idx += rowStride;
-                }
+                });
+            } else {
+                DenseDoubleKernels.copy(values, 0, columns, 1, elements, (int) index(0, 0), rowStride, columnStride,
+                        rows, columns);
             }
         }
         return this;
@@ -719,10 +585,7 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
                                     throw new IllegalArgumentException(
                                             "Must have same number of columns in every row: columns="
                                                     + currentRow.length + "columns()=" + columns());
-                                for (int i = idx, c = 0; c < columns; c++) {
-                                    elements[i] = currentRow[c];
-                                    i += columnStride;
-                                }
+                                DenseDoubleKernels.copy(currentRow, 0, 1, elements, idx, columnStride, columns);
                                 idx += rowStride;
                             }
                         }
@@ -736,10 +599,7 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
                     if (currentRow.length != columns)
                         throw new IllegalArgumentException("Must have same number of columns in every row: columns="
                                 + currentRow.length + "columns()=" + columns());
-                    for (int i = idx, c = 0; c < columns; c++) {
-                        elements[i] = currentRow[c];
-                        i += columnStride;
-                    }
+                    DenseDoubleKernels.copy(currentRow, 0, 1, elements, idx, columnStride, columns);
                     idx += rowStride;
                 }
             }
@@ -750,6 +610,12 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
 
     public DoubleMatrix2D assign(final DoubleMatrix2D source) {
         // overriden for performance only
+        if (source instanceof DenseColumnDoubleMatrix2D) {
+            checkShape(source);
+            copyFrom((double[]) source.elements(), (int) source.index(0, 0), source.rowStride(), source
+                    .columnStride());
+            return this;
+        }
         if (!(source instanceof DenseDoubleMatrix2D)) {
             super.assign(source);
             return this;
@@ -758,7 +624,6 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
         if (other == this)
             return this; // nothing to do
         checkShape(other);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if (this.isNoView && other.isNoView) { // quickest
             System.arraycopy(other.elements, 0, this.elements, 0, this.elements.length);
             return this;
@@ -775,48 +640,50 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
         final double[] elementsOther = other.elements;
         if (elements == null || elementsOther == null)
             throw new InternalError();
-        final int zeroOther = (int) other.index(0, 0);
-        final int zero = (int) index(0, 0);
-        final int columnStrideOther = other.columnStride;
-        final int rowStrideOther = other.rowStride;
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        int idxOther = zeroOther + firstRow * rowStrideOther;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                                elements[i] = elementsOther[j];
-                                i += columnStride;
-                                j += columnStrideOther;
-                            }
-                            idx += rowStride;
-                            idxOther += rowStrideOther;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
+        copyFrom(elementsOther, (int) other.index(0, 0), other.rowStride, other.columnStride);
+        return this;
+    }
+
+    /*
+     * Copies the cells of a layout of the same shape as this matrix, which
+     * must not share cells with it.
+     */
+    private void copyFrom(final double[] elementsOther, final int zeroOther, final int rowStrideOther,
+            final int columnStrideOther) {
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.copy"))) {
+            ConcurrencyUtils.parallelFor(0, rows, rowGrain(), new RangeProcedure() {
+                public void apply(int firstRow, int lastRow) {
+                    DenseDoubleKernels.copy(elementsOther, zeroOther + firstRow * rowStrideOther, rowStrideOther,
+                            columnStrideOther, elements, (int) index(firstRow, 0), rowStride, columnStride, lastRow
+                                    - firstRow, columns);
+                }
+            });
         } else {
-            int idx = zero;
-            int idxOther = zeroOther;
-            for (int r = 0; r < rows; r++) {
-                for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                    elements[i] = elementsOther[j];
-                    i += columnStride;
-                    j += columnStrideOther;
+            DenseDoubleKernels.copy(elementsOther, zeroOther, rowStrideOther, columnStrideOther, elements,
+                    (int) index(0, 0), rowStride, columnStride, rows, columns);
+        }
+    }
+
+    /*
+     * Copies the cells to a layout of the same shape as this matrix, which
+     * must not share cells with it.
+     */
+    private void copyTo(final double[] elementsOther, final int zeroOther, final int rowStrideOther,
+            final int columnStrideOther) {
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.copy"))) {
+            ConcurrencyUtils.parallelFor(0, rows, rowGrain(), new RangeProcedure() {
+                public void apply(int firstRow, int lastRow) {
+                    DenseDoubleKernels.copy(elements, (int) index(firstRow, 0), rowStride, columnStride,
+                            elementsOther, zeroOther + firstRow * rowStrideOther, rowStrideOther, columnStrideOther,
+                            lastRow - firstRow, columns);
                 }
-                idx += rowStride;
-                idxOther += rowStrideOther;
-            }
+            });
+        } else {
+            DenseDoubleKernels.copy(elements, (int) index(0, 0), rowStride, columnStride, elementsOther, zeroOther,
+                    rowStrideOther, columnStrideOther, rows, columns);
         }
-        return this;
     }
 
     public DoubleMatrix2D assign(final DoubleMatrix2D y, final cern.colt.function.tdouble.DoubleDoubleFunction function) {
@@ -825,210 +692,48 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
             super.assign(y, function);
             return this;
         }
-        DenseDoubleMatrix2D other = (DenseDoubleMatrix2D) y;
+        final DenseDoubleMatrix2D other = (DenseDoubleMatrix2D) y;
         checkShape(y);
-        final double[] elementsOther = other.elements;
-        if (elements == null || elementsOther == null)
+        if (elements == null || other.elements == null)
             throw new InternalError();
-        final int zeroOther = (int) other.index(0, 0);
-        final int zero = (int) index(0, 0);
-        final int columnStrideOther = other.columnStride;
-        final int rowStrideOther = other.rowStride;
+        if (function instanceof cern.jet.math.tdouble.DoublePlusMultSecond) {
+            double multiplicator = ((cern.jet.math.tdouble.DoublePlusMultSecond) function).multiplicator;
+            if (multiplicator == 0) { // x[i] = x[i] + 0*y[i]
+                return this;
+            }
+        }
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            if (function instanceof cern.jet.math.tdouble.DoublePlusMultSecond) {
-                double multiplicator = ((cern.jet.math.tdouble.DoublePlusMultSecond) function).multiplicator;
-                if (multiplicator == 0) { // x[i] = x[i] + 0*y[i]
-                    return this;
+        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.assign"))) {
+            ConcurrencyUtils.parallelFor(0, rows, rowGrain(), new RangeProcedure() {
+                public void apply(int firstRow, int lastRow) {
+                    assignRows(other, function, firstRow, lastRow);
                 }
-            }
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        int idx;
-                        int idxOther;
-                        // specialized for speed
-                        if (function == cern.jet.math.tdouble.DoubleFunctions.mult) {
-                            // x[i] = x[i]*y[i]
-                            idx = zero + firstRow * rowStride;
-                            idxOther = zeroOther + firstRow * rowStrideOther;
-                            for (int r = firstRow; r < lastRow; r++) {
-                                for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                                    elements[i] *= elementsOther[j];
-                                    i += columnStride;
-                                    j += columnStrideOther;
-                                }
-                                idx += rowStride;
-                                idxOther += rowStrideOther;
-                            }
-                        } else if (function == cern.jet.math.tdouble.DoubleFunctions.div) {
-                            // x[i] = x[i] / y[i]
-                            idx = zero + firstRow * rowStride;
-                            idxOther = zeroOther + firstRow * rowStrideOther;
-                            for (int r = firstRow; r < lastRow; r++) {
-                                for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                                    elements[i] /= elementsOther[j];
-                                    i += columnStride;
-                                    j += columnStrideOther;
-                                }
-                                idx += rowStride;
-                                idxOther += rowStrideOther;
-                            }
-                        } else if (function instanceof cern.jet.math.tdouble.DoublePlusMultSecond) {
-                            double multiplicator = ((cern.jet.math.tdouble.DoublePlusMultSecond) function).multiplicator;
-                            if (multiplicator == 1) {
-                                // x[i] = x[i] + y[i]
-                                idx = zero + firstRow * rowStride;
-                                idxOther = zeroOther + firstRow * rowStrideOther;
-                                for (int r = firstRow; r < lastRow; r++) {
-                                    for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                                        elements[i] += elementsOther[j];
-                                        i += columnStride;
-                                        j += columnStrideOther;
-                                    }
-                                    idx += rowStride;
-                                    idxOther += rowStrideOther;
-                                }
-                            } else if (multiplicator == -1) {
-                                // x[i] = x[i] - y[i]
-                                idx = zero + firstRow * rowStride;
-                                idxOther = zeroOther + firstRow * rowStrideOther;
-                                for (int r = firstRow; r < lastRow; r++) {
-                                    for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                                        elements[i] -= elementsOther[j];
-                                        i += columnStride;
-                                        j += columnStrideOther;
-                                    }
-                                    idx += rowStride;
-                                    idxOther += rowStrideOther;
-                                }
-                            } else { // the general case
-                                // x[i] = x[i] + mult*y[i]
-                                idx = zero + firstRow * rowStride;
-                                idxOther = zeroOther + firstRow * rowStrideOther;
-                                for (int r = firstRow; r < lastRow; r++) {
-                                    for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                                        elements[i] += multiplicator * elementsOther[j];
-                                        i += columnStride;
-                                        j += columnStrideOther;
-                                    }
-                                    idx += rowStride;
-                                    idxOther += rowStrideOther;
-                                }
-                            }
-                        } else { // the general case x[i] = f(x[i],y[i])
-                            idx = zero + firstRow * rowStride;
-                            idxOther = zeroOther + firstRow * rowStrideOther;
-                            for (int r = firstRow; r < lastRow; r++) {
-                                for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                                    elements[i] = function.apply(elements[i], elementsOther[j]);
-                                    i += columnStride;
-                                    j += columnStrideOther;
-                                }
-                                idx += rowStride;
-                                idxOther += rowStrideOther;
-                            }
-                        }
-
-                    }
-
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
+            });
         } else {
-            int idx;
-            int idxOther;
-            // specialized for speed
-            if (function == cern.jet.math.tdouble.DoubleFunctions.mult) {
-                // x[i] = x[i] * y[i]
-                idx = zero;
-                idxOther = zeroOther;
-                for (int r = 0; r < rows; r++) {
-                    for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                        elements[i] *= elementsOther[j];
-                        i += columnStride;
-                        j += columnStrideOther;
-                    }
-                    idx += rowStride;
-                    idxOther += rowStrideOther;
-                }
-            } else if (function == cern.jet.math.tdouble.DoubleFunctions.div) {
-                // x[i] = x[i] / y[i]
-                idx = zero;
-                idxOther = zeroOther;
-                for (int r = 0; r < rows; r++) {
-                    for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                        elements[i] /= elementsOther[j];
-                        i += columnStride;
-                        j += columnStrideOther;
-                    }
-                    idx += rowStride;
-                    idxOther += rowStrideOther;
-                }
-            } else if (function instanceof cern.jet.math.tdouble.DoublePlusMultSecond) {
-                double multiplicator = ((cern.jet.math.tdouble.DoublePlusMultSecond) function).multiplicator;
-                if (multiplicator == 0) { // x[i] = x[i] + 0*y[i]
-                    return this;
-                } else if (multiplicator == 1) { // x[i] = x[i] + y[i]
-                    idx = zero;
-                    idxOther = zeroOther;
-                    for (int r = 0; r < rows; r++) {
-                        for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                            elements[i] += elementsOther[j];
-                            i += columnStride;
-                            j += columnStrideOther;
-                        }
-                        idx += rowStride;
-                        idxOther += rowStrideOther;
-                    }
+            assignRows(other, function, 0, rows);
+        }
+        return this;
+    }
 
-                } else if (multiplicator == -1) { // x[i] = x[i] - y[i]
-                    idx = zero;
-                    idxOther = zeroOther;
-                    for (int r = 0; r < rows; r++) {
-                        for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                            elements[i] -= elementsOther[j];
-                            i += columnStride;
-                            j += columnStrideOther;
-                        }
-                        idx += rowStride;
-                        idxOther += rowStrideOther;
-                    }
-                } else { // the general case
-                    // x[i] = x[i] + mult*y[i]
-                    idx = zero;
-                    idxOther = zeroOther;
-                    for (int r = 0; r < rows; r++) {
-                        for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                            elements[i] += multiplicator * elementsOther[j];
-                            i += columnStride;
-                            j += columnStrideOther;
-                        }
-                        idx += rowStride;
-                        idxOther += rowStrideOther;
-                    }
-                }
-            } else { // the general case x[i] = f(x[i],y[i])
-                idx = zero;
-                idxOther = zeroOther;
-                for (int r = 0; r < rows; r++) {
-                    for (int i = idx, j = idxOther, c = 0; c < columns; c++) {
-                        elements[i] = function.apply(elements[i], elementsOther[j]);
-                        i += columnStride;
-                        j += columnStrideOther;
-                    }
-                    idx += rowStride;
-                    idxOther += rowStrideOther;
-                }
+    /*
+     * x[i] = f(x[i],y[i]) for the rows [firstRow, lastRow). The rows of
+     * contiguous matrices are processed as a single run.
+     */
+    private void assignRows(DenseDoubleMatrix2D other, cern.colt.function.tdouble.DoubleDoubleFunction function,
+            int firstRow, int lastRow) {
+        int idx = (int) index(firstRow, 0);
+        int idxOther = (int) other.index(firstRow, 0);
+        if (columnStride == 1 && rowStride == columns && other.columnStride == 1 && other.rowStride == columns) {
+            DenseDoubleKernels.assign(elements, idx, 1, other.elements, idxOther, 1, (lastRow - firstRow) * columns,
+                    function);
+        } else {
+            for (int r = firstRow; r < lastRow; r++) {
+                DenseDoubleKernels.assign(elements, idx, columnStride, other.elements, idxOther, other.columnStride,
+                        columns, function);
+                idx += rowStride;
+                idxOther += other.rowStride;
             }
         }
-        return this;
     }
 
     public DoubleMatrix2D assign(final DoubleMatrix2D y,
@@ -1044,7 +749,7 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
         final int columnStrideOther = y.columnStride();
         final int rowStrideOther = y.rowStride();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.assign"))) {
             nthreads = Math.min(nthreads, rows);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
@@ -1123,60 +828,71 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
     }
 
     public int cardinality() {
-        int cardinality = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        final int zero = (int) index(0, 0);
         if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            Integer[] results = new Integer[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Callable<Integer>() {
-                    public Integer call() throws Exception {
-                        int cardinality = 0;
-                        int idx = zero + firstRow * rowStride;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, c = 0; c < columns; c++) {
-                                if (elements[i] != 0)
-                                    cardinality++;
-                                i += columnStride;
-                            }
-                            idx += rowStride;
-                        }
-                        return Integer.valueOf(cardinality);
-                    }
-                });
-            }
-            try {
-                for (int j = 0; j < nthreads; j++) {
-                    results[j] = (Integer) futures[j].get();
-                }
-                cardinality = results[0].intValue();
-                for (int j = 1; j < nthreads; j++) {
-                    cardinality += results[j].intValue();
-                }
-            } catch (ExecutionException ex) {
-                ex.printStackTrace();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        } else {
-            int idx = zero;
-            for (int r = 0; r < rows; r++) {
-                for (int i = idx, c = 0; c < columns; c++) {
-                    if (elements[i] != 0)
-                        cardinality++;
-                    i += columnStride;
+            return ConcurrencyUtils.parallelReduceInt(0, rows, rowGrain(), new IntRangeFunction() {
+                public int apply(int firstRow, int lastRow) {
+                    return cardinalityRows(firstRow, lastRow);
                 }
-                idx += rowStride;
+            }, IntFunctions.plus);
+        }
+        return cardinalityRows(0, rows);
+    }
+
+    private int cardinalityRows(int firstRow, int lastRow) {
+        int cardinality = 0;
+        int idx = (int) index(firstRow, 0);
+        for (int r = firstRow; r < lastRow; r++) {
+            for (int i = idx, c = 0; c < columns; c++) {
+                if (elements[i] != 0)
+                    cardinality++;
+                i += columnStride;
             }
+            idx += rowStride;
         }
         return cardinality;
     }
 
+    /**
+     * Returns the 2D convolution of this matrix with the given kernel. The full
+     * convolution has <tt>rows() + kernel.rows() - 1</tt> rows and
+     * <tt>columns() + kernel.columns() - 1</tt> columns,
+     * <tt>result[i][j] = Sum(this[i - a][j - b] * kernel[a][b])</tt>, where
+     * cells outside of this matrix are zero; the mode selects a part of it
+     * along both dimensions. The result is computed directly for small kernels
+     * and with FFTs for large ones.
+     * 
+     * @param kernel
+     *            the kernel
+     * @param mode
+     *            the part of the full convolution that is returned
+     * @return the convolution of this matrix with the kernel
+     * @throws IllegalArgumentException
+     *             if <tt>kernel.size() == 0</tt>.
+     */
+    public DenseDoubleMatrix2D convolve(DoubleMatrix2D kernel, ConvolutionMode mode) {
+        return DenseDoubleConvolution.apply(this, kernel, mode, true);
+    }
+
+    /**
+     * Returns the 2D correlation of this matrix with the given kernel,
+     * <tt>result[i][j] = Sum(this[i + a - kernel.rows() + 1][j + b - kernel.columns() + 1] * kernel[a][b])</tt>
+     * for the full correlation, which has the size of the full convolution;
+     * the mode selects a part of it along both dimensions. This is the
+     * convolution with the kernel reversed along both dimensions.
+     * 
+     * @param kernel
+     *            the kernel
+     * @param mode
+     *            the part of the full correlation that is returned
+     * @return the correlation of this matrix with the kernel
+     * @throws IllegalArgumentException
+     *             if <tt>kernel.size() == 0</tt>.
+     */
+    public DenseDoubleMatrix2D correlate(DoubleMatrix2D kernel, ConvolutionMode mode) {
+        return DenseDoubleConvolution.apply(this, kernel, mode, false);
+    }
+
     /**
      * Computes the 2D discrete cosine transform (DCT-II) of this matrix.
      * 
@@ -1185,19 +901,20 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dct2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct2 == null) {
-            dct2 = new DoubleDCT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            dct2.forward(elements, scale);
-        } else {
-            DoubleMatrix2D copy = this.copy();
-            dct2.forward((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_2D dct2 = TransformPlans.acquire(DoubleDCT_2D.class, rows, columns);
+            if (isNoView == true) {
+                dct2.forward(elements, scale);
+            } else {
+                DoubleMatrix2D copy = this.copy();
+                dct2.forward((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dct2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1209,31 +926,35 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dctColumns(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseDoubleMatrix1D) viewColumn(c)).dct(scale);
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseDoubleMatrix1D) viewColumn(c)).dct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseDoubleMatrix1D) viewColumn(c)).dct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseDoubleMatrix1D) viewColumn(c)).dct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1246,35 +967,36 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dctRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseDoubleMatrix1D) viewRow(r)).dct(scale);
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseDoubleMatrix1D) viewRow(r)).dct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDoubleMatrix1D) viewRow(r)).dct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDoubleMatrix1D) viewRow(r)).dct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1282,19 +1004,20 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dht2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht2 == null) {
-            dht2 = new DoubleDHT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            dht2.forward(elements);
-        } else {
-            DoubleMatrix2D copy = this.copy();
-            dht2.forward((double[]) copy.elements());
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_2D dht2 = TransformPlans.acquire(DoubleDHT_2D.class, rows, columns);
+            if (isNoView == true) {
+                dht2.forward(elements);
+            } else {
+                DoubleMatrix2D copy = this.copy();
+                dht2.forward((double[]) copy.elements());
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dht2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1303,35 +1026,36 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dhtColumns() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseDoubleMatrix1D) viewColumn(c)).dht();
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseDoubleMatrix1D) viewColumn(c)).dht();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseDoubleMatrix1D) viewColumn(c)).dht();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseDoubleMatrix1D) viewColumn(c)).dht();
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1339,35 +1063,36 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dhtRows() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseDoubleMatrix1D) viewRow(r)).dht();
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseDoubleMatrix1D) viewRow(r)).dht();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDoubleMatrix1D) viewRow(r)).dht();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDoubleMatrix1D) viewRow(r)).dht();
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1378,19 +1103,20 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dst2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst2 == null) {
-            dst2 = new DoubleDST_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            dst2.forward(elements, scale);
-        } else {
-            DoubleMatrix2D copy = this.copy();
-            dst2.forward((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_2D dst2 = TransformPlans.acquire(DoubleDST_2D.class, rows, columns);
+            if (isNoView == true) {
+                dst2.forward(elements, scale);
+            } else {
+                DoubleMatrix2D copy = this.copy();
+                dst2.forward((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dst2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1402,35 +1128,36 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dstColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseDoubleMatrix1D) viewColumn(c)).dst(scale);
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseDoubleMatrix1D) viewColumn(c)).dst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseDoubleMatrix1D) viewColumn(c)).dst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseDoubleMatrix1D) viewColumn(c)).dst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1441,35 +1168,36 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void dstRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseDoubleMatrix1D) viewRow(r)).dst(scale);
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseDoubleMatrix1D) viewRow(r)).dst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDoubleMatrix1D) viewRow(r)).dst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDoubleMatrix1D) viewRow(r)).dst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public double[] elements() {
@@ -1509,19 +1237,20 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void fft2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            fft2.realForward(elements);
-        } else {
-            DoubleMatrix2D copy = this.copy();
-            fft2.realForward((double[]) copy.elements());
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            if (isNoView == true) {
+                fft2.realForward(elements);
+            } else {
+                DoubleMatrix2D copy = this.copy();
+                fft2.realForward((double[]) copy.elements());
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public DoubleMatrix2D forEachNonZero(final cern.colt.function.tdouble.IntIntDoubleFunction function) {
@@ -1577,50 +1306,7 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      */
     public DenseColumnDoubleMatrix2D getColumnMajor() {
         DenseColumnDoubleMatrix2D R = new DenseColumnDoubleMatrix2D(rows, columns);
-        final int zeroR = (int) R.index(0, 0);
-        final int rowStrideR = R.rowStride();
-        final int columnStrideR = R.columnStride();
-        final double[] elementsR = R.elements();
-        final int zero = (int) index(0, 0);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == (nthreads - 1)) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        int idx = zero + (firstRow - 1) * rowStride;
-                        int idxR = zeroR + (firstRow - 1) * rowStrideR;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, j = idxR, c = 0; r < columns; c++) {
-                                elementsR[j] = elements[i];
-                                i += rowStride;
-                                j += rowStrideR;
-                            }
-                            idx += columnStride;
-                            idxR += columnStrideR;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            int idxR = zeroR;
-            for (int r = 0; r < rows; r++) {
-                for (int i = idx, j = idxR, c = 0; r < columns; c++) {
-                    elementsR[j] = elements[i];
-                    i += rowStride;
-                    j += rowStrideR;
-                }
-                idx += columnStride;
-                idxR += columnStrideR;
-            }
-        }
+        copyTo(R.elements(), (int) R.index(0, 0), R.rowStride(), R.columnStride());
         return R;
     }
 
@@ -1632,45 +1318,46 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public DenseDComplexMatrix2D getFft2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
-        }
-        final double[] elementsA;
-        if (isNoView == true) {
-            elementsA = elements;
-        } else {
-            elementsA = (double[]) this.copy().elements();
-        }
-        DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
-        final double[] elementsC = (C).elements();
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            final double[] elementsA;
+            if (isNoView == true) {
+                elementsA = elements;
+            } else {
+                elementsA = (double[]) this.copy().elements();
+            }
+            DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
+            final double[] elementsC = (C).elements();
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int r = 0; r < rows; r++) {
-                System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                }
             }
+            fft2.realForwardFull(elementsC);
+            TransformPlans.release(fft2, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        fft2.realForwardFull(elementsC);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1681,37 +1368,38 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      *         matrix.
      */
     public DenseDComplexMatrix2D getFftColumns() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getFft());
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getFft());
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getFft());
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getFft());
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1721,37 +1409,38 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * @return the discrete Fourier transform (DFT) of each row of this matrix.
      */
     public DenseDComplexMatrix2D getFftRows() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getFft());
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getFft());
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getFft());
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getFft());
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1762,50 +1451,100 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      *         matrix.
      */
     public DenseDComplexMatrix2D getIfft2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
-        final double[] elementsC = (C).elements();
-        final double[] elementsA;
-        if (isNoView == true) {
-            elementsA = elements;
-        } else {
-            elementsA = (double[]) this.copy().elements();
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow;
-                if (j == nthreads - 1) {
-                    lastRow = rows;
-                } else {
-                    lastRow = firstRow + k;
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
+            final double[] elementsC = (C).elements();
+            final double[] elementsA;
+            if (isNoView == true) {
+                elementsA = elements;
+            } else {
+                elementsA = (double[]) this.copy().elements();
+            }
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow;
+                    if (j == nthreads - 1) {
+                        lastRow = rows;
+                    } else {
+                        lastRow = firstRow + k;
+                    }
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                            }
+                        }
+                    });
                 }
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                }
+            }
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            fft2.realInverseFull(elementsC, scale);
+            TransformPlans.release(fft2, rows, columns);
+            return C;
+        } finally {
+            context.close();
+        }
+    }
 
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+    /**
+     * Returns new complex matrix which is the non-redundant half of the 2D
+     * discrete Fourier transform (DFT) of this matrix. The DFT of real data
+     * satisfies <tt>F[r][c] = conj(F[(rows - r) % rows][(columns - c) % columns])</tt>,
+     * so the columns <tt>0</tt> to <tt>columns / 2</tt> of <code>getFft2</code>
+     * determine the others. The result has <tt>rows</tt> rows and
+     * <tt>columns / 2 + 1</tt> columns, about half the memory of
+     * <code>getFft2</code>, and the rows and columns of this matrix need not be
+     * powers of 2. It can be modified in place, for example multiplied by a
+     * filter with <code>assign</code>, and transformed back with
+     * {@link DenseDComplexMatrix2D#getRealIfft2(int, boolean)}.
+     * 
+     * @return the columns <tt>0</tt> to <tt>columns / 2</tt> of the 2D discrete
+     *         Fourier transform (DFT) of this matrix.
+     */
+    public DenseDComplexMatrix2D getRealFft2() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final int halfColumns = columns / 2 + 1;
+            DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, halfColumns);
+            final double[] elementsC = C.elements();
+            final int zero = (int) index(0, 0);
+            // real transforms of the rows, written straight into the rows of C
+            RangeProcedure procedure = new RangeProcedure() {
+                public void apply(int firstRow, int lastRow) {
+                    DoubleFFT_1D fft = TransformPlans.acquire(DoubleFFT_1D.class, columns);
+                    for (int r = firstRow; r < lastRow; r++) {
+                        int idxC = 2 * r * halfColumns;
+                        for (int i = zero + r * rowStride, c = 0; c < columns; c++, i += columnStride) {
+                            elementsC[idxC + c] = elements[i];
                         }
+                        fft.realForward(elementsC, idxC);
+                        DenseDoubleMatrix1D.unpackHalf(elementsC, idxC, columns);
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int r = 0; r < rows; r++) {
-                System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                    TransformPlans.release(fft, columns);
+                }
+            };
+            if ((ConcurrencyUtils.getNumberOfThreads() > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                ConcurrencyUtils.parallelFor(0, rows, ConcurrencyUtils.getGrainSize(rows, 1), procedure);
+            } else {
+                procedure.apply(0, rows);
             }
+            C.fftColumns();
+            return C;
+        } finally {
+            context.close();
         }
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
-        }
-        fft2.realInverseFull(elementsC, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1816,37 +1555,38 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      *         column of this matrix.
      */
     public DenseDComplexMatrix2D getIfftColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getIfft(scale));
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getIfft(scale));
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getIfft(scale));
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    C.viewColumn(c).assign(((DenseDoubleMatrix1D) viewColumn(c)).getIfft(scale));
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1857,184 +1597,51 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      *         of this matrix.
      */
     public DenseDComplexMatrix2D getIfftRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getIfft(scale));
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getIfft(scale));
-            }
-        }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
-    }
-
-    public double[] getMaxLocation() {
-        int rowLocation = 0;
-        int columnLocation = 0;
-        final int zero = (int) index(0, 0);
-        double maxValue = 0;
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            double[][] results = new double[nthreads][2];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Callable<double[]>() {
-                    public double[] call() throws Exception {
-                        double maxValue = elements[zero + firstRow * rowStride];
-                        int rowLocation = firstRow;
-                        int colLocation = 0;
-                        double elem;
-                        int d = 1;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int c = d; c < columns; c++) {
-                                elem = elements[zero + r * rowStride + c * columnStride];
-                                if (maxValue < elem) {
-                                    maxValue = elem;
-                                    rowLocation = r;
-                                    colLocation = c;
-                                }
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseDComplexMatrix2D C = new DenseDComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getIfft(scale));
                             }
-                            d = 0;
                         }
-                        return new double[] { maxValue, rowLocation, colLocation };
-                    }
-                });
-            }
-            try {
-                for (int j = 0; j < nthreads; j++) {
-                    results[j] = (double[]) futures[j].get();
-                }
-                maxValue = results[0][0];
-                rowLocation = (int) results[0][1];
-                columnLocation = (int) results[0][2];
-                for (int j = 1; j < nthreads; j++) {
-                    if (maxValue < results[j][0]) {
-                        maxValue = results[j][0];
-                        rowLocation = (int) results[j][1];
-                        columnLocation = (int) results[j][2];
-                    }
+                    });
                 }
-            } catch (ExecutionException ex) {
-                ex.printStackTrace();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        } else {
-            maxValue = elements[zero];
-            int d = 1;
-            double elem;
-            for (int r = 0; r < rows; r++) {
-                for (int c = d; c < columns; c++) {
-                    elem = elements[zero + r * rowStride + c * columnStride];
-                    if (maxValue < elem) {
-                        maxValue = elem;
-                        rowLocation = r;
-                        columnLocation = c;
-                    }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    C.viewRow(r).assign(((DenseDoubleMatrix1D) viewRow(r)).getIfft(scale));
                 }
-                d = 0;
             }
+            return C;
+        } finally {
+            context.close();
         }
-        return new double[] { maxValue, rowLocation, columnLocation };
+    }
+
+    public double[] getMaxLocation() {
+        int location = extremeLocation(true);
+        int row = location / columns;
+        int column = location % columns;
+        return new double[] { getQuick(row, column), row, column };
     }
 
     public double[] getMinLocation() {
-        int rowLocation = 0;
-        int columnLocation = 0;
-        final int zero = (int) index(0, 0);
-        double minValue = 0;
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            double[][] results = new double[nthreads][2];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Callable<double[]>() {
-                    public double[] call() throws Exception {
-                        int rowLocation = firstRow;
-                        int columnLocation = 0;
-                        double minValue = elements[zero + firstRow * rowStride];
-                        double elem;
-                        int d = 1;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int c = d; c < columns; c++) {
-                                elem = elements[zero + r * rowStride + c * columnStride];
-                                if (minValue > elem) {
-                                    minValue = elem;
-                                    rowLocation = r;
-                                    columnLocation = c;
-                                }
-                            }
-                            d = 0;
-                        }
-                        return new double[] { minValue, rowLocation, columnLocation };
-                    }
-                });
-            }
-            try {
-                for (int j = 0; j < nthreads; j++) {
-                    results[j] = (double[]) futures[j].get();
-                }
-                minValue = results[0][0];
-                rowLocation = (int) results[0][1];
-                columnLocation = (int) results[0][2];
-                for (int j = 1; j < nthreads; j++) {
-                    if (minValue > results[j][0]) {
-                        minValue = results[j][0];
-                        rowLocation = (int) results[j][1];
-                        columnLocation = (int) results[j][2];
-                    }
-                }
-            } catch (ExecutionException ex) {
-                ex.printStackTrace();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        } else {
-            minValue = elements[zero];
-            int d = 1;
-            double elem;
-            for (int r = 0; r < rows; r++) {
-                for (int c = d; c < columns; c++) {
-                    elem = elements[zero + r * rowStride + c * columnStride];
-                    if (minValue > elem) {
-                        minValue = elem;
-                        rowLocation = r;
-                        columnLocation = c;
-                    }
-                }
-                d = 0;
-            }
-        }
-        return new double[] { minValue, rowLocation, columnLocation };
+        int location = extremeLocation(false);
+        int row = location / columns;
+        int column = location % columns;
+        return new double[] { getQuick(row, column), row, column };
     }
 
     public void getNegativeValues(final IntArrayList rowList, final IntArrayList columnList,
@@ -2109,19 +1716,20 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idct2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct2 == null) {
-            dct2 = new DoubleDCT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            dct2.inverse(elements, scale);
-        } else {
-            DoubleMatrix2D copy = this.copy();
-            dct2.inverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_2D dct2 = TransformPlans.acquire(DoubleDCT_2D.class, rows, columns);
+            if (isNoView == true) {
+                dct2.inverse(elements, scale);
+            } else {
+                DoubleMatrix2D copy = this.copy();
+                dct2.inverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dct2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2133,35 +1741,36 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idctColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseDoubleMatrix1D) viewColumn(c)).idct(scale);
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseDoubleMatrix1D) viewColumn(c)).idct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseDoubleMatrix1D) viewColumn(c)).idct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseDoubleMatrix1D) viewColumn(c)).idct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2173,34 +1782,35 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idctRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseDoubleMatrix1D) viewRow(r)).idct(scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseDoubleMatrix1D) viewRow(r)).idct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDoubleMatrix1D) viewRow(r)).idct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDoubleMatrix1D) viewRow(r)).idct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2212,19 +1822,20 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idht2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht2 == null) {
-            dht2 = new DoubleDHT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            dht2.inverse(elements, scale);
-        } else {
-            DoubleMatrix2D copy = this.copy();
-            dht2.inverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_2D dht2 = TransformPlans.acquire(DoubleDHT_2D.class, rows, columns);
+            if (isNoView == true) {
+                dht2.inverse(elements, scale);
+            } else {
+                DoubleMatrix2D copy = this.copy();
+                dht2.inverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dht2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2236,35 +1847,36 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idhtColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseDoubleMatrix1D) viewColumn(c)).idht(scale);
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseDoubleMatrix1D) viewColumn(c)).idht(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseDoubleMatrix1D) viewColumn(c)).idht(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseDoubleMatrix1D) viewColumn(c)).idht(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2274,36 +1886,37 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * @param scale
      *            if true then scaling is performed
      * 
-     */
-    public void idhtRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseDoubleMatrix1D) viewRow(r)).idht(scale);
+     */
+    public void idhtRows(final boolean scale) {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseDoubleMatrix1D) viewRow(r)).idht(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDoubleMatrix1D) viewRow(r)).idht(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDoubleMatrix1D) viewRow(r)).idht(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2315,19 +1928,20 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idst2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst2 == null) {
-            dst2 = new DoubleDST_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            dst2.inverse(elements, scale);
-        } else {
-            DoubleMatrix2D copy = this.copy();
-            dst2.inverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_2D dst2 = TransformPlans.acquire(DoubleDST_2D.class, rows, columns);
+            if (isNoView == true) {
+                dst2.inverse(elements, scale);
+            } else {
+                DoubleMatrix2D copy = this.copy();
+                dst2.inverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dst2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2339,35 +1953,36 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idstColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseDoubleMatrix1D) viewColumn(c)).idst(scale);
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseDoubleMatrix1D) viewColumn(c)).idst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseDoubleMatrix1D) viewColumn(c)).idst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseDoubleMatrix1D) viewColumn(c)).idst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2379,34 +1994,35 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void idstRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseDoubleMatrix1D) viewRow(r)).idst(scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseDoubleMatrix1D) viewRow(r)).idst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseDoubleMatrix1D) viewRow(r)).idst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseDoubleMatrix1D) viewRow(r)).idst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2444,19 +2060,20 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
      * 
      */
     public void ifft2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            fft2.realInverse(elements, scale);
-        } else {
-            DoubleMatrix2D copy = this.copy();
-            fft2.realInverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            if (isNoView == true) {
+                fft2.realInverse(elements, scale);
+            } else {
+                DoubleMatrix2D copy = this.copy();
+                fft2.realInverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public long index(int row, int column) {
@@ -2478,86 +2095,61 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
     public double[][] toArray() {
         final double[][] values = new double[rows][columns];
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        final int zero = (int) index(0, 0);
         if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            double[] currentRow = values[r];
-                            for (int i = idx, c = 0; c < columns; c++) {
-                                currentRow[c] = elements[i];
-                                i += columnStride;
-                            }
-                            idx += rowStride;
-                        }
+            ConcurrencyUtils.parallelFor(0, rows, rowGrain(), new RangeProcedure() {
+                public void apply(int firstRow, int lastRow) {
+                    int idx = (int) index(firstRow, 0);
+                    for (int r = firstRow; r < lastRow; r++) {
+                        DenseDoubleKernels.copy(elements, idx, columnStride, values[r], 0, 1, columns);
+                        idx += rowStride;
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
+                }
+            });
         } else {
-            int idx = zero;
+            int idx = (int) index(0, 0);
             for (int r = 0; r < rows; r++) {
-                double[] currentRow = values[r];
-                for (int i = idx, c = 0; c < columns; c++) {
-                    currentRow[c] = elements[i];
-                    i += columnStride;
-                }
+                DenseDoubleKernels.copy(elements, idx, columnStride, values[r], 0, 1, columns);
                 idx += rowStride;
             }
         }
         return values;
     }
 
-    public DoubleMatrix1D vectorize() {
-        final DenseDoubleMatrix1D v = new DenseDoubleMatrix1D((int) size());
+    /**
+     * Transposes this square matrix in place. Unlike {@link #viewDice()},
+     * which only swaps the strides, the cells are moved, so that the rows of
+     * the transposed matrix are stored as contiguously as those of this
+     * matrix. The cells are exchanged tile by tile, in parallel if the matrix
+     * is large enough.
+     * 
+     * @return <tt>this</tt> (for convenience only).
+     * @throws IllegalArgumentException
+     *             if <tt>rows() != columns()</tt>.
+     */
+    public DoubleMatrix2D transposeInPlace() {
+        if (rows != columns)
+            throw new IllegalArgumentException("Matrix must be square: " + toStringShort());
         final int zero = (int) index(0, 0);
-        final int zeroOther = (int) v.index(0);
-        final int strideOther = v.stride();
-        final double[] elementsOther = v.elements();
+        final int tiles = (rows + DenseDoubleKernels.TILE - 1) / DenseDoubleKernels.TILE;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        int idx = 0;
-                        int idxOther = zeroOther + firstColumn * rows;
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            idx = zero + c * columnStride;
-                            for (int r = 0; r < rows; r++) {
-                                elementsOther[idxOther] = elements[idx];
-                                idx += rowStride;
-                                idxOther += strideOther;
-                            }
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero;
-            int idxOther = zeroOther;
-            for (int c = 0; c < columns; c++) {
-                idx = zero + c * columnStride;
-                for (int r = 0; r < rows; r++) {
-                    elementsOther[idxOther] = elements[idx];
-                    idx += rowStride;
-                    idxOther += strideOther;
+        int threshold = ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.transposeInPlace");
+        if ((nthreads > 1) && (size() >= threshold)) {
+            ConcurrencyUtils.parallelFor(0, tiles, 1, new RangeProcedure() {
+                public void apply(int firstTile, int lastTile) {
+                    DenseDoubleKernels.transposeSquare(elements, zero, rowStride, columnStride, rows, firstTile,
+                            lastTile);
                 }
-            }
+            });
+        } else {
+            DenseDoubleKernels.transposeSquare(elements, zero, rowStride, columnStride, rows, 0, tiles);
         }
+        return this;
+    }
+
+    public DoubleMatrix1D vectorize() {
+        DenseDoubleMatrix1D v = new DenseDoubleMatrix1D((int) size());
+        // the columns are stacked, i.e. v is a column-major layout
+        copyTo(v.elements(), (int) v.index(0), v.stride(), rows * v.stride());
         return v;
     }
 
@@ -2664,34 +2256,26 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
         final int zeroY = (int) y.index(0);
         final int zeroZ = (int) z.index(0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idxZero = zero + firstRow * rowStride;
-                        int idxZeroZ = zeroZ + firstRow * strideZ;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            double sum = 0;
-                            int idx = idxZero;
-                            int idxY = zeroY;
-                            for (int c = 0; c < columns; c++) {
-                                sum += elements[idx] * elemsY[idxY];
-                                idx += columnStride;
-                                idxY += strideY;
-                            }
-                            elemsZ[idxZeroZ] = alpha * sum + beta * elemsZ[idxZeroZ];
-                            idxZero += rowStride;
-                            idxZeroZ += strideZ;
+        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseDoubleMatrix2D.zMult"))) {
+            ConcurrencyUtils.parallelFor(0, rows, ConcurrencyUtils.getGrainSize(rows, 4), new RangeProcedure() {
+                public void apply(int firstRow, int lastRow) {
+                    int idxZero = zero + firstRow * rowStride;
+                    int idxZeroZ = zeroZ + firstRow * strideZ;
+                    for (int r = firstRow; r < lastRow; r++) {
+                        double sum = 0;
+                        int idx = idxZero;
+                        int idxY = zeroY;
+                        for (int c = 0; c < columns; c++) {
+                            sum += elements[idx] * elemsY[idxY];
+                            idx += columnStride;
+                            idxY += strideY;
                         }
+                        elemsZ[idxZeroZ] = alpha * sum + beta * elemsZ[idxZeroZ];
+                        idxZero += rowStride;
+                        idxZeroZ += strideZ;
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
+                }
+            });
         } else {
             int idxZero = zero;
             int idxZeroZ = zeroZ;
@@ -2720,245 +2304,135 @@ public class DenseDoubleMatrix2D extends DoubleMatrix2D {
         final int columnsB = B.columns();
         final int rowsC = transposeA ? columnsA : rowsA;
         final int columnsC = transposeB ? rowsB : columnsB;
+        final int inner = transposeA ? rowsA : columnsA;
 
         if (C == null) {
             C = new DenseDoubleMatrix2D(rowsC, columnsC);
         }
 
-        /*
-        * determine how to split and parallelize best into blocks if more
-        * B.columns than tasks --> split B.columns, as follows:
-        * 
-        * xx|xx|xxx B xx|xx|xxx xx|xx|xxx A xxx xx|xx|xxx C xxx xx|xx|xxx xxx
-        * xx|xx|xxx xxx xx|xx|xxx xxx xx|xx|xxx
-        * 
-        * if less B.columns than tasks --> split A.rows, as follows:
-        * 
-        * xxxxxxx B xxxxxxx xxxxxxx A xxx xxxxxxx C xxx xxxxxxx --- ------- xxx
-        * xxxxxxx xxx xxxxxxx --- ------- xxx xxxxxxx
-        */
-        if (transposeA)
-            return viewDice().zMult(B, C, alpha, beta, false, transposeB);
-        if (B instanceof SparseDoubleMatrix2D || B instanceof SparseRCDoubleMatrix2D) {
+        if (B instanceof SparseDoubleMatrix2D || B instanceof SparseRCDoubleMatrix2D
+                || B instanceof SparseCCDoubleMatrix2D) {
+            if (transposeA)
+                return viewDice().zMult(B, C, alpha, beta, false, transposeB);
             // exploit quick sparse mult
             // A*B = (B' * A')'
-            if (C == null) {
-                return B.zMult(this, null, alpha, beta, !transposeB, true).viewDice();
-            } else {
-                B.zMult(this, C.viewDice(), alpha, beta, !transposeB, true);
-                return C;
-            }
+            B.zMult(this, C.viewDice(), alpha, beta, !transposeB, true);
+            return C;
         }
-        if (transposeB)
-            return this.zMult(B.viewDice(), C, alpha, beta, transposeA, false);
 
-        if (!(C instanceof DenseDoubleMatrix2D))
+        if (!(B instanceof DenseDoubleMatrix2D) || !(C instanceof DenseDoubleMatrix2D))
             return super.zMult(B, C, alpha, beta, transposeA, transposeB);
 
-        if (B.rows() != columnsA)
+        if ((transposeB ? columnsB : rowsB) != inner)
             throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + this.toStringShort() + ", "
                     + B.toStringShort());
-        if (C.rows() != rowsA || C.columns() != columnsB)
+        if (C.rows() != rowsC || C.columns() != columnsC)
             throw new IllegalArgumentException("Incompatibe result matrix: " + this.toStringShort() + ", "
                     + B.toStringShort() + ", " + C.toStringShort());
         if (this == C || B == C)
             throw new IllegalArgumentException("Matrices must not be identical");
 
-        long flops = 2L * rowsA * columnsA * columnsB;
-        int noOfTasks = (int) Math.min(flops / 30000, ConcurrencyUtils.getNumberOfThreads()); // each
-        /* thread should process at least 30000 flops */
-        boolean splitB = (columnsB >= noOfTasks);
-        int width = splitB ? columnsB : rowsA;
-        noOfTasks = Math.min(width, noOfTasks);
-
-        if (noOfTasks < 2) { //parallelization doesn't pay off (too much start up overhead)
-            return this.zMultSequential(B, C, alpha, beta, transposeA, transposeB);
-        }
-
-        // set up concurrent tasks
-        int span = width / noOfTasks;
-        final Future<?>[] subTasks = new Future[noOfTasks];
-        for (int i = 0; i < noOfTasks; i++) {
-            final int offset = i * span;
-            if (i == noOfTasks - 1)
-                span = width - span * i; // last span may be a bit larger
-
-            final DoubleMatrix2D AA, BB, CC;
-            if (splitB) {
-                // split B along columns into blocks
-                AA = this;
-                BB = B.viewPart(0, offset, columnsA, span);
-                CC = C.viewPart(0, offset, rowsA, span);
-            } else {
-                // split A along rows into blocks
-                AA = this.viewPart(offset, 0, span, columnsA);
-                BB = B;
-                CC = C.viewPart(offset, 0, span, columnsB);
-            }
-
-            subTasks[i] = ConcurrencyUtils.submit(new Runnable() {
-                public void run() {
-                    ((DenseDoubleMatrix2D) AA).zMultSequential(BB, CC, alpha, beta, transposeA, transposeB);
-                }
-            });
-        }
+        DenseDoubleMatrix2D BB = (DenseDoubleMatrix2D) B;
+        DenseDoubleMatrix2D CC = (DenseDoubleMatrix2D) C;
+        if (elements == null || BB.elements == null || CC.elements == null)
+            throw new InternalError();
 
-        ConcurrencyUtils.waitForCompletion(subTasks);
+        /*
+         * The GEMM engine accepts any strides, so transposed operands are
+         * passed by swapping their strides.
+         */
+        int aRowStride = transposeA ? columnStride : rowStride;
+        int aColumnStride = transposeA ? rowStride : columnStride;
+        int bRowStride = transposeB ? BB.columnStride : BB.rowStride;
+        int bColumnStride = transposeB ? BB.rowStride : BB.columnStride;
+
+        long flops = 2L * rowsC * inner * columnsC;
+        // each thread should process at least 30000 flops
+        boolean parallel = Math.min(flops / 30000, ConcurrencyUtils.getNumberOfThreads()) >= 2;
+        DenseDoubleGemm.gemm(rowsC, columnsC, inner, alpha, elements, (int) index(0, 0), aRowStride, aColumnStride,
+                BB.elements, (int) BB.index(0, 0), bRowStride, bColumnStride, beta, CC.elements, (int) CC.index(0, 0),
+                CC.rowStride, CC.columnStride, parallel);
         return C;
     }
 
     public double zSum() {
-        double sum = 0;
         if (elements == null)
             throw new InternalError();
-        final int zero = (int) index(0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Callable<Double>() {
-
-                    public Double call() throws Exception {
-                        double sum = 0;
-                        int idx = zero + firstRow * rowStride;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, c = 0; c < columns; c++) {
-                                sum += elements[i];
-                                i += columnStride;
-                            }
-                            idx += rowStride;
-                        }
-                        return sum;
-                    }
-                });
-            }
-            try {
-                for (int j = 0; j < nthreads; j++) {
-                    sum += (Double) futures[j].get();
-                }
-            } catch (ExecutionException ex) {
-                ex.printStackTrace();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        } else {
-            int idx = zero;
-            for (int r = 0; r < rows; r++) {
-                for (int i = idx, c = 0; c < columns; c++) {
-                    sum += elements[i];
-                    i += columnStride;
+        if (columnStride == 1 && rowStride == columns && DenseDoubleKernels.isReductionSupported()) {
+            boolean parallel = (nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D());
+            return DenseDoubleKernels.zSum(elements, (int) index(0, 0), rows * columns, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            return ConcurrencyUtils.parallelReduce(0, rows, rowGrain(), new DoubleRangeFunction() {
+                public double apply(int firstRow, int lastRow) {
+                    return zSumRows(firstRow, lastRow);
                 }
-                idx += rowStride;
-            }
+            }, DoubleFunctions.plus);
         }
-        return sum;
+        return zSumRows(0, rows);
     }
 
-    private DoubleMatrix2D zMultSequential(DoubleMatrix2D B, DoubleMatrix2D C, double alpha, double beta,
-            boolean transposeA, boolean transposeB) {
-        if (transposeA)
-            return viewDice().zMult(B, C, alpha, beta, false, transposeB);
-        if (B instanceof SparseDoubleMatrix2D || B instanceof SparseRCDoubleMatrix2D
-                || B instanceof SparseCCDoubleMatrix2D) {
-            // exploit quick sparse mult
-            // A*B = (B' * A')'
-            if (C == null) {
-                return B.zMult(this, null, alpha, beta, !transposeB, true).viewDice();
-            } else {
-                B.zMult(this, C.viewDice(), alpha, beta, !transposeB, true);
-                return C;
+    private double zSumRows(int firstRow, int lastRow) {
+        double sum = 0;
+        int idx = (int) index(firstRow, 0);
+        for (int r = firstRow; r < lastRow; r++) {
+            for (int i = idx, c = 0; c < columns; c++) {
+                sum += elements[i];
+                i += columnStride;
             }
+            idx += rowStride;
         }
-        if (transposeB)
-            return this.zMult(B.viewDice(), C, alpha, beta, transposeA, false);
-
-        int rowsA = rows;
-        int columnsA = columns;
-        int p = B.columns();
-        if (C == null) {
-            C = new DenseDoubleMatrix2D(rowsA, p);
-        }
-        if (!(B instanceof DenseDoubleMatrix2D) || !(C instanceof DenseDoubleMatrix2D))
-            return super.zMult(B, C, alpha, beta, transposeA, transposeB);
-        if (B.rows() != columnsA)
-            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
-                    + B.toStringShort());
-        if (C.rows() != rowsA || C.columns() != p)
-            throw new IllegalArgumentException("Incompatibel result matrix: " + toStringShort() + ", "
-                    + B.toStringShort() + ", " + C.toStringShort());
-        if (this == C || B == C)
-            throw new IllegalArgumentException("Matrices must not be identical");
-
-        DenseDoubleMatrix2D BB = (DenseDoubleMatrix2D) B;
-        DenseDoubleMatrix2D CC = (DenseDoubleMatrix2D) C;
-        final double[] AElems = this.elements;
-        final double[] BElems = BB.elements;
-        final double[] CElems = CC.elements;
-        if (AElems == null || BElems == null || CElems == null)
-            throw new InternalError();
-
-        int cA = this.columnStride;
-        int cB = BB.columnStride;
-        int cC = CC.columnStride;
+        return sum;
+    }
 
-        int rA = this.rowStride;
-        int rB = BB.rowStride;
-        int rC = CC.rowStride;
+    /*
+     * Grain size, in rows, of the parallel element-wise operations.
+     */
+    private int rowGrain() {
+        return ConcurrencyUtils.getGrainSize(rows, Math.max(1, 4096 / Math.max(1, columns)));
+    }
 
-        /*
-         * A is blocked to hide memory latency xxxxxxx B xxxxxxx xxxxxxx A xxx
-         * xxxxxxx C xxx xxxxxxx --- ------- xxx xxxxxxx xxx xxxxxxx --- -------
-         * xxx xxxxxxx
-         */
-        final int BLOCK_SIZE = 30000; // * 8 == Level 2 cache in bytes
-        int m_optimal = (BLOCK_SIZE - columnsA) / (columnsA + 1);
-        if (m_optimal <= 0)
-            m_optimal = 1;
-        int blocks = rowsA / m_optimal;
-        int rr = 0;
-        if (rowsA % m_optimal != 0)
-            blocks++;
-        for (; --blocks >= 0;) {
-            int jB = (int) BB.index(0, 0);
-            int indexA = (int) index(rr, 0);
-            int jC = (int) CC.index(rr, 0);
-            rr += m_optimal;
-            if (blocks == 0)
-                m_optimal += rowsA - rr;
-
-            for (int j = p; --j >= 0;) {
-                int iA = indexA;
-                int iC = jC;
-                for (int i = m_optimal; --i >= 0;) {
-                    int kA = iA;
-                    int kB = jB;
-                    double s = 0;
-
-                    // loop unrolled
-                    kA -= cA;
-                    kB -= rB;
-
-                    for (int k = columnsA % 4; --k >= 0;) {
-                        s += AElems[kA += cA] * BElems[kB += rB];
-                    }
-                    for (int k = columnsA / 4; --k >= 0;) {
-                        s += AElems[kA += cA] * BElems[kB += rB] + AElems[kA += cA] * BElems[kB += rB]
-                                + AElems[kA += cA] * BElems[kB += rB] + AElems[kA += cA] * BElems[kB += rB];
-                    }
+    /*
+     * Returns r * columns + c for the first cell (r, c), in row-major order,
+     * holding the maximum (or minimum) value.
+     */
+    private int extremeLocation(final boolean max) {
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            return ConcurrencyUtils.parallelReduceInt(0, rows, rowGrain(), new IntRangeFunction() {
+                public int apply(int firstRow, int lastRow) {
+                    return extremeLocation(max, firstRow, lastRow);
+                }
+            }, new IntIntFunction() {
+                public int apply(int a, int b) {
+                    double x = getQuick(a / columns, a % columns);
+                    double y = getQuick(b / columns, b % columns);
+                    return (max ? x < y : x > y) ? b : a;
+                }
+            });
+        }
+        return extremeLocation(max, 0, rows);
+    }
 
-                    CElems[iC] = alpha * s + beta * CElems[iC];
-                    iA += rA;
-                    iC += rC;
+    private int extremeLocation(boolean max, int firstRow, int lastRow) {
+        int idx = (int) index(firstRow, 0);
+        double value = elements[idx];
+        int location = firstRow * columns;
+        int d = 1; // first cell already done
+        for (int r = firstRow; r < lastRow; r++) {
+            for (int i = idx + d * columnStride, c = d; c < columns; c++) {
+                double elem = elements[i];
+                if (max ? value < elem : value > elem) {
+                    value = elem;
+                    location = r * columns + c;
                 }
-                jB += cB;
-                jC += cC;
+                i += columnStride;
             }
+            d = 0;
+            idx += rowStride;
         }
-        return C;
+        return location;
     }
 
     protected boolean haveSharedCellsRaw(DoubleMatrix2D other) {
@@ -14,6 +14,8 @@ import java.util.concurrent.Future;
 
 import cern.colt.list.tdouble.DoubleArrayList;
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.ConvolutionMode;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tdcomplex.impl.DenseDComplexMatrix3D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
@@ -22,7 +24,9 @@ import edu.emory.mathcs.jtransforms.dct.DoubleDCT_3D;
 import edu.emory.mathcs.jtransforms.dht.DoubleDHT_3D;
 import edu.emory.mathcs.jtransforms.dst.DoubleDST_3D;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_3D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
 
 /**
  * Dense 3-d matrix holding <tt>double</tt> elements. First see the <a
@@ -75,14 +79,6 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
 public class DenseDoubleMatrix3D extends DoubleMatrix3D {
     private static final long serialVersionUID = 1L;
 
-    private DoubleFFT_3D fft3;
-
-    private DoubleDCT_3D dct3;
-
-    private DoubleDST_3D dst3;
-
-    private DoubleDHT_3D dht3;
-
     protected double[] elements;
 
     /**
@@ -178,8 +174,13 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
         double a = 0;
         final int zero = (int) index(0, 0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
+        if (columnStride == 1 && rowStride == columns && sliceStride == rows * columns
+                && DenseDoubleKernels.isAggregateSupported(aggr, f)) {
+            boolean parallel = (nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D());
+            return DenseDoubleKernels.aggregate(elements, zero, slices * rows * columns, aggr, f, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(slices);
             Future<?>[] futures = new Future[nthreads];
             int k = slices / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -226,8 +227,9 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
         double a = 0;
         final int zero = (int) index(0, 0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (slices * rows * columns >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (slices * rows * columns >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(slices);
             Future<?>[] futures = new Future[nthreads];
             int k = slices / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -293,8 +295,8 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
         final int zero = (int) index(0, 0, 0);
         double a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(slices);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -345,8 +347,8 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
         final int columnStrideOther = other.columnStride();
         final double[] elementsOther = (double[]) other.elements();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(slices);
             Future<?>[] futures = new Future[nthreads];
             int k = slices / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -394,47 +396,38 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
     }
 
     public DoubleMatrix3D assign(final cern.colt.function.tdouble.DoubleFunction function) {
-        final int zero = (int) index(0, 0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx;
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            for (int r = 0; r < rows; r++) {
-                                idx = zero + s * sliceStride + r * rowStride;
-                                for (int c = 0; c < columns; c++) {
-                                    elements[idx] = function.apply(elements[idx]);
-                                    idx += columnStride;
-                                }
-                            }
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-
-        } else {
-            int idx;
-            for (int s = 0; s < slices; s++) {
-                for (int r = 0; r < rows; r++) {
-                    idx = zero + s * sliceStride + r * rowStride;
-                    for (int c = 0; c < columns; c++) {
-                        elements[idx] = function.apply(elements[idx]);
-                        idx += columnStride;
-                    }
+            ConcurrencyUtils.parallelFor(0, slices, ConcurrencyUtils.getGrainSize(slices, 1), new RangeProcedure() {
+                public void apply(int firstSlice, int lastSlice) {
+                    assignSlices(function, firstSlice, lastSlice);
                 }
-            }
+            });
+        } else {
+            assignSlices(function, 0, slices);
         }
         return this;
     }
 
+    /*
+     * x[i] = f(x[i]) for the slices [firstSlice, lastSlice). The slices of a
+     * contiguous matrix are processed as a single run.
+     */
+    private void assignSlices(cern.colt.function.tdouble.DoubleFunction function, int firstSlice, int lastSlice) {
+        if (columnStride == 1 && rowStride == columns && sliceStride == rows * columns) {
+            DenseDoubleKernels.assign(elements, (int) index(firstSlice, 0, 0), 1, (lastSlice - firstSlice) * rows
+                    * columns, function);
+            return;
+        }
+        for (int s = firstSlice; s < lastSlice; s++) {
+            int idx = (int) index(s, 0, 0);
+            for (int r = 0; r < rows; r++) {
+                DenseDoubleKernels.assign(elements, idx, columnStride, columns, function);
+                idx += rowStride;
+            }
+        }
+    }
+
     public DoubleMatrix3D assign(final cern.colt.function.tdouble.DoubleProcedure cond,
             final cern.colt.function.tdouble.DoubleFunction f) {
         final int zero = (int) index(0, 0, 0);
@@ -614,9 +607,9 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 int idxOther = 0;
@@ -675,9 +668,9 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 int i = 0;
@@ -737,9 +730,9 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
 
             } else {
@@ -829,9 +822,9 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 int idx;
@@ -858,58 +851,45 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
             return this;
         }
         checkShape(y);
-        final int zero = (int) index(0, 0, 0);
-        final int zeroOther = (int) y.index(0, 0, 0);
-        final int sliceStrideOther = y.sliceStride();
-        final int rowStrideOther = y.rowStride();
-        final int columnStrideOther = y.columnStride();
-        final double[] elementsOther = (double[]) y.elements();
+        final DenseDoubleMatrix3D other = (DenseDoubleMatrix3D) y;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx;
-                        int idxOther;
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            for (int r = 0; r < rows; r++) {
-                                idx = zero + s * sliceStride + r * rowStride;
-                                idxOther = zeroOther + s * sliceStrideOther + r * rowStrideOther;
-                                for (int c = 0; c < columns; c++) {
-                                    elements[idx] = function.apply(elements[idx], elementsOther[idxOther]);
-                                    idx += columnStride;
-                                    idxOther += columnStrideOther;
-                                }
-                            }
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx;
-            int idxOther;
-            for (int s = 0; s < slices; s++) {
-                for (int r = 0; r < rows; r++) {
-                    idx = zero + s * sliceStride + r * rowStride;
-                    idxOther = zeroOther + s * sliceStrideOther + r * rowStrideOther;
-                    for (int c = 0; c < columns; c++) {
-                        elements[idx] = function.apply(elements[idx], elementsOther[idxOther]);
-                        idx += columnStride;
-                        idxOther += columnStrideOther;
-                    }
+            ConcurrencyUtils.parallelFor(0, slices, ConcurrencyUtils.getGrainSize(slices, 1), new RangeProcedure() {
+                public void apply(int firstSlice, int lastSlice) {
+                    assignSlices(other, function, firstSlice, lastSlice);
                 }
-            }
+            });
+        } else {
+            assignSlices(other, function, 0, slices);
         }
-
         return this;
     }
 
+    /*
+     * x[i] = f(x[i],y[i]) for the slices [firstSlice, lastSlice). The slices
+     * of contiguous matrices are processed as a single run.
+     */
+    private void assignSlices(DenseDoubleMatrix3D other, cern.colt.function.tdouble.DoubleDoubleFunction function,
+            int firstSlice, int lastSlice) {
+        int sliceSize = rows * columns;
+        if (columnStride == 1 && rowStride == columns && sliceStride == sliceSize && other.columnStride == 1
+                && other.rowStride == columns && other.sliceStride == sliceSize) {
+            DenseDoubleKernels.assign(elements, (int) index(firstSlice, 0, 0), 1, other.elements, (int) other.index(
+                    firstSlice, 0, 0), 1, (lastSlice - firstSlice) * sliceSize, function);
+            return;
+        }
+        for (int s = firstSlice; s < lastSlice; s++) {
+            int idx = (int) index(s, 0, 0);
+            int idxOther = (int) other.index(s, 0, 0);
+            for (int r = 0; r < rows; r++) {
+                DenseDoubleKernels.assign(elements, idx, columnStride, other.elements, idxOther, other.columnStride,
+                        columns, function);
+                idx += rowStride;
+                idxOther += other.rowStride;
+            }
+        }
+    }
+
     public DoubleMatrix3D assign(final DoubleMatrix3D y,
             final cern.colt.function.tdouble.DoubleDoubleFunction function, final IntArrayList sliceList,
             final IntArrayList rowList, final IntArrayList columnList) {
@@ -1002,9 +982,9 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx;
@@ -1023,6 +1003,46 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
         return cardinality;
     }
 
+    /**
+     * Returns the 3D convolution of this matrix with the given kernel. The full
+     * convolution has <tt>slices() + kernel.slices() - 1</tt> slices,
+     * <tt>rows() + kernel.rows() - 1</tt> rows and
+     * <tt>columns() + kernel.columns() - 1</tt> columns,
+     * <tt>result[s][i][j] = Sum(this[s - a][i - b][j - c] * kernel[a][b][c])</tt>,
+     * where cells outside of this matrix are zero; the mode selects a part of
+     * it along all dimensions. The result is computed directly for small
+     * kernels and with FFTs for large ones.
+     * 
+     * @param kernel
+     *            the kernel
+     * @param mode
+     *            the part of the full convolution that is returned
+     * @return the convolution of this matrix with the kernel
+     * @throws IllegalArgumentException
+     *             if <tt>kernel.size() == 0</tt>.
+     */
+    public DenseDoubleMatrix3D convolve(DoubleMatrix3D kernel, ConvolutionMode mode) {
+        return DenseDoubleConvolution.apply(this, kernel, mode, true);
+    }
+
+    /**
+     * Returns the 3D correlation of this matrix with the given kernel, i.e. the
+     * convolution with the kernel reversed along all dimensions. The full
+     * correlation has the size of the full convolution; the mode selects a
+     * part of it along all dimensions.
+     * 
+     * @param kernel
+     *            the kernel
+     * @param mode
+     *            the part of the full correlation that is returned
+     * @return the correlation of this matrix with the kernel
+     * @throws IllegalArgumentException
+     *             if <tt>kernel.size() == 0</tt>.
+     */
+    public DenseDoubleMatrix3D correlate(DoubleMatrix3D kernel, ConvolutionMode mode) {
+        return DenseDoubleConvolution.apply(this, kernel, mode, false);
+    }
+
     /**
      * Computes the 2D discrete cosine transform (DCT-II) of each slice of this
      * matrix.
@@ -1032,32 +1052,34 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      * 
      */
     public void dct2Slices(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseDoubleMatrix2D) viewSlice(s)).dct2(scale);
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseDoubleMatrix2D) viewSlice(s)).dct2(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseDoubleMatrix2D) viewSlice(s)).dct2(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseDoubleMatrix2D) viewSlice(s)).dct2(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1068,19 +1090,20 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      * 
      */
     public void dct3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct3 == null) {
-            dct3 = new DoubleDCT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            dct3.forward(elements, scale);
-        } else {
-            DoubleMatrix3D copy = this.copy();
-            dct3.forward((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_3D dct3 = TransformPlans.acquire(DoubleDCT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                dct3.forward(elements, scale);
+            } else {
+                DoubleMatrix3D copy = this.copy();
+                dct3.forward((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dct3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1089,32 +1112,34 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      * 
      */
     public void dht2Slices() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseDoubleMatrix2D) viewSlice(s)).dht2();
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseDoubleMatrix2D) viewSlice(s)).dht2();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseDoubleMatrix2D) viewSlice(s)).dht2();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseDoubleMatrix2D) viewSlice(s)).dht2();
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1122,19 +1147,20 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      * 
      */
     public void dht3() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht3 == null) {
-            dht3 = new DoubleDHT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            dht3.forward(elements);
-        } else {
-            DoubleMatrix3D copy = this.copy();
-            dht3.forward((double[]) copy.elements());
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_3D dht3 = TransformPlans.acquire(DoubleDHT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                dht3.forward(elements);
+            } else {
+                DoubleMatrix3D copy = this.copy();
+                dht3.forward((double[]) copy.elements());
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dht3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1146,32 +1172,34 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      * 
      */
     public void dst2Slices(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseDoubleMatrix2D) viewSlice(s)).dst2(scale);
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseDoubleMatrix2D) viewSlice(s)).dst2(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseDoubleMatrix2D) viewSlice(s)).dst2(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseDoubleMatrix2D) viewSlice(s)).dst2(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1182,19 +1210,20 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      * 
      */
     public void dst3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst3 == null) {
-            dst3 = new DoubleDST_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            dst3.forward(elements, scale);
-        } else {
-            DoubleMatrix3D copy = this.copy();
-            dst3.forward((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_3D dst3 = TransformPlans.acquire(DoubleDST_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                dst3.forward(elements, scale);
+            } else {
+                DoubleMatrix3D copy = this.copy();
+                dst3.forward((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dst3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public double[] elements() {
@@ -1258,19 +1287,20 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      *             matrix is not a power of 2 number.
      */
     public void fft3() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft3 == null) {
-            fft3 = new DoubleFFT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            fft3.realForward(elements);
-        } else {
-            DoubleMatrix3D copy = this.copy();
-            fft3.realForward((double[]) copy.elements());
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_3D fft3 = TransformPlans.acquire(DoubleFFT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                fft3.realForward(elements);
+            } else {
+                DoubleMatrix3D copy = this.copy();
+                fft3.realForward((double[]) copy.elements());
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(fft3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1282,34 +1312,36 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      * 
      */
     public DenseDComplexMatrix3D getFft2Slices() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseDComplexMatrix3D C = new DenseDComplexMatrix3D(slices, rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseDComplexMatrix3D C = new DenseDComplexMatrix3D(slices, rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            C.viewSlice(s).assign(((DenseDoubleMatrix2D) viewSlice(s)).getFft2());
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                C.viewSlice(s).assign(((DenseDoubleMatrix2D) viewSlice(s)).getFft2());
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                C.viewSlice(s).assign(((DenseDoubleMatrix2D) viewSlice(s)).getFft2());
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    C.viewSlice(s).assign(((DenseDoubleMatrix2D) viewSlice(s)).getFft2());
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1319,55 +1351,56 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      * @return the 3D discrete Fourier transform (DFT) of this matrix.
      */
     public DenseDComplexMatrix3D getFft3() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        DenseDComplexMatrix3D C = new DenseDComplexMatrix3D(slices, rows, columns);
-        final int sliceStride = rows * columns;
-        final int rowStride = columns;
-        final double[] elems;
-        if (isNoView == true) {
-            elems = elements;
-        } else {
-            elems = (double[]) this.copy().elements();
-        }
-        final double[] cElems = (C).elements();
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx;
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            for (int r = 0; r < rows; r++) {
-                                idx = s * sliceStride + r * rowStride;
-                                System.arraycopy(elems, idx, cElems, idx, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            DenseDComplexMatrix3D C = new DenseDComplexMatrix3D(slices, rows, columns);
+            final int sliceStride = rows * columns;
+            final int rowStride = columns;
+            final double[] elems;
+            if (isNoView == true) {
+                elems = elements;
+            } else {
+                elems = (double[]) this.copy().elements();
+            }
+            final double[] cElems = (C).elements();
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            int idx;
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                for (int r = 0; r < rows; r++) {
+                                    idx = s * sliceStride + r * rowStride;
+                                    System.arraycopy(elems, idx, cElems, idx, columns);
+                                }
                             }
-                        }
 
+                        }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                int idx;
+                for (int s = 0; s < slices; s++) {
+                    for (int r = 0; r < rows; r++) {
+                        idx = s * sliceStride + r * rowStride;
+                        System.arraycopy(elems, idx, cElems, idx, columns);
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx;
-            for (int s = 0; s < slices; s++) {
-                for (int r = 0; r < rows; r++) {
-                    idx = s * sliceStride + r * rowStride;
-                    System.arraycopy(elems, idx, cElems, idx, columns);
                 }
             }
+            final DoubleFFT_3D fft3 = TransformPlans.acquire(DoubleFFT_3D.class, slices, rows, columns);
+            fft3.realForwardFull(cElems);
+            TransformPlans.release(fft3, slices, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        if (fft3 == null) {
-            fft3 = new DoubleFFT_3D(slices, rows, columns);
-        }
-        fft3.realForwardFull(cElems);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1381,34 +1414,36 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      *         slice of this matrix.
      */
     public DenseDComplexMatrix3D getIfft2Slices(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseDComplexMatrix3D C = new DenseDComplexMatrix3D(slices, rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseDComplexMatrix3D C = new DenseDComplexMatrix3D(slices, rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            C.viewSlice(s).assign(((DenseDoubleMatrix2D) viewSlice(s)).getIfft2(scale));
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                C.viewSlice(s).assign(((DenseDoubleMatrix2D) viewSlice(s)).getIfft2(scale));
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                C.viewSlice(s).assign(((DenseDoubleMatrix2D) viewSlice(s)).getIfft2(scale));
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    C.viewSlice(s).assign(((DenseDoubleMatrix2D) viewSlice(s)).getIfft2(scale));
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1423,55 +1458,56 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      * 
      */
     public DenseDComplexMatrix3D getIfft3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        DenseDComplexMatrix3D C = new DenseDComplexMatrix3D(slices, rows, columns);
-        final int sliceStride = rows * columns;
-        final int rowStride = columns;
-        final double[] cElems = (C).elements();
-        final double[] elems;
-        if (isNoView == true) {
-            elems = elements;
-        } else {
-            elems = (double[]) this.copy().elements();
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx;
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            for (int r = 0; r < rows; r++) {
-                                idx = s * sliceStride + r * rowStride;
-                                System.arraycopy(elems, idx, cElems, idx, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            DenseDComplexMatrix3D C = new DenseDComplexMatrix3D(slices, rows, columns);
+            final int sliceStride = rows * columns;
+            final int rowStride = columns;
+            final double[] cElems = (C).elements();
+            final double[] elems;
+            if (isNoView == true) {
+                elems = elements;
+            } else {
+                elems = (double[]) this.copy().elements();
+            }
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            int idx;
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                for (int r = 0; r < rows; r++) {
+                                    idx = s * sliceStride + r * rowStride;
+                                    System.arraycopy(elems, idx, cElems, idx, columns);
+                                }
                             }
-                        }
 
+                        }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                int idx;
+                for (int s = 0; s < slices; s++) {
+                    for (int r = 0; r < rows; r++) {
+                        idx = s * sliceStride + r * rowStride;
+                        System.arraycopy(elems, idx, cElems, idx, columns);
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx;
-            for (int s = 0; s < slices; s++) {
-                for (int r = 0; r < rows; r++) {
-                    idx = s * sliceStride + r * rowStride;
-                    System.arraycopy(elems, idx, cElems, idx, columns);
                 }
             }
+            final DoubleFFT_3D fft3 = TransformPlans.acquire(DoubleFFT_3D.class, slices, rows, columns);
+            fft3.realInverseFull(cElems, scale);
+            TransformPlans.release(fft3, slices, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        if (fft3 == null) {
-            fft3 = new DoubleFFT_3D(slices, rows, columns);
-        }
-        fft3.realInverseFull(cElems, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     public double[] getMaxLocation() {
@@ -1532,9 +1568,9 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = elements[zero];
@@ -1616,9 +1652,9 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = elements[zero];
@@ -1736,32 +1772,34 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      *            if true then scaling is performed
      */
     public void idct2Slices(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseDoubleMatrix2D) viewSlice(s)).idct2(scale);
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseDoubleMatrix2D) viewSlice(s)).idct2(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseDoubleMatrix2D) viewSlice(s)).idct2(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseDoubleMatrix2D) viewSlice(s)).idct2(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1772,19 +1810,20 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      *            if true then scaling is performed
      */
     public void idct3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct3 == null) {
-            dct3 = new DoubleDCT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            dct3.inverse(elements, scale);
-        } else {
-            DoubleMatrix3D copy = this.copy();
-            dct3.inverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_3D dct3 = TransformPlans.acquire(DoubleDCT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                dct3.inverse(elements, scale);
+            } else {
+                DoubleMatrix3D copy = this.copy();
+                dct3.inverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dct3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1796,32 +1835,34 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      * 
      */
     public void idht2Slices(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseDoubleMatrix2D) viewSlice(s)).idht2(scale);
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseDoubleMatrix2D) viewSlice(s)).idht2(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseDoubleMatrix2D) viewSlice(s)).idht2(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseDoubleMatrix2D) viewSlice(s)).idht2(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1832,19 +1873,20 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      *            if true then scaling is performed
      */
     public void idht3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht3 == null) {
-            dht3 = new DoubleDHT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            dht3.inverse(elements, scale);
-        } else {
-            DoubleMatrix3D copy = this.copy();
-            dht3.inverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_3D dht3 = TransformPlans.acquire(DoubleDHT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                dht3.inverse(elements, scale);
+            } else {
+                DoubleMatrix3D copy = this.copy();
+                dht3.inverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dht3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1855,32 +1897,34 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      *            if true then scaling is performed
      */
     public void idst2Slices(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseDoubleMatrix2D) viewSlice(s)).idst2(scale);
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseDoubleMatrix2D) viewSlice(s)).idst2(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseDoubleMatrix2D) viewSlice(s)).idst2(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseDoubleMatrix2D) viewSlice(s)).idst2(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1892,19 +1936,20 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      * 
      */
     public void idst3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst3 == null) {
-            dst3 = new DoubleDST_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            dst3.inverse(elements, scale);
-        } else {
-            DoubleMatrix3D copy = this.copy();
-            dst3.inverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_3D dst3 = TransformPlans.acquire(DoubleDST_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                dst3.inverse(elements, scale);
+            } else {
+                DoubleMatrix3D copy = this.copy();
+                dst3.inverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(dst3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1965,19 +2010,20 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
      *             matrix is not a power of 2 number.
      */
     public void ifft3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft3 == null) {
-            fft3 = new DoubleFFT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            fft3.realInverse(elements, scale);
-        } else {
-            DoubleMatrix3D copy = this.copy();
-            fft3.realInverse((double[]) copy.elements(), scale);
-            this.assign((double[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_3D fft3 = TransformPlans.acquire(DoubleFFT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                fft3.realInverse(elements, scale);
+            } else {
+                DoubleMatrix3D copy = this.copy();
+                fft3.realInverse((double[]) copy.elements(), scale);
+                this.assign((double[]) copy.elements());
+            }
+            TransformPlans.release(fft3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public long index(int slice, int row, int column) {
@@ -2192,8 +2238,13 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
         double sum = 0;
         final int zero = (int) index(0, 0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
+        if (columnStride == 1 && rowStride == columns && sliceStride == rows * columns
+                && DenseDoubleKernels.isReductionSupported()) {
+            boolean parallel = (nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D());
+            return DenseDoubleKernels.zSum(elements, zero, slices * rows * columns, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(slices);
             Future<?>[] futures = new Future[nthreads];
             int k = slices / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -2222,9 +2273,9 @@ public class DenseDoubleMatrix3D extends DoubleMatrix3D {
                     sum = sum + ((Double) futures[j].get());
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx;
@@ -10,6 +10,7 @@ package cern.colt.matrix.tdouble.impl;
 
 import java.util.concurrent.Future;
 
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tdcomplex.impl.DenseLargeDComplexMatrix2D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
@@ -21,6 +22,7 @@ import edu.emory.mathcs.jtransforms.dst.DoubleDST_1D;
 import edu.emory.mathcs.jtransforms.dst.DoubleDST_2D;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_2D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -48,30 +50,6 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
 
     private double[][] elements;
 
-    private DoubleFFT_2D fft2;
-
-    private DoubleDCT_2D dct2;
-
-    private DoubleDST_2D dst2;
-
-    private DoubleDHT_2D dht2;
-
-    private DoubleFFT_1D fftRows;
-
-    private DoubleFFT_1D fftColumns;
-
-    private DoubleDCT_1D dctRows;
-
-    private DoubleDCT_1D dctColumns;
-
-    private DoubleDST_1D dstRows;
-
-    private DoubleDST_1D dstColumns;
-
-    private DoubleDHT_1D dhtRows;
-
-    private DoubleDHT_1D dhtColumns;
-
     public DenseLargeDoubleMatrix2D(int rows, int columns) {
         super(null);
         try {
@@ -93,13 +71,14 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void dct2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct2 == null) {
-            dct2 = new DoubleDCT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_2D dct2 = TransformPlans.acquire(DoubleDCT_2D.class, rows, columns);
+            dct2.forward(elements, scale);
+            TransformPlans.release(dct2, rows, columns);
+        } finally {
+            context.close();
         }
-        dct2.forward(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -112,40 +91,43 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void dctColumns(final boolean scale) {
-        if (dctColumns == null) {
-            dctColumns = new DoubleDCT_1D(rows);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstCol = j * k;
-                final int lastCol = (j == nthreads - 1) ? columns : firstCol + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        double[] column;
-                        for (int c = firstCol; c < lastCol; c++) {
-                            column = (double[]) viewColumn(c).copy().elements();
-                            dctColumns.forward(column, scale);
-                            viewColumn(c).assign(column);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_1D dctColumns = TransformPlans.acquire(DoubleDCT_1D.class, rows);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstCol = j * k;
+                    final int lastCol = (j == nthreads - 1) ? columns : firstCol + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            double[] column;
+                            for (int c = firstCol; c < lastCol; c++) {
+                                column = (double[]) viewColumn(c).copy().elements();
+                                dctColumns.forward(column, scale);
+                                viewColumn(c).assign(column);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            double[] column;
-            for (int c = 0; c < columns; c++) {
-                column = (double[]) viewColumn(c).copy().elements();
-                dctColumns.forward(column, scale);
-                viewColumn(c).assign(column);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                double[] column;
+                for (int c = 0; c < columns; c++) {
+                    column = (double[]) viewColumn(c).copy().elements();
+                    dctColumns.forward(column, scale);
+                    viewColumn(c).assign(column);
+                }
             }
+            TransformPlans.release(dctColumns, rows);
+        } finally {
+            context.close();
         }
     }
 
@@ -159,34 +141,37 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void dctRows(final boolean scale) {
-        if (dctRows == null) {
-            dctRows = new DoubleDCT_1D(columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            dctRows.forward(elements[r], scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_1D dctRows = TransformPlans.acquire(DoubleDCT_1D.class, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                dctRows.forward(elements[r], scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                dctRows.forward(elements[r], scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    dctRows.forward(elements[r], scale);
+                }
             }
+            TransformPlans.release(dctRows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -196,13 +181,14 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void dht2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht2 == null) {
-            dht2 = new DoubleDHT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_2D dht2 = TransformPlans.acquire(DoubleDHT_2D.class, rows, columns);
+            dht2.forward(elements);
+            TransformPlans.release(dht2, rows, columns);
+        } finally {
+            context.close();
         }
-        dht2.forward(elements);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -212,40 +198,43 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void dhtColumns() {
-        if (dhtColumns == null) {
-            dhtColumns = new DoubleDHT_1D(rows);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstCol = j * k;
-                final int lastCol = (j == nthreads - 1) ? columns : firstCol + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        double[] column;
-                        for (int c = firstCol; c < lastCol; c++) {
-                            column = (double[]) viewColumn(c).copy().elements();
-                            dhtColumns.forward(column);
-                            viewColumn(c).assign(column);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_1D dhtColumns = TransformPlans.acquire(DoubleDHT_1D.class, rows);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstCol = j * k;
+                    final int lastCol = (j == nthreads - 1) ? columns : firstCol + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            double[] column;
+                            for (int c = firstCol; c < lastCol; c++) {
+                                column = (double[]) viewColumn(c).copy().elements();
+                                dhtColumns.forward(column);
+                                viewColumn(c).assign(column);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            double[] column;
-            for (int c = 0; c < columns; c++) {
-                column = (double[]) viewColumn(c).copy().elements();
-                dhtColumns.forward(column);
-                viewColumn(c).assign(column);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                double[] column;
+                for (int c = 0; c < columns; c++) {
+                    column = (double[]) viewColumn(c).copy().elements();
+                    dhtColumns.forward(column);
+                    viewColumn(c).assign(column);
+                }
             }
+            TransformPlans.release(dhtColumns, rows);
+        } finally {
+            context.close();
         }
     }
 
@@ -255,34 +244,37 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void dhtRows() {
-        if (dhtRows == null) {
-            dhtRows = new DoubleDHT_1D(columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            dhtRows.forward(elements[r]);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_1D dhtRows = TransformPlans.acquire(DoubleDHT_1D.class, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                dhtRows.forward(elements[r]);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                dhtRows.forward(elements[r]);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    dhtRows.forward(elements[r]);
+                }
             }
+            TransformPlans.release(dhtRows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -295,13 +287,14 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void dst2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst2 == null) {
-            dst2 = new DoubleDST_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_2D dst2 = TransformPlans.acquire(DoubleDST_2D.class, rows, columns);
+            dst2.forward(elements, scale);
+            TransformPlans.release(dst2, rows, columns);
+        } finally {
+            context.close();
         }
-        dst2.forward(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -314,40 +307,43 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void dstColumns(final boolean scale) {
-        if (dstColumns == null) {
-            dstColumns = new DoubleDST_1D(rows);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstCol = j * k;
-                final int lastCol = (j == nthreads - 1) ? columns : firstCol + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        double[] column;
-                        for (int c = firstCol; c < lastCol; c++) {
-                            column = (double[]) viewColumn(c).copy().elements();
-                            dstColumns.forward(column, scale);
-                            viewColumn(c).assign(column);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_1D dstColumns = TransformPlans.acquire(DoubleDST_1D.class, rows);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstCol = j * k;
+                    final int lastCol = (j == nthreads - 1) ? columns : firstCol + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            double[] column;
+                            for (int c = firstCol; c < lastCol; c++) {
+                                column = (double[]) viewColumn(c).copy().elements();
+                                dstColumns.forward(column, scale);
+                                viewColumn(c).assign(column);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            double[] column;
-            for (int c = 0; c < columns; c++) {
-                column = (double[]) viewColumn(c).copy().elements();
-                dstColumns.forward(column, scale);
-                viewColumn(c).assign(column);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                double[] column;
+                for (int c = 0; c < columns; c++) {
+                    column = (double[]) viewColumn(c).copy().elements();
+                    dstColumns.forward(column, scale);
+                    viewColumn(c).assign(column);
+                }
             }
+            TransformPlans.release(dstColumns, rows);
+        } finally {
+            context.close();
         }
     }
 
@@ -360,34 +356,37 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void dstRows(final boolean scale) {
-        if (dstRows == null) {
-            dstRows = new DoubleDST_1D(columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            dstRows.forward(elements[r], scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_1D dstRows = TransformPlans.acquire(DoubleDST_1D.class, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                dstRows.forward(elements[r], scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                dstRows.forward(elements[r], scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    dstRows.forward(elements[r], scale);
+                }
             }
+            TransformPlans.release(dstRows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -425,13 +424,14 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void fft2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            fft2.realForward(elements);
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        fft2.realForward(elements);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -443,38 +443,39 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public DenseLargeDComplexMatrix2D getFft2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
-        }
-        DenseLargeDComplexMatrix2D C = new DenseLargeDComplexMatrix2D(rows, columns);
-        final double[][] elementsC = (C).elements();
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            System.arraycopy(elements[r], 0, elementsC[r], 0, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            DenseLargeDComplexMatrix2D C = new DenseLargeDComplexMatrix2D(rows, columns);
+            final double[][] elementsC = (C).elements();
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                System.arraycopy(elements[r], 0, elementsC[r], 0, columns);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int r = 0; r < rows; r++) {
-                System.arraycopy(elements[r], 0, elementsC[r], 0, columns);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    System.arraycopy(elements[r], 0, elementsC[r], 0, columns);
+                }
             }
+            fft2.realForwardFull(elementsC);
+            TransformPlans.release(fft2, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        fft2.realForwardFull(elementsC);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -486,47 +487,47 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public DenseLargeDComplexMatrix2D getFftColumns() {
-        if (fftColumns == null) {
-            fftColumns = new DoubleFFT_1D(rows);
-        }
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseLargeDComplexMatrix2D C = new DenseLargeDComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstCol = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstCol + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int c = firstCol; c < lastColumn; c++) {
-                            double[] column = new double[2 * rows];
-                            System.arraycopy(viewColumn(c).copy().elements(), 0, column, 0, rows);
-                            fftColumns.realForwardFull(column);
-                            C.viewColumn(c).assign(column);
+        final DoubleFFT_1D fftColumns = TransformPlans.acquire(DoubleFFT_1D.class, rows);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseLargeDComplexMatrix2D C = new DenseLargeDComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstCol = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstCol + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int c = firstCol; c < lastColumn; c++) {
+                                double[] column = new double[2 * rows];
+                                System.arraycopy(viewColumn(c).copy().elements(), 0, column, 0, rows);
+                                fftColumns.realForwardFull(column);
+                                C.viewColumn(c).assign(column);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                double[] column = new double[2 * rows];
-                System.arraycopy(viewColumn(c).copy().elements(), 0, column, 0, rows);
-                fftColumns.realForwardFull(column);
-                C.viewColumn(c).assign(column);
-
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    double[] column = new double[2 * rows];
+                    System.arraycopy(viewColumn(c).copy().elements(), 0, column, 0, rows);
+                    fftColumns.realForwardFull(column);
+                    C.viewColumn(c).assign(column);
+
+                }
             }
+            TransformPlans.release(fftColumns, rows);
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -537,45 +538,45 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public DenseLargeDComplexMatrix2D getFftRows() {
-        if (fftRows == null) {
-            fftRows = new DoubleFFT_1D(columns);
-        }
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseLargeDComplexMatrix2D C = new DenseLargeDComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            double[] row = new double[2 * columns];
-                            System.arraycopy(elements[r], 0, row, 0, columns);
-                            fftRows.realForwardFull(row);
-                            C.viewRow(r).assign(row);
+        final DoubleFFT_1D fftRows = TransformPlans.acquire(DoubleFFT_1D.class, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseLargeDComplexMatrix2D C = new DenseLargeDComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                double[] row = new double[2 * columns];
+                                System.arraycopy(elements[r], 0, row, 0, columns);
+                                fftRows.realForwardFull(row);
+                                C.viewRow(r).assign(row);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                double[] row = new double[2 * columns];
-                System.arraycopy(elements[r], 0, row, 0, columns);
-                fftRows.realForwardFull(row);
-                C.viewRow(r).assign(row);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    double[] row = new double[2 * columns];
+                    System.arraycopy(elements[r], 0, row, 0, columns);
+                    fftRows.realForwardFull(row);
+                    C.viewRow(r).assign(row);
+                }
             }
+            TransformPlans.release(fftRows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -587,38 +588,39 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public DenseLargeDComplexMatrix2D getIfft2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        DenseLargeDComplexMatrix2D C = new DenseLargeDComplexMatrix2D(rows, columns);
-        final double[][] elementsC = (C).elements();
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            System.arraycopy(elements[r], 0, elementsC[r], 0, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            DenseLargeDComplexMatrix2D C = new DenseLargeDComplexMatrix2D(rows, columns);
+            final double[][] elementsC = (C).elements();
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                System.arraycopy(elements[r], 0, elementsC[r], 0, columns);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int r = 0; r < rows; r++) {
-                System.arraycopy(elements[r], 0, elementsC[r], 0, columns);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    System.arraycopy(elements[r], 0, elementsC[r], 0, columns);
+                }
             }
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            fft2.realInverseFull(elementsC, scale);
+            TransformPlans.release(fft2, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
-        }
-        fft2.realInverseFull(elementsC, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -630,46 +632,46 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public DenseLargeDComplexMatrix2D getIfftColumns(final boolean scale) {
-        if (fftColumns == null) {
-            fftColumns = new DoubleFFT_1D(rows);
-        }
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseLargeDComplexMatrix2D C = new DenseLargeDComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            double[] column = new double[2 * rows];
-                            System.arraycopy(viewColumn(c).copy().elements(), 0, column, 0, rows);
-                            fftColumns.realInverseFull(column, scale);
-                            C.viewColumn(c).assign(column);
+        final DoubleFFT_1D fftColumns = TransformPlans.acquire(DoubleFFT_1D.class, rows);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseLargeDComplexMatrix2D C = new DenseLargeDComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                double[] column = new double[2 * rows];
+                                System.arraycopy(viewColumn(c).copy().elements(), 0, column, 0, rows);
+                                fftColumns.realInverseFull(column, scale);
+                                C.viewColumn(c).assign(column);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                double[] column = new double[2 * rows];
-                System.arraycopy(viewColumn(c).copy().elements(), 0, column, 0, rows);
-                fftColumns.realInverseFull(column, scale);
-                C.viewColumn(c).assign(column);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    double[] column = new double[2 * rows];
+                    System.arraycopy(viewColumn(c).copy().elements(), 0, column, 0, rows);
+                    fftColumns.realInverseFull(column, scale);
+                    C.viewColumn(c).assign(column);
+                }
             }
+            TransformPlans.release(fftColumns, rows);
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -681,45 +683,45 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public DenseLargeDComplexMatrix2D getIfftRows(final boolean scale) {
-        if (fftRows == null) {
-            fftRows = new DoubleFFT_1D(columns);
-        }
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseLargeDComplexMatrix2D C = new DenseLargeDComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            double[] row = new double[2 * columns];
-                            System.arraycopy(elements[r], 0, row, 0, columns);
-                            fftRows.realInverseFull(row, scale);
-                            C.viewRow(r).assign(row);
+        final DoubleFFT_1D fftRows = TransformPlans.acquire(DoubleFFT_1D.class, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseLargeDComplexMatrix2D C = new DenseLargeDComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                double[] row = new double[2 * columns];
+                                System.arraycopy(elements[r], 0, row, 0, columns);
+                                fftRows.realInverseFull(row, scale);
+                                C.viewRow(r).assign(row);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                double[] row = new double[2 * columns];
-                System.arraycopy(elements[r], 0, row, 0, columns);
-                fftRows.realInverseFull(row, scale);
-                C.viewRow(r).assign(row);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    double[] row = new double[2 * columns];
+                    System.arraycopy(elements[r], 0, row, 0, columns);
+                    fftRows.realInverseFull(row, scale);
+                    C.viewRow(r).assign(row);
+                }
             }
+            TransformPlans.release(fftRows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     public double getQuick(int row, int column) {
@@ -736,13 +738,14 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void idct2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct2 == null) {
-            dct2 = new DoubleDCT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_2D dct2 = TransformPlans.acquire(DoubleDCT_2D.class, rows, columns);
+            dct2.inverse(elements, scale);
+            TransformPlans.release(dct2, rows, columns);
+        } finally {
+            context.close();
         }
-        dct2.inverse(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -755,40 +758,43 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void idctColumns(final boolean scale) {
-        if (dctColumns == null) {
-            dctColumns = new DoubleDCT_1D(rows);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        double[] column;
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            column = (double[]) viewColumn(c).copy().elements();
-                            dctColumns.inverse(column, scale);
-                            viewColumn(c).assign(column);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_1D dctColumns = TransformPlans.acquire(DoubleDCT_1D.class, rows);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            double[] column;
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                column = (double[]) viewColumn(c).copy().elements();
+                                dctColumns.inverse(column, scale);
+                                viewColumn(c).assign(column);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            double[] column;
-            for (int c = 0; c < columns; c++) {
-                column = (double[]) viewColumn(c).copy().elements();
-                dctColumns.inverse(column, scale);
-                viewColumn(c).assign(column);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                double[] column;
+                for (int c = 0; c < columns; c++) {
+                    column = (double[]) viewColumn(c).copy().elements();
+                    dctColumns.inverse(column, scale);
+                    viewColumn(c).assign(column);
+                }
             }
+            TransformPlans.release(dctColumns, rows);
+        } finally {
+            context.close();
         }
     }
 
@@ -802,34 +808,37 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void idctRows(final boolean scale) {
-        if (dctRows == null) {
-            dctRows = new DoubleDCT_1D(columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            dctRows.inverse(elements[r], scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_1D dctRows = TransformPlans.acquire(DoubleDCT_1D.class, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                dctRows.inverse(elements[r], scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                dctRows.inverse(elements[r], scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    dctRows.inverse(elements[r], scale);
+                }
             }
+            TransformPlans.release(dctRows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -843,13 +852,14 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void idht2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht2 == null) {
-            dht2 = new DoubleDHT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_2D dht2 = TransformPlans.acquire(DoubleDHT_2D.class, rows, columns);
+            dht2.inverse(elements, scale);
+            TransformPlans.release(dht2, rows, columns);
+        } finally {
+            context.close();
         }
-        dht2.inverse(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -862,40 +872,43 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void idhtColumns(final boolean scale) {
-        if (dhtColumns == null) {
-            dhtColumns = new DoubleDHT_1D(rows);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        double[] column;
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            column = (double[]) viewColumn(c).copy().elements();
-                            dhtColumns.inverse(column, scale);
-                            viewColumn(c).assign(column);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_1D dhtColumns = TransformPlans.acquire(DoubleDHT_1D.class, rows);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            double[] column;
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                column = (double[]) viewColumn(c).copy().elements();
+                                dhtColumns.inverse(column, scale);
+                                viewColumn(c).assign(column);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            double[] column;
-            for (int c = 0; c < columns; c++) {
-                column = (double[]) viewColumn(c).copy().elements();
-                dhtColumns.inverse(column, scale);
-                viewColumn(c).assign(column);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                double[] column;
+                for (int c = 0; c < columns; c++) {
+                    column = (double[]) viewColumn(c).copy().elements();
+                    dhtColumns.inverse(column, scale);
+                    viewColumn(c).assign(column);
+                }
             }
+            TransformPlans.release(dhtColumns, rows);
+        } finally {
+            context.close();
         }
     }
 
@@ -909,34 +922,37 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void idhtRows(final boolean scale) {
-        if (dhtRows == null) {
-            dhtRows = new DoubleDHT_1D(columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            dhtRows.inverse(elements[r], scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_1D dhtRows = TransformPlans.acquire(DoubleDHT_1D.class, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                dhtRows.inverse(elements[r], scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                dhtRows.inverse(elements[r], scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    dhtRows.inverse(elements[r], scale);
+                }
             }
+            TransformPlans.release(dhtRows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -950,13 +966,14 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void idst2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst2 == null) {
-            dst2 = new DoubleDST_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_2D dst2 = TransformPlans.acquire(DoubleDST_2D.class, rows, columns);
+            dst2.inverse(elements, scale);
+            TransformPlans.release(dst2, rows, columns);
+        } finally {
+            context.close();
         }
-        dst2.inverse(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -969,40 +986,43 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void idstColumns(final boolean scale) {
-        if (dstColumns == null) {
-            dstColumns = new DoubleDST_1D(rows);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        double[] column;
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            column = (double[]) viewColumn(c).copy().elements();
-                            dstColumns.inverse(column, scale);
-                            viewColumn(c).assign(column);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_1D dstColumns = TransformPlans.acquire(DoubleDST_1D.class, rows);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            double[] column;
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                column = (double[]) viewColumn(c).copy().elements();
+                                dstColumns.inverse(column, scale);
+                                viewColumn(c).assign(column);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            double[] column;
-            for (int c = 0; c < columns; c++) {
-                column = (double[]) viewColumn(c).copy().elements();
-                dstColumns.inverse(column, scale);
-                viewColumn(c).assign(column);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                double[] column;
+                for (int c = 0; c < columns; c++) {
+                    column = (double[]) viewColumn(c).copy().elements();
+                    dstColumns.inverse(column, scale);
+                    viewColumn(c).assign(column);
+                }
             }
+            TransformPlans.release(dstColumns, rows);
+        } finally {
+            context.close();
         }
     }
 
@@ -1016,34 +1036,37 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void idstRows(final boolean scale) {
-        if (dstRows == null) {
-            dstRows = new DoubleDST_1D(columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            dstRows.inverse(elements[r], scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_1D dstRows = TransformPlans.acquire(DoubleDST_1D.class, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                dstRows.inverse(elements[r], scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                dstRows.inverse(elements[r], scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    dstRows.inverse(elements[r], scale);
+                }
             }
+            TransformPlans.release(dstRows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -1083,13 +1106,14 @@ public class DenseLargeDoubleMatrix2D extends WrapperDoubleMatrix2D {
      */
 
     public void ifft2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new DoubleFFT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2 = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            fft2.realInverse(elements, scale);
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        fft2.realInverse(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public void setQuick(int row, int column, double value) {
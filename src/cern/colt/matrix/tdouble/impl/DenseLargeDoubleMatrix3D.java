@@ -10,6 +10,7 @@ package cern.colt.matrix.tdouble.impl;
 
 import java.util.concurrent.Future;
 
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tdcomplex.impl.DenseLargeDComplexMatrix3D;
 import cern.colt.matrix.tdouble.DoubleMatrix3D;
 import edu.emory.mathcs.jtransforms.dct.DoubleDCT_2D;
@@ -20,6 +21,7 @@ import edu.emory.mathcs.jtransforms.dst.DoubleDST_2D;
 import edu.emory.mathcs.jtransforms.dst.DoubleDST_3D;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_2D;
 import edu.emory.mathcs.jtransforms.fft.DoubleFFT_3D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -47,22 +49,6 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
 
     private double[][][] elements;
 
-    private DoubleFFT_3D fft3;
-
-    private DoubleDCT_3D dct3;
-
-    private DoubleDST_3D dst3;
-
-    private DoubleDHT_3D dht3;
-
-    private DoubleFFT_2D fft2Slices;
-
-    private DoubleDCT_2D dct2Slices;
-
-    private DoubleDST_2D dst2Slices;
-
-    private DoubleDHT_2D dht2Slices;
-
     public DenseLargeDoubleMatrix3D(int slices, int rows, int columns) {
         super(null);
         try {
@@ -83,13 +69,14 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void dct3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct3 == null) {
-            dct3 = new DoubleDCT_3D(slices, rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_3D dct3 = TransformPlans.acquire(DoubleDCT_3D.class, slices, rows, columns);
+            dct3.forward(elements, scale);
+            TransformPlans.release(dct3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        dct3.forward(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -102,37 +89,38 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void dct2Slices(final boolean scale) {
-        if (dct2Slices == null) {
-            dct2Slices = new DoubleDCT_2D(rows, columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            dct2Slices.forward(elements[s], scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_2D dct2Slices = TransformPlans.acquire(DoubleDCT_2D.class, rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                dct2Slices.forward(elements[s], scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-
-        } else {
-            for (int s = 0; s < slices; s++) {
-                dct2Slices.forward(elements[s], scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    dct2Slices.forward(elements[s], scale);
+                }
             }
+            TransformPlans.release(dct2Slices, rows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -141,13 +129,14 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void dht3() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht3 == null) {
-            dht3 = new DoubleDHT_3D(slices, rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_3D dht3 = TransformPlans.acquire(DoubleDHT_3D.class, slices, rows, columns);
+            dht3.forward(elements);
+            TransformPlans.release(dht3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        dht3.forward(elements);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -157,37 +146,38 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void dht2Slices() {
-        if (dht2Slices == null) {
-            dht2Slices = new DoubleDHT_2D(rows, columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            dht2Slices.forward(elements[s]);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_2D dht2Slices = TransformPlans.acquire(DoubleDHT_2D.class, rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                dht2Slices.forward(elements[s]);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-
-        } else {
-            for (int s = 0; s < slices; s++) {
-                dht2Slices.forward(elements[s]);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    dht2Slices.forward(elements[s]);
+                }
             }
+            TransformPlans.release(dht2Slices, rows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -199,13 +189,14 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void dst3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst3 == null) {
-            dst3 = new DoubleDST_3D(slices, rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_3D dst3 = TransformPlans.acquire(DoubleDST_3D.class, slices, rows, columns);
+            dst3.forward(elements, scale);
+            TransformPlans.release(dst3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        dst3.forward(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -217,37 +208,38 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void dst2Slices(final boolean scale) {
-        if (dst2Slices == null) {
-            dst2Slices = new DoubleDST_2D(rows, columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            dst2Slices.forward(elements[s], scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_2D dst2Slices = TransformPlans.acquire(DoubleDST_2D.class, rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                dst2Slices.forward(elements[s], scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-
-        } else {
-            for (int s = 0; s < slices; s++) {
-                dst2Slices.forward(elements[s], scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    dst2Slices.forward(elements[s], scale);
+                }
             }
+            TransformPlans.release(dst2Slices, rows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -309,13 +301,14 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void fft3() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft3 == null) {
-            fft3 = new DoubleFFT_3D(slices, rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_3D fft3 = TransformPlans.acquire(DoubleFFT_3D.class, slices, rows, columns);
+            fft3.realForward(elements);
+            TransformPlans.release(fft3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        fft3.realForward(elements);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -328,46 +321,48 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public DenseLargeDComplexMatrix3D getFft2Slices() {
-        if (fft2Slices == null) {
-            fft2Slices = new DoubleFFT_2D(rows, columns);
-        }
-        final DenseLargeDComplexMatrix3D C = new DenseLargeDComplexMatrix3D(slices, rows, columns);
-        final double[][][] cElems = C.elements();
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            for (int r = 0; r < rows; r++) {
-                                System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2Slices = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            final DenseLargeDComplexMatrix3D C = new DenseLargeDComplexMatrix3D(slices, rows, columns);
+            final double[][][] cElems = C.elements();
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                for (int r = 0; r < rows; r++) {
+                                    System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
+                                }
+                                fft2Slices.realForwardFull(cElems[s]);
                             }
-                            fft2Slices.realForwardFull(cElems[s]);
                         }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    for (int r = 0; r < rows; r++) {
+                        System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int s = 0; s < slices; s++) {
-                for (int r = 0; r < rows; r++) {
-                    System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
+                    fft2Slices.realForwardFull(cElems[s]);
                 }
-                fft2Slices.realForwardFull(cElems[s]);
             }
+            TransformPlans.release(fft2Slices, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        return C;
     }
 
     /**
@@ -378,48 +373,49 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public DenseLargeDComplexMatrix3D getFft3() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        DenseLargeDComplexMatrix3D C = new DenseLargeDComplexMatrix3D(slices, rows, columns);
-        final double[][][] cElems = (C).elements();
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int startslice = j * k;
-                final int stopslice;
-                if (j == nthreads - 1) {
-                    stopslice = slices;
-                } else {
-                    stopslice = startslice + k;
-                }
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int s = startslice; s < stopslice; s++) {
-                            for (int r = 0; r < rows; r++) {
-                                System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            DenseLargeDComplexMatrix3D C = new DenseLargeDComplexMatrix3D(slices, rows, columns);
+            final double[][][] cElems = (C).elements();
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int startslice = j * k;
+                    final int stopslice;
+                    if (j == nthreads - 1) {
+                        stopslice = slices;
+                    } else {
+                        stopslice = startslice + k;
+                    }
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int s = startslice; s < stopslice; s++) {
+                                for (int r = 0; r < rows; r++) {
+                                    System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
+                                }
                             }
-                        }
 
+                        }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    for (int r = 0; r < rows; r++) {
+                        System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                for (int r = 0; r < rows; r++) {
-                    System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
                 }
             }
+            final DoubleFFT_3D fft3 = TransformPlans.acquire(DoubleFFT_3D.class, slices, rows, columns);
+            fft3.realForwardFull(cElems);
+            TransformPlans.release(fft3, slices, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        if (fft3 == null) {
-            fft3 = new DoubleFFT_3D(slices, rows, columns);
-        }
-        fft3.realForwardFull(cElems);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -435,46 +431,48 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public DenseLargeDComplexMatrix3D getIfft2Slices(final boolean scale) {
-        if (fft2Slices == null) {
-            fft2Slices = new DoubleFFT_2D(rows, columns);
-        }
-        final DenseLargeDComplexMatrix3D C = new DenseLargeDComplexMatrix3D(slices, rows, columns);
-        final double[][][] cElems = C.elements();
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            for (int r = 0; r < rows; r++) {
-                                System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_2D fft2Slices = TransformPlans.acquire(DoubleFFT_2D.class, rows, columns);
+            final DenseLargeDComplexMatrix3D C = new DenseLargeDComplexMatrix3D(slices, rows, columns);
+            final double[][][] cElems = C.elements();
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                for (int r = 0; r < rows; r++) {
+                                    System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
+                                }
+                                fft2Slices.realInverseFull(cElems[s], scale);
                             }
-                            fft2Slices.realInverseFull(cElems[s], scale);
                         }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    for (int r = 0; r < rows; r++) {
+                        System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int s = 0; s < slices; s++) {
-                for (int r = 0; r < rows; r++) {
-                    System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
+                    fft2Slices.realInverseFull(cElems[s], scale);
                 }
-                fft2Slices.realInverseFull(cElems[s], scale);
             }
+            TransformPlans.release(fft2Slices, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        return C;
     }
 
     /**
@@ -490,48 +488,49 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public DenseLargeDComplexMatrix3D getIfft3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        DenseLargeDComplexMatrix3D C = new DenseLargeDComplexMatrix3D(slices, rows, columns);
-        final double[][][] cElems = (C).elements();
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int startslice = j * k;
-                final int stopslice;
-                if (j == nthreads - 1) {
-                    stopslice = slices;
-                } else {
-                    stopslice = startslice + k;
-                }
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int s = startslice; s < stopslice; s++) {
-                            for (int r = 0; r < rows; r++) {
-                                System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            DenseLargeDComplexMatrix3D C = new DenseLargeDComplexMatrix3D(slices, rows, columns);
+            final double[][][] cElems = (C).elements();
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int startslice = j * k;
+                    final int stopslice;
+                    if (j == nthreads - 1) {
+                        stopslice = slices;
+                    } else {
+                        stopslice = startslice + k;
+                    }
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int s = startslice; s < stopslice; s++) {
+                                for (int r = 0; r < rows; r++) {
+                                    System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
+                                }
                             }
-                        }
 
+                        }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    for (int r = 0; r < rows; r++) {
+                        System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                for (int r = 0; r < rows; r++) {
-                    System.arraycopy(elements[s][r], 0, cElems[s][r], 0, columns);
                 }
             }
+            final DoubleFFT_3D fft3 = TransformPlans.acquire(DoubleFFT_3D.class, slices, rows, columns);
+            fft3.realInverseFull(cElems, scale);
+            TransformPlans.release(fft3, slices, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        if (fft3 == null) {
-            fft3 = new DoubleFFT_3D(slices, rows, columns);
-        }
-        fft3.realInverseFull(cElems, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     public double getQuick(int slice, int row, int column) {
@@ -548,37 +547,38 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void idct2Slices(final boolean scale) {
-        if (dct2Slices == null) {
-            dct2Slices = new DoubleDCT_2D(rows, columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            dct2Slices.inverse(elements[s], scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_2D dct2Slices = TransformPlans.acquire(DoubleDCT_2D.class, rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                dct2Slices.inverse(elements[s], scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-
-        } else {
-            for (int s = 0; s < slices; s++) {
-                dct2Slices.inverse(elements[s], scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    dct2Slices.inverse(elements[s], scale);
+                }
             }
+            TransformPlans.release(dct2Slices, rows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -596,13 +596,14 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void idht3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht3 == null) {
-            dht3 = new DoubleDHT_3D(slices, rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_3D dht3 = TransformPlans.acquire(DoubleDHT_3D.class, slices, rows, columns);
+            dht3.inverse(elements, scale);
+            TransformPlans.release(dht3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        dht3.inverse(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -619,37 +620,38 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void idht2Slices(final boolean scale) {
-        if (dht2Slices == null) {
-            dht2Slices = new DoubleDHT_2D(rows, columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            dht2Slices.inverse(elements[s], scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDHT_2D dht2Slices = TransformPlans.acquire(DoubleDHT_2D.class, rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                dht2Slices.inverse(elements[s], scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-
-        } else {
-            for (int s = 0; s < slices; s++) {
-                dht2Slices.inverse(elements[s], scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    dht2Slices.inverse(elements[s], scale);
+                }
             }
+            TransformPlans.release(dht2Slices, rows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -663,13 +665,14 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void idct3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct3 == null) {
-            dct3 = new DoubleDCT_3D(slices, rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDCT_3D dct3 = TransformPlans.acquire(DoubleDCT_3D.class, slices, rows, columns);
+            dct3.inverse(elements, scale);
+            TransformPlans.release(dct3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        dct3.inverse(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -682,37 +685,38 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void idst2Slices(final boolean scale) {
-        if (dst2Slices == null) {
-            dst2Slices = new DoubleDST_2D(rows, columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            dst2Slices.inverse(elements[s], scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_2D dst2Slices = TransformPlans.acquire(DoubleDST_2D.class, rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                dst2Slices.inverse(elements[s], scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-
-        } else {
-            for (int s = 0; s < slices; s++) {
-                dst2Slices.inverse(elements[s], scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    dst2Slices.inverse(elements[s], scale);
+                }
             }
+            TransformPlans.release(dst2Slices, rows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -726,13 +730,14 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void idst3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst3 == null) {
-            dst3 = new DoubleDST_3D(slices, rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleDST_3D dst3 = TransformPlans.acquire(DoubleDST_3D.class, slices, rows, columns);
+            dst3.inverse(elements, scale);
+            TransformPlans.release(dst3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        dst3.inverse(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -794,13 +799,14 @@ public class DenseLargeDoubleMatrix3D extends WrapperDoubleMatrix3D {
      */
 
     public void ifft3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft3 == null) {
-            fft3 = new DoubleFFT_3D(slices, rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DoubleFFT_3D fft3 = TransformPlans.acquire(DoubleFFT_3D.class, slices, rows, columns);
+            fft3.realInverse(elements, scale);
+            TransformPlans.release(fft3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        fft3.realInverse(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public void setQuick(int slice, int row, int column, double value) {
@@ -333,9 +333,9 @@ public class DiagonalDoubleMatrix2D extends WrapperDoubleMatrix2D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             for (int r = 0; r < dlength; r++) {
@@ -465,9 +465,9 @@ public class DiagonalDoubleMatrix2D extends WrapperDoubleMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = elements[0];
@@ -536,9 +536,9 @@ public class DiagonalDoubleMatrix2D extends WrapperDoubleMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = elements[0];
@@ -0,0 +1,93 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import cern.colt.function.tdouble.DoubleDoubleFunction;
+import cern.colt.function.tdouble.DoubleFunction;
+
+/**
+ * Service interface of a SIMD backend for the element-wise kernels of the
+ * dense <tt>double</tt> matrices.
+ * <p>
+ * An implementation is looked up with {@link java.util.ServiceLoader} when the
+ * dense matrices are first used; the backend built from
+ * <tt>src-vector</tt> (<tt>parallelcolt-vector.jar</tt>, which requires
+ * <tt>--add-modules jdk.incubator.vector</tt>) is such an implementation. If
+ * no implementation can be loaded, or the system property
+ * <tt>parallelcolt.simd</tt> is <tt>false</tt>, the scalar kernels are used.
+ * <p>
+ * All methods operate on <tt>n</tt> consecutive elements (unit stride)
+ * starting at the given index; the matrices only call them for such layouts.
+ * Functions are recognized by identity, as in the dense matrices; a method
+ * that does not recognize a function returns <tt>false</tt> without touching
+ * the array.
+ * 
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public interface DoubleSimdKernels {
+
+    /**
+     * Computes <tt>a[i] = f(a[i])</tt> for <tt>i = idx, ..., idx + n - 1</tt>.
+     * 
+     * @return <tt>false</tt> if <tt>f</tt> is not supported, in which case
+     *         nothing was computed.
+     */
+    boolean assign(double[] a, int idx, int n, DoubleFunction f);
+
+    /**
+     * Computes <tt>a[idx + k] = f(a[idx + k], b[bIdx + k])</tt> for
+     * <tt>k = 0, ..., n - 1</tt>. <tt>a</tt> and <tt>b</tt> may be the same
+     * array only if <tt>idx == bIdx</tt> or the ranges do not overlap.
+     * 
+     * @return <tt>false</tt> if <tt>f</tt> is not supported, in which case
+     *         nothing was computed.
+     */
+    boolean assign(double[] a, int idx, double[] b, int bIdx, int n, DoubleDoubleFunction f);
+
+    /**
+     * Returns whether {@link #aggregate(double[], int, int, DoubleDoubleFunction, DoubleFunction)}
+     * supports the given functions.
+     */
+    boolean isAggregateSupported(DoubleDoubleFunction aggr, DoubleFunction f);
+
+    /**
+     * Returns <tt>aggr(... aggr(f(a[idx]), f(a[idx + 1])) ..., f(a[idx + n - 1]))</tt>,
+     * where <tt>n > 0</tt> and the functions are supported. The order in which
+     * the values are combined is unspecified.
+     */
+    double aggregate(double[] a, int idx, int n, DoubleDoubleFunction aggr, DoubleFunction f);
+
+    /**
+     * Returns the sum of <tt>a[idx], ..., a[idx + n - 1]</tt>.
+     */
+    double zSum(double[] a, int idx, int n);
+
+    /**
+     * Returns the sum of <tt>a[idx + k] * b[bIdx + k]</tt> for
+     * <tt>k = 0, ..., n - 1</tt>.
+     */
+    double zDotProduct(double[] a, int idx, double[] b, int bIdx, int n);
+
+    /**
+     * Computes <tt>y[yIdx + k] += alpha * x[xIdx + k]</tt> for
+     * <tt>k = 0, ..., n - 1</tt>.
+     */
+    void daxpy(int n, double alpha, double[] x, int xIdx, double[] y, int yIdx);
+
+    /**
+     * Computes <tt>sum[r] += values[i] * y[columnIndexes[i]]</tt> with
+     * <tt>i = idx + k * height + r</tt> for <tt>k = 0, ..., width - 1</tt> and
+     * <tt>r = 0, ..., height - 1</tt>, i.e. multiplies the first
+     * <tt>width</tt> columns of a slice of a
+     * {@link SparseSELLDoubleMatrix2D}, stored column by column, with
+     * <tt>y</tt>.
+     */
+    void zMultSlice(double[] values, int[] columnIndexes, int idx, int height, int width, double[] y,
+            double[] sum);
+}
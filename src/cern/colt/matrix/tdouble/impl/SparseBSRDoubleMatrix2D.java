@@ -0,0 +1,806 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Arrays;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
+
+/**
+ * Sparse block row-compressed (BSR) 2-d matrix holding <tt>double</tt>
+ * elements.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * The matrix is split into square blocks of <tt>blockSize x blockSize</tt>
+ * cells, and the blocks that contain at least one non-zero cell are stored in
+ * the row-compressed format: <tt>getBlockRowPointers()</tt> holds, for every
+ * block row, the position of its first block, <tt>getBlockColumnIndexes()</tt>
+ * the block column of every block (sorted within each block row), and
+ * <tt>getValues()</tt> the cells of every block, <tt>blockSize * blockSize</tt>
+ * values in row-major order. The numbers of rows and columns must be multiples
+ * of the block size.
+ * <p>
+ * Matrices that arise from problems with several unknowns per node, such as
+ * the 3 x 3 or 6 x 6 blocks of structural mechanics, need one column index per
+ * block instead of one per cell, and the matrix-vector and matrix-matrix
+ * products of {@link #zMult} multiply a whole block with values kept in
+ * registers (the matrix-vector product is unrolled for 3 x 3 and 6 x 6
+ * blocks). The products split the block rows (the matrix-matrix products
+ * with <tt>A'</tt> the block columns) among the threads if the number of
+ * stored cells is at least the threshold of the kernel
+ * <tt>"SparseBSRDoubleMatrix2D.zMult"</tt>. The block preconditioners
+ * {@link cern.colt.matrix.tdouble.algo.solver.preconditioner.DoubleILU} and
+ * {@link cern.colt.matrix.tdouble.algo.solver.preconditioner.DoubleSSOR} work
+ * on the blocks directly.
+ * <p>
+ * Setting a cell of a block that is not stored yet inserts a block, which
+ * takes time <tt>O(nnz)</tt>; matrices should be built from a
+ * {@link SparseRCDoubleMatrix2D} (or any other matrix) with
+ * {@link #SparseBSRDoubleMatrix2D(DoubleMatrix2D, int)}. Zero cells inside of
+ * stored blocks are kept explicitly, so <tt>memory [bytes] = 4 * blockRows +
+ * (4 + 8 * blockSize * blockSize) * nonZeroBlocks</tt>.
+ * <p>
+ * Note that this implementation is not synchronized.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public class SparseBSRDoubleMatrix2D extends WrapperDoubleMatrix2D {
+    private static final long serialVersionUID = 1L;
+
+    /*
+     * The elements of the matrix.
+     */
+    protected int blockSize;
+
+    protected int blockRows;
+
+    protected int blockColumns;
+
+    protected int[] blockRowPointers;
+
+    protected int[] blockColumnIndexes;
+
+    protected double[] values;
+
+    /**
+     * Constructs a matrix with a given number of rows and columns. All entries
+     * are initially <tt>0</tt>.
+     *
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @param blockSize
+     *            the number of rows and columns of a block.
+     * @throws IllegalArgumentException
+     *             if <tt>blockSize &lt; 1</tt> or if <tt>rows</tt> or
+     *             <tt>columns</tt> is not a multiple of <tt>blockSize</tt>.
+     */
+    public SparseBSRDoubleMatrix2D(int rows, int columns, int blockSize) {
+        this(rows, columns, blockSize, new int[checkBlockSize(rows, columns, blockSize) + 1], new int[0],
+                new double[0]);
+    }
+
+    /**
+     * Constructs a matrix with given parameters. The arrays are not copied.
+     *
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @param blockSize
+     *            the number of rows and columns of a block.
+     * @param blockRowPointers
+     *            block row pointers, <tt>rows / blockSize + 1</tt> elements
+     * @param blockColumnIndexes
+     *            block column indexes, sorted within each block row
+     * @param values
+     *            the cells of the blocks, <tt>blockSize * blockSize</tt> per
+     *            block in row-major order
+     * @throws IllegalArgumentException
+     *             if <tt>blockSize &lt; 1</tt>, if <tt>rows</tt> or
+     *             <tt>columns</tt> is not a multiple of <tt>blockSize</tt> or
+     *             if the arrays have wrong lengths.
+     */
+    public SparseBSRDoubleMatrix2D(int rows, int columns, int blockSize, int[] blockRowPointers,
+            int[] blockColumnIndexes, double[] values) {
+        super(null);
+        checkBlockSize(rows, columns, blockSize);
+        try {
+            setUp(rows, columns);
+        } catch (IllegalArgumentException exc) { // we can hold rows*columns>Integer.MAX_VALUE cells !
+            if (!"matrix too large".equals(exc.getMessage()))
+                throw exc;
+        }
+        this.blockSize = blockSize;
+        this.blockRows = rows / blockSize;
+        this.blockColumns = columns / blockSize;
+        if (blockRowPointers.length != blockRows + 1) {
+            throw new IllegalArgumentException("blockRowPointers.length != rows / blockSize + 1");
+        }
+        int nnzb = blockRowPointers[blockRows];
+        if (blockColumnIndexes.length < nnzb || values.length < (long) nnzb * blockSize * blockSize) {
+            throw new IllegalArgumentException("blockColumnIndexes or values too short");
+        }
+        this.blockRowPointers = blockRowPointers;
+        this.blockColumnIndexes = blockColumnIndexes;
+        this.values = values;
+    }
+
+    /**
+     * Constructs a matrix with a copy of the given matrix. Blocks whose cells
+     * are all zero are not stored.
+     *
+     * @param source
+     *            the matrix to be copied; a {@link SparseRCDoubleMatrix2D} is
+     *            converted directly, other matrices are first converted to it.
+     * @param blockSize
+     *            the number of rows and columns of a block.
+     * @throws IllegalArgumentException
+     *             if <tt>blockSize &lt; 1</tt> or if the number of rows or
+     *             columns of <tt>source</tt> is not a multiple of
+     *             <tt>blockSize</tt>.
+     */
+    public SparseBSRDoubleMatrix2D(DoubleMatrix2D source, int blockSize) {
+        this(source.rows(), source.columns(), blockSize);
+        assignRowCompressed(SparseDoubleFormats.toRowCompressed(source));
+    }
+
+    private static int checkBlockSize(int rows, int columns, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize < 1: " + blockSize);
+        }
+        if (rows % blockSize != 0 || columns % blockSize != 0) {
+            throw new IllegalArgumentException("rows and columns must be multiples of blockSize: " + rows + " x "
+                    + columns + ", blockSize = " + blockSize);
+        }
+        return rows / blockSize;
+    }
+
+    /*
+     * Replaces the content of this matrix by the cells of A.
+     */
+    private void assignRowCompressed(SparseRCDoubleMatrix2D A) {
+        final int b = blockSize;
+        final int bb = b * b;
+        int[] rowPointers = A.rowPointers;
+        int[] columnIndexes = A.columnIndexes;
+        double[] valuesA = A.values;
+        int[] position = new int[blockColumns];
+        Arrays.fill(position, -1);
+        int[] pointers = new int[blockRows + 1];
+        for (int br = 0; br < blockRows; br++) {
+            int nz = 0;
+            for (int k = rowPointers[br * b]; k < rowPointers[(br + 1) * b]; k++) {
+                int bc = columnIndexes[k] / b;
+                if (position[bc] != br && valuesA[k] != 0) {
+                    position[bc] = br;
+                    nz++;
+                }
+            }
+            pointers[br + 1] = pointers[br] + nz;
+        }
+        int[] indexes = new int[pointers[blockRows]];
+        double[] cells = new double[pointers[blockRows] * bb];
+        Arrays.fill(position, -1);
+        for (int br = 0; br < blockRows; br++) {
+            int nz = pointers[br];
+            for (int k = rowPointers[br * b]; k < rowPointers[(br + 1) * b]; k++) {
+                int bc = columnIndexes[k] / b;
+                if (position[bc] < pointers[br] && valuesA[k] != 0) {
+                    position[bc] = nz;
+                    indexes[nz++] = bc;
+                }
+            }
+            Arrays.sort(indexes, pointers[br], nz);
+            for (int p = pointers[br]; p < nz; p++) {
+                position[indexes[p]] = p;
+            }
+            for (int r = 0; r < b; r++) {
+                int i = br * b + r;
+                for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+                    int j = columnIndexes[k];
+                    int p = position[j / b];
+                    if (p >= pointers[br]) {
+                        cells[p * bb + r * b + j % b] += valuesA[k];
+                    }
+                }
+            }
+        }
+        blockRowPointers = pointers;
+        blockColumnIndexes = indexes;
+        values = cells;
+    }
+
+    public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction function) {
+        if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
+            final double alpha = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
+            if (alpha == 1)
+                return this;
+            if (alpha == 0)
+                return assign(0);
+            if (alpha != alpha)
+                return super.assign(function);
+            int n = blockRowPointers[blockRows] * blockSize * blockSize;
+            for (int k = 0; k < n; k++) {
+                values[k] *= alpha;
+            }
+            return this;
+        }
+        return super.assign(function);
+    }
+
+    public DoubleMatrix2D assign(double value) {
+        if (value == 0) {
+            Arrays.fill(blockRowPointers, 0);
+            return this;
+        }
+        return super.assign(value);
+    }
+
+    public DoubleMatrix2D assign(DoubleMatrix2D source) {
+        if (source == this)
+            return this; // nothing to do
+        checkShape(source);
+        if (source instanceof SparseBSRDoubleMatrix2D && ((SparseBSRDoubleMatrix2D) source).blockSize == blockSize) {
+            SparseBSRDoubleMatrix2D other = (SparseBSRDoubleMatrix2D) source;
+            int nnzb = other.blockRowPointers[blockRows];
+            blockRowPointers = other.blockRowPointers.clone();
+            blockColumnIndexes = Arrays.copyOf(other.blockColumnIndexes, nnzb);
+            values = Arrays.copyOf(other.values, nnzb * blockSize * blockSize);
+        } else {
+            assignRowCompressed(SparseDoubleFormats.toRowCompressed(source));
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of stored blocks.
+     *
+     * @return the number of stored blocks
+     */
+    public int blockCardinality() {
+        return blockRowPointers[blockRows];
+    }
+
+    public int cardinality() {
+        int n = blockRowPointers[blockRows] * blockSize * blockSize;
+        int cardinality = 0;
+        for (int k = 0; k < n; k++) {
+            if (values[k] != 0) {
+                cardinality++;
+            }
+        }
+        return cardinality;
+    }
+
+    public DoubleMatrix2D forEachNonZero(final cern.colt.function.tdouble.IntIntDoubleFunction function) {
+        final int b = blockSize;
+        for (int br = 0; br < blockRows; br++) {
+            for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                int j0 = blockColumnIndexes[k] * b;
+                int v = k * b * b;
+                for (int r = 0; r < b; r++) {
+                    for (int c = 0; c < b; c++, v++) {
+                        double value = values[v];
+                        if (value != 0) {
+                            double a = function.apply(br * b + r, j0 + c, value);
+                            if (a != value)
+                                values[v] = a;
+                        }
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns block column indexes
+     *
+     * @return block column indexes
+     */
+    public int[] getBlockColumnIndexes() {
+        return blockColumnIndexes;
+    }
+
+    /**
+     * Returns block row pointers
+     *
+     * @return block row pointers
+     */
+    public int[] getBlockRowPointers() {
+        return blockRowPointers;
+    }
+
+    /**
+     * Returns the number of rows and columns of a block.
+     *
+     * @return the block size
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns a new matrix that has the same non-zero elements as this matrix,
+     * but is in a column-compressed form.
+     *
+     * @return this matrix in a column-compressed form
+     */
+    public SparseCCDoubleMatrix2D getColumnCompressed() {
+        return getRowCompressed().getColumnCompressed();
+    }
+
+    public synchronized double getQuick(int row, int column) {
+        final int b = blockSize;
+        int br = row / b;
+        int k = Arrays.binarySearch(blockColumnIndexes, blockRowPointers[br], blockRowPointers[br + 1], column / b);
+        return (k >= 0) ? values[k * b * b + (row % b) * b + column % b] : 0;
+    }
+
+    /**
+     * Returns a new matrix that has the same non-zero elements as this matrix,
+     * but is in a row-compressed form with sorted column indexes.
+     *
+     * @return this matrix in a row-compressed form
+     */
+    public SparseRCDoubleMatrix2D getRowCompressed() {
+        final int b = blockSize;
+        final int bb = b * b;
+        int[] rowPointers = new int[rows + 1];
+        for (int br = 0; br < blockRows; br++) {
+            for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                for (int r = 0, v = k * bb; r < b; r++) {
+                    for (int c = 0; c < b; c++, v++) {
+                        if (values[v] != 0) {
+                            rowPointers[br * b + r + 1]++;
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+        int[] columnIndexes = new int[rowPointers[rows]];
+        double[] valuesRC = new double[rowPointers[rows]];
+        for (int br = 0; br < blockRows; br++) {
+            for (int r = 0; r < b; r++) {
+                int nz = rowPointers[br * b + r];
+                for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                    int j0 = blockColumnIndexes[k] * b;
+                    for (int c = 0, v = k * bb + r * b; c < b; c++, v++) {
+                        if (values[v] != 0) {
+                            columnIndexes[nz] = j0 + c;
+                            valuesRC[nz++] = values[v];
+                        }
+                    }
+                }
+            }
+        }
+        SparseRCDoubleMatrix2D rc = new SparseRCDoubleMatrix2D(rows, columns, rowPointers, columnIndexes, valuesRC);
+        rc.columnIndexesSorted = true;
+        return rc;
+    }
+
+    /**
+     * Returns a new matrix that is the transpose of this matrix. This method
+     * creates a new object (not a view), so changes in the returned matrix are
+     * NOT reflected in this matrix.
+     *
+     * @return the transpose of this matrix
+     */
+    public SparseBSRDoubleMatrix2D getTranspose() {
+        final int b = blockSize;
+        final int bb = b * b;
+        int nnzb = blockRowPointers[blockRows];
+        int[] w = new int[blockColumns + 1];
+        for (int k = 0; k < nnzb; k++) {
+            w[blockColumnIndexes[k] + 1]++;
+        }
+        for (int j = 0; j < blockColumns; j++) {
+            w[j + 1] += w[j];
+        }
+        int[] pointersT = w.clone();
+        int[] indexesT = new int[nnzb];
+        double[] valuesT = new double[nnzb * bb];
+        for (int br = 0; br < blockRows; br++) {
+            for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                int q = w[blockColumnIndexes[k]]++;
+                indexesT[q] = br;
+                for (int r = 0; r < b; r++) {
+                    for (int c = 0; c < b; c++) {
+                        valuesT[q * bb + c * b + r] = values[k * bb + r * b + c];
+                    }
+                }
+            }
+        }
+        return new SparseBSRDoubleMatrix2D(columns, rows, b, pointersT, indexesT, valuesT);
+    }
+
+    /**
+     * Returns the cells of the blocks
+     *
+     * @return the cells of the blocks
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    public DoubleMatrix2D like(int rows, int columns) {
+        if (rows % blockSize == 0 && columns % blockSize == 0) {
+            return new SparseBSRDoubleMatrix2D(rows, columns, blockSize);
+        }
+        return new SparseRCDoubleMatrix2D(rows, columns);
+    }
+
+    public DoubleMatrix1D like1D(int size) {
+        return new SparseDoubleMatrix1D(size);
+    }
+
+    public synchronized void setQuick(int row, int column, double value) {
+        final int b = blockSize;
+        int br = row / b;
+        int bc = column / b;
+        int k = Arrays.binarySearch(blockColumnIndexes, blockRowPointers[br], blockRowPointers[br + 1], bc);
+        if (k < 0) {
+            if (value == 0) {
+                return;
+            }
+            k = -k - 1;
+            insertBlock(br, bc, k);
+        }
+        values[k * b * b + (row % b) * b + column % b] = value;
+    }
+
+    public void trimToSize() {
+        int nnzb = blockRowPointers[blockRows];
+        if (blockColumnIndexes.length > nnzb) {
+            blockColumnIndexes = Arrays.copyOf(blockColumnIndexes, nnzb);
+            values = Arrays.copyOf(values, nnzb * blockSize * blockSize);
+        }
+    }
+
+    public DoubleMatrix1D zMult(DoubleMatrix1D y, DoubleMatrix1D z, final double alpha, final double beta,
+            final boolean transposeA) {
+        final int rowsA = transposeA ? columns : rows;
+
+        boolean ignore = (z == null);
+        if (z == null)
+            z = new DenseDoubleMatrix1D(rowsA);
+
+        if (!(y instanceof DenseDoubleMatrix1D && z instanceof DenseDoubleMatrix1D)) {
+            return super.zMult(y, z, alpha, beta, transposeA);
+        }
+
+        SparseDoubleFormats.checkZMult(this, y, z, transposeA);
+
+        DenseDoubleMatrix1D zz = (DenseDoubleMatrix1D) z;
+        final double[] elementsZ = zz.elements;
+        final int strideZ = zz.stride();
+        final int zeroZ = (int) z.index(0);
+        final double[] elementsY = SparseDoubleFormats.toContiguous((DenseDoubleMatrix1D) y);
+        final double betaZ = ignore ? 0 : beta;
+
+        if (transposeA) {
+            zMultTranspose(elementsY, elementsZ, zeroZ, strideZ, alpha, betaZ);
+        } else if (blockSize == 3) {
+            run(blockRows, new RangeProcedure() {
+                public void apply(int first, int last) {
+                    for (int br = first; br < last; br++) {
+                        double s0 = 0, s1 = 0, s2 = 0;
+                        for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                            int j = 3 * blockColumnIndexes[k];
+                            int v = 9 * k;
+                            double y0 = elementsY[j], y1 = elementsY[j + 1], y2 = elementsY[j + 2];
+                            s0 += values[v] * y0 + values[v + 1] * y1 + values[v + 2] * y2;
+                            s1 += values[v + 3] * y0 + values[v + 4] * y1 + values[v + 5] * y2;
+                            s2 += values[v + 6] * y0 + values[v + 7] * y1 + values[v + 8] * y2;
+                        }
+                        int idx = zeroZ + strideZ * 3 * br;
+                        store(elementsZ, idx, alpha * s0, betaZ);
+                        store(elementsZ, idx + strideZ, alpha * s1, betaZ);
+                        store(elementsZ, idx + 2 * strideZ, alpha * s2, betaZ);
+                    }
+                }
+            });
+        } else if (blockSize == 6) {
+            run(blockRows, new RangeProcedure() {
+                public void apply(int first, int last) {
+                    for (int br = first; br < last; br++) {
+                        double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0;
+                        for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                            int j = 6 * blockColumnIndexes[k];
+                            int v = 36 * k;
+                            double y0 = elementsY[j], y1 = elementsY[j + 1], y2 = elementsY[j + 2];
+                            double y3 = elementsY[j + 3], y4 = elementsY[j + 4], y5 = elementsY[j + 5];
+                            s0 += values[v] * y0 + values[v + 1] * y1 + values[v + 2] * y2
+                                    + values[v + 3] * y3 + values[v + 4] * y4 + values[v + 5] * y5;
+                            s1 += values[v + 6] * y0 + values[v + 7] * y1 + values[v + 8] * y2
+                                    + values[v + 9] * y3 + values[v + 10] * y4 + values[v + 11] * y5;
+                            s2 += values[v + 12] * y0 + values[v + 13] * y1 + values[v + 14] * y2
+                                    + values[v + 15] * y3 + values[v + 16] * y4 + values[v + 17] * y5;
+                            s3 += values[v + 18] * y0 + values[v + 19] * y1 + values[v + 20] * y2
+                                    + values[v + 21] * y3 + values[v + 22] * y4 + values[v + 23] * y5;
+                            s4 += values[v + 24] * y0 + values[v + 25] * y1 + values[v + 26] * y2
+                                    + values[v + 27] * y3 + values[v + 28] * y4 + values[v + 29] * y5;
+                            s5 += values[v + 30] * y0 + values[v + 31] * y1 + values[v + 32] * y2
+                                    + values[v + 33] * y3 + values[v + 34] * y4 + values[v + 35] * y5;
+                        }
+                        int idx = zeroZ + strideZ * 6 * br;
+                        store(elementsZ, idx, alpha * s0, betaZ);
+                        store(elementsZ, idx + strideZ, alpha * s1, betaZ);
+                        store(elementsZ, idx + 2 * strideZ, alpha * s2, betaZ);
+                        store(elementsZ, idx + 3 * strideZ, alpha * s3, betaZ);
+                        store(elementsZ, idx + 4 * strideZ, alpha * s4, betaZ);
+                        store(elementsZ, idx + 5 * strideZ, alpha * s5, betaZ);
+                    }
+                }
+            });
+        } else {
+            final int b = blockSize;
+            run(blockRows, new RangeProcedure() {
+                public void apply(int first, int last) {
+                    double[] sum = new double[b];
+                    for (int br = first; br < last; br++) {
+                        Arrays.fill(sum, 0);
+                        for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                            int j = b * blockColumnIndexes[k];
+                            int v = b * b * k;
+                            for (int r = 0; r < b; r++) {
+                                double s = 0;
+                                for (int c = 0; c < b; c++) {
+                                    s += values[v++] * elementsY[j + c];
+                                }
+                                sum[r] += s;
+                            }
+                        }
+                        int idx = zeroZ + strideZ * b * br;
+                        for (int r = 0; r < b; r++, idx += strideZ) {
+                            store(elementsZ, idx, alpha * sum[r], betaZ);
+                        }
+                    }
+                }
+            });
+        }
+        return z;
+    }
+
+    public DoubleMatrix2D zMult(DoubleMatrix2D B, DoubleMatrix2D C, final double alpha, double beta,
+            boolean transposeA, boolean transposeB) {
+        final int rowsA = transposeA ? columns : rows;
+        final int columnsA = transposeA ? rows : columns;
+        if (transposeB) {
+            B = B.viewDice();
+        }
+        int p = B.columns();
+        boolean ignore = (C == null);
+        if (C == null) {
+            C = new DenseDoubleMatrix2D(rowsA, p);
+        }
+        if (!(B instanceof DenseDoubleMatrix2D) || !(C instanceof DenseDoubleMatrix2D)) {
+            return super.zMult(B, C, alpha, beta, transposeA, false);
+        }
+        if (B.rows() != columnsA)
+            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:"
+                    + ((transposeA ? viewDice() : this).toStringShort()) + ", " + B.toStringShort());
+        if (C.rows() != rowsA || C.columns() != p)
+            throw new IllegalArgumentException("Incompatible result matrix: "
+                    + ((transposeA ? viewDice() : this).toStringShort()) + ", " + B.toStringShort() + ", "
+                    + C.toStringShort());
+        if (this == C || B == C)
+            throw new IllegalArgumentException("Matrices must not be identical");
+
+        if (!ignore && beta != 1.0) {
+            C.assign(cern.jet.math.tdouble.DoubleFunctions.mult(beta));
+        }
+
+        DenseDoubleMatrix2D BB = (DenseDoubleMatrix2D) B;
+        DenseDoubleMatrix2D CC = (DenseDoubleMatrix2D) C;
+        final double[] elementsB = BB.elements;
+        final int zeroB = (int) BB.index(0, 0);
+        final int rowStrideB = BB.rowStride();
+        final int columnStrideB = BB.columnStride();
+        final double[] elementsC = CC.elements;
+        final int zeroC = (int) CC.index(0, 0);
+        final int rowStrideC = CC.rowStride();
+        final int columnStrideC = CC.columnStride();
+        if (transposeA) {
+            zMultTranspose(elementsB, zeroB, rowStrideB, columnStrideB, elementsC, zeroC, rowStrideC,
+                    columnStrideC, p, alpha);
+            return C;
+        }
+        final int b = blockSize;
+        final int columnsC = p;
+        run(blockRows, new RangeProcedure() {
+            public void apply(int first, int last) {
+                for (int br = first; br < last; br++) {
+                    for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                        int j0 = b * blockColumnIndexes[k];
+                        int v = b * b * k;
+                        for (int r = 0; r < b; r++) {
+                            int idxC = zeroC + (b * br + r) * rowStrideC;
+                            for (int c = 0; c < b; c++) {
+                                double a = alpha * values[v++];
+                                if (a == 0) {
+                                    continue;
+                                }
+                                int idxB = zeroB + (j0 + c) * rowStrideB;
+                                for (int q = 0, ic = idxC, ib = idxB; q < columnsC; q++) {
+                                    elementsC[ic] += a * elementsB[ib];
+                                    ic += columnStrideC;
+                                    ib += columnStrideB;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        return C;
+    }
+
+    protected DoubleMatrix2D getContent() {
+        return this;
+    }
+
+    /*
+     * z = alpha * A' * y + beta * z. Each range of block rows scatters into a
+     * private buffer, the buffers are added up at the end.
+     */
+    private void zMultTranspose(final double[] elementsY, double[] elementsZ, int zeroZ, int strideZ,
+            final double alpha, double beta) {
+        final int b = blockSize;
+        int parts = useThreads() ? ConcurrencyUtils.getNumberOfParts(blockRows) : 1;
+        final double[][] buffers = new double[parts][columns];
+        final int k0 = blockRows / parts;
+        final int parts1 = parts;
+        RangeProcedure procedure = new RangeProcedure() {
+            public void apply(int first, int last) {
+                for (int t = first; t < last; t++) {
+                    double[] buffer = buffers[t];
+                    int firstRow = t * k0;
+                    int lastRow = (t == parts1 - 1) ? blockRows : firstRow + k0;
+                    for (int br = firstRow; br < lastRow; br++) {
+                        for (int k = blockRowPointers[br]; k < blockRowPointers[br + 1]; k++) {
+                            int j = b * blockColumnIndexes[k];
+                            int v = b * b * k;
+                            for (int r = 0; r < b; r++) {
+                                double yr = alpha * elementsY[b * br + r];
+                                for (int c = 0; c < b; c++) {
+                                    buffer[j + c] += values[v++] * yr;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        };
+        if (parts > 1) {
+            ConcurrencyUtils.parallelFor(0, parts, 1, procedure);
+        } else {
+            procedure.apply(0, 1);
+        }
+        for (int j = 0, idx = zeroZ; j < columns; j++, idx += strideZ) {
+            double s = 0;
+            for (int t = 0; t < parts; t++) {
+                s += buffers[t][j];
+            }
+            store(elementsZ, idx, s, beta);
+        }
+    }
+
+    /*
+     * C = alpha * A' * B + C. The block columns of A, i.e. the block rows of C,
+     * are split among the threads, so every thread scatters into its own rows
+     * of C and no buffers are needed; the cells of C are summed in the same
+     * order for any number of threads.
+     */
+    private void zMultTranspose(final double[] elementsB, final int zeroB, final int rowStrideB,
+            final int columnStrideB, final double[] elementsC, final int zeroC, final int rowStrideC,
+            final int columnStrideC, final int p, final double alpha) {
+        if (!useThreads() || blockColumns < 2) {
+            scatterTranspose(0, blockColumns, elementsB, zeroB, rowStrideB, columnStrideB, elementsC, zeroC,
+                    rowStrideC, columnStrideC, p, alpha);
+            return;
+        }
+        // every range searches all block rows, so make one range per thread
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        int grain = (blockColumns + nthreads - 1) / nthreads;
+        ConcurrencyUtils.parallelFor(0, blockColumns, grain, new RangeProcedure() {
+            public void apply(int firstColumn, int lastColumn) {
+                scatterTranspose(firstColumn, lastColumn, elementsB, zeroB, rowStrideB, columnStrideB, elementsC,
+                        zeroC, rowStrideC, columnStrideC, p, alpha);
+            }
+        });
+    }
+
+    /*
+     * Adds alpha * A' * B for the block columns firstColumn, ...,
+     * lastColumn - 1 of A to C.
+     */
+    private void scatterTranspose(int firstColumn, int lastColumn, double[] elementsB, int zeroB, int rowStrideB,
+            int columnStrideB, double[] elementsC, int zeroC, int rowStrideC, int columnStrideC, int p, double alpha) {
+        final int b = blockSize;
+        boolean all = (firstColumn == 0) && (lastColumn == blockColumns);
+        for (int br = 0; br < blockRows; br++) {
+            int k = blockRowPointers[br];
+            int end = blockRowPointers[br + 1];
+            if (!all) {
+                k = Arrays.binarySearch(blockColumnIndexes, k, end, firstColumn);
+                if (k < 0) {
+                    k = -k - 1;
+                }
+            }
+            for (; k < end && blockColumnIndexes[k] < lastColumn; k++) {
+                int j0 = b * blockColumnIndexes[k];
+                int v = b * b * k;
+                for (int r = 0; r < b; r++) {
+                    int idxB = zeroB + (b * br + r) * rowStrideB;
+                    for (int c = 0; c < b; c++) {
+                        double a = alpha * values[v++];
+                        if (a == 0) {
+                            continue;
+                        }
+                        int idxC = zeroC + (j0 + c) * rowStrideC;
+                        for (int q = 0, ic = idxC, ib = idxB; q < p; q++) {
+                            elementsC[ic] += a * elementsB[ib];
+                            ic += columnStrideC;
+                            ib += columnStrideB;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void store(double[] elementsZ, int idx, double value, double beta) {
+        if (beta == 0) {
+            elementsZ[idx] = value;
+        } else {
+            elementsZ[idx] = value + beta * elementsZ[idx];
+        }
+    }
+
+    private boolean useThreads() {
+        return (ConcurrencyUtils.getNumberOfThreads() > 1)
+                && ((long) blockRowPointers[blockRows] * blockSize * blockSize >= ConcurrencyUtils
+                        .getThreadsBeginN_2D("SparseBSRDoubleMatrix2D.zMult"));
+    }
+
+    private void run(int n, RangeProcedure procedure) {
+        if (useThreads()) {
+            ConcurrencyUtils.parallelFor(0, n, ConcurrencyUtils.getGrainSize(n, 16), procedure);
+        } else {
+            procedure.apply(0, n);
+        }
+    }
+
+    private void insertBlock(int br, int bc, int index) {
+        final int bb = blockSize * blockSize;
+        int nnzb = blockRowPointers[blockRows];
+        if (nnzb == blockColumnIndexes.length) {
+            int capacity = Math.max(4, nnzb + (nnzb >> 1));
+            blockColumnIndexes = Arrays.copyOf(blockColumnIndexes, capacity);
+            values = Arrays.copyOf(values, capacity * bb);
+        }
+        System.arraycopy(blockColumnIndexes, index, blockColumnIndexes, index + 1, nnzb - index);
+        System.arraycopy(values, index * bb, values, (index + 1) * bb, (nnzb - index) * bb);
+        Arrays.fill(values, index * bb, (index + 1) * bb, 0);
+        blockColumnIndexes[index] = bc;
+        for (int i = br + 1; i <= blockRows; i++) {
+            blockRowPointers[i]++;
+        }
+    }
+}
@@ -19,7 +19,6 @@ import edu.emory.mathcs.csparsej.tdouble.Dcs_add;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_cumsum;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_dropzeros;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_dupl;
-import edu.emory.mathcs.csparsej.tdouble.Dcs_multiply;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_transpose;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_util;
 import edu.emory.mathcs.csparsej.tdouble.Dcs_common.Dcs;
@@ -35,6 +34,10 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
  * Internally uses the standard sparse column-compressed format. <br>
  * Note that this implementation is not synchronized.
  * <p>
+ * A matrix that is only read from several threads should be frozen with
+ * {@link #freeze()}. A frozen matrix never changes, so <tt>getQuick</tt> takes
+ * no lock and uses a binary search.
+ * <p>
  * Cells that
  * <ul>
  * <li>are never set to non-zero values do not use any memory.
@@ -138,6 +141,11 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
 
     protected boolean rowIndexesSorted = false;
 
+    /*
+     * Set once by freeze(), the storage never changes afterwards.
+     */
+    protected volatile boolean frozen = false;
+
     /**
      * Constructs a matrix with a copy of the given values. <tt>values</tt> is
      * required to have the form <tt>values[row][column]</tt> and have exactly
@@ -350,6 +358,7 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
     }
 
     public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction function) {
+        checkNotFrozen();
         if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
             final double alpha = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
             if (alpha == 1)
@@ -375,6 +384,7 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
     }
 
     public DoubleMatrix2D assign(double value) {
+        checkNotFrozen();
         if (value == 0) {
             Arrays.fill(dcs.i, 0);
             Arrays.fill(dcs.p, 0);
@@ -389,6 +399,7 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
     }
 
     public DoubleMatrix2D assign(DoubleMatrix2D source) {
+        checkNotFrozen();
         if (source == this)
             return this; // nothing to do
         checkShape(source);
@@ -424,6 +435,7 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
     }
 
     public DoubleMatrix2D assign(final DoubleMatrix2D y, cern.colt.function.tdouble.DoubleDoubleFunction function) {
+        checkNotFrozen();
         checkShape(y);
 
         if ((y instanceof SparseCCDoubleMatrix2D) && (function == cern.jet.math.tdouble.DoubleFunctions.plus)) { // x[i] = x[i] + y[i] 
@@ -512,12 +524,48 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
                 int i = rowIndexesA[k];
                 double value = valuesA[k];
                 double r = function.apply(i, j, value);
-                valuesA[k] = r;
+                if (r != value) {
+                    checkNotFrozen();
+                    valuesA[k] = r;
+                }
             }
         }
         return this;
     }
 
+    /**
+     * Makes this matrix read-only. The row indexes are sorted first, if
+     * necessary. Afterwards <tt>getQuick</tt> takes no lock and uses a binary
+     * search, while <tt>setQuick</tt>, <tt>assign</tt> and all other methods
+     * that would change the matrix throw an <tt>IllegalStateException</tt>.
+     * To change a frozen matrix, build a new one, for example with
+     * {@link ConcurrentSparseDoubleBuilder2D}, or modify a copy:
+     * <tt>copy()</tt> returns a matrix that is not frozen. The storage returned
+     * by <tt>elements()</tt>, <tt>getColumnPointers()</tt>,
+     * <tt>getRowIndexes()</tt> and <tt>getValues()</tt> must not be modified
+     * either.
+     * 
+     * @return this matrix
+     */
+    public synchronized SparseCCDoubleMatrix2D freeze() {
+        if (!frozen) {
+            for (int j = 0; j < columns && rowIndexesSorted; j++) {
+                for (int k = dcs.p[j] + 1; k < dcs.p[j + 1]; k++) {
+                    if (dcs.i[k - 1] > dcs.i[k]) {
+                        rowIndexesSorted = false;
+                        break;
+                    }
+                }
+            }
+            if (!rowIndexesSorted) {
+                sortRowIndexes();
+            }
+            Dcs_util.cs_sprealloc(dcs, 0);
+            frozen = true;
+        }
+        return this;
+    }
+
     /**
      * Returns column pointers
      * 
@@ -545,13 +593,20 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
         return dense;
     }
 
-    public synchronized double getQuick(int row, int column) {
-        //        int k = cern.colt.Sorting.binarySearchFromTo(dcs.i, row, dcs.p[column], dcs.p[column + 1] - 1);
-        int k = searchFromTo(dcs.i, row, dcs.p[column], dcs.p[column + 1] - 1);
-        double v = 0;
-        if (k >= 0)
-            v = dcs.x[k];
-        return v;
+    public double getQuick(int row, int column) {
+        if (frozen) {
+            Dcs dcs = this.dcs;
+            int k = Arrays.binarySearch(dcs.i, dcs.p[column], dcs.p[column + 1], row);
+            return (k >= 0) ? dcs.x[k] : 0;
+        }
+        synchronized (this) {
+            //        int k = cern.colt.Sorting.binarySearchFromTo(dcs.i, row, dcs.p[column], dcs.p[column + 1] - 1);
+            int k = searchFromTo(dcs.i, row, dcs.p[column], dcs.p[column + 1] - 1);
+            double v = 0;
+            if (k >= 0)
+                v = dcs.x[k];
+            return v;
+        }
     }
 
     /**
@@ -612,6 +667,16 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
         return rowIndexesSorted;
     }
 
+    /**
+     * Returns true if this matrix is frozen, false otherwise
+     * 
+     * @return true if this matrix is frozen, false otherwise
+     * @see #freeze()
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
     public DoubleMatrix2D like(int rows, int columns) {
         return new SparseCCDoubleMatrix2D(rows, columns);
     }
@@ -621,6 +686,7 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
     }
 
     public synchronized void setQuick(int row, int column, double value) {
+        checkNotFrozen();
         //        int k = cern.colt.Sorting.binarySearchFromTo(dcs.i, row, dcs.p[column], dcs.p[column + 1] - 1);
         int k = searchFromTo(dcs.i, row, dcs.p[column], dcs.p[column + 1] - 1);
 
@@ -642,6 +708,7 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * Sorts row indexes
      */
     public void sortRowIndexes() {
+        checkNotFrozen();
         dcs = Dcs_transpose.cs_transpose(dcs, true);
         dcs = Dcs_transpose.cs_transpose(dcs, true);
         if (dcs == null) {
@@ -654,6 +721,7 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * Removes (sums) duplicate entries (if any}
      */
     public void removeDuplicates() {
+        checkNotFrozen();
         if (!Dcs_dupl.cs_dupl(dcs)) { //remove duplicates
             throw new IllegalArgumentException("Exception occured in cs_dupl()!");
         }
@@ -663,11 +731,38 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * Removes zero entries (if any)
      */
     public void removeZeroes() {
+        checkNotFrozen();
         Dcs_dropzeros.cs_dropzeros(dcs); //remove zeroes
     }
 
     public void trimToSize() {
-        Dcs_util.cs_sprealloc(dcs, 0);
+        if (!frozen) { // frozen matrices are trimmed already
+            Dcs_util.cs_sprealloc(dcs, 0);
+        }
+    }
+
+    /**
+     * Returns the triple product <tt>this * A * P</tt>, e.g. the Galerkin
+     * product <tt>R * A * P</tt> of a multigrid method. The rows of the result
+     * are computed in parallel, neither <tt>this * A</tt> nor <tt>A * P</tt>
+     * is stored. The result is a new column-compressed matrix with sorted row
+     * indexes.
+     * 
+     * @param A
+     *            the second factor, converted to column-compressed format if needed
+     * @param P
+     *            the third factor, converted to column-compressed format if needed
+     * @return <tt>this * A * P</tt>
+     * @throws IllegalArgumentException
+     *             if <tt>this.columns() != A.rows() || A.columns() != P.rows()</tt>
+     */
+    public SparseCCDoubleMatrix2D tripleProduct(DoubleMatrix2D A, DoubleMatrix2D P) {
+        if (columns != A.rows() || A.columns() != P.rows()) {
+            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
+                    + A.toStringShort() + ", " + P.toStringShort());
+        }
+        return SparseDoubleMultiplication.mult(this, SparseDoubleFormats.toColumnCompressed(A),
+                SparseDoubleFormats.toColumnCompressed(P), 1);
     }
 
     public String toString() {
@@ -868,24 +963,22 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
         }
         int p = columnsB;
         boolean ignore = (C == null);
-        if (C == null) {
-            if (B instanceof SparseCCDoubleMatrix2D) {
-                C = new SparseCCDoubleMatrix2D(rowsA, p, (rowsA * p));
-            } else {
-                C = new DenseDoubleMatrix2D(rowsA, p);
-            }
+        boolean sparse = (B instanceof SparseCCDoubleMatrix2D || B instanceof SparseRCDoubleMatrix2D)
+                && (ignore || C instanceof SparseCCDoubleMatrix2D);
+        if (C == null && !sparse) {
+            C = new DenseDoubleMatrix2D(rowsA, p);
         }
 
         if (rowsB != columnsA)
             throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
                     + (transposeB ? B.viewDice() : B).toStringShort());
-        if (C.rows() != rowsA || C.columns() != p)
+        if (!ignore && (C.rows() != rowsA || C.columns() != p))
             throw new IllegalArgumentException("Incompatible result matrix: " + toStringShort() + ", "
                     + (transposeB ? B.viewDice() : B).toStringShort() + ", " + C.toStringShort());
         if (this == C || B == C)
             throw new IllegalArgumentException("Matrices must not be identical");
 
-        if (!ignore && beta != 1.0) {
+        if (!ignore && !sparse && beta != 1.0) {
             C.assign(cern.jet.math.tdouble.DoubleFunctions.mult(beta));
         }
 
@@ -931,25 +1024,28 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
                 C.assign(cern.jet.math.tdouble.DoubleFunctions.mult(alpha));
             }
 
-        } else if ((B instanceof SparseCCDoubleMatrix2D) && (C instanceof SparseCCDoubleMatrix2D)) {
+        } else if (sparse) {
             SparseCCDoubleMatrix2D AA;
             if (transposeA) {
                 AA = getTranspose();
             } else {
                 AA = this;
             }
-            SparseCCDoubleMatrix2D BB = (SparseCCDoubleMatrix2D) B;
+            SparseCCDoubleMatrix2D BB = SparseDoubleFormats.toColumnCompressed(B);
             if (transposeB) {
                 BB = BB.getTranspose();
             }
-            SparseCCDoubleMatrix2D CC = (SparseCCDoubleMatrix2D) C;
-            CC.dcs = Dcs_multiply.cs_multiply(AA.dcs, BB.dcs);
-            if (CC.dcs == null) {
-                throw new IllegalArgumentException("Exception occured in cs_multiply()");
+            SparseCCDoubleMatrix2D AB = SparseDoubleMultiplication.mult(AA, BB, alpha);
+            if (ignore) {
+                return AB;
             }
-            if (alpha != 1.0) {
-                CC.assign(cern.jet.math.tdouble.DoubleFunctions.mult(alpha));
+            SparseCCDoubleMatrix2D CC = (SparseCCDoubleMatrix2D) C;
+            CC.checkNotFrozen();
+            if (beta != 0) {
+                AB = SparseDoubleMultiplication.add(AB, CC, beta);
             }
+            CC.dcs = AB.dcs;
+            CC.rowIndexesSorted = true;
         } else {
             if (transposeB) {
                 B = B.viewDice();
@@ -1013,6 +1109,12 @@ public class SparseCCDoubleMatrix2D extends WrapperDoubleMatrix2D {
         dcs.nzmax = rowIndexes.elements().length;
     }
 
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("the matrix is frozen");
+        }
+    }
+
     private static int searchFromTo(int[] list, int key, int from, int to) {
         while (from <= to) {
             if (list[from] == key) {
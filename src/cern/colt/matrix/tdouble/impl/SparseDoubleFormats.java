@@ -0,0 +1,79 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+/**
+ * Format conversions and argument checks shared by the sparse double
+ * matrices.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+final class SparseDoubleFormats {
+
+    private SparseDoubleFormats() {
+    }
+
+    /*
+     * Returns A itself if it is row-compressed, else a row-compressed copy of
+     * A.
+     */
+    static SparseRCDoubleMatrix2D toRowCompressed(DoubleMatrix2D A) {
+        if (A instanceof SparseRCDoubleMatrix2D) {
+            return (SparseRCDoubleMatrix2D) A;
+        }
+        if (A instanceof SparseCCDoubleMatrix2D) {
+            return ((SparseCCDoubleMatrix2D) A).getRowCompressed();
+        }
+        SparseRCDoubleMatrix2D rc = new SparseRCDoubleMatrix2D(A.rows(), A.columns());
+        rc.assign(A);
+        return rc;
+    }
+
+    /*
+     * Returns A itself if it is column-compressed, else a column-compressed
+     * copy of A.
+     */
+    static SparseCCDoubleMatrix2D toColumnCompressed(DoubleMatrix2D A) {
+        if (A instanceof SparseCCDoubleMatrix2D) {
+            return (SparseCCDoubleMatrix2D) A;
+        }
+        if (A instanceof SparseRCDoubleMatrix2D) {
+            return ((SparseRCDoubleMatrix2D) A).getColumnCompressed();
+        }
+        SparseCCDoubleMatrix2D cc = new SparseCCDoubleMatrix2D(A.rows(), A.columns());
+        cc.assign(A);
+        return cc;
+    }
+
+    /*
+     * Returns the elements of y, copied only if they are not contiguous from
+     * index 0.
+     */
+    static double[] toContiguous(DenseDoubleMatrix1D y) {
+        if (y.index(0) == 0 && y.stride() == 1) {
+            return y.elements;
+        }
+        return y.toArray();
+    }
+
+    /*
+     * Checks the arguments of A.zMult(y, z, alpha, beta, transposeA).
+     */
+    static void checkZMult(DoubleMatrix2D A, DoubleMatrix1D y, DoubleMatrix1D z, boolean transposeA) {
+        int rowsA = transposeA ? A.columns() : A.rows();
+        int columnsA = transposeA ? A.rows() : A.columns();
+        if (columnsA != y.size() || rowsA > z.size())
+            throw new IllegalArgumentException("Incompatible args: "
+                    + ((transposeA ? A.viewDice() : A).toStringShort()) + ", " + y.toStringShort() + ", "
+                    + z.toStringShort());
+    }
+}
@@ -0,0 +1,386 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Arrays;
+
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
+
+/**
+ * Products of the compressed sparse matrices (SpGEMM).
+ * <p>
+ * All products are computed row by row with Gustavson's algorithm: row
+ * <tt>i</tt> of <tt>A * B</tt> is the sum of the rows <tt>B[k]</tt> scaled by
+ * <tt>A[i, k]</tt>. Each product takes two passes over the operands. The
+ * symbolic pass counts the nonzeros of every row of the result, so that the
+ * arrays of the result are allocated once with their exact size and every
+ * row knows where to write. The numeric pass accumulates each row in a dense
+ * accumulator (SPA: a value and a marker per column, which are never cleared
+ * because the marker holds the index of the last row that touched the
+ * column), then sorts the columns of the row and gathers their values. The
+ * rows are independent, so both passes split the rows among the threads, each
+ * range of rows with its own accumulator, if the number of multiply-adds is
+ * at least the threshold of the kernel <tt>"SparseDoubleMatrix2D.zMult"</tt>.
+ * The result has sorted column indexes and no duplicates; entries that cancel
+ * out are kept as explicit zeros.
+ * <p>
+ * A triple product <tt>R * A * P</tt> is computed the same way, but row
+ * <tt>i</tt> of <tt>R * A</tt> is accumulated first, in a second accumulator,
+ * and then multiplied with <tt>P</tt>. Neither <tt>R * A</tt> nor
+ * <tt>A * P</tt> is ever stored.
+ * <p>
+ * The column-compressed arrays of a matrix are the row-compressed arrays of
+ * its transpose, so the products of column-compressed matrices are computed
+ * as the transposed products of row-compressed views of the same arrays.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+final class SparseDoubleMultiplication {
+
+    private SparseDoubleMultiplication() {
+    }
+
+    /*
+     * Returns alpha * A * B.
+     */
+    static SparseRCDoubleMatrix2D mult(SparseRCDoubleMatrix2D A, SparseRCDoubleMatrix2D B, final double alpha) {
+        final int rows = A.rows();
+        final int columns = B.columns();
+        final int[] Ap = A.rowPointers;
+        final int[] Aj = A.columnIndexes;
+        final double[] Ax = A.values;
+        final int[] Bp = B.rowPointers;
+        final int[] Bj = B.columnIndexes;
+        final double[] Bx = B.values;
+        final int[] Cp = new int[rows + 1];
+        long work = 0;
+        for (int k = Ap[rows]; --k >= 0;) {
+            work += Bp[Aj[k] + 1] - Bp[Aj[k]];
+        }
+        final boolean parallel = useThreads(work);
+
+        run(rows, parallel, new RangeProcedure() {
+            public void apply(int first, int last) {
+                int[] marker = newMarker(columns);
+                for (int i = first; i < last; i++) {
+                    int nz = 0;
+                    for (int ka = Ap[i]; ka < Ap[i + 1]; ka++) {
+                        int k = Aj[ka];
+                        for (int kb = Bp[k]; kb < Bp[k + 1]; kb++) {
+                            int j = Bj[kb];
+                            if (marker[j] != i) {
+                                marker[j] = i;
+                                nz++;
+                            }
+                        }
+                    }
+                    Cp[i + 1] = nz;
+                }
+            }
+        });
+        cumsum(Cp, rows);
+
+        final int[] Cj = new int[Cp[rows]];
+        final double[] Cx = new double[Cp[rows]];
+        run(rows, parallel, new RangeProcedure() {
+            public void apply(int first, int last) {
+                int[] marker = newMarker(columns);
+                double[] spa = new double[columns];
+                for (int i = first; i < last; i++) {
+                    int nz = Cp[i];
+                    for (int ka = Ap[i]; ka < Ap[i + 1]; ka++) {
+                        int k = Aj[ka];
+                        double a = alpha * Ax[ka];
+                        for (int kb = Bp[k]; kb < Bp[k + 1]; kb++) {
+                            int j = Bj[kb];
+                            if (marker[j] != i) {
+                                marker[j] = i;
+                                Cj[nz++] = j;
+                                spa[j] = a * Bx[kb];
+                            } else {
+                                spa[j] += a * Bx[kb];
+                            }
+                        }
+                    }
+                    gather(spa, Cj, Cx, Cp[i], nz);
+                }
+            }
+        });
+        return newMatrix(rows, columns, Cp, Cj, Cx);
+    }
+
+    /*
+     * Returns alpha * R * A * P.
+     */
+    static SparseRCDoubleMatrix2D mult(SparseRCDoubleMatrix2D R, SparseRCDoubleMatrix2D A, SparseRCDoubleMatrix2D P,
+            final double alpha) {
+        final int rows = R.rows();
+        final int inner = A.columns();
+        final int columns = P.columns();
+        final int[] Rp = R.rowPointers;
+        final int[] Rj = R.columnIndexes;
+        final double[] Rx = R.values;
+        final int[] Ap = A.rowPointers;
+        final int[] Aj = A.columnIndexes;
+        final double[] Ax = A.values;
+        final int[] Pp = P.rowPointers;
+        final int[] Pj = P.columnIndexes;
+        final double[] Px = P.values;
+        final int[] Cp = new int[rows + 1];
+        long work = 0;
+        for (int k = Rp[rows]; --k >= 0;) {
+            work += Ap[Rj[k] + 1] - Ap[Rj[k]];
+        }
+        work += Pp[P.rows()];
+        final boolean parallel = useThreads(work);
+
+        run(rows, parallel, new RangeProcedure() {
+            public void apply(int first, int last) {
+                int[] markerRA = newMarker(inner);
+                int[] indexesRA = new int[inner];
+                int[] marker = newMarker(columns);
+                for (int i = first; i < last; i++) {
+                    int nzRA = rowRA(i, Rp, Rj, Rx, Ap, Aj, Ax, markerRA, indexesRA, null);
+                    int nz = 0;
+                    for (int t = 0; t < nzRA; t++) {
+                        int l = indexesRA[t];
+                        for (int kp = Pp[l]; kp < Pp[l + 1]; kp++) {
+                            int j = Pj[kp];
+                            if (marker[j] != i) {
+                                marker[j] = i;
+                                nz++;
+                            }
+                        }
+                    }
+                    Cp[i + 1] = nz;
+                }
+            }
+        });
+        cumsum(Cp, rows);
+
+        final int[] Cj = new int[Cp[rows]];
+        final double[] Cx = new double[Cp[rows]];
+        run(rows, parallel, new RangeProcedure() {
+            public void apply(int first, int last) {
+                int[] markerRA = newMarker(inner);
+                int[] indexesRA = new int[inner];
+                double[] spaRA = new double[inner];
+                int[] marker = newMarker(columns);
+                double[] spa = new double[columns];
+                for (int i = first; i < last; i++) {
+                    int nzRA = rowRA(i, Rp, Rj, Rx, Ap, Aj, Ax, markerRA, indexesRA, spaRA);
+                    int nz = Cp[i];
+                    for (int t = 0; t < nzRA; t++) {
+                        int l = indexesRA[t];
+                        double a = alpha * spaRA[l];
+                        for (int kp = Pp[l]; kp < Pp[l + 1]; kp++) {
+                            int j = Pj[kp];
+                            if (marker[j] != i) {
+                                marker[j] = i;
+                                Cj[nz++] = j;
+                                spa[j] = a * Px[kp];
+                            } else {
+                                spa[j] += a * Px[kp];
+                            }
+                        }
+                    }
+                    gather(spa, Cj, Cx, Cp[i], nz);
+                }
+            }
+        });
+        return newMatrix(rows, columns, Cp, Cj, Cx);
+    }
+
+    /*
+     * Returns X + beta * Y.
+     */
+    static SparseRCDoubleMatrix2D add(SparseRCDoubleMatrix2D X, SparseRCDoubleMatrix2D Y, final double beta) {
+        final int rows = X.rows();
+        final int columns = X.columns();
+        final int[] Xp = X.rowPointers;
+        final int[] Xj = X.columnIndexes;
+        final double[] Xx = X.values;
+        final int[] Yp = Y.rowPointers;
+        final int[] Yj = Y.columnIndexes;
+        final double[] Yx = Y.values;
+        final int[] Cp = new int[rows + 1];
+        final boolean parallel = useThreads((long) Xp[rows] + Yp[rows]);
+
+        run(rows, parallel, new RangeProcedure() {
+            public void apply(int first, int last) {
+                int[] marker = newMarker(columns);
+                for (int i = first; i < last; i++) {
+                    int nz = Xp[i + 1] - Xp[i];
+                    for (int k = Xp[i]; k < Xp[i + 1]; k++) {
+                        marker[Xj[k]] = i;
+                    }
+                    for (int k = Yp[i]; k < Yp[i + 1]; k++) {
+                        if (marker[Yj[k]] != i) {
+                            marker[Yj[k]] = i;
+                            nz++;
+                        }
+                    }
+                    Cp[i + 1] = nz;
+                }
+            }
+        });
+        cumsum(Cp, rows);
+
+        final int[] Cj = new int[Cp[rows]];
+        final double[] Cx = new double[Cp[rows]];
+        run(rows, parallel, new RangeProcedure() {
+            public void apply(int first, int last) {
+                int[] marker = newMarker(columns);
+                double[] spa = new double[columns];
+                for (int i = first; i < last; i++) {
+                    int nz = Cp[i];
+                    for (int k = Xp[i]; k < Xp[i + 1]; k++) {
+                        int j = Xj[k];
+                        if (marker[j] != i) {
+                            marker[j] = i;
+                            Cj[nz++] = j;
+                            spa[j] = Xx[k];
+                        } else {
+                            spa[j] += Xx[k];
+                        }
+                    }
+                    for (int k = Yp[i]; k < Yp[i + 1]; k++) {
+                        int j = Yj[k];
+                        if (marker[j] != i) {
+                            marker[j] = i;
+                            Cj[nz++] = j;
+                            spa[j] = beta * Yx[k];
+                        } else {
+                            spa[j] += beta * Yx[k];
+                        }
+                    }
+                    gather(spa, Cj, Cx, Cp[i], nz);
+                }
+            }
+        });
+        return newMatrix(rows, columns, Cp, Cj, Cx);
+    }
+
+    /*
+     * Returns alpha * A * B.
+     */
+    static SparseCCDoubleMatrix2D mult(SparseCCDoubleMatrix2D A, SparseCCDoubleMatrix2D B, double alpha) {
+        return transpose(mult(transpose(B), transpose(A), alpha));
+    }
+
+    /*
+     * Returns alpha * R * A * P.
+     */
+    static SparseCCDoubleMatrix2D mult(SparseCCDoubleMatrix2D R, SparseCCDoubleMatrix2D A, SparseCCDoubleMatrix2D P,
+            double alpha) {
+        return transpose(mult(transpose(P), transpose(A), transpose(R), alpha));
+    }
+
+    /*
+     * Returns X + beta * Y.
+     */
+    static SparseCCDoubleMatrix2D add(SparseCCDoubleMatrix2D X, SparseCCDoubleMatrix2D Y, double beta) {
+        return transpose(add(transpose(X), transpose(Y), beta));
+    }
+
+    /*
+     * Accumulates row i of R * A into spaRA (unless it is null) and stores its
+     * column indexes in indexesRA; returns their number.
+     */
+    private static int rowRA(int i, int[] Rp, int[] Rj, double[] Rx, int[] Ap, int[] Aj, double[] Ax,
+            int[] markerRA, int[] indexesRA, double[] spaRA) {
+        int nz = 0;
+        for (int kr = Rp[i]; kr < Rp[i + 1]; kr++) {
+            int k = Rj[kr];
+            double r = Rx[kr];
+            for (int ka = Ap[k]; ka < Ap[k + 1]; ka++) {
+                int l = Aj[ka];
+                if (markerRA[l] != i) {
+                    markerRA[l] = i;
+                    indexesRA[nz++] = l;
+                    if (spaRA != null) {
+                        spaRA[l] = r * Ax[ka];
+                    }
+                } else if (spaRA != null) {
+                    spaRA[l] += r * Ax[ka];
+                }
+            }
+        }
+        return nz;
+    }
+
+    /*
+     * Sorts the column indexes of a row of the result and copies their values
+     * from the accumulator.
+     */
+    private static void gather(double[] spa, int[] Cj, double[] Cx, int low, int high) {
+        Arrays.sort(Cj, low, high);
+        for (int k = low; k < high; k++) {
+            Cx[k] = spa[Cj[k]];
+        }
+    }
+
+    private static int[] newMarker(int n) {
+        int[] marker = new int[n];
+        Arrays.fill(marker, -1);
+        return marker;
+    }
+
+    /*
+     * Turns the row counts in p[1..n] into row pointers.
+     */
+    private static void cumsum(int[] p, int n) {
+        for (int i = 0; i < n; i++) {
+            p[i + 1] += p[i];
+        }
+    }
+
+    private static boolean useThreads(long work) {
+        return (ConcurrencyUtils.getNumberOfThreads() > 1)
+                && (work >= ConcurrencyUtils.getThreadsBeginN_2D("SparseDoubleMatrix2D.zMult"));
+    }
+
+    private static void run(int rows, boolean parallel, RangeProcedure procedure) {
+        if (parallel) {
+            ConcurrencyUtils.parallelFor(0, rows, ConcurrencyUtils.getGrainSize(rows, 64), procedure);
+        } else {
+            procedure.apply(0, rows);
+        }
+    }
+
+    private static SparseRCDoubleMatrix2D newMatrix(int rows, int columns, int[] rowPointers, int[] columnIndexes,
+            double[] values) {
+        SparseRCDoubleMatrix2D C = new SparseRCDoubleMatrix2D(rows, columns, rowPointers, columnIndexes, values);
+        C.columnIndexesSorted = true;
+        return C;
+    }
+
+    /*
+     * Returns a row-compressed view of the transpose of A that shares the
+     * arrays of A.
+     */
+    private static SparseRCDoubleMatrix2D transpose(SparseCCDoubleMatrix2D A) {
+        return new SparseRCDoubleMatrix2D(A.columns(), A.rows(), A.dcs.p, A.dcs.i, A.dcs.x);
+    }
+
+    /*
+     * Returns a column-compressed matrix with the transpose of A that shares
+     * the arrays of A.
+     */
+    private static SparseCCDoubleMatrix2D transpose(SparseRCDoubleMatrix2D A) {
+        SparseCCDoubleMatrix2D C = new SparseCCDoubleMatrix2D(A.columns(), A.rows());
+        C.dcs.p = A.rowPointers;
+        C.dcs.i = A.columnIndexes;
+        C.dcs.x = A.values;
+        C.dcs.nzmax = A.values.length;
+        C.rowIndexesSorted = true;
+        return C;
+    }
+}
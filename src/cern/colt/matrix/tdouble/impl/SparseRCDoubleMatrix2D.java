@@ -28,6 +28,10 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
  * Internally uses the standard sparse row-compressed format<br>
  * Note that this implementation is not synchronized.
  * <p>
+ * A matrix that is only read from several threads should be frozen with
+ * {@link #freeze()}. A frozen matrix never changes, so <tt>getQuick</tt> takes
+ * no lock and uses a binary search.
+ * <p>
  * <b>Memory requirements:</b>
  * <p>
  * Cells that
@@ -155,6 +159,11 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
 
     protected boolean columnIndexesSorted = false;
 
+    /*
+     * Set once by freeze(), the arrays never change afterwards.
+     */
+    protected volatile boolean frozen = false;
+
     /**
      * Constructs a matrix with a copy of the given values. <tt>values</tt> is
      * required to have the form <tt>values[row][column]</tt> and have exactly
@@ -368,6 +377,7 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
     }
 
     public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction function) {
+        checkNotFrozen();
         if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
             final double alpha = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
             if (alpha == 1)
@@ -392,6 +402,7 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
     }
 
     public DoubleMatrix2D assign(double value) {
+        checkNotFrozen();
         if (value == 0) {
             Arrays.fill(rowPointers, 0);
             Arrays.fill(columnIndexes, 0);
@@ -406,6 +417,7 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
     }
 
     public DoubleMatrix2D assign(DoubleMatrix2D source) {
+        checkNotFrozen();
         if (source == this)
             return this; // nothing to do
         checkShape(source);
@@ -440,6 +452,7 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
     }
 
     public DoubleMatrix2D assign(final DoubleMatrix2D y, cern.colt.function.tdouble.DoubleDoubleFunction function) {
+        checkNotFrozen();
         checkShape(y);
         if ((y instanceof SparseRCDoubleMatrix2D) && (function == cern.jet.math.tdouble.DoubleFunctions.plus)) { // x[i] = x[i] + y[i] 
             SparseRCDoubleMatrix2D yy = (SparseRCDoubleMatrix2D) y;
@@ -574,9 +587,43 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
                 int j = columnIndexes[k];
                 double value = values[k];
                 double r = function.apply(i, j, value);
-                if (r != value)
+                if (r != value) {
+                    checkNotFrozen();
                     values[k] = r;
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Makes this matrix read-only. The column indexes are sorted first, if
+     * necessary. Afterwards <tt>getQuick</tt> takes no lock and uses a binary
+     * search, while <tt>setQuick</tt>, <tt>assign</tt> and all other methods
+     * that would change the matrix throw an <tt>IllegalStateException</tt>.
+     * To change a frozen matrix, build a new one, for example with
+     * {@link ConcurrentSparseDoubleBuilder2D}, or modify a copy:
+     * <tt>copy()</tt> returns a matrix that is not frozen. The arrays returned
+     * by <tt>getRowPointers()</tt>, <tt>getColumnIndexes()</tt> and
+     * <tt>getValues()</tt> must not be modified either.
+     * 
+     * @return this matrix
+     */
+    public synchronized SparseRCDoubleMatrix2D freeze() {
+        if (!frozen) {
+            for (int i = 0; i < rows && columnIndexesSorted; i++) {
+                for (int k = rowPointers[i] + 1; k < rowPointers[i + 1]; k++) {
+                    if (columnIndexes[k - 1] > columnIndexes[k]) {
+                        columnIndexesSorted = false;
+                        break;
+                    }
+                }
+            }
+            if (!columnIndexesSorted) {
+                sortColumnIndexes();
             }
+            realloc(0);
+            frozen = true;
         }
         return this;
     }
@@ -626,14 +673,20 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
         return dense;
     }
 
-    public synchronized double getQuick(int row, int column) {
-        //        int k = cern.colt.Sorting.binarySearchFromTo(columnIndexes, column, rowPointers[row], rowPointers[row + 1] - 1);
-        int k = searchFromTo(columnIndexes, column, rowPointers[row], rowPointers[row + 1] - 1);
-
-        double v = 0;
-        if (k >= 0)
-            v = values[k];
-        return v;
+    public double getQuick(int row, int column) {
+        if (frozen) {
+            int k = Arrays.binarySearch(columnIndexes, rowPointers[row], rowPointers[row + 1], column);
+            return (k >= 0) ? values[k] : 0;
+        }
+        synchronized (this) {
+            //        int k = cern.colt.Sorting.binarySearchFromTo(columnIndexes, column, rowPointers[row], rowPointers[row + 1] - 1);
+            int k = searchFromTo(columnIndexes, column, rowPointers[row], rowPointers[row + 1] - 1);
+
+            double v = 0;
+            if (k >= 0)
+                v = values[k];
+            return v;
+        }
     }
 
     /**
@@ -696,6 +749,16 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
         return columnIndexesSorted;
     }
 
+    /**
+     * Returns true if this matrix is frozen, false otherwise
+     * 
+     * @return true if this matrix is frozen, false otherwise
+     * @see #freeze()
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
     public DoubleMatrix2D like(int rows, int columns) {
         return new SparseRCDoubleMatrix2D(rows, columns);
     }
@@ -708,6 +771,7 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * Removes (sums) duplicate entries (if any}
      */
     public void removeDuplicates() {
+        checkNotFrozen();
         int nz = 0;
         int q, i;
         int[] w = new int[columns]; /* get workspace */
@@ -734,6 +798,7 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * Removes zero entries (if any)
      */
     public void removeZeroes() {
+        checkNotFrozen();
         int nz = 0;
         double eps = Math.pow(2, -52);
         for (int j = 0; j < rows; j++) {
@@ -750,6 +815,7 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
     }
 
     public synchronized void setQuick(int row, int column, double value) {
+        checkNotFrozen();
         //        int k = cern.colt.Sorting.binarySearchFromTo(columnIndexes, column, rowPointers[row], rowPointers[row + 1] - 1);
         int k = searchFromTo(columnIndexes, column, rowPointers[row], rowPointers[row + 1] - 1);
 
@@ -771,6 +837,7 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
      * Sorts column indexes
      */
     public void sortColumnIndexes() {
+        checkNotFrozen();
         SparseRCDoubleMatrix2D T = getTranspose();
         this.rows = T.rows;
         this.columns = T.columns;
@@ -807,7 +874,33 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
     }
 
     public void trimToSize() {
-        realloc(0);
+        if (!frozen) { // frozen matrices are trimmed already
+            realloc(0);
+        }
+    }
+
+    /**
+     * Returns the triple product <tt>this * A * P</tt>, e.g. the Galerkin
+     * product <tt>R * A * P</tt> of a multigrid method. The rows of the result
+     * are computed in parallel, neither <tt>this * A</tt> nor <tt>A * P</tt>
+     * is stored. The result is a new row-compressed matrix with sorted column
+     * indexes.
+     * 
+     * @param A
+     *            the second factor, converted to row-compressed format if needed
+     * @param P
+     *            the third factor, converted to row-compressed format if needed
+     * @return <tt>this * A * P</tt>
+     * @throws IllegalArgumentException
+     *             if <tt>this.columns() != A.rows() || A.columns() != P.rows()</tt>
+     */
+    public SparseRCDoubleMatrix2D tripleProduct(DoubleMatrix2D A, DoubleMatrix2D P) {
+        if (columns != A.rows() || A.columns() != P.rows()) {
+            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
+                    + A.toStringShort() + ", " + P.toStringShort());
+        }
+        return SparseDoubleMultiplication.mult(this, SparseDoubleFormats.toRowCompressed(A),
+                SparseDoubleFormats.toRowCompressed(P), 1);
     }
 
     public DoubleMatrix1D zMult(DoubleMatrix1D y, DoubleMatrix1D z, final double alpha, final double beta,
@@ -1039,24 +1132,22 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
         }
         int p = columnsB;
         boolean ignore = (C == null);
-        if (C == null) {
-            if (B instanceof SparseRCDoubleMatrix2D) {
-                C = new SparseRCDoubleMatrix2D(rowsA, p, (rowsA * p));
-            } else {
-                C = new DenseDoubleMatrix2D(rowsA, p);
-            }
+        boolean sparse = (B instanceof SparseRCDoubleMatrix2D || B instanceof SparseCCDoubleMatrix2D)
+                && (ignore || C instanceof SparseRCDoubleMatrix2D);
+        if (C == null && !sparse) {
+            C = new DenseDoubleMatrix2D(rowsA, p);
         }
 
         if (rowsB != columnsA)
             throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
                     + (transposeB ? B.viewDice() : B).toStringShort());
-        if (C.rows() != rowsA || C.columns() != p)
+        if (!ignore && (C.rows() != rowsA || C.columns() != p))
             throw new IllegalArgumentException("Incompatible result matrix: " + toStringShort() + ", "
                     + (transposeB ? B.viewDice() : B).toStringShort() + ", " + C.toStringShort());
         if (this == C || B == C)
             throw new IllegalArgumentException("Matrices must not be identical");
 
-        if (!ignore && beta != 1.0) {
+        if (!ignore && !sparse && beta != 1.0) {
             C.assign(cern.jet.math.tdouble.DoubleFunctions.mult(beta));
         }
 
@@ -1087,78 +1178,30 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
                     CC.viewRow(ii).assign(BB.viewRow(jj), DoubleFunctions.plusMultSecond(scal));
                 }
             }
-        } else if ((B instanceof SparseRCDoubleMatrix2D) && (C instanceof SparseRCDoubleMatrix2D)) {
+        } else if (sparse) {
             SparseRCDoubleMatrix2D AA;
-            SparseRCDoubleMatrix2D BB;
-            SparseRCDoubleMatrix2D CC = (SparseRCDoubleMatrix2D) C;
             if (transposeA) {
                 AA = getTranspose();
             } else {
                 AA = this;
             }
+            SparseRCDoubleMatrix2D BB = SparseDoubleFormats.toRowCompressed(B);
             if (transposeB) {
-                BB = ((SparseRCDoubleMatrix2D) B).getTranspose();
-            } else {
-                BB = (SparseRCDoubleMatrix2D) B;
+                BB = BB.getTranspose();
             }
-
-            int[] rowPointersA = AA.rowPointers;
-            int[] columnIndexesA = AA.columnIndexes;
-            double[] valuesA = AA.values;
-
-            int[] rowPointersB = BB.rowPointers;
-            int[] columnIndexesB = BB.columnIndexes;
-            double[] valuesB = BB.values;
-
-            int[] rowPointersC = CC.rowPointers;
-            int[] columnIndexesC = CC.columnIndexes;
-            double[] valuesC = CC.values;
-            int nzmax = valuesC.length;
-
-            int[] iw = new int[columnsB + 1];
-            for (int i = 0; i < iw.length; i++) {
-                iw[i] = -1;
+            SparseRCDoubleMatrix2D AB = SparseDoubleMultiplication.mult(AA, BB, alpha);
+            if (ignore) {
+                return AB;
             }
-            int len = -1;
-            for (int ii = 0; ii < rowsA; ii++) {
-                int highA = rowPointersA[ii + 1];
-                for (int ka = rowPointersA[ii]; ka < highA; ka++) {
-                    double scal = valuesA[ka] * alpha;
-                    int jj = columnIndexesA[ka];
-                    int highB = rowPointersB[jj + 1];
-                    for (int kb = rowPointersB[jj]; kb < highB; kb++) {
-                        int jcol = columnIndexesB[kb];
-                        int jpos = iw[jcol];
-                        if (jpos == -1) {
-                            len++;
-                            if (len >= nzmax) {
-                                throw new IllegalArgumentException(
-                                        "The max number of nonzero elements in C is too small.");
-                            }
-                            columnIndexesC[len] = jcol;
-                            iw[jcol] = len;
-                            valuesC[len] = scal * valuesB[kb];
-                        } else {
-                            valuesC[jpos] += scal * valuesB[kb];
-                        }
-                    }
-                }
-                for (int k = rowPointersC[ii]; k < len + 1; k++) {
-                    iw[columnIndexesC[k]] = -1;
-                }
-                rowPointersC[ii + 1] = len + 1;
-
-                //                int length = rowPointersC[ii + 1] - rowPointersC[ii];
-                //                IntMatrix1D columnIndexesCPart = columnIndexesC.viewPart(rowPointersC[ii], length);
-                //                int[] indexes = cern.colt.matrix.tint.algo.IntSorting.quickSort.sortIndex(columnIndexesCPart);
-                //                Arrays.sort(columnIndexesCElements, rowPointersC[ii], rowPointersC[ii + 1]);
-                //                DoubleMatrix1D valuesCPart = valuesC.viewPart(rowPointersC[ii], length).viewSelection(indexes);
-                //                valuesC.viewPart(rowPointersC[ii], length).assign(valuesCPart);
+            SparseRCDoubleMatrix2D CC = (SparseRCDoubleMatrix2D) C;
+            CC.checkNotFrozen();
+            if (beta != 0) {
+                AB = SparseDoubleMultiplication.add(AB, CC, beta);
             }
-            //            CC.columnIndexes.elements((int[]) columnIndexesC.elements());
-            //            CC.columnIndexes.setSize(columnIndexesSize);
-            //            CC.values.elements((double[]) valuesC.elements());
-            //            CC.values.setSize(columnIndexesSize);
+            CC.rowPointers = AB.rowPointers;
+            CC.columnIndexes = AB.columnIndexes;
+            CC.values = AB.values;
+            CC.columnIndexesSorted = true;
         } else {
             if (transposeB) {
                 B = B.viewDice();
@@ -1191,6 +1234,12 @@ public class SparseRCDoubleMatrix2D extends WrapperDoubleMatrix2D {
         return C;
     }
 
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("the matrix is frozen");
+        }
+    }
+
     private double cumsum(int[] p, int[] c, int n) {
         int nz = 0;
         double nz2 = 0;
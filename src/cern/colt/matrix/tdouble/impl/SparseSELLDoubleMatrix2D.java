@@ -0,0 +1,667 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tdouble.impl;
+
+import java.util.Arrays;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
+
+/**
+ * Sparse sliced ELLPACK (SELL-C-sigma) 2-d matrix holding <tt>double</tt>
+ * elements.
+ * <p>
+ * <b>Implementation:</b>
+ * <p>
+ * The rows are sorted by decreasing number of non-zero cells within windows
+ * of <tt>sortWindow</tt> rows, and the sorted rows are cut into slices of
+ * <tt>sliceHeight</tt> rows. Every slice is stored as a dense
+ * <tt>sliceHeight x width</tt> array in column-major order, where
+ * <tt>width</tt> is the length of the longest row of the slice; shorter rows
+ * are padded with zeros (with column index <tt>0</tt>).
+ * <tt>getSlicePointers()</tt> holds the position of the first cell of every
+ * slice in <tt>getColumnIndexes()</tt> and <tt>getValues()</tt>,
+ * <tt>getRowPermutation()</tt> the original row of every sorted row, and
+ * <tt>getRowLengths()</tt> the number of stored cells of every sorted row.
+ * <p>
+ * The matrix-vector product of {@link #zMult} runs over the cells of a slice
+ * column by column, so the innermost loop covers <tt>sliceHeight</tt>
+ * independent rows with consecutive values and column indexes; sorting keeps
+ * the padding small. If a {@link DoubleSimdKernels} backend is available, the
+ * columns of a slice that hold no padding are multiplied by it, with the
+ * elements of the vector gathered by column index. Padding cells are never
+ * multiplied, so infinite or NaN elements of the vector propagate only
+ * through stored cells, as in the other sparse matrices. The slices are split
+ * among the threads by the number of stored cells rather than by the number of
+ * rows, so a few very long rows do not leave the other threads idle. The
+ * product is parallel if the number of stored cells is at least the threshold
+ * of the kernel <tt>"SparseSELLDoubleMatrix2D.zMult"</tt>.
+ * <p>
+ * The matrix is meant to be built once from a {@link SparseRCDoubleMatrix2D}
+ * (or any other matrix) with
+ * {@link #SparseSELLDoubleMatrix2D(DoubleMatrix2D, int, int)} and then used in
+ * many products, as in an iterative solver. Setting a cell that is not stored
+ * uses a padding cell of its row if there is one, otherwise it widens the
+ * slice, which takes time <tt>O(nnz)</tt>. The rows are not sorted again.
+ * <p>
+ * Note that this implementation is not synchronized.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public class SparseSELLDoubleMatrix2D extends WrapperDoubleMatrix2D {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default number of rows of a slice.
+     */
+    public static final int DEFAULT_SLICE_HEIGHT = 8;
+
+    /**
+     * The default number of rows sorted together.
+     */
+    public static final int DEFAULT_SORT_WINDOW = 256;
+
+    /*
+     * The elements of the matrix.
+     */
+    protected int sliceHeight;
+
+    protected int sortWindow;
+
+    protected int slices;
+
+    protected int[] slicePointers;
+
+    protected int[] columnIndexes;
+
+    protected double[] values;
+
+    protected int[] rowPermutation;
+
+    protected int[] rowPositions;
+
+    protected int[] rowLengths;
+
+    /**
+     * Constructs a matrix with a given number of rows and columns. All entries
+     * are initially <tt>0</tt>.
+     *
+     * @param rows
+     *            the number of rows the matrix shall have.
+     * @param columns
+     *            the number of columns the matrix shall have.
+     * @param sliceHeight
+     *            the number of rows of a slice.
+     * @param sortWindow
+     *            the number of rows sorted together by their length.
+     * @throws IllegalArgumentException
+     *             if <tt>sliceHeight &lt; 1</tt> or
+     *             <tt>sortWindow &lt; 1</tt>.
+     */
+    public SparseSELLDoubleMatrix2D(int rows, int columns, int sliceHeight, int sortWindow) {
+        super(null);
+        if (sliceHeight < 1) {
+            throw new IllegalArgumentException("sliceHeight < 1: " + sliceHeight);
+        }
+        if (sortWindow < 1) {
+            throw new IllegalArgumentException("sortWindow < 1: " + sortWindow);
+        }
+        try {
+            setUp(rows, columns);
+        } catch (IllegalArgumentException exc) { // we can hold rows*columns>Integer.MAX_VALUE cells !
+            if (!"matrix too large".equals(exc.getMessage()))
+                throw exc;
+        }
+        this.sliceHeight = sliceHeight;
+        this.sortWindow = sortWindow;
+        this.slices = (rows + sliceHeight - 1) / sliceHeight;
+        this.slicePointers = new int[slices + 1];
+        this.columnIndexes = new int[0];
+        this.values = new double[0];
+        this.rowPermutation = new int[rows];
+        this.rowPositions = new int[rows];
+        this.rowLengths = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            rowPermutation[i] = i;
+            rowPositions[i] = i;
+        }
+    }
+
+    /**
+     * Constructs a matrix with a copy of the given matrix, using the default
+     * slice height and sort window.
+     *
+     * @param source
+     *            the matrix to be copied.
+     */
+    public SparseSELLDoubleMatrix2D(DoubleMatrix2D source) {
+        this(source, DEFAULT_SLICE_HEIGHT, DEFAULT_SORT_WINDOW);
+    }
+
+    /**
+     * Constructs a matrix with a copy of the given matrix. Zero cells are not
+     * stored.
+     *
+     * @param source
+     *            the matrix to be copied; a {@link SparseRCDoubleMatrix2D} is
+     *            converted directly, other matrices are first converted to it.
+     * @param sliceHeight
+     *            the number of rows of a slice.
+     * @param sortWindow
+     *            the number of rows sorted together by their length.
+     * @throws IllegalArgumentException
+     *             if <tt>sliceHeight &lt; 1</tt> or
+     *             <tt>sortWindow &lt; 1</tt>.
+     */
+    public SparseSELLDoubleMatrix2D(DoubleMatrix2D source, int sliceHeight, int sortWindow) {
+        this(source.rows(), source.columns(), sliceHeight, sortWindow);
+        assignRowCompressed(SparseDoubleFormats.toRowCompressed(source));
+    }
+
+    /*
+     * Replaces the content of this matrix by the cells of A, sorting the rows
+     * again.
+     */
+    private void assignRowCompressed(SparseRCDoubleMatrix2D A) {
+        final int C = sliceHeight;
+        int[] rowPointersA = A.rowPointers;
+        int[] columnIndexesA = A.columnIndexes;
+        double[] valuesA = A.values;
+        int[] lengths = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            for (int k = rowPointersA[i]; k < rowPointersA[i + 1]; k++) {
+                if (valuesA[k] != 0) {
+                    lengths[i]++;
+                }
+            }
+        }
+
+        // decreasing length within each window, stable in the row index
+        long[] keys = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            keys[i] = ((long) (Integer.MAX_VALUE - lengths[i]) << 32) | i;
+        }
+        for (int w = 0; w < rows; w += sortWindow) {
+            Arrays.sort(keys, w, (int) Math.min(rows, (long) w + sortWindow));
+        }
+        for (int p = 0; p < rows; p++) {
+            int i = (int) keys[p];
+            rowPermutation[p] = i;
+            rowPositions[i] = p;
+            rowLengths[p] = lengths[i];
+        }
+
+        int[] pointers = new int[slices + 1];
+        for (int s = 0; s < slices; s++) {
+            int width = 0;
+            for (int p = s * C; p < Math.min(rows, (s + 1) * C); p++) {
+                width = Math.max(width, rowLengths[p]);
+            }
+            pointers[s + 1] = pointers[s] + width * C;
+        }
+        int[] indexes = new int[pointers[slices]];
+        double[] cells = new double[pointers[slices]];
+        for (int p = 0; p < rows; p++) {
+            int i = rowPermutation[p];
+            int idx = pointers[p / C] + p % C;
+            for (int k = rowPointersA[i]; k < rowPointersA[i + 1]; k++) {
+                if (valuesA[k] != 0) {
+                    indexes[idx] = columnIndexesA[k];
+                    cells[idx] = valuesA[k];
+                    idx += C;
+                }
+            }
+        }
+        slicePointers = pointers;
+        columnIndexes = indexes;
+        values = cells;
+    }
+
+    public DoubleMatrix2D assign(final cern.colt.function.tdouble.DoubleFunction function) {
+        if (function instanceof cern.jet.math.tdouble.DoubleMult) { // x[i] = mult*x[i]
+            final double alpha = ((cern.jet.math.tdouble.DoubleMult) function).multiplicator;
+            if (alpha == 1)
+                return this;
+            if (alpha == 0)
+                return assign(0);
+            if (alpha != alpha || Double.isInfinite(alpha))
+                return super.assign(function);
+            int n = slicePointers[slices];
+            for (int k = 0; k < n; k++) {
+                values[k] *= alpha;
+            }
+            return this;
+        }
+        return super.assign(function);
+    }
+
+    public DoubleMatrix2D assign(double value) {
+        if (value == 0) {
+            Arrays.fill(slicePointers, 0);
+            Arrays.fill(rowLengths, 0);
+            return this;
+        }
+        return super.assign(value);
+    }
+
+    public DoubleMatrix2D assign(DoubleMatrix2D source) {
+        if (source == this)
+            return this; // nothing to do
+        checkShape(source);
+        if (source instanceof SparseSELLDoubleMatrix2D
+                && ((SparseSELLDoubleMatrix2D) source).sliceHeight == sliceHeight) {
+            SparseSELLDoubleMatrix2D other = (SparseSELLDoubleMatrix2D) source;
+            int n = other.slicePointers[slices];
+            sortWindow = other.sortWindow;
+            slicePointers = other.slicePointers.clone();
+            columnIndexes = Arrays.copyOf(other.columnIndexes, n);
+            values = Arrays.copyOf(other.values, n);
+            rowPermutation = other.rowPermutation.clone();
+            rowPositions = other.rowPositions.clone();
+            rowLengths = other.rowLengths.clone();
+        } else {
+            assignRowCompressed(SparseDoubleFormats.toRowCompressed(source));
+        }
+        return this;
+    }
+
+    public int cardinality() {
+        int n = slicePointers[slices];
+        int cardinality = 0;
+        for (int k = 0; k < n; k++) {
+            if (values[k] != 0) {
+                cardinality++;
+            }
+        }
+        return cardinality;
+    }
+
+    public DoubleMatrix2D forEachNonZero(final cern.colt.function.tdouble.IntIntDoubleFunction function) {
+        final int C = sliceHeight;
+        for (int p = 0; p < rows; p++) {
+            int row = rowPermutation[p];
+            int idx = slicePointers[p / C] + p % C;
+            for (int k = 0; k < rowLengths[p]; k++, idx += C) {
+                double value = values[idx];
+                if (value != 0) {
+                    double a = function.apply(row, columnIndexes[idx], value);
+                    if (a != value)
+                        values[idx] = a;
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns a new matrix that has the same non-zero elements as this matrix,
+     * but is in a column-compressed form.
+     *
+     * @return this matrix in a column-compressed form
+     */
+    public SparseCCDoubleMatrix2D getColumnCompressed() {
+        return getRowCompressed().getColumnCompressed();
+    }
+
+    /**
+     * Returns column indexes, padding cells included
+     *
+     * @return column indexes
+     */
+    public int[] getColumnIndexes() {
+        return columnIndexes;
+    }
+
+    public synchronized double getQuick(int row, int column) {
+        int k = find(rowPositions[row], column);
+        return (k >= 0) ? values[k] : 0;
+    }
+
+    /**
+     * Returns a new matrix that has the same non-zero elements as this matrix,
+     * but is in a row-compressed form with sorted column indexes.
+     *
+     * @return this matrix in a row-compressed form
+     */
+    public SparseRCDoubleMatrix2D getRowCompressed() {
+        final int C = sliceHeight;
+        int[] rowPointers = new int[rows + 1];
+        for (int p = 0; p < rows; p++) {
+            int idx = slicePointers[p / C] + p % C;
+            for (int k = 0; k < rowLengths[p]; k++, idx += C) {
+                if (values[idx] != 0) {
+                    rowPointers[rowPermutation[p] + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+        int[] columnIndexesRC = new int[rowPointers[rows]];
+        double[] valuesRC = new double[rowPointers[rows]];
+        boolean sorted = true;
+        for (int p = 0; p < rows; p++) {
+            int nz = rowPointers[rowPermutation[p]];
+            int idx = slicePointers[p / C] + p % C;
+            for (int k = 0; k < rowLengths[p]; k++, idx += C) {
+                if (values[idx] != 0) {
+                    if (nz > rowPointers[rowPermutation[p]] && columnIndexesRC[nz - 1] > columnIndexes[idx]) {
+                        sorted = false;
+                    }
+                    columnIndexesRC[nz] = columnIndexes[idx];
+                    valuesRC[nz++] = values[idx];
+                }
+            }
+        }
+        SparseRCDoubleMatrix2D rc = new SparseRCDoubleMatrix2D(rows, columns, rowPointers, columnIndexesRC,
+                valuesRC);
+        if (sorted) {
+            rc.columnIndexesSorted = true;
+        } else {
+            rc.sortColumnIndexes();
+        }
+        return rc;
+    }
+
+    /**
+     * Returns the number of stored cells of every sorted row, padding
+     * excluded
+     *
+     * @return row lengths
+     */
+    public int[] getRowLengths() {
+        return rowLengths;
+    }
+
+    /**
+     * Returns the original row of every sorted row
+     *
+     * @return row permutation
+     */
+    public int[] getRowPermutation() {
+        return rowPermutation;
+    }
+
+    /**
+     * Returns the number of rows of a slice.
+     *
+     * @return the slice height
+     */
+    public int getSliceHeight() {
+        return sliceHeight;
+    }
+
+    /**
+     * Returns slice pointers
+     *
+     * @return slice pointers
+     */
+    public int[] getSlicePointers() {
+        return slicePointers;
+    }
+
+    /**
+     * Returns the number of rows sorted together by their length.
+     *
+     * @return the sort window
+     */
+    public int getSortWindow() {
+        return sortWindow;
+    }
+
+    /**
+     * Returns the values of the cells, padding cells included
+     *
+     * @return the values of the cells
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    public DoubleMatrix2D like(int rows, int columns) {
+        return new SparseSELLDoubleMatrix2D(rows, columns, sliceHeight, sortWindow);
+    }
+
+    public DoubleMatrix1D like1D(int size) {
+        return new SparseDoubleMatrix1D(size);
+    }
+
+    public synchronized void setQuick(int row, int column, double value) {
+        int p = rowPositions[row];
+        int k = find(p, column);
+        if (k < 0) {
+            if (value == 0) {
+                return;
+            }
+            int s = p / sliceHeight;
+            if (rowLengths[p] == (slicePointers[s + 1] - slicePointers[s]) / sliceHeight) {
+                widenSlice(s);
+            }
+            k = slicePointers[s] + rowLengths[p]++ * sliceHeight + p % sliceHeight;
+            columnIndexes[k] = column;
+        }
+        values[k] = value;
+    }
+
+    public void trimToSize() {
+        int n = slicePointers[slices];
+        if (columnIndexes.length > n) {
+            columnIndexes = Arrays.copyOf(columnIndexes, n);
+            values = Arrays.copyOf(values, n);
+        }
+    }
+
+    public DoubleMatrix1D zMult(DoubleMatrix1D y, DoubleMatrix1D z, final double alpha, final double beta,
+            final boolean transposeA) {
+        final int rowsA = transposeA ? columns : rows;
+
+        boolean ignore = (z == null);
+        if (z == null)
+            z = new DenseDoubleMatrix1D(rowsA);
+
+        if (!(y instanceof DenseDoubleMatrix1D && z instanceof DenseDoubleMatrix1D)) {
+            return super.zMult(y, z, alpha, beta, transposeA);
+        }
+
+        SparseDoubleFormats.checkZMult(this, y, z, transposeA);
+
+        DenseDoubleMatrix1D zz = (DenseDoubleMatrix1D) z;
+        final double[] elementsZ = zz.elements;
+        final int strideZ = zz.stride();
+        final int zeroZ = (int) z.index(0);
+        final double[] elementsY = SparseDoubleFormats.toContiguous((DenseDoubleMatrix1D) y);
+        final double betaZ = ignore ? 0 : beta;
+        final int C = sliceHeight;
+
+        if (transposeA) {
+            zMultTranspose(elementsY, elementsZ, zeroZ, strideZ, alpha, betaZ);
+            return z;
+        }
+        final DoubleSimdKernels simd = DenseDoubleKernels.SIMD;
+        run(new RangeProcedure() {
+            public void apply(int first, int last) {
+                double[] sum = new double[C];
+                for (int s = first; s < last; s++) {
+                    Arrays.fill(sum, 0);
+                    int start = slicePointers[s];
+                    int full = fullWidth(s);
+                    if (simd != null) {
+                        simd.zMultSlice(values, columnIndexes, start, C, full, elementsY, sum);
+                    } else {
+                        for (int k = 0, idx = start; k < full; k++, idx += C) {
+                            for (int r = 0; r < C; r++) {
+                                sum[r] += values[idx + r] * elementsY[columnIndexes[idx + r]];
+                            }
+                        }
+                    }
+                    // the remaining cells of the longer rows, without padding
+                    for (int r = 0, p = s * C; r < C && p < rows; r++, p++) {
+                        for (int k = full, idx = start + full * C + r; k < rowLengths[p]; k++, idx += C) {
+                            sum[r] += values[idx] * elementsY[columnIndexes[idx]];
+                        }
+                    }
+                    for (int r = 0, p = s * C; r < C && p < rows; r++, p++) {
+                        int i = zeroZ + strideZ * rowPermutation[p];
+                        if (betaZ == 0) {
+                            elementsZ[i] = alpha * sum[r];
+                        } else {
+                            elementsZ[i] = alpha * sum[r] + betaZ * elementsZ[i];
+                        }
+                    }
+                }
+            }
+        });
+        return z;
+    }
+
+    protected DoubleMatrix2D getContent() {
+        return this;
+    }
+
+    /*
+     * z = alpha * A' * y + beta * z. Each range of slices scatters into a
+     * private buffer, the buffers are added up at the end.
+     */
+    private void zMultTranspose(final double[] elementsY, double[] elementsZ, int zeroZ, int strideZ,
+            final double alpha, double beta) {
+        final int C = sliceHeight;
+        final int[] bounds = partition();
+        final int parts = bounds.length - 1;
+        final double[][] buffers = new double[parts][columns];
+        RangeProcedure procedure = new RangeProcedure() {
+            public void apply(int first, int last) {
+                double[] ys = new double[C];
+                for (int t = first; t < last; t++) {
+                    double[] buffer = buffers[t];
+                    for (int s = bounds[t]; s < bounds[t + 1]; s++) {
+                        for (int r = 0, p = s * C; r < C; r++, p++) {
+                            ys[r] = (p < rows) ? alpha * elementsY[rowPermutation[p]] : 0;
+                        }
+                        int start = slicePointers[s];
+                        int full = fullWidth(s);
+                        for (int k = 0, idx = start; k < full; k++, idx += C) {
+                            for (int r = 0; r < C; r++) {
+                                buffer[columnIndexes[idx + r]] += values[idx + r] * ys[r];
+                            }
+                        }
+                        for (int r = 0, p = s * C; r < C && p < rows; r++, p++) {
+                            for (int k = full, idx = start + full * C + r; k < rowLengths[p]; k++, idx += C) {
+                                buffer[columnIndexes[idx]] += values[idx] * ys[r];
+                            }
+                        }
+                    }
+                }
+            }
+        };
+        if (parts > 1) {
+            ConcurrencyUtils.parallelFor(0, parts, 1, procedure);
+        } else {
+            procedure.apply(0, parts);
+        }
+        for (int j = 0, idx = zeroZ; j < columns; j++, idx += strideZ) {
+            double s = 0;
+            for (int t = 0; t < parts; t++) {
+                s += buffers[t][j];
+            }
+            if (beta == 0) {
+                elementsZ[idx] = s;
+            } else {
+                elementsZ[idx] = s + beta * elementsZ[idx];
+            }
+        }
+    }
+
+    /*
+     * Returns the number of columns of slice s in which every row has a
+     * stored cell, i.e. that hold no padding.
+     */
+    private int fullWidth(int s) {
+        final int C = sliceHeight;
+        int full = (slicePointers[s + 1] - slicePointers[s]) / C;
+        for (int r = 0, p = s * C; r < C; r++, p++) {
+            full = Math.min(full, (p < rows) ? rowLengths[p] : 0);
+        }
+        return full;
+    }
+
+    /*
+     * Returns the position of the cell (p, column) of the sorted row p, or -1.
+     */
+    private int find(int p, int column) {
+        final int C = sliceHeight;
+        int idx = slicePointers[p / C] + p % C;
+        for (int k = 0; k < rowLengths[p]; k++, idx += C) {
+            if (columnIndexes[idx] == column) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Appends a column of padding cells to slice s.
+     */
+    private void widenSlice(int s) {
+        final int C = sliceHeight;
+        int n = slicePointers[slices];
+        if (n + C > columnIndexes.length) {
+            int capacity = Math.max(n + C, n + (n >> 1));
+            columnIndexes = Arrays.copyOf(columnIndexes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        int end = slicePointers[s + 1];
+        System.arraycopy(columnIndexes, end, columnIndexes, end + C, n - end);
+        System.arraycopy(values, end, values, end + C, n - end);
+        Arrays.fill(columnIndexes, end, end + C, 0);
+        Arrays.fill(values, end, end + C, 0);
+        for (int t = s + 1; t <= slices; t++) {
+            slicePointers[t] += C;
+        }
+    }
+
+    /*
+     * Splits the slices into ranges with about the same number of stored
+     * cells, one range if the product is not parallel.
+     */
+    private int[] partition() {
+        int n = slicePointers[slices];
+        int parts = 1;
+        if (ConcurrencyUtils.getNumberOfThreads() > 1
+                && n >= ConcurrencyUtils.getThreadsBeginN_2D("SparseSELLDoubleMatrix2D.zMult")) {
+            parts = Math.min(ConcurrencyUtils.getNumberOfParts(slices), slices);
+        }
+        int[] bounds = new int[Math.max(parts, 1) + 1];
+        bounds[bounds.length - 1] = slices;
+        for (int t = 1, s = 0; t < bounds.length - 1; t++) {
+            long target = (long) n * t / parts;
+            while (s < slices && slicePointers[s] < target) {
+                s++;
+            }
+            bounds[t] = s;
+        }
+        return bounds;
+    }
+
+    private void run(final RangeProcedure procedure) {
+        final int[] bounds = partition();
+        if (bounds.length > 2) {
+            ConcurrencyUtils.parallelFor(0, bounds.length - 1, 1, new RangeProcedure() {
+                public void apply(int first, int last) {
+                    for (int t = first; t < last; t++) {
+                        procedure.apply(bounds[t], bounds[t + 1]);
+                    }
+                }
+            });
+        } else {
+            procedure.apply(0, slices);
+        }
+    }
+}
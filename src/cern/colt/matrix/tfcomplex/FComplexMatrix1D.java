@@ -610,9 +610,9 @@ public abstract class FComplexMatrix1D extends AbstractMatrix1D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             float[] tmp = new float[2];
@@ -1244,9 +1244,9 @@ public abstract class FComplexMatrix1D extends AbstractMatrix1D {
                     sum = FComplex.plus(sum, results[j]);
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             float[] tmp;
@@ -1346,9 +1346,9 @@ public abstract class FComplexMatrix1D extends AbstractMatrix1D {
                     sum[1] += results[j][1];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             for (int k = 0; k < size; k++) {
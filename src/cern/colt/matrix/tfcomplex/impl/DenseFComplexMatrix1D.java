@@ -14,6 +14,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tfcomplex.FComplexMatrix1D;
 import cern.colt.matrix.tfcomplex.FComplexMatrix2D;
 import cern.colt.matrix.tfcomplex.FComplexMatrix3D;
@@ -22,6 +23,7 @@ import cern.colt.matrix.tfloat.impl.DenseFloatMatrix1D;
 import cern.jet.math.tfcomplex.FComplex;
 import cern.jet.math.tfcomplex.FComplexFunctions;
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -39,8 +41,6 @@ public class DenseFComplexMatrix1D extends FComplexMatrix1D {
 
     private static final long serialVersionUID = 1L;
 
-    private FloatFFT_1D fft;
-
     /**
      * The elements of this matrix. Complex data is represented by 2 float
      * values in sequence, i.e. elements[zero + 2 * k * stride] constitute real
@@ -839,19 +839,20 @@ public class DenseFComplexMatrix1D extends FComplexMatrix1D {
      * number.
      */
     public void fft() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft == null) {
-            fft = new FloatFFT_1D(size);
-        }
-        if (isNoView) {
-            fft.complexForward(elements);
-        } else {
-            FComplexMatrix1D copy = this.copy();
-            fft.complexForward((float[]) copy.elements());
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_1D fft = TransformPlans.acquire(FloatFFT_1D.class, size);
+            if (isNoView) {
+                fft.complexForward(elements);
+            } else {
+                FComplexMatrix1D copy = this.copy();
+                fft.complexForward((float[]) copy.elements());
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(fft, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public float[] elements() {
@@ -966,19 +967,20 @@ public class DenseFComplexMatrix1D extends FComplexMatrix1D {
      *            if true, then scaling is performed.
      */
     public void ifft(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft == null) {
-            fft = new FloatFFT_1D(size);
-        }
-        if (isNoView) {
-            fft.complexInverse(elements, scale);
-        } else {
-            FComplexMatrix1D copy = this.copy();
-            fft.complexInverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_1D fft = TransformPlans.acquire(FloatFFT_1D.class, size);
+            if (isNoView) {
+                fft.complexInverse(elements, scale);
+            } else {
+                FComplexMatrix1D copy = this.copy();
+                fft.complexInverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(fft, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public FComplexMatrix1D like(int size) {
@@ -1230,9 +1232,9 @@ public class DenseFComplexMatrix1D extends FComplexMatrix1D {
                     sum = FComplex.plus(sum, results[j]);
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -1283,9 +1285,9 @@ public class DenseFComplexMatrix1D extends FComplexMatrix1D {
                     sum[1] = sum[1] + results[j][1];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -14,12 +14,14 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tfcomplex.FComplexMatrix1D;
 import cern.colt.matrix.tfcomplex.FComplexMatrix2D;
 import cern.colt.matrix.tfcomplex.FComplexMatrix3D;
 import cern.colt.matrix.tfloat.FloatMatrix3D;
 import cern.colt.matrix.tfloat.impl.DenseFloatMatrix3D;
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_3D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -64,8 +66,6 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
 public class DenseFComplexMatrix3D extends FComplexMatrix3D {
     private static final long serialVersionUID = 1L;
 
-    private FloatFFT_3D fft3;
-
     /**
      * The elements of this matrix. elements are stored in slice major, then row
      * major, then column major, in order of significance. Complex data is
@@ -1202,9 +1202,9 @@ public class DenseFComplexMatrix3D extends FComplexMatrix3D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx;
@@ -1228,32 +1228,35 @@ public class DenseFComplexMatrix3D extends FComplexMatrix3D {
      * matrix.
      */
     public void fft2Slices() {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseFComplexMatrix2D) viewSlice(s)).fft2();
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseFComplexMatrix2D) viewSlice(s)).fft2();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseFComplexMatrix2D) viewSlice(s)).fft2();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseFComplexMatrix2D) viewSlice(s)).fft2();
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1261,19 +1264,20 @@ public class DenseFComplexMatrix3D extends FComplexMatrix3D {
      * Computes the 3D discrete Fourier transform (DFT) of this matrix.
      */
     public void fft3() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft3 == null) {
-            fft3 = new FloatFFT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            fft3.complexForward(elements);
-        } else {
-            FComplexMatrix3D copy = this.copy();
-            fft3.complexForward((float[]) copy.elements());
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_3D fft3 = TransformPlans.acquire(FloatFFT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                fft3.complexForward(elements);
+            } else {
+                FComplexMatrix3D copy = this.copy();
+                fft3.complexForward((float[]) copy.elements());
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(fft3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public float[] elements() {
@@ -1428,32 +1432,35 @@ public class DenseFComplexMatrix3D extends FComplexMatrix3D {
      *            if true then scaling is performed
      */
     public void ifft2Slices(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseFComplexMatrix2D) viewSlice(s)).ifft2(scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseFComplexMatrix2D) viewSlice(s)).ifft2(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseFComplexMatrix2D) viewSlice(s)).ifft2(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseFComplexMatrix2D) viewSlice(s)).ifft2(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1465,19 +1472,20 @@ public class DenseFComplexMatrix3D extends FComplexMatrix3D {
      *            if true then scaling is performed
      */
     public void ifft3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft3 == null) {
-            fft3 = new FloatFFT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            fft3.complexInverse(elements, scale);
-        } else {
-            FComplexMatrix3D copy = this.copy();
-            fft3.complexInverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_3D fft3 = TransformPlans.acquire(FloatFFT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                fft3.complexInverse(elements, scale);
+            } else {
+                FComplexMatrix3D copy = this.copy();
+                fft3.complexInverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(fft3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public FComplexMatrix3D like(int slices, int rows, int columns) {
@@ -1596,9 +1604,9 @@ public class DenseFComplexMatrix3D extends FComplexMatrix3D {
                     sum[1] += tmp[1];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx;
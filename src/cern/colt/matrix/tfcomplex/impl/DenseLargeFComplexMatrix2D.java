@@ -10,10 +10,12 @@ package cern.colt.matrix.tfcomplex.impl;
 
 import java.util.concurrent.Future;
 
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tfcomplex.FComplexMatrix1D;
 import cern.colt.matrix.tfcomplex.FComplexMatrix2D;
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -35,12 +37,6 @@ public class DenseLargeFComplexMatrix2D extends WrapperFComplexMatrix2D {
 
     private float[][] elements;
 
-    private FloatFFT_2D fft2;
-
-    private FloatFFT_1D fftRows;
-
-    private FloatFFT_1D fftColumns;
-
     public DenseLargeFComplexMatrix2D(int rows, int columns) {
         super(null);
         try {
@@ -58,13 +54,14 @@ public class DenseLargeFComplexMatrix2D extends WrapperFComplexMatrix2D {
      */
 
     public void fft2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new FloatFFT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_2D fft2 = TransformPlans.acquire(FloatFFT_2D.class, rows, columns);
+            fft2.complexForward(elements);
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        fft2.complexForward(elements);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -73,39 +70,41 @@ public class DenseLargeFComplexMatrix2D extends WrapperFComplexMatrix2D {
      */
 
     public void fftColumns() {
-        if (fftColumns == null) {
-            fftColumns = new FloatFFT_1D(rows);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            float[] column = (float[]) viewColumn(c).copy().elements();
-                            fftColumns.complexForward(column);
-                            viewColumn(c).assign(column);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_1D fftColumns = TransformPlans.acquire(FloatFFT_1D.class, rows);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                float[] column = (float[]) viewColumn(c).copy().elements();
+                                fftColumns.complexForward(column);
+                                viewColumn(c).assign(column);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                float[] column = (float[]) viewColumn(c).copy().elements();
-                fftColumns.complexForward(column);
-                viewColumn(c).assign(column);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    float[] column = (float[]) viewColumn(c).copy().elements();
+                    fftColumns.complexForward(column);
+                    viewColumn(c).assign(column);
+                }
             }
+            TransformPlans.release(fftColumns, rows);
+        } finally {
+            context.close();
         }
     }
 
@@ -114,34 +113,37 @@ public class DenseLargeFComplexMatrix2D extends WrapperFComplexMatrix2D {
      */
 
     public void fftRows() {
-        if (fftRows == null) {
-            fftRows = new FloatFFT_1D(columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            fftRows.complexForward(elements[r]);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_1D fftRows = TransformPlans.acquire(FloatFFT_1D.class, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                fftRows.complexForward(elements[r]);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                fftRows.complexForward(elements[r]);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    fftRows.complexForward(elements[r]);
+                }
             }
+            TransformPlans.release(fftRows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -155,13 +157,14 @@ public class DenseLargeFComplexMatrix2D extends WrapperFComplexMatrix2D {
      */
 
     public void ifft2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new FloatFFT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_2D fft2 = TransformPlans.acquire(FloatFFT_2D.class, rows, columns);
+            fft2.complexInverse(elements, scale);
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        fft2.complexInverse(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -173,39 +176,42 @@ public class DenseLargeFComplexMatrix2D extends WrapperFComplexMatrix2D {
      */
 
     public void ifftColumns(final boolean scale) {
-        if (fftColumns == null) {
-            fftColumns = new FloatFFT_1D(rows);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            float[] column = (float[]) viewColumn(c).copy().elements();
-                            fftColumns.complexInverse(column, scale);
-                            viewColumn(c).assign(column);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_1D fftColumns = TransformPlans.acquire(FloatFFT_1D.class, rows);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                float[] column = (float[]) viewColumn(c).copy().elements();
+                                fftColumns.complexInverse(column, scale);
+                                viewColumn(c).assign(column);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-
-            for (int c = 0; c < columns; c++) {
-                float[] column = (float[]) viewColumn(c).copy().elements();
-                fftColumns.complexInverse(column, scale);
-                viewColumn(c).assign(column);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+
+                for (int c = 0; c < columns; c++) {
+                    float[] column = (float[]) viewColumn(c).copy().elements();
+                    fftColumns.complexInverse(column, scale);
+                    viewColumn(c).assign(column);
+                }
             }
+            TransformPlans.release(fftColumns, rows);
+        } finally {
+            context.close();
         }
     }
 
@@ -218,34 +224,37 @@ public class DenseLargeFComplexMatrix2D extends WrapperFComplexMatrix2D {
      */
 
     public void ifftRows(final boolean scale) {
-        if (fftRows == null) {
-            fftRows = new FloatFFT_1D(columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            fftRows.complexInverse(elements[r], scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_1D fftRows = TransformPlans.acquire(FloatFFT_1D.class, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                fftRows.complexInverse(elements[r], scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                fftRows.complexInverse(elements[r], scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    fftRows.complexInverse(elements[r], scale);
+                }
             }
+            TransformPlans.release(fftRows, columns);
+        } finally {
+            context.close();
         }
     }
 
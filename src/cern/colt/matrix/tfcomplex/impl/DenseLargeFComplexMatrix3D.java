@@ -10,9 +10,11 @@ package cern.colt.matrix.tfcomplex.impl;
 
 import java.util.concurrent.Future;
 
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tfcomplex.FComplexMatrix3D;
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_3D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -35,10 +37,6 @@ public class DenseLargeFComplexMatrix3D extends WrapperFComplexMatrix3D {
 
     private float[][][] elements;
 
-    private FloatFFT_3D fft3;
-
-    private FloatFFT_2D fft2Slices;
-
     public DenseLargeFComplexMatrix3D(int slices, int rows, int columns) {
         super(null);
         try {
@@ -70,37 +68,38 @@ public class DenseLargeFComplexMatrix3D extends WrapperFComplexMatrix3D {
      */
 
     public void fft2Slices() {
-        if (fft2Slices == null) {
-            fft2Slices = new FloatFFT_2D(rows, columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            fft2Slices.complexForward(elements[s]);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_2D fft2Slices = TransformPlans.acquire(FloatFFT_2D.class, rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                fft2Slices.complexForward(elements[s]);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-
-        } else {
-            for (int s = 0; s < slices; s++) {
-                fft2Slices.complexForward(elements[s]);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    fft2Slices.complexForward(elements[s]);
+                }
             }
+            TransformPlans.release(fft2Slices, rows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -109,13 +108,14 @@ public class DenseLargeFComplexMatrix3D extends WrapperFComplexMatrix3D {
      */
 
     public void fft3() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft3 == null) {
-            fft3 = new FloatFFT_3D(slices, rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_3D fft3 = TransformPlans.acquire(FloatFFT_3D.class, slices, rows, columns);
+            fft3.complexForward(elements);
+            TransformPlans.release(fft3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        fft3.complexForward(elements);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -127,37 +127,38 @@ public class DenseLargeFComplexMatrix3D extends WrapperFComplexMatrix3D {
      */
 
     public void ifft2Slices(final boolean scale) {
-        if (fft2Slices == null) {
-            fft2Slices = new FloatFFT_2D(rows, columns);
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            ConcurrencyUtils.setThreadsBeginN_2D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            fft2Slices.complexInverse(elements[s], scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_2D fft2Slices = TransformPlans.acquire(FloatFFT_2D.class, rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                context.setThreadsBeginN_2D(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                fft2Slices.complexInverse(elements[s], scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-
-        } else {
-            for (int s = 0; s < slices; s++) {
-                fft2Slices.complexInverse(elements[s], scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    fft2Slices.complexInverse(elements[s], scale);
+                }
             }
+            TransformPlans.release(fft2Slices, rows, columns);
+        } finally {
+            context.close();
         }
     }
 
@@ -170,13 +171,14 @@ public class DenseLargeFComplexMatrix3D extends WrapperFComplexMatrix3D {
      */
 
     public void ifft3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft3 == null) {
-            fft3 = new FloatFFT_3D(slices, rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_3D fft3 = TransformPlans.acquire(FloatFFT_3D.class, slices, rows, columns);
+            fft3.complexInverse(elements, scale);
+            TransformPlans.release(fft3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        fft3.complexInverse(elements, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public float[][][] elements() {
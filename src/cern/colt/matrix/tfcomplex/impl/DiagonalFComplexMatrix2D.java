@@ -413,9 +413,9 @@ public class DiagonalFComplexMatrix2D extends WrapperFComplexMatrix2D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             for (int i = 0; i < dlength; i++) {
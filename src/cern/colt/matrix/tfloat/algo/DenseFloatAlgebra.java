@@ -35,6 +35,7 @@ import cern.colt.matrix.tint.impl.DenseIntMatrix1D;
 import cern.colt.matrix.tint.impl.DenseIntMatrix2D;
 import cern.jet.math.tfloat.FloatFunctions;
 import cern.jet.math.tint.IntFunctions;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -215,23 +216,27 @@ public class DenseFloatAlgebra extends cern.colt.PersistentObject {
         final FloatMatrix1D C = new DenseFloatMatrix1D(size_x * size_y);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (size_x >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, size_x);
-            Future<?>[] futures = new Future[nthreads];
-            int k = size_x / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? size_x : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int i = firstIdx; i < lastIdx; i++) {
-                            C.viewPart(i * size_y, size_y).assign(y, FloatFunctions.multSecond(x.getQuick(i)));
+            ConcurrencyContext context = ConcurrencyUtils.openContext();
+            try {
+                context.setThreadsBeginN_1D(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, size_x);
+                Future<?>[] futures = new Future[nthreads];
+                int k = size_x / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstIdx = j * k;
+                    final int lastIdx = (j == nthreads - 1) ? size_x : firstIdx + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int i = firstIdx; i < lastIdx; i++) {
+                                C.viewPart(i * size_y, size_y).assign(y, FloatFunctions.multSecond(x.getQuick(i)));
+                            }
                         }
-                    }
-                });
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } finally {
+                context.close();
             }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
         } else {
             for (int i = 0; i < size_x; i++) {
                 C.viewPart(i * size_y, size_y).assign(y, FloatFunctions.multSecond(x.getQuick(i)));
@@ -256,26 +261,30 @@ public class DenseFloatAlgebra extends cern.colt.PersistentObject {
             final FloatMatrix2D C = new DenseFloatMatrix2D(rows_x * rows_y, columns_x * columns_y);
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
             if ((nthreads > 1) && (X.size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-                ConcurrencyUtils.setThreadsBeginN_1D(Integer.MAX_VALUE);
-                nthreads = Math.min(nthreads, rows_x);
-                Future<?>[] futures = new Future[nthreads];
-                int k = rows_x / nthreads;
-                for (int j = 0; j < nthreads; j++) {
-                    final int firstRow = j * k;
-                    final int lastRow = (j == nthreads - 1) ? rows_x : firstRow + k;
-                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                        public void run() {
-                            for (int r = firstRow; r < lastRow; r++) {
-                                for (int c = 0; c < columns_x; c++) {
-                                    C.viewPart(r * rows_y, c * columns_y, rows_y, columns_y).assign(Y,
-                                            FloatFunctions.multSecond(X.getQuick(r, c)));
+                ConcurrencyContext context = ConcurrencyUtils.openContext();
+                try {
+                    context.setThreadsBeginN_1D(Integer.MAX_VALUE);
+                    nthreads = Math.min(nthreads, rows_x);
+                    Future<?>[] futures = new Future[nthreads];
+                    int k = rows_x / nthreads;
+                    for (int j = 0; j < nthreads; j++) {
+                        final int firstRow = j * k;
+                        final int lastRow = (j == nthreads - 1) ? rows_x : firstRow + k;
+                        futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                            public void run() {
+                                for (int r = firstRow; r < lastRow; r++) {
+                                    for (int c = 0; c < columns_x; c++) {
+                                        C.viewPart(r * rows_y, c * columns_y, rows_y, columns_y).assign(Y,
+                                                FloatFunctions.multSecond(X.getQuick(r, c)));
+                                    }
                                 }
                             }
-                        }
-                    });
+                        });
+                    }
+                    ConcurrencyUtils.waitForCompletion(futures);
+                } finally {
+                    context.close();
                 }
-                ConcurrencyUtils.waitForCompletion(futures);
-                ConcurrencyUtils.resetThreadsBeginN();
             } else {
                 for (int r = 0; r < rows_x; r++) {
                     for (int c = 0; c < columns_x; c++) {
@@ -414,24 +423,27 @@ public class DenseFloatAlgebra extends cern.colt.PersistentObject {
 
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (rows >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            AA.viewRow(r).assign(y);
+            ConcurrencyContext context = ConcurrencyUtils.openContext();
+            try {
+                context.setThreadsBeginN_1D(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                AA.viewRow(r).assign(y);
+                            }
                         }
-                    }
-                });
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } finally {
+                context.close();
             }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
         } else {
             for (int r = rows; --r >= 0;) {
                 AA.viewRow(r).assign(y);
@@ -439,24 +451,27 @@ public class DenseFloatAlgebra extends cern.colt.PersistentObject {
         }
 
         if ((nthreads > 1) && (columns >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            AA.viewColumn(c).assign(x, FloatFunctions.mult);
+            ConcurrencyContext context = ConcurrencyUtils.openContext();
+            try {
+                context.setThreadsBeginN_1D(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                AA.viewColumn(c).assign(x, FloatFunctions.mult);
+                            }
                         }
-                    }
-                });
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } finally {
+                context.close();
             }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN();
         } else {
             for (int c = columns; --c >= 0;) {
                 AA.viewColumn(c).assign(x, FloatFunctions.mult);
@@ -505,8 +520,9 @@ public class DenseFloatAlgebra extends cern.colt.PersistentObject {
             final int columns = X.columns();
             float sum = 0;
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
-            if ((nthreads > 1) && (rows * columns >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-                nthreads = Math.min(nthreads, rows);
+            if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                    && (rows * columns >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = ConcurrencyUtils.getNumberOfParts(rows);
                 Future<?>[] futures = new Future[nthreads];
                 Float result;
                 int k = rows / nthreads;
@@ -533,9 +549,9 @@ public class DenseFloatAlgebra extends cern.colt.PersistentObject {
                         sum += result;
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 float elem;
@@ -551,8 +567,9 @@ public class DenseFloatAlgebra extends cern.colt.PersistentObject {
             final float[] elems = ((DenseFloatMatrix2D) X).elements();
             float sum = 0;
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
-            if ((nthreads > 1) && (elems.length >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-                nthreads = Math.min(nthreads, elems.length);
+            if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                    && (elems.length >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = ConcurrencyUtils.getNumberOfParts(elems.length);
                 Future<?>[] futures = new Future[nthreads];
                 Float result;
                 int k = elems.length / nthreads;
@@ -575,9 +592,9 @@ public class DenseFloatAlgebra extends cern.colt.PersistentObject {
                         sum += result;
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 for (int l = 0; l < elems.length; l++) {
@@ -600,8 +617,9 @@ public class DenseFloatAlgebra extends cern.colt.PersistentObject {
             final int columns = X.columns();
             float sum = 0;
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
-            if ((nthreads > 1) && (rows * columns >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-                nthreads = Math.min(nthreads, slices);
+            if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                    && (rows * columns >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = ConcurrencyUtils.getNumberOfParts(slices);
                 Future<?>[] futures = new Future[nthreads];
                 Float result;
                 int k = slices / nthreads;
@@ -630,9 +648,9 @@ public class DenseFloatAlgebra extends cern.colt.PersistentObject {
                         sum += result;
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 float elem;
@@ -650,8 +668,9 @@ public class DenseFloatAlgebra extends cern.colt.PersistentObject {
             final float[] elems = ((DenseFloatMatrix3D) X).elements();
             float sum = 0;
             int nthreads = ConcurrencyUtils.getNumberOfThreads();
-            if ((nthreads > 1) && (elems.length >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-                nthreads = Math.min(nthreads, elems.length);
+            if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                    && (elems.length >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = ConcurrencyUtils.getNumberOfParts(elems.length);
                 Future<?>[] futures = new Future[nthreads];
                 Float result;
                 int k = elems.length / nthreads;
@@ -674,9 +693,9 @@ public class DenseFloatAlgebra extends cern.colt.PersistentObject {
                         sum += result;
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 for (int l = 0; l < elems.length; l++) {
@@ -8,12 +8,11 @@ It is provided "as is" without expressed or implied warranty.
  */
 package cern.colt.matrix.tfloat.algo;
 
-import java.util.concurrent.Future;
-
 import cern.colt.matrix.tfloat.FloatMatrix1D;
 import cern.colt.matrix.tfloat.FloatMatrix2D;
 import cern.jet.math.tfloat.FloatFunctions;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
 
 /**
  * Parallel implementation of the Basic Linear Algebra System for symmetric
@@ -175,29 +174,22 @@ public class SmpFloatBlas implements FloatBlas {
         final FloatMatrix1D tmp = x.like();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, size);
-            Future<?>[] futures = new Future[nthreads];
-            int k = size / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int i = firstIdx; i < lastIdx; i++) {
-                            float sum = 0;
-                            for (int j = 0; j <= i; j++) {
-                                sum += A_loc.getQuick(i, j) * x.getQuick(j);
-                            }
-                            for (int j = i + 1; j < lastIdx; j++) {
-                                sum += A_loc.getQuick(j, i) * x.getQuick(j);
-                            }
-                            tmp.setQuick(i, alpha * sum + beta * y.getQuick(i));
+            // rows have different lengths, fork/join balances the load
+            final int size_loc = size;
+            ConcurrencyUtils.parallelFor(0, size, ConcurrencyUtils.getGrainSize(size, 16), new RangeProcedure() {
+                public void apply(int firstIdx, int lastIdx) {
+                    for (int i = firstIdx; i < lastIdx; i++) {
+                        float sum = 0;
+                        for (int j = 0; j <= i; j++) {
+                            sum += A_loc.getQuick(i, j) * x.getQuick(j);
+                        }
+                        for (int j = i + 1; j < size_loc; j++) {
+                            sum += A_loc.getQuick(j, i) * x.getQuick(j);
                         }
+                        tmp.setQuick(i, alpha * sum + beta * y.getQuick(i));
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
+                }
+            });
         } else {
             for (int i = 0; i < size; i++) {
                 float sum = 0;
@@ -242,34 +234,27 @@ public class SmpFloatBlas implements FloatBlas {
         }
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, size);
-            Future<?>[] futures = new Future[nthreads];
-            int k = size / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstIdx = j * k;
-                final int lastIdx = (j == nthreads - 1) ? size : firstIdx + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        for (int i = firstIdx; i < lastIdx; i++) {
-                            float sum = 0;
-                            if (!isUpperTriangular_loc) {
-                                for (int j = 0; j < i; j++) {
-                                    sum += A_loc.getQuick(i, j) * x.getQuick(j);
-                                }
-                                sum += y.getQuick(i) * x.getQuick(i);
-                            } else {
-                                sum += y.getQuick(i) * x.getQuick(i);
-                                for (int j = i + 1; j < lastIdx; j++) {
-                                    sum += A_loc.getQuick(i, j) * x.getQuick(j);
-                                }
+            // rows have different lengths, fork/join balances the load
+            final int size_loc = size;
+            ConcurrencyUtils.parallelFor(0, size, ConcurrencyUtils.getGrainSize(size, 16), new RangeProcedure() {
+                public void apply(int firstIdx, int lastIdx) {
+                    for (int i = firstIdx; i < lastIdx; i++) {
+                        float sum = 0;
+                        if (!isUpperTriangular_loc) {
+                            for (int j = 0; j < i; j++) {
+                                sum += A_loc.getQuick(i, j) * x.getQuick(j);
+                            }
+                            sum += y.getQuick(i) * x.getQuick(i);
+                        } else {
+                            sum += y.getQuick(i) * x.getQuick(i);
+                            for (int j = i + 1; j < size_loc; j++) {
+                                sum += A_loc.getQuick(i, j) * x.getQuick(j);
                             }
-                            b.setQuick(i, sum);
                         }
+                        b.setQuick(i, sum);
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
+                }
+            });
         } else {
             for (int i = 0; i < size; i++) {
                 float sum = 0;
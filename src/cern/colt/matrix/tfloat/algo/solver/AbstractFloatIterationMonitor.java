@@ -23,6 +23,7 @@ package cern.colt.matrix.tfloat.algo.solver;
 import cern.colt.matrix.Norm;
 import cern.colt.matrix.tfloat.FloatMatrix1D;
 import cern.colt.matrix.tfloat.algo.DenseFloatAlgebra;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
  * Partial implementation of an iteration reporter
@@ -67,6 +68,7 @@ public abstract class AbstractFloatIterationMonitor implements FloatIterationMon
     }
 
     public void next() {
+        ConcurrencyUtils.checkCancelled();
         iter++;
     }
 
@@ -20,6 +20,7 @@ import cern.colt.function.tfloat.FloatFunction;
 import cern.colt.function.tfloat.FloatProcedure;
 import cern.colt.list.tfloat.FloatArrayList;
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.Transpose;
 import cern.colt.matrix.io.MatrixInfo;
 import cern.colt.matrix.io.MatrixSize;
@@ -32,6 +33,7 @@ import edu.emory.mathcs.jtransforms.dct.FloatDCT_2D;
 import edu.emory.mathcs.jtransforms.dht.FloatDHT_2D;
 import edu.emory.mathcs.jtransforms.dst.FloatDST_2D;
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -79,14 +81,6 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
 public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
     static final long serialVersionUID = 1020177651L;
 
-    private FloatFFT_2D fft2;
-
-    private FloatDCT_2D dct2;
-
-    private FloatDST_2D dst2;
-
-    private FloatDHT_2D dht2;
-
     protected float[] elements;
 
     /**
@@ -213,8 +207,8 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
         final int zero = (int) index(0, 0);
         float a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(columns);
             Future<?>[] futures = new Future[nthreads];
             int k = columns / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -257,8 +251,8 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
         final int zero = (int) index(0, 0);
         float a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(columns);
             Future<?>[] futures = new Future[nthreads];
             int k = columns / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -318,8 +312,8 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
         final int[] columnElements = columnList.elements();
         float a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(columns);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -363,8 +357,8 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
         final float[] otherElements = (float[]) other.elements();
         float a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(columns);
             Future<?>[] futures = new Future[nthreads];
             int k = columns / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -1118,9 +1112,9 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
@@ -1145,14 +1139,15 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      */
     public void dct2(boolean scale) {
         FloatMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct2 == null) {
-            dct2 = new FloatDCT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDCT_2D dct2 = TransformPlans.acquire(FloatDCT_2D.class, rows, columns);
+            dct2.forward((float[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(dct2, rows, columns);
+        } finally {
+            context.close();
         }
-        dct2.forward((float[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1164,31 +1159,35 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dctColumns(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            ((DenseFloatMatrix1D) viewColumn(c)).dct(scale);
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                ((DenseFloatMatrix1D) viewColumn(c)).dct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                ((DenseFloatMatrix1D) viewColumn(c)).dct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    ((DenseFloatMatrix1D) viewColumn(c)).dct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1201,35 +1200,36 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dctRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            ((DenseFloatMatrix1D) viewRow(r)).dct(scale);
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                ((DenseFloatMatrix1D) viewRow(r)).dct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseFloatMatrix1D) viewRow(r)).dct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseFloatMatrix1D) viewRow(r)).dct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1238,14 +1238,15 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      */
     public void dht2() {
         FloatMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht2 == null) {
-            dht2 = new FloatDHT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDHT_2D dht2 = TransformPlans.acquire(FloatDHT_2D.class, rows, columns);
+            dht2.forward((float[]) transpose.elements());
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(dht2, rows, columns);
+        } finally {
+            context.close();
         }
-        dht2.forward((float[]) transpose.elements());
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1254,35 +1255,36 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dhtColumns() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            ((DenseFloatMatrix1D) viewColumn(c)).dht();
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                ((DenseFloatMatrix1D) viewColumn(c)).dht();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                ((DenseFloatMatrix1D) viewColumn(c)).dht();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    ((DenseFloatMatrix1D) viewColumn(c)).dht();
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1290,35 +1292,36 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dhtRows() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            ((DenseFloatMatrix1D) viewRow(r)).dht();
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                ((DenseFloatMatrix1D) viewRow(r)).dht();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseFloatMatrix1D) viewRow(r)).dht();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseFloatMatrix1D) viewRow(r)).dht();
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1330,14 +1333,15 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      */
     public void dst2(boolean scale) {
         FloatMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst2 == null) {
-            dst2 = new FloatDST_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDST_2D dst2 = TransformPlans.acquire(FloatDST_2D.class, rows, columns);
+            dst2.forward((float[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(dst2, rows, columns);
+        } finally {
+            context.close();
         }
-        dst2.forward((float[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1349,31 +1353,35 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dstColumns(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            ((DenseFloatMatrix1D) viewColumn(c)).dst(scale);
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                ((DenseFloatMatrix1D) viewColumn(c)).dst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                ((DenseFloatMatrix1D) viewColumn(c)).dst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    ((DenseFloatMatrix1D) viewColumn(c)).dst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1385,35 +1393,36 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dstRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            ((DenseFloatMatrix1D) viewRow(r)).dst(scale);
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                ((DenseFloatMatrix1D) viewRow(r)).dst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseFloatMatrix1D) viewRow(r)).dst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseFloatMatrix1D) viewRow(r)).dst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public float[] elements() {
@@ -1454,14 +1463,15 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      */
     public void fft2() {
         FloatMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new FloatFFT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_2D fft2 = TransformPlans.acquire(FloatFFT_2D.class, rows, columns);
+            fft2.realForward((float[]) transpose.elements());
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        fft2.realForward((float[]) transpose.elements());
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public FloatMatrix2D forEachNonZero(final cern.colt.function.tfloat.IntIntFloatFunction function) {
@@ -1572,59 +1582,60 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public DenseFComplexMatrix2D getFft2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new FloatFFT_2D(rows, columns);
-        }
-        DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
-        final float[] elementsC = (C).elements();
-        final int zero = (int) index(0, 0);
-        final int zeroC = (int) C.index(0, 0);
-        final int rowStrideC = C.rowStride() / 2;
-        final int columnStrideC = 1;
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_2D fft2 = TransformPlans.acquire(FloatFFT_2D.class, rows, columns);
+            DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
+            final float[] elementsC = (C).elements();
+            final int zero = (int) index(0, 0);
+            final int zeroC = (int) C.index(0, 0);
+            final int rowStrideC = C.rowStride() / 2;
+            final int columnStrideC = 1;
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
-                        int idxOther = zeroC + (rows - 1) * rowStrideC + (firstColumn - 1) * columnStrideC;
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
-                                elementsC[j] = elements[i];
-                                i -= rowStride;
-                                j -= rowStrideC;
+                        public void run() {
+                            int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
+                            int idxOther = zeroC + (rows - 1) * rowStrideC + (firstColumn - 1) * columnStrideC;
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
+                                    elementsC[j] = elements[i];
+                                    i -= rowStride;
+                                    j -= rowStrideC;
+                                }
+                                idx -= columnStride;
+                                idxOther -= columnStrideC;
                             }
-                            idx -= columnStride;
-                            idxOther -= columnStrideC;
                         }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
+                int idxOther = zeroC + (rows - 1) * rowStrideC + (columns - 1) * columnStrideC;
+                for (int c = columns; --c >= 0;) {
+                    for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
+                        elementsC[j] = elements[i];
+                        i -= rowStride;
+                        j -= rowStrideC;
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
-            int idxOther = zeroC + (rows - 1) * rowStrideC + (columns - 1) * columnStrideC;
-            for (int c = columns; --c >= 0;) {
-                for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
-                    elementsC[j] = elements[i];
-                    i -= rowStride;
-                    j -= rowStrideC;
+                    idx -= columnStride;
+                    idxOther -= columnStrideC;
                 }
-                idx -= columnStride;
-                idxOther -= columnStrideC;
             }
+            fft2.realForwardFull(elementsC);
+            TransformPlans.release(fft2, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        fft2.realForwardFull(elementsC);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1635,37 +1646,38 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      *         matrix.
      */
     public DenseFComplexMatrix2D getFftColumns() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getFft());
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getFft());
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getFft());
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getFft());
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1675,37 +1687,38 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * @return the discrete Fourier transform (DFT) of each row of this matrix.
      */
     public DenseFComplexMatrix2D getFftRows() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getFft());
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getFft());
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = rows; --r >= 0;) {
-                C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getFft());
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = rows; --r >= 0;) {
+                    C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getFft());
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1716,59 +1729,60 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      *         matrix.
      */
     public FComplexMatrix2D getIfft2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new FloatFFT_2D(rows, columns);
-        }
-        DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
-        final float[] elementsC = (C).elements();
-        final int zero = (int) index(0, 0);
-        final int zeroC = (int) C.index(0, 0);
-        final int rowStrideC = C.rowStride() / 2;
-        final int columnStrideC = 1;
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_2D fft2 = TransformPlans.acquire(FloatFFT_2D.class, rows, columns);
+            DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
+            final float[] elementsC = (C).elements();
+            final int zero = (int) index(0, 0);
+            final int zeroC = (int) C.index(0, 0);
+            final int rowStrideC = C.rowStride() / 2;
+            final int columnStrideC = 1;
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
-                        int idxOther = zeroC + (rows - 1) * rowStrideC + (firstColumn - 1) * columnStrideC;
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
-                                elementsC[j] = elements[i];
-                                i -= rowStride;
-                                j -= rowStrideC;
+                        public void run() {
+                            int idx = zero + (rows - 1) * rowStride + (firstColumn - 1) * columnStride;
+                            int idxOther = zeroC + (rows - 1) * rowStrideC + (firstColumn - 1) * columnStrideC;
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
+                                    elementsC[j] = elements[i];
+                                    i -= rowStride;
+                                    j -= rowStrideC;
+                                }
+                                idx -= columnStride;
+                                idxOther -= columnStrideC;
                             }
-                            idx -= columnStride;
-                            idxOther -= columnStrideC;
                         }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
+                int idxOther = zeroC + (rows - 1) * rowStrideC + (columns - 1) * columnStrideC;
+                for (int c = columns; --c >= 0;) {
+                    for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
+                        elementsC[j] = elements[i];
+                        i -= rowStride;
+                        j -= rowStrideC;
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
-            int idxOther = zeroC + (rows - 1) * rowStrideC + (columns - 1) * columnStrideC;
-            for (int c = columns; --c >= 0;) {
-                for (int i = idx, j = idxOther, r = rows; --r >= 0;) {
-                    elementsC[j] = elements[i];
-                    i -= rowStride;
-                    j -= rowStrideC;
+                    idx -= columnStride;
+                    idxOther -= columnStrideC;
                 }
-                idx -= columnStride;
-                idxOther -= columnStrideC;
             }
+            fft2.realInverseFull(elementsC, scale);
+            TransformPlans.release(fft2, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        fft2.realInverseFull(elementsC, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1779,37 +1793,38 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      *         column of this matrix.
      */
     public FComplexMatrix2D getIfftColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getIfft(scale));
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getIfft(scale));
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getIfft(scale));
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getIfft(scale));
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1820,36 +1835,37 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      *         of this matrix.
      */
     public FComplexMatrix2D getIfftRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getIfft(scale));
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getIfft(scale));
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = rows; --r >= 0;) {
-                C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getIfft(scale));
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = rows; --r >= 0;) {
+                    C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getIfft(scale));
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     public void getNegativeValues(final IntArrayList rowList, final IntArrayList columnList,
@@ -1925,14 +1941,15 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      */
     public void idct2(boolean scale) {
         FloatMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct2 == null) {
-            dct2 = new FloatDCT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDCT_2D dct2 = TransformPlans.acquire(FloatDCT_2D.class, rows, columns);
+            dct2.inverse((float[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(dct2, rows, columns);
+        } finally {
+            context.close();
         }
-        dct2.inverse((float[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1944,31 +1961,35 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idctColumns(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            ((DenseFloatMatrix1D) viewColumn(c)).idct(scale);
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                ((DenseFloatMatrix1D) viewColumn(c)).idct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                ((DenseFloatMatrix1D) viewColumn(c)).idct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    ((DenseFloatMatrix1D) viewColumn(c)).idct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1981,35 +2002,36 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idctRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            ((DenseFloatMatrix1D) viewRow(r)).idct(scale);
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                ((DenseFloatMatrix1D) viewRow(r)).idct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseFloatMatrix1D) viewRow(r)).idct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseFloatMatrix1D) viewRow(r)).idct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2022,14 +2044,15 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      */
     public void idht2(boolean scale) {
         FloatMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht2 == null) {
-            dht2 = new FloatDHT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDHT_2D dht2 = TransformPlans.acquire(FloatDHT_2D.class, rows, columns);
+            dht2.inverse((float[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(dht2, rows, columns);
+        } finally {
+            context.close();
         }
-        dht2.inverse((float[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2041,35 +2064,36 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idhtColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            ((DenseFloatMatrix1D) viewColumn(c)).idht(scale);
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                ((DenseFloatMatrix1D) viewColumn(c)).idht(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                ((DenseFloatMatrix1D) viewColumn(c)).idht(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    ((DenseFloatMatrix1D) viewColumn(c)).idht(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2081,35 +2105,36 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idhtRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            ((DenseFloatMatrix1D) viewRow(r)).idht(scale);
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                ((DenseFloatMatrix1D) viewRow(r)).idht(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseFloatMatrix1D) viewRow(r)).idht(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseFloatMatrix1D) viewRow(r)).idht(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2122,14 +2147,15 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      */
     public void idst2(boolean scale) {
         FloatMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst2 == null) {
-            dst2 = new FloatDST_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDST_2D dst2 = TransformPlans.acquire(FloatDST_2D.class, rows, columns);
+            dst2.inverse((float[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(dst2, rows, columns);
+        } finally {
+            context.close();
         }
-        dst2.inverse((float[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2141,31 +2167,35 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idstColumns(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = columns - j * k;
-                final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = columns - j * k;
+                    final int lastColumn = (j == (nthreads - 1)) ? 0 : firstColumn - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; --c >= lastColumn;) {
-                            ((DenseFloatMatrix1D) viewColumn(c)).idst(scale);
+                        public void run() {
+                            for (int c = firstColumn; --c >= lastColumn;) {
+                                ((DenseFloatMatrix1D) viewColumn(c)).idst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = columns; --c >= 0;) {
-                ((DenseFloatMatrix1D) viewColumn(c)).idst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = columns; --c >= 0;) {
+                    ((DenseFloatMatrix1D) viewColumn(c)).idst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -2178,35 +2208,36 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idstRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = rows - j * k;
-                final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = rows - j * k;
+                    final int lastRow = (j == (nthreads - 1)) ? 0 : firstRow - k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; --r >= lastRow;) {
-                            ((DenseFloatMatrix1D) viewRow(r)).idst(scale);
+                        public void run() {
+                            for (int r = firstRow; --r >= lastRow;) {
+                                ((DenseFloatMatrix1D) viewRow(r)).idst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseFloatMatrix1D) viewRow(r)).idst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseFloatMatrix1D) viewRow(r)).idst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2245,14 +2276,15 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
      */
     public void ifft2(boolean scale) {
         FloatMatrix2D transpose = viewDice().copy();
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new FloatFFT_2D(rows, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_2D fft2 = TransformPlans.acquire(FloatFFT_2D.class, rows, columns);
+            fft2.realInverse((float[]) transpose.elements(), scale);
+            this.assign(transpose.viewDice().copy());
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        fft2.realInverse((float[]) transpose.elements(), scale);
-        this.assign(transpose.viewDice().copy());
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public long index(int row, int column) {
@@ -2319,9 +2351,9 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = elements[zero + (rows - 1) * rowStride + (columns - 1) * columnStride];
@@ -2397,9 +2429,9 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = elements[zero + (rows - 1) * rowStride + (columns - 1) * columnStride];
@@ -2591,8 +2623,8 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
             throw new InternalError();
         final int zero = (int) index(0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, columns);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(columns);
             Future<?>[] futures = new Future[nthreads];
             int k = columns / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -2619,9 +2651,9 @@ public class DenseColumnFloatMatrix2D extends FloatMatrix2D {
                     sum += (Float) futures[j].get();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
@@ -0,0 +1,187 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tfloat.impl;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+import cern.colt.function.tdouble.DoubleDoubleFunction;
+import cern.colt.function.tfloat.FloatFloatFunction;
+import cern.colt.function.tfloat.FloatFunction;
+import cern.jet.math.tdouble.DoubleFunctions;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.DoubleRangeFunction;
+import edu.emory.mathcs.utils.RangeProcedure;
+
+/**
+ * Entry points of the dense <tt>float</tt> matrices into the
+ * {@link FloatSimdKernels} backend. The methods operate on consecutive
+ * elements and are only called for unit stride layouts; they split the work
+ * over the threads of {@link ConcurrencyUtils} if requested.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+final class DenseFloatKernels {
+
+    /*
+     * Minimum length of the ranges of a parallel operation.
+     */
+    private static final int MIN_GRAIN = 4096;
+
+    /**
+     * The SIMD backend, or <tt>null</tt> if none is available.
+     */
+    static final FloatSimdKernels SIMD = loadSimd();
+
+    private DenseFloatKernels() {
+    }
+
+    private static FloatSimdKernels loadSimd() {
+        if ("false".equals(System.getProperty("parallelcolt.simd"))) {
+            return null;
+        }
+        try {
+            Iterator<FloatSimdKernels> it = ServiceLoader.load(FloatSimdKernels.class).iterator();
+            return it.hasNext() ? it.next() : null;
+        } catch (Throwable e) {
+            // the backend is present, but cannot be used (e.g. the
+            // jdk.incubator.vector module was not added)
+            return null;
+        }
+    }
+
+    /**
+     * Computes <tt>a[i] = f(a[i])</tt> for the <tt>n</tt> consecutive elements
+     * starting at <tt>idx</tt> with the SIMD backend.
+     *
+     * @return <tt>false</tt> if there is no backend or it does not support
+     *         <tt>f</tt>, in which case nothing was computed.
+     */
+    static boolean assign(final float[] a, final int idx, int n, final FloatFunction f, boolean parallel) {
+        if (SIMD == null) {
+            return false;
+        }
+        if (!parallel) {
+            return SIMD.assign(a, idx, n, f);
+        }
+        // the first range tells whether f is supported
+        int grain = ConcurrencyUtils.getGrainSize(n, MIN_GRAIN);
+        int probe = Math.min(n, grain);
+        if (!SIMD.assign(a, idx, probe, f)) {
+            return false;
+        }
+        ConcurrencyUtils.parallelFor(probe, n, grain, new RangeProcedure() {
+            public void apply(int first, int last) {
+                SIMD.assign(a, idx + first, last - first, f);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Computes <tt>a[idx + k] = f(a[idx + k], b[bIdx + k])</tt> for
+     * <tt>k = 0, ..., n - 1</tt> with the SIMD backend.
+     *
+     * @return <tt>false</tt> if there is no backend or it does not support
+     *         <tt>f</tt>, in which case nothing was computed.
+     */
+    static boolean assign(final float[] a, final int idx, final float[] b, final int bIdx, int n,
+            final FloatFloatFunction f, boolean parallel) {
+        if (SIMD == null) {
+            return false;
+        }
+        if (!parallel) {
+            return SIMD.assign(a, idx, b, bIdx, n, f);
+        }
+        // the first range tells whether f is supported
+        int grain = ConcurrencyUtils.getGrainSize(n, MIN_GRAIN);
+        int probe = Math.min(n, grain);
+        if (!SIMD.assign(a, idx, b, bIdx, probe, f)) {
+            return false;
+        }
+        ConcurrencyUtils.parallelFor(probe, n, grain, new RangeProcedure() {
+            public void apply(int first, int last) {
+                SIMD.assign(a, idx + first, b, bIdx + first, last - first, f);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Returns whether the reductions of the SIMD backend can be used, i.e.
+     * whether there is a backend and the reproducible mode of
+     * {@link ConcurrencyUtils} is off.
+     */
+    static boolean isReductionSupported() {
+        return SIMD != null && !ConcurrencyUtils.isReproducible();
+    }
+
+    /**
+     * Returns whether <tt>aggregate(a, idx, n, aggr, f, parallel)</tt> can be
+     * used.
+     */
+    static boolean isAggregateSupported(FloatFloatFunction aggr, FloatFunction f) {
+        return isReductionSupported() && SIMD.isAggregateSupported(aggr, f);
+    }
+
+    /**
+     * Aggregates the <tt>n > 0</tt> consecutive elements starting at
+     * <tt>idx</tt> with the SIMD backend; see {@link #isAggregateSupported}.
+     */
+    static float aggregate(final float[] a, final int idx, int n, final FloatFloatFunction aggr,
+            final FloatFunction f, boolean parallel) {
+        if (!parallel) {
+            return SIMD.aggregate(a, idx, n, aggr, f);
+        }
+        return (float) ConcurrencyUtils.parallelReduce(0, n, ConcurrencyUtils.getGrainSize(n, MIN_GRAIN),
+                new DoubleRangeFunction() {
+                    public double apply(int first, int last) {
+                        return SIMD.aggregate(a, idx + first, last - first, aggr, f);
+                    }
+                }, new DoubleDoubleFunction() {
+                    public double apply(double x, double y) {
+                        return aggr.apply((float) x, (float) y);
+                    }
+                });
+    }
+
+    /**
+     * Sums the <tt>n</tt> consecutive elements starting at <tt>idx</tt> with
+     * the SIMD backend, which must be available.
+     */
+    static float zSum(final float[] a, final int idx, int n, boolean parallel) {
+        if (!parallel || n == 0) {
+            return SIMD.zSum(a, idx, n);
+        }
+        return (float) ConcurrencyUtils.parallelReduce(0, n, ConcurrencyUtils.getGrainSize(n, MIN_GRAIN),
+                new DoubleRangeFunction() {
+                    public double apply(int first, int last) {
+                        return SIMD.zSum(a, idx + first, last - first);
+                    }
+                }, DoubleFunctions.plus);
+    }
+
+    /**
+     * Returns the dot product of the <tt>n</tt> consecutive elements starting
+     * at <tt>idx</tt> and <tt>bIdx</tt> computed with the SIMD backend, which
+     * must be available.
+     */
+    static float zDotProduct(final float[] a, final int idx, final float[] b, final int bIdx, int n,
+            boolean parallel) {
+        if (!parallel || n == 0) {
+            return SIMD.zDotProduct(a, idx, b, bIdx, n);
+        }
+        return (float) ConcurrencyUtils.parallelReduce(0, n, ConcurrencyUtils.getGrainSize(n, MIN_GRAIN),
+                new DoubleRangeFunction() {
+                    public double apply(int first, int last) {
+                        return SIMD.zDotProduct(a, idx + first, b, bIdx + first, last - first);
+                    }
+                }, DoubleFunctions.plus);
+    }
+}
@@ -14,6 +14,7 @@ import java.util.concurrent.Future;
 
 import cern.colt.list.tfloat.FloatArrayList;
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tfcomplex.impl.DenseFComplexMatrix1D;
 import cern.colt.matrix.tfloat.FloatMatrix1D;
 import cern.colt.matrix.tfloat.FloatMatrix2D;
@@ -22,6 +23,7 @@ import edu.emory.mathcs.jtransforms.dct.FloatDCT_1D;
 import edu.emory.mathcs.jtransforms.dht.FloatDHT_1D;
 import edu.emory.mathcs.jtransforms.dst.FloatDST_1D;
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -49,14 +51,6 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
 public class DenseFloatMatrix1D extends FloatMatrix1D {
     private static final long serialVersionUID = 1L;
 
-    private FloatFFT_1D fft;
-
-    private FloatDCT_1D dct;
-
-    private FloatDST_1D dst;
-
-    private FloatDHT_1D dht;
-
     /**
      * The elements of this matrix.
      */
@@ -118,8 +112,14 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
             return Float.NaN;
         float a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, size);
+        if (stride == 1 && DenseFloatKernels.isAggregateSupported(aggr, f)) {
+            boolean parallel = (nthreads > 1)
+                    && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseFloatMatrix1D.aggregate"));
+            return DenseFloatKernels.aggregate(elements, zero, size, aggr, f, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseFloatMatrix1D.aggregate"))) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(size);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -155,8 +155,9 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
         final int[] indexElements = indexList.elements();
         float a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, size);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseFloatMatrix1D.aggregate"))) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(size);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -204,8 +205,9 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
         final float[] elementsOther = (float[]) other.elements();
         float a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, size);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseFloatMatrix1D.aggregate"))) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(size);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -251,7 +253,13 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
             multiplicator = 0;
         }
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+        if (stride == 1) {
+            boolean parallel = (nthreads > 1)
+                    && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseFloatMatrix1D.assign"));
+            if (DenseFloatKernels.assign(elements, zero, size, function, parallel))
+                return this;
+        }
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseFloatMatrix1D.assign"))) {
             nthreads = Math.min(nthreads, size);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
@@ -512,7 +520,13 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
         final int strideOther = y.stride();
         final float[] elementsOther = (float[]) y.elements();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+        if (stride == 1 && strideOther == 1) {
+            boolean parallel = (nthreads > 1)
+                    && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseFloatMatrix1D.assign"));
+            if (DenseFloatKernels.assign(elements, zero, elementsOther, zeroOther, size, function, parallel))
+                return this;
+        }
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D("DenseFloatMatrix1D.assign"))) {
             nthreads = Math.min(nthreads, size);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
@@ -700,9 +714,9 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -722,19 +736,20 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
      *            if true then scaling is performed
      */
     public void dct(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct == null) {
-            dct = new FloatDCT_1D(size);
-        }
-        if (isNoView) {
-            dct.forward(elements, scale);
-        } else {
-            FloatMatrix1D copy = this.copy();
-            dct.forward((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDCT_1D dct = TransformPlans.acquire(FloatDCT_1D.class, size);
+            if (isNoView) {
+                dct.forward(elements, scale);
+            } else {
+                FloatMatrix1D copy = this.copy();
+                dct.forward((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dct, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -742,19 +757,20 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
      * 
      */
     public void dht() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht == null) {
-            dht = new FloatDHT_1D(size);
-        }
-        if (isNoView) {
-            dht.forward(elements);
-        } else {
-            FloatMatrix1D copy = this.copy();
-            dht.forward((float[]) copy.elements());
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDHT_1D dht = TransformPlans.acquire(FloatDHT_1D.class, size);
+            if (isNoView) {
+                dht.forward(elements);
+            } else {
+                FloatMatrix1D copy = this.copy();
+                dht.forward((float[]) copy.elements());
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dht, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -764,19 +780,20 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
      *            if true then scaling is performed
      */
     public void dst(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst == null) {
-            dst = new FloatDST_1D(size);
-        }
-        if (isNoView) {
-            dst.forward(elements, scale);
-        } else {
-            FloatMatrix1D copy = this.copy();
-            dst.forward((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDST_1D dst = TransformPlans.acquire(FloatDST_1D.class, size);
+            if (isNoView) {
+                dst.forward(elements, scale);
+            } else {
+                FloatMatrix1D copy = this.copy();
+                dst.forward((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dst, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public float[] elements() {
@@ -800,19 +817,20 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
      * 
      */
     public void fft() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft == null) {
-            fft = new FloatFFT_1D(size);
-        }
-        if (isNoView) {
-            fft.realForward(elements);
-        } else {
-            FloatMatrix1D copy = this.copy();
-            fft.realForward((float[]) copy.elements());
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_1D fft = TransformPlans.acquire(FloatFFT_1D.class, size);
+            if (isNoView) {
+                fft.realForward(elements);
+            } else {
+                FloatMatrix1D copy = this.copy();
+                fft.realForward((float[]) copy.elements());
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(fft, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -822,23 +840,24 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
      * @return the discrete Fourier transform (DFT) of this matrix.
      */
     public DenseFComplexMatrix1D getFft() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final float[] elems;
-        if (isNoView == true) {
-            elems = elements;
-        } else {
-            elems = (float[]) this.copy().elements();
-        }
-        DenseFComplexMatrix1D c = new DenseFComplexMatrix1D(size);
-        final float[] elementsC = (c).elements();
-        System.arraycopy(elems, 0, elementsC, 0, size);
-        if (fft == null) {
-            fft = new FloatFFT_1D(size);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final float[] elems;
+            if (isNoView == true) {
+                elems = elements;
+            } else {
+                elems = (float[]) this.copy().elements();
+            }
+            DenseFComplexMatrix1D c = new DenseFComplexMatrix1D(size);
+            final float[] elementsC = (c).elements();
+            System.arraycopy(elems, 0, elementsC, 0, size);
+            final FloatFFT_1D fft = TransformPlans.acquire(FloatFFT_1D.class, size);
+            fft.realForwardFull(elementsC);
+            TransformPlans.release(fft, size);
+            return c;
+        } finally {
+            context.close();
         }
-        fft.realForwardFull(elementsC);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return c;
     }
 
     /**
@@ -849,23 +868,24 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
      *         matrix.
      */
     public DenseFComplexMatrix1D getIfft(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final float[] elems;
-        if (isNoView == true) {
-            elems = elements;
-        } else {
-            elems = (float[]) this.copy().elements();
-        }
-        DenseFComplexMatrix1D c = new DenseFComplexMatrix1D(size);
-        final float[] elementsC = (c).elements();
-        System.arraycopy(elems, 0, elementsC, 0, size);
-        if (fft == null) {
-            fft = new FloatFFT_1D(size);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final float[] elems;
+            if (isNoView == true) {
+                elems = elements;
+            } else {
+                elems = (float[]) this.copy().elements();
+            }
+            DenseFComplexMatrix1D c = new DenseFComplexMatrix1D(size);
+            final float[] elementsC = (c).elements();
+            System.arraycopy(elems, 0, elementsC, 0, size);
+            final FloatFFT_1D fft = TransformPlans.acquire(FloatFFT_1D.class, size);
+            fft.realInverseFull(elementsC, scale);
+            TransformPlans.release(fft, size);
+            return c;
+        } finally {
+            context.close();
         }
-        fft.realInverseFull(elementsC, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return c;
     }
 
     public void getNonZeros(final IntArrayList indexList, final FloatArrayList valueList) {
@@ -1047,9 +1067,9 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = elements[zero];
@@ -1107,9 +1127,9 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = elements[zero];
@@ -1138,19 +1158,20 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
      *            if true then scaling is performed
      */
     public void idct(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct == null) {
-            dct = new FloatDCT_1D(size);
-        }
-        if (isNoView) {
-            dct.inverse(elements, scale);
-        } else {
-            FloatMatrix1D copy = this.copy();
-            dct.inverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDCT_1D dct = TransformPlans.acquire(FloatDCT_1D.class, size);
+            if (isNoView) {
+                dct.inverse(elements, scale);
+            } else {
+                FloatMatrix1D copy = this.copy();
+                dct.inverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dct, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1161,19 +1182,20 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
      *            if true then scaling is performed
      */
     public void idht(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht == null) {
-            dht = new FloatDHT_1D(size);
-        }
-        if (isNoView) {
-            dht.inverse(elements, scale);
-        } else {
-            FloatMatrix1D copy = this.copy();
-            dht.inverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDHT_1D dht = TransformPlans.acquire(FloatDHT_1D.class, size);
+            if (isNoView) {
+                dht.inverse(elements, scale);
+            } else {
+                FloatMatrix1D copy = this.copy();
+                dht.inverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dht, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1183,19 +1205,20 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
      *            if true then scaling is performed
      */
     public void idst(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst == null) {
-            dst = new FloatDST_1D(size);
-        }
-        if (isNoView) {
-            dst.inverse(elements, scale);
-        } else {
-            FloatMatrix1D copy = this.copy();
-            dst.inverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDST_1D dst = TransformPlans.acquire(FloatDST_1D.class, size);
+            if (isNoView) {
+                dst.inverse(elements, scale);
+            } else {
+                FloatMatrix1D copy = this.copy();
+                dst.inverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dst, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1214,19 +1237,20 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
      * 
      */
     public void ifft(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft == null) {
-            fft = new FloatFFT_1D(size);
-        }
-        if (isNoView) {
-            fft.realInverse(elements, scale);
-        } else {
-            FloatMatrix1D copy = this.copy();
-            fft.realInverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_1D fft = TransformPlans.acquire(FloatFFT_1D.class, size);
+            if (isNoView) {
+                fft.realInverse(elements, scale);
+            } else {
+                FloatMatrix1D copy = this.copy();
+                fft.realInverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(fft, size);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public FloatMatrix1D like(int size) {
@@ -1424,11 +1448,18 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
             throw new InternalError();
         float sum = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (length >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+        if (stride == 1 && strideOther == 1 && DenseFloatKernels.isReductionSupported()) {
+            boolean parallel = (nthreads > 1)
+                    && (length >= ConcurrencyUtils.getThreadsBeginN_1D("DenseFloatMatrix1D.zDotProduct"));
+            return DenseFloatKernels.zDotProduct(elements, zeroThis, elementsOther, zeroOther, Math.max(0, tail
+                    - from), parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (length >= ConcurrencyUtils.getThreadsBeginN_1D("DenseFloatMatrix1D.zDotProduct"))) {
             final int zeroThisF = zeroThis;
             final int zeroOtherF = zeroOther;
             final int strideOtherF = strideOther;
-            nthreads = Math.min(nthreads, length);
+            nthreads = ConcurrencyUtils.getNumberOfParts(length);
             Future<?>[] futures = new Future[nthreads];
             Float[] results = new Float[nthreads];
             int k = length / nthreads;
@@ -1465,9 +1496,9 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
                     sum += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             zeroThis -= stride;
@@ -1492,8 +1523,12 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
         if (elems == null)
             throw new InternalError();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, size);
+        if (stride == 1 && DenseFloatKernels.isReductionSupported()) {
+            boolean parallel = (nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_1D());
+            return DenseFloatKernels.zSum(elems, zero, size, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(size);
             Future<?>[] futures = new Future[nthreads];
             Float[] results = new Float[nthreads];
             int k = size / nthreads;
@@ -1521,9 +1556,9 @@ public class DenseFloatMatrix1D extends FloatMatrix1D {
                     sum += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
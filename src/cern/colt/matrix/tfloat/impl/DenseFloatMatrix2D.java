@@ -15,6 +15,7 @@ import java.util.concurrent.Future;
 
 import cern.colt.list.tfloat.FloatArrayList;
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.io.MatrixInfo;
 import cern.colt.matrix.io.MatrixSize;
 import cern.colt.matrix.io.MatrixVectorReader;
@@ -25,7 +26,9 @@ import edu.emory.mathcs.jtransforms.dct.FloatDCT_2D;
 import edu.emory.mathcs.jtransforms.dht.FloatDHT_2D;
 import edu.emory.mathcs.jtransforms.dst.FloatDST_2D;
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
 
 /**
  * Dense 2-d matrix holding <tt>float</tt> elements. First see the <a
@@ -73,14 +76,6 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
 public class DenseFloatMatrix2D extends FloatMatrix2D {
     static final long serialVersionUID = 1020177651L;
 
-    private FloatFFT_2D fft2;
-
-    private FloatDCT_2D dct2;
-
-    private FloatDST_2D dst2;
-
-    private FloatDHT_2D dht2;
-
     protected float[] elements;
 
     /**
@@ -208,8 +203,14 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
         final int zero = (int) index(0, 0);
         float a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
+        if (columnStride == 1 && rowStride == columns && DenseFloatKernels.isAggregateSupported(aggr, f)) {
+            boolean parallel = (nthreads > 1)
+                    && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseFloatMatrix2D.aggregate"));
+            return DenseFloatKernels.aggregate(elements, zero, rows * columns, aggr, f, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseFloatMatrix2D.aggregate"))) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(rows);
             Future<?>[] futures = new Future[nthreads];
             int k = rows / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -253,8 +254,9 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
         final int zero = (int) index(0, 0);
         float a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseFloatMatrix2D.aggregate"))) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(rows);
             Future<?>[] futures = new Future[nthreads];
             int k = rows / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -312,8 +314,9 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
         final int[] columnElements = columnList.elements();
         float a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, size);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size >= ConcurrencyUtils.getThreadsBeginN_2D("DenseFloatMatrix2D.aggregate"))) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(size);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -360,8 +363,9 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
         final float[] elementsOther = (float[]) other.elements();
         float a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseFloatMatrix2D.aggregate"))) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(rows);
             Future<?>[] futures = new Future[nthreads];
             int k = rows / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -405,7 +409,13 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
             throw new InternalError();
         final int zero = (int) index(0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+        if (columnStride == 1 && rowStride == columns) {
+            boolean parallel = (nthreads > 1)
+                    && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseFloatMatrix2D.assign"));
+            if (DenseFloatKernels.assign(elems, zero, rows * columns, function, parallel))
+                return this;
+        }
+        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseFloatMatrix2D.assign"))) {
             if (function instanceof cern.jet.math.tfloat.FloatMult) { // x[i] =
                 // mult*x[i]
                 float multiplicator = ((cern.jet.math.tfloat.FloatMult) function).multiplicator;
@@ -835,7 +845,13 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
         final int columnStrideOther = other.columnStride;
         final int rowStrideOther = other.rowStride;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+        if (columnStride == 1 && rowStride == columns && columnStrideOther == 1 && rowStrideOther == columns) {
+            boolean parallel = (nthreads > 1)
+                    && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseFloatMatrix2D.assign"));
+            if (DenseFloatKernels.assign(elements, zero, elementsOther, zeroOther, rows * columns, function, parallel))
+                return this;
+        }
+        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseFloatMatrix2D.assign"))) {
             if (function instanceof cern.jet.math.tfloat.FloatPlusMultSecond) {
                 float multiplicator = ((cern.jet.math.tfloat.FloatPlusMultSecond) function).multiplicator;
                 if (multiplicator == 0) { // x[i] = x[i] + 0*y[i]
@@ -1043,7 +1059,7 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
         final int columnStrideOther = y.columnStride();
         final int rowStrideOther = y.rowStride();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_2D("DenseFloatMatrix2D.assign"))) {
             nthreads = Math.min(nthreads, rows);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
@@ -1115,9 +1131,9 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
                     cardinality += results[j].intValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -1141,19 +1157,20 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dct2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct2 == null) {
-            dct2 = new FloatDCT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            dct2.forward(elements, scale);
-        } else {
-            FloatMatrix2D copy = this.copy();
-            dct2.forward((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDCT_2D dct2 = TransformPlans.acquire(FloatDCT_2D.class, rows, columns);
+            if (isNoView == true) {
+                dct2.forward(elements, scale);
+            } else {
+                FloatMatrix2D copy = this.copy();
+                dct2.forward((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dct2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1165,31 +1182,35 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dctColumns(final boolean scale) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseFloatMatrix1D) viewColumn(c)).dct(scale);
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseFloatMatrix1D) viewColumn(c)).dct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseFloatMatrix1D) viewColumn(c)).dct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseFloatMatrix1D) viewColumn(c)).dct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
     }
 
@@ -1202,35 +1223,36 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dctRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseFloatMatrix1D) viewRow(r)).dct(scale);
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseFloatMatrix1D) viewRow(r)).dct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseFloatMatrix1D) viewRow(r)).dct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseFloatMatrix1D) viewRow(r)).dct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1238,19 +1260,20 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dht2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht2 == null) {
-            dht2 = new FloatDHT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            dht2.forward(elements);
-        } else {
-            FloatMatrix2D copy = this.copy();
-            dht2.forward((float[]) copy.elements());
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDHT_2D dht2 = TransformPlans.acquire(FloatDHT_2D.class, rows, columns);
+            if (isNoView == true) {
+                dht2.forward(elements);
+            } else {
+                FloatMatrix2D copy = this.copy();
+                dht2.forward((float[]) copy.elements());
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dht2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1259,35 +1282,36 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dhtColumns() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseFloatMatrix1D) viewColumn(c)).dht();
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseFloatMatrix1D) viewColumn(c)).dht();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseFloatMatrix1D) viewColumn(c)).dht();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseFloatMatrix1D) viewColumn(c)).dht();
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1295,35 +1319,36 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dhtRows() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseFloatMatrix1D) viewRow(r)).dht();
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseFloatMatrix1D) viewRow(r)).dht();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseFloatMatrix1D) viewRow(r)).dht();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseFloatMatrix1D) viewRow(r)).dht();
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1334,19 +1359,20 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dst2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst2 == null) {
-            dst2 = new FloatDST_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            dst2.forward(elements, scale);
-        } else {
-            FloatMatrix2D copy = this.copy();
-            dst2.forward((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDST_2D dst2 = TransformPlans.acquire(FloatDST_2D.class, rows, columns);
+            if (isNoView == true) {
+                dst2.forward(elements, scale);
+            } else {
+                FloatMatrix2D copy = this.copy();
+                dst2.forward((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dst2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1358,35 +1384,36 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dstColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseFloatMatrix1D) viewColumn(c)).dst(scale);
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseFloatMatrix1D) viewColumn(c)).dst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseFloatMatrix1D) viewColumn(c)).dst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseFloatMatrix1D) viewColumn(c)).dst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1397,35 +1424,36 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void dstRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseFloatMatrix1D) viewRow(r)).dst(scale);
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseFloatMatrix1D) viewRow(r)).dst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseFloatMatrix1D) viewRow(r)).dst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseFloatMatrix1D) viewRow(r)).dst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public float[] elements() {
@@ -1465,19 +1493,20 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void fft2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new FloatFFT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            fft2.realForward(elements);
-        } else {
-            FloatMatrix2D copy = this.copy();
-            fft2.realForward((float[]) copy.elements());
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_2D fft2 = TransformPlans.acquire(FloatFFT_2D.class, rows, columns);
+            if (isNoView == true) {
+                fft2.realForward(elements);
+            } else {
+                FloatMatrix2D copy = this.copy();
+                fft2.realForward((float[]) copy.elements());
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public FloatMatrix2D forEachNonZero(final cern.colt.function.tfloat.IntIntFloatFunction function) {
@@ -1588,45 +1617,46 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public DenseFComplexMatrix2D getFft2() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new FloatFFT_2D(rows, columns);
-        }
-        final float[] elementsA;
-        if (isNoView == true) {
-            elementsA = elements;
-        } else {
-            elementsA = (float[]) this.copy().elements();
-        }
-        DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
-        final float[] elementsC = (C).elements();
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_2D fft2 = TransformPlans.acquire(FloatFFT_2D.class, rows, columns);
+            final float[] elementsA;
+            if (isNoView == true) {
+                elementsA = elements;
+            } else {
+                elementsA = (float[]) this.copy().elements();
+            }
+            DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
+            final float[] elementsC = (C).elements();
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int r = 0; r < rows; r++) {
-                System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                }
             }
+            fft2.realForwardFull(elementsC);
+            TransformPlans.release(fft2, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        fft2.realForwardFull(elementsC);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1637,37 +1667,38 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      *         matrix.
      */
     public DenseFComplexMatrix2D getFftColumns() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getFft());
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getFft());
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getFft());
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getFft());
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1677,37 +1708,38 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * @return the discrete Fourier transform (DFT) of each row of this matrix.
      */
     public DenseFComplexMatrix2D getFftRows() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getFft());
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getFft());
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getFft());
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getFft());
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1718,50 +1750,51 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      *         matrix.
      */
     public DenseFComplexMatrix2D getIfft2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
-        final float[] elementsC = (C).elements();
-        final float[] elementsA;
-        if (isNoView == true) {
-            elementsA = elements;
-        } else {
-            elementsA = (float[]) this.copy().elements();
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow;
-                if (j == nthreads - 1) {
-                    lastRow = rows;
-                } else {
-                    lastRow = firstRow + k;
-                }
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
+            final float[] elementsC = (C).elements();
+            final float[] elementsA;
+            if (isNoView == true) {
+                elementsA = elements;
+            } else {
+                elementsA = (float[]) this.copy().elements();
+            }
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow;
+                    if (j == nthreads - 1) {
+                        lastRow = rows;
+                    } else {
+                        lastRow = firstRow + k;
+                    }
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int r = 0; r < rows; r++) {
-                System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    System.arraycopy(elementsA, r * columns, elementsC, r * columns, columns);
+                }
             }
+            final FloatFFT_2D fft2 = TransformPlans.acquire(FloatFFT_2D.class, rows, columns);
+            fft2.realInverseFull(elementsC, scale);
+            TransformPlans.release(fft2, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        if (fft2 == null) {
-            fft2 = new FloatFFT_2D(rows, columns);
-        }
-        fft2.realInverseFull(elementsC, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1772,37 +1805,38 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      *         column of this matrix.
      */
     public DenseFComplexMatrix2D getIfftColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getIfft(scale));
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getIfft(scale));
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getIfft(scale));
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    C.viewColumn(c).assign(((DenseFloatMatrix1D) viewColumn(c)).getIfft(scale));
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1813,36 +1847,37 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      *         of this matrix.
      */
     public DenseFComplexMatrix2D getIfftRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getIfft(scale));
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseFComplexMatrix2D C = new DenseFComplexMatrix2D(rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getIfft(scale));
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getIfft(scale));
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    C.viewRow(r).assign(((DenseFloatMatrix1D) viewRow(r)).getIfft(scale));
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     public float[] getMaxLocation() {
@@ -1896,9 +1931,9 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = elements[zero];
@@ -1970,9 +2005,9 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = elements[zero];
@@ -2065,19 +2100,20 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idct2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct2 == null) {
-            dct2 = new FloatDCT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            dct2.inverse(elements, scale);
-        } else {
-            FloatMatrix2D copy = this.copy();
-            dct2.inverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDCT_2D dct2 = TransformPlans.acquire(FloatDCT_2D.class, rows, columns);
+            if (isNoView == true) {
+                dct2.inverse(elements, scale);
+            } else {
+                FloatMatrix2D copy = this.copy();
+                dct2.inverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dct2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2089,35 +2125,36 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idctColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseFloatMatrix1D) viewColumn(c)).idct(scale);
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseFloatMatrix1D) viewColumn(c)).idct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseFloatMatrix1D) viewColumn(c)).idct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseFloatMatrix1D) viewColumn(c)).idct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2129,34 +2166,35 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idctRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseFloatMatrix1D) viewRow(r)).idct(scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseFloatMatrix1D) viewRow(r)).idct(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseFloatMatrix1D) viewRow(r)).idct(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseFloatMatrix1D) viewRow(r)).idct(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2168,19 +2206,20 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idht2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht2 == null) {
-            dht2 = new FloatDHT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            dht2.inverse(elements, scale);
-        } else {
-            FloatMatrix2D copy = this.copy();
-            dht2.inverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDHT_2D dht2 = TransformPlans.acquire(FloatDHT_2D.class, rows, columns);
+            if (isNoView == true) {
+                dht2.inverse(elements, scale);
+            } else {
+                FloatMatrix2D copy = this.copy();
+                dht2.inverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dht2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2192,35 +2231,36 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idhtColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseFloatMatrix1D) viewColumn(c)).idht(scale);
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseFloatMatrix1D) viewColumn(c)).idht(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseFloatMatrix1D) viewColumn(c)).idht(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseFloatMatrix1D) viewColumn(c)).idht(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2232,34 +2272,35 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idhtRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseFloatMatrix1D) viewRow(r)).idht(scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseFloatMatrix1D) viewRow(r)).idht(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseFloatMatrix1D) viewRow(r)).idht(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseFloatMatrix1D) viewRow(r)).idht(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2271,19 +2312,20 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idst2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst2 == null) {
-            dst2 = new FloatDST_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            dst2.inverse(elements, scale);
-        } else {
-            FloatMatrix2D copy = this.copy();
-            dst2.inverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDST_2D dst2 = TransformPlans.acquire(FloatDST_2D.class, rows, columns);
+            if (isNoView == true) {
+                dst2.inverse(elements, scale);
+            } else {
+                FloatMatrix2D copy = this.copy();
+                dst2.inverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dst2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2295,35 +2337,36 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idstColumns(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, columns);
-            Future<?>[] futures = new Future[nthreads];
-            int k = columns / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstColumn = j * k;
-                final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, columns);
+                Future<?>[] futures = new Future[nthreads];
+                int k = columns / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstColumn = j * k;
+                    final int lastColumn = (j == nthreads - 1) ? columns : firstColumn + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int c = firstColumn; c < lastColumn; c++) {
-                            ((DenseFloatMatrix1D) viewColumn(c)).idst(scale);
+                        public void run() {
+                            for (int c = firstColumn; c < lastColumn; c++) {
+                                ((DenseFloatMatrix1D) viewColumn(c)).idst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int c = 0; c < columns; c++) {
-                ((DenseFloatMatrix1D) viewColumn(c)).idst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int c = 0; c < columns; c++) {
+                    ((DenseFloatMatrix1D) viewColumn(c)).idst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2335,34 +2378,35 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void idstRows(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
-            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        for (int r = firstRow; r < lastRow; r++) {
-                            ((DenseFloatMatrix1D) viewRow(r)).idst(scale);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+                context.setThreadsBeginN_1D_FFT_2Threads(Integer.MAX_VALUE);
+                context.setThreadsBeginN_1D_FFT_4Threads(Integer.MAX_VALUE);
+                nthreads = Math.min(nthreads, rows);
+                Future<?>[] futures = new Future[nthreads];
+                int k = rows / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstRow = j * k;
+                    final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            for (int r = firstRow; r < lastRow; r++) {
+                                ((DenseFloatMatrix1D) viewRow(r)).idst(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-            ConcurrencyUtils.resetThreadsBeginN_FFT();
-        } else {
-            for (int r = 0; r < rows; r++) {
-                ((DenseFloatMatrix1D) viewRow(r)).idst(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int r = 0; r < rows; r++) {
+                    ((DenseFloatMatrix1D) viewRow(r)).idst(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -2400,19 +2444,20 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
      * 
      */
     public void ifft2(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft2 == null) {
-            fft2 = new FloatFFT_2D(rows, columns);
-        }
-        if (isNoView == true) {
-            fft2.realInverse(elements, scale);
-        } else {
-            FloatMatrix2D copy = this.copy();
-            fft2.realInverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_2D fft2 = TransformPlans.acquire(FloatFFT_2D.class, rows, columns);
+            if (isNoView == true) {
+                fft2.realInverse(elements, scale);
+            } else {
+                FloatMatrix2D copy = this.copy();
+                fft2.realInverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(fft2, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public long index(int row, int column) {
@@ -2620,34 +2665,26 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
         final int zeroY = (int) y.index(0);
         final int zeroZ = (int) z.index(0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idxZero = zero + firstRow * rowStride;
-                        int idxZeroZ = zeroZ + firstRow * strideZ;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            float sum = 0;
-                            int idx = idxZero;
-                            int idxY = zeroY;
-                            for (int c = 0; c < columns; c++) {
-                                sum += elements[idx] * elemsY[idxY];
-                                idx += columnStride;
-                                idxY += strideY;
-                            }
-                            elemsZ[idxZeroZ] = alpha * sum + beta * elemsZ[idxZeroZ];
-                            idxZero += rowStride;
-                            idxZeroZ += strideZ;
+        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D("DenseFloatMatrix2D.zMult"))) {
+            ConcurrencyUtils.parallelFor(0, rows, ConcurrencyUtils.getGrainSize(rows, 4), new RangeProcedure() {
+                public void apply(int firstRow, int lastRow) {
+                    int idxZero = zero + firstRow * rowStride;
+                    int idxZeroZ = zeroZ + firstRow * strideZ;
+                    for (int r = firstRow; r < lastRow; r++) {
+                        float sum = 0;
+                        int idx = idxZero;
+                        int idxY = zeroY;
+                        for (int c = 0; c < columns; c++) {
+                            sum += elements[idx] * elemsY[idxY];
+                            idx += columnStride;
+                            idxY += strideY;
                         }
+                        elemsZ[idxZeroZ] = alpha * sum + beta * elemsZ[idxZeroZ];
+                        idxZero += rowStride;
+                        idxZeroZ += strideZ;
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
+                }
+            });
         } else {
             int idxZero = zero;
             int idxZeroZ = zeroZ;
@@ -2676,90 +2713,54 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
         final int columnsB = B.columns();
         final int rowsC = transposeA ? columnsA : rowsA;
         final int columnsC = transposeB ? rowsB : columnsB;
+        final int inner = transposeA ? rowsA : columnsA;
 
         if (C == null) {
             C = new DenseFloatMatrix2D(rowsC, columnsC);
         }
 
-        /*
-        * determine how to split and parallelize best into blocks if more
-        * B.columns than tasks --> split B.columns, as follows:
-        * 
-        * xx|xx|xxx B xx|xx|xxx xx|xx|xxx A xxx xx|xx|xxx C xxx xx|xx|xxx xxx
-        * xx|xx|xxx xxx xx|xx|xxx xxx xx|xx|xxx
-        * 
-        * if less B.columns than tasks --> split A.rows, as follows:
-        * 
-        * xxxxxxx B xxxxxxx xxxxxxx A xxx xxxxxxx C xxx xxxxxxx --- ------- xxx
-        * xxxxxxx xxx xxxxxxx --- ------- xxx xxxxxxx
-        */
-        if (transposeA)
-            return viewDice().zMult(B, C, alpha, beta, false, transposeB);
-        if (B instanceof SparseFloatMatrix2D || B instanceof SparseRCFloatMatrix2D) {
+        if (B instanceof SparseFloatMatrix2D || B instanceof SparseRCFloatMatrix2D
+                || B instanceof SparseCCFloatMatrix2D) {
+            if (transposeA)
+                return viewDice().zMult(B, C, alpha, beta, false, transposeB);
             // exploit quick sparse mult
             // A*B = (B' * A')'
-            if (C == null) {
-                return B.zMult(this, null, alpha, beta, !transposeB, true).viewDice();
-            } else {
-                B.zMult(this, C.viewDice(), alpha, beta, !transposeB, true);
-                return C;
-            }
+            B.zMult(this, C.viewDice(), alpha, beta, !transposeB, true);
+            return C;
         }
-        if (transposeB)
-            return this.zMult(B.viewDice(), C, alpha, beta, transposeA, false);
 
-        if (!(C instanceof DenseFloatMatrix2D))
+        if (!(B instanceof DenseFloatMatrix2D) || !(C instanceof DenseFloatMatrix2D))
             return super.zMult(B, C, alpha, beta, transposeA, transposeB);
 
-        if (B.rows() != columnsA)
+        if ((transposeB ? columnsB : rowsB) != inner)
             throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + this.toStringShort() + ", "
                     + B.toStringShort());
-        if (C.rows() != rowsA || C.columns() != columnsB)
+        if (C.rows() != rowsC || C.columns() != columnsC)
             throw new IllegalArgumentException("Incompatibe result matrix: " + this.toStringShort() + ", "
                     + B.toStringShort() + ", " + C.toStringShort());
         if (this == C || B == C)
             throw new IllegalArgumentException("Matrices must not be identical");
 
-        long flops = 2L * rowsA * columnsA * columnsB;
-        int noOfTasks = (int) Math.min(flops / 30000, ConcurrencyUtils.getNumberOfThreads()); // each
-        /* thread should process at least 30000 flops */
-        boolean splitB = (columnsB >= noOfTasks);
-        int width = splitB ? columnsB : rowsA;
-        noOfTasks = Math.min(width, noOfTasks);
-
-        if (noOfTasks < 2) { //parallelization doesn't pay off (too much start up overhead)
-            return this.zMultSequential(B, C, alpha, beta, transposeA, transposeB);
-        }
-
-        // set up concurrent tasks
-        int span = width / noOfTasks;
-        final Future<?>[] subTasks = new Future[noOfTasks];
-        for (int i = 0; i < noOfTasks; i++) {
-            final int offset = i * span;
-            if (i == noOfTasks - 1)
-                span = width - span * i; // last span may be a bit larger
-
-            final FloatMatrix2D AA, BB, CC;
-            if (splitB) {
-                // split B along columns into blocks
-                AA = this;
-                BB = B.viewPart(0, offset, columnsA, span);
-                CC = C.viewPart(0, offset, rowsA, span);
-            } else {
-                // split A along rows into blocks
-                AA = this.viewPart(offset, 0, span, columnsA);
-                BB = B;
-                CC = C.viewPart(offset, 0, span, columnsB);
-            }
-
-            subTasks[i] = ConcurrencyUtils.submit(new Runnable() {
-                public void run() {
-                    ((DenseFloatMatrix2D) AA).zMultSequential(BB, CC, alpha, beta, transposeA, transposeB);
-                }
-            });
-        }
+        DenseFloatMatrix2D BB = (DenseFloatMatrix2D) B;
+        DenseFloatMatrix2D CC = (DenseFloatMatrix2D) C;
+        if (elements == null || BB.elements == null || CC.elements == null)
+            throw new InternalError();
 
-        ConcurrencyUtils.waitForCompletion(subTasks);
+        /*
+         * The GEMM engine accepts any strides, so transposed operands are
+         * passed by swapping their strides.
+         */
+        int aRowStride = transposeA ? columnStride : rowStride;
+        int aColumnStride = transposeA ? rowStride : columnStride;
+        int bRowStride = transposeB ? BB.columnStride : BB.rowStride;
+        int bColumnStride = transposeB ? BB.rowStride : BB.columnStride;
+
+        long flops = 2L * rowsC * inner * columnsC;
+        // each thread should process at least 30000 flops
+        boolean parallel = Math.min(flops / 30000, ConcurrencyUtils.getNumberOfThreads()) >= 2;
+        DenseFloatGemm.gemm(rowsC, columnsC, inner, alpha, elements, (int) index(0, 0), aRowStride, aColumnStride,
+                BB.elements, (int) BB.index(0, 0), bRowStride, bColumnStride, beta, CC.elements, (int) CC.index(0, 0),
+                CC.rowStride, CC.columnStride, parallel);
         return C;
     }
 
@@ -2769,8 +2770,12 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
             throw new InternalError();
         final int zero = (int) index(0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
-            nthreads = Math.min(nthreads, rows);
+        if (columnStride == 1 && rowStride == columns && DenseFloatKernels.isReductionSupported()) {
+            boolean parallel = (nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D());
+            return DenseFloatKernels.zSum(elements, zero, rows * columns, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_2D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(rows);
             Future<?>[] futures = new Future[nthreads];
             int k = rows / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -2797,9 +2802,9 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
                     sum += (Float) futures[j].get();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -2814,109 +2819,6 @@ public class DenseFloatMatrix2D extends FloatMatrix2D {
         return sum;
     }
 
-    private FloatMatrix2D zMultSequential(FloatMatrix2D B, FloatMatrix2D C, float alpha, float beta,
-            boolean transposeA, boolean transposeB) {
-        if (transposeA)
-            return viewDice().zMult(B, C, alpha, beta, false, transposeB);
-        if (B instanceof SparseFloatMatrix2D || B instanceof SparseRCFloatMatrix2D
-                || B instanceof SparseCCFloatMatrix2D) {
-            // exploit quick sparse mult
-            // A*B = (B' * A')'
-            if (C == null) {
-                return B.zMult(this, null, alpha, beta, !transposeB, true).viewDice();
-            } else {
-                B.zMult(this, C.viewDice(), alpha, beta, !transposeB, true);
-                return C;
-            }
-        }
-        if (transposeB)
-            return this.zMult(B.viewDice(), C, alpha, beta, transposeA, false);
-
-        int rowsA = rows;
-        int columnsA = columns;
-        int p = B.columns();
-        if (C == null) {
-            C = new DenseFloatMatrix2D(rowsA, p);
-        }
-        if (!(B instanceof DenseFloatMatrix2D) || !(C instanceof DenseFloatMatrix2D))
-            return super.zMult(B, C, alpha, beta, transposeA, transposeB);
-        if (B.rows() != columnsA)
-            throw new IllegalArgumentException("Matrix2D inner dimensions must agree:" + toStringShort() + ", "
-                    + B.toStringShort());
-        if (C.rows() != rowsA || C.columns() != p)
-            throw new IllegalArgumentException("Incompatibel result matrix: " + toStringShort() + ", "
-                    + B.toStringShort() + ", " + C.toStringShort());
-        if (this == C || B == C)
-            throw new IllegalArgumentException("Matrices must not be identical");
-
-        DenseFloatMatrix2D BB = (DenseFloatMatrix2D) B;
-        DenseFloatMatrix2D CC = (DenseFloatMatrix2D) C;
-        final float[] AElems = this.elements;
-        final float[] BElems = BB.elements;
-        final float[] CElems = CC.elements;
-        if (AElems == null || BElems == null || CElems == null)
-            throw new InternalError();
-
-        int cA = this.columnStride;
-        int cB = BB.columnStride;
-        int cC = CC.columnStride;
-
-        int rA = this.rowStride;
-        int rB = BB.rowStride;
-        int rC = CC.rowStride;
-
-        /*
-         * A is blocked to hide memory latency xxxxxxx B xxxxxxx xxxxxxx A xxx
-         * xxxxxxx C xxx xxxxxxx --- ------- xxx xxxxxxx xxx xxxxxxx --- -------
-         * xxx xxxxxxx
-         */
-        final int BLOCK_SIZE = 30000; // * 8 == Level 2 cache in bytes
-        int m_optimal = (BLOCK_SIZE - columnsA) / (columnsA + 1);
-        if (m_optimal <= 0)
-            m_optimal = 1;
-        int blocks = rowsA / m_optimal;
-        int rr = 0;
-        if (rowsA % m_optimal != 0)
-            blocks++;
-        for (; --blocks >= 0;) {
-            int jB = (int) BB.index(0, 0);
-            int indexA = (int) index(rr, 0);
-            int jC = (int) CC.index(rr, 0);
-            rr += m_optimal;
-            if (blocks == 0)
-                m_optimal += rowsA - rr;
-
-            for (int j = p; --j >= 0;) {
-                int iA = indexA;
-                int iC = jC;
-                for (int i = m_optimal; --i >= 0;) {
-                    int kA = iA;
-                    int kB = jB;
-                    float s = 0;
-
-                    // loop unrolled
-                    kA -= cA;
-                    kB -= rB;
-
-                    for (int k = columnsA % 4; --k >= 0;) {
-                        s += AElems[kA += cA] * BElems[kB += rB];
-                    }
-                    for (int k = columnsA / 4; --k >= 0;) {
-                        s += AElems[kA += cA] * BElems[kB += rB] + AElems[kA += cA] * BElems[kB += rB]
-                                + AElems[kA += cA] * BElems[kB += rB] + AElems[kA += cA] * BElems[kB += rB];
-                    }
-
-                    CElems[iC] = alpha * s + beta * CElems[iC];
-                    iA += rA;
-                    iC += rC;
-                }
-                jB += cB;
-                jC += cC;
-            }
-        }
-        return C;
-    }
-
     protected boolean haveSharedCellsRaw(FloatMatrix2D other) {
         if (other instanceof SelectedDenseFloatMatrix2D) {
             SelectedDenseFloatMatrix2D otherMatrix = (SelectedDenseFloatMatrix2D) other;
@@ -14,6 +14,7 @@ import java.util.concurrent.Future;
 
 import cern.colt.list.tfloat.FloatArrayList;
 import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tfcomplex.impl.DenseFComplexMatrix3D;
 import cern.colt.matrix.tfloat.FloatMatrix1D;
 import cern.colt.matrix.tfloat.FloatMatrix2D;
@@ -22,6 +23,7 @@ import edu.emory.mathcs.jtransforms.dct.FloatDCT_3D;
 import edu.emory.mathcs.jtransforms.dht.FloatDHT_3D;
 import edu.emory.mathcs.jtransforms.dst.FloatDST_3D;
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_3D;
+import edu.emory.mathcs.utils.ConcurrencyContext;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 /**
@@ -75,14 +77,6 @@ import edu.emory.mathcs.utils.ConcurrencyUtils;
 public class DenseFloatMatrix3D extends FloatMatrix3D {
     private static final long serialVersionUID = 1L;
 
-    private FloatFFT_3D fft3;
-
-    private FloatDCT_3D dct3;
-
-    private FloatDST_3D dst3;
-
-    private FloatDHT_3D dht3;
-
     protected float[] elements;
 
     /**
@@ -178,8 +172,13 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
         float a = 0;
         final int zero = (int) index(0, 0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
+        if (columnStride == 1 && rowStride == columns && sliceStride == rows * columns
+                && DenseFloatKernels.isAggregateSupported(aggr, f)) {
+            boolean parallel = (nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D());
+            return DenseFloatKernels.aggregate(elements, zero, slices * rows * columns, aggr, f, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(slices);
             Future<?>[] futures = new Future[nthreads];
             int k = slices / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -226,8 +225,9 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
         float a = 0;
         final int zero = (int) index(0, 0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (slices * rows * columns >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible())
+                && (slices * rows * columns >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(slices);
             Future<?>[] futures = new Future[nthreads];
             int k = slices / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -293,8 +293,8 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
         final int zero = (int) index(0, 0, 0);
         float a = 0;
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(slices);
             Future<?>[] futures = new Future[nthreads];
             int k = size / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -345,8 +345,8 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
         final int columnStrideOther = other.columnStride();
         final float[] elementsOther = (float[]) other.elements();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(slices);
             Future<?>[] futures = new Future[nthreads];
             int k = slices / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -396,6 +396,11 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
     public FloatMatrix3D assign(final cern.colt.function.tfloat.FloatFunction function) {
         final int zero = (int) index(0, 0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if (columnStride == 1 && rowStride == columns && sliceStride == rows * columns) {
+            boolean parallel = (nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D());
+            if (DenseFloatKernels.assign(elements, zero, slices * rows * columns, function, parallel))
+                return this;
+        }
         if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
             nthreads = Math.min(nthreads, slices);
             Future<?>[] futures = new Future[nthreads];
@@ -614,9 +619,9 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 int idxOther = 0;
@@ -675,9 +680,9 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 int i = 0;
@@ -737,9 +742,9 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
 
             } else {
@@ -829,9 +834,9 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 int idx;
@@ -865,6 +870,13 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
         final int columnStrideOther = y.columnStride();
         final float[] elementsOther = (float[]) y.elements();
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        if (columnStride == 1 && rowStride == columns && sliceStride == rows * columns && columnStrideOther == 1
+                && rowStrideOther == columns && sliceStrideOther == rows * columns) {
+            boolean parallel = (nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D());
+            if (DenseFloatKernels.assign(elements, zero, elementsOther, zeroOther, slices * rows * columns, function,
+                    parallel))
+                return this;
+        }
         if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
             nthreads = Math.min(nthreads, slices);
             Future<?>[] futures = new Future[nthreads];
@@ -1001,9 +1013,9 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx;
@@ -1031,32 +1043,34 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      * 
      */
     public void dct2Slices(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseFloatMatrix2D) viewSlice(s)).dct2(scale);
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseFloatMatrix2D) viewSlice(s)).dct2(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseFloatMatrix2D) viewSlice(s)).dct2(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseFloatMatrix2D) viewSlice(s)).dct2(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1067,19 +1081,20 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      * 
      */
     public void dct3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct3 == null) {
-            dct3 = new FloatDCT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            dct3.forward(elements, scale);
-        } else {
-            FloatMatrix3D copy = this.copy();
-            dct3.forward((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDCT_3D dct3 = TransformPlans.acquire(FloatDCT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                dct3.forward(elements, scale);
+            } else {
+                FloatMatrix3D copy = this.copy();
+                dct3.forward((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dct3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1088,32 +1103,34 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      * 
      */
     public void dht2Slices() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseFloatMatrix2D) viewSlice(s)).dht2();
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseFloatMatrix2D) viewSlice(s)).dht2();
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseFloatMatrix2D) viewSlice(s)).dht2();
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseFloatMatrix2D) viewSlice(s)).dht2();
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1121,19 +1138,20 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      * 
      */
     public void dht3() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht3 == null) {
-            dht3 = new FloatDHT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            dht3.forward(elements);
-        } else {
-            FloatMatrix3D copy = this.copy();
-            dht3.forward((float[]) copy.elements());
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDHT_3D dht3 = TransformPlans.acquire(FloatDHT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                dht3.forward(elements);
+            } else {
+                FloatMatrix3D copy = this.copy();
+                dht3.forward((float[]) copy.elements());
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dht3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1145,32 +1163,34 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      * 
      */
     public void dst2Slices(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseFloatMatrix2D) viewSlice(s)).dst2(scale);
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseFloatMatrix2D) viewSlice(s)).dst2(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseFloatMatrix2D) viewSlice(s)).dst2(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseFloatMatrix2D) viewSlice(s)).dst2(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1181,19 +1201,20 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      * 
      */
     public void dst3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst3 == null) {
-            dst3 = new FloatDST_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            dst3.forward(elements, scale);
-        } else {
-            FloatMatrix3D copy = this.copy();
-            dst3.forward((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDST_3D dst3 = TransformPlans.acquire(FloatDST_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                dst3.forward(elements, scale);
+            } else {
+                FloatMatrix3D copy = this.copy();
+                dst3.forward((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dst3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public float[] elements() {
@@ -1257,19 +1278,20 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      *             matrix is not a power of 2 number.
      */
     public void fft3() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft3 == null) {
-            fft3 = new FloatFFT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            fft3.realForward(elements);
-        } else {
-            FloatMatrix3D copy = this.copy();
-            fft3.realForward((float[]) copy.elements());
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_3D fft3 = TransformPlans.acquire(FloatFFT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                fft3.realForward(elements);
+            } else {
+                FloatMatrix3D copy = this.copy();
+                fft3.realForward((float[]) copy.elements());
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(fft3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1281,34 +1303,36 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      * 
      */
     public DenseFComplexMatrix3D getFft2Slices() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseFComplexMatrix3D C = new DenseFComplexMatrix3D(slices, rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseFComplexMatrix3D C = new DenseFComplexMatrix3D(slices, rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            C.viewSlice(s).assign(((DenseFloatMatrix2D) viewSlice(s)).getFft2());
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                C.viewSlice(s).assign(((DenseFloatMatrix2D) viewSlice(s)).getFft2());
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                C.viewSlice(s).assign(((DenseFloatMatrix2D) viewSlice(s)).getFft2());
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    C.viewSlice(s).assign(((DenseFloatMatrix2D) viewSlice(s)).getFft2());
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1318,55 +1342,56 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      * @return the 3D discrete Fourier transform (DFT) of this matrix.
      */
     public DenseFComplexMatrix3D getFft3() {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        DenseFComplexMatrix3D C = new DenseFComplexMatrix3D(slices, rows, columns);
-        final int sliceStride = rows * columns;
-        final int rowStride = columns;
-        final float[] elems;
-        if (isNoView == true) {
-            elems = elements;
-        } else {
-            elems = (float[]) this.copy().elements();
-        }
-        final float[] cElems = (C).elements();
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx;
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            for (int r = 0; r < rows; r++) {
-                                idx = s * sliceStride + r * rowStride;
-                                System.arraycopy(elems, idx, cElems, idx, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            DenseFComplexMatrix3D C = new DenseFComplexMatrix3D(slices, rows, columns);
+            final int sliceStride = rows * columns;
+            final int rowStride = columns;
+            final float[] elems;
+            if (isNoView == true) {
+                elems = elements;
+            } else {
+                elems = (float[]) this.copy().elements();
+            }
+            final float[] cElems = (C).elements();
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            int idx;
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                for (int r = 0; r < rows; r++) {
+                                    idx = s * sliceStride + r * rowStride;
+                                    System.arraycopy(elems, idx, cElems, idx, columns);
+                                }
                             }
-                        }
 
+                        }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                int idx;
+                for (int s = 0; s < slices; s++) {
+                    for (int r = 0; r < rows; r++) {
+                        idx = s * sliceStride + r * rowStride;
+                        System.arraycopy(elems, idx, cElems, idx, columns);
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx;
-            for (int s = 0; s < slices; s++) {
-                for (int r = 0; r < rows; r++) {
-                    idx = s * sliceStride + r * rowStride;
-                    System.arraycopy(elems, idx, cElems, idx, columns);
                 }
             }
+            final FloatFFT_3D fft3 = TransformPlans.acquire(FloatFFT_3D.class, slices, rows, columns);
+            fft3.realForwardFull(cElems);
+            TransformPlans.release(fft3, slices, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        if (fft3 == null) {
-            fft3 = new FloatFFT_3D(slices, rows, columns);
-        }
-        fft3.realForwardFull(cElems);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1380,34 +1405,36 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      *         slice of this matrix.
      */
     public DenseFComplexMatrix3D getIfft2Slices(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        final DenseFComplexMatrix3D C = new DenseFComplexMatrix3D(slices, rows, columns);
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final DenseFComplexMatrix3D C = new DenseFComplexMatrix3D(slices, rows, columns);
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            C.viewSlice(s).assign(((DenseFloatMatrix2D) viewSlice(s)).getIfft2(scale));
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                C.viewSlice(s).assign(((DenseFloatMatrix2D) viewSlice(s)).getIfft2(scale));
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                C.viewSlice(s).assign(((DenseFloatMatrix2D) viewSlice(s)).getIfft2(scale));
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    C.viewSlice(s).assign(((DenseFloatMatrix2D) viewSlice(s)).getIfft2(scale));
+                }
             }
+            return C;
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     /**
@@ -1422,55 +1449,56 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      * 
      */
     public DenseFComplexMatrix3D getIfft3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        DenseFComplexMatrix3D C = new DenseFComplexMatrix3D(slices, rows, columns);
-        final int sliceStride = rows * columns;
-        final int rowStride = columns;
-        final float[] cElems = (C).elements();
-        final float[] elems;
-        if (isNoView == true) {
-            elems = elements;
-        } else {
-            elems = (float[]) this.copy().elements();
-        }
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-                    public void run() {
-                        int idx;
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            for (int r = 0; r < rows; r++) {
-                                idx = s * sliceStride + r * rowStride;
-                                System.arraycopy(elems, idx, cElems, idx, columns);
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            DenseFComplexMatrix3D C = new DenseFComplexMatrix3D(slices, rows, columns);
+            final int sliceStride = rows * columns;
+            final int rowStride = columns;
+            final float[] cElems = (C).elements();
+            final float[] elems;
+            if (isNoView == true) {
+                elems = elements;
+            } else {
+                elems = (float[]) this.copy().elements();
+            }
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
+                        public void run() {
+                            int idx;
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                for (int r = 0; r < rows; r++) {
+                                    idx = s * sliceStride + r * rowStride;
+                                    System.arraycopy(elems, idx, cElems, idx, columns);
+                                }
                             }
-                        }
 
+                        }
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                int idx;
+                for (int s = 0; s < slices; s++) {
+                    for (int r = 0; r < rows; r++) {
+                        idx = s * sliceStride + r * rowStride;
+                        System.arraycopy(elems, idx, cElems, idx, columns);
                     }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            int idx;
-            for (int s = 0; s < slices; s++) {
-                for (int r = 0; r < rows; r++) {
-                    idx = s * sliceStride + r * rowStride;
-                    System.arraycopy(elems, idx, cElems, idx, columns);
                 }
             }
+            final FloatFFT_3D fft3 = TransformPlans.acquire(FloatFFT_3D.class, slices, rows, columns);
+            fft3.realInverseFull(cElems, scale);
+            TransformPlans.release(fft3, slices, rows, columns);
+            return C;
+        } finally {
+            context.close();
         }
-        if (fft3 == null) {
-            fft3 = new FloatFFT_3D(slices, rows, columns);
-        }
-        fft3.realInverseFull(cElems, scale);
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
-        return C;
     }
 
     public float[] getMaxLocation() {
@@ -1531,9 +1559,9 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = elements[zero];
@@ -1615,9 +1643,9 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = elements[zero];
@@ -1735,32 +1763,34 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      *            if true then scaling is performed
      */
     public void idct2Slices(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseFloatMatrix2D) viewSlice(s)).idct2(scale);
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseFloatMatrix2D) viewSlice(s)).idct2(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseFloatMatrix2D) viewSlice(s)).idct2(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseFloatMatrix2D) viewSlice(s)).idct2(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1771,19 +1801,20 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      *            if true then scaling is performed
      */
     public void idct3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dct3 == null) {
-            dct3 = new FloatDCT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            dct3.inverse(elements, scale);
-        } else {
-            FloatMatrix3D copy = this.copy();
-            dct3.inverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDCT_3D dct3 = TransformPlans.acquire(FloatDCT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                dct3.inverse(elements, scale);
+            } else {
+                FloatMatrix3D copy = this.copy();
+                dct3.inverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dct3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1795,32 +1826,34 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      * 
      */
     public void idht2Slices(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseFloatMatrix2D) viewSlice(s)).idht2(scale);
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseFloatMatrix2D) viewSlice(s)).idht2(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseFloatMatrix2D) viewSlice(s)).idht2(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseFloatMatrix2D) viewSlice(s)).idht2(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1831,19 +1864,20 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      *            if true then scaling is performed
      */
     public void idht3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dht3 == null) {
-            dht3 = new FloatDHT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            dht3.inverse(elements, scale);
-        } else {
-            FloatMatrix3D copy = this.copy();
-            dht3.inverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDHT_3D dht3 = TransformPlans.acquire(FloatDHT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                dht3.inverse(elements, scale);
+            } else {
+                FloatMatrix3D copy = this.copy();
+                dht3.inverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dht3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1854,32 +1888,34 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      *            if true then scaling is performed
      */
     public void idst2Slices(final boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
-            Future<?>[] futures = new Future[nthreads];
-            int k = slices / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstSlice = j * k;
-                final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+                nthreads = Math.min(nthreads, slices);
+                Future<?>[] futures = new Future[nthreads];
+                int k = slices / nthreads;
+                for (int j = 0; j < nthreads; j++) {
+                    final int firstSlice = j * k;
+                    final int lastSlice = (j == nthreads - 1) ? slices : firstSlice + k;
+                    futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
-                    public void run() {
-                        for (int s = firstSlice; s < lastSlice; s++) {
-                            ((DenseFloatMatrix2D) viewSlice(s)).idst2(scale);
+                        public void run() {
+                            for (int s = firstSlice; s < lastSlice; s++) {
+                                ((DenseFloatMatrix2D) viewSlice(s)).idst2(scale);
+                            }
                         }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
-        } else {
-            for (int s = 0; s < slices; s++) {
-                ((DenseFloatMatrix2D) viewSlice(s)).idst2(scale);
+                    });
+                }
+                ConcurrencyUtils.waitForCompletion(futures);
+            } else {
+                for (int s = 0; s < slices; s++) {
+                    ((DenseFloatMatrix2D) viewSlice(s)).idst2(scale);
+                }
             }
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1891,19 +1927,20 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      * 
      */
     public void idst3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (dst3 == null) {
-            dst3 = new FloatDST_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            dst3.inverse(elements, scale);
-        } else {
-            FloatMatrix3D copy = this.copy();
-            dst3.inverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatDST_3D dst3 = TransformPlans.acquire(FloatDST_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                dst3.inverse(elements, scale);
+            } else {
+                FloatMatrix3D copy = this.copy();
+                dst3.inverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(dst3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     /**
@@ -1964,19 +2001,20 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
      *             matrix is not a power of 2 number.
      */
     public void ifft3(boolean scale) {
-        int oldNthreads = ConcurrencyUtils.getNumberOfThreads();
-        ConcurrencyUtils.setNumberOfThreads(ConcurrencyUtils.nextPow2(oldNthreads));
-        if (fft3 == null) {
-            fft3 = new FloatFFT_3D(slices, rows, columns);
-        }
-        if (isNoView == true) {
-            fft3.realInverse(elements, scale);
-        } else {
-            FloatMatrix3D copy = this.copy();
-            fft3.realInverse((float[]) copy.elements(), scale);
-            this.assign((float[]) copy.elements());
+        ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+        try {
+            final FloatFFT_3D fft3 = TransformPlans.acquire(FloatFFT_3D.class, slices, rows, columns);
+            if (isNoView == true) {
+                fft3.realInverse(elements, scale);
+            } else {
+                FloatMatrix3D copy = this.copy();
+                fft3.realInverse((float[]) copy.elements(), scale);
+                this.assign((float[]) copy.elements());
+            }
+            TransformPlans.release(fft3, slices, rows, columns);
+        } finally {
+            context.close();
         }
-        ConcurrencyUtils.setNumberOfThreads(oldNthreads);
     }
 
     public long index(int slice, int row, int column) {
@@ -2191,8 +2229,13 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
         float sum = 0;
         final int zero = (int) index(0, 0, 0);
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
-            nthreads = Math.min(nthreads, slices);
+        if (columnStride == 1 && rowStride == columns && sliceStride == rows * columns
+                && DenseFloatKernels.isReductionSupported()) {
+            boolean parallel = (nthreads > 1) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D());
+            return DenseFloatKernels.zSum(elements, zero, slices * rows * columns, parallel);
+        }
+        if ((nthreads > 1 || ConcurrencyUtils.isReproducible()) && (size() >= ConcurrencyUtils.getThreadsBeginN_3D())) {
+            nthreads = ConcurrencyUtils.getNumberOfParts(slices);
             Future<?>[] futures = new Future[nthreads];
             int k = slices / nthreads;
             for (int j = 0; j < nthreads; j++) {
@@ -2221,9 +2264,9 @@ public class DenseFloatMatrix3D extends FloatMatrix3D {
                     sum = sum + ((Float) futures[j].get());
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx;
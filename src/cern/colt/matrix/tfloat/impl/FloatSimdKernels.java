@@ -0,0 +1,82 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.colt.matrix.tfloat.impl;
+
+import cern.colt.function.tfloat.FloatFloatFunction;
+import cern.colt.function.tfloat.FloatFunction;
+
+/**
+ * Service interface of a SIMD backend for the element-wise kernels of the
+ * dense <tt>float</tt> matrices.
+ * <p>
+ * An implementation is looked up with {@link java.util.ServiceLoader} when the
+ * dense matrices are first used; the backend built from
+ * <tt>src-vector</tt> (<tt>parallelcolt-vector.jar</tt>, which requires
+ * <tt>--add-modules jdk.incubator.vector</tt>) is such an implementation. If
+ * no implementation can be loaded, or the system property
+ * <tt>parallelcolt.simd</tt> is <tt>false</tt>, the scalar kernels are used.
+ * <p>
+ * All methods operate on <tt>n</tt> consecutive elements (unit stride)
+ * starting at the given index; the matrices only call them for such layouts.
+ * Functions are recognized by identity, as in the dense matrices; a method
+ * that does not recognize a function returns <tt>false</tt> without touching
+ * the array.
+ * 
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public interface FloatSimdKernels {
+
+    /**
+     * Computes <tt>a[i] = f(a[i])</tt> for <tt>i = idx, ..., idx + n - 1</tt>.
+     * 
+     * @return <tt>false</tt> if <tt>f</tt> is not supported, in which case
+     *         nothing was computed.
+     */
+    boolean assign(float[] a, int idx, int n, FloatFunction f);
+
+    /**
+     * Computes <tt>a[idx + k] = f(a[idx + k], b[bIdx + k])</tt> for
+     * <tt>k = 0, ..., n - 1</tt>. <tt>a</tt> and <tt>b</tt> may be the same
+     * array only if <tt>idx == bIdx</tt> or the ranges do not overlap.
+     * 
+     * @return <tt>false</tt> if <tt>f</tt> is not supported, in which case
+     *         nothing was computed.
+     */
+    boolean assign(float[] a, int idx, float[] b, int bIdx, int n, FloatFloatFunction f);
+
+    /**
+     * Returns whether {@link #aggregate(float[], int, int, FloatFloatFunction, FloatFunction)}
+     * supports the given functions.
+     */
+    boolean isAggregateSupported(FloatFloatFunction aggr, FloatFunction f);
+
+    /**
+     * Returns <tt>aggr(... aggr(f(a[idx]), f(a[idx + 1])) ..., f(a[idx + n - 1]))</tt>,
+     * where <tt>n > 0</tt> and the functions are supported. The order in which
+     * the values are combined is unspecified.
+     */
+    float aggregate(float[] a, int idx, int n, FloatFloatFunction aggr, FloatFunction f);
+
+    /**
+     * Returns the sum of <tt>a[idx], ..., a[idx + n - 1]</tt>.
+     */
+    float zSum(float[] a, int idx, int n);
+
+    /**
+     * Returns the sum of <tt>a[idx + k] * b[bIdx + k]</tt> for
+     * <tt>k = 0, ..., n - 1</tt>.
+     */
+    float zDotProduct(float[] a, int idx, float[] b, int bIdx, int n);
+
+    /**
+     * Computes <tt>y[yIdx + k] += alpha * x[xIdx + k]</tt> for
+     * <tt>k = 0, ..., n - 1</tt>.
+     */
+    void daxpy(int n, float alpha, float[] x, int xIdx, float[] y, int yIdx);
+}
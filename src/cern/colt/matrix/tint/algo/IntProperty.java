@@ -219,9 +219,9 @@ public class IntProperty extends cern.colt.PersistentObject {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -285,9 +285,9 @@ public class IntProperty extends cern.colt.PersistentObject {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -349,9 +349,9 @@ public class IntProperty extends cern.colt.PersistentObject {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -420,9 +420,9 @@ public class IntProperty extends cern.colt.PersistentObject {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -494,9 +494,9 @@ public class IntProperty extends cern.colt.PersistentObject {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
@@ -575,9 +575,9 @@ public class IntProperty extends cern.colt.PersistentObject {
                     result = result && results[j].booleanValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
             return result;
         } else {
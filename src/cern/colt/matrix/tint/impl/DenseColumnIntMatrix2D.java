@@ -1099,9 +1099,9 @@ public class DenseColumnIntMatrix2D extends IntMatrix2D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
@@ -1348,9 +1348,9 @@ public class DenseColumnIntMatrix2D extends IntMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = elements[zero + (rows - 1) * rowStride + (columns - 1) * columnStride];
@@ -1426,9 +1426,9 @@ public class DenseColumnIntMatrix2D extends IntMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = elements[zero + (rows - 1) * rowStride + (columns - 1) * columnStride];
@@ -1580,9 +1580,9 @@ public class DenseColumnIntMatrix2D extends IntMatrix2D {
                     sum += (Integer) futures[j].get();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
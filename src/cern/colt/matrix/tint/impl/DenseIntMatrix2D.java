@@ -16,6 +16,7 @@ import cern.colt.list.tint.IntArrayList;
 import cern.colt.matrix.tint.IntMatrix1D;
 import cern.colt.matrix.tint.IntMatrix2D;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.RangeProcedure;
 
 /**
  * Dense 2-d matrix holding <tt>int</tt> elements. First see the <a
@@ -1065,9 +1066,9 @@ public class DenseIntMatrix2D extends IntMatrix2D {
                     cardinality += results[j].intValue();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -1258,9 +1259,9 @@ public class DenseIntMatrix2D extends IntMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = elements[zero];
@@ -1333,9 +1334,9 @@ public class DenseIntMatrix2D extends IntMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = elements[zero];
@@ -1584,35 +1585,28 @@ public class DenseIntMatrix2D extends IntMatrix2D {
             return this.zMultSequential(B, C, alpha, beta, transposeA, transposeB);
         }
 
-        // set up concurrent tasks
-        int span = width / noOfTasks;
-        final Future<?>[] subTasks = new Future[noOfTasks];
-        for (int i = 0; i < noOfTasks; i++) {
-            final int offset = i * span;
-            if (i == noOfTasks - 1)
-                span = width - span * i; // last span may be a bit larger
-
-            final IntMatrix2D AA, BB, CC;
-            if (splitB) {
-                // split B aint columns into blocks
-                AA = this;
-                BB = B.viewPart(0, offset, columnsA, span);
-                CC = C.viewPart(0, offset, rowsA, span);
-            } else {
-                // split A aint rows into blocks
-                AA = this.viewPart(offset, 0, span, columnsA);
-                BB = B;
-                CC = C.viewPart(offset, 0, span, columnsB);
-            }
-
-            subTasks[i] = ConcurrencyUtils.submit(new Runnable() {
-                public void run() {
-                    ((DenseIntMatrix2D) AA).zMultSequential(BB, CC, alpha, beta, transposeA, transposeB);
+        // set up concurrent tasks, each of them should process at least 30000 flops
+        final boolean splitB_loc = splitB;
+        final IntMatrix2D C_loc = C;
+        int minGrain = (int) Math.max(1, 30000L * width / Math.max(flops, 1));
+        ConcurrencyUtils.parallelFor(0, width, ConcurrencyUtils.getGrainSize(width, minGrain), new RangeProcedure() {
+            public void apply(int offset, int last) {
+                int span = last - offset;
+                final IntMatrix2D AA, BB, CC;
+                if (splitB_loc) {
+                    // split B aint columns into blocks
+                    AA = DenseIntMatrix2D.this;
+                    BB = B.viewPart(0, offset, columnsA, span);
+                    CC = C_loc.viewPart(0, offset, rowsA, span);
+                } else {
+                    // split A aint rows into blocks
+                    AA = DenseIntMatrix2D.this.viewPart(offset, 0, span, columnsA);
+                    BB = B;
+                    CC = C_loc.viewPart(offset, 0, span, columnsB);
                 }
-            });
-        }
-
-        ConcurrencyUtils.waitForCompletion(subTasks);
+                ((DenseIntMatrix2D) AA).zMultSequential(BB, CC, alpha, beta, transposeA, transposeB);
+            }
+        });
         return C;
     }
 
@@ -1650,9 +1644,9 @@ public class DenseIntMatrix2D extends IntMatrix2D {
                     sum += (Integer) futures[j].get();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero;
@@ -1100,9 +1100,9 @@ public class DenseColumnLongMatrix2D extends LongMatrix2D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
@@ -1349,9 +1349,9 @@ public class DenseColumnLongMatrix2D extends LongMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             maxValue = elements[zero + (rows - 1) * rowStride + (columns - 1) * columnStride];
@@ -1427,9 +1427,9 @@ public class DenseColumnLongMatrix2D extends LongMatrix2D {
                     }
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             minValue = elements[zero + (rows - 1) * rowStride + (columns - 1) * columnStride];
@@ -1581,9 +1581,9 @@ public class DenseColumnLongMatrix2D extends LongMatrix2D {
                     sum += (Long) futures[j].get();
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
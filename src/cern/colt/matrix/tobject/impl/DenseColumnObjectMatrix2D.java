@@ -815,9 +815,9 @@ public class DenseColumnObjectMatrix2D extends ObjectMatrix2D {
                     cardinality += results[j];
                 }
             } catch (ExecutionException ex) {
-                ex.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, ex);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                throw ConcurrencyUtils.propagate(futures, e);
             }
         } else {
             int idx = zero + (rows - 1) * rowStride + (columns - 1) * columnStride;
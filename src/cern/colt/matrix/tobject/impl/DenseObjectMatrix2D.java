@@ -429,9 +429,9 @@ public class DenseObjectMatrix2D extends ObjectMatrix2D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 int i = 0;
@@ -478,9 +478,9 @@ public class DenseObjectMatrix2D extends ObjectMatrix2D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 int idx = zero;
@@ -452,9 +452,9 @@ public class DenseObjectMatrix3D extends ObjectMatrix3D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 int i = 0;
@@ -515,9 +515,9 @@ public class DenseObjectMatrix3D extends ObjectMatrix3D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
 
             } else {
@@ -824,9 +824,9 @@ public class DenseObjectMatrix3D extends ObjectMatrix3D {
                         futures[j].get();
                     }
                 } catch (ExecutionException ex) {
-                    ex.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, ex);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    throw ConcurrencyUtils.propagate(futures, e);
                 }
             } else {
                 int idx;
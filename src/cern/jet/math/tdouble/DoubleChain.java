@@ -0,0 +1,52 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.jet.math.tdouble;
+
+import cern.colt.function.tdouble.DoubleFunction;
+
+/**
+ * Only for performance tuning of compute intensive linear algebraic
+ * computations. Constructs functions that return <tt>g( h(a) )</tt>, where
+ * <tt>g</tt> and <tt>h</tt> are unary functions. The components are publicly
+ * accessible, so that dense matrices can apply each of them with a
+ * specialized loop. Intended to be passed to <tt>matrix.assign(function)</tt>
+ * methods.
+ * 
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public final class DoubleChain implements DoubleFunction {
+    /**
+     * The function applied last.
+     */
+    public final DoubleFunction g;
+
+    /**
+     * The function applied first.
+     */
+    public final DoubleFunction h;
+
+    protected DoubleChain(final DoubleFunction g, final DoubleFunction h) {
+        this.g = g;
+        this.h = h;
+    }
+
+    /**
+     * Returns the result of the function evaluation.
+     */
+    public final double apply(double a) {
+        return g.apply(h.apply(a));
+    }
+
+    /**
+     * <tt>g( h(a) )</tt>.
+     */
+    public static DoubleChain chain(final DoubleFunction g, final DoubleFunction h) {
+        return new DoubleChain(g, h);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.jet.math.tdouble;
+
+import cern.colt.function.tdouble.DoubleDoubleFunction;
+import cern.colt.function.tdouble.DoubleFunction;
+
+/**
+ * Only for performance tuning of compute intensive linear algebraic
+ * computations. Constructs functions that return <tt>g( h(a,b) )</tt>, where
+ * <tt>g</tt> is a unary and <tt>h</tt> a binary function. The components are
+ * publicly accessible, so that dense matrices can apply each of them with a
+ * specialized loop. Intended to be passed to
+ * <tt>matrix.assign(otherMatrix,function)</tt> methods.
+ * 
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public final class DoubleDoubleChain implements DoubleDoubleFunction {
+    /**
+     * The unary function applied last.
+     */
+    public final DoubleFunction g;
+
+    /**
+     * The binary function applied first.
+     */
+    public final DoubleDoubleFunction h;
+
+    protected DoubleDoubleChain(final DoubleFunction g, final DoubleDoubleFunction h) {
+        this.g = g;
+        this.h = h;
+    }
+
+    /**
+     * Returns the result of the function evaluation.
+     */
+    public final double apply(double a, double b) {
+        return g.apply(h.apply(a, b));
+    }
+
+    /**
+     * <tt>g( h(a,b) )</tt>.
+     */
+    public static DoubleDoubleChain chain(final DoubleFunction g, final DoubleDoubleFunction h) {
+        return new DoubleDoubleChain(g, h);
+    }
+}
@@ -773,11 +773,7 @@ public class DoubleFunctions extends Object {
      * @return the unary function <tt>g( h(a,b) )</tt>.
      */
     public static DoubleDoubleFunction chain(final DoubleFunction g, final DoubleDoubleFunction h) {
-        return new DoubleDoubleFunction() {
-            public final double apply(double a, double b) {
-                return g.apply(h.apply(a, b));
-            }
-        };
+        return new DoubleDoubleChain(g, h);
     }
 
     /**
@@ -790,11 +786,7 @@ public class DoubleFunctions extends Object {
      * @return the unary function <tt>g( h(a) )</tt>.
      */
     public static DoubleFunction chain(final DoubleFunction g, final DoubleFunction h) {
-        return new DoubleFunction() {
-            public final double apply(double a) {
-                return g.apply(h.apply(a));
-            }
-        };
+        return new DoubleChain(g, h);
     }
 
     /**
@@ -1125,11 +1117,7 @@ public class DoubleFunctions extends Object {
      * variable, <tt>b</tt> is fixed.
      */
     public static DoubleFunction plus(final double b) {
-        return new DoubleFunction() {
-            public final double apply(double a) {
-                return a + b;
-            }
-        };
+        return new DoublePlus(b);
     }
 
     /**
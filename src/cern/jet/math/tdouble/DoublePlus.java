@@ -0,0 +1,54 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose 
+is hereby granted without fee, provided that the above copyright notice appear in all copies and 
+that both that copyright notice and this permission notice appear in supporting documentation. 
+CERN makes no representations about the suitability of this software for any purpose. 
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.jet.math.tdouble;
+
+/**
+ * Only for performance tuning of compute intensive linear algebraic
+ * computations. Constructs functions that return one of
+ * <ul>
+ * <li><tt>a + constant</tt>
+ * <li><tt>a - constant</tt>
+ * </ul>
+ * <tt>a</tt> is variable, <tt>constant</tt> is fixed, but for performance
+ * reasons publicly accessible. Intended to be passed to
+ * <tt>matrix.assign(function)</tt> methods.
+ * 
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public final class DoublePlus implements cern.colt.function.tdouble.DoubleFunction {
+    /**
+     * Public read/write access to avoid frequent object construction.
+     */
+    public double addend;
+
+    protected DoublePlus(final double addend) {
+        this.addend = addend;
+    }
+
+    /**
+     * Returns the result of the function evaluation.
+     */
+    public final double apply(double a) {
+        return a + addend;
+    }
+
+    /**
+     * <tt>a - constant</tt>.
+     */
+    public static DoublePlus minus(final double constant) {
+        return plus(-constant);
+    }
+
+    /**
+     * <tt>a + constant</tt>.
+     */
+    public static DoublePlus plus(final double constant) {
+        return new DoublePlus(constant);
+    }
+}
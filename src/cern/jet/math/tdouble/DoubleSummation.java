@@ -0,0 +1,331 @@
+/*
+Copyright (C) 1999 CERN - European Organization for Nuclear Research.
+Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
+is hereby granted without fee, provided that the above copyright notice appear in all copies and
+that both that copyright notice and this permission notice appear in supporting documentation.
+CERN makes no representations about the suitability of this software for any purpose.
+It is provided "as is" without expressed or implied warranty.
+ */
+package cern.jet.math.tdouble;
+
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.DoubleRangeFunction;
+import edu.emory.mathcs.utils.RangeProcedure;
+
+/**
+ * Summation of long sequences of terms with a selectable accuracy. The mode
+ * returned by {@link #getMode()} is used by <tt>zSum</tt>,
+ * <tt>zDotProduct</tt> and <tt>aggregate(DoubleFunctions.plus, ...)</tt> of
+ * the 1-d matrices, and thus also by
+ * {@link cern.colt.matrix.tdouble.algo.DoubleStatistic#covariance}.
+ * <p>
+ * Except for {@link Mode#Naive}, the terms are summed in blocks of
+ * {@link #BLOCK_SIZE} terms and the partial sums of the blocks are combined in
+ * a fixed order. The result is therefore the same for any number of threads,
+ * and the same whether the sum is computed in parallel or not.
+ *
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public class DoubleSummation {
+
+    /**
+     * Summation algorithms.
+     */
+    public enum Mode {
+
+        /**
+         * The terms are added one after another. This is the fastest mode,
+         * but the error grows linearly with the number of terms, and the
+         * parallel result depends on the number of threads.
+         */
+        Naive,
+
+        /**
+         * Pairwise (cascade) summation; the error grows with the logarithm of
+         * the number of terms.
+         */
+        Pairwise,
+
+        /**
+         * Kahan-Neumaier compensated summation; the error does not depend on
+         * the number of terms. About two to four times slower than
+         * {@link #Naive}.
+         */
+        Kahan,
+
+        /**
+         * The terms of each block are added one after another, the sums of the
+         * blocks are combined pairwise. Nearly as fast as {@link #Naive}, but
+         * reproducible.
+         */
+        FixedBlock
+    }
+
+    /**
+     * Terms of a sum. Subclasses must implement {@link #get(int)} and may
+     * override the other methods with faster loops.
+     */
+    public static abstract class Terms {
+
+        /**
+         * Returns the <tt>i</tt>-th term.
+         */
+        public abstract double get(int i);
+
+        /**
+         * Returns the sum of the terms <tt>first, ..., last - 1</tt>, added one
+         * after another.
+         */
+        public double sum(int first, int last) {
+            double sum = 0;
+            for (int i = first; i < last; i++) {
+                sum += get(i);
+            }
+            return sum;
+        }
+
+        /**
+         * Sums the terms <tt>first, ..., last - 1</tt> with the Kahan-Neumaier
+         * algorithm and stores the sum in <tt>result[2 * k]</tt> and the
+         * compensation in <tt>result[2 * k + 1]</tt>.
+         */
+        public void sumCompensated(int first, int last, double[] result, int k) {
+            double sum = 0;
+            double c = 0;
+            for (int i = first; i < last; i++) {
+                double x = get(i);
+                double t = sum + x;
+                if (Math.abs(sum) >= Math.abs(x)) {
+                    c += (sum - t) + x;
+                } else {
+                    c += (x - t) + sum;
+                }
+                sum = t;
+            }
+            result[2 * k] = sum;
+            result[2 * k + 1] = c;
+        }
+    }
+
+    /**
+     * The number of terms that are summed as a unit.
+     */
+    public static final int BLOCK_SIZE = 4096;
+
+    /*
+     * Ranges of at most this many terms are summed naively by the pairwise
+     * algorithm.
+     */
+    private static final int PAIRWISE_LEAF = 128;
+
+    private static volatile Mode mode = Mode.Naive;
+
+    /**
+     * Makes this class non instantiable, but still let's others inherit from
+     * it.
+     */
+    protected DoubleSummation() {
+    }
+
+    /**
+     * Returns the summation mode used by the matrices. The default is
+     * {@link Mode#Naive}, which is replaced by {@link Mode#FixedBlock} in the
+     * reproducible mode of {@link ConcurrencyUtils}.
+     *
+     * @return the summation mode
+     */
+    public static Mode getMode() {
+        Mode m = mode;
+        if (m == Mode.Naive && ConcurrencyUtils.isReproducible()) {
+            return Mode.FixedBlock;
+        }
+        return m;
+    }
+
+    /**
+     * Sets the summation mode used by the matrices.
+     *
+     * @param mode
+     *            the summation mode
+     * @throws IllegalArgumentException
+     *             if <tt>mode == null</tt>.
+     */
+    public static void setMode(Mode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode == null");
+        }
+        DoubleSummation.mode = mode;
+    }
+
+    /**
+     * Returns the sum of the terms <tt>0, ..., n - 1</tt>.
+     *
+     * @param terms
+     *            the terms
+     * @param n
+     *            the number of terms
+     * @param mode
+     *            the summation mode
+     * @param parallel
+     *            whether the blocks are summed in parallel
+     * @return the sum
+     */
+    public static double sum(final Terms terms, int n, final Mode mode, boolean parallel) {
+        if (n <= 0) {
+            return 0;
+        }
+        if (mode == Mode.Naive) {
+            if (!parallel) {
+                return terms.sum(0, n);
+            }
+            return ConcurrencyUtils.parallelReduce(0, n, ConcurrencyUtils.getGrainSize(n, BLOCK_SIZE),
+                    new DoubleRangeFunction() {
+                        public double apply(int first, int last) {
+                            return terms.sum(first, last);
+                        }
+                    }, DoubleFunctions.plus);
+        }
+        final int nblocks = (n - 1) / BLOCK_SIZE + 1;
+        final double[] partial = new double[mode == Mode.Kahan ? 2 * nblocks : nblocks];
+        final int size = n;
+        RangeProcedure blocks = new RangeProcedure() {
+            public void apply(int firstBlock, int lastBlock) {
+                for (int k = firstBlock; k < lastBlock; k++) {
+                    int first = k * BLOCK_SIZE;
+                    int last = Math.min(size, first + BLOCK_SIZE);
+                    switch (mode) {
+                    case Pairwise:
+                        partial[k] = pairwise(terms, first, last);
+                        break;
+                    case Kahan:
+                        terms.sumCompensated(first, last, partial, k);
+                        break;
+                    default:
+                        partial[k] = terms.sum(first, last);
+                    }
+                }
+            }
+        };
+        if (parallel && nblocks > 1) {
+            ConcurrencyUtils.parallelFor(0, nblocks, 1, blocks);
+        } else {
+            blocks.apply(0, nblocks);
+        }
+        if (mode == Mode.Kahan) {
+            return combineCompensated(partial, nblocks);
+        }
+        return pairwise(partial, 0, nblocks);
+    }
+
+    /**
+     * Returns the sum of the <tt>n</tt> elements <tt>a[idx + i * stride]</tt>.
+     *
+     * @param a
+     *            the elements
+     * @param idx
+     *            the index of the first element
+     * @param stride
+     *            the number of indexes between any two elements
+     * @param n
+     *            the number of elements
+     * @param mode
+     *            the summation mode
+     * @param parallel
+     *            whether the blocks are summed in parallel
+     * @return the sum
+     */
+    public static double sum(final double[] a, final int idx, final int stride, int n, Mode mode, boolean parallel) {
+        return sum(new Terms() {
+            public double get(int i) {
+                return a[idx + i * stride];
+            }
+
+            public double sum(int first, int last) {
+                double sum = 0;
+                for (int i = idx + first * stride, k = last - first; --k >= 0; i += stride) {
+                    sum += a[i];
+                }
+                return sum;
+            }
+        }, n, mode, parallel);
+    }
+
+    /**
+     * Returns the dot product of the <tt>n</tt> elements
+     * <tt>a[aIdx + i * aStride]</tt> and <tt>b[bIdx + i * bStride]</tt>.
+     *
+     * @param a
+     *            the elements of the first vector
+     * @param aIdx
+     *            the index of the first element of <tt>a</tt>
+     * @param aStride
+     *            the number of indexes between any two elements of <tt>a</tt>
+     * @param b
+     *            the elements of the second vector
+     * @param bIdx
+     *            the index of the first element of <tt>b</tt>
+     * @param bStride
+     *            the number of indexes between any two elements of <tt>b</tt>
+     * @param n
+     *            the number of elements
+     * @param mode
+     *            the summation mode
+     * @param parallel
+     *            whether the blocks are summed in parallel
+     * @return the dot product
+     */
+    public static double dot(final double[] a, final int aIdx, final int aStride, final double[] b, final int bIdx,
+            final int bStride, int n, Mode mode, boolean parallel) {
+        return sum(new Terms() {
+            public double get(int i) {
+                return a[aIdx + i * aStride] * b[bIdx + i * bStride];
+            }
+
+            public double sum(int first, int last) {
+                double sum = 0;
+                int j = bIdx + first * bStride;
+                for (int i = aIdx + first * aStride, k = last - first; --k >= 0; i += aStride, j += bStride) {
+                    sum += a[i] * b[j];
+                }
+                return sum;
+            }
+        }, n, mode, parallel);
+    }
+
+    private static double pairwise(Terms terms, int first, int last) {
+        if (last - first <= PAIRWISE_LEAF) {
+            return terms.sum(first, last);
+        }
+        int middle = (first + last) >>> 1;
+        return pairwise(terms, first, middle) + pairwise(terms, middle, last);
+    }
+
+    private static double pairwise(double[] a, int first, int last) {
+        if (last - first <= 2) {
+            return (last - first == 1) ? a[first] : a[first] + a[first + 1];
+        }
+        int middle = (first + last) >>> 1;
+        return pairwise(a, first, middle) + pairwise(a, middle, last);
+    }
+
+    /*
+     * Combines the sums and compensations of the blocks stored by
+     * Terms.sumCompensated.
+     */
+    private static double combineCompensated(double[] partial, int nblocks) {
+        double sum = 0;
+        double c = 0;
+        for (int k = 0; k < nblocks; k++) {
+            double x = partial[2 * k];
+            double t = sum + x;
+            if (Math.abs(sum) >= Math.abs(x)) {
+                c += (sum - t) + x;
+            } else {
+                c += (x - t) + sum;
+            }
+            sum = t;
+            c += partial[2 * k + 1];
+        }
+        return sum + c;
+    }
+}
@@ -0,0 +1,310 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Parallel Colt.
+ *
+ * The Initial Developer of the Original Code is
+ * Piotr Wendykier, Emory University.
+ * Portions created by the Initial Developer are Copyright (C) 2007
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package edu.emory.mathcs.utils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parallelism settings scoped to a thread. A context is opened with
+ * {@link ConcurrencyUtils#openContext()} and is active in the opening thread
+ * and in all tasks submitted through {@link ConcurrencyUtils} from that thread
+ * (including nested ones) until it is closed. Settings that are not set in the
+ * context are inherited from the enclosing context or, if there is none, from
+ * the global settings of {@link ConcurrencyUtils}. Typical usage:
+ * 
+ * <pre>
+ * ConcurrencyContext context = ConcurrencyUtils.openContext();
+ * try {
+ *     context.setNumberOfThreads(2);
+ *     context.setThreadsBeginN_2D(1024 * 1024);
+ *     A.zMult(B, C);
+ * } finally {
+ *     context.close();
+ * }
+ * </pre>
+ * 
+ * or, equivalently, a try-with-resources statement. Contexts must be closed
+ * in the reverse order of opening, by the thread that opened them. A context
+ * should be configured before it is used to run parallel computations; it is
+ * not meant to be modified concurrently.
+ * <p>
+ * A context can also be cancelled from any thread with {@link #cancel()}, or
+ * given a deadline with {@link #setDeadline(long, TimeUnit)}. Cancellation is
+ * cooperative: the tasks running in the context are interrupted and the
+ * parallel kernels stop at their next check, throwing a
+ * <tt>CancellationException</tt> in the thread waiting for the result.
+ * 
+ * @author Piotr Wendykier (piotr.wendykier@gmail.com)
+ */
+public class ConcurrencyContext implements AutoCloseable {
+
+    private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "ConcurrencyContext-timer");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    static {
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    final ConcurrencyContext parent;
+
+    private final Thread owner;
+
+    private boolean closed = false;
+
+    int nthreads;
+
+    int threadsBeginN_1D;
+
+    int threadsBeginN_2D;
+
+    int threadsBeginN_3D;
+
+    int threadsBeginN_1D_FFT_2Threads;
+
+    int threadsBeginN_1D_FFT_4Threads;
+
+    ExecutorService threadPool;
+
+    final Map<String, Integer> threadsBeginN_Kernels = new ConcurrentHashMap<String, Integer>();
+
+    private volatile boolean cancelled = false;
+
+    private volatile boolean hasDeadline = false;
+
+    private volatile long deadline;
+
+    private ScheduledFuture<?> deadlineTimer;
+
+    private final Set<Future<?>> tasks = Collections.newSetFromMap(new ConcurrentHashMap<Future<?>, Boolean>());
+
+    ConcurrencyContext(ConcurrencyContext parent) {
+        this.parent = parent;
+        this.owner = Thread.currentThread();
+    }
+
+    /**
+     * Sets the number of threads used in this context.
+     * 
+     * @param n
+     *            the number of threads
+     */
+    public void setNumberOfThreads(int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("n must be greater or equal 1");
+        nthreads = n;
+    }
+
+    /**
+     * Sets the minimal size of 1D data for which threads are used in this
+     * context.
+     * 
+     * @param n
+     *            the minimal size of 1D data for which threads are used
+     */
+    public void setThreadsBeginN_1D(int n) {
+        threadsBeginN_1D = Math.max(n, 1);
+    }
+
+    /**
+     * Sets the minimal size of 2D data for which threads are used in this
+     * context.
+     * 
+     * @param n
+     *            the minimal size of 2D data for which threads are used
+     */
+    public void setThreadsBeginN_2D(int n) {
+        threadsBeginN_2D = Math.max(n, 1);
+    }
+
+    /**
+     * Sets the minimal size of 3D data for which threads are used in this
+     * context.
+     * 
+     * @param n
+     *            the minimal size of 3D data for which threads are used
+     */
+    public void setThreadsBeginN_3D(int n) {
+        threadsBeginN_3D = Math.max(n, 1);
+    }
+
+    /**
+     * Sets the minimal size of 1D data for which two threads are used by FFTs
+     * in this context.
+     * 
+     * @param n
+     *            the minimal size of 1D data for which two threads are used
+     */
+    public void setThreadsBeginN_1D_FFT_2Threads(int n) {
+        threadsBeginN_1D_FFT_2Threads = Math.max(n, 512);
+    }
+
+    /**
+     * Sets the minimal size of 1D data for which four threads are used by FFTs
+     * in this context.
+     * 
+     * @param n
+     *            the minimal size of 1D data for which four threads are used
+     */
+    public void setThreadsBeginN_1D_FFT_4Threads(int n) {
+        threadsBeginN_1D_FFT_4Threads = Math.max(n, 512);
+    }
+
+    /**
+     * Sets the minimal size of data for which threads are used by the given
+     * kernel in this context.
+     * 
+     * @param kernel
+     *            the name of the kernel, e.g. <tt>"DenseDoubleMatrix2D.zMult"</tt>
+     * @param n
+     *            the minimal size of data for which threads are used by the
+     *            kernel
+     */
+    public void setThreadsBeginN(String kernel, int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("n must be greater or equal 1");
+        threadsBeginN_Kernels.put(kernel, n);
+    }
+
+    /**
+     * Sets the executor used to run parallel tasks in this context. The
+     * executor is not shut down when the context is closed.
+     * 
+     * @param pool
+     *            the executor or <tt>null</tt> to inherit the executor
+     */
+    public void setThreadPool(ExecutorService pool) {
+        threadPool = pool;
+    }
+
+    /**
+     * Sets the deadline of computations run in this context. When the
+     * deadline passes, the computations are cancelled.
+     * 
+     * @param timeout
+     *            the time from now after which the computations are cancelled
+     * @param unit
+     *            the unit of <tt>timeout</tt>
+     */
+    public synchronized void setDeadline(long timeout, TimeUnit unit) {
+        deadline = System.nanoTime() + unit.toNanos(timeout);
+        hasDeadline = true;
+        if (deadlineTimer != null) {
+            deadlineTimer.cancel(false);
+        }
+        deadlineTimer = TIMER.schedule(new Runnable() {
+            public void run() {
+                cancel();
+            }
+        }, timeout, unit);
+    }
+
+    /**
+     * Cancels the computations run in this context and in all contexts nested
+     * in it. This method can be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Future<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Returns true if this context or an enclosing one has been cancelled or
+     * its deadline has passed.
+     * 
+     * @return true if this context has been cancelled
+     */
+    public boolean isCancelled() {
+        for (ConcurrencyContext c = this; c != null; c = c.parent) {
+            if (c.cancelled || (c.hasDeadline && (System.nanoTime() - c.deadline >= 0))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void register(Future<?> task) {
+        for (ConcurrencyContext c = this; c != null; c = c.parent) {
+            c.tasks.add(task);
+            if (c.cancelled) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    void unregister(Future<?> task) {
+        for (ConcurrencyContext c = this; c != null; c = c.parent) {
+            c.tasks.remove(task);
+        }
+    }
+
+    /**
+     * Closes this context and restores the enclosing one.
+     * 
+     * @throws IllegalStateException
+     *             if this context is not the innermost open context of the
+     *             calling thread
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        if ((Thread.currentThread() != owner) || (ConcurrencyUtils.getContext() != this)) {
+            throw new IllegalStateException("contexts must be closed in reverse order by the thread that opened them");
+        }
+        closed = true;
+        synchronized (this) {
+            if (deadlineTimer != null) {
+                deadlineTimer.cancel(false);
+                deadlineTimer = null;
+            }
+        }
+        ConcurrencyUtils.setContext(parent);
+    }
+}
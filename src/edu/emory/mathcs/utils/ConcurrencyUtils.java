@@ -33,11 +33,28 @@
  * ***** END LICENSE BLOCK ***** */
 package edu.emory.mathcs.utils;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.ThreadFactory;
 
 import cern.colt.function.tdcomplex.DComplexDComplexDComplexFunction;
@@ -50,15 +67,93 @@ import cern.colt.function.tobject.ObjectObjectFunction;
 
 /**
  * Concurrency utilities.
+ * <p>
+ * All parallel code paths of Parallel Colt (matrices, FFTs, histograms,
+ * sorting) submit their tasks through this class. By default an unbounded,
+ * cached thread pool is used. A shared application can replace it with its
+ * own executor (for example a fixed thread pool or a
+ * <tt>java.util.concurrent.ForkJoinPool</tt>) by calling
+ * {@link #setThreadPool(ExecutorService)}, which caps the number of threads
+ * used by the library. When a bounded executor is installed, tasks submitted
+ * from one of its own worker threads are executed in the calling thread, so
+ * nested parallel calls cannot exhaust the pool.
+ * <p>
+ * In addition to the <tt>submit</tt>/<tt>waitForCompletion</tt> pattern,
+ * this class provides a work-stealing fork/join engine
+ * ({@link #parallelFor(int, int, int, RangeProcedure)} and
+ * {@link #parallelReduce(int, int, int, DoubleRangeFunction, DoubleDoubleFunction)}
+ * ). Reductions return primitive values (see also <tt>parallelReduceFloat</tt>,
+ * <tt>parallelReduceInt</tt> and <tt>parallelReduceLong</tt>); the partial
+ * results are kept in fields of the fork/join tasks, so nothing is boxed.
+ * Ranges are split recursively and adaptively, so uneven work (e.g.
+ * triangular loops) is balanced by stealing, and a kernel invoked from inside
+ * another fork/join kernel runs in the same pool instead of blocking its
+ * workers. If an executor other than a <tt>ForkJoinPool</tt> is installed
+ * (globally or in a context), the fork/join methods do not use a pool of their
+ * own: the range is split into about one part per thread and the parts are
+ * submitted to that executor, so the executor still caps the number of
+ * threads.
+ * <p>
+ * The minimal data sizes for which threads are used can be set globally (
+ * {@link #setThreadsBeginN_1D(int)} etc.) or per kernel (
+ * {@link #setThreadsBeginN(String, int)}). Per-kernel values are keyed by the
+ * simple class name and the method name, e.g.
+ * <tt>"DenseDoubleMatrix2D.assign"</tt>, and are usually measured by
+ * <tt>cern.colt.matrix.ThresholdCalibrator</tt>. All values can be saved to
+ * and loaded from a profile file ({@link #saveThresholds(String)},
+ * {@link #loadThresholds(String)}). If the system property
+ * <tt>parallelcolt.thresholds</tt> names an existing profile file, it is
+ * loaded when this class is initialized.
+ * <p>
+ * All settings (number of threads, thresholds, executor) can be overridden for
+ * the current thread and the tasks it submits by a {@link ConcurrencyContext}
+ * (see {@link #openContext()}); the getters of this class always return the
+ * values in effect for the calling thread.
+ * <p>
+ * Failures of parallel tasks are not swallowed: when a task throws, the
+ * remaining tasks are cancelled and the exception is rethrown in the waiting
+ * thread (checked exceptions are wrapped in a <tt>RuntimeException</tt>).
+ * Interrupting the waiting thread, or cancelling its context (
+ * {@link ConcurrencyContext#cancel()},
+ * {@link ConcurrencyContext#setDeadline(long, java.util.concurrent.TimeUnit)}
+ * ), cancels the computation and throws a <tt>CancellationException</tt>.
+ * Long-running loops call {@link #checkCancelled()} to stop early.
+ * <p>
+ * By default the ranges of a reduction depend on the number of threads, and
+ * so do the rounding errors of floating-point reductions. In reproducible mode
+ * ({@link #setReproducible(boolean)}) the ranges depend only on the size of
+ * the reduction and the partial results are combined in a fixed order, so the
+ * result is the same for any number of threads, provided that the thresholds
+ * are the same.
  * 
  * @author Piotr Wendykier (piotr.wendykier@gmail.com)
  */
 public class ConcurrencyUtils {
-    private static ExecutorService THREAD_POOL = Executors.newCachedThreadPool(new CustomThreadFactory(
-            new CustomExceptionHandler()));
+    private static ExecutorService THREAD_POOL = newDefaultThreadPool();
+
+    private static boolean CUSTOM_THREAD_POOL = false;
+
+    private static final ThreadLocal<ExecutorService> CURRENT_POOL = new ThreadLocal<ExecutorService>();
+
+    private static final ThreadLocal<ConcurrencyContext> CONTEXT = new ThreadLocal<ConcurrencyContext>();
+
+    private static final Map<Integer, ForkJoinPool> FORK_JOIN_POOLS = new HashMap<Integer, ForkJoinPool>();
+
+    /**
+     * Maximal number of forked but not yet stolen subtasks of a worker. When it
+     * is exceeded a range is no longer split.
+     */
+    private static final int SURPLUS_QUEUED_TASKS = 3;
 
     private static int NTHREADS = getNumberOfProcessors();
 
+    private static volatile boolean REPRODUCIBLE = false;
+
+    /**
+     * Number of parts of a reduction in reproducible mode.
+     */
+    private static final int REPRODUCIBLE_PARTS = 64;
+
     private static int THREADS_BEGIN_N_1D_FFT_2THREADS = 8192;
 
     private static int THREADS_BEGIN_N_1D_FFT_4THREADS = 65536;
@@ -69,6 +164,25 @@ public class ConcurrencyUtils {
 
     private static int THREADS_BEGIN_N_3D = 65536;
 
+    private static final Map<String, Integer> THREADS_BEGIN_N_KERNELS = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * The name of the system property holding the path of the thresholds
+     * profile loaded at startup.
+     */
+    public static final String THRESHOLDS_PROPERTY = "parallelcolt.thresholds";
+
+    static {
+        String profile = System.getProperty(THRESHOLDS_PROPERTY);
+        if ((profile != null) && new File(profile).isFile()) {
+            try {
+                loadThresholds(profile);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     private static class CustomExceptionHandler implements Thread.UncaughtExceptionHandler {
         public void uncaughtException(Thread t, Throwable e) {
             e.printStackTrace();
@@ -102,15 +216,150 @@ public class ConcurrencyUtils {
         try {
             Thread.sleep(millis);
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Shutdowns the thread pool.
+     * Shutdowns the default thread pool and the fork/join pools created by
+     * this class. An executor set with {@link #setThreadPool(ExecutorService)}
+     * is owned by the caller and is not shut down.
      */
-    public static void shutdown() {
-        THREAD_POOL.shutdown();
+    public static synchronized void shutdown() {
+        if (!CUSTOM_THREAD_POOL) {
+            THREAD_POOL.shutdown();
+        }
+        synchronized (FORK_JOIN_POOLS) {
+            for (ForkJoinPool forkJoinPool : FORK_JOIN_POOLS.values()) {
+                forkJoinPool.shutdown();
+            }
+            FORK_JOIN_POOLS.clear();
+        }
+    }
+
+    /**
+     * Opens a new context for the calling thread. Until the context is closed,
+     * the settings made in the context apply to the calling thread and to all
+     * tasks submitted from it.
+     * 
+     * @return the new context
+     */
+    public static ConcurrencyContext openContext() {
+        ConcurrencyContext context = new ConcurrencyContext(CONTEXT.get());
+        CONTEXT.set(context);
+        return context;
+    }
+
+    /**
+     * Opens a new context in which the number of threads is the current number
+     * of threads rounded up to a power of two, as required by the FFT, DCT, DST
+     * and DHT methods. Unlike changing the number of threads with
+     * {@link #setNumberOfThreads(int)} and restoring it, this neither changes
+     * the global setting nor the setting of an enclosing context, so it is safe
+     * when several threads run transforms at the same time. Typical usage:
+     * 
+     * <pre>
+     * ConcurrencyContext context = ConcurrencyUtils.openPowerOfTwoContext();
+     * try {
+     *     fft.complexForward(elements);
+     * } finally {
+     *     context.close();
+     * }
+     * </pre>
+     * 
+     * @return the new context
+     */
+    public static ConcurrencyContext openPowerOfTwoContext() {
+        int nthreads = nextPow2(getNumberOfThreads());
+        ConcurrencyContext context = openContext();
+        context.setNumberOfThreads(nthreads);
+        return context;
+    }
+
+    /**
+     * Returns the innermost open context of the calling thread.
+     * 
+     * @return the innermost open context or <tt>null</tt>
+     */
+    public static ConcurrencyContext getContext() {
+        return CONTEXT.get();
+    }
+
+    static void setContext(ConcurrencyContext context) {
+        if (context == null) {
+            CONTEXT.remove();
+        } else {
+            CONTEXT.set(context);
+        }
+    }
+
+    /**
+     * Returns the executor used to run parallel tasks.
+     * 
+     * @return the executor used to run parallel tasks
+     */
+    public static ExecutorService getThreadPool() {
+        for (ConcurrencyContext c = CONTEXT.get(); c != null; c = c.parent) {
+            if (c.threadPool != null) {
+                return c.threadPool;
+            }
+        }
+        return getGlobalThreadPool();
+    }
+
+    private static synchronized ExecutorService getGlobalThreadPool() {
+        if (!CUSTOM_THREAD_POOL && (THREAD_POOL.isShutdown() || THREAD_POOL.isTerminated())) {
+            THREAD_POOL = newDefaultThreadPool();
+        }
+        return THREAD_POOL;
+    }
+
+    /**
+     * Sets the executor used to run parallel tasks. The executor is not owned
+     * by this class, i.e. it is not recreated after a shutdown and the caller
+     * is responsible for shutting it down. If <tt>pool</tt> is <tt>null</tt>
+     * the default, unbounded thread pool is restored.
+     * <p>
+     * Note that the number of tasks a parallel method is split into is still
+     * controlled by {@link #setNumberOfThreads(int)}; the executor only
+     * determines how many of them run at the same time.
+     * 
+     * @param pool
+     *            the executor or <tt>null</tt>
+     */
+    public static synchronized void setThreadPool(ExecutorService pool) {
+        if (pool == null) {
+            resetThreadPool();
+        } else {
+            THREAD_POOL = pool;
+            CUSTOM_THREAD_POOL = true;
+        }
+    }
+
+    /**
+     * Restores the default, unbounded thread pool. The previously set executor
+     * is not shut down.
+     */
+    public static synchronized void resetThreadPool() {
+        if (CUSTOM_THREAD_POOL || THREAD_POOL.isShutdown()) {
+            THREAD_POOL = newDefaultThreadPool();
+            CUSTOM_THREAD_POOL = false;
+        }
+    }
+
+    /**
+     * Creates a thread pool reusing a fixed number of daemon threads. The pool
+     * can be passed to {@link #setThreadPool(ExecutorService)} to cap the
+     * number of threads used by Parallel Colt.
+     * 
+     * @param nthreads
+     *            the number of threads in the pool
+     * @return a new fixed thread pool
+     */
+    public static ExecutorService newFixedThreadPool(int nthreads) {
+        if (nthreads < 1)
+            throw new IllegalArgumentException("nthreads must be greater or equal 1");
+        return Executors.newFixedThreadPool(nthreads, new CustomThreadFactory(new CustomExceptionHandler()));
     }
 
     /**
@@ -123,10 +372,7 @@ public class ConcurrencyUtils {
      * @return a handle to the task submitted for execution
      */
     public static <T> Future<T> submit(Callable<T> task) {
-        if (THREAD_POOL.isShutdown() || THREAD_POOL.isTerminated()) {
-            THREAD_POOL = Executors.newCachedThreadPool(new CustomThreadFactory(new CustomExceptionHandler()));
-        }
-        return THREAD_POOL.submit(task);
+        return execute(new FutureTask<T>(task));
     }
 
     /**
@@ -138,10 +384,885 @@ public class ConcurrencyUtils {
      * @return a handle to the task submitted for execution
      */
     public static Future<?> submit(Runnable task) {
-        if (THREAD_POOL.isShutdown() || THREAD_POOL.isTerminated()) {
-            THREAD_POOL = Executors.newCachedThreadPool(new CustomThreadFactory(new CustomExceptionHandler()));
+        return execute(new FutureTask<Object>(task, null));
+    }
+
+    private static <T> Future<T> execute(final FutureTask<T> future) {
+        final ConcurrencyContext context = CONTEXT.get();
+        ExecutorService pool = getThreadPool();
+        boolean custom;
+        synchronized (ConcurrencyUtils.class) {
+            custom = CUSTOM_THREAD_POOL || (pool != THREAD_POOL);
+        }
+        if (custom && CURRENT_POOL.get() == pool) {
+            // nested call from a worker of a bounded pool: run in place
+            future.run();
+            return future;
+        }
+        if (context != null) {
+            context.register(future);
+        }
+        final ExecutorService pool_loc = pool;
+        pool.execute(new Runnable() {
+            public void run() {
+                ExecutorService previousPool = CURRENT_POOL.get();
+                ConcurrencyContext previousContext = CONTEXT.get();
+                CURRENT_POOL.set(pool_loc);
+                setContext(context);
+                try {
+                    future.run();
+                } finally {
+                    CURRENT_POOL.set(previousPool);
+                    setContext(previousContext);
+                    if (context != null) {
+                        context.unregister(future);
+                    }
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns the fork/join pool used by the fork/join methods of this class.
+     * If a <tt>ForkJoinPool</tt> was installed with
+     * {@link #setThreadPool(ExecutorService)} (or in the current context),
+     * that pool is returned. Otherwise a shared pool with the parallelism level
+     * equal to {@link #getNumberOfThreads()} is used; these pools are shut down
+     * by {@link #shutdown()}. Note that the fork/join methods of this class do
+     * not use this pool when an executor other than a <tt>ForkJoinPool</tt> is
+     * installed.
+     * 
+     * @return the fork/join pool
+     */
+    public static ForkJoinPool getForkJoinPool() {
+        ExecutorService pool = getThreadPool();
+        if (pool instanceof ForkJoinPool) {
+            return (ForkJoinPool) pool;
+        }
+        int nthreads = getNumberOfThreads();
+        synchronized (FORK_JOIN_POOLS) {
+            ForkJoinPool forkJoinPool = FORK_JOIN_POOLS.get(nthreads);
+            if ((forkJoinPool == null) || forkJoinPool.isShutdown()) {
+                forkJoinPool = new ForkJoinPool(nthreads);
+                FORK_JOIN_POOLS.put(nthreads, forkJoinPool);
+            }
+            return forkJoinPool;
+        }
+    }
+
+    /**
+     * Performs the given task and returns its result. If the calling thread is
+     * a fork/join worker, the task is executed in the current pool (nested
+     * parallelism), otherwise it is executed in {@link #getForkJoinPool()}. An
+     * unchecked exception thrown by the task is rethrown as is.
+     * 
+     * @param <T>
+     * @param task
+     *            the task
+     * @return the result of the task
+     */
+    public static <T> T invoke(ForkJoinTask<T> task) {
+        try {
+            if (ForkJoinTask.inForkJoinPool()) {
+                return task.invoke();
+            }
+            ConcurrencyContext context = CONTEXT.get();
+            if (context == null) {
+                return getForkJoinPool().invoke(task);
+            }
+            context.register(task);
+            try {
+                return getForkJoinPool().invoke(task);
+            } finally {
+                context.unregister(task);
+            }
+        } catch (RuntimeException e) {
+            throw unwrap(e);
+        } catch (Error e) {
+            throw unwrap(e);
+        }
+    }
+
+    /*
+     * A fork/join task rethrows the exception of a task run by another worker
+     * as a copy of the same class that has the original exception as its cause,
+     * once for every join on the way to the caller.
+     */
+    private static <T extends Throwable> T unwrap(T e) {
+        Throwable cause = e.getCause();
+        while ((cause != null) && (cause.getClass() == e.getClass())) {
+            @SuppressWarnings("unchecked")
+            T t = (T) cause;
+            e = t;
+            cause = e.getCause();
+        }
+        return e;
+    }
+
+    /*
+     * The fork/join engine is used unless an executor other than a
+     * ForkJoinPool has been installed, globally or in the current context.
+     */
+    private static boolean isForkJoinPoolUsed() {
+        ExecutorService pool = getThreadPool();
+        if (pool instanceof ForkJoinPool) {
+            return true;
+        }
+        synchronized (ConcurrencyUtils.class) {
+            return !CUSTOM_THREAD_POOL && (pool == THREAD_POOL);
+        }
+    }
+
+    /**
+     * Returns true if the calling thread has been interrupted or its context
+     * has been cancelled.
+     * 
+     * @return true if the current computation should stop
+     */
+    public static boolean isCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        ConcurrencyContext context = CONTEXT.get();
+        return (context != null) && context.isCancelled();
+    }
+
+    /**
+     * Throws a <tt>CancellationException</tt> if the calling thread has been
+     * interrupted or its context has been cancelled. Long-running kernels call
+     * this method periodically.
+     * 
+     * @throws CancellationException
+     *             if the current computation should stop
+     */
+    public static void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("computation cancelled");
         }
-        return THREAD_POOL.submit(task);
+    }
+
+    /**
+     * Cancels the tasks and converts the exception thrown while waiting for
+     * one of them into an unchecked exception. The cause of an
+     * <tt>ExecutionException</tt> is rethrown as is if it is unchecked, an
+     * <tt>InterruptedException</tt> becomes a <tt>CancellationException</tt>
+     * (the interrupt status of the calling thread is restored). Typical usage:
+     * 
+     * <pre>
+     * try {
+     *     for (int j = 0; j &lt; nthreads; j++) {
+     *         futures[j].get();
+     *     }
+     * } catch (ExecutionException ex) {
+     *     throw ConcurrencyUtils.propagate(futures, ex);
+     * } catch (InterruptedException e) {
+     *     throw ConcurrencyUtils.propagate(futures, e);
+     * }
+     * </pre>
+     * 
+     * @param futures
+     *            handles to running threads
+     * @param e
+     *            the exception thrown by <tt>Future.get</tt>
+     * @return the exception to be thrown by the caller
+     */
+    public static RuntimeException propagate(Future<?>[] futures, Exception e) {
+        for (int j = 0; j < futures.length; j++) {
+            if (futures[j] != null) {
+                futures[j].cancel(true);
+            }
+        }
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            CancellationException ce = new CancellationException("interrupted while waiting for the computation");
+            ce.initCause(e);
+            return ce;
+        }
+        Throwable cause = (e instanceof ExecutionException) && (e.getCause() != null) ? e.getCause() : e;
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RuntimeException(cause);
+    }
+
+    /**
+     * Returns the grain size for a fork/join computation over <tt>n</tt>
+     * elements, i.e. the size of a range that is not split any further. The
+     * range is split into at most about eight chunks per thread.
+     * 
+     * @param n
+     *            the number of elements
+     * @param minGrain
+     *            the minimal grain size
+     * @return the grain size
+     */
+    public static int getGrainSize(int n, int minGrain) {
+        if (REPRODUCIBLE) {
+            return Math.max(Math.max(minGrain, 1), n / REPRODUCIBLE_PARTS);
+        }
+        return Math.max(Math.max(minGrain, 1), n / (8 * getNumberOfThreads()));
+    }
+
+    /**
+     * Returns the number of parts a reduction over <tt>n</tt> elements is split
+     * into by the <tt>submit</tt>/<tt>waitForCompletion</tt> pattern. This is
+     * the number of threads, or, in reproducible mode, a number that depends on
+     * <tt>n</tt> only; it is never greater than <tt>n</tt>.
+     * 
+     * @param n
+     *            the number of elements
+     * @return the number of parts
+     */
+    public static int getNumberOfParts(int n) {
+        int parts = REPRODUCIBLE ? REPRODUCIBLE_PARTS : getNumberOfThreads();
+        return Math.max(1, Math.min(parts, n));
+    }
+
+    /**
+     * Applies the procedure to the range <tt>[first, last)</tt> in parallel.
+     * The range is split recursively (but never into ranges smaller than
+     * <tt>grain</tt>) as long as there are idle workers to steal the
+     * subranges.
+     * 
+     * @param first
+     *            the first index (inclusive)
+     * @param last
+     *            the last index (exclusive)
+     * @param grain
+     *            the size of a range that is not split any further
+     * @param procedure
+     *            the procedure applied to subranges
+     */
+    public static void parallelFor(int first, int last, int grain, RangeProcedure procedure) {
+        if (last <= first) {
+            return;
+        }
+        if (!isForkJoinPoolUsed()) {
+            int[] bounds = splitRange(first, last, Math.max(grain, 1));
+            submitRanges(bounds, procedure);
+            return;
+        }
+        invoke(new RangeProcedureTask(CONTEXT.get(), procedure, first, last, Math.max(grain, 1), null));
+    }
+
+    /**
+     * Reduces the range <tt>[first, last)</tt> in parallel. The range is split
+     * as in {@link #parallelFor(int, int, int, RangeProcedure)}, each subrange
+     * is reduced by <tt>function</tt> and the partial results are combined by
+     * <tt>aggr</tt>.
+     * 
+     * @param first
+     *            the first index (inclusive)
+     * @param last
+     *            the last index (exclusive)
+     * @param grain
+     *            the size of a range that is not split any further
+     * @param function
+     *            the function reducing subranges
+     * @param aggr
+     *            an aggregation function
+     * @return the result of aggregation
+     */
+    public static double parallelReduce(int first, int last, int grain, DoubleRangeFunction function,
+            DoubleDoubleFunction aggr) {
+        if (last <= first) {
+            throw new IllegalArgumentException("empty range");
+        }
+        if (!isForkJoinPoolUsed()) {
+            return reduceRanges(first, last, Math.max(grain, 1), function, aggr);
+        }
+        DoubleRangeFunctionTask task = new DoubleRangeFunctionTask(CONTEXT.get(), function, aggr, first, last, Math
+                .max(grain, 1), null);
+        invoke(task);
+        return task.result;
+    }
+
+    /**
+     * Reduces the range <tt>[first, last)</tt> in parallel to a <tt>float</tt>
+     * value, without boxing the partial results; see
+     * {@link #parallelReduce(int, int, int, DoubleRangeFunction, DoubleDoubleFunction)}
+     * .
+     * 
+     * @param first
+     *            the first index (inclusive)
+     * @param last
+     *            the last index (exclusive)
+     * @param grain
+     *            the size of a range that is not split any further
+     * @param function
+     *            the function reducing subranges
+     * @param aggr
+     *            an aggregation function
+     * @return the result of aggregation
+     */
+    public static float parallelReduceFloat(int first, int last, int grain, FloatRangeFunction function,
+            FloatFloatFunction aggr) {
+        if (last <= first) {
+            throw new IllegalArgumentException("empty range");
+        }
+        if (!isForkJoinPoolUsed()) {
+            return reduceRanges(first, last, Math.max(grain, 1), function, aggr);
+        }
+        FloatRangeFunctionTask task = new FloatRangeFunctionTask(CONTEXT.get(), function, aggr, first, last, Math
+                .max(grain, 1), null);
+        invoke(task);
+        return task.result;
+    }
+
+    /**
+     * Reduces the range <tt>[first, last)</tt> in parallel to an <tt>int</tt>
+     * value, without boxing the partial results; see
+     * {@link #parallelReduce(int, int, int, DoubleRangeFunction, DoubleDoubleFunction)}
+     * .
+     * 
+     * @param first
+     *            the first index (inclusive)
+     * @param last
+     *            the last index (exclusive)
+     * @param grain
+     *            the size of a range that is not split any further
+     * @param function
+     *            the function reducing subranges
+     * @param aggr
+     *            an aggregation function
+     * @return the result of aggregation
+     */
+    public static int parallelReduceInt(int first, int last, int grain, IntRangeFunction function,
+            IntIntFunction aggr) {
+        if (last <= first) {
+            throw new IllegalArgumentException("empty range");
+        }
+        if (!isForkJoinPoolUsed()) {
+            return reduceRanges(first, last, Math.max(grain, 1), function, aggr);
+        }
+        IntRangeFunctionTask task = new IntRangeFunctionTask(CONTEXT.get(), function, aggr, first, last, Math
+                .max(grain, 1), null);
+        invoke(task);
+        return task.result;
+    }
+
+    /**
+     * Reduces the range <tt>[first, last)</tt> in parallel to a <tt>long</tt>
+     * value, without boxing the partial results; see
+     * {@link #parallelReduce(int, int, int, DoubleRangeFunction, DoubleDoubleFunction)}
+     * .
+     * 
+     * @param first
+     *            the first index (inclusive)
+     * @param last
+     *            the last index (exclusive)
+     * @param grain
+     *            the size of a range that is not split any further
+     * @param function
+     *            the function reducing subranges
+     * @param aggr
+     *            an aggregation function
+     * @return the result of aggregation
+     */
+    public static long parallelReduceLong(int first, int last, int grain, LongRangeFunction function,
+            LongLongFunction aggr) {
+        if (last <= first) {
+            throw new IllegalArgumentException("empty range");
+        }
+        if (!isForkJoinPoolUsed()) {
+            return reduceRanges(first, last, Math.max(grain, 1), function, aggr);
+        }
+        LongRangeFunctionTask task = new LongRangeFunctionTask(CONTEXT.get(), function, aggr, first, last, Math
+                .max(grain, 1), null);
+        invoke(task);
+        return task.result;
+    }
+
+    /*
+     * Splits [first, last) into about one range per thread for an executor
+     * other than a ForkJoinPool. The ranges are nodes of the bisection done by
+     * the fork/join tasks, so that reproducible reductions do not depend on
+     * the executor. Returns the bounds of the ranges.
+     */
+    private static int[] splitRange(int first, int last, int grain) {
+        int nthreads = getNumberOfThreads();
+        int chunk = Math.max(grain, (last - first - 1) / nthreads + 1);
+        int[] bounds = new int[countRanges(first, last, chunk) + 1];
+        splitRange(first, last, chunk, bounds, 0);
+        bounds[bounds.length - 1] = last;
+        return bounds;
+    }
+
+    private static int countRanges(int l, int h, int chunk) {
+        if (h - l <= chunk) {
+            return 1;
+        }
+        int mid = l + ((h - l) >>> 1);
+        return countRanges(l, mid, chunk) + countRanges(mid, h, chunk);
+    }
+
+    private static int splitRange(int l, int h, int chunk, int[] bounds, int k) {
+        if (h - l <= chunk) {
+            bounds[k] = l;
+            return k + 1;
+        }
+        int mid = l + ((h - l) >>> 1);
+        return splitRange(mid, h, chunk, bounds, splitRange(l, mid, chunk, bounds, k));
+    }
+
+    private static void submitRanges(int[] bounds, final RangeProcedure procedure) {
+        int n = bounds.length - 1;
+        if (n == 1) {
+            checkCancelled();
+            procedure.apply(bounds[0], bounds[1]);
+            return;
+        }
+        Future<?>[] futures = new Future[n];
+        for (int j = 0; j < n; j++) {
+            final int l = bounds[j];
+            final int h = bounds[j + 1];
+            futures[j] = submit(new Runnable() {
+                public void run() {
+                    checkCancelled();
+                    procedure.apply(l, h);
+                }
+            });
+        }
+        waitForCompletion(futures);
+    }
+
+    private static double reduceRanges(int first, int last, final int grain, final DoubleRangeFunction function,
+            final DoubleDoubleFunction aggr) {
+        final int[] bounds = splitRange(first, last, grain);
+        final double[] results = new double[bounds.length - 1];
+        submitRanges(bounds, new RangeProcedure() {
+            public void apply(int l, int h) {
+                results[Arrays.binarySearch(bounds, l)] = reduceRange(l, h, grain, function, aggr);
+            }
+        });
+        return combineRanges(first, last, bounds, results, aggr);
+    }
+
+    /*
+     * Reduces [l, h) as a fork/join task does in reproducible mode.
+     */
+    private static double reduceRange(int l, int h, int grain, DoubleRangeFunction function,
+            DoubleDoubleFunction aggr) {
+        if (!REPRODUCIBLE || (h - l <= grain)) {
+            return function.apply(l, h);
+        }
+        int mid = l + ((h - l) >>> 1);
+        return aggr.apply(reduceRange(l, mid, grain, function, aggr), reduceRange(mid, h, grain, function, aggr));
+    }
+
+    private static double combineRanges(int l, int h, int[] bounds, double[] results, DoubleDoubleFunction aggr) {
+        int k = Arrays.binarySearch(bounds, l);
+        if (bounds[k + 1] == h) {
+            return results[k];
+        }
+        int mid = l + ((h - l) >>> 1);
+        return aggr.apply(combineRanges(l, mid, bounds, results, aggr), combineRanges(mid, h, bounds, results, aggr));
+    }
+
+    private static float reduceRanges(int first, int last, final int grain, final FloatRangeFunction function,
+            final FloatFloatFunction aggr) {
+        final int[] bounds = splitRange(first, last, grain);
+        final float[] results = new float[bounds.length - 1];
+        submitRanges(bounds, new RangeProcedure() {
+            public void apply(int l, int h) {
+                results[Arrays.binarySearch(bounds, l)] = reduceRange(l, h, grain, function, aggr);
+            }
+        });
+        return combineRanges(first, last, bounds, results, aggr);
+    }
+
+    /*
+     * Reduces [l, h) as a fork/join task does in reproducible mode.
+     */
+    private static float reduceRange(int l, int h, int grain, FloatRangeFunction function, FloatFloatFunction aggr) {
+        if (!REPRODUCIBLE || (h - l <= grain)) {
+            return function.apply(l, h);
+        }
+        int mid = l + ((h - l) >>> 1);
+        return aggr.apply(reduceRange(l, mid, grain, function, aggr), reduceRange(mid, h, grain, function, aggr));
+    }
+
+    private static float combineRanges(int l, int h, int[] bounds, float[] results, FloatFloatFunction aggr) {
+        int k = Arrays.binarySearch(bounds, l);
+        if (bounds[k + 1] == h) {
+            return results[k];
+        }
+        int mid = l + ((h - l) >>> 1);
+        return aggr.apply(combineRanges(l, mid, bounds, results, aggr), combineRanges(mid, h, bounds, results, aggr));
+    }
+
+    private static int reduceRanges(int first, int last, final int grain, final IntRangeFunction function,
+            final IntIntFunction aggr) {
+        final int[] bounds = splitRange(first, last, grain);
+        final int[] results = new int[bounds.length - 1];
+        submitRanges(bounds, new RangeProcedure() {
+            public void apply(int l, int h) {
+                results[Arrays.binarySearch(bounds, l)] = reduceRange(l, h, grain, function, aggr);
+            }
+        });
+        return combineRanges(first, last, bounds, results, aggr);
+    }
+
+    /*
+     * Reduces [l, h) as a fork/join task does in reproducible mode.
+     */
+    private static int reduceRange(int l, int h, int grain, IntRangeFunction function, IntIntFunction aggr) {
+        if (!REPRODUCIBLE || (h - l <= grain)) {
+            return function.apply(l, h);
+        }
+        int mid = l + ((h - l) >>> 1);
+        return aggr.apply(reduceRange(l, mid, grain, function, aggr), reduceRange(mid, h, grain, function, aggr));
+    }
+
+    private static int combineRanges(int l, int h, int[] bounds, int[] results, IntIntFunction aggr) {
+        int k = Arrays.binarySearch(bounds, l);
+        if (bounds[k + 1] == h) {
+            return results[k];
+        }
+        int mid = l + ((h - l) >>> 1);
+        return aggr.apply(combineRanges(l, mid, bounds, results, aggr), combineRanges(mid, h, bounds, results, aggr));
+    }
+
+    private static long reduceRanges(int first, int last, final int grain, final LongRangeFunction function,
+            final LongLongFunction aggr) {
+        final int[] bounds = splitRange(first, last, grain);
+        final long[] results = new long[bounds.length - 1];
+        submitRanges(bounds, new RangeProcedure() {
+            public void apply(int l, int h) {
+                results[Arrays.binarySearch(bounds, l)] = reduceRange(l, h, grain, function, aggr);
+            }
+        });
+        return combineRanges(first, last, bounds, results, aggr);
+    }
+
+    /*
+     * Reduces [l, h) as a fork/join task does in reproducible mode.
+     */
+    private static long reduceRange(int l, int h, int grain, LongRangeFunction function, LongLongFunction aggr) {
+        if (!REPRODUCIBLE || (h - l <= grain)) {
+            return function.apply(l, h);
+        }
+        int mid = l + ((h - l) >>> 1);
+        return aggr.apply(reduceRange(l, mid, grain, function, aggr), reduceRange(mid, h, grain, function, aggr));
+    }
+
+    private static long combineRanges(int l, int h, int[] bounds, long[] results, LongLongFunction aggr) {
+        int k = Arrays.binarySearch(bounds, l);
+        if (bounds[k + 1] == h) {
+            return results[k];
+        }
+        int mid = l + ((h - l) >>> 1);
+        return aggr.apply(combineRanges(l, mid, bounds, results, aggr), combineRanges(mid, h, bounds, results, aggr));
+    }
+
+    private static class RangeProcedureTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ConcurrencyContext context;
+
+        private final RangeProcedure procedure;
+
+        private final int first;
+
+        private final int last;
+
+        private final int grain;
+
+        private final RangeProcedureTask next;
+
+        RangeProcedureTask(ConcurrencyContext context, RangeProcedure procedure, int first, int last, int grain,
+                RangeProcedureTask next) {
+            this.context = context;
+            this.procedure = procedure;
+            this.first = first;
+            this.last = last;
+            this.grain = grain;
+            this.next = next;
+        }
+
+        protected void compute() {
+            ConcurrencyContext previous = CONTEXT.get();
+            setContext(context);
+            try {
+                int l = first;
+                int h = last;
+                RangeProcedureTask right = null;
+                while ((h - l > grain) && (getSurplusQueuedTaskCount() <= SURPLUS_QUEUED_TASKS)) {
+                    int mid = l + ((h - l) >>> 1);
+                    right = new RangeProcedureTask(context, procedure, mid, h, grain, right);
+                    right.fork();
+                    h = mid;
+                }
+                checkCancelled();
+                procedure.apply(l, h);
+                while (right != null) {
+                    if (right.tryUnfork()) {
+                        right.invoke();
+                    } else {
+                        right.join();
+                    }
+                    right = right.next;
+                }
+            } finally {
+                setContext(previous);
+            }
+        }
+    }
+
+    private static class DoubleRangeFunctionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ConcurrencyContext context;
+
+        private final DoubleRangeFunction function;
+
+        private final DoubleDoubleFunction aggr;
+
+        private final int first;
+
+        private final int last;
+
+        private final int grain;
+
+        private final DoubleRangeFunctionTask next;
+
+        double result;
+
+        DoubleRangeFunctionTask(ConcurrencyContext context, DoubleRangeFunction function, DoubleDoubleFunction aggr,
+                int first, int last, int grain, DoubleRangeFunctionTask next) {
+            this.context = context;
+            this.function = function;
+            this.aggr = aggr;
+            this.first = first;
+            this.last = last;
+            this.grain = grain;
+            this.next = next;
+        }
+
+        protected void compute() {
+            ConcurrencyContext previous = CONTEXT.get();
+            setContext(context);
+            try {
+                int l = first;
+                int h = last;
+                DoubleRangeFunctionTask right = null;
+                while ((h - l > grain) && (REPRODUCIBLE || getSurplusQueuedTaskCount() <= SURPLUS_QUEUED_TASKS)) {
+                    int mid = l + ((h - l) >>> 1);
+                    right = new DoubleRangeFunctionTask(context, function, aggr, mid, h, grain, right);
+                    right.fork();
+                    h = mid;
+                }
+                checkCancelled();
+                double a = function.apply(l, h);
+                // the subranges are combined from left to right
+                while (right != null) {
+                    if (right.tryUnfork()) {
+                        right.invoke();
+                    } else {
+                        right.join();
+                    }
+                    a = aggr.apply(a, right.result);
+                    right = right.next;
+                }
+                result = a;
+            } finally {
+                setContext(previous);
+            }
+        }
+    }
+
+    private static class FloatRangeFunctionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ConcurrencyContext context;
+
+        private final FloatRangeFunction function;
+
+        private final FloatFloatFunction aggr;
+
+        private final int first;
+
+        private final int last;
+
+        private final int grain;
+
+        private final FloatRangeFunctionTask next;
+
+        float result;
+
+        FloatRangeFunctionTask(ConcurrencyContext context, FloatRangeFunction function, FloatFloatFunction aggr,
+                int first, int last, int grain, FloatRangeFunctionTask next) {
+            this.context = context;
+            this.function = function;
+            this.aggr = aggr;
+            this.first = first;
+            this.last = last;
+            this.grain = grain;
+            this.next = next;
+        }
+
+        protected void compute() {
+            ConcurrencyContext previous = CONTEXT.get();
+            setContext(context);
+            try {
+                int l = first;
+                int h = last;
+                FloatRangeFunctionTask right = null;
+                while ((h - l > grain) && (REPRODUCIBLE || getSurplusQueuedTaskCount() <= SURPLUS_QUEUED_TASKS)) {
+                    int mid = l + ((h - l) >>> 1);
+                    right = new FloatRangeFunctionTask(context, function, aggr, mid, h, grain, right);
+                    right.fork();
+                    h = mid;
+                }
+                checkCancelled();
+                float a = function.apply(l, h);
+                // the subranges are combined from left to right
+                while (right != null) {
+                    if (right.tryUnfork()) {
+                        right.invoke();
+                    } else {
+                        right.join();
+                    }
+                    a = aggr.apply(a, right.result);
+                    right = right.next;
+                }
+                result = a;
+            } finally {
+                setContext(previous);
+            }
+        }
+    }
+
+    private static class IntRangeFunctionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ConcurrencyContext context;
+
+        private final IntRangeFunction function;
+
+        private final IntIntFunction aggr;
+
+        private final int first;
+
+        private final int last;
+
+        private final int grain;
+
+        private final IntRangeFunctionTask next;
+
+        int result;
+
+        IntRangeFunctionTask(ConcurrencyContext context, IntRangeFunction function, IntIntFunction aggr,
+                int first, int last, int grain, IntRangeFunctionTask next) {
+            this.context = context;
+            this.function = function;
+            this.aggr = aggr;
+            this.first = first;
+            this.last = last;
+            this.grain = grain;
+            this.next = next;
+        }
+
+        protected void compute() {
+            ConcurrencyContext previous = CONTEXT.get();
+            setContext(context);
+            try {
+                int l = first;
+                int h = last;
+                IntRangeFunctionTask right = null;
+                while ((h - l > grain) && (REPRODUCIBLE || getSurplusQueuedTaskCount() <= SURPLUS_QUEUED_TASKS)) {
+                    int mid = l + ((h - l) >>> 1);
+                    right = new IntRangeFunctionTask(context, function, aggr, mid, h, grain, right);
+                    right.fork();
+                    h = mid;
+                }
+                checkCancelled();
+                int a = function.apply(l, h);
+                // the subranges are combined from left to right
+                while (right != null) {
+                    if (right.tryUnfork()) {
+                        right.invoke();
+                    } else {
+                        right.join();
+                    }
+                    a = aggr.apply(a, right.result);
+                    right = right.next;
+                }
+                result = a;
+            } finally {
+                setContext(previous);
+            }
+        }
+    }
+
+    private static class LongRangeFunctionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ConcurrencyContext context;
+
+        private final LongRangeFunction function;
+
+        private final LongLongFunction aggr;
+
+        private final int first;
+
+        private final int last;
+
+        private final int grain;
+
+        private final LongRangeFunctionTask next;
+
+        long result;
+
+        LongRangeFunctionTask(ConcurrencyContext context, LongRangeFunction function, LongLongFunction aggr,
+                int first, int last, int grain, LongRangeFunctionTask next) {
+            this.context = context;
+            this.function = function;
+            this.aggr = aggr;
+            this.first = first;
+            this.last = last;
+            this.grain = grain;
+            this.next = next;
+        }
+
+        protected void compute() {
+            ConcurrencyContext previous = CONTEXT.get();
+            setContext(context);
+            try {
+                int l = first;
+                int h = last;
+                LongRangeFunctionTask right = null;
+                while ((h - l > grain) && (REPRODUCIBLE || getSurplusQueuedTaskCount() <= SURPLUS_QUEUED_TASKS)) {
+                    int mid = l + ((h - l) >>> 1);
+                    right = new LongRangeFunctionTask(context, function, aggr, mid, h, grain, right);
+                    right.fork();
+                    h = mid;
+                }
+                checkCancelled();
+                long a = function.apply(l, h);
+                // the subranges are combined from left to right
+                while (right != null) {
+                    if (right.tryUnfork()) {
+                        right.invoke();
+                    } else {
+                        right.join();
+                    }
+                    a = aggr.apply(a, right.result);
+                    right = right.next;
+                }
+                result = a;
+            } finally {
+                setContext(previous);
+            }
+        }
+    }
+
+    private static ExecutorService newDefaultThreadPool() {
+        return Executors.newCachedThreadPool(new CustomThreadFactory(new CustomExceptionHandler()));
     }
 
     /**
@@ -159,6 +1280,11 @@ public class ConcurrencyUtils {
      * @return the current number of threads.
      */
     public static int getNumberOfThreads() {
+        for (ConcurrencyContext c = CONTEXT.get(); c != null; c = c.parent) {
+            if (c.nthreads > 0) {
+                return c.nthreads;
+            }
+        }
         return NTHREADS;
     }
 
@@ -175,9 +1301,9 @@ public class ConcurrencyUtils {
                 futures[j].get();
             }
         } catch (ExecutionException ex) {
-            ex.printStackTrace();
+            throw propagate(futures, ex);
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            throw propagate(futures, e);
         }
     }
 
@@ -203,9 +1329,9 @@ public class ConcurrencyUtils {
                 a = aggr.apply(a, results[j]);
             }
         } catch (ExecutionException ex) {
-            ex.printStackTrace();
+            throw propagate(futures, ex);
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            throw propagate(futures, e);
         }
         return a;
     }
@@ -232,9 +1358,9 @@ public class ConcurrencyUtils {
                 a = aggr.apply(a, results[j]);
             }
         } catch (ExecutionException ex) {
-            ex.printStackTrace();
+            throw propagate(futures, ex);
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            throw propagate(futures, e);
         }
         return a;
     }
@@ -261,9 +1387,9 @@ public class ConcurrencyUtils {
                 a = aggr.apply(a, results[j]);
             }
         } catch (ExecutionException ex) {
-            ex.printStackTrace();
+            throw propagate(futures, ex);
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            throw propagate(futures, e);
         }
         return a;
     }
@@ -283,16 +1409,16 @@ public class ConcurrencyUtils {
         Object a = null;
         try {
             for (int j = 0; j < size; j++) {
-                results[j] = (Integer) futures[j].get();
+                results[j] = futures[j].get();
             }
             a = results[0];
             for (int j = 1; j < size; j++) {
                 a = aggr.apply(a, results[j]);
             }
         } catch (ExecutionException ex) {
-            ex.printStackTrace();
+            throw propagate(futures, ex);
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            throw propagate(futures, e);
         }
         return a;
     }
@@ -319,9 +1445,9 @@ public class ConcurrencyUtils {
                 a = aggr.apply(a, results[j]);
             }
         } catch (ExecutionException ex) {
-            ex.printStackTrace();
+            throw propagate(futures, ex);
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            throw propagate(futures, e);
         }
         return a;
     }
@@ -348,9 +1474,9 @@ public class ConcurrencyUtils {
                 a = aggr.apply(a, results[j]);
             }
         } catch (ExecutionException ex) {
-            ex.printStackTrace();
+            throw propagate(futures, ex);
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            throw propagate(futures, e);
         }
         return a;
     }
@@ -377,9 +1503,9 @@ public class ConcurrencyUtils {
                 a = aggr.apply(a, results[j]);
             }
         } catch (ExecutionException ex) {
-            ex.printStackTrace();
+            throw propagate(futures, ex);
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            throw propagate(futures, e);
         }
         return a;
     }
@@ -390,6 +1516,11 @@ public class ConcurrencyUtils {
      * @return the minimal size of 1D data for which threads are used
      */
     public static int getThreadsBeginN_1D() {
+        for (ConcurrencyContext c = CONTEXT.get(); c != null; c = c.parent) {
+            if (c.threadsBeginN_1D > 0) {
+                return c.threadsBeginN_1D;
+            }
+        }
         return THREADS_BEGIN_N_1D;
     }
 
@@ -399,6 +1530,11 @@ public class ConcurrencyUtils {
      * @return the minimal size of 1D data for which two threads are used
      */
     public static int getThreadsBeginN_1D_FFT_2Threads() {
+        for (ConcurrencyContext c = CONTEXT.get(); c != null; c = c.parent) {
+            if (c.threadsBeginN_1D_FFT_2Threads > 0) {
+                return c.threadsBeginN_1D_FFT_2Threads;
+            }
+        }
         return THREADS_BEGIN_N_1D_FFT_2THREADS;
     }
 
@@ -408,6 +1544,11 @@ public class ConcurrencyUtils {
      * @return the minimal size of 1D data for which four threads are used
      */
     public static int getThreadsBeginN_1D_FFT_4Threads() {
+        for (ConcurrencyContext c = CONTEXT.get(); c != null; c = c.parent) {
+            if (c.threadsBeginN_1D_FFT_4Threads > 0) {
+                return c.threadsBeginN_1D_FFT_4Threads;
+            }
+        }
         return THREADS_BEGIN_N_1D_FFT_4THREADS;
     }
 
@@ -417,6 +1558,11 @@ public class ConcurrencyUtils {
      * @return the minimal size of 2D data for which threads are used
      */
     public static int getThreadsBeginN_2D() {
+        for (ConcurrencyContext c = CONTEXT.get(); c != null; c = c.parent) {
+            if (c.threadsBeginN_2D > 0) {
+                return c.threadsBeginN_2D;
+            }
+        }
         return THREADS_BEGIN_N_2D;
     }
 
@@ -426,9 +1572,179 @@ public class ConcurrencyUtils {
      * @return the minimal size of 3D data for which threads are used
      */
     public static int getThreadsBeginN_3D() {
+        for (ConcurrencyContext c = CONTEXT.get(); c != null; c = c.parent) {
+            if (c.threadsBeginN_3D > 0) {
+                return c.threadsBeginN_3D;
+            }
+        }
         return THREADS_BEGIN_N_3D;
     }
 
+    /**
+     * Returns the minimal size of 1D data for which threads are used by the
+     * given kernel. If no value was set for the kernel,
+     * {@link #getThreadsBeginN_1D()} is returned.
+     * 
+     * @param kernel
+     *            the name of the kernel, e.g. <tt>"DenseDoubleMatrix1D.assign"</tt>
+     * @return the minimal size of 1D data for which threads are used by the
+     *         kernel
+     */
+    public static int getThreadsBeginN_1D(String kernel) {
+        for (ConcurrencyContext c = CONTEXT.get(); c != null; c = c.parent) {
+            Integer n = c.threadsBeginN_Kernels.get(kernel);
+            if (n != null) {
+                return n.intValue();
+            }
+            if (c.threadsBeginN_1D > 0) {
+                return c.threadsBeginN_1D;
+            }
+        }
+        Integer n = THREADS_BEGIN_N_KERNELS.get(kernel);
+        return (n == null) ? THREADS_BEGIN_N_1D : n.intValue();
+    }
+
+    /**
+     * Returns the minimal size of 2D data for which threads are used by the
+     * given kernel. If no value was set for the kernel,
+     * {@link #getThreadsBeginN_2D()} is returned.
+     * 
+     * @param kernel
+     *            the name of the kernel, e.g. <tt>"DenseDoubleMatrix2D.assign"</tt>
+     * @return the minimal size of 2D data for which threads are used by the
+     *         kernel
+     */
+    public static int getThreadsBeginN_2D(String kernel) {
+        for (ConcurrencyContext c = CONTEXT.get(); c != null; c = c.parent) {
+            Integer n = c.threadsBeginN_Kernels.get(kernel);
+            if (n != null) {
+                return n.intValue();
+            }
+            if (c.threadsBeginN_2D > 0) {
+                return c.threadsBeginN_2D;
+            }
+        }
+        Integer n = THREADS_BEGIN_N_KERNELS.get(kernel);
+        return (n == null) ? THREADS_BEGIN_N_2D : n.intValue();
+    }
+
+    /**
+     * Returns the minimal size of 3D data for which threads are used by the
+     * given kernel. If no value was set for the kernel,
+     * {@link #getThreadsBeginN_3D()} is returned.
+     * 
+     * @param kernel
+     *            the name of the kernel, e.g. <tt>"DenseDoubleMatrix3D.assign"</tt>
+     * @return the minimal size of 3D data for which threads are used by the
+     *         kernel
+     */
+    public static int getThreadsBeginN_3D(String kernel) {
+        for (ConcurrencyContext c = CONTEXT.get(); c != null; c = c.parent) {
+            Integer n = c.threadsBeginN_Kernels.get(kernel);
+            if (n != null) {
+                return n.intValue();
+            }
+            if (c.threadsBeginN_3D > 0) {
+                return c.threadsBeginN_3D;
+            }
+        }
+        Integer n = THREADS_BEGIN_N_KERNELS.get(kernel);
+        return (n == null) ? THREADS_BEGIN_N_3D : n.intValue();
+    }
+
+    /**
+     * Sets the minimal size of data for which threads are used by the given
+     * kernel.
+     * 
+     * @param kernel
+     *            the name of the kernel, e.g. <tt>"DenseDoubleMatrix2D.zMult"</tt>
+     * @param n
+     *            the minimal size of data for which threads are used by the
+     *            kernel
+     */
+    public static void setThreadsBeginN(String kernel, int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("n must be greater or equal 1");
+        THREADS_BEGIN_N_KERNELS.put(kernel, n);
+    }
+
+    /**
+     * Removes the minimal size of data for which threads are used by the given
+     * kernel, i.e. the kernel falls back to the global 1D, 2D or 3D value.
+     * 
+     * @param kernel
+     *            the name of the kernel
+     */
+    public static void resetThreadsBeginN(String kernel) {
+        THREADS_BEGIN_N_KERNELS.remove(kernel);
+    }
+
+    /**
+     * Loads the minimal sizes of data for which threads are used from a
+     * profile file written by {@link #saveThresholds(String)}.
+     * 
+     * @param fileName
+     *            the name of the profile file
+     * @throws IOException
+     */
+    public static void loadThresholds(String fileName) throws IOException {
+        Properties profile = new Properties();
+        InputStream in = new FileInputStream(fileName);
+        try {
+            profile.load(in);
+        } finally {
+            in.close();
+        }
+        for (String key : profile.stringPropertyNames()) {
+            int n;
+            try {
+                n = Integer.parseInt(profile.getProperty(key).trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid value of " + key + " in " + fileName);
+            }
+            if (key.equals("threadsBeginN_1D")) {
+                setThreadsBeginN_1D(n);
+            } else if (key.equals("threadsBeginN_2D")) {
+                setThreadsBeginN_2D(n);
+            } else if (key.equals("threadsBeginN_3D")) {
+                setThreadsBeginN_3D(n);
+            } else if (key.equals("threadsBeginN_1D_FFT_2Threads")) {
+                setThreadsBeginN_1D_FFT_2Threads(n);
+            } else if (key.equals("threadsBeginN_1D_FFT_4Threads")) {
+                setThreadsBeginN_1D_FFT_4Threads(n);
+            } else {
+                setThreadsBeginN(key, n);
+            }
+        }
+    }
+
+    /**
+     * Saves the global and the per-kernel minimal sizes of data for which
+     * threads are used to a profile file.
+     * 
+     * @param fileName
+     *            the name of the profile file
+     * @throws IOException
+     */
+    public static void saveThresholds(String fileName) throws IOException {
+        Map<String, Integer> values = new TreeMap<String, Integer>(THREADS_BEGIN_N_KERNELS);
+        values.put("threadsBeginN_1D", THREADS_BEGIN_N_1D);
+        values.put("threadsBeginN_2D", THREADS_BEGIN_N_2D);
+        values.put("threadsBeginN_3D", THREADS_BEGIN_N_3D);
+        values.put("threadsBeginN_1D_FFT_2Threads", THREADS_BEGIN_N_1D_FFT_2THREADS);
+        values.put("threadsBeginN_1D_FFT_4Threads", THREADS_BEGIN_N_1D_FFT_4THREADS);
+        Properties profile = new Properties();
+        for (Map.Entry<String, Integer> e : values.entrySet()) {
+            profile.setProperty(e.getKey(), e.getValue().toString());
+        }
+        OutputStream out = new FileOutputStream(fileName);
+        try {
+            profile.store(out, "Parallel Colt thresholds (" + NTHREADS + " threads)");
+        } finally {
+            out.close();
+        }
+    }
+
     /**
      * Sets the minimal size of 1D data for which two threads are used.
      * 
@@ -498,16 +1814,45 @@ public class ConcurrencyUtils {
 
     /**
      * Resets the minimal size of 1D, 2D and 3D data for which threads are used.
+     * The per-kernel values are removed.
      */
     public static void resetThreadsBeginN() {
         THREADS_BEGIN_N_1D = 32768;
         THREADS_BEGIN_N_2D = 65536;
         THREADS_BEGIN_N_3D = 65536;
+        THREADS_BEGIN_N_KERNELS.clear();
+    }
+
+    /**
+     * Returns whether reductions are computed in reproducible mode.
+     * 
+     * @return whether reductions are computed in reproducible mode
+     * @see #setReproducible(boolean)
+     */
+    public static boolean isReproducible() {
+        return REPRODUCIBLE;
+    }
 
+    /**
+     * Turns the reproducible mode of reductions on or off. In reproducible mode
+     * a reduction is split into ranges that depend only on its size (also when
+     * a single thread is used), and the partial results are combined in a fixed
+     * order. The results of floating-point reductions (sums, norms, histograms)
+     * are then bitwise identical for any number of threads. The SIMD backend is
+     * not used for reductions in this mode, because its result depends on the
+     * vector length of the processor.
+     * 
+     * @param reproducible
+     *            <tt>true</tt> to turn the reproducible mode on
+     */
+    public static void setReproducible(boolean reproducible) {
+        REPRODUCIBLE = reproducible;
     }
 
     /**
-     * Sets the number of threads
+     * Sets the global number of threads. An open {@link ConcurrencyContext}
+     * that sets its own number of threads takes precedence; to change the
+     * number of threads only for the calling thread, open a context instead.
      * 
      * @param n
      */
@@ -140,59 +140,53 @@ public class DoubleHistogram1D extends DoubleAbstractHistogram1D implements Doub
 
     public void fill_2D(final double[] data, final int rows, final int columns, final int zero, final int rowStride,
             final int columnStride) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (rows * columns >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, rows);
+        fillParts(data, null, rows, columns, zero, rowStride, columnStride);
+    }
+
+    public void fill_2D(final double[] data, final double[] weights, final int rows, final int columns, final int zero,
+            final int rowStride, final int columnStride) {
+        fillParts(data, weights, rows, columns, zero, rowStride, columnStride);
+    }
+
+    /*
+     * Each thread fills a private histogram, which are added to this one in
+     * the order of their rows, so the sums do not depend on the timing of the
+     * threads. weights == null means unit weights.
+     */
+    private void fillParts(final double[] data, final double[] weights, final int rows, final int columns,
+            final int zero, final int rowStride, final int columnStride) {
+        if ((ConcurrencyUtils.getNumberOfThreads() > 1 || ConcurrencyUtils.isReproducible())
+                && (rows * columns >= ConcurrencyUtils.getThreadsBeginN_1D())) {
+            int nthreads = ConcurrencyUtils.getNumberOfParts(rows);
             Future<?>[] futures = new Future[nthreads];
+            final DoubleHistogram1D[] parts = new DoubleHistogram1D[nthreads];
             int k = rows / nthreads;
             for (int j = 0; j < nthreads; j++) {
                 final int firstRow = j * k;
                 final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
+                final int part = j;
                 futures[j] = ConcurrencyUtils.submit(new Runnable() {
 
                     public void run() {
-                        double[] errors_loc = new double[errors.length];
-                        double[] heights_loc = new double[heights.length];
-                        int[] entries_loc = new int[entries.length];
-                        int nEntry_loc = 0;
-                        double sumWeight_loc = 0;
-                        double sumWeightSquared_loc = 0;
-                        double mean_loc = 0, rms_loc = 0;
-                        int idx = zero + firstRow * rowStride;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, c = 0; c < columns; c++) {
-                                int bin = map(xAxis.coordToIndex(data[i]));
-                                entries_loc[bin]++;
-                                heights_loc[bin]++;
-                                errors_loc[bin]++;
-                                nEntry_loc++;
-                                sumWeight_loc++;
-                                sumWeightSquared_loc++;
-                                mean_loc += data[i];
-                                rms_loc += data[i] * data[i];
-                                i += columnStride;
-                            }
-                            idx += rowStride;
-                        }
-                        synchronized (this) {
-                            for (int i = 0; i < entries.length; i++) {
-                                errors[i] += errors_loc[i];
-                                heights[i] += heights_loc[i];
-                                entries[i] += entries_loc[i];
-                            }
-                            nEntry += nEntry_loc;
-                            sumWeight += sumWeight_loc;
-                            sumWeightSquared += sumWeightSquared_loc;
-                            mean += mean_loc;
-                            rms += rms_loc;
-                        }
+                        parts[part] = new DoubleHistogram1D(title(), xAxis);
+                        parts[part].fillRows(data, weights, firstRow, lastRow, columns, zero, rowStride, columnStride);
                     }
                 });
             }
             ConcurrencyUtils.waitForCompletion(futures);
+            for (int j = 0; j < nthreads; j++) {
+                add(parts[j]);
+            }
         } else {
-            int idx = zero;
-            for (int r = 0; r < rows; r++) {
+            fillRows(data, weights, 0, rows, columns, zero, rowStride, columnStride);
+        }
+    }
+
+    private void fillRows(double[] data, double[] weights, int firstRow, int lastRow, int columns, int zero,
+            int rowStride, int columnStride) {
+        int idx = zero + firstRow * rowStride;
+        if (weights == null) {
+            for (int r = firstRow; r < lastRow; r++) {
                 for (int i = idx, c = 0; c < columns; c++) {
                     int bin = map(xAxis.coordToIndex(data[i]));
                     entries[bin]++;
@@ -207,66 +201,8 @@ public class DoubleHistogram1D extends DoubleAbstractHistogram1D implements Doub
                 }
                 idx += rowStride;
             }
-        }
-    }
-
-    public void fill_2D(final double[] data, final double[] weights, final int rows, final int columns, final int zero,
-            final int rowStride, final int columnStride) {
-        int nthreads = ConcurrencyUtils.getNumberOfThreads();
-        if ((nthreads > 1) && (rows * columns >= ConcurrencyUtils.getThreadsBeginN_1D())) {
-            nthreads = Math.min(nthreads, rows);
-            Future<?>[] futures = new Future[nthreads];
-            int k = rows / nthreads;
-            for (int j = 0; j < nthreads; j++) {
-                final int firstRow = j * k;
-                final int lastRow = (j == nthreads - 1) ? rows : firstRow + k;
-                futures[j] = ConcurrencyUtils.submit(new Runnable() {
-
-                    public void run() {
-                        int idx = zero + firstRow * rowStride;
-                        double[] errors_loc = new double[errors.length];
-                        double[] heights_loc = new double[heights.length];
-                        int[] entries_loc = new int[entries.length];
-                        int nEntry_loc = 0;
-                        double sumWeight_loc = 0;
-                        double sumWeightSquared_loc = 0;
-                        double mean_loc = 0, rms_loc = 0;
-                        for (int r = firstRow; r < lastRow; r++) {
-                            for (int i = idx, c = 0; c < columns; c++) {
-                                int bin = map(xAxis.coordToIndex(data[i]));
-                                int widx = r * columns + c;
-                                double w2 = weights[widx] * weights[widx];
-                                entries_loc[bin]++;
-                                heights_loc[bin] += weights[widx];
-                                errors_loc[bin] += w2;
-                                nEntry_loc++;
-                                sumWeight_loc += weights[widx];
-                                sumWeightSquared_loc += w2;
-                                mean_loc += data[i] * weights[widx];
-                                rms_loc += data[i] * w2;
-                                i += columnStride;
-                            }
-                            idx += rowStride;
-                        }
-                        synchronized (this) {
-                            for (int i = 0; i < entries.length; i++) {
-                                errors[i] += errors_loc[i];
-                                heights[i] += heights_loc[i];
-                                entries[i] += entries_loc[i];
-                            }
-                            nEntry += nEntry_loc;
-                            sumWeight += sumWeight_loc;
-                            sumWeightSquared += sumWeightSquared_loc;
-                            mean += mean_loc;
-                            rms += rms_loc;
-                        }
-                    }
-                });
-            }
-            ConcurrencyUtils.waitForCompletion(futures);
         } else {
-            int idx = zero;
-            for (int r = 0; r < rows; r++) {
+            for (int r = firstRow; r < lastRow; r++) {
                 for (int i = idx, c = 0; c < columns; c++) {
                     int bin = map(xAxis.coordToIndex(data[i]));
                     int widx = r * columns + c;
@@ -286,6 +222,19 @@ public class DoubleHistogram1D extends DoubleAbstractHistogram1D implements Doub
         }
     }
 
+    private void add(DoubleHistogram1D part) {
+        for (int i = 0; i < entries.length; i++) {
+            errors[i] += part.errors[i];
+            heights[i] += part.heights[i];
+            entries[i] += part.entries[i];
+        }
+        nEntry += part.nEntry;
+        sumWeight += part.sumWeight;
+        sumWeightSquared += part.sumWeightSquared;
+        mean += part.mean;
+        rms += part.rms;
+    }
+
     /**
      * Returns the contents of this histogram.
      * 
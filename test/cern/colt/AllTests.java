@@ -2,6 +2,8 @@ package cern.colt;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import hep.aida.tdouble.ref.DoubleHistogram1DTest;
+import hep.aida.tfloat.ref.FloatHistogram1DTest;
 import cern.colt.matrix.tdcomplex.AllDComplexMatrixTests;
 import cern.colt.matrix.tdouble.AllDoubleMatrixTests;
 import cern.colt.matrix.tfcomplex.AllFComplexMatrixTests;
@@ -9,6 +11,7 @@ import cern.colt.matrix.tfloat.AllFloatMatrixTests;
 import cern.colt.matrix.tint.AllIntMatrixTests;
 import cern.colt.matrix.tlong.AllLongMatrixTests;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
+import edu.emory.mathcs.utils.ConcurrencyUtilsTest;
 
 public class AllTests {
 
@@ -24,6 +27,9 @@ public class AllTests {
         suite.addTest(AllFComplexMatrixTests.suite());
         suite.addTest(AllLongMatrixTests.suite());
         suite.addTest(AllIntMatrixTests.suite());
+        suite.addTestSuite(DoubleHistogram1DTest.class);
+        suite.addTestSuite(FloatHistogram1DTest.class);
+        suite.addTestSuite(ConcurrencyUtilsTest.class);
         return suite;
     }
 
@@ -2,7 +2,12 @@ package cern.colt.matrix.tdouble;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import cern.colt.matrix.tdouble.algo.DenseDoubleAlgebraTest;
+import cern.colt.matrix.tdouble.algo.DoubleStatisticTest;
+import cern.colt.matrix.tdouble.algo.DoubleStencilTest;
+import cern.colt.matrix.tdouble.algo.SmpDoubleBlasTest;
 import cern.colt.matrix.tdouble.algo.solver.AllDoubleMatrixSolverTests;
+import cern.colt.matrix.tdouble.impl.ConcurrentSparseDoubleBuilder2DTest;
 import cern.colt.matrix.tdouble.impl.DenseColumnDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.DenseColumnDoubleMatrix2DViewTest;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1DTest;
@@ -17,6 +22,7 @@ import cern.colt.matrix.tdouble.impl.DenseLargeDoubleMatrix3DTest;
 import cern.colt.matrix.tdouble.impl.DenseLargeDoubleMatrix3DViewTest;
 import cern.colt.matrix.tdouble.impl.DiagonalDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.DiagonalDoubleMatrix2DViewTest;
+import cern.colt.matrix.tdouble.impl.SparseBSRDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2DViewTest;
 import cern.colt.matrix.tdouble.impl.SparseCCMDoubleMatrix2DTest;
@@ -31,6 +37,7 @@ import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2DViewTest;
 import cern.colt.matrix.tdouble.impl.SparseRCMDoubleMatrix2DTest;
 import cern.colt.matrix.tdouble.impl.SparseRCMDoubleMatrix2DViewTest;
+import cern.colt.matrix.tdouble.impl.SparseSELLDoubleMatrix2DTest;
 
 public class AllDoubleMatrixTests {
 
@@ -62,6 +69,9 @@ public class AllDoubleMatrixTests {
         suite.addTestSuite(SparseCCDoubleMatrix2DViewTest.class);
         suite.addTestSuite(SparseCCMDoubleMatrix2DTest.class);
         suite.addTestSuite(SparseCCMDoubleMatrix2DViewTest.class);
+        suite.addTestSuite(ConcurrentSparseDoubleBuilder2DTest.class);
+        suite.addTestSuite(SparseBSRDoubleMatrix2DTest.class);
+        suite.addTestSuite(SparseSELLDoubleMatrix2DTest.class);
 
         suite.addTestSuite(DenseDoubleMatrix3DTest.class);
         suite.addTestSuite(DenseDoubleMatrix3DViewTest.class);
@@ -70,6 +80,14 @@ public class AllDoubleMatrixTests {
         suite.addTestSuite(DenseLargeDoubleMatrix3DTest.class);
         suite.addTestSuite(DenseLargeDoubleMatrix3DViewTest.class);
 
+        suite.addTestSuite(DoubleMatrixBatchTest.class);
+        suite.addTestSuite(DoubleMatrixExpressionTest.class);
+
+        suite.addTestSuite(DenseDoubleAlgebraTest.class);
+        suite.addTestSuite(DoubleStatisticTest.class);
+        suite.addTestSuite(DoubleStencilTest.class);
+        suite.addTestSuite(SmpDoubleBlasTest.class);
+
         suite.addTest(AllDoubleMatrixSolverTests.suite());
 
         return suite;
@@ -8,6 +8,7 @@ import cern.colt.function.tdouble.DoubleProcedure;
 import cern.colt.list.tdouble.DoubleArrayList;
 import cern.colt.list.tint.IntArrayList;
 import cern.jet.math.tdouble.DoubleFunctions;
+import cern.jet.math.tdouble.DoubleSummation;
 import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 public abstract class DoubleMatrix1DTest extends TestCase {
@@ -405,4 +406,43 @@ public abstract class DoubleMatrix1DTest extends TestCase {
         assertEquals(expected, sum, TOL);
     }
 
+    public void testSummationModes() {
+        int n = 3 * DoubleSummation.BLOCK_SIZE + 18;
+        DoubleMatrix1D x = A.like(n);
+        DoubleMatrix1D y = A.like(n);
+        int ones = 0;
+        for (int i = 0; i < n; i++) {
+            // naive summation loses the ones next to the large terms
+            double elem = (i % 3 == 0) ? 1e16 : (i % 3 == 1) ? 1 : -1e16;
+            if (elem == 1)
+                ones++;
+            x.setQuick(i, elem);
+            y.setQuick(i, 1);
+        }
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        try {
+            for (DoubleSummation.Mode mode : DoubleSummation.Mode.values()) {
+                DoubleSummation.setMode(mode);
+                ConcurrencyUtils.setNumberOfThreads(1);
+                double sum = x.zSum();
+                double dot = x.zDotProduct(y);
+                double aggr = x.aggregate(DoubleFunctions.plus, DoubleFunctions.identity);
+                if (mode == DoubleSummation.Mode.Kahan) {
+                    assertEquals(ones, sum, 0);
+                }
+                if (mode != DoubleSummation.Mode.Naive) {
+                    assertEquals(sum, dot, 0);
+                    assertEquals(sum, aggr, 0);
+                    ConcurrencyUtils.setNumberOfThreads(3);
+                    assertEquals(sum, x.zSum(), 0);
+                    assertEquals(dot, x.zDotProduct(y), 0);
+                    assertEquals(aggr, x.aggregate(DoubleFunctions.plus, DoubleFunctions.identity), 0);
+                }
+            }
+        } finally {
+            DoubleSummation.setMode(DoubleSummation.Mode.Naive);
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+        }
+    }
+
 }
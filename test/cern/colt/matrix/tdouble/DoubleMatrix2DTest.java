@@ -740,4 +740,37 @@ public abstract class DoubleMatrix2DTest extends TestCase {
         assertEquals(expected, sum, TOL);
     }
 
+    /**
+     * Returns a random array in which about a quarter of the elements are
+     * nonzero.
+     */
+    protected static double[][] randomSparse(Random random, int rows, int columns) {
+        double[][] a = new double[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (random.nextInt(4) == 0) {
+                    a[r][c] = random.nextDouble() - 0.5;
+                }
+            }
+        }
+        return a;
+    }
+
+    protected void assertEquals(DoubleMatrix1D expected, DoubleMatrix1D actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getQuick(i), actual.getQuick(i), TOL);
+        }
+    }
+
+    protected void assertEquals(DoubleMatrix2D expected, DoubleMatrix2D actual) {
+        assertEquals(expected.rows(), actual.rows());
+        assertEquals(expected.columns(), actual.columns());
+        for (int r = 0; r < expected.rows(); r++) {
+            for (int c = 0; c < expected.columns(); c++) {
+                assertEquals(expected.getQuick(r, c), actual.getQuick(r, c), TOL);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,115 @@
+package cern.colt.matrix.tdouble;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.algo.DenseDoubleAlgebra;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.jet.math.tdouble.DoubleFunctions;
+import edu.emory.mathcs.utils.ConcurrencyContext;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class DoubleMatrixBatchTest extends TestCase {
+
+    protected int SIZE = 300;
+
+    protected int N = 7;
+
+    protected double TOL = 1e-9;
+
+    protected DoubleMatrixBatch A;
+
+    protected DoubleMatrixBatch B;
+
+    public DoubleMatrixBatchTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void setUp() throws Exception {
+        A = new DoubleMatrixBatch(SIZE, N, N);
+        B = new DoubleMatrixBatch(SIZE, N, 3);
+        for (int t = 0; t < SIZE; t++) {
+            DoubleMatrix2D a = A.viewMatrix(t).assign(DoubleFunctions.random());
+            // diagonally dominant and symmetric, hence positive definite
+            a.assign(a.copy().viewDice(), DoubleFunctions.plus);
+            for (int i = 0; i < N; i++) {
+                a.setQuick(i, i, a.getQuick(i, i) + N);
+            }
+            B.viewMatrix(t).assign(DoubleFunctions.random());
+        }
+    }
+
+    public void testZMult() {
+        DoubleMatrixBatch C = new DoubleMatrixBatch(SIZE, N, 3);
+        C.viewMatrix(0).assign(1);
+        C = A.zMult(B, C, 2, 0, true, false);
+        for (int t = 0; t < SIZE; t++) {
+            DoubleMatrix2D expected = A.viewMatrix(t).zMult(B.viewMatrix(t), null, 2, 0, true, false);
+            assertEquals(expected, C.viewMatrix(t));
+        }
+        DoubleMatrixBatch Bt = new DoubleMatrixBatch(SIZE, 3, N);
+        for (int t = 0; t < SIZE; t++) {
+            Bt.assign(t, B.viewMatrix(t).viewDice());
+        }
+        DoubleMatrixBatch D = Bt.zMult(A, null);
+        for (int t = 0; t < SIZE; t++) {
+            assertEquals(Bt.viewMatrix(t).zMult(A.viewMatrix(t), null), D.viewMatrix(t));
+        }
+    }
+
+    public void testSolve() {
+        DoubleMatrixBatch X = A.solve(B);
+        for (int t = 0; t < SIZE; t++) {
+            assertEquals(B.viewMatrix(t), A.viewMatrix(t).zMult(X.viewMatrix(t), null));
+        }
+        X = A.solveCholesky(B);
+        for (int t = 0; t < SIZE; t++) {
+            assertEquals(B.viewMatrix(t), A.viewMatrix(t).zMult(X.viewMatrix(t), null));
+        }
+    }
+
+    public void testSolveParallel() {
+        try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+            context.setNumberOfThreads(4);
+            context.setThreadsBeginN("DoubleMatrixBatch.solve", 1);
+            DoubleMatrixBatch X = A.solve(B);
+            for (int t = 0; t < SIZE; t++) {
+                assertEquals(B.viewMatrix(t), A.viewMatrix(t).zMult(X.viewMatrix(t), null));
+            }
+        }
+    }
+
+    public void testInverse() {
+        DoubleMatrixBatch X = A.inverse();
+        DoubleMatrix2D I = new DenseDoubleMatrix2D(N, N);
+        for (int i = 0; i < N; i++) {
+            I.setQuick(i, i, 1);
+        }
+        for (int t = 0; t < SIZE; t++) {
+            assertEquals(I, A.viewMatrix(t).zMult(X.viewMatrix(t), null));
+            assertEquals(DenseDoubleAlgebra.DEFAULT.inverse(A.viewMatrix(t)), X.viewMatrix(t));
+        }
+    }
+
+    public void testSingular() {
+        A.viewMatrix(SIZE / 2).assign(0);
+        try {
+            A.solve(B);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            A.solveCholesky(B);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private void assertEquals(DoubleMatrix2D expected, DoubleMatrix2D actual) {
+        assertEquals(expected.rows(), actual.rows());
+        assertEquals(expected.columns(), actual.columns());
+        for (int r = 0; r < expected.rows(); r++) {
+            for (int c = 0; c < expected.columns(); c++) {
+                assertEquals(expected.getQuick(r, c), actual.getQuick(r, c), TOL);
+            }
+        }
+    }
+}
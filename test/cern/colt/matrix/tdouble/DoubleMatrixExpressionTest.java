@@ -0,0 +1,100 @@
+package cern.colt.matrix.tdouble;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.impl.DenseColumnDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseRCDoubleMatrix2D;
+import cern.jet.math.tdouble.DoubleFunctions;
+import edu.emory.mathcs.utils.ConcurrencyContext;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class DoubleMatrixExpressionTest extends TestCase {
+
+    protected int NROWS = 113;
+
+    protected int NCOLUMNS = 71;
+
+    protected double TOL = 1e-10;
+
+    public DoubleMatrixExpressionTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testMatrix() {
+        DoubleMatrix2D[] sources = { new DenseDoubleMatrix2D(NROWS, NCOLUMNS),
+                new DenseColumnDoubleMatrix2D(NROWS, NCOLUMNS), new SparseDoubleMatrix2D(NROWS, NCOLUMNS),
+                new DenseDoubleMatrix2D(NCOLUMNS, NROWS).viewDice() };
+        for (int i = 0; i < sources.length; i++) {
+            DoubleMatrix2D A = sources[i].assign(DoubleFunctions.random());
+            DoubleMatrix2D B = new DenseDoubleMatrix2D(NROWS, NCOLUMNS).assign(DoubleFunctions.random());
+            // an operand that is the source itself sees the current values
+            DoubleMatrix2D expected = A.copy();
+            expected.assign(B, DoubleFunctions.plus).assign(DoubleFunctions.square).assign(expected,
+                    DoubleFunctions.mult);
+
+            DoubleMatrixExpression e = new DoubleMatrixExpression(A).assign(B, DoubleFunctions.plus).assign(
+                    DoubleFunctions.square).assign(A, DoubleFunctions.mult);
+            assertEquals(expected.zSum(), e.zSum(), TOL);
+            assertEquals(expected.aggregate(DoubleFunctions.max, DoubleFunctions.abs), e.aggregate(
+                    DoubleFunctions.max, DoubleFunctions.abs), TOL);
+            assertEquals(expected.zSum(), e.evaluate(DoubleFunctions.plus, DoubleFunctions.identity), TOL);
+            for (int r = 0; r < NROWS; r++) {
+                for (int c = 0; c < NCOLUMNS; c++) {
+                    assertEquals(expected.getQuick(r, c), A.getQuick(r, c), TOL);
+                }
+            }
+        }
+    }
+
+    public void testVectorParallel() {
+        try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+            context.setNumberOfThreads(4);
+            context.setThreadsBeginN("DoubleMatrixExpression", 1);
+            DoubleMatrix1D x = new DenseDoubleMatrix1D(100000).assign(DoubleFunctions.random());
+            DoubleMatrix1D y = new DenseDoubleMatrix1D(100000).assign(DoubleFunctions.random());
+            DoubleMatrix1D expected = x.copy().assign(y, DoubleFunctions.minus).assign(DoubleFunctions.abs);
+            new DoubleMatrixExpression(x).assign(y, DoubleFunctions.minus).assign(DoubleFunctions.abs).evaluate();
+            for (int i = 0; i < x.size(); i++) {
+                assertEquals(expected.getQuick(i), x.getQuick(i), TOL);
+            }
+            assertEquals(expected.zSum(), new DoubleMatrixExpression(x).zSum(), 1e-6);
+        }
+    }
+
+    public void testSparseParallel() {
+        try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+            context.setNumberOfThreads(4);
+            context.setThreadsBeginN("DoubleMatrixExpression", 1);
+            DoubleMatrix2D[] sources = { new SparseRCDoubleMatrix2D(NROWS, NCOLUMNS),
+                    new SparseCCDoubleMatrix2D(NROWS, NCOLUMNS), new SparseDoubleMatrix2D(NROWS, NCOLUMNS) };
+            DoubleMatrix2D B = new DenseDoubleMatrix2D(NROWS, NCOLUMNS).assign(DoubleFunctions.random());
+            for (int i = 0; i < sources.length; i++) {
+                DoubleMatrix2D A = sources[i];
+                for (int r = 0; r < NROWS; r += 3) {
+                    A.setQuick(r, r % NCOLUMNS, r + 1);
+                }
+                // every cell becomes non-zero, so the evaluation inserts
+                DoubleMatrix2D expected = new DenseDoubleMatrix2D(NROWS, NCOLUMNS).assign(A).assign(B,
+                        DoubleFunctions.plus);
+                new DoubleMatrixExpression(A).assign(B, DoubleFunctions.plus).evaluate();
+                for (int r = 0; r < NROWS; r++) {
+                    for (int c = 0; c < NCOLUMNS; c++) {
+                        assertEquals(expected.getQuick(r, c), A.getQuick(r, c), TOL);
+                    }
+                }
+            }
+        }
+    }
+
+    public void testSharedCells() {
+        DoubleMatrix2D A = new DenseDoubleMatrix2D(NROWS, NROWS);
+        try {
+            new DoubleMatrixExpression(A).assign(A.viewDice(), DoubleFunctions.plus);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
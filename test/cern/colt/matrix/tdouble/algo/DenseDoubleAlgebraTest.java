@@ -0,0 +1,61 @@
+package cern.colt.matrix.tdouble.algo;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseColumnDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.jet.math.tdouble.DoubleFunctions;
+
+public class DenseDoubleAlgebraTest extends TestCase {
+
+    protected double TOL = 1e-10;
+
+    public DenseDoubleAlgebraTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testMultStrassen() {
+        DenseDoubleAlgebra alg = new DenseDoubleAlgebra();
+        alg.setStrassenCutoff(16);
+        // verify the recursion itself, not the fallback of the check
+        alg.setStrassenCheck(false);
+        // odd and even dimensions exercise the peeling of every level
+        int[][] sizes = { { 64, 64, 64 }, { 67, 53, 71 }, { 100, 37, 41 } };
+        for (int s = 0; s < sizes.length; s++) {
+            int m = sizes[s][0], k = sizes[s][1], n = sizes[s][2];
+            DoubleMatrix2D A = new DenseDoubleMatrix2D(m, k).assign(DoubleFunctions.random());
+            DoubleMatrix2D B = new DenseColumnDoubleMatrix2D(k, n).assign(DoubleFunctions.random());
+            DoubleMatrix2D expected = A.zMult(B, null);
+            DoubleMatrix2D C = alg.mult(A, B);
+            assertEquals(m, C.rows());
+            assertEquals(n, C.columns());
+            for (int r = 0; r < m; r++) {
+                for (int c = 0; c < n; c++) {
+                    assertEquals(expected.getQuick(r, c), C.getQuick(r, c), TOL);
+                }
+            }
+            C = alg.mult(B.viewDice(), A.viewDice());
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < m; c++) {
+                    assertEquals(expected.getQuick(c, r), C.getQuick(r, c), TOL);
+                }
+            }
+        }
+    }
+
+    public void testSetStrassenCutoff() {
+        try {
+            DenseDoubleAlgebra.DEFAULT.setStrassenCutoff(1024);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        DenseDoubleAlgebra alg = new DenseDoubleAlgebra();
+        try {
+            alg.setStrassenCutoff(1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        alg.setStrassenCutoff(1024);
+        assertEquals(1024, ((DenseDoubleAlgebra) alg.clone()).getStrassenCutoff());
+    }
+}
@@ -0,0 +1,34 @@
+package cern.colt.matrix.tdouble.algo;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+
+public class DoubleStatisticTest extends TestCase {
+
+    protected double TOL = 1e-10;
+
+    public DoubleStatisticTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testCovariance() {
+        DoubleMatrix2D A = new DenseDoubleMatrix2D(new double[][] { { 1, 2 }, { 2, 4 }, { 3, 5 }, { 6, 1 } });
+        DoubleMatrix2D C = DoubleStatistic.covariance(A);
+        assertEquals(3.5, C.getQuick(0, 0), TOL);
+        assertEquals(2.5, C.getQuick(1, 1), TOL);
+        assertEquals(-1.25, C.getQuick(0, 1), TOL);
+        assertEquals(-1.25, C.getQuick(1, 0), TOL);
+    }
+
+    public void testCovarianceLargeMean() {
+        // a one-pass formula loses all digits of the variance here
+        double offset = 1e9;
+        DoubleMatrix2D A = new DenseDoubleMatrix2D(new double[][] { { offset + 1, offset + 2 },
+                { offset + 2, offset + 4 }, { offset + 3, offset + 5 }, { offset + 6, offset + 1 } });
+        DoubleMatrix2D C = DoubleStatistic.covariance(A);
+        assertEquals(3.5, C.getQuick(0, 0), TOL);
+        assertEquals(2.5, C.getQuick(1, 1), TOL);
+        assertEquals(-1.25, C.getQuick(0, 1), TOL);
+    }
+}
@@ -0,0 +1,151 @@
+package cern.colt.matrix.tdouble.algo;
+
+import junit.framework.TestCase;
+import cern.colt.function.tdouble.Double27Function;
+import cern.colt.function.tdouble.Double9Function;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.DoubleMatrix2DProcedure;
+import cern.colt.matrix.tdouble.DoubleMatrix3D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix3D;
+import cern.jet.math.tdouble.DoubleFunctions;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class DoubleStencilTest extends TestCase {
+
+    protected double TOL = 1e-10;
+
+    public DoubleStencilTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testStencil27() {
+        final double[] c = new double[27];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = (i + 1) / 400.0;
+        }
+        Double27Function f = new Double27Function() {
+            public double apply(double a000, double a001, double a002, double a010, double a011, double a012,
+                    double a020, double a021, double a022, double a100, double a101, double a102, double a110,
+                    double a111, double a112, double a120, double a121, double a122, double a200, double a201,
+                    double a202, double a210, double a211, double a212, double a220, double a221, double a222) {
+                return c[0] * a000 + c[1] * a001 + c[2] * a002 + c[3] * a010 + c[4] * a011 + c[5] * a012 + c[6]
+                        * a020 + c[7] * a021 + c[8] * a022 + c[9] * a100 + c[10] * a101 + c[11] * a102 + c[12]
+                        * a110 + c[13] * a111 + c[14] * a112 + c[15] * a120 + c[16] * a121 + c[17] * a122 + c[18]
+                        * a200 + c[19] * a201 + c[20] * a202 + c[21] * a210 + c[22] * a211 + c[23] * a212 + c[24]
+                        * a220 + c[25] * a221 + c[26] * a222;
+            }
+        };
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        int beginN = ConcurrencyUtils.getThreadsBeginN_3D();
+        try {
+            for (int t = 1; t <= 4; t *= 4) {
+                // force the parallel slabs on small grids
+                ConcurrencyUtils.setNumberOfThreads(t);
+                ConcurrencyUtils.setThreadsBeginN_3D(1);
+                // the last grid is swept in several tiles per slice
+                int[][] sizes = { { 3, 3, 3 }, { 17, 9, 13 }, { 24, 20, 11 }, { 7, 70, 150 } };
+                for (int s = 0; s < sizes.length; s++) {
+                    for (int iterations = 2; iterations <= 10; iterations += 4) {
+                        DoubleMatrix3D A = new DenseDoubleMatrix3D(sizes[s][0], sizes[s][1], sizes[s][2])
+                                .assign(DoubleFunctions.random());
+                        DoubleMatrix3D expected = A.copy();
+                        DoubleStencil.stencil27(expected, f, iterations, null, 0);
+                        DoubleMatrix3D B = A.copy();
+                        assertEquals(iterations, DoubleStencil.stencil27(B, c, iterations, null, 0));
+                        assertEquals(expected, B, TOL);
+                        // views go through the same engine
+                        expected = A.viewDice(2, 0, 1).copy();
+                        DoubleStencil.stencil27(expected, f, iterations, null, 0);
+                        B = A.copy().viewDice(2, 0, 1);
+                        DoubleStencil.stencil27(B, c, iterations, null, 0);
+                        assertEquals(expected, B, TOL);
+                    }
+                }
+            }
+        } finally {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            ConcurrencyUtils.setThreadsBeginN_3D(beginN);
+        }
+        try {
+            DoubleStencil.stencil27(new DenseDoubleMatrix3D(3, 3, 3), new double[9], 2, null, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testStencil9() {
+        final double[] c = { 0.05, 0.1, 0.05, 0.1, 0.4, 0.1, 0.05, 0.1, 0.05 };
+        Double9Function f = new Double9Function() {
+            public double apply(double a00, double a01, double a02, double a10, double a11, double a12, double a20,
+                    double a21, double a22) {
+                return c[0] * a00 + c[1] * a01 + c[2] * a02 + c[3] * a10 + c[4] * a11 + c[5] * a12 + c[6] * a20
+                        + c[7] * a21 + c[8] * a22;
+            }
+        };
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        int beginN = ConcurrencyUtils.getThreadsBeginN_2D();
+        try {
+            for (int t = 1; t <= 4; t *= 4) {
+                ConcurrencyUtils.setNumberOfThreads(t);
+                ConcurrencyUtils.setThreadsBeginN_2D(1);
+                int[][] sizes = { { 3, 3 }, { 41, 17 }, { 64, 65 }, { 9, 5000 } };
+                for (int s = 0; s < sizes.length; s++) {
+                    DoubleMatrix2D A = new DenseDoubleMatrix2D(sizes[s][0], sizes[s][1]).assign(DoubleFunctions
+                            .random());
+                    DoubleMatrix2D expected = A.copy();
+                    DoubleStencil.stencil9(expected, f, 14, null, 0);
+                    DoubleMatrix2D B = A.copy();
+                    assertEquals(14, DoubleStencil.stencil9(B, c, 14, null, 0));
+                    assertEquals(expected, B, TOL);
+                    expected = A.viewDice().copy();
+                    DoubleStencil.stencil9(expected, f, 14, null, 0);
+                    B = A.copy().viewDice();
+                    DoubleStencil.stencil9(B, c, 14, null, 0);
+                    assertEquals(expected, B, TOL);
+                }
+            }
+        } finally {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+            ConcurrencyUtils.setThreadsBeginN_2D(beginN);
+        }
+        try {
+            DoubleStencil.stencil9(new DenseDoubleMatrix2D(3, 3), new double[27], 2, null, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testConvergence() {
+        final double[] c = new double[9];
+        c[4] = 0.5;
+        DoubleMatrix2D A = new DenseDoubleMatrix2D(20, 20).assign(1);
+        // the interior halves every iteration; checked every 4 iterations
+        int iterations = DoubleStencil.stencil9(A, c, 100, new DoubleMatrix2DProcedure() {
+            public boolean apply(DoubleMatrix2D M) {
+                return M.getQuick(10, 10) < 1e-3;
+            }
+        }, 4);
+        assertEquals(12, iterations);
+        assertEquals(Math.pow(0.5, 12), A.getQuick(10, 10), TOL);
+        assertEquals(1, A.getQuick(0, 10), TOL);
+    }
+
+    private void assertEquals(DoubleMatrix3D expected, DoubleMatrix3D actual, double tol) {
+        for (int s = 0; s < expected.slices(); s++) {
+            for (int r = 0; r < expected.rows(); r++) {
+                for (int c = 0; c < expected.columns(); c++) {
+                    assertEquals(expected.getQuick(s, r, c), actual.getQuick(s, r, c), tol);
+                }
+            }
+        }
+    }
+
+    private void assertEquals(DoubleMatrix2D expected, DoubleMatrix2D actual, double tol) {
+        for (int r = 0; r < expected.rows(); r++) {
+            for (int c = 0; c < expected.columns(); c++) {
+                assertEquals(expected.getQuick(r, c), actual.getQuick(r, c), tol);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package cern.colt.matrix.tdouble.algo;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.jet.math.tdouble.DoubleFunctions;
+import edu.emory.mathcs.utils.ConcurrencyContext;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class SmpDoubleBlasTest extends TestCase {
+
+    protected int SIZE = 113;
+
+    protected double TOL = 1e-10;
+
+    protected DoubleBlas blas = new SmpDoubleBlas();
+
+    public SmpDoubleBlasTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testDsymv() {
+        // not symmetric: only one triangle may be read
+        DoubleMatrix2D A = new DenseDoubleMatrix2D(SIZE, SIZE).assign(DoubleFunctions.random());
+        DoubleMatrix1D x = new DenseDoubleMatrix1D(SIZE).assign(DoubleFunctions.random());
+        DoubleMatrix1D y = new DenseDoubleMatrix1D(SIZE).assign(DoubleFunctions.random());
+        for (boolean isUpperTriangular : new boolean[] { false, true }) {
+            DoubleMatrix1D expected = y.copy();
+            try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                context.setNumberOfThreads(1);
+                blas.dsymv(isUpperTriangular, 1.5, A, x, -0.5, expected);
+            }
+            for (int nthreads : new int[] { 2, 4, 7 }) {
+                DoubleMatrix1D actual = y.copy();
+                try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                    context.setNumberOfThreads(nthreads);
+                    context.setThreadsBeginN_2D(1);
+                    blas.dsymv(isUpperTriangular, 1.5, A, x, -0.5, actual);
+                }
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    public void testDtrmv() {
+        DoubleMatrix2D A = new DenseDoubleMatrix2D(SIZE, SIZE).assign(DoubleFunctions.random());
+        DoubleMatrix1D x = new DenseDoubleMatrix1D(SIZE).assign(DoubleFunctions.random());
+        for (boolean isUpperTriangular : new boolean[] { false, true }) {
+            for (boolean transposeA : new boolean[] { false, true }) {
+                for (boolean isUnitTriangular : new boolean[] { false, true }) {
+                    DoubleMatrix1D expected = x.copy();
+                    try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                        context.setNumberOfThreads(1);
+                        blas.dtrmv(isUpperTriangular, transposeA, isUnitTriangular, A, expected);
+                    }
+                    for (int nthreads : new int[] { 2, 4, 7 }) {
+                        DoubleMatrix1D actual = x.copy();
+                        try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                            context.setNumberOfThreads(nthreads);
+                            context.setThreadsBeginN_2D(1);
+                            blas.dtrmv(isUpperTriangular, transposeA, isUnitTriangular, A, actual);
+                        }
+                        assertEquals(expected, actual);
+                    }
+                }
+            }
+        }
+    }
+
+    private void assertEquals(DoubleMatrix1D expected, DoubleMatrix1D actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getQuick(i), actual.getQuick(i), TOL);
+        }
+    }
+}
@@ -18,6 +18,8 @@ public class AllDoubleMatrixSolverTests {
         suite.addTestSuite(DoubleCGICCTest.class);
         //                suite.addTestSuite(CGAMGTest.class);
         suite.addTestSuite(DoubleCGILUTTest.class);
+        suite.addTestSuite(DoubleCGBlockSSORTest.class);
+        suite.addTestSuite(DoubleCGBlockILUTest.class);
 
         suite.addTestSuite(DoubleCGSTest.class);
         suite.addTestSuite(DoubleCGSDiagonalTest.class);
@@ -42,6 +44,7 @@ public class AllDoubleMatrixSolverTests {
         suite.addTestSuite(DoubleBiCGICCTest.class);
         suite.addTestSuite(DoubleBiCGAMGTest.class);
         suite.addTestSuite(DoubleBiCGILUTTest.class);
+        suite.addTestSuite(DoubleBiCGBlockILUTest.class);
 
         suite.addTestSuite(DoubleBiCGstabTest.class);
         suite.addTestSuite(DoubleBiCGstabDiagonalTest.class);
@@ -50,6 +53,7 @@ public class AllDoubleMatrixSolverTests {
         suite.addTestSuite(DoubleBiCGstabICCTest.class);
         suite.addTestSuite(DoubleBiCGstabAMGTest.class);
         suite.addTestSuite(DoubleBiCGstabILUTTest.class);
+        suite.addTestSuite(DoubleBiCGstabBlockSSORTest.class);
 
         suite.addTestSuite(DoubleGMRESTest.class);
         suite.addTestSuite(DoubleGMRESDiagonalTest.class);
@@ -0,0 +1,25 @@
+package cern.colt.matrix.tdouble.algo.solver;
+
+import cern.colt.matrix.tdouble.algo.solver.preconditioner.DoubleILU;
+import cern.colt.matrix.tdouble.impl.SparseBSRDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseDoubleMatrix2D;
+
+/**
+ * Test of DoubleBiCG with block ILU
+ */
+public class DoubleBiCGBlockILUTest extends DoubleBiCGTest {
+
+    public DoubleBiCGBlockILUTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrix() throws Exception {
+        A = new SparseBSRDoubleMatrix2D(new SparseDoubleMatrix2D(matrix).getRowCompressed(true), 3);
+    }
+
+    protected void createSolver() throws Exception {
+        super.createSolver();
+        M = new DoubleILU(A.rows());
+    }
+
+}
@@ -0,0 +1,26 @@
+package cern.colt.matrix.tdouble.algo.solver;
+
+import cern.colt.matrix.tdouble.algo.solver.preconditioner.DoubleSSOR;
+import cern.colt.matrix.tdouble.impl.SparseBSRDoubleMatrix2D;
+import cern.colt.matrix.tdouble.impl.SparseDoubleMatrix2D;
+
+/**
+ * Test of DoubleCG with block SSOR
+ */
+public class DoubleCGBlockSSORTest extends DoubleCGTest {
+
+    public DoubleCGBlockSSORTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrix() throws Exception {
+        A = new SparseBSRDoubleMatrix2D(new SparseDoubleMatrix2D(matrix).getRowCompressed(true), 3);
+    }
+
+    protected void createSolver() throws Exception {
+        super.createSolver();
+        double omega = Math.random() + 1;
+        M = new DoubleSSOR(A.rows(), true, omega, omega);
+    }
+
+}
@@ -0,0 +1,84 @@
+package cern.colt.matrix.tdouble.impl;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+public class ConcurrentSparseDoubleBuilder2DTest extends TestCase {
+
+    protected double TOL = 1e-10;
+
+    public ConcurrentSparseDoubleBuilder2DTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testAssembly() throws InterruptedException {
+        // 1D finite element stiffness matrix, element e couples nodes e and e + 1
+        final int n = 2001;
+        final ConcurrentSparseDoubleBuilder2D builder = new ConcurrentSparseDoubleBuilder2D(n, n, 0, 8);
+        final int nthreads = 4;
+        Thread[] threads = new Thread[nthreads];
+        for (int t = 0; t < nthreads; t++) {
+            final int first = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int e = first; e < n - 1; e += nthreads) {
+                        builder.addQuick(e, e, 1);
+                        builder.addQuick(e, e + 1, -1);
+                        builder.addQuick(e + 1, e, -1);
+                        builder.addQuick(e + 1, e + 1, 1);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < nthreads; t++) {
+            threads[t].join();
+        }
+        assertEquals(3 * n - 2, builder.cardinality());
+        DoubleMatrix2D[] results = { builder.getRowCompressed(true), builder.getRowCompressed(false),
+                builder.getColumnCompressed(true), builder.getColumnCompressed(false), builder.getSparse() };
+        for (DoubleMatrix2D A : results) {
+            assertEquals(n, A.rows());
+            assertEquals(n, A.columns());
+            assertEquals(3 * n - 2, A.cardinality());
+            for (int i = 0; i < n; i++) {
+                assertEquals((i == 0 || i == n - 1) ? 1 : 2, A.getQuick(i, i), TOL);
+                if (i > 0) {
+                    assertEquals(-1, A.getQuick(i, i - 1), TOL);
+                    assertEquals(-1, A.getQuick(i - 1, i), TOL);
+                }
+            }
+        }
+    }
+
+    public void testAddAndSet() {
+        ConcurrentSparseDoubleBuilder2D builder = new ConcurrentSparseDoubleBuilder2D(5, 7);
+        builder.add(4, 6, 2.5);
+        builder.add(4, 6, 1);
+        assertEquals(3.5, builder.get(4, 6), TOL);
+        builder.add(4, 6, -3.5);
+        assertEquals(0, builder.cardinality());
+        builder.setQuick(1, 2, 3);
+        builder.addQuick(1, 2, 1);
+        assertEquals(4, builder.getQuick(1, 2), TOL);
+        builder.setQuick(1, 2, 0);
+        assertEquals(0, builder.cardinality());
+        assertEquals(0, builder.getRowCompressed(true).cardinality());
+        assertEquals(0, builder.getColumnCompressed(true).cardinality());
+        try {
+            builder.add(5, 0, 1);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+        try {
+            builder.get(0, -1);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+        try {
+            new ConcurrentSparseDoubleBuilder2D(5, 7, 0, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
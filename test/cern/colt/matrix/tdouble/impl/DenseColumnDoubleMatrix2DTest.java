@@ -17,6 +17,17 @@ public class DenseColumnDoubleMatrix2DTest extends DoubleMatrix2DTest {
         Bt = new DenseColumnDoubleMatrix2D(NCOLUMNS, NROWS);
     }
 
+    public void testGetRowMajor() {
+        DenseDoubleMatrix2D R = ((DenseColumnDoubleMatrix2D) A).getRowMajor();
+        assertEquals(A.rows(), R.rows());
+        assertEquals(A.columns(), R.columns());
+        for (int r = 0; r < A.rows(); r++) {
+            for (int c = 0; c < A.columns(); c++) {
+                assertEquals(A.getQuick(r, c), R.getQuick(r, c), 0);
+            }
+        }
+    }
+
     public void testAssignDoubleArray() {
         double[] expected = new double[(int) A.size()];
         for (int i = 0; i < A.size(); i++) {
@@ -1,9 +1,13 @@
 package cern.colt.matrix.tdouble.impl;
 
+import cern.colt.function.tdouble.DoubleDoubleFunction;
+import cern.colt.function.tdouble.DoubleFunction;
+import cern.colt.matrix.ConvolutionMode;
 import cern.colt.matrix.tdcomplex.DComplexMatrix1D;
 import cern.colt.matrix.tdcomplex.impl.DenseDComplexMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix1DTest;
+import cern.jet.math.tdouble.DoubleFunctions;
 
 public class DenseDoubleMatrix1DTest extends DoubleMatrix1DTest {
 
@@ -16,6 +20,39 @@ public class DenseDoubleMatrix1DTest extends DoubleMatrix1DTest {
         B = new DenseDoubleMatrix1D(SIZE);
     }
 
+    public void testAssignSpecializedDoubleFunction() {
+        DoubleFunction[] functions = { DoubleFunctions.abs, DoubleFunctions.neg, DoubleFunctions.square,
+                DoubleFunctions.sqrt, DoubleFunctions.inv, DoubleFunctions.exp, DoubleFunctions.log,
+                DoubleFunctions.floor, DoubleFunctions.ceil, DoubleFunctions.rint, DoubleFunctions.sign,
+                DoubleFunctions.identity, DoubleFunctions.mult(2.5), DoubleFunctions.plus(-0.5),
+                DoubleFunctions.chain(DoubleFunctions.sqrt, DoubleFunctions.plus(1)),
+                DoubleFunctions.chain(DoubleFunctions.square, DoubleFunctions.chain(DoubleFunctions.abs,
+                        DoubleFunctions.minus(0.5))), DoubleFunctions.chain(DoubleFunctions.tan, DoubleFunctions.neg) };
+        DoubleMatrix1D Acopy = A.copy();
+        for (DoubleFunction f : functions) {
+            A.assign(Acopy).assign(f);
+            for (int i = 0; i < (int) A.size(); i++) {
+                assertEquals(f.apply(Acopy.getQuick(i)), A.getQuick(i), TOL);
+            }
+        }
+    }
+
+    public void testAssignDoubleMatrix1DSpecializedDoubleDoubleFunction() {
+        DoubleDoubleFunction[] functions = { DoubleFunctions.plus, DoubleFunctions.minus,
+                DoubleFunctions.plusMultSecond(3), DoubleFunctions.plusMultFirst(0),
+                DoubleFunctions.plusMultFirst(-1), DoubleFunctions.plusMultFirst(2), DoubleFunctions.mult,
+                DoubleFunctions.div, DoubleFunctions.max, DoubleFunctions.min,
+                DoubleFunctions.chain(DoubleFunctions.abs, DoubleFunctions.minus),
+                DoubleFunctions.chain(DoubleFunctions.sqrt, DoubleFunctions.pow) };
+        DoubleMatrix1D Acopy = A.copy();
+        for (DoubleDoubleFunction f : functions) {
+            A.assign(Acopy).assign(B, f);
+            for (int i = 0; i < (int) A.size(); i++) {
+                assertEquals(f.apply(Acopy.getQuick(i), B.getQuick(i)), A.getQuick(i), TOL);
+            }
+        }
+    }
+
     public void testDct() {
         DoubleMatrix1D Acopy = A.copy();
         ((DenseDoubleMatrix1D) A).dct(true);
@@ -74,4 +111,73 @@ public class DenseDoubleMatrix1DTest extends DoubleMatrix1DTest {
         }
     }
 
+    public void testGetRealFft() {
+        DoubleMatrix1D[] cases = { A, new DenseDoubleMatrix1D(1), new DenseDoubleMatrix1D(2),
+                new DenseDoubleMatrix1D(7), new DenseDoubleMatrix1D(100) };
+        for (DoubleMatrix1D a : cases) {
+            a.assign(DoubleFunctions.random());
+            int n = (int) a.size();
+            DComplexMatrix1D full = ((DenseDoubleMatrix1D) a).getFft();
+            DenseDComplexMatrix1D half = ((DenseDoubleMatrix1D) a).getRealFft();
+            assertEquals(n / 2 + 1, half.size());
+            for (int k = 0; k <= n / 2; k++) {
+                assertEquals(full.getQuick(k)[0], half.getQuick(k)[0], TOL);
+                assertEquals(full.getQuick(k)[1], half.getQuick(k)[1], TOL);
+            }
+            DoubleMatrix1D b = half.getRealIfft(n, true);
+            for (int i = 0; i < n; i++) {
+                assertEquals(a.getQuick(i), b.getQuick(i), TOL);
+            }
+        }
+        try {
+            new DenseDComplexMatrix1D(3).getRealIfft(6, true);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testConvolve() {
+        // direct, blocked direct and FFT
+        int[] sizes = { 1, 5, 40, (int) A.size() };
+        for (int k : sizes) {
+            DoubleMatrix1D kernel = new DenseDoubleMatrix1D(k).assign(DoubleFunctions.random());
+            for (ConvolutionMode mode : ConvolutionMode.values()) {
+                assertConvolution(A, kernel, mode, true, ((DenseDoubleMatrix1D) A).convolve(kernel, mode));
+                assertConvolution(A, kernel, mode, false, ((DenseDoubleMatrix1D) A).correlate(kernel, mode));
+            }
+        }
+        // overlap-add
+        DoubleMatrix1D signal = new DenseDoubleMatrix1D(20000).assign(DoubleFunctions.random());
+        DoubleMatrix1D kernel = new DenseDoubleMatrix1D(300).assign(DoubleFunctions.random());
+        for (ConvolutionMode mode : ConvolutionMode.values()) {
+            assertConvolution(signal, kernel, mode, true, ((DenseDoubleMatrix1D) signal).convolve(kernel, mode));
+        }
+        assertEquals(0, ((DenseDoubleMatrix1D) A).convolve(new DenseDoubleMatrix1D((int) A.size() + 1),
+                ConvolutionMode.Valid).size());
+        try {
+            ((DenseDoubleMatrix1D) A).convolve(new DenseDoubleMatrix1D(0), ConvolutionMode.Full);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private void assertConvolution(DoubleMatrix1D x, DoubleMatrix1D kernel, ConvolutionMode mode, boolean flip,
+            DoubleMatrix1D result) {
+        int n = (int) x.size();
+        int k = (int) kernel.size();
+        int start = (mode == ConvolutionMode.Full) ? 0 : (mode == ConvolutionMode.Same) ? (k - 1) / 2 : k - 1;
+        int size = (mode == ConvolutionMode.Full) ? n + k - 1 : (mode == ConvolutionMode.Same) ? n : Math.max(
+                n - k + 1, 0);
+        assertEquals(size, result.size());
+        for (int i = 0; i < size; i++) {
+            double sum = 0;
+            for (int j = 0; j < k; j++) {
+                int idx = flip ? start + i - j : start + i + j - (k - 1);
+                if (idx >= 0 && idx < n) {
+                    sum += x.getQuick(idx) * kernel.getQuick(j);
+                }
+            }
+            assertEquals(sum, result.getQuick(i), TOL);
+        }
+    }
 }
\ No newline at end of file
@@ -1,9 +1,20 @@
 package cern.colt.matrix.tdouble.impl;
 
+import java.util.concurrent.CancellationException;
+
+import cern.colt.function.tdouble.DoubleDoubleFunction;
+import cern.colt.function.tdouble.DoubleFunction;
+import cern.colt.matrix.ConvolutionMode;
+import cern.colt.matrix.TransformPlans;
 import cern.colt.matrix.tdcomplex.DComplexMatrix2D;
 import cern.colt.matrix.tdcomplex.impl.DenseDComplexMatrix2D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.DoubleMatrix2DTest;
+import cern.colt.matrix.tdouble.algo.DenseDoubleAlgebra;
+import cern.jet.math.tdcomplex.DComplexFunctions;
+import cern.jet.math.tdouble.DoubleFunctions;
+import edu.emory.mathcs.utils.ConcurrencyContext;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 public class DenseDoubleMatrix2DTest extends DoubleMatrix2DTest {
 
@@ -17,6 +28,157 @@ public class DenseDoubleMatrix2DTest extends DoubleMatrix2DTest {
         Bt = new DenseDoubleMatrix2D(NCOLUMNS, NROWS);
     }
 
+    public void testAssignSpecializedDoubleFunction() {
+        DoubleFunction[] functions = { DoubleFunctions.abs, DoubleFunctions.neg, DoubleFunctions.square,
+                DoubleFunctions.sqrt, DoubleFunctions.inv, DoubleFunctions.exp, DoubleFunctions.log,
+                DoubleFunctions.floor, DoubleFunctions.ceil, DoubleFunctions.rint, DoubleFunctions.sign,
+                DoubleFunctions.identity, DoubleFunctions.mult(2.5), DoubleFunctions.plus(-0.5),
+                DoubleFunctions.chain(DoubleFunctions.sqrt, DoubleFunctions.plus(1)),
+                DoubleFunctions.chain(DoubleFunctions.square, DoubleFunctions.chain(DoubleFunctions.abs,
+                        DoubleFunctions.minus(0.5))), DoubleFunctions.chain(DoubleFunctions.tan, DoubleFunctions.neg) };
+        DoubleMatrix2D Acopy = A.copy();
+        for (DoubleFunction f : functions) {
+            A.assign(Acopy).assign(f);
+            for (int r = 0; r < A.rows(); r++) {
+                for (int c = 0; c < A.columns(); c++) {
+                    assertEquals(f.apply(Acopy.getQuick(r, c)), A.getQuick(r, c), TOL);
+                }
+            }
+        }
+    }
+
+    public void testAssignDoubleMatrix2DSpecializedDoubleDoubleFunction() {
+        DoubleDoubleFunction[] functions = { DoubleFunctions.plus, DoubleFunctions.minus,
+                DoubleFunctions.plusMultSecond(3), DoubleFunctions.plusMultFirst(0),
+                DoubleFunctions.plusMultFirst(-1), DoubleFunctions.plusMultFirst(2), DoubleFunctions.mult,
+                DoubleFunctions.div, DoubleFunctions.max, DoubleFunctions.min,
+                DoubleFunctions.chain(DoubleFunctions.abs, DoubleFunctions.minus),
+                DoubleFunctions.chain(DoubleFunctions.sqrt, DoubleFunctions.pow) };
+        DoubleMatrix2D Acopy = A.copy();
+        for (DoubleDoubleFunction f : functions) {
+            A.assign(Acopy).assign(B, f);
+            for (int r = 0; r < A.rows(); r++) {
+                for (int c = 0; c < A.columns(); c++) {
+                    assertEquals(f.apply(Acopy.getQuick(r, c), B.getQuick(r, c)), A.getQuick(r, c), TOL);
+                }
+            }
+        }
+    }
+
+    public void testAssignDoubleMatrix2DLayouts() {
+        int rows = 70;
+        int columns = 45;
+        DoubleMatrix2D base = new DenseDoubleMatrix2D(2 * rows, 2 * columns);
+        for (int r = 0; r < base.rows(); r++) {
+            for (int c = 0; c < base.columns(); c++) {
+                base.setQuick(r, c, Math.random());
+            }
+        }
+        DoubleMatrix2D[] sources = { base.viewPart(1, 2, rows, columns),
+                base.viewDice().viewPart(2, 1, columns, rows).viewDice(), base.viewStrides(2, 2),
+                new DenseColumnDoubleMatrix2D(rows, columns).assign(base.viewPart(3, 0, rows, columns)) };
+        for (DoubleMatrix2D source : sources) {
+            DoubleMatrix2D[] targets = { new DenseDoubleMatrix2D(rows, columns),
+                    new DenseDoubleMatrix2D(columns, rows).viewDice(),
+                    new DenseDoubleMatrix2D(rows + 1, columns + 2).viewPart(1, 1, rows, columns),
+                    new DenseDoubleMatrix2D(2 * rows, 2 * columns).viewStrides(2, 2) };
+            double[][] values = source.toArray();
+            double[] vector = source.vectorize().toArray();
+            double[] rowMajor = new double[rows * columns];
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    assertEquals(source.getQuick(r, c), values[r][c], 0);
+                    assertEquals(source.getQuick(r, c), vector[c * rows + r], 0);
+                    rowMajor[r * columns + c] = source.getQuick(r, c);
+                }
+            }
+            for (DoubleMatrix2D target : targets) {
+                target.assign(source);
+                for (int r = 0; r < rows; r++) {
+                    for (int c = 0; c < columns; c++) {
+                        assertEquals(source.getQuick(r, c), target.getQuick(r, c), 0);
+                    }
+                }
+                target.assign(-1).assign(rowMajor);
+                for (int r = 0; r < rows; r++) {
+                    for (int c = 0; c < columns; c++) {
+                        assertEquals(source.getQuick(r, c), target.getQuick(r, c), 0);
+                    }
+                }
+                assertEquals(-rows * columns, target.assign(-1).zSum(), 0);
+            }
+        }
+    }
+
+    public void testGetColumnMajor() {
+        DenseColumnDoubleMatrix2D R = ((DenseDoubleMatrix2D) A).getColumnMajor();
+        assertEquals(A.rows(), R.rows());
+        assertEquals(A.columns(), R.columns());
+        for (int r = 0; r < A.rows(); r++) {
+            for (int c = 0; c < A.columns(); c++) {
+                assertEquals(A.getQuick(r, c), R.getQuick(r, c), 0);
+            }
+        }
+    }
+
+    public void testTransposeInPlace() {
+        int[] sizes = { 1, 5, 64, 65, 150 };
+        for (int n : sizes) {
+            DoubleMatrix2D base = new DenseDoubleMatrix2D(n + 3, n + 2);
+            for (int r = 0; r < base.rows(); r++) {
+                for (int c = 0; c < base.columns(); c++) {
+                    base.setQuick(r, c, Math.random());
+                }
+            }
+            DoubleMatrix2D[] matrices = { base.viewPart(0, 0, n, n).copy(), base.viewPart(2, 1, n, n),
+                    base.viewPart(1, 2, n, n).viewDice() };
+            for (DoubleMatrix2D M : matrices) {
+                DoubleMatrix2D expected = M.viewDice().copy();
+                ((DenseDoubleMatrix2D) M).transposeInPlace();
+                for (int r = 0; r < n; r++) {
+                    for (int c = 0; c < n; c++) {
+                        assertEquals(expected.getQuick(r, c), M.getQuick(r, c), 0);
+                    }
+                }
+            }
+        }
+        try {
+            new DenseDoubleMatrix2D(2, 3).transposeInPlace();
+            fail();
+        } catch (IllegalArgumentException exc) {
+        }
+    }
+
+    public void testReproducibleReductions() {
+        DoubleMatrix2D M = new DenseDoubleMatrix2D(301, 257);
+        for (int r = 0; r < M.rows(); r++) {
+            for (int c = 0; c < M.columns(); c++) {
+                M.setQuick(r, c, random.nextGaussian() * Math.pow(10, random.nextInt(12)));
+            }
+        }
+        DoubleMatrix2D D = M.viewDice();
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        ConcurrencyUtils.setReproducible(true);
+        try {
+            double[] expected = null;
+            for (int n = 1; n <= 5; n++) {
+                ConcurrencyUtils.setNumberOfThreads(n);
+                double[] result = { M.zSum(), D.zSum(), M.aggregate(DoubleFunctions.plus, DoubleFunctions.square),
+                        M.vectorize().zDotProduct(D.viewDice().vectorize()),
+                        DenseDoubleAlgebra.DEFAULT.vectorNorm2(D) };
+                if (expected == null) {
+                    expected = result;
+                }
+                for (int i = 0; i < result.length; i++) {
+                    assertEquals(expected[i], result[i], 0);
+                }
+            }
+        } finally {
+            ConcurrencyUtils.setReproducible(false);
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+        }
+    }
+
     public void testAssignDoubleArray() {
         double[] expected = new double[(int) A.size()];
         for (int i = 0; i < A.size(); i++) {
@@ -160,6 +322,63 @@ public class DenseDoubleMatrix2DTest extends DoubleMatrix2DTest {
         }
     }
 
+    public void testFft2KeepsNumberOfThreads() {
+        int nthreads = ConcurrencyUtils.getNumberOfThreads();
+        ConcurrencyUtils.setNumberOfThreads(8);
+        try {
+            DenseDoubleMatrix2D A = new DenseDoubleMatrix2D(16, 32);
+            ConcurrencyContext context = ConcurrencyUtils.openContext();
+            try {
+                context.setNumberOfThreads(3);
+                A.fft2();
+                assertEquals(3, ConcurrencyUtils.getNumberOfThreads());
+            } finally {
+                context.close();
+            }
+            assertEquals(8, ConcurrencyUtils.getNumberOfThreads());
+        } finally {
+            ConcurrencyUtils.setNumberOfThreads(nthreads);
+        }
+    }
+
+    public void testRowTransformsKeepFftThresholds() {
+        ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(1024);
+        ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(4096);
+        try {
+            DenseDoubleMatrix2D A = new DenseDoubleMatrix2D(16, 32);
+            A.assign(DoubleFunctions.random());
+            DenseDoubleMatrix2D expected = (DenseDoubleMatrix2D) A.copy();
+            expected.dctRows(false);
+            expected.dhtColumns();
+            ConcurrencyContext context = ConcurrencyUtils.openContext();
+            try {
+                context.setNumberOfThreads(4);
+                context.setThreadsBeginN_2D(1);
+                A.dctRows(false);
+                A.dhtColumns();
+                assertEquals(1024, ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads());
+                assertEquals(4096, ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads());
+                context.cancel();
+                try {
+                    A.dctColumns(false);
+                    fail();
+                } catch (CancellationException e) {
+                }
+            } finally {
+                context.close();
+            }
+            for (int r = 0; r < A.rows(); r++) {
+                for (int c = 0; c < A.columns(); c++) {
+                    assertEquals(expected.getQuick(r, c), A.getQuick(r, c), TOL);
+                }
+            }
+            assertEquals(1024, ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads());
+            assertEquals(4096, ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads());
+        } finally {
+            ConcurrencyUtils.resetThreadsBeginN_FFT();
+        }
+    }
+
     public void testGetFft2() {
         DoubleMatrix2D Acopy = A.copy();
         DComplexMatrix2D Ac = ((DenseDoubleMatrix2D) A).getFft2();
@@ -186,6 +405,95 @@ public class DenseDoubleMatrix2DTest extends DoubleMatrix2DTest {
         }
     }
 
+    public void testGetRealFft2() {
+        DoubleMatrix2D[] cases = { A, A.viewDice(), new DenseDoubleMatrix2D(3, 2), new DenseDoubleMatrix2D(6, 9),
+                new DenseDoubleMatrix2D(35, 64) };
+        for (DoubleMatrix2D a : cases) {
+            a.assign(DoubleFunctions.random());
+            int rows = a.rows();
+            int columns = a.columns();
+            DComplexMatrix2D full = ((DenseDoubleMatrix2D) a).getFft2();
+            DenseDComplexMatrix2D half = ((DenseDoubleMatrix2D) a).getRealFft2();
+            assertEquals(rows, half.rows());
+            assertEquals(columns / 2 + 1, half.columns());
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c <= columns / 2; c++) {
+                    assertEquals(full.getQuick(r, c)[0], half.getQuick(r, c)[0], TOL);
+                    assertEquals(full.getQuick(r, c)[1], half.getQuick(r, c)[1], TOL);
+                }
+            }
+            DoubleMatrix2D b = half.getRealIfft2(columns, true);
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    assertEquals(a.getQuick(r, c), b.getQuick(r, c), TOL);
+                }
+            }
+        }
+    }
+
+    public void testRealFft2Filter() {
+        // circular convolution with a kernel, done on the half spectra
+        DoubleMatrix2D a = new DenseDoubleMatrix2D(12, 15).assign(DoubleFunctions.random());
+        DoubleMatrix2D g = new DenseDoubleMatrix2D(12, 15);
+        g.setQuick(0, 0, 0.5);
+        g.setQuick(1, 0, 0.25);
+        g.setQuick(0, 14, 0.25);
+        DenseDComplexMatrix2D spectrum = ((DenseDoubleMatrix2D) a).getRealFft2();
+        spectrum.assign(((DenseDoubleMatrix2D) g).getRealFft2(), DComplexFunctions.mult);
+        DoubleMatrix2D b = spectrum.getRealIfft2(15, true);
+        for (int r = 0; r < 12; r++) {
+            for (int c = 0; c < 15; c++) {
+                double expected = 0.5 * a.getQuick(r, c) + 0.25 * a.getQuick((r + 11) % 12, c) + 0.25
+                        * a.getQuick(r, (c + 1) % 15);
+                assertEquals(expected, b.getQuick(r, c), TOL);
+            }
+        }
+    }
+
+    public void testTransformPlans() {
+        int capacity = TransformPlans.getCapacity();
+        try {
+            TransformPlans.clear();
+            TransformPlans.resetStatistics();
+            DoubleMatrix2D B = new DenseDoubleMatrix2D(33, 20).assign(DoubleFunctions.random());
+            DoubleMatrix2D Bcopy = B.copy();
+            ((DenseDoubleMatrix2D) B).dct2(true);
+            assertEquals(0, TransformPlans.getHits());
+            assertEquals(1, TransformPlans.getMisses());
+            // another matrix of the same size reuses the released plan
+            DoubleMatrix2D C = B.copy();
+            ((DenseDoubleMatrix2D) C).idct2(true);
+            ((DenseDoubleMatrix2D) B).idct2(true);
+            assertEquals(2, TransformPlans.getHits());
+            assertEquals(1, TransformPlans.getMisses());
+            assertEquals(1, TransformPlans.getSize());
+            for (int r = 0; r < B.rows(); r++) {
+                for (int c = 0; c < B.columns(); c++) {
+                    assertEquals(Bcopy.getQuick(r, c), B.getQuick(r, c), TOL);
+                    assertEquals(Bcopy.getQuick(r, c), C.getQuick(r, c), TOL);
+                }
+            }
+            // the least recently used plans are dropped first
+            TransformPlans.setCapacity(2);
+            ((DenseDoubleMatrix2D) B).dst2(true);
+            ((DenseDoubleMatrix2D) B).idst2(true);
+            ((DenseDoubleMatrix2D) B).dht2();
+            assertEquals(2, TransformPlans.getSize());
+            assertEquals(3, TransformPlans.getMisses());
+            ((DenseDoubleMatrix2D) B).dct2(true);
+            assertEquals(4, TransformPlans.getMisses());
+            TransformPlans.setCapacity(0);
+            assertEquals(0, TransformPlans.getSize());
+            try {
+                TransformPlans.setCapacity(-1);
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+        } finally {
+            TransformPlans.setCapacity(capacity);
+        }
+    }
+
     public void testGetFftColumns() {
         DoubleMatrix2D Acopy = A.copy();
         DComplexMatrix2D Ac = ((DenseDoubleMatrix2D) A).getFftColumns();
@@ -238,4 +546,82 @@ public class DenseDoubleMatrix2DTest extends DoubleMatrix2DTest {
         }
     }
 
+    public void testZMultBlocked() {
+        // sizes that are not multiples of the GEMM block and register tiles
+        int m = 301, k = 263, n = 517;
+        double alpha = 3;
+        double beta = 5;
+        for (int ta = 0; ta < 2; ta++) {
+            for (int tb = 0; tb < 2; tb++) {
+                boolean transposeA = (ta == 1);
+                boolean transposeB = (tb == 1);
+                DoubleMatrix2D AA = new DenseDoubleMatrix2D(transposeA ? k : m, transposeA ? m : k);
+                DoubleMatrix2D BB = new DenseDoubleMatrix2D(transposeB ? n : k, transposeB ? k : n);
+                DoubleMatrix2D C = new DenseDoubleMatrix2D(m, n);
+                AA.assign(DoubleFunctions.random());
+                BB.assign(DoubleFunctions.random());
+                C.assign(DoubleFunctions.random());
+                DoubleMatrix2D expected = C.copy();
+                AA.zMult(BB, C, alpha, beta, transposeA, transposeB);
+                for (int i = 0; i < m; i++) {
+                    for (int j = 0; j < n; j++) {
+                        double s = 0;
+                        for (int p = 0; p < k; p++) {
+                            s += (transposeA ? AA.getQuick(p, i) : AA.getQuick(i, p))
+                                    * (transposeB ? BB.getQuick(j, p) : BB.getQuick(p, j));
+                        }
+                        assertEquals(alpha * s + beta * expected.getQuick(i, j), C.getQuick(i, j), TOL * k);
+                    }
+                }
+            }
+        }
+    }
+
+    public void testConvolve() {
+        DoubleMatrix2D M = new DenseDoubleMatrix2D(100, 90).assign(DoubleFunctions.random());
+        // direct, blocked direct and FFT
+        DoubleMatrix2D[][] cases = { { A, new DenseDoubleMatrix2D(3, 3) }, { A, new DenseDoubleMatrix2D(5, 4) },
+                { A, new DenseDoubleMatrix2D(NROWS, NCOLUMNS) }, { M, new DenseDoubleMatrix2D(40, 40) },
+                { M.viewDice(), new DenseDoubleMatrix2D(1, 30) } };
+        for (DoubleMatrix2D[] c : cases) {
+            DoubleMatrix2D kernel = c[1].assign(DoubleFunctions.random());
+            for (ConvolutionMode mode : ConvolutionMode.values()) {
+                assertConvolution(c[0], kernel, mode, true, ((DenseDoubleMatrix2D) c[0]).convolve(kernel, mode));
+                assertConvolution(c[0], kernel, mode, false, ((DenseDoubleMatrix2D) c[0]).correlate(kernel, mode));
+            }
+        }
+    }
+
+    private void assertConvolution(DoubleMatrix2D x, DoubleMatrix2D kernel, ConvolutionMode mode, boolean flip,
+            DoubleMatrix2D result) {
+        int kr = kernel.rows();
+        int kc = kernel.columns();
+        int[] start = new int[2];
+        int[] size = new int[2];
+        int[] n = { x.rows(), x.columns() };
+        int[] k = { kr, kc };
+        for (int d = 0; d < 2; d++) {
+            start[d] = (mode == ConvolutionMode.Full) ? 0 : (mode == ConvolutionMode.Same) ? (k[d] - 1) / 2
+                    : k[d] - 1;
+            size[d] = (mode == ConvolutionMode.Full) ? n[d] + k[d] - 1 : (mode == ConvolutionMode.Same) ? n[d]
+                    : Math.max(n[d] - k[d] + 1, 0);
+        }
+        assertEquals(size[0], result.rows());
+        assertEquals(size[1], result.columns());
+        for (int i = 0; i < size[0]; i++) {
+            for (int j = 0; j < size[1]; j++) {
+                double sum = 0;
+                for (int a = 0; a < kr; a++) {
+                    for (int b = 0; b < kc; b++) {
+                        int r = flip ? start[0] + i - a : start[0] + i + a - (kr - 1);
+                        int c = flip ? start[1] + j - b : start[1] + j + b - (kc - 1);
+                        if (r >= 0 && r < n[0] && c >= 0 && c < n[1]) {
+                            sum += x.getQuick(r, c) * kernel.getQuick(a, b);
+                        }
+                    }
+                }
+                assertEquals(sum, result.getQuick(i, j), TOL);
+            }
+        }
+    }
 }
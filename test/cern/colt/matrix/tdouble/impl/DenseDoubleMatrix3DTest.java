@@ -1,9 +1,13 @@
 package cern.colt.matrix.tdouble.impl;
 
+import cern.colt.function.tdouble.DoubleDoubleFunction;
+import cern.colt.function.tdouble.DoubleFunction;
+import cern.colt.matrix.ConvolutionMode;
 import cern.colt.matrix.tdcomplex.DComplexMatrix3D;
 import cern.colt.matrix.tdcomplex.impl.DenseDComplexMatrix3D;
 import cern.colt.matrix.tdouble.DoubleMatrix3D;
 import cern.colt.matrix.tdouble.DoubleMatrix3DTest;
+import cern.jet.math.tdouble.DoubleFunctions;
 
 public class DenseDoubleMatrix3DTest extends DoubleMatrix3DTest {
 
@@ -16,6 +20,48 @@ public class DenseDoubleMatrix3DTest extends DoubleMatrix3DTest {
         B = new DenseDoubleMatrix3D(NSLICES, NROWS, NCOLUMNS);
     }
 
+    public void testAssignSpecializedDoubleFunction() {
+        DoubleFunction[] functions = { DoubleFunctions.abs, DoubleFunctions.neg, DoubleFunctions.square,
+                DoubleFunctions.sqrt, DoubleFunctions.inv, DoubleFunctions.exp, DoubleFunctions.log,
+                DoubleFunctions.floor, DoubleFunctions.ceil, DoubleFunctions.rint, DoubleFunctions.sign,
+                DoubleFunctions.identity, DoubleFunctions.mult(2.5), DoubleFunctions.plus(-0.5),
+                DoubleFunctions.chain(DoubleFunctions.sqrt, DoubleFunctions.plus(1)),
+                DoubleFunctions.chain(DoubleFunctions.square, DoubleFunctions.chain(DoubleFunctions.abs,
+                        DoubleFunctions.minus(0.5))), DoubleFunctions.chain(DoubleFunctions.tan, DoubleFunctions.neg) };
+        DoubleMatrix3D Acopy = A.copy();
+        for (DoubleFunction f : functions) {
+            A.assign(Acopy).assign(f);
+            for (int s = 0; s < A.slices(); s++) {
+                for (int r = 0; r < A.rows(); r++) {
+                    for (int c = 0; c < A.columns(); c++) {
+                        assertEquals(f.apply(Acopy.getQuick(s, r, c)), A.getQuick(s, r, c), TOL);
+                    }
+                }
+            }
+        }
+    }
+
+    public void testAssignDoubleMatrix3DSpecializedDoubleDoubleFunction() {
+        DoubleDoubleFunction[] functions = { DoubleFunctions.plus, DoubleFunctions.minus,
+                DoubleFunctions.plusMultSecond(3), DoubleFunctions.plusMultFirst(0),
+                DoubleFunctions.plusMultFirst(-1), DoubleFunctions.plusMultFirst(2), DoubleFunctions.mult,
+                DoubleFunctions.div, DoubleFunctions.max, DoubleFunctions.min,
+                DoubleFunctions.chain(DoubleFunctions.abs, DoubleFunctions.minus),
+                DoubleFunctions.chain(DoubleFunctions.sqrt, DoubleFunctions.pow) };
+        DoubleMatrix3D Acopy = A.copy();
+        for (DoubleDoubleFunction f : functions) {
+            A.assign(Acopy).assign(B, f);
+            for (int s = 0; s < A.slices(); s++) {
+                for (int r = 0; r < A.rows(); r++) {
+                    for (int c = 0; c < A.columns(); c++) {
+                        assertEquals(f.apply(Acopy.getQuick(s, r, c), B.getQuick(s, r, c)), A.getQuick(s, r, c),
+                                TOL);
+                    }
+                }
+            }
+        }
+    }
+
     public void testDct3() {
         DoubleMatrix3D Acopy = A.copy();
         ((DenseDoubleMatrix3D) A).dct3(true);
@@ -167,4 +213,60 @@ public class DenseDoubleMatrix3DTest extends DoubleMatrix3DTest {
         }
     }
 
+    public void testConvolve() {
+        DoubleMatrix3D M = new DenseDoubleMatrix3D(20, 18, 16).assign(DoubleFunctions.random());
+        // direct, blocked direct and FFT
+        DoubleMatrix3D[][] cases = { { A, new DenseDoubleMatrix3D(2, 2, 3) }, { A, new DenseDoubleMatrix3D(3, 4, 5) },
+                { M, new DenseDoubleMatrix3D(12, 12, 12) } };
+        for (DoubleMatrix3D[] c : cases) {
+            DoubleMatrix3D kernel = c[1].assign(DoubleFunctions.random());
+            for (ConvolutionMode mode : ConvolutionMode.values()) {
+                assertConvolution(c[0], kernel, mode, true, ((DenseDoubleMatrix3D) c[0]).convolve(kernel, mode));
+                assertConvolution(c[0], kernel, mode, false, ((DenseDoubleMatrix3D) c[0]).correlate(kernel, mode));
+            }
+        }
+    }
+
+    private void assertConvolution(DoubleMatrix3D x, DoubleMatrix3D kernel, ConvolutionMode mode, boolean flip,
+            DoubleMatrix3D result) {
+        int[] start = new int[3];
+        int[] size = new int[3];
+        int[] n = { x.slices(), x.rows(), x.columns() };
+        int[] k = { kernel.slices(), kernel.rows(), kernel.columns() };
+        for (int d = 0; d < 3; d++) {
+            start[d] = (mode == ConvolutionMode.Full) ? 0 : (mode == ConvolutionMode.Same) ? (k[d] - 1) / 2
+                    : k[d] - 1;
+            size[d] = (mode == ConvolutionMode.Full) ? n[d] + k[d] - 1 : (mode == ConvolutionMode.Same) ? n[d]
+                    : Math.max(n[d] - k[d] + 1, 0);
+        }
+        assertEquals(size[0], result.slices());
+        assertEquals(size[1], result.rows());
+        assertEquals(size[2], result.columns());
+        int[] idx = new int[3];
+        for (int s = 0; s < size[0]; s++) {
+            for (int i = 0; i < size[1]; i++) {
+                for (int j = 0; j < size[2]; j++) {
+                    double sum = 0;
+                    for (int a = 0; a < k[0]; a++) {
+                        for (int b = 0; b < k[1]; b++) {
+                            for (int c = 0; c < k[2]; c++) {
+                                int[] cell = { s, i, j };
+                                int[] offset = { a, b, c };
+                                boolean inside = true;
+                                for (int d = 0; d < 3; d++) {
+                                    idx[d] = flip ? start[d] + cell[d] - offset[d] : start[d] + cell[d] + offset[d]
+                                            - (k[d] - 1);
+                                    inside &= idx[d] >= 0 && idx[d] < n[d];
+                                }
+                                if (inside) {
+                                    sum += x.getQuick(idx[0], idx[1], idx[2]) * kernel.getQuick(a, b, c);
+                                }
+                            }
+                        }
+                    }
+                    assertEquals(sum, result.getQuick(s, i, j), TOL);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,174 @@
+package cern.colt.matrix.tdouble.impl;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.DoubleMatrix2DTest;
+import cern.jet.math.tdouble.DoubleFunctions;
+import edu.emory.mathcs.utils.ConcurrencyContext;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class SparseBSRDoubleMatrix2DTest extends DoubleMatrix2DTest {
+
+    protected int BLOCK_SIZE = 3;
+
+    public SparseBSRDoubleMatrix2DTest(String arg0) {
+        super(arg0);
+        NROWS = 12;
+        NCOLUMNS = 18;
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new SparseBSRDoubleMatrix2D(NROWS, NCOLUMNS, BLOCK_SIZE);
+        B = new SparseBSRDoubleMatrix2D(NROWS, NCOLUMNS, BLOCK_SIZE);
+        Bt = new SparseBSRDoubleMatrix2D(NCOLUMNS, NROWS, BLOCK_SIZE);
+    }
+
+    public void testConversions() {
+        // block tridiagonal matrix with a few holes inside of the blocks
+        for (int blockSize : new int[] { 1, 2, 3, 6 }) {
+            int n = 12 * blockSize;
+            SparseRCDoubleMatrix2D S = new SparseRCDoubleMatrix2D(n, n);
+            for (int i = 0; i < n; i++) {
+                for (int j = Math.max(0, i - blockSize); j < Math.min(n, i + blockSize + 1); j++) {
+                    if ((i + 2 * j) % 5 != 0) {
+                        S.setQuick(i, j, i - 0.5 * j + 1);
+                    }
+                }
+            }
+            SparseBSRDoubleMatrix2D M = new SparseBSRDoubleMatrix2D(S, blockSize);
+            assertEquals(blockSize, M.getBlockSize());
+            assertEquals(S.cardinality(), M.cardinality());
+            assertTrue(M.blockCardinality() <= 3 * (n / blockSize));
+            assertEquals(S, M);
+            assertEquals(S, new SparseBSRDoubleMatrix2D(S.getColumnCompressed(), blockSize));
+            assertEquals(S, new SparseBSRDoubleMatrix2D(S.getDense(), blockSize));
+            assertEquals(S, M.getRowCompressed());
+            assertEquals(S, M.getColumnCompressed());
+            assertEquals(S.getTranspose(), M.getTranspose());
+            assertTrue(M.getRowCompressed().hasColumnIndexesSorted());
+            assertEquals(S.cardinality(), M.getRowCompressed().cardinality());
+        }
+    }
+
+    public void testSetQuick() {
+        SparseBSRDoubleMatrix2D M = new SparseBSRDoubleMatrix2D(6, 9, 3);
+        M.setQuick(4, 8, 1);
+        M.setQuick(0, 0, 2);
+        M.setQuick(5, 0, 3);
+        M.setQuick(3, 4, 4);
+        M.setQuick(3, 4, 0);
+        M.setQuick(1, 5, 0);
+        // the block of (3, 4) stays, with an explicit zero
+        assertEquals(4, M.blockCardinality());
+        assertEquals(3, M.cardinality());
+        assertEquals(1, M.getQuick(4, 8), TOL);
+        assertEquals(2, M.getQuick(0, 0), TOL);
+        assertEquals(3, M.getQuick(5, 0), TOL);
+        assertEquals(0, M.getQuick(3, 4), TOL);
+        int[] p = M.getBlockRowPointers();
+        int[] j = M.getBlockColumnIndexes();
+        assertEquals(1, p[1]);
+        assertEquals(0, j[1]);
+        assertEquals(1, j[2]);
+        assertEquals(2, j[3]);
+        M.trimToSize();
+        assertEquals(36, M.getValues().length);
+        try {
+            new SparseBSRDoubleMatrix2D(7, 9, 3);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new SparseBSRDoubleMatrix2D(6, 6, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testBlockZMult() {
+        for (int blockSize : new int[] { 2, 3, 6 }) {
+            int rows = 4 * blockSize;
+            int columns = 7 * blockSize;
+            DoubleMatrix2D D = new DenseDoubleMatrix2D(rows, columns);
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < columns; j++) {
+                    if (random.nextInt(3) == 0) {
+                        D.setQuick(i, j, random.nextDouble());
+                    }
+                }
+            }
+            SparseBSRDoubleMatrix2D M = new SparseBSRDoubleMatrix2D(D, blockSize);
+            DoubleMatrix1D y = new DenseDoubleMatrix1D(columns).assign(2.5);
+            for (int j = 0; j < columns; j += 2) {
+                y.setQuick(j, j - 3);
+            }
+            DoubleMatrix1D yt = y.viewPart(0, rows).copy();
+            DoubleMatrix1D z = new DenseDoubleMatrix1D(rows).assign(1);
+            assertEquals(D.zMult(y, z.copy(), 2, 3, false), M.zMult(y, z.copy(), 2, 3, false));
+            assertEquals(D.zMult(y, null), M.zMult(y, null));
+            assertEquals(D.zMult(yt, null, 2, 0, true), M.zMult(yt, null, 2, 0, true));
+            DoubleMatrix1D zt = new DenseDoubleMatrix1D(2 * columns).viewStrides(2);
+            zt.assign(-1);
+            assertEquals(D.zMult(yt, zt.copy(), 1, 0.5, true), M.zMult(yt, zt, 1, 0.5, true));
+            // strided operand
+            DoubleMatrix1D ys = new DenseDoubleMatrix1D(2 * columns).viewStrides(2).assign(y);
+            assertEquals(D.zMult(y, null), M.zMult(ys, null));
+
+            DoubleMatrix2D B = new DenseDoubleMatrix2D(columns, 5).assign(1.5);
+            B.viewColumn(2).assign(y);
+            DoubleMatrix2D C = new DenseDoubleMatrix2D(rows, 5).assign(-2);
+            assertEquals(D.zMult(B, C.copy(), 2, 3, false, false), M.zMult(B, C.copy(), 2, 3, false, false));
+            assertEquals(D.zMult(B.viewDice().copy(), null, 1, 0, false, true), M.zMult(B.viewDice().copy(), null,
+                    1, 0, false, true));
+            DoubleMatrix2D Bt = new DenseDoubleMatrix2D(rows, 5).assign(0.5);
+            assertEquals(D.zMult(Bt, null, 1, 0, true, false), M.zMult(Bt, null, 1, 0, true, false));
+            DoubleMatrix2D Ct = new DenseDoubleMatrix2D(columns, 5).assign(-2);
+            assertEquals(D.zMult(Bt, Ct.copy(), 2, 3, true, false), M.zMult(Bt, Ct.copy(), 2, 3, true, false));
+            assertEquals(D.zMult(Bt.viewDice().copy(), Ct.copy(), 2, 3, true, true), M.zMult(Bt.viewDice().copy(),
+                    Ct.copy(), 2, 3, true, true));
+        }
+    }
+
+    public void testBlockZMultParallel() {
+        try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+            context.setNumberOfThreads(4);
+            context.setThreadsBeginN("SparseBSRDoubleMatrix2D.zMult", 1);
+            testBlockZMult();
+        }
+    }
+
+    public void testTransposedZMultThreads() {
+        // block columns without blocks, so that some ranges are empty
+        DoubleMatrix2D D = new DenseDoubleMatrix2D(randomSparse(random, 60, 93));
+        D.viewPart(0, 30, 60, 15).assign(0);
+        SparseBSRDoubleMatrix2D M = new SparseBSRDoubleMatrix2D(D, 3);
+        DoubleMatrix2D B = new DenseDoubleMatrix2D(60, 7).assign(DoubleFunctions.random());
+        DoubleMatrix2D expected;
+        try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+            context.setNumberOfThreads(1);
+            expected = M.zMult(B, null, 1.5, 0, true, false);
+        }
+        assertEquals(D.zMult(B, null, 1.5, 0, true, false), expected);
+        for (boolean reproducible : new boolean[] { false, true }) {
+            ConcurrencyUtils.setReproducible(reproducible);
+            try {
+                for (int nthreads : new int[] { 2, 3, 8, 64 }) {
+                    DoubleMatrix2D C;
+                    try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                        context.setNumberOfThreads(nthreads);
+                        context.setThreadsBeginN("SparseBSRDoubleMatrix2D.zMult", 1);
+                        C = M.zMult(B, null, 1.5, 0, true, false);
+                    }
+                    // every cell is summed in the same order
+                    for (int r = 0; r < C.rows(); r++) {
+                        for (int c = 0; c < C.columns(); c++) {
+                            assertEquals(expected.getQuick(r, c), C.getQuick(r, c), 0);
+                        }
+                    }
+                }
+            } finally {
+                ConcurrencyUtils.setReproducible(false);
+            }
+        }
+    }
+}
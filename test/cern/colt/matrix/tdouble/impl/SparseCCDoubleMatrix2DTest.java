@@ -1,6 +1,11 @@
 package cern.colt.matrix.tdouble.impl;
 
+import java.util.Random;
+
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.DoubleMatrix2DTest;
+import cern.colt.matrix.tdouble.algo.SparseDoubleAlgebra;
+import cern.jet.math.tdouble.DoubleFunctions;
 
 public class SparseCCDoubleMatrix2DTest extends DoubleMatrix2DTest {
 
@@ -14,6 +19,94 @@ public class SparseCCDoubleMatrix2DTest extends DoubleMatrix2DTest {
         Bt = new SparseCCDoubleMatrix2D(NCOLUMNS, NROWS);
     }
 
+    public void testFreeze() {
+        // cells inserted in decreasing row order leave the row indexes unsorted
+        SparseCCDoubleMatrix2D S = new SparseCCDoubleMatrix2D(NROWS, NCOLUMNS);
+        for (int c = 0; c < NCOLUMNS; c++) {
+            for (int r = NROWS - 1; r >= 0; r -= 3) {
+                S.setQuick(r, c, r + c + 1);
+            }
+        }
+        assertFalse(S.isFrozen());
+        assertSame(S, S.freeze());
+        assertTrue(S.isFrozen());
+        for (int r = 0; r < NROWS; r++) {
+            for (int c = 0; c < NCOLUMNS; c++) {
+                assertEquals((NROWS - 1 - r) % 3 == 0 ? r + c + 1 : 0, S.getQuick(r, c), TOL);
+            }
+        }
+        assertEquals(S.cardinality(), S.getDense().cardinality());
+        try {
+            S.setQuick(0, 0, 1);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        try {
+            S.viewDice().setQuick(0, 0, 1);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        try {
+            S.assign(DoubleFunctions.neg);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        // copies are not frozen
+        double s00 = S.getQuick(0, 0);
+        DoubleMatrix2D T = S.copy();
+        T.setQuick(0, 0, -1);
+        assertEquals(-1, T.getQuick(0, 0), TOL);
+        assertEquals(s00, S.getQuick(0, 0), TOL);
+    }
+
+    public void testSparseMult() {
+        Random random = new Random(0);
+        double[][] a = randomSparse(random, NROWS, NCOLUMNS);
+        double[][] b = randomSparse(random, NCOLUMNS, 11);
+        double[][] c = randomSparse(random, NROWS, 11);
+        DenseDoubleMatrix2D DA = new DenseDoubleMatrix2D(a);
+        DenseDoubleMatrix2D DB = new DenseDoubleMatrix2D(b);
+        SparseCCDoubleMatrix2D SA = new SparseCCDoubleMatrix2D(a);
+        SparseCCDoubleMatrix2D SB = new SparseCCDoubleMatrix2D(b);
+
+        // C = alpha * A * B, without densifying C
+        SparseCCDoubleMatrix2D C = (SparseCCDoubleMatrix2D) SA.zMult(SB, null, 2, 0, false, false);
+        assertEquals(DA.zMult(DB, null, 2, 0, false, false), C);
+        assertTrue(C.hasRowIndexesSorted());
+        int[] p = C.getColumnPointers();
+        int[] j = C.getRowIndexes();
+        for (int i = 0; i + 1 < p.length; i++) {
+            for (int k = p[i] + 1; k < p[i + 1]; k++) {
+                assertTrue(j[k - 1] < j[k]);
+            }
+        }
+
+        // C = alpha * A * B + beta * C
+        C = new SparseCCDoubleMatrix2D(c);
+        SA.zMult(SB, C, 2, 3, false, false);
+        assertEquals(DA.zMult(DB, new DenseDoubleMatrix2D(c), 2, 3, false, false), C);
+
+        // transposed operands
+        assertEquals(DA.zMult(DA, null, 1, 0, true, false), SA.zMult(SA, null, 1, 0, true, false));
+        assertEquals(DB.zMult(DA, null, 1, 0, true, true), SB.zMult(SA, null, 1, 0, true, true));
+
+        // R * A * P
+        double[][] m = randomSparse(random, NROWS, NROWS);
+        DenseDoubleMatrix2D expected = (DenseDoubleMatrix2D) DA.viewDice().zMult(new DenseDoubleMatrix2D(m), null)
+                .zMult(DA, null);
+        assertEquals(expected, SA.getTranspose().tripleProduct(new SparseCCDoubleMatrix2D(m), SA));
+        assertEquals(expected, SparseDoubleAlgebra.DEFAULT.mult(SA.getTranspose(), new SparseRCDoubleMatrix2D(m), SA));
+        assertEquals(DA.zMult(DB, null), SparseDoubleAlgebra.DEFAULT.mult(SA, new SparseRCDoubleMatrix2D(b)));
+        try {
+            SA.tripleProduct(SA, SA);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        // empty product
+        assertEquals(0, new SparseCCDoubleMatrix2D(NROWS, NCOLUMNS).zMult(SB, null).cardinality());
+    }
+
     //    public void testZMultDoubleMatrix2DDoubleMatrix2DDoubleDoubleBooleanBoolean() {
     //
     //        double alpha = 2;
@@ -166,5 +259,4 @@ public class SparseCCDoubleMatrix2DTest extends DoubleMatrix2DTest {
     //        }
     //
     //    }
-
 }
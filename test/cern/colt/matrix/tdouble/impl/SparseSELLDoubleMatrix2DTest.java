@@ -0,0 +1,160 @@
+package cern.colt.matrix.tdouble.impl;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2DTest;
+
+public class SparseSELLDoubleMatrix2DTest extends DoubleMatrix2DTest {
+
+    protected int SLICE_HEIGHT = 4;
+
+    protected int SORT_WINDOW = 8;
+
+    public SparseSELLDoubleMatrix2DTest(String arg0) {
+        super(arg0);
+    }
+
+    protected void createMatrices() throws Exception {
+        A = new SparseSELLDoubleMatrix2D(NROWS, NCOLUMNS, SLICE_HEIGHT, SORT_WINDOW);
+        B = new SparseSELLDoubleMatrix2D(NROWS, NCOLUMNS, SLICE_HEIGHT, SORT_WINDOW);
+        Bt = new SparseSELLDoubleMatrix2D(NCOLUMNS, NROWS, SLICE_HEIGHT, SORT_WINDOW);
+    }
+
+    public void testConversions() {
+        SparseRCDoubleMatrix2D S = powerLaw(37, 29);
+        for (int sliceHeight : new int[] { 1, 4, 8 }) {
+            for (int sortWindow : new int[] { 1, 8, 64 }) {
+                SparseSELLDoubleMatrix2D M = new SparseSELLDoubleMatrix2D(S, sliceHeight, sortWindow);
+                assertEquals(S.cardinality(), M.cardinality());
+                assertEquals(S, M);
+                assertEquals(S, new SparseSELLDoubleMatrix2D(S.getColumnCompressed(), sliceHeight, sortWindow));
+                assertEquals(S, new SparseSELLDoubleMatrix2D(S.getDense(), sliceHeight, sortWindow));
+                assertEquals(S, M.getRowCompressed());
+                assertEquals(S, M.getColumnCompressed());
+                assertTrue(M.getRowCompressed().hasColumnIndexesSorted());
+                int[] lengths = M.getRowLengths();
+                int[] permutation = M.getRowPermutation();
+                for (int p = 0; p < S.rows(); p++) {
+                    assertEquals(S.viewRow(permutation[p]).cardinality(), lengths[p]);
+                    if (p % sortWindow != 0) {
+                        assertTrue(lengths[p - 1] >= lengths[p]);
+                    }
+                }
+            }
+        }
+        assertEquals(S, new SparseSELLDoubleMatrix2D(S));
+    }
+
+    public void testSetQuick() {
+        SparseSELLDoubleMatrix2D M = new SparseSELLDoubleMatrix2D(6, 9, 4, 4);
+        M.setQuick(4, 8, 1);
+        M.setQuick(0, 0, 2);
+        M.setQuick(5, 0, 3);
+        M.setQuick(5, 4, 4);
+        M.setQuick(1, 5, 0);
+        M.setQuick(0, 7, 5);
+        M.setQuick(1, 3, 6);
+        assertEquals(6, M.cardinality());
+        assertEquals(1, M.getQuick(4, 8), TOL);
+        assertEquals(2, M.getQuick(0, 0), TOL);
+        assertEquals(3, M.getQuick(5, 0), TOL);
+        assertEquals(4, M.getQuick(5, 4), TOL);
+        assertEquals(5, M.getQuick(0, 7), TOL);
+        assertEquals(6, M.getQuick(1, 3), TOL);
+        assertEquals(0, M.getQuick(1, 5), TOL);
+        // the first slice is 2 cells wide, the second one too
+        int[] pointers = M.getSlicePointers();
+        assertEquals(8, pointers[1]);
+        assertEquals(16, pointers[2]);
+        M.trimToSize();
+        assertEquals(16, M.getValues().length);
+        M.assign(0);
+        assertEquals(0, M.cardinality());
+        assertEquals(0, M.getQuick(0, 0), TOL);
+        try {
+            new SparseSELLDoubleMatrix2D(6, 9, 0, 4);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new SparseSELLDoubleMatrix2D(6, 9, 4, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testPowerLawZMult() {
+        int rows = 53;
+        int columns = 41;
+        SparseRCDoubleMatrix2D S = powerLaw(rows, columns);
+        DoubleMatrix1D y = new DenseDoubleMatrix1D(columns).assign(2.5);
+        for (int j = 0; j < columns; j += 2) {
+            y.setQuick(j, j - 3);
+        }
+        DoubleMatrix1D yt = new DenseDoubleMatrix1D(rows).assign(0.5);
+        yt.setQuick(7, -2);
+        DoubleMatrix1D z = new DenseDoubleMatrix1D(rows).assign(1);
+        // slices taller than a vector exercise the gather kernel of the SIMD backend
+        for (int sliceHeight : new int[] { 4, 16 }) {
+            SparseSELLDoubleMatrix2D M = new SparseSELLDoubleMatrix2D(S, sliceHeight, 16);
+            assertEquals(S.zMult(y, z.copy(), 2, 3, false), M.zMult(y, z.copy(), 2, 3, false));
+            assertEquals(S.zMult(y, null), M.zMult(y, null));
+            assertEquals(S.zMult(yt, null, 2, 0, true), M.zMult(yt, null, 2, 0, true));
+            DoubleMatrix1D zt = new DenseDoubleMatrix1D(2 * columns).viewStrides(2);
+            zt.assign(-1);
+            assertEquals(S.zMult(yt, zt.copy(), 1, 0.5, true), M.zMult(yt, zt, 1, 0.5, true));
+            // strided operand
+            DoubleMatrix1D ys = new DenseDoubleMatrix1D(2 * columns).viewStrides(2).assign(y);
+            assertEquals(S.zMult(y, null), M.zMult(ys, null));
+        }
+        // incompatible operands
+        SparseSELLDoubleMatrix2D M = new SparseSELLDoubleMatrix2D(S, 4, 16);
+        try {
+            M.zMult(yt, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            M.zMult(y, null, 1, 0, true);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            M.zMult(y, new DenseDoubleMatrix1D(rows - 1));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testPaddingIsSkipped() {
+        int rows = 53;
+        int columns = 41;
+        SparseRCDoubleMatrix2D S = powerLaw(rows, columns);
+        // padding cells have column index 0
+        DoubleMatrix1D y = new DenseDoubleMatrix1D(columns).assign(1.5);
+        y.setQuick(0, Double.POSITIVE_INFINITY);
+        // a short row, whose padding cells are multiplied with yt[row]
+        int row = 1;
+        assertTrue(S.viewRow(row).cardinality() < columns / 2);
+        DoubleMatrix1D yt = new DenseDoubleMatrix1D(rows).assign(0.5);
+        yt.setQuick(row, Double.POSITIVE_INFINITY);
+        for (int sliceHeight : new int[] { 4, 16 }) {
+            SparseSELLDoubleMatrix2D M = new SparseSELLDoubleMatrix2D(S, sliceHeight, 16);
+            assertEquals(S.zMult(y, null), M.zMult(y, null));
+            assertEquals(S.zMult(yt, null, 1, 0, true), M.zMult(yt, null, 1, 0, true));
+        }
+    }
+
+    /*
+     * A few long rows and many short ones, some of them empty.
+     */
+    private SparseRCDoubleMatrix2D powerLaw(int rows, int columns) {
+        SparseRCDoubleMatrix2D S = new SparseRCDoubleMatrix2D(rows, columns);
+        for (int i = 0; i < rows; i++) {
+            int length = (i % 11 == 3) ? columns : columns / (1 + i % 7) / 2;
+            for (int k = 0; k < length; k++) {
+                S.setQuick(i, random.nextInt(columns), random.nextDouble() - 0.5);
+            }
+        }
+        return S;
+    }
+}
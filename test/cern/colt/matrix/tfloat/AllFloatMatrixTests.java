@@ -2,6 +2,7 @@ package cern.colt.matrix.tfloat;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import cern.colt.matrix.tfloat.algo.SmpFloatBlasTest;
 import cern.colt.matrix.tfloat.algo.solver.AllFloatMatrixSolverTests;
 import cern.colt.matrix.tfloat.impl.DenseColumnFloatMatrix2DTest;
 import cern.colt.matrix.tfloat.impl.DenseColumnFloatMatrix2DViewTest;
@@ -70,6 +71,8 @@ public class AllFloatMatrixTests {
         suite.addTestSuite(DenseLargeFloatMatrix3DTest.class);
         suite.addTestSuite(DenseLargeFloatMatrix3DViewTest.class);
 
+        suite.addTestSuite(SmpFloatBlasTest.class);
+
         suite.addTest(AllFloatMatrixSolverTests.suite());
         return suite;
     }
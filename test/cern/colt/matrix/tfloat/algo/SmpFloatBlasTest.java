@@ -0,0 +1,78 @@
+package cern.colt.matrix.tfloat.algo;
+
+import junit.framework.TestCase;
+import cern.colt.matrix.tfloat.FloatMatrix1D;
+import cern.colt.matrix.tfloat.FloatMatrix2D;
+import cern.colt.matrix.tfloat.impl.DenseFloatMatrix1D;
+import cern.colt.matrix.tfloat.impl.DenseFloatMatrix2D;
+import cern.jet.math.tfloat.FloatFunctions;
+import edu.emory.mathcs.utils.ConcurrencyContext;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class SmpFloatBlasTest extends TestCase {
+
+    protected int SIZE = 113;
+
+    protected float TOL = 1e-4f;
+
+    protected FloatBlas blas = new SmpFloatBlas();
+
+    public SmpFloatBlasTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testDsymv() {
+        // not symmetric: only one triangle may be read
+        FloatMatrix2D A = new DenseFloatMatrix2D(SIZE, SIZE).assign(FloatFunctions.random());
+        FloatMatrix1D x = new DenseFloatMatrix1D(SIZE).assign(FloatFunctions.random());
+        FloatMatrix1D y = new DenseFloatMatrix1D(SIZE).assign(FloatFunctions.random());
+        for (boolean isUpperTriangular : new boolean[] { false, true }) {
+            FloatMatrix1D expected = y.copy();
+            try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                context.setNumberOfThreads(1);
+                blas.dsymv(isUpperTriangular, 1.5f, A, x, -0.5f, expected);
+            }
+            for (int nthreads : new int[] { 2, 4, 7 }) {
+                FloatMatrix1D actual = y.copy();
+                try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                    context.setNumberOfThreads(nthreads);
+                    context.setThreadsBeginN_2D(1);
+                    blas.dsymv(isUpperTriangular, 1.5f, A, x, -0.5f, actual);
+                }
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    public void testDtrmv() {
+        FloatMatrix2D A = new DenseFloatMatrix2D(SIZE, SIZE).assign(FloatFunctions.random());
+        FloatMatrix1D x = new DenseFloatMatrix1D(SIZE).assign(FloatFunctions.random());
+        for (boolean isUpperTriangular : new boolean[] { false, true }) {
+            for (boolean transposeA : new boolean[] { false, true }) {
+                for (boolean isUnitTriangular : new boolean[] { false, true }) {
+                    FloatMatrix1D expected = x.copy();
+                    try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                        context.setNumberOfThreads(1);
+                        blas.dtrmv(isUpperTriangular, transposeA, isUnitTriangular, A, expected);
+                    }
+                    for (int nthreads : new int[] { 2, 4, 7 }) {
+                        FloatMatrix1D actual = x.copy();
+                        try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                            context.setNumberOfThreads(nthreads);
+                            context.setThreadsBeginN_2D(1);
+                            blas.dtrmv(isUpperTriangular, transposeA, isUnitTriangular, A, actual);
+                        }
+                        assertEquals(expected, actual);
+                    }
+                }
+            }
+        }
+    }
+
+    private void assertEquals(FloatMatrix1D expected, FloatMatrix1D actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getQuick(i), actual.getQuick(i), TOL);
+        }
+    }
+}
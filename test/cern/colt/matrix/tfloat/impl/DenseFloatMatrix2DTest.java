@@ -4,6 +4,11 @@ import cern.colt.matrix.tfcomplex.FComplexMatrix2D;
 import cern.colt.matrix.tfcomplex.impl.DenseFComplexMatrix2D;
 import cern.colt.matrix.tfloat.FloatMatrix2D;
 import cern.colt.matrix.tfloat.FloatMatrix2DTest;
+import cern.colt.matrix.tfloat.FloatMatrix3D;
+import cern.colt.matrix.tfloat.algo.DenseFloatAlgebra;
+import cern.jet.math.tfloat.FloatFunctions;
+import edu.emory.mathcs.utils.ConcurrencyContext;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
 
 public class DenseFloatMatrix2DTest extends FloatMatrix2DTest {
 
@@ -17,6 +22,41 @@ public class DenseFloatMatrix2DTest extends FloatMatrix2DTest {
         Bt = new DenseFloatMatrix2D(NCOLUMNS, NROWS);
     }
 
+    public void testReproducibleReductions() {
+        FloatMatrix2D M = new DenseFloatMatrix2D(301, 257);
+        for (int r = 0; r < M.rows(); r++) {
+            for (int c = 0; c < M.columns(); c++) {
+                M.setQuick(r, c, (float) (random.nextGaussian() * Math.pow(10, random.nextInt(6))));
+            }
+        }
+        FloatMatrix2D D = M.viewDice();
+        FloatMatrix3D S = new DenseFloatMatrix3D(6, 101, 113).assign(M.vectorize().viewPart(0, 6 * 101 * 113)
+                .toArray());
+        ConcurrencyUtils.setReproducible(true);
+        try {
+            float[] expected = null;
+            for (int n = 1; n <= 5; n++) {
+                float[] result;
+                try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                    context.setNumberOfThreads(n);
+                    result = new float[] { M.zSum(), D.zSum(), M.vectorize().zSum(), S.zSum(),
+                            M.aggregate(FloatFunctions.plus, FloatFunctions.square),
+                            S.aggregate(FloatFunctions.plus, FloatFunctions.abs),
+                            M.vectorize().zDotProduct(D.viewDice().vectorize()),
+                            DenseFloatAlgebra.DEFAULT.vectorNorm2(D) };
+                }
+                if (expected == null) {
+                    expected = result;
+                }
+                for (int i = 0; i < result.length; i++) {
+                    assertEquals(expected[i], result[i], 0);
+                }
+            }
+        } finally {
+            ConcurrencyUtils.setReproducible(false);
+        }
+    }
+
     public void testAssignFloatArray() {
         float[] expected = new float[(int) A.size()];
         for (int i = 0; i < A.size(); i++) {
@@ -224,4 +264,34 @@ public class DenseFloatMatrix2DTest extends FloatMatrix2DTest {
         }
     }
 
+    public void testZMultBlocked() {
+        // sizes that are not multiples of the GEMM block and register tiles
+        int m = 301, k = 263, n = 517;
+        float alpha = 3;
+        float beta = 5;
+        for (int ta = 0; ta < 2; ta++) {
+            for (int tb = 0; tb < 2; tb++) {
+                boolean transposeA = (ta == 1);
+                boolean transposeB = (tb == 1);
+                FloatMatrix2D AA = new DenseFloatMatrix2D(transposeA ? k : m, transposeA ? m : k);
+                FloatMatrix2D BB = new DenseFloatMatrix2D(transposeB ? n : k, transposeB ? k : n);
+                FloatMatrix2D C = new DenseFloatMatrix2D(m, n);
+                AA.assign(FloatFunctions.random());
+                BB.assign(FloatFunctions.random());
+                C.assign(FloatFunctions.random());
+                FloatMatrix2D expected = C.copy();
+                AA.zMult(BB, C, alpha, beta, transposeA, transposeB);
+                for (int i = 0; i < m; i++) {
+                    for (int j = 0; j < n; j++) {
+                        float s = 0;
+                        for (int p = 0; p < k; p++) {
+                            s += (transposeA ? AA.getQuick(p, i) : AA.getQuick(i, p))
+                                    * (transposeB ? BB.getQuick(j, p) : BB.getQuick(p, j));
+                        }
+                        assertEquals(alpha * s + beta * expected.getQuick(i, j), C.getQuick(i, j), TOL * k);
+                    }
+                }
+            }
+        }
+    }
 }
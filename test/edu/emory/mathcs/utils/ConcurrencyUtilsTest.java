@@ -0,0 +1,495 @@
+package edu.emory.mathcs.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import cern.colt.function.tdouble.DoubleDoubleFunction;
+import cern.colt.function.tdouble.DoubleFunction;
+import cern.colt.function.tfloat.FloatFloatFunction;
+import cern.colt.function.tint.IntIntFunction;
+import cern.colt.function.tlong.LongLongFunction;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.algo.solver.DefaultDoubleIterationMonitor;
+import cern.colt.matrix.tdouble.algo.solver.DoubleIR;
+import cern.colt.matrix.tdouble.algo.solver.IterativeSolverDoubleNotConvergedException;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
+import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
+import cern.jet.math.tdouble.DoubleFunctions;
+
+public class ConcurrencyUtilsTest extends TestCase {
+
+    protected int N = 10007;
+
+    protected Random random = new Random(0);
+
+    public ConcurrencyUtilsTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testCustomExecutor() {
+        ExecutorService pool = newNamedThreadPool(2, "custom");
+        try {
+            for (int nthreads : new int[] { 1, 4, 7 }) {
+                try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                    context.setNumberOfThreads(nthreads);
+                    context.setThreadPool(pool);
+                    assertRanges(nthreads > 1, 2);
+                    assertReductions();
+                }
+            }
+            ConcurrencyUtils.setThreadPool(pool);
+            try {
+                assertRanges(ConcurrencyUtils.getNumberOfThreads() > 1, 2);
+                assertReductions();
+            } finally {
+                ConcurrencyUtils.resetThreadPool();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testReproducibleWithCustomExecutor() {
+        final double[] a = new double[N];
+        for (int i = 0; i < N; i++) {
+            a[i] = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12));
+        }
+        DoubleRangeFunction sum = new DoubleRangeFunction() {
+            public double apply(int first, int last) {
+                double s = 0;
+                for (int i = first; i < last; i++) {
+                    s += a[i];
+                }
+                return s;
+            }
+        };
+        DoubleDoubleFunction plus = new DoubleDoubleFunction() {
+            public double apply(double x, double y) {
+                return x + y;
+            }
+        };
+        ExecutorService pool = newNamedThreadPool(3, "custom");
+        ConcurrencyUtils.setReproducible(true);
+        try {
+            double expected = ConcurrencyUtils.parallelReduce(0, N, ConcurrencyUtils.getGrainSize(N, 1), sum, plus);
+            for (int nthreads : new int[] { 1, 2, 5, 16 }) {
+                try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                    context.setNumberOfThreads(nthreads);
+                    int grain = ConcurrencyUtils.getGrainSize(N, 1);
+                    assertEquals(expected, ConcurrencyUtils.parallelReduce(0, N, grain, sum, plus), 0);
+                    context.setThreadPool(pool);
+                    assertEquals(expected, ConcurrencyUtils.parallelReduce(0, N, grain, sum, plus), 0);
+                }
+            }
+        } finally {
+            ConcurrencyUtils.setReproducible(false);
+            pool.shutdown();
+        }
+    }
+
+    public void testCustomExecutorRunsKernels() {
+        ExecutorService pool = newNamedThreadPool(2, "custom");
+        try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+            context.setNumberOfThreads(4);
+            context.setThreadsBeginN_2D(1);
+            context.setThreadPool(pool);
+            final Thread caller = Thread.currentThread();
+            final AtomicInteger custom = new AtomicInteger();
+            final AtomicInteger foreign = new AtomicInteger();
+            DoubleMatrix2D A = new DenseDoubleMatrix2D(256, 256).assign(1);
+            A.assign(new DoubleFunction() {
+                public double apply(double x) {
+                    Thread t = Thread.currentThread();
+                    if (t.getName().startsWith("custom")) {
+                        custom.incrementAndGet();
+                    } else if (t != caller) {
+                        foreign.incrementAndGet();
+                    }
+                    return 2 * x;
+                }
+            });
+            assertEquals(2.0 * A.size(), A.zSum(), 0);
+            assertTrue(custom.get() > 0);
+            assertEquals(0, foreign.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testWorkerExceptionReachesCaller() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("worker failed");
+        Future<?>[] futures = new Future[2];
+        futures[0] = ConcurrencyUtils.submit(new Runnable() {
+            public void run() {
+            }
+        });
+        futures[1] = ConcurrencyUtils.submit(new Runnable() {
+            public void run() {
+                throw failure;
+            }
+        });
+        try {
+            ConcurrencyUtils.waitForCompletion(futures);
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        // checked exceptions are wrapped
+        final IOException checked = new IOException("worker failed");
+        futures = new Future[] { ConcurrencyUtils.submit(new Callable<Double>() {
+            public Double call() throws IOException {
+                throw checked;
+            }
+        }) };
+        try {
+            ConcurrencyUtils.waitForCompletion(futures, DoubleFunctions.plus);
+            fail();
+        } catch (RuntimeException e) {
+            assertSame(checked, e.getCause());
+        }
+
+        DoubleFunction throwing = new DoubleFunction() {
+            public double apply(double x) {
+                if (x == 100) {
+                    throw failure;
+                }
+                return x;
+            }
+        };
+        ExecutorService pool = newNamedThreadPool(2, "custom");
+        try {
+            for (boolean customPool : new boolean[] { false, true }) {
+                try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                    context.setNumberOfThreads(4);
+                    context.setThreadsBeginN_2D(1);
+                    if (customPool) {
+                        context.setThreadPool(pool);
+                    }
+                    DoubleMatrix2D A = new DenseDoubleMatrix2D(256, 256);
+                    A.assign(1);
+                    A.setQuick(200, 7, 100);
+                    try {
+                        A.assign(throwing);
+                        fail();
+                    } catch (IllegalStateException e) {
+                        assertSame(failure, e);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testCancel() {
+        DoubleMatrix2D A = new DenseDoubleMatrix2D(300, 300).assign(DoubleFunctions.random());
+        DoubleMatrix2D B = new DenseDoubleMatrix2D(300, 300).assign(DoubleFunctions.random());
+        for (int nthreads : new int[] { 1, 4 }) {
+            DoubleMatrix2D C = new DenseDoubleMatrix2D(300, 300);
+            try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                context.setNumberOfThreads(nthreads);
+                A.zMult(B, C);
+                context.cancel();
+                try {
+                    A.zMult(B, C);
+                    fail();
+                } catch (CancellationException e) {
+                    // expected
+                }
+            }
+            // a closed context does not affect later computations
+            A.zMult(B, C);
+        }
+    }
+
+    public void testDeadline() throws IterativeSolverDoubleNotConvergedException {
+        /*
+         * Richardson iteration for A = I - R, where R is a rotation: the norm
+         * of the residual stays the same, so the solver neither converges nor
+         * diverges.
+         */
+        double c = Math.cos(1);
+        double s = Math.sin(1);
+        DoubleMatrix2D A = new DenseDoubleMatrix2D(new double[][] { { 1 - c, s }, { -s, 1 - c } });
+        DoubleMatrix1D b = new DenseDoubleMatrix1D(new double[] { 1, 2 });
+        DoubleMatrix1D x = new DenseDoubleMatrix1D(2);
+        DoubleIR solver = new DoubleIR(x);
+        solver.setIterationMonitor(new DefaultDoubleIterationMonitor(Integer.MAX_VALUE, 0, 0, 1e5));
+        long start = System.nanoTime();
+        try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+            context.setDeadline(50, TimeUnit.MILLISECONDS);
+            try {
+                solver.solve(A, b, x);
+                fail();
+            } catch (CancellationException e) {
+                assertTrue(context.isCancelled());
+            }
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(solver.getIterationMonitor().iterations() > 0);
+    }
+
+    public void testRangeBoundaries() {
+        ExecutorService pool = newNamedThreadPool(3, "custom");
+        try {
+            for (boolean customPool : new boolean[] { false, true }) {
+                try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                    context.setNumberOfThreads(4);
+                    if (customPool) {
+                        context.setThreadPool(pool);
+                    }
+                    assertEmptyRange(5, 5);
+                    assertEmptyRange(7, 3);
+                    for (int first : new int[] { 0, -3, 1000, Integer.MIN_VALUE, Integer.MAX_VALUE - 1000 }) {
+                        for (int n : new int[] { 1, 2, 17, 1000 }) {
+                            for (int grain : new int[] { -1, 0, 1, 7, n, 5000 }) {
+                                assertRange(first, first + n, grain);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testThresholdsRoundTrip() throws IOException {
+        File file = File.createTempFile("thresholds", ".properties");
+        try {
+            ConcurrencyUtils.setThreadsBeginN_1D(12345);
+            ConcurrencyUtils.setThreadsBeginN_2D(2345);
+            ConcurrencyUtils.setThreadsBeginN_3D(345);
+            ConcurrencyUtils.setThreadsBeginN_1D_FFT_2Threads(2048);
+            ConcurrencyUtils.setThreadsBeginN_1D_FFT_4Threads(16384);
+            ConcurrencyUtils.setThreadsBeginN("ConcurrencyUtilsTest.kernel", 77);
+            ConcurrencyUtils.saveThresholds(file.getPath());
+
+            ConcurrencyUtils.resetThreadsBeginN();
+            ConcurrencyUtils.resetThreadsBeginN_FFT();
+            assertTrue(ConcurrencyUtils.getThreadsBeginN_1D() != 12345);
+            assertEquals(ConcurrencyUtils.getThreadsBeginN_2D(), ConcurrencyUtils
+                    .getThreadsBeginN_2D("ConcurrencyUtilsTest.kernel"));
+
+            ConcurrencyUtils.loadThresholds(file.getPath());
+            assertEquals(12345, ConcurrencyUtils.getThreadsBeginN_1D());
+            assertEquals(2345, ConcurrencyUtils.getThreadsBeginN_2D());
+            assertEquals(345, ConcurrencyUtils.getThreadsBeginN_3D());
+            assertEquals(2048, ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads());
+            assertEquals(16384, ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads());
+            assertEquals(77, ConcurrencyUtils.getThreadsBeginN_1D("ConcurrencyUtilsTest.kernel"));
+            assertEquals(77, ConcurrencyUtils.getThreadsBeginN_2D("ConcurrencyUtilsTest.kernel"));
+            assertEquals(2345, ConcurrencyUtils.getThreadsBeginN_2D("ConcurrencyUtilsTest.other"));
+
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write("threadsBeginN_2D=many\n".getBytes("ISO-8859-1"));
+            } finally {
+                out.close();
+            }
+            try {
+                ConcurrencyUtils.loadThresholds(file.getPath());
+                fail();
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            ConcurrencyUtils.resetThreadsBeginN();
+            ConcurrencyUtils.resetThreadsBeginN_FFT();
+            file.delete();
+        }
+    }
+
+    public void testShutdown() {
+        ForkJoinPool pool = ConcurrencyUtils.getForkJoinPool();
+        ConcurrencyUtils.shutdown();
+        assertTrue(pool.isShutdown());
+        ForkJoinPool newPool = ConcurrencyUtils.getForkJoinPool();
+        assertNotSame(pool, newPool);
+        assertFalse(newPool.isShutdown());
+        assertReductions();
+    }
+
+    /*
+     * Checks that parallelFor covers the range once and runs in the threads
+     * of the installed executor only.
+     */
+    private void assertRanges(boolean parallel, int maxThreads) {
+        final Thread caller = Thread.currentThread();
+        final int[] counts = new int[N];
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final AtomicInteger custom = new AtomicInteger();
+        final AtomicInteger foreign = new AtomicInteger();
+        ConcurrencyUtils.parallelFor(0, N, 16, new RangeProcedure() {
+            public void apply(int first, int last) {
+                int n = active.incrementAndGet();
+                synchronized (maxActive) {
+                    maxActive.set(Math.max(maxActive.get(), n));
+                }
+                Thread t = Thread.currentThread();
+                if (t.getName().startsWith("custom")) {
+                    custom.incrementAndGet();
+                } else if (t != caller) {
+                    foreign.incrementAndGet();
+                }
+                for (int i = first; i < last; i++) {
+                    counts[i]++;
+                }
+                ConcurrencyUtils.sleep(1);
+                active.decrementAndGet();
+            }
+        });
+        for (int i = 0; i < N; i++) {
+            assertEquals(1, counts[i]);
+        }
+        assertEquals(0, foreign.get());
+        assertEquals(parallel, custom.get() > 0);
+        assertTrue(maxActive.get() <= maxThreads);
+    }
+
+    private void assertEmptyRange(int first, int last) {
+        ConcurrencyUtils.parallelFor(first, last, 1, new RangeProcedure() {
+            public void apply(int first, int last) {
+                fail();
+            }
+        });
+        try {
+            ConcurrencyUtils.parallelReduceLong(first, last, 1, new LongRangeFunction() {
+                public long apply(int first, int last) {
+                    return 0;
+                }
+            }, new LongLongFunction() {
+                public long apply(long x, long y) {
+                    return x + y;
+                }
+            });
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /*
+     * Checks that parallelFor and parallelReduce visit every index of [first,
+     * last) exactly once.
+     */
+    private void assertRange(final int first, int last, int grain) {
+        final int[] counts = new int[last - first];
+        ConcurrencyUtils.parallelFor(first, last, grain, new RangeProcedure() {
+            public void apply(int l, int h) {
+                assertTrue(l < h);
+                for (int i = l; i < h; i++) {
+                    synchronized (counts) {
+                        counts[i - first]++;
+                    }
+                }
+            }
+        });
+        long expected = 0;
+        for (int i = 0; i < counts.length; i++) {
+            assertEquals(1, counts[i]);
+            expected += first + i;
+        }
+        assertEquals(expected, ConcurrencyUtils.parallelReduceLong(first, last, grain, new LongRangeFunction() {
+            public long apply(int l, int h) {
+                assertTrue(l < h);
+                long s = 0;
+                for (int i = l; i < h; i++) {
+                    s += i;
+                }
+                return s;
+            }
+        }, new LongLongFunction() {
+            public long apply(long x, long y) {
+                return x + y;
+            }
+        }));
+        assertEquals(counts.length, ConcurrencyUtils.parallelReduceInt(first, last, grain, new IntRangeFunction() {
+            public int apply(int l, int h) {
+                return h - l;
+            }
+        }, new IntIntFunction() {
+            public int apply(int x, int y) {
+                return x + y;
+            }
+        }));
+    }
+
+    private void assertReductions() {
+        long expected = (long) N * (N - 1) / 2;
+        assertEquals(expected, ConcurrencyUtils.parallelReduce(0, N, 16, new DoubleRangeFunction() {
+            public double apply(int first, int last) {
+                double s = 0;
+                for (int i = first; i < last; i++) {
+                    s += i;
+                }
+                return s;
+            }
+        }, new DoubleDoubleFunction() {
+            public double apply(double x, double y) {
+                return x + y;
+            }
+        }), 0);
+        assertEquals(expected, ConcurrencyUtils.parallelReduceFloat(0, N, 16, new FloatRangeFunction() {
+            public float apply(int first, int last) {
+                return (float) ((long) last * (last - 1) / 2 - (long) first * (first - 1) / 2);
+            }
+        }, new FloatFloatFunction() {
+            public float apply(float x, float y) {
+                return x + y;
+            }
+        }), expected * 1e-6);
+        assertEquals(expected, ConcurrencyUtils.parallelReduceInt(0, N, 16, new IntRangeFunction() {
+            public int apply(int first, int last) {
+                int s = 0;
+                for (int i = first; i < last; i++) {
+                    s += i;
+                }
+                return s;
+            }
+        }, new IntIntFunction() {
+            public int apply(int x, int y) {
+                return x + y;
+            }
+        }));
+        assertEquals(expected, ConcurrencyUtils.parallelReduceLong(0, N, 16, new LongRangeFunction() {
+            public long apply(int first, int last) {
+                long s = 0;
+                for (int i = first; i < last; i++) {
+                    s += i;
+                }
+                return s;
+            }
+        }, new LongLongFunction() {
+            public long apply(long x, long y) {
+                return x + y;
+            }
+        }));
+    }
+
+    private static ExecutorService newNamedThreadPool(int nthreads, final String name) {
+        return Executors.newFixedThreadPool(nthreads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package hep.aida.tdouble.ref;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import edu.emory.mathcs.utils.ConcurrencyContext;
+import edu.emory.mathcs.utils.ConcurrencyUtils;
+
+public class DoubleHistogram1DTest extends TestCase {
+
+    protected int NROWS = 37;
+
+    protected int NCOLUMNS = 23;
+
+    protected double TOL = 1e-10;
+
+    protected Random random = new Random(0);
+
+    public DoubleHistogram1DTest(String arg0) {
+        super(arg0);
+    }
+
+    public void testFill_2D() {
+        double[] data = new double[NROWS * NCOLUMNS];
+        double[] weights = new double[NROWS * NCOLUMNS];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextGaussian();
+            weights[i] = random.nextDouble();
+        }
+        DoubleHistogram1D expected = new DoubleHistogram1D("expected", 20, -2, 2);
+        DoubleHistogram1D expectedWeighted = new DoubleHistogram1D("expected", 20, -2, 2);
+        for (int i = 0; i < data.length; i++) {
+            expected.fill(data[i]);
+            expectedWeighted.fill(data[i], weights[i]);
+        }
+        for (int nthreads : new int[] { 1, 3, 8 }) {
+            try (ConcurrencyContext context = ConcurrencyUtils.openContext()) {
+                context.setNumberOfThreads(nthreads);
+                context.setThreadsBeginN_1D(1);
+                DoubleHistogram1D actual = new DoubleHistogram1D("actual", 20, -2, 2);
+                actual.fill_2D(data, NROWS, NCOLUMNS, 0, NCOLUMNS, 1);
+                assertEquals(expected, actual);
+                actual = new DoubleHistogram1D("actual", 20, -2, 2);
+                actual.fill_2D(data, weights, NROWS, NCOLUMNS, 0, NCOLUMNS, 1);
+                assertEquals(expectedWeighted, actual);
+            }
+        }
+    }
+
+    private void assertEquals(DoubleHistogram1D expected, DoubleHistogram1D actual) {
+        assertEquals(expected.entries(), actual.entries());
+        assertEquals(expected.allEntries(), actual.allEntries());
+        for (int i = -2; i < 20; i++) {
+            assertEquals(expected.binEntries(i), actual.binEntries(i));
+            assertEquals(expected.binHeight(i), actual.binHeight(i), TOL);
+            assertEquals(expected.binError(i), actual.binError(i), TOL);
+        }
+        assertEquals(expected.sumAllBinHeights(), actual.sumAllBinHeights(), TOL);
+        assertEquals(expected.mean(), actual.mean(), TOL);
+        assertEquals(expected.rms(), actual.rms(), TOL);
+    }
+}